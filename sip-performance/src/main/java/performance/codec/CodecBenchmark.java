@@ -0,0 +1,130 @@
+package performance.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Properties;
+
+import javax.sip.ListeningPoint;
+import javax.sip.SipFactory;
+
+import gov.nist.javax.sip.SipProviderImpl;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.message.SIPMessage;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import gov.nist.javax.sip.stack.SIPDialog;
+import gov.nist.javax.sip.stack.SIPDialogCodec;
+import gov.nist.javax.sip.stack.state.SIPMessageCodec;
+import gov.nist.javax.sip.stack.state.SerializableDialogCodec;
+import gov.nist.javax.sip.stack.state.StateCodec;
+
+/**
+ * Compares the size and the round trip time of the binary codecs of the
+ * state stores with the Java serialization of the same messages and dialogs.
+ * 
+ * Usage: CodecBenchmark [iterations]
+ */
+public class CodecBenchmark {
+
+    private static final String INVITE = "INVITE sip:bob@biloxi.example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bKnashds8;rport\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "Route: <sip:p1.example.com;lr>,<sip:p2.example.com;lr>\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: <sip:alice@pc33.atlanta.example.com>\r\n"
+            + "Allow: INVITE, ACK, CANCEL, OPTIONS, BYE\r\n"
+            + "User-Agent: benchmark\r\n"
+            + "Content-Type: application/sdp\r\n"
+            + "Content-Length: 4\r\n\r\n"
+            + "v=0\n";
+
+    private static final String OK = "SIP/2.0 200 OK\r\n"
+            + "Via: SIP/2.0/UDP 127.0.0.1:5090;branch=z9hG4bK776asdhds\r\n"
+            + "Record-Route: <sip:p1.example.com;lr>,<sip:p2.example.com;lr>\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>;tag=a6c85cf\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: <sip:bob@192.0.2.4>\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        SIPMessage message = new StringMsgParser().parseSIPMessage(INVITE.getBytes("UTF-8"), true, false, null);
+        run("message, structured", new SIPMessageCodec(false), message, iterations);
+        run("message, raw bytes", new SIPMessageCodec(true), message, iterations);
+        run("message, java serialization", new SerializableCodec<SIPMessage>(), message, iterations);
+
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "CodecBenchmark");
+        SipFactory sipFactory = SipFactory.getInstance();
+        sipFactory.setPathName("gov.nist");
+        SipStackImpl sipStack = (SipStackImpl) sipFactory.createSipStack(properties);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint("127.0.0.1", 5090, ListeningPoint.UDP);
+        SipProviderImpl sipProvider = (SipProviderImpl) sipStack.createSipProvider(listeningPoint);
+        SIPResponse response = (SIPResponse) new StringMsgParser().parseSIPMessage(OK.getBytes("UTF-8"), true, false, null);
+        SIPDialog dialog = new SIPDialog(sipProvider, response);
+        dialog.setDialogId(response.getDialogId(false));
+        dialog.setState(SIPDialog.CONFIRMED_STATE);
+        run("dialog, binary", new SIPDialogCodec(), dialog, iterations);
+        run("dialog, java serialization", new SerializableDialogCodec(), dialog, iterations);
+        sipStack.stop();
+    }
+
+    private static <V> void run(String name, StateCodec<V> codec, V value, int iterations) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        // warm up
+        for (int i = 0; i < iterations / 10; i++) {
+            roundTrip(codec, value, bytes);
+        }
+        long encoded = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            encoded = roundTrip(codec, value, bytes);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-30s %6d bytes %8.2f us per round trip", name, encoded,
+                elapsed / 1000.0 / iterations));
+    }
+
+    private static <V> int roundTrip(StateCodec<V> codec, V value, ByteArrayOutputStream bytes) throws Exception {
+        bytes.reset();
+        codec.encode(value, new DataOutputStream(bytes));
+        codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return bytes.size();
+    }
+
+    private static class SerializableCodec<V> implements StateCodec<V> {
+
+        public void encode(V value, java.io.DataOutput out) throws java.io.IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            ObjectOutputStream objects = new ObjectOutputStream(bytes);
+            objects.writeObject(value);
+            objects.close();
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+        }
+
+        @SuppressWarnings("unchecked")
+        public V decode(java.io.DataInput in) throws java.io.IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return (V) objects.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new java.io.IOException(e);
+            } finally {
+                objects.close();
+            }
+        }
+    }
+}
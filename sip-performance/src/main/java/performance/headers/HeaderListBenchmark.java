@@ -0,0 +1,81 @@
+package performance.headers;
+
+import javax.sip.header.RouteHeader;
+
+import gov.nist.javax.sip.header.RouteList;
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.header.ViaList;
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+/**
+ * Times the header list operations of a proxy forwarding a request: pushing
+ * its Via and popping the Route naming it, then copying the Via and Route
+ * lists as a stateful proxy does when it clones the request.
+ * 
+ * Usage: HeaderListBenchmark [iterations]
+ */
+public class HeaderListBenchmark {
+
+    private static final String INVITE = "INVITE sip:bob@biloxi.example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP p2.example.com;branch=z9hG4bK2d4790.1\r\n"
+            + "Via: SIP/2.0/UDP p1.example.com;branch=z9hG4bK1d4790.1\r\n"
+            + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bKnashds8;rport\r\n"
+            + "Max-Forwards: 68\r\n"
+            + "Route: <sip:p3.example.com;lr>,<sip:p4.example.com;lr>,<sip:p5.example.com;lr>\r\n"
+            + "Record-Route: <sip:p2.example.com;lr>,<sip:p1.example.com;lr>\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: <sip:alice@pc33.atlanta.example.com>\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        SIPRequest request = (SIPRequest) new StringMsgParser().parseSIPMessage(INVITE.getBytes("UTF-8"), true,
+                false, null);
+        Via via = (Via) request.getTopmostVia().clone();
+        via.setHost("p3.example.com");
+        RouteHeader route = (RouteHeader) request.getHeader(RouteHeader.NAME);
+
+        forward(request, via, route, iterations / 10);
+        long start = System.nanoTime();
+        forward(request, via, route, iterations);
+        report("addFirst(Via) + removeFirst(Route)", System.nanoTime() - start, iterations);
+
+        copy(request, iterations / 10);
+        start = System.nanoTime();
+        int size = copy(request, iterations);
+        report("clone Via and Route lists (" + size + ")", System.nanoTime() - start, iterations);
+    }
+
+    /**
+     * Forwards the request through one hop and back, so that the lists keep
+     * their size.
+     */
+    private static void forward(SIPRequest request, Via via, RouteHeader route, int iterations)
+            throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            request.addFirst(via);
+            request.removeFirst(RouteHeader.NAME);
+            request.removeFirst(Via.NAME);
+            request.addFirst(route);
+        }
+    }
+
+    private static int copy(SIPRequest request, int iterations) {
+        int size = 0;
+        for (int i = 0; i < iterations; i++) {
+            ViaList vias = (ViaList) request.getViaHeaders().clone();
+            RouteList routes = (RouteList) request.getRouteHeaders().clone();
+            size = vias.size() + routes.size();
+        }
+        return size;
+    }
+
+    private static void report(String name, long elapsed, int iterations) {
+        System.out.println(String.format("%-40s %8.1f ns per operation", name, (double) elapsed / iterations));
+    }
+}
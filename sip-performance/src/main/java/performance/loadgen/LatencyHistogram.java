@@ -0,0 +1,81 @@
+package performance.loadgen;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in microseconds, with 16 buckets per power
+ * of two so that the percentiles are read within 6% of the recorded values.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 16;
+
+    private static final int BUCKETS = SUB_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long micros) {
+        counts.incrementAndGet(index(Math.max(0, micros)));
+    }
+
+    /**
+     * @return a copy of the counts, to compute the percentiles of an interval
+     *         with {@link #percentile(long[], long[], double)}.
+     */
+    public long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param current counts at the end of the interval
+     * @param previous counts at the start of the interval, null for all
+     * @param percentile between 0 and 100
+     * @return the latency in microseconds under which the percentile of the
+     *         values recorded in the interval are, -1 if none was recorded.
+     */
+    public static long percentile(long[] current, long[] previous, double percentile) {
+        long total = count(current, previous);
+        if (total == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += current[i] - (previous == null ? 0 : previous[i]);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public static long count(long[] current, long[] previous) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += current[i] - (previous == null ? 0 : previous[i]);
+        }
+        return total;
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + 4;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1L) << (exponent - 4)) - 1;
+    }
+}
@@ -0,0 +1,334 @@
+package performance.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sip.ClientTransaction;
+import javax.sip.Dialog;
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.ListeningPoint;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.ServerTransaction;
+import javax.sip.SipListener;
+import javax.sip.SipProvider;
+import javax.sip.TimeoutEvent;
+import javax.sip.TransactionTerminatedEvent;
+import javax.sip.address.Address;
+import javax.sip.address.AddressFactory;
+import javax.sip.address.SipURI;
+import javax.sip.header.CSeqHeader;
+import javax.sip.header.CallIdHeader;
+import javax.sip.header.ContactHeader;
+import javax.sip.header.HeaderFactory;
+import javax.sip.header.SubscriptionStateHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.MessageFactory;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.javax.sip.IdGenerator;
+import gov.nist.javax.sip.ResponseEventExt;
+
+/**
+ * The user agent client generating the load. Each started scenario is a call
+ * keyed by its Call-ID; it holds one permit of the concurrency limit until it
+ * completes or fails. The time each request is sent is kept as the
+ * application data of its client transaction so that the final response
+ * records the latency of the transaction.
+ */
+public class LoadClient implements SipListener {
+
+    private final SipProvider sipProvider;
+    private final AddressFactory addressFactory;
+    private final HeaderFactory headerFactory;
+    private final MessageFactory messageFactory;
+    private final LoadStatistics statistics;
+    private final Scenario scenario;
+    private final long holdMillis;
+    private final Semaphore concurrency;
+    private final int maxConcurrent;
+    private final String transport;
+    private final String targetHost;
+    private final int targetPort;
+    private final Address local;
+    private final ContactHeader contact;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ConcurrentHashMap<String, Call> calls = new ConcurrentHashMap<String, Call>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    static class Call {
+        volatile Dialog dialog;
+        volatile boolean cancelled;
+        volatile boolean hangingUp;
+    }
+
+    public LoadClient(SipProvider sipProvider, AddressFactory addressFactory, HeaderFactory headerFactory,
+            MessageFactory messageFactory, LoadStatistics statistics, Scenario scenario, long holdMillis,
+            int maxConcurrent, String targetHost, int targetPort) throws Exception {
+        this.sipProvider = sipProvider;
+        this.addressFactory = addressFactory;
+        this.headerFactory = headerFactory;
+        this.messageFactory = messageFactory;
+        this.statistics = statistics;
+        this.scenario = scenario;
+        this.holdMillis = holdMillis;
+        this.maxConcurrent = maxConcurrent;
+        this.concurrency = new Semaphore(maxConcurrent);
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+        ListeningPoint listeningPoint = sipProvider.getListeningPoints()[0];
+        this.transport = listeningPoint.getTransport();
+        SipURI uri = addressFactory.createSipURI("loadgen", listeningPoint.getIPAddress());
+        uri.setPort(listeningPoint.getPort());
+        local = addressFactory.createAddress(uri);
+        SipURI contactUri = (SipURI) uri.clone();
+        if (!ListeningPoint.UDP.equalsIgnoreCase(transport)) {
+            contactUri.setTransportParam(transport);
+        }
+        contact = headerFactory.createContactHeader(addressFactory.createAddress(contactUri));
+    }
+
+    /**
+     * Starts one scenario unless the concurrency limit is reached.
+     * 
+     * @return false if the scenario was throttled
+     */
+    public boolean start() {
+        if (!concurrency.tryAcquire()) {
+            statistics.throttled.increment();
+            return false;
+        }
+        statistics.started.increment();
+        Call call = new Call();
+        CallIdHeader callId = sipProvider.getNewCallId();
+        calls.put(callId.getCallId(), call);
+        try {
+            Request request;
+            switch (scenario) {
+            case REGISTER:
+                request = createRequest(Request.REGISTER, callId, null,
+                        "user" + sequence.getAndIncrement() % maxConcurrent);
+                request.addHeader(headerFactory.createExpiresHeader(3600));
+                break;
+            case SUBSCRIBE:
+                request = createRequest(Request.SUBSCRIBE, callId, "presence", "presentity");
+                request.addHeader(headerFactory.createEventHeader("presence"));
+                request.addHeader(headerFactory.createExpiresHeader(3600));
+                break;
+            default:
+                request = createRequest(Request.INVITE, callId, scenario.name().toLowerCase(), "callee");
+                break;
+            }
+            send(sipProvider.getNewClientTransaction(request), null);
+        } catch (Exception e) {
+            fail(callId.getCallId());
+        }
+        return true;
+    }
+
+    /**
+     * @return the scenarios started and not yet completed
+     */
+    public int getActive() {
+        return calls.size();
+    }
+
+    /**
+     * Fails the scenarios still running and stops the scheduler.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+        for (String callId : new ArrayList<String>(calls.keySet())) {
+            fail(callId);
+        }
+    }
+
+    private Request createRequest(String method, CallIdHeader callId, String requestUser, String toUser)
+            throws Exception {
+        SipURI requestUri = addressFactory.createSipURI(requestUser, targetHost);
+        requestUri.setPort(targetPort);
+        if (!ListeningPoint.UDP.equalsIgnoreCase(transport)) {
+            requestUri.setTransportParam(transport);
+        }
+        SipURI toUri = addressFactory.createSipURI(toUser, targetHost);
+        Address from = Request.REGISTER.equals(method) ? addressFactory.createAddress(toUri) : local;
+        List<ViaHeader> vias = new ArrayList<ViaHeader>();
+        ListeningPoint listeningPoint = sipProvider.getListeningPoints()[0];
+        vias.add(headerFactory.createViaHeader(listeningPoint.getIPAddress(), listeningPoint.getPort(), transport,
+                null));
+        Request request = messageFactory.createRequest(requestUri, method, callId,
+                headerFactory.createCSeqHeader(1L, method),
+                headerFactory.createFromHeader(from, IdGenerator.generateTag()),
+                headerFactory.createToHeader(addressFactory.createAddress(toUri), null), vias,
+                headerFactory.createMaxForwardsHeader(70));
+        request.addHeader(contact);
+        return request;
+    }
+
+    private void send(ClientTransaction clientTransaction, Dialog dialog) throws Exception {
+        clientTransaction.setApplicationData(System.nanoTime());
+        if (dialog == null) {
+            clientTransaction.sendRequest();
+        } else {
+            dialog.sendRequest(clientTransaction);
+        }
+    }
+
+    private void complete(String callId) {
+        if (calls.remove(callId) != null) {
+            statistics.completed.increment();
+            concurrency.release();
+        }
+    }
+
+    private void fail(String callId) {
+        if (calls.remove(callId) != null) {
+            statistics.failed.increment();
+            concurrency.release();
+        }
+    }
+
+    private void hangUp(final String callId, final Call call) {
+        if (call.hangingUp) {
+            return;
+        }
+        call.hangingUp = true;
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                try {
+                    Dialog dialog = call.dialog;
+                    if (scenario == Scenario.SUBSCRIBE) {
+                        Request unsubscribe = dialog.createRequest(Request.SUBSCRIBE);
+                        unsubscribe.addHeader(headerFactory.createEventHeader("presence"));
+                        unsubscribe.addHeader(headerFactory.createExpiresHeader(0));
+                        send(sipProvider.getNewClientTransaction(unsubscribe), dialog);
+                    } else {
+                        send(sipProvider.getNewClientTransaction(dialog.createRequest(Request.BYE)), dialog);
+                    }
+                } catch (Exception e) {
+                    fail(callId);
+                }
+            }
+        }, scenario == Scenario.CANCEL ? 0 : holdMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void processResponse(ResponseEvent responseEvent) {
+        ResponseEventExt event = (ResponseEventExt) responseEvent;
+        Response response = event.getResponse();
+        if (event.isRetransmission()) {
+            statistics.retransmissions.increment();
+            return;
+        }
+        String callId = ((CallIdHeader) response.getHeader(CallIdHeader.NAME)).getCallId();
+        Call call = calls.get(callId);
+        if (call == null) {
+            return;
+        }
+        String method = ((CSeqHeader) response.getHeader(CSeqHeader.NAME)).getMethod();
+        int status = response.getStatusCode();
+        ClientTransaction clientTransaction = event.getClientTransaction();
+        if (clientTransaction == null) {
+            clientTransaction = event.getOriginalTransaction();
+        }
+        try {
+            if (status < 200) {
+                if (scenario == Scenario.CANCEL && status == Response.RINGING && !call.cancelled
+                        && clientTransaction != null) {
+                    call.cancelled = true;
+                    send(sipProvider.getNewClientTransaction(clientTransaction.createCancel()), null);
+                }
+                return;
+            }
+            if (clientTransaction != null) {
+                Object sent = clientTransaction.getApplicationData();
+                if (sent instanceof Long) {
+                    clientTransaction.setApplicationData(null);
+                    statistics.recordLatency(method, System.nanoTime() - (Long) sent);
+                    statistics.transactions.increment();
+                }
+            }
+            if (Request.INVITE.equals(method)) {
+                if (status < 300) {
+                    Dialog dialog = event.getDialog();
+                    dialog.sendAck(dialog.createAck(((CSeqHeader) response.getHeader(CSeqHeader.NAME))
+                            .getSeqNumber()));
+                    call.dialog = dialog;
+                    hangUp(callId, call);
+                } else if (status == Response.REQUEST_TERMINATED && call.cancelled) {
+                    complete(callId);
+                } else {
+                    fail(callId);
+                }
+            } else if (Request.CANCEL.equals(method)) {
+                // the 487 of the INVITE ends the scenario
+            } else if (status >= 300) {
+                fail(callId);
+            } else if (Request.SUBSCRIBE.equals(method)) {
+                if (call.dialog == null) {
+                    call.dialog = event.getDialog();
+                }
+            } else {
+                complete(callId);
+            }
+        } catch (Exception e) {
+            fail(callId);
+        }
+    }
+
+    public void processRequest(RequestEvent requestEvent) {
+        Request request = requestEvent.getRequest();
+        try {
+            ServerTransaction serverTransaction = requestEvent.getServerTransaction();
+            if (serverTransaction == null) {
+                serverTransaction = sipProvider.getNewServerTransaction(request);
+            }
+            serverTransaction.sendResponse(messageFactory.createResponse(Response.OK, request));
+            if (!Request.NOTIFY.equals(request.getMethod())) {
+                return;
+            }
+            String callId = ((CallIdHeader) request.getHeader(CallIdHeader.NAME)).getCallId();
+            Call call = calls.get(callId);
+            if (call == null) {
+                return;
+            }
+            SubscriptionStateHeader state = (SubscriptionStateHeader) request
+                    .getHeader(SubscriptionStateHeader.NAME);
+            if (state != null && SubscriptionStateHeader.TERMINATED.equalsIgnoreCase(state.getState())) {
+                complete(callId);
+            } else {
+                if (call.dialog == null) {
+                    call.dialog = requestEvent.getDialog();
+                }
+                hangUp(callId, call);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void processTimeout(TimeoutEvent timeoutEvent) {
+        if (timeoutEvent.isServerTransaction()) {
+            return;
+        }
+        statistics.timeouts.increment();
+        Request request = timeoutEvent.getClientTransaction().getRequest();
+        fail(((CallIdHeader) request.getHeader(CallIdHeader.NAME)).getCallId());
+    }
+
+    public void processIOException(IOExceptionEvent exceptionEvent) {
+    }
+
+    public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+    }
+
+    public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+    }
+}
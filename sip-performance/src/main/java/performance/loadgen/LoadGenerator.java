@@ -0,0 +1,247 @@
+package performance.loadgen;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sip.ListeningPoint;
+import javax.sip.SipFactory;
+import javax.sip.SipProvider;
+import javax.sip.address.AddressFactory;
+import javax.sip.header.HeaderFactory;
+import javax.sip.message.MessageFactory;
+
+import gov.nist.javax.sip.ListeningPointExt;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.transports.processors.nio.NioMessageProcessorFactory;
+
+/**
+ * Generates SIP load against the built-in responder or against a target of
+ * the user's choosing, and reports throughput, latency percentiles,
+ * retransmissions, garbage collections and heap while it runs.
+ * 
+ * Usage: LoadGenerator [loadgen.properties]
+ * 
+ * The run is configured by the following properties, read from the file and
+ * overridden by system properties of the same name:
+ * <ul>
+ * <li><b>loadgen.scenario</b> CALL, REGISTER, SUBSCRIBE, CANCEL or FORK, CALL by default</li>
+ * <li><b>loadgen.transport</b> udp, tcp, tls, ws or wss, udp by default, ws and wss running over the NIO processors</li>
+ * <li><b>loadgen.rate</b> scenarios started per second, 100 by default</li>
+ * <li><b>loadgen.duration</b> seconds to run at that rate, 30 by default</li>
+ * <li><b>loadgen.phases</b> a ramp given as <code>rate:seconds,rate:seconds,...</code>, replacing the two above</li>
+ * <li><b>loadgen.maxConcurrent</b> scenarios running at once, those beyond are counted as throttled, 10000 by default</li>
+ * <li><b>loadgen.holdMillis</b> time between the answer and the BYE or the unsubscribe, 1000 by default</li>
+ * <li><b>loadgen.reportSeconds</b> seconds between two report lines, 1 by default</li>
+ * <li><b>loadgen.ip</b> the local address, 127.0.0.1 by default</li>
+ * <li><b>loadgen.localPort</b> the port of the generator, 5070 by default</li>
+ * <li><b>loadgen.responderPort</b> the port of the built-in responder, 5080 by default</li>
+ * <li><b>loadgen.target</b> host:port to send the load to instead of the built-in responder</li>
+ * </ul>
+ * Any other property, such as gov.nist.javax.sip.THREAD_POOL_SIZE, is passed to
+ * the stacks. Without javax.net.ssl.keyStore, tls and wss use the test-only key
+ * pair loadgen-test-only.jks of the test resources, which must then be on the
+ * class path.
+ */
+public class LoadGenerator {
+
+    private static final String PREFIX = "loadgen.";
+
+    public static void main(String[] args) throws Exception {
+        Properties configuration = new Properties();
+        if (args.length > 0) {
+            InputStream in = new FileInputStream(args[0]);
+            try {
+                configuration.load(in);
+            } finally {
+                in.close();
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PREFIX) || name.startsWith("gov.nist.javax.sip.") || name.startsWith("javax.sip.")) {
+                configuration.setProperty(name, System.getProperty(name));
+            }
+        }
+        new LoadGenerator().run(configuration);
+        System.exit(0);
+    }
+
+    private void run(Properties configuration) throws Exception {
+        Scenario scenario = Scenario.valueOf(configuration.getProperty(PREFIX + "scenario", "CALL").toUpperCase());
+        String transport = configuration.getProperty(PREFIX + "transport", ListeningPoint.UDP).toUpperCase();
+        int maxConcurrent = Integer.parseInt(configuration.getProperty(PREFIX + "maxConcurrent", "10000"));
+        long holdMillis = Long.parseLong(configuration.getProperty(PREFIX + "holdMillis", "1000"));
+        int reportSeconds = Integer.parseInt(configuration.getProperty(PREFIX + "reportSeconds", "1"));
+        String ip = configuration.getProperty(PREFIX + "ip", "127.0.0.1");
+        int localPort = Integer.parseInt(configuration.getProperty(PREFIX + "localPort", "5070"));
+        int responderPort = Integer.parseInt(configuration.getProperty(PREFIX + "responderPort", "5080"));
+        String target = configuration.getProperty(PREFIX + "target");
+        boolean webSocket = transport.equals(ListeningPointExt.WS) || transport.equals(ListeningPointExt.WSS);
+        List<int[]> phases = parsePhases(configuration);
+
+        Properties stackProperties = new Properties();
+        for (String name : configuration.stringPropertyNames()) {
+            if (!name.startsWith(PREFIX)) {
+                stackProperties.setProperty(name, configuration.getProperty(name));
+            }
+        }
+        stackProperties.setProperty("gov.nist.javax.sip.REENTRANT_LISTENER", "true");
+        if (webSocket && stackProperties.getProperty("gov.nist.javax.sip.MESSAGE_PROCESSOR_FACTORY") == null) {
+            // the NIO processors open WebSocket connections as a client, the Netty ones only accept them
+            stackProperties.setProperty("gov.nist.javax.sip.MESSAGE_PROCESSOR_FACTORY",
+                    NioMessageProcessorFactory.class.getName());
+        }
+        if ((transport.equals(ListeningPoint.TLS) || transport.equals(ListeningPointExt.WSS))
+                && stackProperties.getProperty("javax.net.ssl.keyStore") == null) {
+            configureKeyStore(stackProperties);
+        }
+
+        SipFactory sipFactory = SipFactory.getInstance();
+        sipFactory.setPathName("gov.nist");
+        AddressFactory addressFactory = sipFactory.createAddressFactory();
+        HeaderFactory headerFactory = sipFactory.createHeaderFactory();
+        MessageFactory messageFactory = sipFactory.createMessageFactory();
+        LoadStatistics statistics = new LoadStatistics();
+
+        List<SipStackImpl> sipStacks = new ArrayList<SipStackImpl>();
+        String targetHost = ip;
+        int targetPort = responderPort;
+        if (target == null) {
+            Properties responderProperties = (Properties) stackProperties.clone();
+            responderProperties.setProperty("javax.sip.STACK_NAME", "loadgen-responder");
+            responderProperties.setProperty("javax.sip.AUTOMATIC_DIALOG_SUPPORT", "off");
+            SipProvider responder = createProvider(sipFactory, responderProperties, ip, responderPort, transport,
+                    statistics, sipStacks);
+            responder.addSipListener(new LoadResponder(responder, addressFactory, headerFactory, messageFactory));
+        } else {
+            int colon = target.lastIndexOf(':');
+            targetHost = colon < 0 ? target : target.substring(0, colon);
+            targetPort = colon < 0 ? 5060 : Integer.parseInt(target.substring(colon + 1));
+        }
+        Properties clientProperties = (Properties) stackProperties.clone();
+        clientProperties.setProperty("javax.sip.STACK_NAME", "loadgen");
+        if (scenario == Scenario.FORK && clientProperties.getProperty("gov.nist.javax.sip.MAX_FORK_TIME_SECONDS") == null) {
+            clientProperties.setProperty("gov.nist.javax.sip.MAX_FORK_TIME_SECONDS", "32");
+        }
+        SipProvider caller = createProvider(sipFactory, clientProperties, ip, localPort, transport, statistics,
+                sipStacks);
+        LoadClient client = new LoadClient(caller, addressFactory, headerFactory, messageFactory, statistics,
+                scenario, holdMillis, maxConcurrent, targetHost, targetPort);
+        caller.addSipListener(client);
+
+        System.out.println(scenario + " over " + transport + " to " + targetHost + ":" + targetPort + ", phases "
+                + configuration.getProperty(PREFIX + "phases", phases.get(0)[0] + ":" + phases.get(0)[1])
+                + ", hold " + holdMillis + " ms, at most " + maxConcurrent + " concurrent");
+        LoadStatistics.printHeader(System.out);
+        long start = System.nanoTime();
+        long nextReport = start + reportSeconds * 1000000000L;
+        long phaseStart = start;
+        for (int[] phase : phases) {
+            int rate = phase[0];
+            long phaseEnd = phaseStart + phase[1] * 1000000000L;
+            long sent = 0;
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= phaseEnd) {
+                    break;
+                }
+                // start what the rate allows up to now, then sleep to the next report or start
+                long due = rate * (now - phaseStart) / 1000000000L;
+                while (sent < due) {
+                    client.start();
+                    sent++;
+                }
+                if (now >= nextReport) {
+                    statistics.report(System.out, (now - start) / 1000000, client.getActive());
+                    nextReport += reportSeconds * 1000000000L;
+                }
+                Thread.sleep(1);
+            }
+            phaseStart = phaseEnd;
+        }
+        // let the running scenarios end, bounded by the hold time and a transaction timeout
+        long drainEnd = System.nanoTime() + (holdMillis + 32000) * 1000000L;
+        while (client.getActive() > 0 && System.nanoTime() < drainEnd) {
+            Thread.sleep(10);
+            if (System.nanoTime() >= nextReport) {
+                statistics.report(System.out, (System.nanoTime() - start) / 1000000, client.getActive());
+                nextReport += reportSeconds * 1000000000L;
+            }
+        }
+        client.stop();
+        statistics.report(System.out, (System.nanoTime() - start) / 1000000, client.getActive());
+        statistics.summary(System.out, (System.nanoTime() - start) / 1000000);
+        for (SipStackImpl sipStack : sipStacks) {
+            sipStack.stop();
+        }
+    }
+
+    private static List<int[]> parsePhases(Properties configuration) {
+        List<int[]> phases = new ArrayList<int[]>();
+        String value = configuration.getProperty(PREFIX + "phases");
+        if (value == null) {
+            phases.add(new int[] { Integer.parseInt(configuration.getProperty(PREFIX + "rate", "100")),
+                    Integer.parseInt(configuration.getProperty(PREFIX + "duration", "30")) });
+            return phases;
+        }
+        for (String phase : value.split(",")) {
+            String[] parts = phase.trim().split(":");
+            phases.add(new int[] { Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()) });
+        }
+        return phases;
+    }
+
+    private static SipProvider createProvider(SipFactory sipFactory, Properties properties, String ip, int port,
+            String transport, LoadStatistics statistics, List<SipStackImpl> sipStacks) throws Exception {
+        SipStackImpl sipStack = (SipStackImpl) sipFactory.createSipStack(properties);
+        sipStacks.add(sipStack);
+        RetransmissionCounter counter = new RetransmissionCounter(statistics.retransmissions);
+        counter.init(sipStack);
+        sipStack.sipMessageValves.add(counter);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint(ip, port, transport);
+        return sipStack.createSipProvider(listeningPoint);
+    }
+
+    /**
+     * Uses the self-signed key pair of the test resources, for 127.0.0.1 and
+     * localhost, as both key store and trust store of the two stacks. Its
+     * private key is public, it is only meant for local load runs. The stacks
+     * read it from a file, so it is copied out of the class path.
+     */
+    private static void configureKeyStore(Properties properties) throws Exception {
+        File keyStore = File.createTempFile("loadgen", ".jks");
+        keyStore.deleteOnExit();
+        InputStream in = LoadGenerator.class.getResourceAsStream("loadgen-test-only.jks");
+        if (in == null) {
+            throw new IllegalStateException("loadgen-test-only.jks of the test resources is missing from the class path,"
+                    + " set javax.net.ssl.keyStore");
+        }
+        try {
+            OutputStream out = new FileOutputStream(keyStore);
+            try {
+                byte[] buffer = new byte[4096];
+                for (int read; (read = in.read(buffer)) > 0;) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        properties.setProperty("javax.net.ssl.keyStore", keyStore.getPath());
+        properties.setProperty("javax.net.ssl.keyStorePassword", "passphrase");
+        properties.setProperty("javax.net.ssl.keyStoreType", "jks");
+        properties.setProperty("javax.net.ssl.trustStore", keyStore.getPath());
+        properties.setProperty("javax.net.ssl.trustStorePassword", "passphrase");
+        properties.setProperty("javax.net.ssl.trustStoreType", "jks");
+        if (properties.getProperty("gov.nist.javax.sip.TLS_CLIENT_AUTH_TYPE") == null) {
+            properties.setProperty("gov.nist.javax.sip.TLS_CLIENT_AUTH_TYPE", "DisabledAll");
+        }
+    }
+}
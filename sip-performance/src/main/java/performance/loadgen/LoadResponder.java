@@ -0,0 +1,201 @@
+package performance.loadgen;
+
+import javax.sip.Dialog;
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.ListeningPoint;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.ServerTransaction;
+import javax.sip.SipProvider;
+import javax.sip.TimeoutEvent;
+import javax.sip.TransactionAlreadyExistsException;
+import javax.sip.TransactionState;
+import javax.sip.TransactionTerminatedEvent;
+import javax.sip.address.AddressFactory;
+import javax.sip.address.SipURI;
+import javax.sip.header.CSeqHeader;
+import javax.sip.header.ContactHeader;
+import javax.sip.header.EventHeader;
+import javax.sip.header.ExpiresHeader;
+import javax.sip.header.HeaderFactory;
+import javax.sip.header.SubscriptionStateHeader;
+import javax.sip.header.ToHeader;
+import javax.sip.message.MessageFactory;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.javax.sip.DialogTimeoutEvent;
+import gov.nist.javax.sip.IdGenerator;
+import gov.nist.javax.sip.SipListenerExt;
+import gov.nist.javax.sip.TransactionExt;
+import gov.nist.javax.sip.message.MessageExt;
+import gov.nist.javax.sip.stack.SIPServerTransaction;
+
+/**
+ * The user agent server answering the load. The user part of the Request-URI
+ * of an INVITE selects the behaviour: <code>call</code> rings and answers,
+ * <code>cancel</code> only rings and waits for the CANCEL, <code>fork</code>
+ * rings on two to-tags and answers on the second one as a forking proxy in
+ * front of two phones would. REGISTER is accepted, SUBSCRIBE is accepted and
+ * followed by a NOTIFY, terminated when the subscription expires.
+ */
+public class LoadResponder implements SipListenerExt {
+
+    private final SipProvider sipProvider;
+    private final AddressFactory addressFactory;
+    private final HeaderFactory headerFactory;
+    private final MessageFactory messageFactory;
+    private final ContactHeader contact;
+
+    public LoadResponder(SipProvider sipProvider, AddressFactory addressFactory, HeaderFactory headerFactory,
+            MessageFactory messageFactory) throws Exception {
+        this.sipProvider = sipProvider;
+        this.addressFactory = addressFactory;
+        this.headerFactory = headerFactory;
+        this.messageFactory = messageFactory;
+        ListeningPoint listeningPoint = sipProvider.getListeningPoints()[0];
+        SipURI uri = addressFactory.createSipURI("responder", listeningPoint.getIPAddress());
+        uri.setPort(listeningPoint.getPort());
+        if (!ListeningPoint.UDP.equalsIgnoreCase(listeningPoint.getTransport())) {
+            uri.setTransportParam(listeningPoint.getTransport());
+        }
+        contact = headerFactory.createContactHeader(addressFactory.createAddress(uri));
+    }
+
+    public void processRequest(RequestEvent requestEvent) {
+        Request request = requestEvent.getRequest();
+        String method = request.getMethod();
+        if (Request.ACK.equals(method)) {
+            return;
+        }
+        try {
+            ServerTransaction serverTransaction = requestEvent.getServerTransaction();
+            if (serverTransaction == null) {
+                try {
+                    serverTransaction = sipProvider.getNewServerTransaction(request);
+                } catch (TransactionAlreadyExistsException e) {
+                    // a retransmission racing the first copy
+                    return;
+                }
+            }
+            if (Request.INVITE.equals(method)) {
+                processInvite(request, serverTransaction);
+            } else if (Request.CANCEL.equals(method)) {
+                serverTransaction.sendResponse(messageFactory.createResponse(Response.OK, request));
+                ServerTransaction invite = ((SIPServerTransaction) serverTransaction).getCanceledInviteTransaction();
+                if (invite != null && invite.getState() == TransactionState.PROCEEDING) {
+                    invite.sendResponse(createResponse(Response.REQUEST_TERMINATED, invite.getRequest(),
+                            invite.getDialog() == null ? null : invite.getDialog().getLocalTag()));
+                }
+            } else if (Request.REGISTER.equals(method)) {
+                Response response = messageFactory.createResponse(Response.OK, request);
+                ContactHeader binding = (ContactHeader) request.getHeader(ContactHeader.NAME);
+                if (binding != null) {
+                    response.addHeader(binding);
+                }
+                ExpiresHeader expires = (ExpiresHeader) request.getHeader(ExpiresHeader.NAME);
+                response.addHeader(headerFactory.createExpiresHeader(expires == null ? 3600 : expires.getExpires()));
+                serverTransaction.sendResponse(response);
+            } else if (Request.SUBSCRIBE.equals(method)) {
+                processSubscribe(requestEvent, request, serverTransaction);
+            } else {
+                serverTransaction.sendResponse(messageFactory.createResponse(Response.OK, request));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void processInvite(Request request, ServerTransaction serverTransaction) throws Exception {
+        String user = ((SipURI) request.getRequestURI()).getUser();
+        if ("fork".equals(user)) {
+            // no dialog on this side, the two early dialogs only exist at the caller
+            serverTransaction.sendResponse(createResponse(Response.RINGING, request, "f1"));
+            serverTransaction.sendResponse(createResponse(Response.RINGING, request, "f2"));
+            serverTransaction.sendResponse(createResponse(Response.OK, request, "f2"));
+            return;
+        }
+        String tag = IdGenerator.generateTag();
+        sipProvider.getNewDialog(serverTransaction);
+        serverTransaction.sendResponse(createResponse(Response.RINGING, request, tag));
+        if (!"cancel".equals(user)) {
+            serverTransaction.sendResponse(createResponse(Response.OK, request, tag));
+        }
+    }
+
+    private void processSubscribe(RequestEvent requestEvent, Request request, ServerTransaction serverTransaction)
+            throws Exception {
+        Dialog dialog = requestEvent.getDialog();
+        String tag = null;
+        if (dialog == null) {
+            dialog = sipProvider.getNewDialog(serverTransaction);
+            tag = IdGenerator.generateTag();
+        }
+        ExpiresHeader expires = (ExpiresHeader) request.getHeader(ExpiresHeader.NAME);
+        int seconds = expires == null ? 3600 : expires.getExpires();
+        Response response = createResponse(Response.OK, request, tag);
+        response.addHeader(headerFactory.createExpiresHeader(seconds));
+        serverTransaction.sendResponse(response);
+    }
+
+    /**
+     * Sends the NOTIFY of a subscription once its 200 is out, the dialog
+     * only being able to create requests from then on.
+     */
+    public void processMessageSent(MessageExt message, TransactionExt transaction) {
+        if (!(message instanceof Response) || ((Response) message).getStatusCode() / 100 != 2
+                || !Request.SUBSCRIBE.equals(((CSeqHeader) message.getHeader(CSeqHeader.NAME)).getMethod())) {
+            return;
+        }
+        try {
+            Dialog dialog = transaction.getDialog();
+            int seconds = ((ExpiresHeader) message.getHeader(ExpiresHeader.NAME)).getExpires();
+            Request notify = dialog.createRequest(Request.NOTIFY);
+            notify.addHeader((EventHeader) transaction.getRequest().getHeader(EventHeader.NAME));
+            SubscriptionStateHeader state;
+            if (seconds == 0) {
+                state = headerFactory.createSubscriptionStateHeader(SubscriptionStateHeader.TERMINATED);
+                state.setReasonCode(SubscriptionStateHeader.TIMEOUT);
+            } else {
+                state = headerFactory.createSubscriptionStateHeader(SubscriptionStateHeader.ACTIVE);
+                state.setExpires(seconds);
+            }
+            notify.addHeader(state);
+            notify.addHeader(contact);
+            dialog.sendRequest(sipProvider.getNewClientTransaction(notify));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Response createResponse(int statusCode, Request request, String tag) throws Exception {
+        Response response = messageFactory.createResponse(statusCode, request);
+        ToHeader to = (ToHeader) response.getHeader(ToHeader.NAME);
+        if (tag != null && to.getTag() == null) {
+            to.setTag(tag);
+        }
+        if (statusCode < 300) {
+            response.addHeader(contact);
+        }
+        return response;
+    }
+
+    public void processResponse(ResponseEvent responseEvent) {
+    }
+
+    public void processTimeout(TimeoutEvent timeoutEvent) {
+    }
+
+    public void processIOException(IOExceptionEvent exceptionEvent) {
+    }
+
+    public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+    }
+
+    public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+    }
+
+    public void processDialogTimeout(DialogTimeoutEvent timeoutEvent) {
+    }
+}
@@ -0,0 +1,137 @@
+package performance.loadgen;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a load run: scenarios started, completed and failed, latency of
+ * the transactions per method, retransmissions, garbage collections and heap.
+ */
+public class LoadStatistics {
+
+    private static final String ALL = "all";
+
+    final LongAdder started = new LongAdder();
+    final LongAdder completed = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final LongAdder timeouts = new LongAdder();
+    final LongAdder throttled = new LongAdder();
+    final LongAdder retransmissions = new LongAdder();
+    final LongAdder transactions = new LongAdder();
+
+    private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    // values at the previous report
+    private long lastTime = System.nanoTime();
+    private long lastCompleted;
+    private long lastTransactions;
+    private long lastGcCount;
+    private long lastGcMillis;
+    private long[] lastLatencies;
+
+    public LoadStatistics() {
+        latencies.put(ALL, new LatencyHistogram());
+    }
+
+    /**
+     * @param method the method of the transaction
+     * @param nanos the time from the request sent to its final response
+     */
+    public void recordLatency(String method, long nanos) {
+        LatencyHistogram histogram = latencies.get(method);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(method, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos / 1000);
+        latencies.get(ALL).record(nanos / 1000);
+    }
+
+    public static void printHeader(PrintStream out) {
+        out.println("  time   active  started  completed  failed  timeout  throttled  per-s   tx/s   p50ms   p99ms  retrans  gc  gcMs  heapMB");
+    }
+
+    /**
+     * Prints the rates and latencies since the previous report.
+     */
+    public synchronized void report(PrintStream out, long elapsedMillis, long active) {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastTime) / 1e9;
+        long completedNow = completed.sum();
+        long transactionsNow = transactions.sum();
+        long[] latenciesNow = latencies.get(ALL).snapshot();
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        out.println(String.format("%6.1f  %7d  %7d  %9d  %6d  %7d  %9d  %5.0f  %6.0f  %6s  %6s  %7d  %2d  %4d  %6d",
+                elapsedMillis / 1000.0, active, started.sum(), completedNow, failed.sum(), timeouts.sum(),
+                throttled.sum(), (completedNow - lastCompleted) / seconds,
+                (transactionsNow - lastTransactions) / seconds,
+                millis(LatencyHistogram.percentile(latenciesNow, lastLatencies, 50)),
+                millis(LatencyHistogram.percentile(latenciesNow, lastLatencies, 99)), retransmissions.sum(),
+                gcCount - lastGcCount, gcMillis - lastGcMillis, heapMegabytes()));
+        lastTime = now;
+        lastCompleted = completedNow;
+        lastTransactions = transactionsNow;
+        lastLatencies = latenciesNow;
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+    }
+
+    /**
+     * Prints the totals of the run and the latency percentiles of each method.
+     */
+    public void summary(PrintStream out, long elapsedMillis) {
+        double seconds = Math.max(1, elapsedMillis) / 1000.0;
+        out.println();
+        out.println(String.format("%d started, %d completed (%.0f/s), %d failed, %d timeouts, %d throttled, "
+                + "%d transactions (%.0f/s), %d retransmissions in %.1f s",
+                started.sum(), completed.sum(), completed.sum() / seconds, failed.sum(), timeouts.sum(),
+                throttled.sum(), transactions.sum(), transactions.sum() / seconds, retransmissions.sum(), seconds));
+        out.println(String.format("%d collections taking %d ms, heap %d MB", gcCount(), gcMillis(), heapMegabytes()));
+        out.println();
+        out.println("method        count    p50ms    p90ms    p99ms  p99.9ms    maxms");
+        Map<String, LatencyHistogram> sorted = new TreeMap<String, LatencyHistogram>(latencies);
+        for (Map.Entry<String, LatencyHistogram> entry : sorted.entrySet()) {
+            long[] counts = entry.getValue().snapshot();
+            out.println(String.format("%-9s  %8d  %7s  %7s  %7s  %7s  %7s", entry.getKey(),
+                    LatencyHistogram.count(counts, null),
+                    millis(LatencyHistogram.percentile(counts, null, 50)),
+                    millis(LatencyHistogram.percentile(counts, null, 90)),
+                    millis(LatencyHistogram.percentile(counts, null, 99)),
+                    millis(LatencyHistogram.percentile(counts, null, 99.9)),
+                    millis(LatencyHistogram.percentile(counts, null, 100))));
+        }
+    }
+
+    private static String millis(long micros) {
+        return micros < 0 ? "-" : String.format("%.2f", micros / 1000.0);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static long heapMegabytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024);
+    }
+}
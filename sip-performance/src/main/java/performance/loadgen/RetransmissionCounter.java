@@ -0,0 +1,55 @@
+package performance.loadgen;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sip.SipStack;
+import javax.sip.TransactionState;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.stack.SIPTransaction;
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.SIPMessageValve;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+
+/**
+ * Counts the retransmissions a stack receives: requests other than ACK whose
+ * server transaction already exists, and final responses whose client
+ * transaction has already completed. Every message is let through.
+ */
+public class RetransmissionCounter implements SIPMessageValve {
+
+    private final LongAdder retransmissions;
+    private SIPTransactionStack sipStack;
+
+    public RetransmissionCounter(LongAdder retransmissions) {
+        this.retransmissions = retransmissions;
+    }
+
+    public boolean processRequest(SIPRequest request, MessageChannel messageChannel) {
+        if (!Request.ACK.equals(request.getMethod()) && sipStack.findTransaction(request, true) != null) {
+            retransmissions.increment();
+        }
+        return true;
+    }
+
+    public boolean processResponse(Response response, MessageChannel messageChannel) {
+        if (response.getStatusCode() >= 200) {
+            SIPTransaction transaction = sipStack.findTransaction((SIPResponse) response, false);
+            if (transaction != null && (transaction.getState() == TransactionState.COMPLETED
+                    || transaction.getState() == TransactionState.TERMINATED)) {
+                retransmissions.increment();
+            }
+        }
+        return true;
+    }
+
+    public void init(SipStack stack) {
+        this.sipStack = (SIPTransactionStack) stack;
+    }
+
+    public void destroy() {
+    }
+}
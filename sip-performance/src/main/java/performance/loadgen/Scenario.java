@@ -0,0 +1,17 @@
+package performance.loadgen;
+
+/**
+ * The exchanges the load generator repeats.
+ */
+public enum Scenario {
+    /** INVITE, 180, 200, ACK, then BYE after the hold time. */
+    CALL,
+    /** REGISTER and its 200, one binding per concurrent call. */
+    REGISTER,
+    /** SUBSCRIBE, 200 and NOTIFY, then an unsubscribing SUBSCRIBE after the hold time. */
+    SUBSCRIBE,
+    /** INVITE, 180, then CANCEL and the 487 ending the INVITE. */
+    CANCEL,
+    /** INVITE answered by two forks, ringing on both and answering on the second, then BYE. */
+    FORK
+}
@@ -0,0 +1,127 @@
+package performance.parser;
+
+import java.text.ParseException;
+
+import gov.nist.core.StacklessParseException;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+/**
+ * Compares the cost of rejecting malformed messages, in the spirit of the
+ * torture tests, with and without the stack traces of the parse exceptions,
+ * against the cost of parsing a valid message.
+ * 
+ * Usage: MalformedMessageBenchmark [iterations]
+ */
+public class MalformedMessageBenchmark {
+
+    private static final String VALID = "INVITE sip:bob@biloxi.example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bKnashds8\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: <sip:alice@pc33.atlanta.example.com>\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    private static final String[] MALFORMED = {
+            // request-URI enclosed in angle brackets
+            "INVITE <sip:user@company.com> SIP/2.0\r\n"
+                    + "From: <sip:caller@university.edu>;tag=1\r\n"
+                    + "To: <sip:user@company.com>\r\n"
+                    + "Via: SIP/2.0/UDP 135.180.130.133;branch=z9hG4bK1\r\n"
+                    + "CSeq: 1 INVITE\r\n"
+                    + "Call-ID: foo@10.0.0.1\r\n"
+                    + "Content-Length: 0\r\n\r\n",
+            // unknown protocol version
+            "OPTIONS sip:t.watson@192.0.2.1 SIP/7.0\r\n"
+                    + "Via: SIP/7.0/UDP c.example.com;branch=z9hG4bKkdjuw\r\n"
+                    + "Call-ID: badvers.0ha0isndaksdj@10.0.0.1\r\n"
+                    + "CSeq: 8 OPTIONS\r\n"
+                    + "Content-Length: 0\r\n\r\n",
+            // non numeric CSeq
+            "INVITE sip:user@example.com SIP/2.0\r\n"
+                    + "Via: SIP/2.0/UDP 192.0.2.2;branch=z9hG4bK2\r\n"
+                    + "Call-ID: cseq@192.0.2.2\r\n"
+                    + "CSeq: eight INVITE\r\n"
+                    + "Content-Length: 0\r\n\r\n",
+            // unterminated quoted display name
+            "INVITE sip:user@example.com SIP/2.0\r\n"
+                    + "Via: SIP/2.0/UDP 192.0.2.2;branch=z9hG4bK3\r\n"
+                    + "From: \"Bob <sip:bob@example.com>;tag=3\r\n"
+                    + "Call-ID: quote@192.0.2.2\r\n"
+                    + "CSeq: 1 INVITE\r\n"
+                    + "Content-Length: 0\r\n\r\n",
+            // illegal characters in the Via host
+            "INVITE sip:user@example.com SIP/2.0\r\n"
+                    + "Via: SIP/2.0/UDP 192.0.2.2!!$$;branch=z9hG4bK4\r\n"
+                    + "Call-ID: host@192.0.2.2\r\n"
+                    + "CSeq: 1 INVITE\r\n"
+                    + "Content-Length: 0\r\n\r\n",
+            // broken IPv6 reference
+            "INVITE sip:user@[2001:db8::1 SIP/2.0\r\n"
+                    + "Via: SIP/2.0/UDP [2001:db8::9;branch=z9hG4bK5\r\n"
+                    + "Call-ID: ipv6@192.0.2.2\r\n"
+                    + "CSeq: 1 INVITE\r\n"
+                    + "Content-Length: 0\r\n\r\n",
+            // negative Content-Length
+            "INVITE sip:user@example.com SIP/2.0\r\n"
+                    + "Via: SIP/2.0/UDP 192.0.2.2;branch=z9hG4bK6\r\n"
+                    + "Call-ID: length@192.0.2.2\r\n"
+                    + "CSeq: 1 INVITE\r\n"
+                    + "Content-Length: -999\r\n\r\n",
+            // missing request-URI
+            "INVITE SIP/2.0\r\n"
+                    + "Via: SIP/2.0/UDP 192.0.2.2;branch=z9hG4bK7\r\n"
+                    + "Call-ID: nouri@192.0.2.2\r\n"
+                    + "CSeq: 1 INVITE\r\n\r\n",
+            // response with a status code out of range
+            "SIP/2.0 2000 OK\r\n"
+                    + "Via: SIP/2.0/UDP 192.0.2.2;branch=z9hG4bK8\r\n"
+                    + "Call-ID: status@192.0.2.2\r\n"
+                    + "CSeq: 1 INVITE\r\n\r\n",
+            // garbage
+            "\u0001\u0002GET / HTTP/1.1\r\nHost: example.com\r\n\r\n",
+    };
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        byte[] valid = VALID.getBytes("UTF-8");
+        byte[][] malformed = new byte[MALFORMED.length][];
+        for (int i = 0; i < MALFORMED.length; i++) {
+            malformed[i] = MALFORMED[i].getBytes("UTF-8");
+        }
+
+        StacklessParseException.setStackTraces(true);
+        run("malformed, stack traces", malformed, iterations);
+        StacklessParseException.setStackTraces(false);
+        run("malformed, stackless", malformed, iterations);
+        run("valid message", new byte[][] { valid }, iterations);
+    }
+
+    private static void run(String name, byte[][] corpus, int iterations) {
+        StringMsgParser parser = new StringMsgParser();
+        // warm up
+        int rejected = 0;
+        for (int i = 0; i < iterations / 10; i++) {
+            rejected += parse(parser, corpus[i % corpus.length]);
+        }
+        rejected = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            rejected += parse(parser, corpus[i % corpus.length]);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-25s %8.0f ns per message, %d%% rejected", name,
+                (double) elapsed / iterations, rejected * 100L / iterations));
+    }
+
+    private static int parse(StringMsgParser parser, byte[] message) {
+        try {
+            return parser.parseSIPMessage(message, true, false, null) == null ? 1 : 0;
+        } catch (ParseException e) {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package performance.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gov.nist.core.TokenPool;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+/**
+ * Measures the heap kept by the headers a dialog holds on to, its route set,
+ * remote target, contact and parties, with and without the pool of the
+ * strings repeated from a message to another.
+ * 
+ * Usage: TokenPoolFootprint [dialogs]
+ */
+public class TokenPoolFootprint {
+
+    public static void main(String[] args) throws Exception {
+        int dialogs = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        TokenPool.setSize(0);
+        long unpooled = measure(dialogs);
+        TokenPool.setSize(TokenPool.DEFAULT_SIZE);
+        long pooled = measure(dialogs);
+
+        System.out.println(String.format("%d dialogs, without pool %d KB, with pool %d KB, saved %d KB (%d bytes per dialog)",
+                dialogs, unpooled / 1024, pooled / 1024, (unpooled - pooled) / 1024, (unpooled - pooled) / dialogs));
+        System.out.println(String.format("saved per 100k dialogs: %.1f MB",
+                (unpooled - pooled) * (100000.0 / dialogs) / 1024 / 1024));
+    }
+
+    private static long measure(int dialogs) throws Exception {
+        List<Object> state = new ArrayList<Object>(dialogs * 5);
+        long before = usedHeap();
+        StringMsgParser parser = new StringMsgParser();
+        for (int i = 0; i < dialogs; i++) {
+            SIPResponse response = (SIPResponse) parser.parseSIPMessage(response(i).getBytes("UTF-8"), true, false,
+                    null);
+            // what a confirmed dialog keeps of the message which created it
+            state.add(response.getRecordRouteHeaders());
+            state.add(response.getContactHeader());
+            state.add(response.getContactHeader().getAddress().getURI());
+            state.add(response.getFromHeader().getAddress());
+            state.add(response.getToHeader().getAddress());
+        }
+        long used = usedHeap() - before;
+        if (state.size() != dialogs * 5) {
+            throw new IllegalStateException();
+        }
+        return used;
+    }
+
+    private static String response(int i) {
+        int peer = i % 200;
+        return "SIP/2.0 200 OK\r\n"
+                + "Via: SIP/2.0/UDP sbc1.example.com:5060;branch=z9hG4bK" + i + "a7f;received=192.0.2.10;rport=5060\r\n"
+                + "Record-Route: <sip:proxy1.example.com;transport=udp;lr>,<sip:edge.carrier.example.net;transport=tcp;lr>\r\n"
+                + "From: <sip:user" + i + "@example.com>;tag=" + (i * 7919) + "\r\n"
+                + "To: <sip:agent" + peer + "@pbx" + (peer % 10) + ".customer.example.org>;tag=" + (i * 104729) + "\r\n"
+                + "Call-ID: " + i + "-3f2a9c@sbc1.example.com\r\n"
+                + "CSeq: 1 INVITE\r\n"
+                + "Contact: <sip:agent" + peer + "@pbx" + (peer % 10) + ".customer.example.org:5060;transport=udp>\r\n"
+                + "Content-Length: 0\r\n\r\n";
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // a few collections until the used heap settles
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,201 @@
+package performance.simulation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sip.Dialog;
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.ListeningPoint;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.ServerTransaction;
+import javax.sip.SipFactory;
+import javax.sip.SipListener;
+import javax.sip.SipProvider;
+import javax.sip.TimeoutEvent;
+import javax.sip.TransactionTerminatedEvent;
+import javax.sip.address.Address;
+import javax.sip.address.AddressFactory;
+import javax.sip.header.CSeqHeader;
+import javax.sip.header.HeaderFactory;
+import javax.sip.header.ToHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.MessageFactory;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.simulation.Simulation;
+import gov.nist.javax.sip.stack.transports.processors.memory.MemoryNetwork;
+
+/**
+ * Runs a call load between two stacks on virtual time. Every simulated second
+ * the caller places a number of calls, the callee answers them, and the caller
+ * hangs up after the hold time. A share of the calls goes to a destination
+ * nobody listens on, so that their INVITE times out on Timer B. Once per
+ * simulated minute the active calls, the timers, the executor and the heap are
+ * reported.
+ * 
+ * Usage: CallLoadSimulation [callsPerSecond] [holdSeconds] [durationSeconds] [lostPercent]
+ */
+public class CallLoadSimulation implements SipListener {
+
+    private final Simulation simulation = new Simulation();
+    private AddressFactory addressFactory;
+    private HeaderFactory headerFactory;
+    private MessageFactory messageFactory;
+    private SipProvider caller;
+    private SipProvider callee;
+    // answered calls in the order they are to be hung up
+    private final ArrayDeque<Object[]> hangups = new ArrayDeque<Object[]>();
+    private long answered;
+    private long completed;
+    private long timedOut;
+    private long holdMillis;
+
+    public static void main(String[] args) throws Exception {
+        int callsPerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int holdSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 180;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 3600;
+        int lostPercent = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        new CallLoadSimulation().run(callsPerSecond, holdSeconds, durationSeconds, lostPercent);
+        System.exit(0);
+    }
+
+    private void run(int callsPerSecond, int holdSeconds, int durationSeconds, int lostPercent) throws Exception {
+        SipFactory sipFactory = SipFactory.getInstance();
+        addressFactory = sipFactory.createAddressFactory();
+        headerFactory = sipFactory.createHeaderFactory();
+        messageFactory = sipFactory.createMessageFactory();
+        holdMillis = holdSeconds * 1000L;
+        caller = createProvider("caller", 5070);
+        callee = createProvider("callee", 5080);
+
+        System.out.println(callsPerSecond + " calls/s held " + holdSeconds + " s for " + durationSeconds + " s, "
+                + lostPercent + "% lost");
+        System.out.println("minute  active  answered  completed  timedout  timers  executorTasks  maxQueue  heapMB  wallMs");
+        long wallStart = System.currentTimeMillis();
+        long start = simulation.getClock().millis();
+        long calls = 0;
+        for (int second = 1; second <= durationSeconds; second++) {
+            for (int i = 0; i < callsPerSecond; i++) {
+                boolean lost = lostPercent > 0 && calls++ % (100 / lostPercent) == 0;
+                caller.getNewClientTransaction(createInvite(lost ? 5090 : 5080)).sendRequest();
+            }
+            hangUpDueCalls();
+            simulation.advance(1000);
+            if (second % 60 == 0) {
+                report(second / 60, wallStart);
+            }
+        }
+        // let the last calls end and the transactions be collected
+        while (!hangups.isEmpty() || simulation.getPendingTimerTasks() > 0
+                && simulation.getClock().millis() - start < (durationSeconds + holdSeconds + 600) * 1000L) {
+            hangUpDueCalls();
+            simulation.advance(1000);
+        }
+        report((int) ((simulation.getClock().millis() - start) / 60000), wallStart);
+        long wall = System.currentTimeMillis() - wallStart;
+        long simulated = simulation.getClock().millis() - start;
+        System.out.println("simulated " + simulated / 1000 + " s in " + wall + " ms, "
+                + (wall == 0 ? "-" : String.valueOf(simulated / wall)) + "x real time, "
+                + MemoryNetwork.getDefault().getMessagesDelivered() + " messages delivered, "
+                + MemoryNetwork.getDefault().getMessagesLost() + " lost");
+        simulation.stop();
+    }
+
+    private void hangUpDueCalls() throws Exception {
+        long now = simulation.getClock().millis();
+        while (!hangups.isEmpty() && (Long) hangups.peek()[0] <= now) {
+            Dialog dialog = (Dialog) hangups.poll()[1];
+            dialog.sendRequest(caller.getNewClientTransaction(dialog.createRequest(Request.BYE)));
+        }
+    }
+
+    private void report(int minute, long wallStart) {
+        Runtime runtime = Runtime.getRuntime();
+        long heap = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        System.out.println(String.format("%6d  %6d  %8d  %9d  %8d  %6d  %13d  %8d  %6d  %6d", minute, hangups.size(),
+                answered, completed, timedOut, simulation.getPendingTimerTasks(), simulation.getExecutorTasks(),
+                simulation.getMaxExecutorQueueSize(), heap, System.currentTimeMillis() - wallStart));
+    }
+
+    private SipProvider createProvider(String name, int port) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", name);
+        properties.setProperty("gov.nist.javax.sip.TRACE_LEVEL", "0");
+        SipStackImpl sipStack = simulation.createSipStack(properties);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint("127.0.0.1", port, ListeningPoint.UDP);
+        SipProvider sipProvider = sipStack.createSipProvider(listeningPoint);
+        sipProvider.addSipListener(this);
+        return sipProvider;
+    }
+
+    private Request createInvite(int port) throws Exception {
+        Address from = addressFactory.createAddress("sip:caller@127.0.0.1:5070");
+        Address to = addressFactory.createAddress("sip:callee@127.0.0.1:" + port);
+        List<ViaHeader> vias = new ArrayList<ViaHeader>();
+        vias.add(headerFactory.createViaHeader("127.0.0.1", 5070, ListeningPoint.UDP, null));
+        Request invite = messageFactory.createRequest(to.getURI(), Request.INVITE, caller.getNewCallId(),
+                headerFactory.createCSeqHeader(1L, Request.INVITE), headerFactory.createFromHeader(from, "caller"),
+                headerFactory.createToHeader(to, null), vias, headerFactory.createMaxForwardsHeader(70));
+        invite.addHeader(headerFactory.createContactHeader(from));
+        return invite;
+    }
+
+    public void processRequest(RequestEvent requestEvent) {
+        Request request = requestEvent.getRequest();
+        if (Request.ACK.equals(request.getMethod())) {
+            return;
+        }
+        try {
+            ServerTransaction serverTransaction = requestEvent.getServerTransaction();
+            if (serverTransaction == null) {
+                serverTransaction = callee.getNewServerTransaction(request);
+            }
+            Response response = messageFactory.createResponse(Response.OK, request);
+            ((ToHeader) response.getHeader(ToHeader.NAME)).setTag("callee");
+            response.addHeader(headerFactory.createContactHeader(
+                    addressFactory.createAddress("sip:callee@127.0.0.1:5080")));
+            serverTransaction.sendResponse(response);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void processResponse(ResponseEvent responseEvent) {
+        Response response = responseEvent.getResponse();
+        CSeqHeader cseq = (CSeqHeader) response.getHeader(CSeqHeader.NAME);
+        if (response.getStatusCode() != Response.OK) {
+            return;
+        }
+        if (Request.BYE.equals(cseq.getMethod())) {
+            completed++;
+            return;
+        }
+        try {
+            Dialog dialog = responseEvent.getDialog();
+            dialog.sendAck(dialog.createAck(cseq.getSeqNumber()));
+            answered++;
+            hangups.add(new Object[] { simulation.getClock().millis() + holdMillis, dialog });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void processTimeout(TimeoutEvent timeoutEvent) {
+        timedOut++;
+    }
+
+    public void processIOException(IOExceptionEvent exceptionEvent) {
+    }
+
+    public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+    }
+
+    public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+    }
+}
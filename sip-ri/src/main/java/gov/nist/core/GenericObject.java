@@ -141,6 +141,124 @@ public abstract class GenericObject implements Serializable, Cloneable {
 
     }
 
+    /**
+     * Tells for each class whether equals and match can use the equalFields
+     * and matchFields methods instead of introspection: that is the case when
+     * every class of the hierarchy declaring fields to compare implements
+     * both of them. Subclasses defined outside of the stack that do not are
+     * still compared field by field through introspection.
+     */
+    private static final ClassValue<Boolean> fieldComparisons = new ClassValue<Boolean>() {
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null && c != GenericObject.class; c = c.getSuperclass()) {
+                if (declaresComparedFields(c) && !(declaresMethod(c, "equalFields")
+                        && declaresMethod(c, "matchFields"))) {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    };
+
+    /**
+     * Set to false to compare every object through introspection, used to
+     * check that both ways of comparing agree.
+     */
+    static volatile boolean fieldComparisonEnabled = true;
+
+    private static boolean declaresComparedFields(Class<?> type) {
+        for (Field field : type.getDeclaredFields()) {
+            int modifier = field.getModifiers();
+            if (Modifier.isPrivate(modifier) || Modifier.isStatic(modifier))
+                continue;
+            if (field.getName().equals("stringRepresentation") || field.getName().equals("indentation"))
+                continue;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean declaresMethod(Class<?> type, String name) {
+        try {
+            type.getDeclaredMethod(name, Object.class);
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if objects of the given class are compared with
+     *         equalFields and matchFields.
+     */
+    protected static boolean hasFieldComparison(Class<?> type) {
+        return fieldComparisonEnabled && fieldComparisons.get(type).booleanValue();
+    }
+
+    /**
+     * Compare the fields declared by the class of this object and its
+     * superclasses with the ones of an object of the same class, following the
+     * rules of the introspection based equals. Classes declaring fields
+     * override this, compare their own fields with {@link #equalField(Object, Object)}
+     * and call the super implementation.
+     *
+     * @param other an object of the same class as this one.
+     */
+    protected boolean equalFields(Object other) {
+        return true;
+    }
+
+    /**
+     * Match the fields declared by the class of this object and its
+     * superclasses with the ones of a template of the same class, following
+     * the rules of the introspection based match. Classes declaring fields
+     * override this, match their own fields with {@link #matchField(Object, Object)}
+     * and call the super implementation.
+     *
+     * @param other a template of the same class as this object.
+     */
+    protected boolean matchFields(Object other) {
+        return true;
+    }
+
+    /**
+     * Equality of a non primitive field.
+     */
+    protected static boolean equalField(Object myObj, Object hisObj) {
+        if (myObj == hisObj)
+            return true;
+        if (myObj == null || hisObj == null)
+            return false;
+        return myObj.equals(hisObj);
+    }
+
+    /**
+     * Match of a non primitive field against the same field of a template:
+     * null and empty strings in the template match anything, strings are
+     * compared ignoring case and nested objects are matched recursively.
+     */
+    protected static boolean matchField(Object myObj, Object hisObj) {
+        if (hisObj == null)
+            return true;
+        if (myObj == null)
+            return false;
+        if (hisObj instanceof String && myObj instanceof String) {
+            if (((String) hisObj).trim().equals(""))
+                return true;
+            return ((String) myObj).compareToIgnoreCase((String) hisObj) == 0;
+        }
+        if (myObj instanceof GenericObject) {
+            if (hisObj instanceof GenericObject && myObj.getClass().equals(hisObj.getClass())
+                    && ((GenericObject) hisObj).getMatcher() != null) {
+                return ((GenericObject) hisObj).getMatcher().match(((GenericObject) myObj).encode());
+            }
+            return ((GenericObject) myObj).match(hisObj);
+        }
+        if (myObj instanceof GenericObjectList)
+            return ((GenericObjectList) myObj).match(hisObj);
+        return true;
+    }
+
     /** Clones the given object.
      *  If the object is a wrapped type, an array, a GenericObject
      *  or a GenericObjectList, it is cast to the appropriate type
@@ -499,6 +617,8 @@ public abstract class GenericObject implements Serializable, Cloneable {
             return true;
         if (!this.getClass().equals(other.getClass()))
             return false;
+        if (hasFieldComparison(this.getClass()))
+            return matchFields(other);
         GenericObject that = (GenericObject) other;
         Class<?> myclass = this.getClass();
         Field[] fields = myclass.getDeclaredFields();
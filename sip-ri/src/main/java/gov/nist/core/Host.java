@@ -141,6 +141,28 @@ public class Host extends GenericObject {
 
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Host that = (Host) other;
+        return this.addressType == that.addressType
+                && equalField(this.hostname, that.hostname)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Host that = (Host) other;
+        return this.addressType == that.addressType
+                && matchField(this.hostname, that.hostname)
+                && super.matchFields(other);
+    }
+
     /** get the HostName field
      * @return String
      */
@@ -153,9 +153,7 @@ public class HostNameParser extends ParserCore {
                 }
             }
 
-            throw new ParseException(
-                lexer.getBuffer() + ": Illegal Host name ",
-                lexer.getPtr());
+            throw lexer.createParseException(": Illegal Host name ");
         } finally {
             if (debug)
                 dbg_leave("ipv6Reference");
@@ -187,13 +185,11 @@ public class HostNameParser extends ParserCore {
             else {
                 int startPtr = lexer.getPtr();
                 consumeDomainLabel();
-                hostname = lexer.getBuffer().substring(startPtr, lexer.getPtr());
+                hostname = TokenPool.canonical(lexer.buffer, startPtr, lexer.getPtr() - startPtr);
             }
 
             if (hostname.length() == 0)
-                throw new ParseException(
-                    lexer.getBuffer() + ": Missing host name",
-                    lexer.getPtr());
+                throw lexer.createParseException(": Missing host name");
             else
                 return new Host(hostname);
         } finally {
@@ -280,9 +276,7 @@ public class HostNameParser extends ParserCore {
                         String port = lexer.number();
                         hp.setPort(Integer.parseInt(port));
                     } catch (NumberFormatException nfe) {
-                        throw new ParseException(
-                            lexer.getBuffer() + " :Error parsing port ",
-                            lexer.getPtr());
+                        throw lexer.createParseException(" :Error parsing port ");
                     }
                     break;
 
@@ -305,9 +299,7 @@ public class HostNameParser extends ParserCore {
                     
                 default:
                     if (!allowWS) {
-                        throw new ParseException( lexer.getBuffer() +
-                                " Illegal character in hostname:" + lexer.lookAhead(0),
-                                lexer.getPtr() );
+                        throw lexer.createParseException(" Illegal character in hostname:" + lexer.lookAhead(0));
                     }
                 }
             }
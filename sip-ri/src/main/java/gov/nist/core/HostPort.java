@@ -92,6 +92,28 @@ public final class HostPort extends GenericObject {
         return port == that.port && host.equals(that.host);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        HostPort that = (HostPort) other;
+        return this.port == that.port
+                && equalField(this.host, that.host)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        HostPort that = (HostPort) other;
+        return this.port == that.port
+                && matchField(this.host, that.host)
+                && super.matchFields(other);
+    }
+
     /** get the Host field
      * @return host field
      */
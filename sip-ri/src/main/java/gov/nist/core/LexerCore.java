@@ -226,21 +226,21 @@ public class LexerCore extends StringTokenizer {
             if (tok == ID) {
                 // Generic ID sought.
                 if (!startsId())
-                    throw new ParseException(buffer.toString() + "\nID expected", ptr);
+                    throw new StacklessParseException(buffer, "\nID expected", ptr);
                 String id = getNextId();
                 this.currentMatch = new Token();
                 this.currentMatch.tokenValue = id;
                 this.currentMatch.tokenType = ID;
             } else if (tok == SAFE) {
                 if (!startsSafeToken())
-                    throw new ParseException(buffer.toString() + "\nID expected", ptr);
+                    throw new StacklessParseException(buffer, "\nID expected", ptr);
                 String id = ttokenSafe();
                 this.currentMatch = new Token();
                 this.currentMatch.tokenValue = id;
                 this.currentMatch.tokenType = SAFE;
             } else if (tok == ID_NO_WHITESPACE) {
                 if (!startsIdNoWhiteSpace())
-                    throw new ParseException(buffer.toString() + "\nID no white space expected", ptr);
+                    throw new StacklessParseException(buffer, "\nID no white space expected", ptr);
                 String id = getNextIdNoWhiteSpace();
                 this.currentMatch = new Token();
                 this.currentMatch.tokenValue = id;
@@ -250,8 +250,7 @@ public class LexerCore extends StringTokenizer {
                 Integer cur = currentLexer.get(Utils.toUpperCase(nexttok));
 
                 if (cur == null || cur.intValue() != tok)
-                    throw new ParseException(
-                        buffer.toString() + "\nUnexpected Token : " + nexttok,
+                    throw new StacklessParseException(buffer, "\nUnexpected Token : " + nexttok,
                         ptr);
                 this.currentMatch = new Token();
                 this.currentMatch.tokenValue = nexttok;
@@ -262,7 +261,7 @@ public class LexerCore extends StringTokenizer {
             char next = lookAhead(0);
             if (tok == DIGIT) {
                 if (!isDigit(next))
-                    throw new ParseException(buffer.toString() + "\nExpecting DIGIT", ptr);
+                    throw new StacklessParseException(buffer, "\nExpecting DIGIT", ptr);
                 this.currentMatch = new Token();
                 this.currentMatch.tokenValue =
                     String.valueOf(next);
@@ -271,7 +270,7 @@ public class LexerCore extends StringTokenizer {
 
             } else if (tok == ALPHA) {
                 if (!isAlpha(next))
-                    throw new ParseException(buffer.toString() + "\nExpecting ALPHA", ptr);
+                    throw new StacklessParseException(buffer, "\nExpecting ALPHA", ptr);
                 this.currentMatch = new Token();
                 this.currentMatch.tokenValue =
                     String.valueOf(next);
@@ -295,8 +294,7 @@ public class LexerCore extends StringTokenizer {
                 this.currentMatch.tokenType = tok;*/
                 consume(1);
             } else
-                throw new ParseException(
-                    buffer.toString() + "\nExpecting  >>>" + ch + "<<< got >>>"
+                throw new StacklessParseException(buffer, "\nExpecting  >>>" + ch + "<<< got >>>"
                     + next + "<<<", ptr);
         }
         return this.currentMatch;
@@ -608,8 +606,7 @@ public class LexerCore extends StringTokenizer {
                 // Got to the terminating quote.
                 break;
             } else if (next == '\0') {
-                throw new ParseException(
-                    String.valueOf(this.buffer) + " :unexpected EOL",
+                throw new StacklessParseException(buffer, " :unexpected EOL",
                     this.ptr);
             } else if (next == '\\') {
                 consume(1);
@@ -632,15 +629,13 @@ public class LexerCore extends StringTokenizer {
             if (next == ')') {
                 break;
             } else if (next == '\0') {
-                throw new ParseException(
-                    this.buffer.toString() + " :unexpected EOL",
+                throw new StacklessParseException(buffer, " :unexpected EOL",
                     this.ptr);
             } else if (next == '\\') {
                 retval.append(next);
                 next = getNextChar();
                 if (next == '\0')
-                    throw new ParseException(
-                        this.buffer.toString() + " : unexpected EOL",
+                    throw new StacklessParseException(buffer, " : unexpected EOL",
                         this.ptr);
                 retval.append(next);
             } else {
@@ -737,9 +732,8 @@ public class LexerCore extends StringTokenizer {
         int startIdx = ptr;
         try {
             if (!isDigit(lookAhead(0))) {
-                throw new ParseException(
-                    buffer.toString() + ": Unexpected token at " + lookAhead(0),
-                    ptr);
+                // no number, returned without raising an exception
+                return "";
             }
             consume(1);
             while (true) {
@@ -791,8 +785,7 @@ public class LexerCore extends StringTokenizer {
             //System.out.println(next == '\0');
 
             if (next == '\0') {
-                throw new ParseException(
-                    this.buffer.toString() + "unexpected EOL",
+                throw new StacklessParseException(buffer, "unexpected EOL",
                     this.ptr);
             } else if (next == c) {
                 consume(1);
@@ -801,8 +794,7 @@ public class LexerCore extends StringTokenizer {
                 consume(1);
                 char nextchar = lookAhead(0);
                 if (nextchar == '\0') {
-                    throw new ParseException(
-                        this.buffer.toString() + "unexpected EOL",
+                    throw new StacklessParseException(buffer, "unexpected EOL",
                         this.ptr);
                 } else {
                     consume(1);
@@ -831,6 +823,13 @@ public class LexerCore extends StringTokenizer {
     /** Create a parse exception.
      */
     public ParseException createParseException() {
-        return new ParseException(getBuffer(), this.ptr);
+        return new StacklessParseException(buffer, "", this.ptr);
+    }
+
+    /** Create a parse exception at the current position, its message being
+     * the buffer followed by the detail.
+     */
+    public ParseException createParseException(String detail) {
+        return new StacklessParseException(buffer, detail, this.ptr);
     }
 }
@@ -259,6 +259,28 @@ public class NameValue extends GenericObject implements Entry<String,String> {
             return this.value.equals(that.value);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        NameValue that = (NameValue) other;
+        return this.isQuotedString == that.isQuotedString
+                && this.isFlagParameter == that.isFlagParameter
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        NameValue that = (NameValue) other;
+        return this.isQuotedString == that.isQuotedString
+                && this.isFlagParameter == that.isFlagParameter
+                && super.matchFields(other);
+    }
+
     /*
      * (non-Javadoc)
      * @see java.util.Map$Entry#getKey()
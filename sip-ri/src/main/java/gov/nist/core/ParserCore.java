@@ -50,7 +50,7 @@ public abstract class ParserCore {
         try {
 
         lexer.match(LexerCore.ID);
-        Token name = lexer.getNextToken();
+        String name = TokenPool.canonical(lexer.getNextToken().tokenValue);
         // eat white space.
         lexer.SPorHT();
         try {
@@ -82,7 +82,7 @@ public abstract class ParserCore {
                 }else {
                    lexer.match(LexerCore.ID);
                    Token value = lexer.getNextToken();
-                   str = value.tokenValue;
+                   str = canonicalValue(name, value.tokenValue);
 
                    // JvB: flag parameters must be empty string!
                    if (str==null) {
@@ -90,15 +90,15 @@ public abstract class ParserCore {
                        isFlag = true;
                    }
                 }
-                NameValue nv = new NameValue(name.tokenValue,str,isFlag);
+                NameValue nv = new NameValue(name,str,isFlag);
                 if (quoted) nv.setQuotedValue();
                 return nv;
             }  else {
                 // JvB: flag parameters must be empty string!
-                return new NameValue(name.tokenValue,"",true);
+                return new NameValue(name,"",true);
             }
         } catch (ParseException ex) {
-            return new NameValue(name.tokenValue,null,false);
+            return new NameValue(name,null,false);
         }
 
         } finally {
@@ -108,6 +108,19 @@ public abstract class ParserCore {
 
     }
 
+    /**
+     * @return the pooled value of a parameter whose values are taken from a
+     * small set, see {@link TokenPool}, the value itself otherwise.
+     */
+    protected static String canonicalValue(String name, String value) {
+        if (name.equalsIgnoreCase("transport") || name.equalsIgnoreCase("user")
+                || name.equalsIgnoreCase("method") || name.equalsIgnoreCase("comp")
+                || name.equalsIgnoreCase("maddr") || name.equalsIgnoreCase("received")) {
+            return TokenPool.canonical(value);
+        }
+        return value;
+    }
+
     protected  void dbg_enter(String rule) {
         StringBuilder stringBuilder = new StringBuilder();
         for (int i = 0; i < nesting_level ; i++)
@@ -0,0 +1,102 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core;
+
+import java.text.ParseException;
+
+/**
+ * Parse exception thrown by the lexers and the parsers of the stack. Malformed
+ * or hostile traffic makes them fail often, and backtracking parsers catch
+ * their own failures, so by default it does not fill its stack trace and only
+ * builds its message, the text being parsed followed by the detail of the
+ * failure, when asked for it.
+ * <p>
+ * The factories of the API convert it with {@link #withStackTrace} so that the
+ * applications get a plain {@link ParseException} with the stack trace of
+ * their call.
+ */
+public class StacklessParseException extends ParseException {
+
+    private static final long serialVersionUID = 1L;
+
+    // shared by the parsers of all the stacks, which do not know their stack
+    private static volatile boolean stackTraces = Boolean.getBoolean(
+            "gov.nist.javax.sip.PARSE_EXCEPTION_STACK_TRACES");
+
+    private final char[] input;
+
+    /**
+     * @param message the message of the failure
+     * @param errorOffset the position of the failure in the parsed text
+     */
+    public StacklessParseException(String message, int errorOffset) {
+        this(null, message, errorOffset);
+    }
+
+    /**
+     * @param input the text being parsed, copied into the message only when
+     *            it is asked for
+     * @param detail the detail of the failure appended to the text
+     * @param errorOffset the position of the failure in the parsed text
+     */
+    public StacklessParseException(char[] input, String detail, int errorOffset) {
+        super(detail, errorOffset);
+        this.input = input;
+    }
+
+    @Override
+    public String getMessage() {
+        String detail = super.getMessage();
+        return input == null ? detail : String.valueOf(input) + detail;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return stackTraces ? super.fillInStackTrace() : this;
+    }
+
+    /**
+     * Overrides the <code>gov.nist.javax.sip.PARSE_EXCEPTION_STACK_TRACES</code>
+     * system property, for all the stacks of the JVM.
+     *
+     * @param stackTraces true to fill the stack trace of the parse exceptions,
+     *            to debug the parsers
+     */
+    public static void setStackTraces(boolean stackTraces) {
+        StacklessParseException.stackTraces = stackTraces;
+    }
+
+    public static boolean isStackTraces() {
+        return stackTraces;
+    }
+
+    /**
+     * Converts a parse exception leaving the stack for an application.
+     *
+     * @param ex the parse exception thrown by a parser
+     * @return a parse exception with the same message and offset and the stack
+     *         trace of the caller, or <code>ex</code> if it has a stack trace
+     */
+    public static ParseException withStackTrace(ParseException ex) {
+        if (ex instanceof StacklessParseException && ex.getStackTrace().length == 0) {
+            return new ParseException(ex.getMessage(), ex.getErrorOffset());
+        }
+        return ex;
+    }
+}
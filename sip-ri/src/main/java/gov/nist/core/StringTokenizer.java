@@ -144,8 +144,7 @@ public class StringTokenizer {
 
     public char getNextChar() throws ParseException {
         if (ptr >= bufferLen)
-            throw new ParseException(
-                buffer.toString() + " getNextChar: End of buffer",
+            throw new StacklessParseException(buffer, " getNextChar: End of buffer",
                 ptr);
         else
             return buffer[ptr++];
@@ -179,7 +178,7 @@ public class StringTokenizer {
             if (la == delim)
                 break;
             else if (la == '\0')
-                throw new ParseException("EOL reached", 0);
+                throw new StacklessParseException("EOL reached", 0);
             consume(1);
         }
         return String.valueOf(buffer, startIdx, ptr - startIdx);
@@ -0,0 +1,139 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pool of the canonical instances of the strings the parsers find
+ * again and again, parameter names, transports, protocol versions, methods
+ * and host names, so that the headers kept by the long-lived dialogs and
+ * transactions share them instead of holding their own copies.
+ * <p>
+ * The pool is a table of fixed size where each string has a single slot: a
+ * string found in its slot is returned in its place, otherwise it takes the
+ * slot. Lookups and updates need no lock, a string pushed out by another one
+ * is pooled again the next time it is parsed. The parsers only pool the
+ * tokens taken from small sets, not the tags, branches or Call-IDs.
+ * <p>
+ * The pool is shared by the parsers of all the stacks of the JVM. Its size is
+ * given by the <code>gov.nist.javax.sip.TOKEN_POOL_SIZE</code> system
+ * property, {@link #DEFAULT_SIZE} if unset, 0 to disable it.
+ */
+public final class TokenPool {
+
+    public static final int DEFAULT_SIZE = 4096;
+
+    /**
+     * Longer strings are never pooled.
+     */
+    public static final int MAX_LENGTH = 64;
+
+    private static volatile AtomicReferenceArray<String> table = createTable(
+            Integer.getInteger("gov.nist.javax.sip.TOKEN_POOL_SIZE", DEFAULT_SIZE));
+
+    private TokenPool() {
+    }
+
+    /**
+     * @param value a string parsed from a message
+     * @return the pooled string equal to <code>value</code>, or
+     *         <code>value</code> which becomes the pooled one
+     */
+    public static String canonical(String value) {
+        AtomicReferenceArray<String> table = TokenPool.table;
+        if (table == null || value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int hash = value.hashCode();
+        int slot = slot(hash, table.length());
+        String pooled = table.get(slot);
+        if (pooled != null && pooled.hashCode() == hash && pooled.equals(value)) {
+            return pooled;
+        }
+        table.lazySet(slot, value);
+        return value;
+    }
+
+    /**
+     * Same as {@link #canonical(String)} for characters of a buffer, the
+     * string being only created when it is not pooled.
+     */
+    public static String canonical(char[] buffer, int offset, int length) {
+        AtomicReferenceArray<String> table = TokenPool.table;
+        if (table == null || length > MAX_LENGTH) {
+            return String.valueOf(buffer, offset, length);
+        }
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int slot = slot(hash, table.length());
+        String pooled = table.get(slot);
+        if (pooled != null && pooled.hashCode() == hash && matches(pooled, buffer, offset, length)) {
+            return pooled;
+        }
+        String value = String.valueOf(buffer, offset, length);
+        table.lazySet(slot, value);
+        return value;
+    }
+
+    private static boolean matches(String pooled, char[] buffer, int offset, int length) {
+        if (pooled.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pooled.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int slot(int hash, int size) {
+        return (hash ^ (hash >>> 16)) & (size - 1);
+    }
+
+    /**
+     * Replaces the pool by an empty one, for all the stacks of the JVM.
+     *
+     * @param size the number of strings of the pool, rounded up to a power of
+     *            two, 0 to stop pooling
+     */
+    public static void setSize(int size) {
+        table = createTable(size);
+    }
+
+    private static AtomicReferenceArray<String> createTable(int size) {
+        if (size <= 0) {
+            return null;
+        }
+        int powerOfTwo = Integer.highestOneBit(size);
+        return new AtomicReferenceArray<String>(powerOfTwo < size ? powerOfTwo << 1 : powerOfTwo);
+    }
+
+    /**
+     * @return the number of strings of the pool, 0 if the strings are not
+     *         pooled
+     */
+    public static int getSize() {
+        AtomicReferenceArray<String> table = TokenPool.table;
+        return table == null ? 0 : table.length();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock whose time only moves when it is told to, letting a simulation run
+ * hours of stack time in seconds. It is usually driven by a
+ * {@link gov.nist.javax.sip.stack.timers.VirtualSipTimer}.
+ */
+public class VirtualClock implements Clock {
+
+    private final AtomicLong millis;
+
+    public VirtualClock() {
+        this(System.currentTimeMillis());
+    }
+
+    public VirtualClock(long startMillis) {
+        this.millis = new AtomicLong(startMillis);
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    /**
+     * Moves the time forward, a time in the past is ignored.
+     *
+     * @param time the new time in milliseconds
+     */
+    public void advanceTo(long time) {
+        long current;
+        do {
+            current = millis.get();
+            if (time <= current) {
+                return;
+            }
+        } while (!millis.compareAndSet(current, time));
+    }
+
+    public void advance(long delta) {
+        advanceTo(millis.get() + delta);
+    }
+}
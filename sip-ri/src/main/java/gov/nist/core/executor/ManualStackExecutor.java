@@ -0,0 +1,101 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core.executor;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.StackLogger;
+
+/**
+ * Executor without threads, the tasks are queued until the owner of the stack
+ * runs them with {@link #runPending()}. Used with a
+ * {@link gov.nist.javax.sip.stack.timers.VirtualSipTimer} it makes the stack
+ * deterministic for simulations and tests.
+ */
+public class ManualStackExecutor implements StackExecutor {
+	private static StackLogger logger = CommonLogger.getLogger(ManualStackExecutor.class);
+	private final LinkedBlockingDeque<SIPTask> queue = new LinkedBlockingDeque<SIPTask>();
+	private final AtomicLong executed = new AtomicLong();
+	private volatile int maxQueueSize;
+
+	public void start(int workersNumber, long taskInterval) {
+		if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+			logger.logDebug("Starting ManualStackExecutor");
+		}
+	}
+
+	public void stop() {
+		queue.clear();
+	}
+
+	public void addTaskFirst(SIPTask task) {
+		queue.addFirst(task);
+		updateMaxQueueSize();
+	}
+
+	public void addTaskLast(SIPTask task) {
+		queue.addLast(task);
+		updateMaxQueueSize();
+	}
+
+	/**
+	 * Runs the queued tasks on the calling thread, including the ones they
+	 * add, until the queue is empty.
+	 *
+	 * @return the number of tasks run
+	 */
+	public int runPending() {
+		int count = 0;
+		SIPTask task;
+		while ((task = queue.pollFirst()) != null) {
+			try {
+				task.execute();
+			} catch (Exception e) {
+				logger.logError("Error executing task " + task.getId(), e);
+			}
+			count++;
+		}
+		executed.addAndGet(count);
+		return count;
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * @return the longest the queue has been since the executor was created.
+	 */
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public long getExecutedCount() {
+		return executed.get();
+	}
+
+	private void updateMaxQueueSize() {
+		int size = queue.size();
+		if (size > maxQueueSize) {
+			maxQueueSize = size;
+		}
+	}
+}
@@ -18,6 +18,8 @@
  */
 package gov.nist.core.executor;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 import com.mobius.software.common.dal.timers.CountableQueue;
 import com.mobius.software.common.dal.timers.PeriodicQueuedTasks;
 import com.mobius.software.common.dal.timers.Task;
@@ -26,6 +28,7 @@ import com.mobius.software.common.dal.timers.WorkerPool;
 
 import gov.nist.core.CommonLogger;
 import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.IdGenerator;
 
 
 public class MessageProcessorExecutor implements StackExecutor {
@@ -51,7 +54,7 @@ public class MessageProcessorExecutor implements StackExecutor {
 	}
 
 	public void addTaskFirst(SIPTask task) {
-		CountableQueue<Task> queue = getQueue(task.getId());
+		CountableQueue<Task> queue = getQueue(task);
 		if (queue != null) {
 			if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
 				logger.logDebug("Adding Task First : "  + task + " " + task.getId() + ", Queue Size: "  + queue.size());
@@ -64,7 +67,7 @@ public class MessageProcessorExecutor implements StackExecutor {
 	}
 
 	public void addTaskLast(SIPTask task) {
-		CountableQueue<Task> queue = getQueue(task.getId());
+		CountableQueue<Task> queue = getQueue(task);
 		if (queue != null) {
 			if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
 				logger.logDebug("Adding Task Last : "  + task + " " + task.getId() + ", Queue Size: "  + queue.size());
@@ -76,6 +79,18 @@ public class MessageProcessorExecutor implements StackExecutor {
 		}
 	}
 
+	private CountableQueue<Task> getQueue(SIPTask task) {
+		if (task instanceof UnorderedSIPTask && workersNumber > 1) {
+			// nothing to keep in order, take the shorter of the home queue and another one
+			int home = findQueueIndex(task.getId());
+			int other = (home + 1 + ThreadLocalRandom.current().nextInt(workersNumber - 1)) % workersNumber;
+			CountableQueue<Task> homeQueue = workerPool.getLocalQueue(home);
+			CountableQueue<Task> otherQueue = workerPool.getLocalQueue(other);
+			return otherQueue.size() < homeQueue.size() ? otherQueue : homeQueue;
+		}
+		return getQueue(task.getId());
+	}
+
 	private CountableQueue<Task> getQueue(String id) {
 		int index = findQueueIndex(id);
 		// if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
@@ -85,7 +100,7 @@ public class MessageProcessorExecutor implements StackExecutor {
 	}
 
 	public int findQueueIndex(String id) {
-		return Math.abs(id.hashCode()) % workersNumber;
+		return IdGenerator.getLane(id, workersNumber);
 	}
 
 	public PeriodicQueuedTasks<Timer> getPeriodicQueue() {
@@ -0,0 +1,313 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core.executor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.mobius.software.common.dal.timers.Task;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogLevels;
+import gov.nist.core.NamingThreadFactory;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.IdGenerator;
+
+/**
+ * Executor keeping the tasks of an id (the Call-ID for message processing) in order
+ * without pinning the id to one worker for the lifetime of the stack.
+ *
+ * The tasks of an id are queued in a lane that a single worker runs at a time, so they
+ * keep their FIFO order. A lane only exists while it has pending tasks: each time it
+ * becomes active it goes to the less loaded of its home worker and another worker, the
+ * load of a worker being the number of tasks pending in its lanes. A worker runs a
+ * bounded batch of a lane before moving it to the back of its run queue so a hot lane
+ * doesn't starve the others, idle workers steal the lanes waiting in the run queues of
+ * busy ones and run the {@link UnorderedSIPTask}s, which are kept in a shared queue.
+ *
+ * Selected with gov.nist.javax.sip.STACK_EXECUTOR. The expired timers of the default
+ * MobiusSipTimer are queued like the other tasks of their id.
+ */
+public class SkewAwareStackExecutor implements StackExecutor {
+	private static StackLogger logger = CommonLogger.getLogger(SkewAwareStackExecutor.class);
+
+	// Tasks of a lane run before the lane yields its worker
+	private static final int LANE_BATCH = 16;
+	// Pending tasks from which a lane is reported as hot
+	private static final int HOT_LANE_THRESHOLD = 1000;
+
+	private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<String, Lane>();
+	private final ConcurrentLinkedQueue<Task> unorderedTasks = new ConcurrentLinkedQueue<Task>();
+	private Worker[] workers;
+	private volatile boolean running;
+	private long taskInterval;
+
+	public void start(int workersNumber, long taskInterval) {
+		if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+			logger.logDebug("Starting SkewAwareStackExecutor with workersNumber: " + workersNumber + " and taskInterval: " + taskInterval);
+		}
+		this.taskInterval = Math.max(1, taskInterval);
+		this.running = true;
+		workers = new Worker[workersNumber];
+		for (int i = 0; i < workersNumber; i++) {
+			workers[i] = new Worker(i);
+		}
+		NamingThreadFactory threadFactory = new NamingThreadFactory("skew_aware_stack_executor");
+		for (Worker worker : workers) {
+			worker.thread = threadFactory.newThread(worker);
+			worker.thread.start();
+		}
+	}
+
+	public void stop() {
+		if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+			logger.logDebug("Stopping SkewAwareStackExecutor");
+		}
+		running = false;
+		for (Worker worker : workers) {
+			LockSupport.unpark(worker.thread);
+		}
+		lanes.clear();
+		unorderedTasks.clear();
+	}
+
+	public void addTaskFirst(SIPTask task) {
+		addTask(task, true);
+	}
+
+	public void addTaskLast(SIPTask task) {
+		addTask(task, false);
+	}
+
+	/**
+	 * @return the number of ids having pending tasks.
+	 */
+	public int getLaneCount() {
+		return lanes.size();
+	}
+
+	/**
+	 * @return the number of ordered tasks pending in the lanes assigned to a worker.
+	 */
+	public int getWorkerLoad(int worker) {
+		return workers[worker].load.get();
+	}
+
+	private void addTask(SIPTask task, boolean first) {
+		if (task instanceof UnorderedSIPTask) {
+			unorderedTasks.offer(task);
+			wakeIdleWorker(null);
+			return;
+		}
+		String id = task.getId();
+		while (true) {
+			Lane lane = lanes.get(id);
+			if (lane == null) {
+				Lane created = new Lane(id);
+				lane = lanes.putIfAbsent(id, created);
+				if (lane == null) {
+					lane = created;
+				}
+			}
+			Worker target = null;
+			synchronized (lane) {
+				if (lane.retired) {
+					// the lane went idle meanwhile, a new one has to be assigned
+					continue;
+				}
+				if (first) {
+					lane.tasks.offerFirst(task);
+				} else {
+					lane.tasks.offerLast(task);
+				}
+				if (!lane.scheduled) {
+					lane.scheduled = true;
+					lane.worker = selectWorker(id);
+					target = workers[lane.worker];
+				}
+				workers[lane.worker].load.incrementAndGet();
+				if (lane.tasks.size() == HOT_LANE_THRESHOLD && logger.isLoggingEnabled(LogLevels.TRACE_WARN)) {
+					logger.logWarning("Hot lane " + id + " has " + HOT_LANE_THRESHOLD + " pending tasks on worker " + lane.worker);
+				}
+			}
+			if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+				logger.logDebug("Adding Task " + (first ? "First" : "Last") + " : " + task + " " + id + ", Lane Worker: " + lane.worker);
+			}
+			if (target != null) {
+				target.schedule(lane);
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Power of two choices between the home worker of the id and a random one.
+	 */
+	private int selectWorker(String id) {
+		int workersNumber = workers.length;
+		int home = IdGenerator.getLane(id, workersNumber);
+		if (workersNumber == 1) {
+			return home;
+		}
+		int other = ThreadLocalRandom.current().nextInt(workersNumber - 1);
+		if (other >= home) {
+			other++;
+		}
+		return workers[other].load.get() < workers[home].load.get() ? other : home;
+	}
+
+	private void wakeIdleWorker(Worker except) {
+		for (Worker worker : workers) {
+			if (worker != except && worker.idle) {
+				LockSupport.unpark(worker.thread);
+				return;
+			}
+		}
+	}
+
+	private void retire(Lane lane) {
+		lane.retired = true;
+		lanes.remove(lane.id, lane);
+	}
+
+	private static void execute(Task task) {
+		try {
+			task.execute();
+		} catch (RuntimeException e) {
+			logger.logError("Task " + task + " failed", e);
+		}
+	}
+
+	private static final class Lane {
+		final String id;
+		// guarded by the lane
+		final ArrayDeque<Task> tasks = new ArrayDeque<Task>();
+		int worker;
+		// queued in a run queue or being run
+		boolean scheduled;
+		boolean retired;
+
+		Lane(String id) {
+			this.id = id;
+		}
+	}
+
+	private final class Worker implements Runnable {
+		final int index;
+		final ConcurrentLinkedDeque<Lane> runQueue = new ConcurrentLinkedDeque<Lane>();
+		final AtomicInteger load = new AtomicInteger();
+		volatile boolean idle;
+		Thread thread;
+
+		Worker(int index) {
+			this.index = index;
+		}
+
+		void schedule(Lane lane) {
+			runQueue.offerLast(lane);
+			if (idle) {
+				LockSupport.unpark(thread);
+			} else {
+				// a busy worker, let an idle one steal the lane
+				wakeIdleWorker(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				Lane lane = runQueue.pollFirst();
+				if (lane != null) {
+					runLane(lane);
+					continue;
+				}
+				Task task = unorderedTasks.poll();
+				if (task != null) {
+					execute(task);
+					continue;
+				}
+				lane = steal();
+				if (lane != null) {
+					runLane(lane);
+					continue;
+				}
+				idle = true;
+				// check again once idle is visible so that no wake up is missed
+				if (runQueue.isEmpty() && unorderedTasks.isEmpty() && running) {
+					LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(taskInterval));
+				}
+				idle = false;
+			}
+		}
+
+		private Lane steal() {
+			int workersNumber = workers.length;
+			int start = ThreadLocalRandom.current().nextInt(workersNumber);
+			for (int i = 0; i < workersNumber; i++) {
+				Worker victim = workers[(start + i) % workersNumber];
+				if (victim == this) {
+					continue;
+				}
+				Lane lane = victim.runQueue.pollLast();
+				if (lane != null) {
+					synchronized (lane) {
+						int pending = lane.tasks.size();
+						victim.load.addAndGet(-pending);
+						load.addAndGet(pending);
+						lane.worker = index;
+					}
+					if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+						logger.logDebug("Worker " + index + " stole lane " + lane.id + " from worker " + victim.index);
+					}
+					return lane;
+				}
+			}
+			return null;
+		}
+
+		private void runLane(Lane lane) {
+			for (int i = 0; i < LANE_BATCH; i++) {
+				Task task;
+				synchronized (lane) {
+					task = lane.tasks.pollFirst();
+					if (task == null) {
+						retire(lane);
+						return;
+					}
+					load.decrementAndGet();
+				}
+				execute(task);
+			}
+			synchronized (lane) {
+				if (lane.tasks.isEmpty()) {
+					retire(lane);
+					return;
+				}
+			}
+			// let the other lanes of this worker run
+			runQueue.offerLast(lane);
+		}
+	}
+}
@@ -21,6 +21,7 @@ package gov.nist.core.executor;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import com.mobius.software.common.dal.timers.Task;
@@ -28,6 +29,7 @@ import com.mobius.software.common.dal.timers.Task;
 import gov.nist.core.CommonLogger;
 import gov.nist.core.NamingThreadFactory;
 import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.IdGenerator;
 
 
 public class ThreadPoolStackExecutor implements StackExecutor {
@@ -65,7 +67,7 @@ public class ThreadPoolStackExecutor implements StackExecutor {
 	}
 
 	public void addTaskFirst(SIPTask task) {
-		LinkedBlockingQueue<Task> queue = getQueue(task.getId());
+		LinkedBlockingQueue<Task> queue = getQueue(task);
 		if (queue != null) {
 			if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
 				logger.logDebug("Adding Task First : "  + task + " " + task.getId() + ", Queue Size: "  + queue.size());
@@ -79,7 +81,7 @@ public class ThreadPoolStackExecutor implements StackExecutor {
 	}
 
 	public void addTaskLast(SIPTask task) {
-		LinkedBlockingQueue<Task> queue = getQueue(task.getId());
+		LinkedBlockingQueue<Task> queue = getQueue(task);
 		if (queue != null) {
 			if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
 				logger.logDebug("Adding Task Last : "  + task + " " + task.getId() + ", Queue Size: "  + queue.size());
@@ -92,6 +94,18 @@ public class ThreadPoolStackExecutor implements StackExecutor {
 		}
 	}
 
+	private LinkedBlockingQueue<Task> getQueue(SIPTask task) {
+		if (task instanceof UnorderedSIPTask && workersNumber > 1) {
+			// nothing to keep in order, take the shorter of the home queue and another one
+			int home = findQueueIndex(task.getId());
+			int other = (home + 1 + ThreadLocalRandom.current().nextInt(workersNumber - 1)) % workersNumber;
+			LinkedBlockingQueue<Task> homeQueue = queues.get(home);
+			LinkedBlockingQueue<Task> otherQueue = queues.get(other);
+			return otherQueue.size() < homeQueue.size() ? otherQueue : homeQueue;
+		}
+		return getQueue(task.getId());
+	}
+
 	private LinkedBlockingQueue<Task> getQueue(String id) {
 		int index = findQueueIndex(id);
 		// if(logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
@@ -101,7 +115,7 @@ public class ThreadPoolStackExecutor implements StackExecutor {
 	}
 
 	public int findQueueIndex(String id) {
-		return Math.abs(id.hashCode()) % workersNumber;
+		return IdGenerator.getLane(id, workersNumber);
 	}	
 
 	public class Dispatch implements Runnable {    	
@@ -0,0 +1,463 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sdp;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.sdp.SdpParseException;
+
+import gov.nist.javax.sdp.fields.AttributeField;
+import gov.nist.javax.sdp.parser.AttributeFieldParser;
+import gov.nist.javax.sdp.parser.SDPAnnounceParser;
+
+/**
+ * Session description kept as the byte ranges of its lines in the received
+ * body. The body is scanned once to find the lines and the media sections,
+ * fields are only decoded when they are asked for and edited lines are
+ * spliced with the untouched ones when the description is encoded again.
+ *
+ * This is meant for B2BUAs and media relays rewriting the connection address,
+ * the media ports and the payload types of every offer and answer they relay.
+ * Use {@link #toSessionDescription()} when the full JSR 141 object model is
+ * needed.
+ *
+ * Instances are not thread safe.
+ */
+public class RawSessionDescription {
+
+    /**
+     * Media index designating the session level part of the description.
+     */
+    public static final int SESSION_LEVEL = -1;
+
+    private static final byte DELETED = 0;
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private final byte[] buffer;
+
+    // one entry per line, the type is the field letter
+    private byte[] types;
+    private int[] starts;
+    private int[] ends;
+    private byte[][] editedLines;
+    private int lineCount;
+
+    // index of the m= line of each media section
+    private int[] mediaLines;
+    private int mediaCount;
+
+    private RawSessionDescription(byte[] buffer, int capacity) {
+        this.buffer = buffer;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.editedLines = new byte[capacity][];
+        this.mediaLines = new int[4];
+    }
+
+    /**
+     * Scan a session description.
+     *
+     * @param data the buffer holding the description, it must not be modified
+     *            while the description is in use.
+     * @param offset offset of the description in the buffer.
+     * @param length length of the description.
+     * @throws ParseException if a line is not of the type=value form.
+     */
+    public static RawSessionDescription parse(byte[] data, int offset, int length) throws ParseException {
+        RawSessionDescription sdp = new RawSessionDescription(data, 16);
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int lineStart = i;
+            while (i < end && data[i] != '\r' && data[i] != '\n')
+                i++;
+            int lineEnd = i;
+            while (i < end && (data[i] == '\r' || data[i] == '\n'))
+                i++;
+            while (lineEnd > lineStart && data[lineEnd - 1] <= ' ')
+                lineEnd--;
+            if (lineEnd == lineStart)
+                continue;
+            if (lineEnd - lineStart < 2 || data[lineStart + 1] != '=')
+                throw new ParseException("Bad SDP line", lineStart - offset);
+            sdp.insertLine(sdp.lineCount, data[lineStart], lineStart + 2, lineEnd, null);
+        }
+        return sdp;
+    }
+
+    /**
+     * Scan a session description.
+     *
+     * @see #parse(byte[], int, int)
+     */
+    public static RawSessionDescription parse(byte[] data) throws ParseException {
+        return parse(data, 0, data.length);
+    }
+
+    /**
+     * @return the number of m= sections.
+     */
+    public int getMediaCount() {
+        return mediaCount;
+    }
+
+    /**
+     * @return the media type of a media section, audio, video...
+     */
+    public String getMediaType(int media) {
+        return getToken(getLineValue(mediaLines[media]), 0);
+    }
+
+    /**
+     * @return the port of a media section.
+     * @throws SdpParseException if the m= line has no port or a malformed one.
+     */
+    public int getMediaPort(int media) throws SdpParseException {
+        String value = getLineValue(mediaLines[media]);
+        String port = getToken(value, 1);
+        int slash = port.indexOf('/');
+        try {
+            int mediaPort = Integer.parseInt(slash < 0 ? port : port.substring(0, slash));
+            if (mediaPort >= 0)
+                return mediaPort;
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        throw new SdpParseException(mediaLines[media], 0, "Bad media port in m=" + value);
+    }
+
+    /**
+     * Change the port of a media section, the port count if any is kept.
+     *
+     * @throws SdpParseException if the m= line has no port.
+     */
+    public void setMediaPort(int media, int port) throws SdpParseException {
+        String value = getLineValue(mediaLines[media]);
+        String[] tokens = value.split(" ");
+        if (tokens.length < 2 || tokens[1].length() == 0)
+            throw new SdpParseException(mediaLines[media], 0, "No media port in m=" + value);
+        int slash = tokens[1].indexOf('/');
+        tokens[1] = slash < 0 ? Integer.toString(port) : port + tokens[1].substring(slash);
+        setLine(mediaLines[media], String.join(" ", tokens));
+    }
+
+    /**
+     * @return the media formats (payload types for RTP) of a media section.
+     */
+    public List<String> getMediaFormats(int media) {
+        String[] tokens = getLineValue(mediaLines[media]).split(" ");
+        List<String> formats = new ArrayList<String>(tokens.length);
+        for (int i = 3; i < tokens.length; i++) {
+            if (tokens[i].length() > 0)
+                formats.add(tokens[i]);
+        }
+        return formats;
+    }
+
+    /**
+     * Keep only the given formats in a media section. The rtpmap, fmtp and
+     * rtcp-fb attributes of the removed formats are removed as well.
+     *
+     * @param formats the formats to keep, the order of the m= line is kept.
+     */
+    public void retainMediaFormats(int media, Collection<String> formats) {
+        String[] tokens = getLineValue(mediaLines[media]).split(" ");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < tokens.length; i++) {
+            if (i < 3 || formats.contains(tokens[i])) {
+                if (line.length() > 0)
+                    line.append(' ');
+                line.append(tokens[i]);
+            }
+        }
+        setLine(mediaLines[media], line.toString());
+
+        int end = getSectionEnd(media);
+        for (int i = mediaLines[media] + 1; i < end; i++) {
+            if (isAttribute(i, "rtpmap") || isAttribute(i, "fmtp") || isAttribute(i, "rtcp-fb")) {
+                String value = getLineValue(i);
+                String format = getToken(value.substring(value.indexOf(':') + 1), 0);
+                if (!format.equals("*") && !formats.contains(format))
+                    types[i] = DELETED;
+            }
+        }
+    }
+
+    /**
+     * @return the address of the c= line of a media section or of the session
+     *         level, null if there is none.
+     */
+    public String getConnectionAddress(int media) {
+        int line = findLine(media, (byte) 'c');
+        return line < 0 ? null : getToken(getLineValue(line), 2);
+    }
+
+    /**
+     * Change the address of the c= line of a media section or of the session
+     * level. A c= line is added if there is none.
+     *
+     * @param addressType IP4 or IP6.
+     */
+    public void setConnectionAddress(int media, String addressType, String address) {
+        String value = "IN " + addressType + " " + address;
+        int line = findLine(media, (byte) 'c');
+        if (line >= 0) {
+            setLine(line, value);
+            return;
+        }
+        // c= comes after the i= line of a section, or the o=, s=, u=, e=, p=
+        // lines of the session
+        int insertAt = getSectionStart(media) + 1;
+        int end = getSectionEnd(media);
+        while (insertAt < end && (types[insertAt] == DELETED || "osiuep".indexOf(types[insertAt]) >= 0))
+            insertAt++;
+        insertLine(insertAt, (byte) 'c', 0, 0, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the value of the first attribute with the given name in a media
+     *         section or at the session level, an empty string for property
+     *         attributes and null if there is none.
+     */
+    public String getAttribute(int media, String name) {
+        int end = getSectionEnd(media);
+        for (int i = getSectionStart(media); i < end; i++) {
+            if (isAttribute(i, name))
+                return getAttributeValue(i, name);
+        }
+        return null;
+    }
+
+    /**
+     * @return the values of all the attributes with the given name in a media
+     *         section or at the session level.
+     */
+    public List<String> getAttributes(int media, String name) {
+        List<String> values = new ArrayList<String>(4);
+        int end = getSectionEnd(media);
+        for (int i = getSectionStart(media); i < end; i++) {
+            if (isAttribute(i, name))
+                values.add(getAttributeValue(i, name));
+        }
+        return values;
+    }
+
+    /**
+     * Parse the first attribute with the given name.
+     *
+     * @return the attribute or null if there is none.
+     */
+    public AttributeField getAttributeField(int media, String name) throws ParseException {
+        int end = getSectionEnd(media);
+        for (int i = getSectionStart(media); i < end; i++) {
+            if (isAttribute(i, name))
+                return (AttributeField) new AttributeFieldParser("a=" + getLineValue(i)).parse();
+        }
+        return null;
+    }
+
+    /**
+     * Remove all the attributes with the given name from a media section or
+     * the session level.
+     */
+    public void removeAttribute(int media, String name) {
+        int end = getSectionEnd(media);
+        for (int i = getSectionStart(media); i < end; i++) {
+            if (isAttribute(i, name))
+                types[i] = DELETED;
+        }
+    }
+
+    /**
+     * Add an attribute at the end of a media section or of the session level.
+     *
+     * @param value the attribute value, null for a property attribute.
+     */
+    public void addAttribute(int media, String name, String value) {
+        String line = value == null ? name : name + ':' + value;
+        insertLine(getSectionEnd(media), (byte) 'a', 0, 0, line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replace the value of the attributes with the given name, adding the
+     * attribute if there is none.
+     */
+    public void setAttribute(int media, String name, String value) {
+        removeAttribute(media, name);
+        addAttribute(media, name, value);
+    }
+
+    /**
+     * Encode the description, lines that were not edited are copied as they
+     * were received.
+     */
+    public byte[] encode() {
+        int length = 0;
+        for (int i = 0; i < lineCount; i++) {
+            if (types[i] != DELETED)
+                length += 2 + getLineLength(i) + CRLF.length;
+        }
+        byte[] encoded = new byte[length];
+        int position = 0;
+        for (int i = 0; i < lineCount; i++) {
+            if (types[i] == DELETED)
+                continue;
+            encoded[position++] = types[i];
+            encoded[position++] = '=';
+            if (editedLines[i] != null) {
+                System.arraycopy(editedLines[i], 0, encoded, position, editedLines[i].length);
+                position += editedLines[i].length;
+            } else {
+                System.arraycopy(buffer, starts[i], encoded, position, ends[i] - starts[i]);
+                position += ends[i] - starts[i];
+            }
+            encoded[position++] = '\r';
+            encoded[position++] = '\n';
+        }
+        return encoded;
+    }
+
+    /**
+     * Parse the description into the full object model.
+     */
+    public SessionDescriptionImpl toSessionDescription() throws ParseException {
+        return new SDPAnnounceParser(toString()).parse();
+    }
+
+    public String toString() {
+        return new String(encode(), StandardCharsets.UTF_8);
+    }
+
+    private int getSectionStart(int media) {
+        return media == SESSION_LEVEL ? 0 : mediaLines[media];
+    }
+
+    private int getSectionEnd(int media) {
+        if (media + 1 < mediaCount)
+            return mediaLines[media + 1];
+        return lineCount;
+    }
+
+    private int findLine(int media, byte type) {
+        int end = getSectionEnd(media);
+        for (int i = getSectionStart(media); i < end; i++) {
+            if (types[i] == type)
+                return i;
+        }
+        return -1;
+    }
+
+    private int getLineLength(int line) {
+        return editedLines[line] != null ? editedLines[line].length : ends[line] - starts[line];
+    }
+
+    private String getLineValue(int line) {
+        if (editedLines[line] != null)
+            return new String(editedLines[line], StandardCharsets.UTF_8);
+        return new String(buffer, starts[line], ends[line] - starts[line], StandardCharsets.UTF_8);
+    }
+
+    private String getAttributeValue(int line, String name) {
+        String value = getLineValue(line);
+        return value.length() == name.length() ? "" : value.substring(name.length() + 1);
+    }
+
+    /**
+     * Compare the name of an a= line with the given one without decoding it.
+     */
+    private boolean isAttribute(int line, String name) {
+        if (types[line] != 'a')
+            return false;
+        byte[] bytes = editedLines[line] != null ? editedLines[line] : buffer;
+        int start = editedLines[line] != null ? 0 : starts[line];
+        int length = getLineLength(line);
+        if (length < name.length())
+            return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (bytes[start + i] != name.charAt(i))
+                return false;
+        }
+        return length == name.length() || bytes[start + name.length()] == ':';
+    }
+
+    private void setLine(int line, String value) {
+        editedLines[line] = value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void insertLine(int index, byte type, int start, int end, byte[] editedLine) {
+        if (lineCount == types.length) {
+            int capacity = lineCount * 2;
+            byte[] newTypes = new byte[capacity];
+            int[] newStarts = new int[capacity];
+            int[] newEnds = new int[capacity];
+            byte[][] newEditedLines = new byte[capacity][];
+            System.arraycopy(types, 0, newTypes, 0, lineCount);
+            System.arraycopy(starts, 0, newStarts, 0, lineCount);
+            System.arraycopy(ends, 0, newEnds, 0, lineCount);
+            System.arraycopy(editedLines, 0, newEditedLines, 0, lineCount);
+            types = newTypes;
+            starts = newStarts;
+            ends = newEnds;
+            editedLines = newEditedLines;
+        }
+        if (index < lineCount) {
+            int moved = lineCount - index;
+            System.arraycopy(types, index, types, index + 1, moved);
+            System.arraycopy(starts, index, starts, index + 1, moved);
+            System.arraycopy(ends, index, ends, index + 1, moved);
+            System.arraycopy(editedLines, index, editedLines, index + 1, moved);
+            for (int i = 0; i < mediaCount; i++) {
+                if (mediaLines[i] >= index)
+                    mediaLines[i]++;
+            }
+        }
+        types[index] = type;
+        starts[index] = start;
+        ends[index] = end;
+        editedLines[index] = editedLine;
+        lineCount++;
+
+        if (type == 'm' && index == lineCount - 1) {
+            if (mediaCount == mediaLines.length) {
+                int[] newMediaLines = new int[mediaCount * 2];
+                System.arraycopy(mediaLines, 0, newMediaLines, 0, mediaCount);
+                mediaLines = newMediaLines;
+            }
+            mediaLines[mediaCount++] = index;
+        }
+    }
+
+    private static String getToken(String value, int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            start = value.indexOf(' ', start);
+            if (start < 0)
+                return "";
+            start++;
+        }
+        int end = value.indexOf(' ', start);
+        return end < 0 ? value.substring(start) : value.substring(start, end);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.StackLogger;
+
+/**
+ * Runs the listener callbacks away from the stack executor while keeping the callbacks of
+ * a call in order. The callbacks of a Call-ID are queued in a mailbox drained by a single
+ * thread of the executor at a time, the mailbox only exists while it has callbacks pending.
+ * With virtual threads a blocking listener parks its own thread only, the workers of the
+ * stack executor are free again as soon as the callback is queued.
+ */
+class CallOrderedDispatcher {
+
+    private static StackLogger logger = CommonLogger.getLogger(CallOrderedDispatcher.class);
+
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<String, Mailbox>();
+
+    private final ExecutorService executor;
+
+    CallOrderedDispatcher(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queue a callback after the ones already pending for the same call.
+     *
+     * @param callId the key the callbacks are ordered by
+     * @param callback the listener invocation
+     * @throws RejectedExecutionException if the executor refuses to run the call, the callback is dropped
+     */
+    void dispatch(String callId, Runnable callback) {
+        while (true) {
+            Mailbox mailbox = mailboxes.get(callId);
+            if (mailbox == null) {
+                Mailbox created = new Mailbox(callId);
+                mailbox = mailboxes.putIfAbsent(callId, created);
+                if (mailbox == null) {
+                    mailbox = created;
+                }
+            }
+            boolean start;
+            synchronized (mailbox) {
+                if (mailbox.retired) {
+                    continue;
+                }
+                mailbox.callbacks.offerLast(callback);
+                start = !mailbox.running;
+                mailbox.running = true;
+            }
+            if (start) {
+                try {
+                    executor.execute(mailbox);
+                } catch (RejectedExecutionException e) {
+                    synchronized (mailbox) {
+                        // not delivered, and the next callback of the call schedules the mailbox again
+                        mailbox.callbacks.removeLastOccurrence(callback);
+                        mailbox.running = false;
+                        if (mailbox.callbacks.isEmpty()) {
+                            mailbox.retired = true;
+                            mailboxes.remove(callId, mailbox);
+                        }
+                    }
+                    throw e;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * @return the number of calls having callbacks pending or running.
+     */
+    int getActiveCalls() {
+        return mailboxes.size();
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private final class Mailbox implements Runnable {
+        final String callId;
+        // guarded by the mailbox
+        final ArrayDeque<Runnable> callbacks = new ArrayDeque<Runnable>();
+        boolean running;
+        boolean retired;
+
+        Mailbox(String callId) {
+            this.callId = callId;
+        }
+
+        public void run() {
+            while (true) {
+                Runnable callback;
+                synchronized (this) {
+                    callback = callbacks.pollFirst();
+                    if (callback == null) {
+                        retired = true;
+                        mailboxes.remove(callId, this);
+                        return;
+                    }
+                }
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    logger.logError("Listener callback failed for call " + callId, e);
+                }
+            }
+        }
+    }
+}
@@ -756,7 +756,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                     logger.logDebug(
                             "Dropping out of sequence message "
                                     + dialog.getRemoteSeqNumber() + " "
-                                    + sipRequest.getCSeq());
+                                    + sipRequest.peekCSeq());
                 }
 
                 // send error when stricly higher, ignore when ==
@@ -766,7 +766,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                  * transaction .getState() == TransactionState.PROCEEDING)
                  */
 
-                if (dialog.getRemoteSeqNumber() > sipRequest.getCSeq()
+                if (dialog.getRemoteSeqNumber() > sipRequest.peekCSeq()
                         .getSeqNumber()
                         && sipProvider.isDialogErrorsAutomaticallyHandled()) {
                     this.sendServerInternalErrorResponse(sipRequest,
@@ -821,7 +821,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
         if (dialog != null
                 && transaction != null
                 && lastTransaction != null
-                && sipRequest.getCSeq().getSeqNumber() > lastTransaction.getCSeq()
+                && sipRequest.peekCSeq().getSeqNumber() > lastTransaction.getCSeq()
                 && lastTransaction instanceof SIPServerTransaction                    
                 && sipProvider.isDialogErrorsAutomaticallyHandled()
                 && dialog.isSequenceNumberValidation()
@@ -871,7 +871,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                 && lastTransaction.isInviteTransaction()
                 && lastTransaction instanceof ServerTransaction
                 && lastTransaction != transaction
-                && sipRequest.getCSeq().getSeqNumber() > lastTransaction.getCSeq()
+                && sipRequest.peekCSeq().getSeqNumber() > lastTransaction.getCSeq()
                 // Handle Pseudo State Trying on Server Transaction
                 && (lastTransaction.getInternalState() == TransactionState._PROCEEDING
                                 || lastTransaction.getInternalState() == TransactionState._TRYING)) {
@@ -998,9 +998,9 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                 logger.logDebug(
                         "Dropping out of sequence BYE "
                                 + dialog.getRemoteSeqNumber() + " "
-                                + sipRequest.getCSeq().getSeqNumber());
+                                + sipRequest.peekCSeq().getSeqNumber());
 
-            if (dialog.getRemoteSeqNumber() > sipRequest.getCSeq()
+            if (dialog.getRemoteSeqNumber() > sipRequest.peekCSeq()
                     .getSeqNumber()) {
                 this.sendServerInternalErrorResponse(sipRequest,
                         transaction);
@@ -1486,14 +1486,14 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                     if (dialog.isAckSeen() && dialog.isAckSent()) {
                         if (dialog.isLastAckPresent() && 
                         		dialog.getLastAckSentCSeq().getSeqNumber() == response
-                                .getCSeq().getSeqNumber()) {
+                                .peekCSeq().getSeqNumber()) {
                             // the last ack sent corresponded to this 200
                             ackAlreadySent = true;
                         }
                     }
                     // 200 retransmission for the final response.
                     if (ackAlreadySent
-                            && response.getCSeq().getMethod().equals(
+                            && response.peekCSeq().getMethod().equals(
                                     dialog.getMethod())) {
                         try {
                             // Found the dialog - resend the ACK and
@@ -1526,8 +1526,8 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                     transaction, dialog, (Response) response);
                 
             if (sipStack.getMaxForkTime() != 0
-                    && SIPTransactionStack.isDialogCreatingMethod(response.getCSeqHeader().getMethod())) {
-                String branchId = response.getTopmostVia().getBranch();
+                    && SIPTransactionStack.isDialogCreatingMethod(response.peekCSeq().getMethod())) {
+                String branchId = response.peekTopmostVia().getBranch();
             	if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
                     logger.logDebug("Trying to find forked Transaction for forked id " + 
                         response.getForkId() + " transactionId " + branchId);
@@ -1568,8 +1568,8 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
         ResponseEventExt responseEvent = new ResponseEventExt(sipProvider,
                 (ClientTransactionExt) transaction, dialog, (Response) response);
         if (sipStack.getMaxForkTime() != 0
-                && SIPTransactionStack.isDialogCreatingMethod(response.getCSeqHeader().getMethod())) {
-            String branchId = response.getTopmostVia().getBranch();                    
+                && SIPTransactionStack.isDialogCreatingMethod(response.peekCSeq().getMethod())) {
+            String branchId = response.peekTopmostVia().getBranch();                    
             SIPClientTransaction forked = null;
             if(transaction != null && response.getForkId().equalsIgnoreCase(transaction.getForkId())) {
                 forked = transaction;
@@ -1627,7 +1627,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
         String dialogID = sipResponse.getDialogId(false);
         SIPDialog sipDialog = this.sipStack.getDialog(dialogID);
 
-        String method = sipResponse.getCSeq().getMethod();
+        String method = sipResponse.peekCSeq().getMethod();
         if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
             logger.logDebug(
                     "PROCESSING INCOMING RESPONSE: "
@@ -1689,14 +1689,14 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
         if (this.transactionChannel != null) {
             String originalFrom = ((SIPRequest) this.transactionChannel
                     .getRequest()).getFromTag();
-            if (originalFrom == null ^ sipResponse.getFrom().getTag() == null) {
+            if (originalFrom == null ^ sipResponse.peekFrom().getTag() == null) {
                 if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG))
                     logger.logDebug(
                             "From tag mismatch -- dropping response");
                 return;
             }
             if (originalFrom != null
-                    && !originalFrom.equalsIgnoreCase(sipResponse.getFrom()
+                    && !originalFrom.equalsIgnoreCase(sipResponse.peekFrom()
                             .getTag())) {
                 if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG))
                     logger.logDebug(
@@ -1708,8 +1708,8 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
         boolean createDialog = false;
         if (SIPTransactionStack.isDialogCreatingMethod(method)
                 && sipResponse.getStatusCode() != 100
-                && sipResponse.getFrom().getTag() != null
-                && sipResponse.getTo().getTag() != null && sipDialog == null) {
+                && sipResponse.peekFrom().getTag() != null
+                && sipResponse.peekTo().getTag() != null && sipDialog == null) {
             // Issue 317 : for forked response even if automatic dialog support is not enabled
             // a dialog should be created in the case where the original Tx already have a default dialog
             // and the current dialog is null. This is also avoiding creating dialog automatically if the flag is not set            
@@ -1717,7 +1717,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                  createDialog = true;
             }
             else {
-                String branchId = sipResponse.getTopmostVia().getBranch();
+                String branchId = sipResponse.peekTopmostVia().getBranch();
                 SIPClientTransaction originalTx = null;
                 if(transaction != null && sipResponse.getForkId().equalsIgnoreCase(transaction.getForkId())) {
                     originalTx = transaction;
@@ -1775,11 +1775,11 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                     // an ACK for the OK.
                     // It could be late arriving.
                     if (sipResponse.getStatusCode() / 100 == 2
-                            && sipResponse.getCSeq().getMethod().equals(
+                            && sipResponse.peekCSeq().getMethod().equals(
                                     Request.INVITE)) {
                         try {
                             Request ackRequest = sipDialog
-                                    .createAck(sipResponse.getCSeq()
+                                    .createAck(sipResponse.peekCSeq()
                                             .getSeqNumber());
                             sipDialog.sendAck(ackRequest);
                         } catch (Exception ex) {
@@ -1794,7 +1794,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                             && */ sipDialog.isAckSent()) {
                         if (sipDialog.isLastAckPresent() &&
                         		sipDialog.getLastAckSentCSeq().getSeqNumber() == sipResponse
-                                .getCSeq().getSeqNumber()
+                                .peekCSeq().getSeqNumber()
                                 && sipResponse.getDialogId(false).equals(
                                         sipDialog.getLastAckSentDialogId())) {
                             // the last ack sent corresponded to this 200
@@ -1803,7 +1803,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
                     }
                     // 200 retransmission for the final response.
                     if (ackAlreadySent
-                            && sipResponse.getCSeq().getMethod().equals(
+                            && sipResponse.peekCSeq().getMethod().equals(
                                     sipDialog.getMethod())) {
                         try {
                             // Found the dialog - resend the ACK and
@@ -1836,8 +1836,8 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
         responseEvent.setRemotePort(sipResponse.getRemotePort());
 
         if (sipStack.getMaxForkTime() != 0
-        		&& SIPTransactionStack.isDialogCreatingMethod(sipResponse.getCSeqHeader().getMethod())) {
-            String branchId = sipResponse.getTopmostVia().getBranch();
+        		&& SIPTransactionStack.isDialogCreatingMethod(sipResponse.peekCSeq().getMethod())) {
+            String branchId = sipResponse.peekTopmostVia().getBranch();
             SIPClientTransaction originalTx = null;
             if(transaction != null && sipResponse.getForkId().equalsIgnoreCase(transaction.getForkId())) {
                 originalTx = transaction;
@@ -1859,7 +1859,7 @@ class DialogFilter implements ServerRequestInterface, DialogResponseInterface {
             }
         }
         
-        if(sipDialog != null && sipResponse.getStatusCode() != 100 && sipResponse.getTo().getTag() != null) {
+        if(sipDialog != null && sipResponse.getStatusCode() != 100 && sipResponse.peekTo().getTag() != null) {
             sipDialog.setLastResponse(transaction, sipResponse);
         }
         responseEvent.setRetransmission(sipResponse.isRetransmission());
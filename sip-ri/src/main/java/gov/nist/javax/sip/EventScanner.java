@@ -25,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.sip.Dialog;
 import javax.sip.DialogState;
 import javax.sip.DialogTerminatedEvent;
 import javax.sip.IOExceptionEvent;
@@ -32,6 +33,7 @@ import javax.sip.RequestEvent;
 import javax.sip.ResponseEvent;
 import javax.sip.SipListener;
 import javax.sip.TimeoutEvent;
+import javax.sip.Transaction;
 import javax.sip.TransactionState;
 import javax.sip.TransactionTerminatedEvent;
 import javax.sip.message.Request;
@@ -42,12 +44,14 @@ import gov.nist.core.LogLevels;
 import gov.nist.core.LogWriter;
 import gov.nist.core.StackLogger;
 import gov.nist.core.ThreadAuditor;
+import gov.nist.javax.sip.message.SIPMessage;
 import gov.nist.javax.sip.message.SIPRequest;
 import gov.nist.javax.sip.message.SIPResponse;
 import gov.nist.javax.sip.stack.SIPClientTransaction;
 import gov.nist.javax.sip.stack.SIPDialog;
 import gov.nist.javax.sip.stack.SIPServerTransaction;
 import gov.nist.javax.sip.stack.SIPTransaction;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
 import gov.nist.javax.sip.stack.transports.processors.netty.NettyMessageProcessorFactory;
 
 /* bug fixes SIPQuest communications and Shu-Lin Chen. */
@@ -73,6 +77,9 @@ public class EventScanner implements Runnable {
     
     private SipStackImpl sipStack;
 
+    // set when the listener callbacks run on virtual threads
+    private volatile CallOrderedDispatcher listenerDispatcher;
+
     public void incrementRefcount() {
         this.refCount.incrementAndGet();
     }
@@ -96,6 +103,14 @@ public class EventScanner implements Runnable {
 
     public void start() {
         isStopped.set(false);
+        if (sipStack.isVirtualThreadListenerDispatch() && listenerDispatcher == null) {
+            if (VirtualThreads.isSupported()) {
+                listenerDispatcher = new CallOrderedDispatcher(VirtualThreads.newExecutor("SipListener-"));
+            } else {
+                logger.logWarning("gov.nist.javax.sip.VIRTUAL_THREAD_LISTENER_DISPATCH needs Java 21 or later, "
+                        + "the listener is called from the stack threads");
+            }
+        }
         if(!sipStack.isReEntrantListener() && !(sipStack.getMessageProcessorFactory() instanceof NettyMessageProcessorFactory)) {
             Thread myThread = new Thread(this);
             // This needs to be set to false else the
@@ -114,6 +129,7 @@ public class EventScanner implements Runnable {
     public void stop() {
             if (refCount.decrementAndGet() == 0) {
             	isStopped.set(true);
+            	stopListenerDispatcher();
             }
     }
 
@@ -125,13 +141,95 @@ public class EventScanner implements Runnable {
     public void forceStop() {
             isStopped.set(true);
             this.refCount.set(0);
+            stopListenerDispatcher();
+    }
+
+    private void stopListenerDispatcher() {
+        CallOrderedDispatcher dispatcher = listenerDispatcher;
+        listenerDispatcher = null;
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
     }
 
     public boolean isStarted() {
         return !isStopped.get();
     }
 
-    public void deliverEvent(EventWrapper eventWrapper) {
+    public void deliverEvent(final EventWrapper eventWrapper) {
+        CallOrderedDispatcher dispatcher = listenerDispatcher;
+        if (dispatcher != null) {
+            MessageTrace trace = getMessageTrace(eventWrapper.sipEvent);
+            // reported once the listener returns rather than the stack thread
+            final MessageTrace messageTrace = trace != null && trace.hold() ? trace : null;
+            // the stack thread only queues the callback behind the others of the call
+            dispatcher.dispatch(getCallId(eventWrapper), new Runnable() {
+                public void run() {
+                    try {
+                        deliverEventToListener(eventWrapper);
+                    } finally {
+                        if (messageTrace != null) {
+                            messageTrace.release();
+                        }
+                    }
+                }
+            });
+            return;
+        }
+        deliverEventToListener(eventWrapper);
+    }
+
+    private static MessageTrace getMessageTrace(EventObject sipEvent) {
+        if (sipEvent instanceof RequestEvent) {
+            return ((SIPMessage) ((RequestEvent) sipEvent).getRequest()).getMessageTrace();
+        } else if (sipEvent instanceof ResponseEvent) {
+            return ((SIPMessage) ((ResponseEvent) sipEvent).getResponse()).getMessageTrace();
+        }
+        return null;
+    }
+
+    /**
+     * @return the Call-ID the callbacks of the event are ordered by, for the events
+     * that are not related to a call the peer they come from.
+     */
+    private static String getCallId(EventWrapper eventWrapper) {
+        EventObject sipEvent = eventWrapper.sipEvent;
+        SIPMessage message = null;
+        Dialog dialog = null;
+        Transaction transaction = eventWrapper.transaction;
+        if (sipEvent instanceof RequestEvent) {
+            message = (SIPMessage) ((RequestEvent) sipEvent).getRequest();
+        } else if (sipEvent instanceof ResponseEvent) {
+            message = (SIPMessage) ((ResponseEvent) sipEvent).getResponse();
+        } else if (sipEvent instanceof DialogTimeoutEvent) {
+            dialog = ((DialogTimeoutEvent) sipEvent).getDialog();
+        } else if (sipEvent instanceof DialogTerminatedEvent) {
+            dialog = ((DialogTerminatedEvent) sipEvent).getDialog();
+        } else if (sipEvent instanceof TimeoutEvent) {
+            TimeoutEvent timeoutEvent = (TimeoutEvent) sipEvent;
+            transaction = timeoutEvent.isServerTransaction() ? timeoutEvent.getServerTransaction()
+                    : timeoutEvent.getClientTransaction();
+        } else if (sipEvent instanceof TransactionTerminatedEvent) {
+            TransactionTerminatedEvent terminatedEvent = (TransactionTerminatedEvent) sipEvent;
+            transaction = terminatedEvent.isServerTransaction() ? terminatedEvent.getServerTransaction()
+                    : terminatedEvent.getClientTransaction();
+        } else if (sipEvent instanceof IOExceptionEvent) {
+            IOExceptionEvent ioExceptionEvent = (IOExceptionEvent) sipEvent;
+            return ioExceptionEvent.getHost() + ":" + ioExceptionEvent.getPort() + "/" + ioExceptionEvent.getTransport();
+        }
+        if (message == null && transaction != null) {
+            message = (SIPMessage) transaction.getRequest();
+        }
+        if (message != null && message.peekCallId() != null) {
+            return message.peekCallId().getCallId();
+        }
+        if (dialog != null && dialog.getCallId() != null) {
+            return dialog.getCallId().getCallId();
+        }
+        return "";
+    }
+
+    private void deliverEventToListener(EventWrapper eventWrapper) {
         EventObject sipEvent = eventWrapper.sipEvent;
         if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG))
             logger.logDebug(
@@ -249,8 +347,10 @@ public class EventScanner implements Runnable {
                     logger.logDebug(
                             "Calling listener " + eventWrapper.transaction);
                 }
-                if (sipListener != null)
+                if (sipListener != null) {
+                    MessageTrace.mark(sipRequest, MessageTrace.Stage.DELIVERED);
                     sipListener.processRequest((RequestEvent) sipEvent);
+                }
 
                 if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
                     logger.logDebug(
@@ -316,6 +416,7 @@ public class EventScanner implements Runnable {
                     if (tx != null) {
                         tx.setPassToListener();
                     }
+                    MessageTrace.mark(sipResponse, MessageTrace.Stage.DELIVERED);
                     sipListener.processResponse(responseEvent);
                 }
 
@@ -352,7 +453,7 @@ public class EventScanner implements Runnable {
                  * This garbage collects unacknowledged dialogs.
                  *
                  */
-                if (sipResponse.getCSeq().getMethod()
+                if (sipResponse.peekCSeq().getMethod()
                         .equals(Request.INVITE)
                         && sipDialog != null
                         && sipResponse.getStatusCode() == 200) {
@@ -363,7 +464,7 @@ public class EventScanner implements Runnable {
                     /*
                      * If we dont see an ACK in 32 seconds, we want to tear down the dialog.
                      */
-                    sipDialog.doDeferredDeleteIfNoAckSent(sipResponse.getCSeq().getSeqNumber());
+                    sipDialog.doDeferredDeleteIfNoAckSent(sipResponse.peekCSeq().getSeqNumber());
                 }
             } catch (Exception ex) {
                 // We cannot let this thread die under any
@@ -0,0 +1,246 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Generates the tags, branch identifiers and Call-IDs of the stack without
+ * contention: each thread draws from its own {@link SecureRandom}, the DRBG
+ * where the JVM provides one, in batches of bytes, and formats the identifier
+ * straight into a reused char array. Tags and branch identifiers must not be
+ * guessable, so none is derived from the previous ones.
+ * <p>
+ * The Call-IDs carry the executor lane of the call, as four hex digits
+ * followed by a dot, and optionally the id of the cluster node that created
+ * them after the random part, so that both can be read back with
+ * {@link #getLane(String)} and {@link #getNodeId(String)} without hashing or
+ * looking up the Call-ID: <code>04d2.9f1c...e07a.node1@10.0.0.1</code>
+ */
+public final class IdGenerator {
+
+    // Lanes a Call-ID can carry, taken modulo the number of workers
+    public static final int LANES = 0x10000;
+
+    // Random bytes drawn at once by a thread
+    private static final int BATCH_SIZE = 512;
+
+    private static final char[] HEX = { '0', '1', '2', '3', '4', '5', '6',
+            '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+    private static final ThreadLocal<Generator> generators = new ThreadLocal<Generator>() {
+        @Override
+        protected Generator initialValue() {
+            return new Generator();
+        }
+    };
+
+    private IdGenerator() {
+    }
+
+    /**
+     * @return 64 random bits as 16 hex digits.
+     */
+    public static String generateTag() {
+        Generator generator = generators.get();
+        generator.length = 0;
+        generator.appendRandom(1);
+        return generator.toString();
+    }
+
+    /**
+     * @param prefix the magic cookie and signature of the stack
+     * @return the prefix followed by 128 random bits as 32 hex digits.
+     */
+    public static String generateBranchId(String prefix) {
+        Generator generator = generators.get();
+        generator.length = 0;
+        generator.append(prefix);
+        generator.appendRandom(2);
+        return generator.toString();
+    }
+
+    /**
+     * Generates a Call-ID for a new lane, the lanes being taken in turn by
+     * each thread.
+     *
+     * @param nodeId the node of the cluster creating the call, null if none
+     * @param address the host part of the Call-ID, null for none
+     */
+    public static String generateCallIdentifier(String nodeId, String address) {
+        Generator generator = generators.get();
+        return generateCallIdentifier(generator.nextLane++ & (LANES - 1), nodeId, address);
+    }
+
+    /**
+     * @param lane the lane the tasks of the call are queued in, modulo the
+     *        number of workers of the executor
+     * @param nodeId the node of the cluster creating the call, null if none
+     * @param address the host part of the Call-ID, null for none
+     */
+    public static String generateCallIdentifier(int lane, String nodeId, String address) {
+        if (lane < 0 || lane >= LANES) {
+            throw new IllegalArgumentException("lane out of range " + lane);
+        }
+        Generator generator = generators.get();
+        generator.length = 0;
+        generator.appendHex(lane, 4);
+        generator.append('.');
+        generator.appendRandom(2);
+        if (nodeId != null) {
+            generator.append('.');
+            generator.append(nodeId);
+        }
+        if (address != null) {
+            generator.append('@');
+            generator.append(address);
+        }
+        return generator.toString();
+    }
+
+    /**
+     * @return the lane carried by a Call-ID of this generator, -1 for other
+     *         Call-IDs.
+     */
+    public static int getLane(String callId) {
+        if (callId == null || callId.length() < 5 || callId.charAt(4) != '.') {
+            return -1;
+        }
+        int lane = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(callId.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            lane = (lane << 4) | digit;
+        }
+        return lane;
+    }
+
+    /**
+     * @return the node id carried by a Call-ID of this generator, null if it
+     *         has none.
+     */
+    public static String getNodeId(String callId) {
+        if (getLane(callId) < 0) {
+            return null;
+        }
+        int end = callId.indexOf('@');
+        if (end < 0) {
+            end = callId.length();
+        }
+        int start = callId.indexOf('.', 5);
+        if (start < 0 || start >= end) {
+            return null;
+        }
+        return callId.substring(start + 1, end);
+    }
+
+    /**
+     * @return the lane of the tasks of an id among a number of workers, the
+     *         lane carried by the Call-ID or else its hash.
+     */
+    public static int getLane(String id, int workersNumber) {
+        int lane = getLane(id);
+        if (lane < 0) {
+            lane = id.hashCode() & Integer.MAX_VALUE;
+        }
+        return lane % workersNumber;
+    }
+
+    private static SecureRandom newSecureRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            // before Java 9, an instance not sharing the lock of the native generator
+            try {
+                return SecureRandom.getInstance("SHA1PRNG");
+            } catch (NoSuchAlgorithmException ex) {
+                return new SecureRandom();
+            }
+        }
+    }
+
+    private static final class Generator {
+        private final SecureRandom random = newSecureRandom();
+        private final byte[] bytes = new byte[BATCH_SIZE];
+        private int position = BATCH_SIZE;
+        private int nextLane;
+        private char[] chars = new char[64];
+        private int length;
+
+        Generator() {
+            ensureRandom(2);
+            // 16 random bits, one of the LANES
+            nextLane = (bytes[position++] & 0xff) << 8 | (bytes[position++] & 0xff);
+        }
+
+        private void ensureRandom(int n) {
+            if (position + n > BATCH_SIZE) {
+                random.nextBytes(bytes);
+                position = 0;
+            }
+        }
+
+        void appendRandom(int longs) {
+            ensureRandom(longs * 8);
+            ensureCapacity(longs * 16);
+            for (int i = 0; i < longs * 8; i++) {
+                int b = bytes[position++];
+                chars[length++] = HEX[(b >>> 4) & 0x0f];
+                chars[length++] = HEX[b & 0x0f];
+            }
+        }
+
+        void appendHex(int value, int digits) {
+            ensureCapacity(digits);
+            for (int i = digits - 1; i >= 0; i--) {
+                chars[length + i] = HEX[value & 0x0f];
+                value >>>= 4;
+            }
+            length += digits;
+        }
+
+        void append(char c) {
+            ensureCapacity(1);
+            chars[length++] = c;
+        }
+
+        void append(String s) {
+            int n = s.length();
+            ensureCapacity(n);
+            s.getChars(0, n, chars, length);
+            length += n;
+        }
+
+        private void ensureCapacity(int n) {
+            if (length + n > chars.length) {
+                char[] grown = new char[Math.max(chars.length * 2, length + n)];
+                System.arraycopy(chars, 0, grown, 0, length);
+                chars = grown;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
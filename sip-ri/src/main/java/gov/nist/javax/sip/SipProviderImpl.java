@@ -246,8 +246,8 @@ public class SipProviderImpl implements gov.nist.javax.sip.SipProviderExt,
      * @see javax.sip.SipProvider#getNewCallId()
      */
     public CallIdHeader getNewCallId() {
-        String callId = Utils.getInstance().generateCallIdentifier(this.getListeningPoint()
-                .getIPAddress());
+        String callId = IdGenerator.generateCallIdentifier(sipStack.getNodeId(),
+                this.getListeningPoint().getIPAddress());
         CallID callid = new CallID();
         try {
             callid.setCallId(callId);
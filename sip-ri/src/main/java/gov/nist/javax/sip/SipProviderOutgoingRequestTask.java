@@ -78,7 +78,8 @@ public class SipProviderOutgoingRequestTask implements SIPTask {
                         .toUpperCase())) {
                     messageChannel = sipStack.createRawMessageChannel(
                             sipProvider.getListeningPoint(hop.getTransport()).getIPAddress(),
-                            sipProvider.getListeningPoint(hop.getTransport()).getPort(), hop);
+                            sipProvider.getListeningPoint(hop.getTransport()).getPort(), hop,
+                            sipRequest.isNullRequest() ? null : id);
                 }
 
                 if (messageChannel != null) {
@@ -28,6 +28,7 @@ import gov.nist.core.LogWriter;
 import gov.nist.core.StackLogger;
 import gov.nist.core.executor.SIPTask;
 import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
 import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
 
 public class SipProviderOutgoingResponseTask implements SIPTask {
@@ -37,6 +38,8 @@ public class SipProviderOutgoingResponseTask implements SIPTask {
         private long startTime;
         private SIPResponse sipResponse;
         private Hop hop;
+        // held until the response is written, null if not traced
+        private MessageTrace messageTrace;
 
         public SipProviderOutgoingResponseTask(SipProviderImpl sipProviderImpl, SIPResponse sipResponse, Hop hop) {
             this.sipProvider = sipProviderImpl;
@@ -44,6 +47,10 @@ public class SipProviderOutgoingResponseTask implements SIPTask {
             this.id = sipResponse.getCallId().getCallId();
             this.sipResponse = sipResponse;
             this.hop = hop;
+            MessageTrace trace = sipResponse.getMessageTrace();
+            if (trace != null && trace.hold()) {
+                messageTrace = trace;
+            }
         }
 
         @Override
@@ -74,10 +81,11 @@ public class SipProviderOutgoingResponseTask implements SIPTask {
                     
                 MessageChannel messageChannel = sipStack.createRawMessageChannel(
                         sipProvider.getListeningPoint(hop.getTransport()).getIPAddress(),
-                        listeningPoint.port, hop);
+                        listeningPoint.port, hop, id);
                 // Fix for https://github.com/RestComm/jain-sip/issues/133
                 if (messageChannel != null) {
                     messageChannel.sendMessage(sipResponse);
+                    MessageTrace.mark(sipResponse, MessageTrace.Stage.SENT);
                     /**
                      * Notifying the application layer of the message sent out in the same thread
                      */
@@ -116,6 +124,10 @@ public class SipProviderOutgoingResponseTask implements SIPTask {
 
                 sipProvider.handleEvent(exceptionEvent, null);
                 // throw new SipException(ex.getMessage());
+            } finally {
+                if (messageTrace != null) {
+                    messageTrace.release();
+                }
             }
         }
 
@@ -49,6 +49,7 @@ import javax.sip.address.Router;
 import javax.sip.header.HeaderFactory;
 import javax.sip.message.Request;
 
+import gov.nist.core.Clock;
 import gov.nist.core.CommonLogger;
 import gov.nist.core.LogLevels;
 import gov.nist.core.ServerLogger;
@@ -73,7 +74,10 @@ import gov.nist.javax.sip.stack.DefaultMessageLogFactory;
 import gov.nist.javax.sip.stack.DefaultRouter;
 import gov.nist.javax.sip.stack.SIPEventInterceptor;
 import gov.nist.javax.sip.stack.SIPMessageValve;
+import gov.nist.javax.sip.stack.proxy.StatelessRequestRouter;
+import gov.nist.javax.sip.stack.trace.MessageTraceSink;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.state.StateStoreFactory;
 import gov.nist.javax.sip.stack.timers.MobiusSipTimer;
 import gov.nist.javax.sip.stack.timers.SipTimer;
 import gov.nist.javax.sip.stack.timers.StackTimer;
@@ -81,6 +85,7 @@ import gov.nist.javax.sip.stack.transports.processors.ClientAuthType;
 import gov.nist.javax.sip.stack.transports.processors.DefaultTlsSecurityPolicy;
 import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.MessageProcessorFactory;
+import gov.nist.javax.sip.stack.transports.processors.SourceRateLimiter;
 import gov.nist.javax.sip.stack.transports.processors.netty.NettyMessageProcessorFactory;
 import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
 
@@ -246,6 +251,16 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  * machine but will run the listener in its own thread.</li>
  * </ul>
  *
+ * <li><b>gov.nist.javax.sip.VIRTUAL_THREAD_LISTENER_DISPATCH = true|false </b> <br/>
+ * Default is false. Requires Java 21 or later, ignored with a warning otherwise.
+ * Set to true to call the listener from virtual threads instead of the threads of
+ * the stack executor, so that a listener blocking on a database or an HTTP lookup
+ * doesn't hold the other calls handled by the same stack thread. The callbacks of
+ * a Call-ID are still delivered one at a time and in order, the callbacks of
+ * different calls run concurrently so the listener has to be re-entrant. The stack
+ * does not wait for the listener to return before handling the next message. Takes
+ * effect when the stack is started.</li>
+ *
  * <li><b>gov.nist.javax.sip.REENTRANT_LISTENER = true|false </b> <br/>
  * Default is false. Set to true if the listener is re-entrant. If the listener
  * is re-entrant then the stack manages a thread pool and synchronously calls
@@ -370,7 +385,10 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  *
  * <li><b>gov.nist.javax.sip.NIO_BLOCKING_MODE = String </b> <br/>
  * Defines the blocking mode for the NioMessageFactory. By default it will be set
- * as "BLOCKING". Set to "NONBLOCKING" for nonBlocking connect behavior
+ * as "NONBLOCKING": outbound connections are established by the selector thread, the
+ * messages sent meanwhile are queued and sent or failed together when the connect completes
+ * or the CONNECTION_TIMEOUT expires. Set to "BLOCKING" to have the sending thread wait for
+ * the connection to be established.
  * </li> *
  *
  * <li><b>gov.nist.javax.sip.stack.USE_DIRECT_BUFFERS = [true|false]</b> <br/>
@@ -380,6 +398,23 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  * monitoring and management.
  * </li>
  *
+ * <li><b>gov.nist.javax.sip.PARSE_EXCEPTION_STACK_TRACES = [true|false]</b> <br/>
+ * Default is <it>false</it>. The parsers report malformed input with parse exceptions
+ * which do not fill their stack trace, malformed or hostile traffic costing little more
+ * to reject than valid traffic. If set to <it>true</it> they fill it, to debug the parsers.
+ * The factories always give the applications parse exceptions with the stack trace of
+ * their call. The parsers are shared by all the stacks of the JVM, so this is a JVM
+ * system property, read when the parsers first fail, and not a property of the stack.
+ * </li>
+ *
+ * <li><b>gov.nist.javax.sip.TOKEN_POOL_SIZE = integer</b> <br/>
+ * Number of strings of the pool sharing the parameter names, transports, methods and
+ * host names of the parsed headers, which the dialogs would otherwise keep their own
+ * copies of. 0 disables the pool. The default is 4096. The pool is shared by all the
+ * stacks of the JVM, so this is a JVM system property, read when the parsers are first
+ * used, and not a property of the stack.
+ * </li>
+ *
  * <li><b>gov.nist.javax.sip.COMPUTE_CONTENT_LENGTH_FROM_MESSAGE_BODY =
  * [true|false] </b> <br/>
  * Default is <it>false</it> If set to <it>true</it>, when you are creating a
@@ -428,6 +463,23 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  * causing even more retransmissions. Good values to this property for servers
  * is a big number in the order of 8*8*1024 or higher.</li>
  *
+ * <li><b>gov.nist.javax.sip.UDP_BATCH_SIZE = int </b> <br/>
+ * Default is <it>1</it>. Number of datagrams the Netty UDP transport reads with
+ * a single system call (recvmmsg) on the epoll transport, and number of sends
+ * gathered before they are flushed together (sendmmsg). When batching, each
+ * datagram read is limited to MAX_MESSAGE_SIZE bytes (at most 65535), and a read
+ * allocates a buffer of UDP_BATCH_SIZE times that size, so MAX_MESSAGE_SIZE should
+ * be set to the largest datagram expected.
+ * The resulting syscall per packet ratios are available from
+ * NettyDatagramMessageProcessor.getDatagramStatistics().</li>
+ *
+ * <li><b>gov.nist.javax.sip.NODE_ID = String </b> <br/>
+ * Default is none. Id of the cluster node, added to the Call-IDs created by
+ * SipProvider.getNewCallId() so that a load balancer can route the requests
+ * of a call back to the node that created it. The Call-IDs also carry the
+ * executor lane of the call, which replaces the hash of the Call-ID when the
+ * stack executors queue the tasks of the call.</li>
+ *
  * <li><b>gov.nist.javax.sip.CONGESTION_CONTROL_TIMEOUT = int </b> How
  * much time messages are allowed to wait in queue before being dropped due to
  * stack being too slow to respond. Default value is 8000 ms. The value is in
@@ -500,7 +552,9 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  *
  * <li><b>gov.nist.javax.sip.MESSAGE_PARSER_FACTORY =  name of the class implementing gov.nist.javax.sip.parser.MessageParserFactory</b>
  * This factory allows pluggable implementations of the MessageParser that will take care of parsing the incoming messages.
- * By example one could plug a lazy parser through this factory.</li>
+ * By example one could plug a lazy parser through this factory. gov.nist.javax.sip.parser.LazyStringMsgParserFactory
+ * only parses the headers needed for transaction and dialog matching on reception, the other headers are parsed
+ * on first access and written back verbatim if never accessed. It applies to the Netty transports as well.</li>
  *
  * <li><b>gov.nist.javax.sip.MESSAGE_PROCESSOR_FACTORY =  name of the class implementing gov.nist.javax.sip.parser.MessageProcessorFactory</b>
  * This factory allows pluggable implementations of the MessageProcessor that will take care of incoming messages.
@@ -508,7 +562,36 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  *
  * <li><b>gov.nist.javax.sip.TIMER_CLASS_NAME =  name of the class implementing gov.nist.javax.sip.stack.timers.SipTimer</b> interface
  * This allows pluggable implementations of the Timer that will take care of scheduling the various SIP Timers.
- * By example one could plug a regular timer, a scheduled thread pool executor.</li>
+ * By example one could plug a regular timer, a scheduled thread pool executor.
+ * gov.nist.javax.sip.stack.timers.VirtualSipTimer runs the timers on a virtual clock moved forward by
+ * the application, see also CLOCK_CLASS_NAME.</li>
+ *
+ * <li><b>gov.nist.javax.sip.CLOCK_CLASS_NAME =  name of the class implementing gov.nist.core.Clock</b>
+ * The clock the stack reads the time from, by default gov.nist.core.SystemClock. gov.nist.core.VirtualClock
+ * only moves when told to, which together with the VirtualSipTimer timer, the
+ * gov.nist.core.executor.ManualStackExecutor executor and the
+ * gov.nist.javax.sip.stack.transports.processors.memory.MemoryMessageProcessorFactory in-memory transport
+ * lets simulations run hours of traffic in seconds.</li>
+ *
+ * <li><b>gov.nist.javax.sip.STACK_EXECUTOR =  name of the class implementing gov.nist.core.executor.StackExecutor</b>
+ * The executor running the tasks of the stack, by default gov.nist.core.executor.MessageProcessorExecutor
+ * which binds each Call-ID to a worker. gov.nist.core.executor.SkewAwareStackExecutor only keeps the
+ * tasks of a Call-ID in order and spreads the busy Call-IDs over the workers.</li>
+ *
+ * <li><b>gov.nist.javax.sip.STATE_STORE_FACTORY =  name of the class implementing gov.nist.javax.sip.stack.state.StateStoreFactory</b>
+ * The factory of the tables holding the dialogs and transactions of the stack, by default
+ * gov.nist.javax.sip.stack.state.HeapStateStoreFactory. gov.nist.javax.sip.stack.state.OffHeapStateStoreFactory
+ * moves the confirmed dialogs without activity to a serialized form outside of the heap and brings them back
+ * on their next request. It reads the following properties:
+ * <ul>
+ * <li>gov.nist.javax.sip.OFF_HEAP_STATE_DIRECTORY: directory of memory mapped files holding the
+ * dialogs, so that a stack restarted on the same directory finds them again. Direct memory is used
+ * when the property is not set.</li>
+ * <li>gov.nist.javax.sip.OFF_HEAP_PASSIVATION_IDLE_TIME: seconds without activity after which a confirmed
+ * dialog is moved out of the heap, 32 by default.</li>
+ * </ul>
+ * The dialogs handed out by the stack are then new instances after each passivation, the application
+ * must not keep references to dialogs between requests and its application data must be serializable.</li>
  *
  * <li><b>gov.nist.javax.sip.DELIVER_RETRANSMITTED_ACK_TO_LISTENER=boolean</b> A testing property
  * that allows application to see the ACK for retransmitted 200 OK requests. <b>Note that this is for test
@@ -531,6 +614,10 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  * <li><b>gov.nist.javax.sip.PATCH_SIP_WEBSOCKETS_HEADERS=boolean</b>
  * A property that specify wether to patch websocket client with .invalid address
  * <ul>
+ * <li><b>gov.nist.javax.sip.WEBSOCKET_PERMESSAGE_DEFLATE=boolean</b>
+ * Accept the permessage-deflate extension (RFC 7692) offered by websocket clients. SIP messages
+ * compress well, enabling it reduces the bandwidth of websocket connections at the cost of the CPU
+ * spent compressing. No compression context is kept between messages. Default is false.</li>
  * <li><b>gov.nist.javax.sip.ALWAYS_ADD_RPORT=boolean</b>
  * A property that specify wether to putch the rport if the peer packet source port is different than the via header one
  * <ul>
@@ -557,6 +644,24 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  * was sent.
  * </li>
  *
+ * <li><b>gov.nist.javax.sip.STATELESS_REQUEST_ROUTER= String</b> Default to null. The class name of a
+ * gov.nist.javax.sip.stack.proxy.StatelessRequestRouter making the stack a stateless proxy. The router is called for every request
+ * after the valves, right after the request is framed, and decides to forward it to a hop, to reply statelessly, to drop it or to let
+ * the transaction layer process it. The requests forwarded and the responses to them, recognized by their Via branch, go through no
+ * transaction, no dialog and no SipListener. The router can also be set with SipStackImpl.setStatelessRequestRouter().
+ * </li>
+ *
+ * <li><b>gov.nist.javax.sip.MESSAGE_TRACE_SINK = String</b> Default to null. The class name of a
+ * gov.nist.javax.sip.stack.trace.MessageTraceSink, gov.nist.javax.sip.stack.trace.LoggingMessageTraceSink logging them, receiving
+ * the traces of the messages sampled among those received. A trace holds the nanosecond the message was received, framed, parsed,
+ * queued to the executor, taken by a thread, matched to its transaction, delivered to the SipListener and the time the response to it
+ * was written, and is reported once the message is processed. The sink can also be set with SipStackImpl.setMessageTraceSink().
+ * </li>
+ *
+ * <li><b>gov.nist.javax.sip.MESSAGE_TRACE_SAMPLE_RATE = integer</b> Default to 1000. One message received out of this number
+ * is traced when a MESSAGE_TRACE_SINK is set, 1 to trace them all.
+ * </li>
+ *
  * <li><b>gov.nist.javax.sip.SIP_EVENT_INTERCEPTOR</b> Default to null. The class name of your custom interceptor object.
  * An instance of this object will be created at initialization of the stack. You must implement the interface
  * gov.nist.javax.sip.stack.SIPEventInterceptor and handle the lifecycle callbacks. This interface is the solution for
@@ -597,9 +702,45 @@ import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
  *<li><b>gov.nist.javax.sip.RELIABLE_CONNECTION_KEEP_ALIVE_TIMEOUT</b> Value in seconds which is used as default keepalive timeout
  * (See also http://tools.ietf.org/html/rfc5626#section-4.4.1). Defaults to "infiinity" seconds (i.e. timeout event not delivered).</li>
  *
+ *<li><b>gov.nist.javax.sip.RELIABLE_CONNECTION_POOL_SIZE = integer</b> Number of TCP or TLS connections opened to each destination
+ * by the Netty message processors, defaults to 1. The messages of a call are sent over the same connection as long as the call sends
+ * within 32 seconds of its previous message, new calls are given the connection carrying the fewest calls. The traffic of each
+ * connection is available from NettyStreamMessageProcessor.getConnectionStatistics().</li>
+ *
  * <li><b>gov.nist.javax.sip.SSL_HANDSHAKE_TIMEOUT</b> Value in seconds which is used as default timeout for performing the SSL Handshake
  * This prevents bad clients of connecting without sending any data to block the server</li>
  *
+ * <li><b>gov.nist.javax.sip.TLS_HANDSHAKE_THREADS = integer</b> Number of threads running the delegated
+ * tasks of the TLS handshakes of the NIO transports, the certificate and key exchange computations,
+ * instead of the selector thread shared by all the sockets. 0 runs them on the selector thread.
+ * The default is the number of processors.</li>
+ *
+ * <li><b>gov.nist.javax.sip.TLS_HANDSHAKE_QUEUE_SIZE = integer</b> Number of handshakes which may wait
+ * for a thread of the handshake pool, the next ones run on the selector thread. The default is 1024.</li>
+ *
+ * <li><b>gov.nist.javax.sip.TLS_SESSION_CACHE_SIZE = integer</b> Number of TLS sessions the NIO transports
+ * cache for resumption, 0 for no limit. Outbound connections are keyed by peer address and port so that a
+ * reconnection to a peer resumes its last session. Session tickets are enabled by the JDK properties
+ * jdk.tls.client.enableSessionTicketExtension and jdk.tls.server.enableSessionTicketExtension.
+ * The default is the JDK one.</li>
+ *
+ * <li><b>gov.nist.javax.sip.TLS_SESSION_TIMEOUT = integer</b> Time in seconds a cached TLS session may be
+ * resumed, 0 for no limit. The default is the JDK one.</li>
+ *
+ * <li><b>gov.nist.javax.sip.SOURCE_RATE_LIMIT = integer</b> Number of messages per second each source
+ * address may send, checked by the transports before parsing the messages. The messages over the limit are
+ * dropped, and a stream connection whose source goes over it is closed when its messages cannot be framed
+ * without parsing them. The default is 0, no limit.</li>
+ *
+ * <li><b>gov.nist.javax.sip.SOURCE_RATE_BURST = integer</b> Number of messages a source may send at once
+ * above its rate. The default is the rate.</li>
+ *
+ * <li><b>gov.nist.javax.sip.SOURCE_RATE_TABLE_SIZE = integer</b> Number of sources whose rate is tracked,
+ * the idle ones being forgotten for the new ones. The default is 65536.</li>
+ *
+ * <li><b>gov.nist.javax.sip.SOURCE_RATE_ALLOW_LIST = string</b> Comma separated addresses and networks,
+ * written as address/prefix, whose messages are never limited, by example the trusted proxies.</li>
+ *
  * <li><b>gov.nist.javax.sip.SSL_RENEGOTIATION_ENABLED = [true|false]</b> Default value is <b>true</b>. Allow or disallow SSL renegotiation to resolve potential DoS problem -
  * <a href="http://web.nvd.nist.gov/view/vuln/detail?vulnId=CVE-2011-1473">reference</a> and <a href="http://www.ietf.org/mail-archive/web/tls/current/msg07553.html">another reference</a>. The safe option is to disable it.</li>
  *
@@ -654,6 +795,8 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 	// Use this flag with caution.
 	private boolean reEntrantListener;
 
+	private boolean virtualThreadListenerDispatch;
+
 	SipListener sipListener;
 	TlsSecurityPolicy tlsSecurityPolicy;
 	
@@ -835,13 +978,39 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 
 		super.setReliableConnectionKeepAliveTimeout(1000 * Integer.parseInt(
 			        configurationProperties.getProperty("gov.nist.javax.sip.RELIABLE_CONNECTION_KEEP_ALIVE_TIMEOUT", "-1")));
+		super.setReliableConnectionPoolSize(Integer.parseInt(
+			        configurationProperties.getProperty("gov.nist.javax.sip.RELIABLE_CONNECTION_POOL_SIZE", "1")));
 
 		// http://java.net/jira/browse/JSIP-415 Prevent Bad Client or Attacker (DoS) to block the TLSMessageProcessor or TLSMessageChannel
 		super.setSslHandshakeTimeout(Long.parseLong(
 		        configurationProperties.getProperty("gov.nist.javax.sip.SSL_HANDSHAKE_TIMEOUT", "-1")));
+		super.setTlsHandshakeThreads(Integer.parseInt(
+		        configurationProperties.getProperty("gov.nist.javax.sip.TLS_HANDSHAKE_THREADS",
+		                "" + Runtime.getRuntime().availableProcessors())));
+		super.setTlsHandshakeQueueSize(Integer.parseInt(
+		        configurationProperties.getProperty("gov.nist.javax.sip.TLS_HANDSHAKE_QUEUE_SIZE", "1024")));
+		super.setTlsSessionCacheSize(Integer.parseInt(
+		        configurationProperties.getProperty("gov.nist.javax.sip.TLS_SESSION_CACHE_SIZE", "-1")));
+		super.setTlsSessionTimeout(Integer.parseInt(
+		        configurationProperties.getProperty("gov.nist.javax.sip.TLS_SESSION_TIMEOUT", "-1")));
 		super.setThreadPriority(Integer.parseInt(
 			        configurationProperties.getProperty("gov.nist.javax.sip.THREAD_PRIORITY","" + Thread.MAX_PRIORITY)));
 
+		int sourceRateLimit = Integer.parseInt(
+		        configurationProperties.getProperty("gov.nist.javax.sip.SOURCE_RATE_LIMIT", "0"));
+		if (sourceRateLimit > 0) {
+			try {
+				super.setSourceRateLimiter(new SourceRateLimiter(this, sourceRateLimit,
+				        Integer.parseInt(configurationProperties.getProperty(
+				                "gov.nist.javax.sip.SOURCE_RATE_BURST", "" + sourceRateLimit)),
+				        Integer.parseInt(configurationProperties.getProperty(
+				                "gov.nist.javax.sip.SOURCE_RATE_TABLE_SIZE", "65536")),
+				        configurationProperties.getProperty("gov.nist.javax.sip.SOURCE_RATE_ALLOW_LIST")));
+			} catch (IllegalArgumentException ex) {
+				throw new PeerUnavailableException("bad source rate limit configuration", ex);
+			}
+		}
+
 		// Default router -- use this for routing SIP URIs.
 		// Our router does not do DNS lookups.
 		this.outboundProxy = configurationProperties
@@ -1301,6 +1470,9 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 				.getProperty("gov.nist.javax.sip.REENTRANT_LISTENER");
 		this.reEntrantListener = (rel != null && "true".equalsIgnoreCase(rel));
 
+		this.virtualThreadListenerDispatch = Boolean.parseBoolean(configurationProperties.getProperty(
+				"gov.nist.javax.sip.VIRTUAL_THREAD_LISTENER_DISPATCH", "false"));
+
 		// Check if a thread audit interval is specified
 		String interval = configurationProperties
 				.getProperty("gov.nist.javax.sip.THREAD_AUDIT_INTERVAL_IN_MILLISECS");
@@ -1414,6 +1586,9 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 		super.setPatchWebSocketHeaders(Boolean.parseBoolean(configurationProperties.getProperty(
 				"gov.nist.javax.sip.PATCH_SIP_WEBSOCKETS_HEADERS", "true")));
 
+		super.setWebSocketPerMessageDeflate(Boolean.parseBoolean(configurationProperties.getProperty(
+				"gov.nist.javax.sip.WEBSOCKET_PERMESSAGE_DEFLATE", "false")));
+
 		super.setPatchRport(Boolean.parseBoolean(configurationProperties.getProperty(
 				"gov.nist.javax.sip.ALWAYS_ADD_RPORT", "false")));
 
@@ -1457,6 +1632,10 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 						.toString());
 		bufferSizeInteger = new Integer(bufferSize).intValue();
 		super.setSendUdpBufferSize(bufferSizeInteger);
+		super.setUdpBatchSize(Integer.parseInt(configurationProperties.getProperty(
+				"gov.nist.javax.sip.UDP_BATCH_SIZE", "1")));
+		super.setNodeId(configurationProperties.getProperty(
+				"gov.nist.javax.sip.NODE_ID"));
 
 		String tcpReceiveBufferSize = configurationProperties.getProperty(
 				"gov.nist.javax.sip.TCP_RECEIVE_BUFFER_SIZE", null);
@@ -1528,7 +1707,7 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 						"Bad configuration value for gov.nist.javax.sip.NIO_MAX_SOCKET_IDLE_TIME=" + maxIdleTimeString, e);
 		}
 
-		String nioMode = configurationProperties.getProperty("gov.nist.javax.sip.NIO_BLOCKING_MODE", "BLOCKING");
+		String nioMode = configurationProperties.getProperty("gov.nist.javax.sip.NIO_BLOCKING_MODE", "NONBLOCKING");
 		try {
 			super.nioMode = NIOMode.valueOf(nioMode);
 		} catch (Exception e) {
@@ -1537,6 +1716,17 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 						"Bad configuration value for gov.nist.javax.sip.NIO_BLOCKING_MODE=" + nioMode, e);
 		}
 		
+		String clockName = configurationProperties.getProperty("gov.nist.javax.sip.CLOCK_CLASS_NAME");
+		if (clockName != null) {
+			try {
+				setClock((Clock) Class.forName(clockName).getDeclaredConstructor().newInstance());
+			} catch (Exception e) {
+				logger
+					.logError(
+							"Bad configuration value for gov.nist.javax.sip.CLOCK_CLASS_NAME", e);
+			}
+		}
+
 		String defaultTimerName = configurationProperties.getProperty("gov.nist.javax.sip.TIMER_CLASS_NAME",MobiusSipTimer.class.getName());
 		try {
 			setTimer((SipTimer)Class.forName(defaultTimerName).newInstance());			
@@ -1550,6 +1740,17 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 				.logError(
 						"Bad configuration value for gov.nist.javax.sip.TIMER_CLASS_NAME", e);
 		}
+
+		String stateStoreFactoryName = configurationProperties.getProperty("gov.nist.javax.sip.STATE_STORE_FACTORY");
+		if (stateStoreFactoryName != null) {
+			try {
+				createStateStores((StateStoreFactory) Class.forName(stateStoreFactoryName).getDeclaredConstructor().newInstance());
+			} catch (Exception e) {
+				logger
+					.logError(
+							"Bad configuration value for gov.nist.javax.sip.STATE_STORE_FACTORY", e);
+			}
+		}
 		boolean aggressiveCleanup = Boolean.parseBoolean(configurationProperties
 				.getProperty("gov.nist.javax.sip.AGGRESSIVE_CLEANUP",
 						Boolean.FALSE.toString()));
@@ -1589,6 +1790,30 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 			}
 		}
 
+		String routerClassName = configurationProperties.getProperty("gov.nist.javax.sip.STATELESS_REQUEST_ROUTER", null);
+		if(routerClassName != null && !routerClassName.equals("")) {
+			try {
+				super.setStatelessRequestRouter(
+						(StatelessRequestRouter) Class.forName(routerClassName).getDeclaredConstructor().newInstance());
+			} catch (Exception e) {
+				logger.logError(
+						"Bad configuration value for gov.nist.javax.sip.STATELESS_REQUEST_ROUTER", e);
+			}
+		}
+
+		String traceSinkClassName = configurationProperties.getProperty("gov.nist.javax.sip.MESSAGE_TRACE_SINK", null);
+		if(traceSinkClassName != null && !traceSinkClassName.equals("")) {
+			try {
+				super.setMessageTraceSink(
+						(MessageTraceSink) Class.forName(traceSinkClassName).getDeclaredConstructor().newInstance(),
+						Integer.parseInt(configurationProperties.getProperty(
+								"gov.nist.javax.sip.MESSAGE_TRACE_SAMPLE_RATE", "1000")));
+			} catch (Exception e) {
+				logger.logError(
+						"Bad configuration value for gov.nist.javax.sip.MESSAGE_TRACE_SINK", e);
+			}
+		}
+
 		String interceptorClassName = configurationProperties.getProperty("gov.nist.javax.sip.SIP_EVENT_INTERCEPTOR", null);
 		if(interceptorClassName != null && !interceptorClassName.equals("")) {
 			try {
@@ -2109,6 +2334,13 @@ public class SipStackImpl extends SIPTransactionStack implements SipStackExt {
 		return reEntrantListener;
 	}
 
+	/**
+	 * @return true if the listener is called from virtual threads.
+	 */
+	public boolean isVirtualThreadListenerDispatch() {
+		return virtualThreadListenerDispatch;
+	}
+
 	@Override
 	public StackTimer getStackTimer() {
 		return this.timer;
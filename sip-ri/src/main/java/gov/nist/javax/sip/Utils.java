@@ -24,7 +24,6 @@ package gov.nist.javax.sip;
 import java.security.MessageDigest;
 import java.util.HashSet;
 import java.util.Locale;
-import java.util.UUID;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -53,6 +52,8 @@ public class Utils implements UtilsExt {
 
     private static String signature;
 
+    private static String branchPrefix;
+
     private static Utils instance = new Utils();
 
 
@@ -71,6 +72,7 @@ public class Utils implements UtilsExt {
         }
         // rand = new java.util.Random(System.nanoTime());
         signature = toHexString(Integer.toString(Math.abs(new java.util.Random(System.nanoTime()).nextInt() % 1000 )).getBytes());
+        branchPrefix = SIPConstants.BRANCH_MAGIC_COOKIE + "-" + signature + "-";
     }
 
 
@@ -158,10 +160,8 @@ public class Utils implements UtilsExt {
     	// 	String cidString = Utils.toHexString(cid);
     	// 	return cidString + "@" + address;
     	// }
-        // Generate a random unique number
-        UUID uniqueNumber = UUID.randomUUID();
-        String uniqueNumberString = uniqueNumber.toString();
-        return uniqueNumberString + "@" + address;
+        // Generate a random unique number, carrying the executor lane
+        return IdGenerator.generateCallIdentifier(null, address);
     }
 
     /**
@@ -175,7 +175,7 @@ public class Utils implements UtilsExt {
      * twice
      */
     public String generateTag() {
-            return 	UUID.randomUUID().toString();
+            return IdGenerator.generateTag();
             // return Integer.toHexString(rand.nextInt());
 
     }
@@ -195,8 +195,7 @@ public class Utils implements UtilsExt {
     	// synchronized(digester) {
     		// byte bid[] = digester.digest(Long.toString(num).getBytes());
     		// prepend with a magic cookie to indicate we are bis09 compatible.
-    		return SIPConstants.BRANCH_MAGIC_COOKIE + "-"  
-    		    + signature + "-" + UUID.randomUUID().toString();
+    		return IdGenerator.generateBranchId(branchPrefix);
     	// }
     }
 
@@ -0,0 +1,46 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads. This implementation is the one of the runtimes that don't
+ * have them, the multi-release jar carries the Java 21 one under META-INF/versions/21.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads.
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * @param name prefix of the name of the threads
+     * @return an executor starting a virtual thread per task.
+     */
+    static ExecutorService newExecutor(String name) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+}
@@ -32,6 +32,7 @@ import java.util.regex.Pattern;
 import javax.sip.address.SipURI;
 import javax.sip.address.TelURL;
 
+import gov.nist.core.StacklessParseException;
 import gov.nist.javax.sip.parser.StringMsgParser;
 import gov.nist.javax.sip.parser.URLParser;
 
@@ -123,7 +124,11 @@ public class AddressFactoryImpl implements AddressFactoryEx {
             addressImpl.setURI( uri );
             return addressImpl;
         } else {
-            return StringMsgParser.parseAddress(address);
+            try {
+                return StringMsgParser.parseAddress(address);
+            } catch (ParseException ex) {
+                throw StacklessParseException.withStackTrace(ex);
+            }
         }
     }
 
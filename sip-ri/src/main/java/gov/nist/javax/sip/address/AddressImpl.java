@@ -343,4 +343,27 @@ public final class AddressImpl
         return retval;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        AddressImpl that = (AddressImpl) other;
+        return this.addressType == that.addressType
+                && equalField(this.displayName, that.displayName)
+                && equalField(this.address, that.address)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        AddressImpl that = (AddressImpl) other;
+        return this.addressType == that.addressType
+                && matchField(this.displayName, that.displayName)
+                && matchField(this.address, that.address)
+                && super.matchFields(other);
+    }
 }
@@ -233,4 +233,26 @@ public class Authority extends NetObject {
         if ( this.hostPort == null ) throw new UnsupportedOperationException("Null hostPort cannot compute hashcode");
         return this.hostPort.encode().hashCode();
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Authority that = (Authority) other;
+        return equalField(this.hostPort, that.hostPort)
+                && equalField(this.userInfo, that.userInfo)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Authority that = (Authority) other;
+        return matchField(this.hostPort, that.hostPort)
+                && matchField(this.userInfo, that.userInfo)
+                && super.matchFields(other);
+    }
 }
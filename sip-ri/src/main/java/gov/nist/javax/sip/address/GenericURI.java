@@ -131,4 +131,26 @@ public class GenericURI extends NetObject implements javax.sip.address.URI {
     public int hashCode() {
         return this.toString().hashCode();
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        GenericURI that = (GenericURI) other;
+        return equalField(this.uriString, that.uriString)
+                && equalField(this.scheme, that.scheme)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        GenericURI that = (GenericURI) other;
+        return matchField(this.uriString, that.uriString)
+                && matchField(this.scheme, that.scheme)
+                && super.matchFields(other);
+    }
 }
@@ -76,6 +76,17 @@ public abstract class NetObject extends GenericObject {
         super();
     }
 
+    /**
+     * Match of a non primitive field, only empty strings of the template
+     * match anything for URIs and addresses.
+     */
+    protected static boolean matchField(Object myObj, Object hisObj) {
+        if (hisObj instanceof String && myObj instanceof String && !((String) hisObj).equals("")) {
+            return ((String) myObj).compareToIgnoreCase((String) hisObj) == 0;
+        }
+        return GenericObject.matchField(myObj, hisObj);
+    }
+
     /**
      * An introspection based equality predicate for SIPObjects.
      *@param that is the other object to test against.
@@ -83,6 +94,8 @@ public abstract class NetObject extends GenericObject {
     public boolean equals(Object that) {
         if (!this.getClass().equals(that.getClass()))
             return false;
+        if (hasFieldComparison(this.getClass()))
+            return equalFields(that);
         Class<?> myclass = this.getClass();
         Class<?> hisclass = that.getClass();
         while (true) {
@@ -169,6 +182,8 @@ public abstract class NetObject extends GenericObject {
             return true;
         if (!this.getClass().equals(other.getClass()))
             return false;
+        if (hasFieldComparison(this.getClass()))
+            return matchFields(other);
         GenericObject that = (GenericObject) other;
         // System.out.println("Comparing " + that.encode());
         // System.out.println("this = " + this.encode());
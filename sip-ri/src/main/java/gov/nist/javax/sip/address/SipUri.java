@@ -1079,4 +1079,29 @@ public class SipUri extends GenericURI implements SipURIExt{
      *remove the +sip-instance value from the parameter list if it exists.
      */
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        SipUri that = (SipUri) other;
+        return equalField(this.authority, that.authority)
+                && equalField(this.uriParms, that.uriParms)
+                && equalField(this.qheaders, that.qheaders)
+                && equalField(this.telephoneSubscriber, that.telephoneSubscriber)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        SipUri that = (SipUri) other;
+        return matchField(this.authority, that.authority)
+                && matchField(this.uriParms, that.uriParms)
+                && matchField(this.qheaders, that.qheaders)
+                && matchField(this.telephoneSubscriber, that.telephoneSubscriber)
+                && super.matchFields(other);
+    }
 }
@@ -219,4 +219,24 @@ public class TelURLImpl
 
         return this.getParameter("phone-context");
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        TelURLImpl that = (TelURLImpl) other;
+        return equalField(this.telephoneNumber, that.telephoneNumber)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        TelURLImpl that = (TelURLImpl) other;
+        return matchField(this.telephoneNumber, that.telephoneNumber)
+                && super.matchFields(other);
+    }
 }
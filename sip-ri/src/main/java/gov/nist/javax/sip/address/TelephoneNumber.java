@@ -249,4 +249,28 @@ public class TelephoneNumber extends NetObject {
     public NameValueList getParameters() {
         return this.parameters;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        TelephoneNumber that = (TelephoneNumber) other;
+        return this.isglobal == that.isglobal
+                && equalField(this.phoneNumber, that.phoneNumber)
+                && equalField(this.parameters, that.parameters)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        TelephoneNumber that = (TelephoneNumber) other;
+        return this.isglobal == that.isglobal
+                && matchField(this.phoneNumber, that.phoneNumber)
+                && matchField(this.parameters, that.parameters)
+                && super.matchFields(other);
+    }
 }
@@ -181,4 +181,28 @@ public final class UserInfo extends NetObject {
         }
         userType = type;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        UserInfo that = (UserInfo) other;
+        return equalField(this.user, that.user)
+                && equalField(this.password, that.password)
+                && this.userType == that.userType
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        UserInfo that = (UserInfo) other;
+        return matchField(this.user, that.user)
+                && matchField(this.password, that.password)
+                && this.userType == that.userType
+                && super.matchFields(other);
+    }
 }
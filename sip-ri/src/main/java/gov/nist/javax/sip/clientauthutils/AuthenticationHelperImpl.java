@@ -93,7 +93,7 @@ public class AuthenticationHelperImpl implements AuthenticationHelper {
         this.accountManager = accountManager;
         this.headerFactory = headerFactory;
 
-        this.cachedCredentials = new CredentialsCache(((SIPTransactionStack) sipStack).getTimer());
+        this.cachedCredentials = new CredentialsCache();
     }
     
     /**
@@ -109,7 +109,7 @@ public class AuthenticationHelperImpl implements AuthenticationHelper {
         this.accountManager = accountManager;
         this.headerFactory = headerFactory;
 
-        this.cachedCredentials = new CredentialsCache(((SIPTransactionStack) sipStack).getTimer());
+        this.cachedCredentials = new CredentialsCache();
     }
     
 
@@ -228,6 +228,13 @@ public class AuthenticationHelperImpl implements AuthenticationHelper {
             WWWAuthenticateHeader authHeader = null;
             while (authHeaders.hasNext()) {
                 authHeader = (WWWAuthenticateHeader) authHeaders.next();
+                if (!MessageDigestAlgorithm.isSupported(authHeader.getAlgorithm())) {
+                    // rfc 7616 servers may offer one challenge per algorithm
+                    if ( logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                        logger.logDebug("Skipping challenge with unsupported algorithm " + authHeader.getAlgorithm());
+                    }
+                    continue;
+                }
                 String realm = authHeader.getRealm();
                 AuthorizationHeader authorization = null;
                 if ( this.accountManager instanceof SecureAccountManager ) {
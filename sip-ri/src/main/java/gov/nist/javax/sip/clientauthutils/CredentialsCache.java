@@ -1,65 +1,54 @@
 package gov.nist.javax.sip.clientauthutils;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sip.header.AuthorizationHeader;
 
-import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
-import gov.nist.javax.sip.stack.timers.SipTimer;
-
 /**
  * A cache of authorization headers to be used for subsequent processing when we
  * set up calls. We cache credentials on a per proxy domain per user basis.
  *
+ * The cache is bounded and entries expire lazily: an expired entry is dropped
+ * when it is looked up or when the cache is full, so no timer task is needed
+ * per cached entry.
  */
 
 class CredentialsCache {
 
+    /**
+     * Default maximum number of calls for which credentials are cached.
+     */
+    static final int DEFAULT_MAX_ENTRIES = 10000;
 
     /**
-     * The key for this map is the proxy domain name. A given proxy authorizes a
-     * user for a number of domains. The Hashtable value of the mapping is a
-     * mapping of user names to AuthorizationHeader list for that proxy domain.
+     * The key for this map is the call id. The value holds the authorization
+     * headers of the call, one per realm, and the time they expire at.
      */
-    private ConcurrentHashMap<String, List<AuthorizationHeader>> authorizationHeaders =
-            new ConcurrentHashMap<String, List<AuthorizationHeader>>();
-    private SipTimer timer;
-
-    class TimeoutTask extends SIPStackTimerTask {
-        private String callId;
-        private String userName;
-        
-
-        public TimeoutTask(String userName, String callId) {
-        	super(TimeoutTask.class.getSimpleName());
-            this.callId = callId;
-            this.userName = userName;
-        }
+    private ConcurrentHashMap<String, CachedCredentials> authorizationHeaders =
+            new ConcurrentHashMap<String, CachedCredentials>();
 
-        public String getCallId() {
-            return callId;
-        }
+    private final int maxEntries;
+
+    static class CachedCredentials {
+        private final List<AuthorizationHeader> headers = new ArrayList<AuthorizationHeader>(2);
+        private volatile long expiryTime = Long.MAX_VALUE;
 
-        public String getUserName() {
-            return userName;
+        boolean isExpired(long now) {
+            return now >= expiryTime;
         }
-        
-        @Override
-        public String getId() {
-            return callId;
-        }         
-
-        public void runTask() {
-            authorizationHeaders.remove(callId);
-        }        
     }
 
-    CredentialsCache (SipTimer timer) {
-        this.timer = timer;
+    CredentialsCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    CredentialsCache(int maxEntries) {
+        this.maxEntries = maxEntries;
     }
 
     /**
@@ -70,33 +59,37 @@ class CredentialsCache {
      *            belongs to.
      * @param authorization
      *            the authorization header that we'd like to cache.
+     * @param cacheTime
+     *            how long the headers of the call are kept in seconds, -1 to
+     *            keep them until they are removed or evicted.
      */
     void cacheAuthorizationHeader(String callId,
             AuthorizationHeader authorization, int cacheTime) {
-        String user = authorization.getUsername();
         if ( callId == null) throw new NullPointerException("Call ID is null!");
-        
-        List<AuthorizationHeader> authHeaders = authorizationHeaders.get(callId);
-        if (authHeaders == null) {
-            authHeaders = new LinkedList<AuthorizationHeader>();
-            authorizationHeaders.put(callId, authHeaders);
-        } else {
+
+        CachedCredentials credentials = authorizationHeaders.get(callId);
+        if (credentials == null) {
+            if (authorizationHeaders.size() >= maxEntries) {
+                evict();
+            }
+            credentials = new CachedCredentials();
+            CachedCredentials existing = authorizationHeaders.putIfAbsent(callId, credentials);
+            if (existing != null) {
+                credentials = existing;
+            }
+        }
+
+        synchronized (credentials) {
             String realm = authorization.getRealm();
-            for (ListIterator<AuthorizationHeader> li = authHeaders.listIterator(); li.hasNext();) {
-                AuthorizationHeader authHeader = (AuthorizationHeader) li.next();
-                if ( realm.equals(authHeader.getRealm()) ) {
-                    li.remove();
+            for (Iterator<AuthorizationHeader> it = credentials.headers.iterator(); it.hasNext();) {
+                if (realm.equals(it.next().getRealm())) {
+                    it.remove();
                 }
             }
+            credentials.headers.add(authorization);
+            credentials.expiryTime = cacheTime == -1 ? Long.MAX_VALUE
+                    : System.currentTimeMillis() + cacheTime * 1000L;
         }
-
-        authHeaders.add(authorization);
-
-        TimeoutTask timeoutTask  = new TimeoutTask( callId,user);
-        if ( cacheTime != -1)
-            this.timer.schedule(timeoutTask, cacheTime*1000);
-
-
     }
 
     /**
@@ -114,8 +107,16 @@ class CredentialsCache {
             String callid) {
         if (callid == null)
             throw new NullPointerException("Null arg!");
-        return this.authorizationHeaders.get(callid);
-
+        CachedCredentials credentials = this.authorizationHeaders.get(callid);
+        if (credentials == null)
+            return null;
+        if (credentials.isExpired(System.currentTimeMillis())) {
+            this.authorizationHeaders.remove(callid, credentials);
+            return null;
+        }
+        synchronized (credentials) {
+            return new ArrayList<AuthorizationHeader>(credentials.headers);
+        }
     }
 
     /**
@@ -128,4 +129,32 @@ class CredentialsCache {
 
     }
 
+    /**
+     * @return the number of calls credentials are cached for, expired ones
+     *         included until they are dropped.
+     */
+    int size() {
+        return authorizationHeaders.size();
+    }
+
+    /**
+     * Make room in a full cache: drop the expired entries and, if that is not
+     * enough, the entries closest to expiring until a tenth of the cache is
+     * free.
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        authorizationHeaders.values().removeIf(credentials -> credentials.isExpired(now));
+        int excess = authorizationHeaders.size() - (maxEntries - Math.max(1, maxEntries / 10));
+        if (excess <= 0)
+            return;
+        List<Map.Entry<String, CachedCredentials>> entries =
+                new ArrayList<Map.Entry<String, CachedCredentials>>(authorizationHeaders.entrySet());
+        entries.sort((first, second) -> Long.compare(first.getValue().expiryTime, second.getValue().expiryTime));
+        for (int i = 0; i < excess && i < entries.size(); i++) {
+            Map.Entry<String, CachedCredentials> entry = entries.get(i);
+            authorizationHeaders.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
 }
@@ -28,7 +28,7 @@ package gov.nist.javax.sip.clientauthutils;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import gov.nist.core.InternalErrorHandler;
 import javax.sip.address.URI;
@@ -46,8 +46,6 @@ import javax.sip.message.Response;
 
 public class DigestServerAuthenticationHelper  {
     
-    private MessageDigest messageDigest;
-    
     public static final String DEFAULT_ALGORITHM = "MD5";
     public static final String DEFAULT_SCHEME = "Digest";
     
@@ -64,7 +62,9 @@ public class DigestServerAuthenticationHelper  {
      */
     public DigestServerAuthenticationHelper() 
         throws NoSuchAlgorithmException {
-            messageDigest = MessageDigest.getInstance(DEFAULT_ALGORITHM);
+            // fail early if the algorithm is not available, the digests used
+            // are per thread as the helper may be shared by several threads
+            MessageDigest.getInstance(DEFAULT_ALGORITHM);
     }
 
     public static String toHexString(byte b[]) {
@@ -86,11 +86,10 @@ public class DigestServerAuthenticationHelper  {
         // Get the time of day and run MD5 over it.
         Date date = new Date();
         long time = date.getTime();
-        Random rand = new Random();
-        long pad = rand.nextLong();
+        long pad = ThreadLocalRandom.current().nextLong();
         String nonceString = (new Long(time)).toString()
                 + (new Long(pad)).toString();
-        byte mdbytes[] = messageDigest.digest(nonceString.getBytes());
+        byte mdbytes[] = MessageDigestAlgorithm.getMessageDigest(DEFAULT_ALGORITHM).digest(nonceString.getBytes());
         // Convert the mdbytes array into a hex string.
         return toHexString(mdbytes);
     }
@@ -140,7 +139,7 @@ public class DigestServerAuthenticationHelper  {
         String HA1 = hashedPassword;
 
        
-        byte[] mdbytes = messageDigest.digest(A2.getBytes());
+        byte[] mdbytes = MessageDigestAlgorithm.getMessageDigest(DEFAULT_ALGORITHM).digest(A2.getBytes());
         String HA2 = toHexString(mdbytes);
       
         String cnonce = authHeader.getCNonce();
@@ -149,7 +148,7 @@ public class DigestServerAuthenticationHelper  {
             KD += ":" + cnonce;
         }
         KD += ":" + HA2;
-        mdbytes = messageDigest.digest(KD.getBytes());
+        mdbytes = MessageDigestAlgorithm.getMessageDigest(DEFAULT_ALGORITHM).digest(KD.getBytes());
         String mdString = toHexString(mdbytes);
         String response = authHeader.getResponse();
        
@@ -187,11 +186,11 @@ public class DigestServerAuthenticationHelper  {
 
         String A1 = username + ":" + realm + ":" + pass;
         String A2 = request.getMethod().toUpperCase() + ":" + uri.toString();
-        byte mdbytes[] = messageDigest.digest(A1.getBytes());
+        byte mdbytes[] = MessageDigestAlgorithm.getMessageDigest(DEFAULT_ALGORITHM).digest(A1.getBytes());
         String HA1 = toHexString(mdbytes);
 
        
-        mdbytes = messageDigest.digest(A2.getBytes());
+        mdbytes = MessageDigestAlgorithm.getMessageDigest(DEFAULT_ALGORITHM).digest(A2.getBytes());
         String HA2 = toHexString(mdbytes);
       
         String cnonce = authHeader.getCNonce();
@@ -200,7 +199,7 @@ public class DigestServerAuthenticationHelper  {
             KD += ":" + cnonce;
         }
         KD += ":" + HA2;
-        mdbytes = messageDigest.digest(KD.getBytes());
+        mdbytes = MessageDigestAlgorithm.getMessageDigest(DEFAULT_ALGORITHM).digest(KD.getBytes());
         String mdString = toHexString(mdbytes);
         String response = authHeader.getResponse();
         return mdString.equals(response);
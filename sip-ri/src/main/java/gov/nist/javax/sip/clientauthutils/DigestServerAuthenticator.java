@@ -0,0 +1,339 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.clientauthutils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.util.Base64;
+import java.util.ListIterator;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.sip.header.AuthorizationHeader;
+import javax.sip.header.HeaderFactory;
+import javax.sip.header.ProxyAuthorizationHeader;
+import javax.sip.header.WWWAuthenticateHeader;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.StackLogger;
+
+/**
+ * Server side digest authentication (rfc 2617 / rfc 7616) meant to be shared
+ * by all the threads of a registrar or proxy.
+ *
+ * Nonces are stateless: they carry their creation time signed with an HMAC
+ * of a server secret, so they can be checked without keeping any state per
+ * challenge. The authenticator works from the HA1 of the user
+ * (H(username:realm:password)) so the passwords do not have to be stored,
+ * see {@link #computeHA1(String, String, String, String)}. The hashes are
+ * computed with a message digest per thread.
+ *
+ * Nonce counts are not tracked, a response can be replayed for as long as
+ * its nonce is valid, keep the nonce lifetime short accordingly.
+ */
+public class DigestServerAuthenticator {
+    private static StackLogger logger = CommonLogger.getLogger(DigestServerAuthenticator.class);
+
+    public static final String DEFAULT_SCHEME = "Digest";
+    public static final String MD5 = "MD5";
+    public static final String SHA_256 = "SHA-256";
+
+    /**
+     * Default lifetime of a nonce in milliseconds.
+     */
+    public static final long DEFAULT_NONCE_LIFETIME = 5 * 60 * 1000;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int TIMESTAMP_LENGTH = 8;
+    private static final int SIGNATURE_LENGTH = 16;
+
+    /**
+     * Outcome of the authentication of a request.
+     */
+    public enum Result {
+        /** the request carries valid credentials */
+        AUTHENTICATED,
+        /** there are no credentials for the realm, challenge the request */
+        NO_CREDENTIALS,
+        /** the credentials are valid but the nonce expired, challenge with stale=true */
+        STALE_NONCE,
+        /** the credentials are wrong or the nonce was not issued by us */
+        FAILED
+    }
+
+    /**
+     * Gives the HA1 of a user, H(username:realm:password) with the hash of the
+     * given algorithm.
+     */
+    public interface HA1Provider {
+        /**
+         * @return the HA1 of the user or null if the user is unknown.
+         */
+        String getHA1(String username, String realm, String algorithm);
+    }
+
+    private final String realm;
+    private final long nonceLifetime;
+    private final ThreadLocal<Mac> macs;
+    private String[] algorithms = { MD5 };
+
+    /**
+     * Create an authenticator with a random secret, nonces are then only valid
+     * for this instance.
+     */
+    public DigestServerAuthenticator(String realm) {
+        this(realm, generateSecret(), DEFAULT_NONCE_LIFETIME);
+    }
+
+    /**
+     * Create an authenticator. Use the same secret on all the nodes of a
+     * cluster for nonces to be accepted by any of them.
+     *
+     * @param realm the realm of the challenges.
+     * @param secret the key nonces are signed with.
+     * @param nonceLifetime how long a nonce is accepted for in milliseconds.
+     */
+    public DigestServerAuthenticator(String realm, byte[] secret, long nonceLifetime) {
+        if (realm == null || secret == null || secret.length == 0)
+            throw new IllegalArgumentException("realm and secret are mandatory");
+        this.realm = realm;
+        this.nonceLifetime = nonceLifetime;
+        final SecretKeySpec key = new SecretKeySpec(secret.clone(), HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Failed to instantiate " + HMAC_ALGORITHM, ex);
+            }
+        });
+    }
+
+    private static byte[] generateSecret() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    public String getRealm() {
+        return realm;
+    }
+
+    /**
+     * Set the algorithms offered in challenges, one challenge is added per
+     * algorithm in order of preference (rfc 7616 section 3.7), MD5 only by
+     * default.
+     */
+    public void setAlgorithms(String... algorithms) {
+        this.algorithms = algorithms.clone();
+    }
+
+    /**
+     * Compute the HA1 to store for a user.
+     *
+     * @param algorithm MD5 or SHA-256.
+     */
+    public static String computeHA1(String algorithm, String username, String realm, String password) {
+        return MessageDigestAlgorithm.H(algorithm, username + ":" + realm + ":" + password);
+    }
+
+    /**
+     * Generate a nonce signed for the current time.
+     */
+    public String generateNonce() {
+        return generateNonce(System.currentTimeMillis());
+    }
+
+    String generateNonce(long timestamp) {
+        ByteBuffer nonce = ByteBuffer.allocate(TIMESTAMP_LENGTH + SIGNATURE_LENGTH);
+        nonce.putLong(timestamp);
+        nonce.put(sign(timestamp), 0, SIGNATURE_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(nonce.array());
+    }
+
+    private byte[] sign(long timestamp) {
+        Mac mac = macs.get();
+        mac.reset();
+        for (int i = TIMESTAMP_LENGTH - 1; i >= 0; i--) {
+            mac.update((byte) (timestamp >>> (i * 8)));
+        }
+        return mac.doFinal(realm.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Check that a nonce was issued by this authenticator (or one sharing its
+     * secret) and has not expired.
+     *
+     * @return AUTHENTICATED, STALE_NONCE or FAILED.
+     */
+    public Result validateNonce(String nonce) {
+        return validateNonce(nonce, System.currentTimeMillis());
+    }
+
+    Result validateNonce(String nonce, long now) {
+        if (nonce == null)
+            return Result.FAILED;
+        byte[] decoded;
+        try {
+            decoded = Base64.getUrlDecoder().decode(nonce);
+        } catch (IllegalArgumentException ex) {
+            return Result.FAILED;
+        }
+        if (decoded.length != TIMESTAMP_LENGTH + SIGNATURE_LENGTH)
+            return Result.FAILED;
+        ByteBuffer buffer = ByteBuffer.wrap(decoded);
+        long timestamp = buffer.getLong();
+        byte[] signature = new byte[SIGNATURE_LENGTH];
+        buffer.get(signature);
+        byte[] expected = new byte[SIGNATURE_LENGTH];
+        System.arraycopy(sign(timestamp), 0, expected, 0, SIGNATURE_LENGTH);
+        if (!MessageDigest.isEqual(signature, expected))
+            return Result.FAILED;
+        if (timestamp > now + 1000 || now - timestamp > nonceLifetime)
+            return Result.STALE_NONCE;
+        return Result.AUTHENTICATED;
+    }
+
+    /**
+     * Add the challenges to a 401 or 407 response.
+     *
+     * @param stale true if the request was refused because of an expired nonce.
+     */
+    public void generateChallenge(HeaderFactory headerFactory, Response response, boolean stale)
+            throws ParseException {
+        boolean proxy = response.getStatusCode() == Response.PROXY_AUTHENTICATION_REQUIRED;
+        String nonce = generateNonce();
+        for (String algorithm : algorithms) {
+            WWWAuthenticateHeader challenge = proxy
+                    ? headerFactory.createProxyAuthenticateHeader(DEFAULT_SCHEME)
+                    : headerFactory.createWWWAuthenticateHeader(DEFAULT_SCHEME);
+            challenge.setRealm(realm);
+            challenge.setNonce(nonce);
+            challenge.setAlgorithm(algorithm);
+            challenge.setQop("auth,auth-int");
+            if (stale)
+                challenge.setStale(true);
+            response.addHeader(challenge);
+        }
+    }
+
+    /**
+     * Authenticate a request against the credentials of its Authorization (or
+     * Proxy-Authorization) header for our realm.
+     *
+     * @param proxy true to look at the Proxy-Authorization headers.
+     * @param ha1Provider gives the HA1 of the user.
+     */
+    public Result authenticate(Request request, boolean proxy, HA1Provider ha1Provider) {
+        AuthorizationHeader authorization = findAuthorization(request, proxy);
+        if (authorization == null)
+            return Result.NO_CREDENTIALS;
+        String username = authorization.getUsername();
+        String algorithm = authorization.getAlgorithm();
+        if (algorithm == null)
+            algorithm = MD5;
+        if (!MessageDigestAlgorithm.isSupported(algorithm))
+            return Result.FAILED;
+        if (username == null || authorization.getURI() == null || authorization.getResponse() == null)
+            return Result.FAILED;
+        String ha1 = ha1Provider.getHA1(username, realm, algorithm);
+        if (ha1 == null)
+            return Result.FAILED;
+        return authenticate(request, authorization, ha1);
+    }
+
+    /**
+     * Authenticate a request given the HA1 of the user it claims to come from.
+     */
+    public Result authenticate(Request request, boolean proxy, String ha1) {
+        AuthorizationHeader authorization = findAuthorization(request, proxy);
+        if (authorization == null)
+            return Result.NO_CREDENTIALS;
+        if (authorization.getUsername() == null || authorization.getURI() == null
+                || authorization.getResponse() == null)
+            return Result.FAILED;
+        return authenticate(request, authorization, ha1);
+    }
+
+    private Result authenticate(Request request, AuthorizationHeader authorization, String ha1) {
+        String algorithm = authorization.getAlgorithm();
+        String nonce = authorization.getNonce();
+        String cnonce = authorization.getCNonce();
+        String qop = authorization.getQop();
+        String nc = authorization.getParameter("nc");
+
+        if (!MessageDigestAlgorithm.isSupported(algorithm)) {
+            if (logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+                logger.logDebug("Unsupported digest algorithm " + algorithm);
+            }
+            return Result.FAILED;
+        }
+        if (MessageDigestAlgorithm.isSessionAlgorithm(algorithm)) {
+            if (cnonce == null)
+                return Result.FAILED;
+            ha1 = MessageDigestAlgorithm.H(algorithm, ha1 + ":" + nonce + ":" + cnonce);
+        }
+        String a2 = request.getMethod() + ":" + authorization.getURI().toString();
+        if (qop != null && qop.equalsIgnoreCase("auth-int")) {
+            // A2 = method:digest-uri:H(entity-body), rfc 2617 section 3.2.2.3
+            byte[] body = request.getRawContent();
+            a2 = a2 + ":" + MessageDigestAlgorithm.H(algorithm, body == null ? new byte[0] : body);
+        } else if (qop != null && !qop.equalsIgnoreCase("auth")) {
+            return Result.FAILED;
+        }
+        String ha2 = MessageDigestAlgorithm.H(algorithm, a2);
+        String expected;
+        if (qop != null) {
+            if (cnonce == null || nc == null)
+                return Result.FAILED;
+            expected = MessageDigestAlgorithm.KD(algorithm, ha1,
+                    nonce + ":" + nc + ":" + cnonce + ":" + qop + ":" + ha2);
+        } else {
+            expected = MessageDigestAlgorithm.KD(algorithm, ha1, nonce + ":" + ha2);
+        }
+
+        if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII),
+                authorization.getResponse().toLowerCase().getBytes(StandardCharsets.US_ASCII))) {
+            if (logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+                logger.logDebug("Digest response mismatch for " + authorization.getUsername());
+            }
+            return Result.FAILED;
+        }
+        // only check the nonce of otherwise valid credentials so that a stale
+        // nonce is not reported to someone not knowing the password
+        return validateNonce(nonce);
+    }
+
+    private AuthorizationHeader findAuthorization(Request request, boolean proxy) {
+        ListIterator<?> headers = request.getHeaders(proxy ? ProxyAuthorizationHeader.NAME : AuthorizationHeader.NAME);
+        while (headers != null && headers.hasNext()) {
+            AuthorizationHeader authorization = (AuthorizationHeader) headers.next();
+            if (realm.equals(authorization.getRealm()))
+                return authorization;
+        }
+        return null;
+    }
+}
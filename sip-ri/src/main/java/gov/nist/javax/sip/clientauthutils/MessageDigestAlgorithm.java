@@ -3,8 +3,11 @@ package gov.nist.javax.sip.clientauthutils;
 import gov.nist.core.LogWriter;
 import gov.nist.core.StackLogger;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The class takes standard Http Authentication details and returns a response according to the
@@ -14,6 +17,14 @@ import java.security.NoSuchAlgorithmException;
  */
 
 public class MessageDigestAlgorithm {
+
+    /**
+     * MessageDigest.getInstance goes through the security providers on every
+     * call, keep one instance per thread and hash algorithm instead.
+     */
+    private static final Map<String, ThreadLocal<MessageDigest>> messageDigests =
+            new ConcurrentHashMap<String, ThreadLocal<MessageDigest>>();
+
     /**
      * Calculates an http authentication response in accordance with rfc2617.
      * <p>
@@ -67,7 +78,7 @@ public class MessageDigestAlgorithm {
         } else {
             if (entity_body == null)
                 entity_body = "";
-            A2 = method + ":" + digest_uri_value + ":" + H(entity_body);
+            A2 = method + ":" + digest_uri_value + ":" + H(algorithm, entity_body);
         }
 
         String request_digest = null;
@@ -76,11 +87,11 @@ public class MessageDigestAlgorithm {
                 && (qop_value.equalsIgnoreCase("auth") || qop_value.equalsIgnoreCase("auth-int")))
 
         {
-            request_digest = KD(hashUserNameRealmPasswd, nonce_value + ":" + nc_value + ":" + cnonce_value + ":"
-                    + qop_value + ":" + H(A2));
+            request_digest = KD(algorithm, hashUserNameRealmPasswd, nonce_value + ":" + nc_value + ":" + cnonce_value + ":"
+                    + qop_value + ":" + H(algorithm, A2));
 
         } else {
-            request_digest = KD(hashUserNameRealmPasswd, nonce_value + ":" + H(A2));
+            request_digest = KD(algorithm, hashUserNameRealmPasswd, nonce_value + ":" + H(algorithm, A2));
         }
 
         return request_digest;
@@ -133,15 +144,14 @@ public class MessageDigestAlgorithm {
         // digest as specified by rfc2617
         String A1 = null;
 
-        if (algorithm == null || algorithm.trim().length() == 0
-                || algorithm.trim().equalsIgnoreCase("MD5")) {
+        if (!isSessionAlgorithm(algorithm)) {
             A1 = username_value + ":" + realm_value + ":" + passwd;
         } else {
             if (cnonce_value == null || cnonce_value.length() == 0)
                 throw new NullPointerException(
                         "cnonce_value may not be absent for MD5-Sess algorithm.");
 
-            A1 = H(username_value + ":" + realm_value + ":" + passwd) + ":" + nonce_value + ":"
+            A1 = H(algorithm, username_value + ":" + realm_value + ":" + passwd) + ":" + nonce_value + ":"
                     + cnonce_value;
         }
 
@@ -152,7 +162,7 @@ public class MessageDigestAlgorithm {
         } else {
             if (entity_body == null)
                 entity_body = "";
-            A2 = method + ":" + digest_uri_value + ":" + H(entity_body);
+            A2 = method + ":" + digest_uri_value + ":" + H(algorithm, entity_body);
         }
 
         String request_digest = null;
@@ -161,42 +171,119 @@ public class MessageDigestAlgorithm {
                 && (qop_value.equalsIgnoreCase("auth") || qop_value.equalsIgnoreCase("auth-int")))
 
         {
-            request_digest = KD(H(A1), nonce_value + ":" + nc_value + ":" + cnonce_value + ":"
-                    + qop_value + ":" + H(A2));
+            request_digest = KD(algorithm, H(algorithm, A1), nonce_value + ":" + nc_value + ":" + cnonce_value + ":"
+                    + qop_value + ":" + H(algorithm, A2));
 
         } else {
-            request_digest = KD(H(A1), nonce_value + ":" + H(A2));
+            request_digest = KD(algorithm, H(algorithm, A1), nonce_value + ":" + H(algorithm, A2));
         }
 
         return request_digest;
     }
 
     /**
-     * Defined in rfc 2617 as H(data) = MD5(data);
+     * @return true for the -sess variants of the digest algorithms, where A1
+     *         includes the nonce and cnonce.
+     */
+    static boolean isSessionAlgorithm(String algorithm) {
+        return algorithm != null && algorithm.trim().toLowerCase().endsWith("-sess");
+    }
+
+    /**
+     * Map the algorithm of a digest challenge (rfc 7616) to the name of the
+     * corresponding java hash algorithm, MD5 when no algorithm is given.
+     *
+     * @throws IllegalArgumentException if the algorithm is not supported.
+     */
+    static String getHashAlgorithm(String algorithm) {
+        String hashAlgorithm = findHashAlgorithm(algorithm);
+        if (hashAlgorithm == null)
+            throw new IllegalArgumentException("Unsupported digest algorithm " + algorithm);
+        return hashAlgorithm;
+    }
+
+    /**
+     * @return true if the algorithm of a digest challenge is supported, MD5,
+     *         SHA-256, SHA-512-256 and their -sess variants.
+     */
+    static boolean isSupported(String algorithm) {
+        return findHashAlgorithm(algorithm) != null;
+    }
+
+    private static String findHashAlgorithm(String algorithm) {
+        if (algorithm == null || algorithm.trim().length() == 0)
+            return "MD5";
+        String name = algorithm.trim().toUpperCase();
+        if (name.endsWith("-SESS"))
+            name = name.substring(0, name.length() - 5);
+        if (name.equals("MD5"))
+            return "MD5";
+        if (name.equals("SHA-256"))
+            return "SHA-256";
+        if (name.equals("SHA-512-256"))
+            return "SHA-512/256";
+        return null;
+    }
+
+    /**
+     * Get the message digest of the calling thread for a digest algorithm.
+     *
+     * @param algorithm the algorithm of the challenge, MD5, SHA-256...
+     */
+    static MessageDigest getMessageDigest(String algorithm) {
+        final String hashAlgorithm = getHashAlgorithm(algorithm);
+        ThreadLocal<MessageDigest> threadDigest = messageDigests.get(hashAlgorithm);
+        if (threadDigest == null) {
+            threadDigest = ThreadLocal.withInitial(() -> {
+                try {
+                    return MessageDigest.getInstance(hashAlgorithm);
+                } catch (NoSuchAlgorithmException ex) {
+                    // shouldn't happen
+                    throw new RuntimeException("Failed to instantiate an " + hashAlgorithm + " algorithm", ex);
+                }
+            });
+            ThreadLocal<MessageDigest> existing = messageDigests.putIfAbsent(hashAlgorithm, threadDigest);
+            if (existing != null)
+                threadDigest = existing;
+        }
+        MessageDigest digest = threadDigest.get();
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * Defined in rfc 2617 as H(data) = MD5(data), rfc 7616 uses the hash of the
+     * algorithm of the challenge instead of MD5.
      * 
+     * @param algorithm the algorithm of the challenge
      * @param data data
-     * @return MD5(data)
+     * @return hash(data)
      */
-    private static String H(String data) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-
-            return toHexString(digest.digest(data.getBytes()));
-        } catch (NoSuchAlgorithmException ex) {
-            // shouldn't happen
-            throw new RuntimeException("Failed to instantiate an MD5 algorithm", ex);
-        }
+    static String H(String algorithm, String data) {
+        return H(algorithm, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * H(data) of binary data such as an entity-body.
+     *
+     * @param algorithm the algorithm of the challenge
+     * @param data data
+     * @return hash(data)
+     */
+    static String H(String algorithm, byte[] data) {
+        return toHexString(getMessageDigest(algorithm).digest(data));
     }
 
     /**
      * Defined in rfc 2617 as KD(secret, data) = H(concat(secret, ":", data))
      * 
+     * @param algorithm the algorithm of the challenge
      * @param data data
      * @param secret secret
      * @return H(concat(secret, ":", data));
      */
-    private static String KD(String secret, String data) {
-        return H(secret + ":" + data);
+    static String KD(String algorithm, String secret, String data) {
+        return H(algorithm, secret + ":" + data);
     }
 
     // the following code was copied from the NIST-SIP instant
@@ -214,7 +301,7 @@ public class MessageDigestAlgorithm {
      * @param b the bte array to convert
      * @return a Hex representation of b.
      */
-    private static String toHexString(byte b[]) {
+    static String toHexString(byte b[]) {
         int pos = 0;
         char[] c = new char[b.length * 2];
         for (int i = 0; i < b.length; i++) {
@@ -198,4 +198,23 @@ public final class Accept
         return retval;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Accept that = (Accept) other;
+        return equalField(this.mediaRange, that.mediaRange)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Accept that = (Accept) other;
+        return matchField(this.mediaRange, that.mediaRange)
+                && super.matchFields(other);
+    }
 }
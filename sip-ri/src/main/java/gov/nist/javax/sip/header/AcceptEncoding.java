@@ -150,4 +150,23 @@ public final class AcceptEncoding extends ParametersHeader implements
         contentCoding = encoding;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        AcceptEncoding that = (AcceptEncoding) other;
+        return equalField(this.contentCoding, that.contentCoding)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        AcceptEncoding that = (AcceptEncoding) other;
+        return matchField(this.contentCoding, that.contentCoding)
+                && super.matchFields(other);
+    }
 }
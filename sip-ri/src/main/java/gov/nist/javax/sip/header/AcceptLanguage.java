@@ -195,4 +195,23 @@ public final class AcceptLanguage
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        AcceptLanguage that = (AcceptLanguage) other;
+        return equalField(this.languageRange, that.languageRange)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        AcceptLanguage that = (AcceptLanguage) other;
+        return matchField(this.languageRange, that.languageRange)
+                && super.matchFields(other);
+    }
 }
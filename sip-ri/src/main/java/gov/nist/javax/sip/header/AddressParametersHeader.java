@@ -53,6 +53,7 @@ public abstract class AddressParametersHeader extends ParametersHeader {
      * @see gov.nist.javax.sip.header.AddressParameters#getAddress()
      */
     public Address getAddress() {
+        markDirty();
         return address;
     }
 
@@ -60,6 +61,7 @@ public abstract class AddressParametersHeader extends ParametersHeader {
      * @see gov.nist.javax.sip.header.AddressParameters#setAddress(javax.sip.address.Address)
      */
     public void setAddress(Address address) {
+        markDirty();
         this.address = (AddressImpl) address;
     }
 
@@ -106,4 +108,23 @@ public abstract class AddressParametersHeader extends ParametersHeader {
         return false;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        AddressParametersHeader that = (AddressParametersHeader) other;
+        return equalField(this.address, that.address)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        AddressParametersHeader that = (AddressParametersHeader) other;
+        return matchField(this.address, that.address)
+                && super.matchFields(other);
+    }
 }
@@ -126,4 +126,26 @@ public final class AlertInfo
         }
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        AlertInfo that = (AlertInfo) other;
+        return equalField(this.uri, that.uri)
+                && equalField(this.string, that.string)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        AlertInfo that = (AlertInfo) other;
+        return matchField(this.uri, that.uri)
+                && matchField(this.string, that.string)
+                && super.matchFields(other);
+    }
 }
@@ -88,4 +88,24 @@ public final class Allow extends
     protected StringBuilder encodeBody(StringBuilder buffer) {
         return buffer.append(method);
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Allow that = (Allow) other;
+        return equalField(this.method, that.method)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Allow that = (Allow) other;
+        return matchField(this.method, that.method)
+                && super.matchFields(other);
+    }
 }
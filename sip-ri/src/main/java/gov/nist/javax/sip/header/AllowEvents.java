@@ -98,4 +98,24 @@ public final class AllowEvents
     protected StringBuilder encodeBody(StringBuilder buffer) {
         return buffer.append(eventType);
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        AllowEvents that = (AllowEvents) other;
+        return equalField(this.eventType, that.eventType)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        AllowEvents that = (AllowEvents) other;
+        return matchField(this.eventType, that.eventType)
+                && super.matchFields(other);
+    }
 }
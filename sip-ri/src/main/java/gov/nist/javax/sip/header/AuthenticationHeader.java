@@ -556,4 +556,23 @@ public abstract class AuthenticationHeader extends ParametersHeader {
         return getParameter(ParameterNamesIms.INTEGRITY_PROTECTED);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        AuthenticationHeader that = (AuthenticationHeader) other;
+        return equalField(this.scheme, that.scheme)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        AuthenticationHeader that = (AuthenticationHeader) other;
+        return matchField(this.scheme, that.scheme)
+                && super.matchFields(other);
+    }
 }
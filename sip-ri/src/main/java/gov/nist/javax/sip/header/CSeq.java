@@ -100,7 +100,7 @@ public class CSeq extends SIPHeader implements javax.sip.header.CSeqHeader {
      * @return String with canonical encoded header.
      */
     public String encode() {
-        return headerName + COLON + SP + encodeBody() + NEWLINE;
+        return headerName + COLON + SP + encodeValue(new StringBuilder()) + NEWLINE;
     }
 
     /**
@@ -130,6 +130,7 @@ public class CSeq extends SIPHeader implements javax.sip.header.CSeqHeader {
      */
     public void setSeqNumber(long sequenceNumber)
         throws InvalidArgumentException {
+        markDirty();
         if (sequenceNumber < 0 )
             throw new InvalidArgumentException(
                 "JAIN-SIP Exception, CSeq, setSequenceNumber(), "
@@ -146,6 +147,7 @@ public class CSeq extends SIPHeader implements javax.sip.header.CSeqHeader {
      * For backwards compatibility
      */
     public void setSequenceNumber(int sequenceNumber) throws InvalidArgumentException {
+        markDirty();
         this.setSeqNumber( (long) sequenceNumber );
     }
 
@@ -154,6 +156,7 @@ public class CSeq extends SIPHeader implements javax.sip.header.CSeqHeader {
      * @see javax.sip.header.CSeqHeader#setMethod(java.lang.String)
      */
     public void setMethod(String meth) throws ParseException {
+        markDirty();
         if (meth == null)
             throw new NullPointerException(
                 "JAIN-SIP Exception, CSeq"
@@ -179,6 +182,33 @@ public class CSeq extends SIPHeader implements javax.sip.header.CSeqHeader {
         return this.seqno.longValue();
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
 
-}
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        CSeq that = (CSeq) other;
+        return equalField(this.seqno, that.seqno)
+                && equalField(this.method, that.method)
+                && super.equalFields(other);
+    }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        CSeq that = (CSeq) other;
+        return matchField(this.seqno, that.seqno)
+                && matchField(this.method, that.method)
+                && super.matchFields(other);
+    }
+}
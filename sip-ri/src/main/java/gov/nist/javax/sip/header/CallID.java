@@ -107,6 +107,7 @@ public class CallID
      * @return CallIdentifier
      */
     public CallIdentifier getCallIdentifer() {
+        markDirty();
         return callIdentifier;
     }
 
@@ -118,6 +119,7 @@ public class CallID
      * not a token@token.
      */
     public void setCallId(String cid) throws ParseException {
+        markDirty();
         try {
             callIdentifier = new CallIdentifier(cid);
         } catch (IllegalArgumentException ex) {
@@ -130,6 +132,7 @@ public class CallID
      * @param cid CallIdentifier to set (localId@host).
      */
     public void setCallIdentifier(CallIdentifier cid) {
+        markDirty();
         callIdentifier = cid;
     }
 
@@ -148,4 +151,32 @@ public class CallID
             retval.callIdentifier = (CallIdentifier) this.callIdentifier.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        CallID that = (CallID) other;
+        return equalField(this.callIdentifier, that.callIdentifier)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        CallID that = (CallID) other;
+        return matchField(this.callIdentifier, that.callIdentifier)
+                && super.matchFields(other);
+    }
 }
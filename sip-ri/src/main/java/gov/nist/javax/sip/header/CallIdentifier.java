@@ -180,4 +180,26 @@ public final class CallIdentifier extends SIPObject {
     public void setHost(String host) {
         this.host = host;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        CallIdentifier that = (CallIdentifier) other;
+        return equalField(this.localId, that.localId)
+                && equalField(this.host, that.host)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        CallIdentifier that = (CallIdentifier) other;
+        return matchField(this.localId, that.localId)
+                && matchField(this.host, that.host)
+                && super.matchFields(other);
+    }
 }
@@ -120,4 +120,24 @@ public final class CallInfo
             retval.info = (GenericURI) this.info.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        CallInfo that = (CallInfo) other;
+        return equalField(this.info, that.info)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        CallInfo that = (CallInfo) other;
+        return matchField(this.info, that.info)
+                && super.matchFields(other);
+    }
 }
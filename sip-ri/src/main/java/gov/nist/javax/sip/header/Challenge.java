@@ -254,4 +254,26 @@ public class Challenge extends SIPObject {
             retval.authParams = (NameValueList) this.authParams.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Challenge that = (Challenge) other;
+        return equalField(this.scheme, that.scheme)
+                && equalField(this.authParams, that.authParams)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Challenge that = (Challenge) other;
+        return matchField(this.scheme, that.scheme)
+                && matchField(this.authParams, that.authParams)
+                && super.matchFields(other);
+    }
 }
@@ -81,6 +81,7 @@ public final  class Contact
     /** Set a parameter.
     */
     public void setParameter(String name, String value) throws ParseException {
+        markDirty();
         NameValue nv = parameters.getNameValue(name);
         if (nv != null) {
             nv.setValueAsObject(value);
@@ -127,6 +128,7 @@ public final  class Contact
      * @return ContactList
      */
     public ContactList getContactList() {
+        markDirty();
         return contactList;
     }
 
@@ -141,6 +143,7 @@ public final  class Contact
      * @return Address
      */
     public javax.sip.address.Address getAddress() {
+        markDirty();
         // JAIN-SIP stores the wild card as an address!
         return address;
     }
@@ -149,6 +152,7 @@ public final  class Contact
      * @return NameValueList
      */
     public NameValueList getContactParms() {
+        markDirty();
         return parameters;
     }
 
@@ -164,6 +168,7 @@ public final  class Contact
     */
 
     public void setExpires(int expiryDeltaSeconds) {
+        markDirty();
         Integer deltaSeconds = Integer.valueOf(expiryDeltaSeconds);
         this.parameters.set(EXPIRES, deltaSeconds);
     }
@@ -179,6 +184,7 @@ public final  class Contact
      * @param cl ContactList to set
      */
     public void setContactList(ContactList cl) {
+        markDirty();
         contactList = cl;
     }
 
@@ -187,6 +193,7 @@ public final  class Contact
      * @param w boolean to set
      */
     public void setWildCardFlag(boolean w) {
+        markDirty();
         this.wildCardFlag = true;
         this.address = new AddressImpl();
         this.address.setWildCardFlag();
@@ -198,6 +205,7 @@ public final  class Contact
      * @param address Address to set
      */
     public void setAddress(javax.sip.address.Address address) {
+        markDirty();
         // Canonical form must have <> around the address.
         if (address == null)
             throw new NullPointerException("null address");
@@ -210,6 +218,7 @@ public final  class Contact
      * @param qValue float to set
      */
     public void setQValue(float qValue) throws InvalidArgumentException {
+        markDirty();
         if (qValue != -1 && (qValue < 0 || qValue > 1))
             throw new InvalidArgumentException(
                 "JAIN-SIP Exception, Contact, setQValue(), "
@@ -228,6 +237,7 @@ public final  class Contact
      * @see javax.sip.header.ContactHeader#setWildCard()
      */
     public void setWildCard() {
+        markDirty();
        this.setWildCardFlag(true);
 
     }
@@ -245,6 +255,7 @@ public final  class Contact
     }
 
     public void removeSipInstanceParam() {
+        markDirty();
         if (parameters != null)
             parameters.delete(ParameterNames.SIP_INSTANCE);
     }
@@ -254,6 +265,7 @@ public final  class Contact
     }
 
     public void setSipInstanceParam(String value) {
+        markDirty();
         this.parameters.set(ParameterNames.SIP_INSTANCE, value);
     }
 
@@ -261,6 +273,7 @@ public final  class Contact
      *remove the pub-gruu value from the parameter list if it exists.
      */
     public void removePubGruuParam() {
+        markDirty();
         if (parameters != null)
             parameters.delete(ParameterNames.PUB_GRUU);
     }
@@ -271,6 +284,7 @@ public final  class Contact
 
     public void setPubGruuParam(String value)
     {
+        markDirty();
         this.parameters.set(ParameterNames.PUB_GRUU, value);
     }
 
@@ -278,6 +292,7 @@ public final  class Contact
      *remove the pub-gruu value from the parameter list if it exists.
      */
     public void removeTempGruuParam() {
+        markDirty();
         if (parameters != null)
             parameters.delete(ParameterNames.TEMP_GRUU);
     }
@@ -288,6 +303,35 @@ public final  class Contact
 
     public void setTempGruuParam(String value)
     {
+        markDirty();
         this.parameters.set(ParameterNames.TEMP_GRUU, value);
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Contact that = (Contact) other;
+        return this.wildCardFlag == that.wildCardFlag
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Contact that = (Contact) other;
+        return this.wildCardFlag == that.wildCardFlag
+                && super.matchFields(other);
+    }
 }
@@ -121,6 +121,26 @@ public final class ContentDisposition
     public String getContentDisposition() {
         return this.encodeBody(new StringBuilder()).toString();
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ContentDisposition that = (ContentDisposition) other;
+        return equalField(this.dispositionType, that.dispositionType)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ContentDisposition that = (ContentDisposition) other;
+        return matchField(this.dispositionType, that.dispositionType)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -132,4 +132,24 @@ public class ContentEncoding
                 "JAIN-SIP Exception, " + " encoding is null");
         contentEncoding = encoding;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ContentEncoding that = (ContentEncoding) other;
+        return equalField(this.contentEncoding, that.contentEncoding)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ContentEncoding that = (ContentEncoding) other;
+        return matchField(this.contentEncoding, that.contentEncoding)
+                && super.matchFields(other);
+    }
 }
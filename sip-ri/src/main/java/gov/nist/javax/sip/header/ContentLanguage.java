@@ -167,4 +167,24 @@ public class ContentLanguage
             retval.locale = (Locale) this.locale.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ContentLanguage that = (ContentLanguage) other;
+        return equalField(this.locale, that.locale)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ContentLanguage that = (ContentLanguage) other;
+        return matchField(this.locale, that.locale)
+                && super.matchFields(other);
+    }
 }
@@ -117,6 +117,7 @@ public class ContentLength
      */
     public void setContentLength(int contentLength)
         throws InvalidArgumentException {
+        markDirty();
         if (contentLength < 0)
             throw new InvalidArgumentException(
                 "JAIN-SIP Exception"
@@ -157,4 +158,32 @@ public class ContentLength
         }
         return false;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ContentLength that = (ContentLength) other;
+        return this.contentLength == that.contentLength
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ContentLength that = (ContentLength) other;
+        return this.contentLength == that.contentLength
+                && super.matchFields(other);
+    }
 }
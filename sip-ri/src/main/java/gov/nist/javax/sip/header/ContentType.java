@@ -119,6 +119,7 @@ public class ContentType
      * @return MediaRange.
      */
     public MediaRange getMediaRange() {
+        markDirty();
         return mediaRange;
     }
 
@@ -162,6 +163,7 @@ public class ContentType
      * @param m mediaRange field.
      */
     public void setMediaRange(MediaRange m) {
+        markDirty();
         mediaRange = m;
     }
 
@@ -171,6 +173,7 @@ public class ContentType
     *@param contentSubType content subtype string
     */
     public void setContentType(String contentType, String contentSubType) {
+        markDirty();
         if (mediaRange == null)
             mediaRange = new MediaRange();
         mediaRange.setType(contentType);
@@ -183,6 +186,7 @@ public class ContentType
     */
 
     public void setContentType(String contentType) throws ParseException {
+        markDirty();
         if (contentType == null)
             throw new NullPointerException("null arg");
         if (mediaRange == null)
@@ -195,6 +199,7 @@ public class ContentType
          * @param contentType String to set
          */
     public void setContentSubType(String contentType) throws ParseException {
+        markDirty();
         if (contentType == null)
             throw new NullPointerException("null arg");
         if (mediaRange == null)
@@ -218,5 +223,32 @@ public class ContentType
         }
         return false;
     }
-}
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ContentType that = (ContentType) other;
+        return equalField(this.mediaRange, that.mediaRange)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ContentType that = (ContentType) other;
+        return matchField(this.mediaRange, that.mediaRange)
+                && super.matchFields(other);
+    }
+}
@@ -123,4 +123,26 @@ public class Credentials extends SIPObject {
             retval.parameters = (NameValueList) this.parameters.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Credentials that = (Credentials) other;
+        return equalField(this.scheme, that.scheme)
+                && equalField(this.parameters, that.parameters)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Credentials that = (Credentials) other;
+        return matchField(this.scheme, that.scheme)
+                && matchField(this.parameters, that.parameters)
+                && super.matchFields(other);
+    }
 }
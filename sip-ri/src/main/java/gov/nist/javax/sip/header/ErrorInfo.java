@@ -138,5 +138,25 @@ public final class ErrorInfo
             retval.errorInfo = (GenericURI) this.errorInfo.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ErrorInfo that = (ErrorInfo) other;
+        return equalField(this.errorInfo, that.errorInfo)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ErrorInfo that = (ErrorInfo) other;
+        return matchField(this.errorInfo, that.errorInfo)
+                && super.matchFields(other);
+    }
 }
 
@@ -142,4 +142,24 @@ public class Event extends ParametersHeader implements EventHeader {
             && ((this.getEventId() == matchTarget.getEventId())
                 || this.getEventId().equalsIgnoreCase(matchTarget.getEventId()));
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Event that = (Event) other;
+        return equalField(this.eventType, that.eventType)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Event that = (Event) other;
+        return matchField(this.eventType, that.eventType)
+                && super.matchFields(other);
+    }
 }
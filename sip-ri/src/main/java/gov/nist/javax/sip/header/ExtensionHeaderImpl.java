@@ -127,4 +127,24 @@ public class ExtensionHeaderImpl
     public String encodeBody() {
         return this.getHeaderValue();
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ExtensionHeaderImpl that = (ExtensionHeaderImpl) other;
+        return equalField(this.value, that.value)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ExtensionHeaderImpl that = (ExtensionHeaderImpl) other;
+        return matchField(this.value, that.value)
+                && super.matchFields(other);
+    }
 }
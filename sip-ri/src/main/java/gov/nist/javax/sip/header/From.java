@@ -99,6 +99,7 @@ public final class From
      * @return hostport field
      */
     public HostPort getHostPort() {
+        markDirty();
         return address.getHostPort();
     }
 
@@ -130,6 +131,7 @@ public final class From
     /** remove Tag member
      */
     public void removeTag() {
+        markDirty();
         parameters.delete(ParameterNames.TAG);
     }
 
@@ -138,6 +140,7 @@ public final class From
      * @param address Address to set
      */
     public void setAddress(javax.sip.address.Address address) {
+        markDirty();
         this.address = (AddressImpl) address;
     }
 
@@ -146,6 +149,7 @@ public final class From
      * @param t tag to set. From tags are mandatory.
      */
     public void setTag(String t) throws ParseException {
+        markDirty();
         // JvB: check that it is a valid token
         Parser.checkToken(t);
         this.setParameter(ParameterNames.TAG, t);
@@ -161,4 +165,11 @@ public final class From
         return (other instanceof FromHeader) && super.equals(other);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.header;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Growable circular array holding the headers of a {@link SIPHeaderList}.
+ * Adding or removing at either end is done in place, without the node a
+ * linked list allocates per header, and an insertion or removal in the middle
+ * shifts the shorter side. Proxies push and pop the top Via and Route of
+ * every request they forward, and the lists are copied whenever a message is
+ * cloned, which here is a copy of a small array.
+ */
+final class HeaderArrayList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Object[] EMPTY = {};
+
+    // most lists hold one or two headers
+    private static final int INITIAL_CAPACITY = 2;
+
+    private Object[] elements = EMPTY;
+
+    // index in elements of the first header
+    private int head;
+
+    private int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        return (E) elements[physical(index)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkIndex(index);
+        int position = physical(index);
+        E previous = (E) elements[position];
+        elements[position] = element;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == elements.length) {
+            resize(elements.length == 0 ? INITIAL_CAPACITY : elements.length * 2);
+        }
+        if (index < size / 2 || index == 0) {
+            // shift the headers above the index one slot up
+            head = head == 0 ? elements.length - 1 : head - 1;
+            for (int i = 0; i < index; i++) {
+                elements[physical(i)] = elements[physical(i + 1)];
+            }
+        } else {
+            for (int i = size; i > index; i--) {
+                elements[physical(i)] = elements[physical(i - 1)];
+            }
+        }
+        elements[physical(index)] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkIndex(index);
+        E removed = (E) elements[physical(index)];
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[physical(i)] = elements[physical(i - 1)];
+            }
+            elements[head] = null;
+            head = head == elements.length - 1 ? 0 : head + 1;
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[physical(i)] = elements[physical(i + 1)];
+            }
+            elements[physical(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[physical(i)] = null;
+        }
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Makes room for a number of headers, by example before copying a list.
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            resize(capacity);
+        }
+    }
+
+    private void resize(int capacity) {
+        Object[] resized = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            resized[i] = elements[physical(i)];
+        }
+        elements = resized;
+        head = 0;
+    }
+
+    private int physical(int index) {
+        int position = head + index;
+        return position >= elements.length ? position - elements.length : position;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
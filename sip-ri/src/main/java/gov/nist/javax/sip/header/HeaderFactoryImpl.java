@@ -89,6 +89,7 @@ import javax.sip.header.ViaHeader;
 import javax.sip.header.WWWAuthenticateHeader;
 import javax.sip.header.WarningHeader;
 
+import gov.nist.core.StacklessParseException;
 import gov.nist.javax.sip.address.GenericURI;
 import gov.nist.javax.sip.header.extensions.Diversion;
 import gov.nist.javax.sip.header.extensions.DiversionHeader;
@@ -1276,7 +1277,7 @@ public class HeaderFactoryImpl implements HeaderFactoryExt {
      * @throws ParseException 
      */
     public javax.sip.header.Header createHeader(String headerText) throws ParseException {
-        SIPHeader sipHeader = StringMsgParser.parseSIPHeader(headerText.trim());
+        SIPHeader sipHeader = parseSIPHeader(headerText.trim());
         if (sipHeader instanceof SIPHeaderList) {
             if (((SIPHeaderList<?>) sipHeader).size() > 1) {
                 throw new ParseException(
@@ -1303,6 +1304,15 @@ public class HeaderFactoryImpl implements HeaderFactoryExt {
         
     }
 
+    // the parse exceptions leave the stack with the stack trace of the application
+    private static SIPHeader parseSIPHeader(String headerText) throws ParseException {
+        try {
+            return StringMsgParser.parseSIPHeader(headerText);
+        } catch (ParseException ex) {
+            throw StacklessParseException.withStackTrace(ex);
+        }
+    }
+
     /** Create and parse a header.
      *
      * @param headerName -- header name for the header to parse.
@@ -1337,7 +1347,7 @@ public class HeaderFactoryImpl implements HeaderFactoryExt {
         throws java.text.ParseException {
         if (headers == null)
             throw new NullPointerException("null arg!");
-        SIPHeader shdr = StringMsgParser.parseSIPHeader(headers);
+        SIPHeader shdr = parseSIPHeader(headers);
         if (shdr instanceof SIPHeaderList)
             return (SIPHeaderList) shdr;
         else
@@ -1768,7 +1778,11 @@ public class HeaderFactoryImpl implements HeaderFactoryExt {
     public SipRequestLine createRequestLine(String requestLine)  throws ParseException {
         
         RequestLineParser requestLineParser = new RequestLineParser(requestLine);
-        return (SipRequestLine) requestLineParser.parse();
+        try {
+            return (SipRequestLine) requestLineParser.parse();
+        } catch (ParseException ex) {
+            throw StacklessParseException.withStackTrace(ex);
+        }
     }
     
     /**
@@ -1776,7 +1790,11 @@ public class HeaderFactoryImpl implements HeaderFactoryExt {
      */
     public SipStatusLine createStatusLine(String statusLine) throws ParseException {
         StatusLineParser statusLineParser = new StatusLineParser(statusLine);
-        return (SipStatusLine) statusLineParser.parse();
+        try {
+            return (SipStatusLine) statusLineParser.parse();
+        } catch (ParseException ex) {
+            throw StacklessParseException.withStackTrace(ex);
+        }
     }
 
 
@@ -106,5 +106,25 @@ public class InReplyTo extends SIPHeader implements InReplyToHeader {
             retval.callId = (CallIdentifier) this.callId.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        InReplyTo that = (InReplyTo) other;
+        return equalField(this.callId, that.callId)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        InReplyTo that = (InReplyTo) other;
+        return matchField(this.callId, that.callId)
+                && super.matchFields(other);
+    }
 }
 
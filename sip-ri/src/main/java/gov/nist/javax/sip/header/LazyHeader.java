@@ -0,0 +1,161 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.header;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Placeholder for one or more header lines of the same name that have not been
+ * parsed yet. The header keeps references to the byte ranges of the received
+ * message that hold the header lines and is replaced by the parsed header the
+ * first time the message is asked for it. As long as it is not parsed it is
+ * encoded back exactly as it was received.
+ *
+ * @see gov.nist.javax.sip.parser.LazyStringMsgParser
+ */
+public class LazyHeader extends SIPHeader {
+    private static final long serialVersionUID = 1L;
+
+    private byte[][] buffers;
+    private int[] starts;
+    private int[] ends;
+    private int lineCount;
+
+    /**
+     * Create a placeholder for a raw header line.
+     *
+     * @param headerName the canonical (non compact) name of the header.
+     * @param buffer the buffer holding the header line.
+     * @param start the offset of the first byte of the header line.
+     * @param end the offset after the last byte of the header line, line
+     *            terminator excluded.
+     */
+    public LazyHeader(String headerName, byte[] buffer, int start, int end) {
+        super(headerName);
+        this.buffers = new byte[2][];
+        this.starts = new int[2];
+        this.ends = new int[2];
+        addLine(buffer, start, end);
+    }
+
+    /**
+     * Add another raw header line of the same name.
+     */
+    public void addLine(byte[] buffer, int start, int end) {
+        if (lineCount == starts.length) {
+            int newLength = lineCount * 2;
+            byte[][] newBuffers = new byte[newLength][];
+            int[] newStarts = new int[newLength];
+            int[] newEnds = new int[newLength];
+            System.arraycopy(buffers, 0, newBuffers, 0, lineCount);
+            System.arraycopy(starts, 0, newStarts, 0, lineCount);
+            System.arraycopy(ends, 0, newEnds, 0, lineCount);
+            buffers = newBuffers;
+            starts = newStarts;
+            ends = newEnds;
+        }
+        buffers[lineCount] = buffer;
+        starts[lineCount] = start;
+        ends[lineCount] = end;
+        lineCount++;
+    }
+
+    /**
+     * @return the number of raw header lines held by this placeholder.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Get a header line with continuation lines folded, ready to be handed to
+     * a header parser.
+     *
+     * @param index index of the header line.
+     */
+    public String getLine(int index) {
+        return decodeHeaderLine(buffers[index], starts[index], ends[index]);
+    }
+
+    /**
+     * Decode a raw header line, folding continuation lines the same way the
+     * message parser does.
+     */
+    public static String decodeHeaderLine(byte[] buffer, int start, int end) {
+        String raw = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        if (raw.indexOf('\n') < 0 && raw.indexOf('\r') < 0) {
+            return raw;
+        }
+        StringBuilder line = new StringBuilder(raw.length());
+        int lineStart = 0;
+        boolean first = true;
+        while (lineStart <= raw.length()) {
+            int lineEnd = lineStart;
+            while (lineEnd < raw.length() && raw.charAt(lineEnd) != '\r' && raw.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int trimmedEnd = lineEnd;
+            while (trimmedEnd > lineStart && raw.charAt(trimmedEnd - 1) <= 0x20) {
+                trimmedEnd--;
+            }
+            if (first) {
+                line.append(raw, lineStart, trimmedEnd);
+                first = false;
+            } else if (trimmedEnd > lineStart) {
+                line.append(raw, lineStart + 1, trimmedEnd);
+            }
+            if (lineEnd < raw.length() && raw.charAt(lineEnd) == '\r' && lineEnd + 1 < raw.length()
+                    && raw.charAt(lineEnd + 1) == '\n') {
+                lineEnd++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return line.toString();
+    }
+
+    /**
+     * Encode the header lines exactly as they were received.
+     */
+    public StringBuilder encode(StringBuilder buffer) {
+        for (int i = 0; i < lineCount; i++) {
+            buffer.append(new String(buffers[i], starts[i], ends[i] - starts[i], StandardCharsets.UTF_8))
+                    .append(NEWLINE);
+        }
+        return buffer;
+    }
+
+    protected StringBuilder encodeBody(StringBuilder buffer) {
+        for (int i = 0; i < lineCount; i++) {
+            String line = getLine(i);
+            if (i > 0) {
+                buffer.append(COMMA);
+            }
+            buffer.append(line.substring(line.indexOf(':') + 1).trim());
+        }
+        return buffer;
+    }
+
+    public Object clone() {
+        LazyHeader retval = (LazyHeader) super.clone();
+        retval.buffers = this.buffers.clone();
+        retval.starts = this.starts.clone();
+        retval.ends = this.ends.clone();
+        return retval;
+    }
+}
@@ -73,6 +73,7 @@ public class MaxForwards extends SIPHeader implements MaxForwardsHeader {
          */
     public void setMaxForwards(int maxForwards)
         throws InvalidArgumentException {
+        markDirty();
         if (maxForwards < 0 || maxForwards > 255)
             throw new InvalidArgumentException(
                 "bad max forwards value " + maxForwards);
@@ -102,6 +103,7 @@ public class MaxForwards extends SIPHeader implements MaxForwardsHeader {
     /** decrement MaxForwards field one by one.
      */
     public void decrementMaxForwards() throws TooManyHopsException {
+        markDirty();
         if (maxForwards > 0)
             maxForwards--;
         else throw new TooManyHopsException ("has already reached 0!");
@@ -115,4 +117,32 @@ public class MaxForwards extends SIPHeader implements MaxForwardsHeader {
         }
         return false;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        MaxForwards that = (MaxForwards) other;
+        return this.maxForwards == that.maxForwards
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        MaxForwards that = (MaxForwards) other;
+        return this.maxForwards == that.maxForwards
+                && super.matchFields(other);
+    }
 }
@@ -114,4 +114,26 @@ public class MediaRange extends SIPObject {
                 .append(SLASH)
                 .append(subtype);
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        MediaRange that = (MediaRange) other;
+        return equalField(this.type, that.type)
+                && equalField(this.subtype, that.subtype)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        MediaRange that = (MediaRange) other;
+        return matchField(this.type, that.type)
+                && matchField(this.subtype, that.subtype)
+                && super.matchFields(other);
+    }
 }
@@ -126,6 +126,27 @@ public class MimeVersion extends SIPHeader implements MimeVersionHeader {
             .append(Integer.toString(minorVersion));
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        MimeVersion that = (MimeVersion) other;
+        return this.minorVersion == that.minorVersion
+                && this.majorVersion == that.majorVersion
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        MimeVersion that = (MimeVersion) other;
+        return this.minorVersion == that.minorVersion
+                && this.majorVersion == that.majorVersion
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -96,6 +96,25 @@ public class MinExpires extends SIPHeader implements MinExpiresHeader {
         this.expires = expires;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        MinExpires that = (MinExpires) other;
+        return this.expires == that.expires
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        MinExpires that = (MinExpires) other;
+        return this.expires == that.expires
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
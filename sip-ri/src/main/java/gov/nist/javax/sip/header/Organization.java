@@ -89,6 +89,26 @@ public class Organization extends SIPHeader implements OrganizationHeader {
                     + " Organization, setOrganization(), the organization parameter is null");
         organization = o;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Organization that = (Organization) other;
+        return equalField(this.organization, that.organization)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Organization that = (Organization) other;
+        return matchField(this.organization, that.organization)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -130,6 +130,7 @@ public abstract class ParametersHeader
     */
 
     public void removeParameter(String name) {
+        markDirty();
         this.parameters.delete(name);
     }
 
@@ -152,6 +153,7 @@ public abstract class ParametersHeader
      *
      */
     public void setParameter(String name, String value) throws ParseException {
+        markDirty();
         NameValue nv = parameters.getNameValue(name);
         if (nv != null) {
             nv.setValueAsObject(value);
@@ -181,6 +183,7 @@ public abstract class ParametersHeader
      */
     public void setQuotedParameter(String name, String value)
         throws ParseException {
+        markDirty();
         NameValue nv = parameters.getNameValue(name);
         if (nv != null) {
             nv.setValueAsObject(value);
@@ -208,6 +211,7 @@ public abstract class ParametersHeader
      *
      */
     protected void setParameter(String name, int value) {
+        markDirty();
         Integer val = Integer.valueOf(value);
         this.parameters.set(name,val);
 
@@ -229,6 +233,7 @@ public abstract class ParametersHeader
      *
      */
     protected void setParameter(String name, boolean value) {
+        markDirty();
         Boolean val = Boolean.valueOf(value);
         this.parameters.set(name,val);
     }
@@ -248,6 +253,7 @@ public abstract class ParametersHeader
      *
      */
     protected void setParameter(String name, float value) {
+        markDirty();
         Float val = Float.valueOf(value);
         NameValue nv = parameters.getNameValue(name);
         if (nv != null) {
@@ -277,6 +283,7 @@ public abstract class ParametersHeader
      *
      */
     protected void setParameter(String name, Object value) {
+        markDirty();
         this.parameters.set(name,value);
     }
 
@@ -295,6 +302,7 @@ public abstract class ParametersHeader
      *Remove all parameters.
      */
     public void removeParameters() {
+        markDirty();
         this.parameters = new NameValueList();
     }
 
@@ -303,6 +311,7 @@ public abstract class ParametersHeader
      * @return parameter list
      */
     public NameValueList getParameters() {
+        markDirty();
         return parameters;
     }
 
@@ -311,6 +320,7 @@ public abstract class ParametersHeader
      * @param nameValue - the name value of the parameter to set.
      */
     public void setParameter(NameValue nameValue) {
+        markDirty();
         this.parameters.set(nameValue);
     }
 
@@ -320,6 +330,7 @@ public abstract class ParametersHeader
      * @param parameters The name value list to set as the parameter list.
      */
     public void setParameters(NameValueList parameters) {
+        markDirty();
         this.parameters = parameters;
     }
 
@@ -462,6 +473,7 @@ public abstract class ParametersHeader
      * @return the name value pair for the given parameter name.
      */
     public NameValue getNameValue(String parameterName) {
+        markDirty();
         return parameters.getNameValue(parameterName);
     }
 
@@ -486,6 +498,7 @@ public abstract class ParametersHeader
      */
     public void setMultiParameter(String name, String value)
     {
+        markDirty();
     	NameValue nv = new NameValue();
     	nv.setName(name);
     	nv.setValue(value);
@@ -497,6 +510,7 @@ public abstract class ParametersHeader
     * @param nameValue - the name value of the parameter to set.
     */
    public void setMultiParameter(NameValue nameValue) {
+       markDirty();
        this.duplicates.set(nameValue);
    }
     
@@ -512,6 +526,7 @@ public abstract class ParametersHeader
     
 
     public DuplicateNameValueList getMultiParameters() {
+        markDirty();
         return duplicates;
     }
     
@@ -555,6 +570,7 @@ public abstract class ParametersHeader
     */
 
     public void removeMultiParameter(String name) {
+        markDirty();
         this.duplicates.delete(name);
     }
     
@@ -573,6 +589,7 @@ public abstract class ParametersHeader
      *Remove all parameters.
      */
     public void removeMultiParameters() {
+        markDirty();
         this.duplicates = new DuplicateNameValueList();
     }
 
@@ -618,4 +635,25 @@ public abstract class ParametersHeader
     // ----------- Abstract methods --------------
     protected abstract StringBuilder encodeBody(StringBuilder buffer);
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ParametersHeader that = (ParametersHeader) other;
+        return equalField(this.parameters, that.parameters)
+                && equalField(this.duplicates, that.duplicates)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ParametersHeader that = (ParametersHeader) other;
+        return matchField(this.parameters, that.parameters)
+                && matchField(this.duplicates, that.duplicates)
+                && super.matchFields(other);
+    }
 }
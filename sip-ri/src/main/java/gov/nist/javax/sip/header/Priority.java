@@ -100,4 +100,24 @@ public class Priority extends SIPHeader implements PriorityHeader {
                     + "Priority, setPriority(), the priority parameter is null");
         priority = p;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Priority that = (Priority) other;
+        return equalField(this.priority, that.priority)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Priority that = (Priority) other;
+        return matchField(this.priority, that.priority)
+                && super.matchFields(other);
+    }
 }
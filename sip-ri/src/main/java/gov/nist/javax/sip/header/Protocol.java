@@ -150,6 +150,30 @@ public class Protocol extends SIPObject {
         protocolVersion = "2.0";
         transport = "UDP";
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Protocol that = (Protocol) other;
+        return equalField(this.protocolName, that.protocolName)
+                && equalField(this.protocolVersion, that.protocolVersion)
+                && equalField(this.transport, that.transport)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Protocol that = (Protocol) other;
+        return matchField(this.protocolName, that.protocolName)
+                && matchField(this.protocolVersion, that.protocolVersion)
+                && matchField(this.transport, that.transport)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
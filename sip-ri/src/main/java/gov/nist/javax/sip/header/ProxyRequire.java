@@ -98,6 +98,26 @@ public class ProxyRequire extends SIPHeader implements ProxyRequireHeader {
     public String getOptionTag() {
         return optionTag;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        ProxyRequire that = (ProxyRequire) other;
+        return equalField(this.optionTag, that.optionTag)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        ProxyRequire that = (ProxyRequire) other;
+        return matchField(this.optionTag, that.optionTag)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
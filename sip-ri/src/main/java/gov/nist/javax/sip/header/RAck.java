@@ -153,4 +153,28 @@ public class RAck extends SIPHeader implements javax.sip.header.RAckHeader {
             throw new InvalidArgumentException("Bad rSeq # " + rSeqNumber);
         this.rSeqNumber = rSeqNumber;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        RAck that = (RAck) other;
+        return this.cSeqNumber == that.cSeqNumber
+                && this.rSeqNumber == that.rSeqNumber
+                && equalField(this.method, that.method)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        RAck that = (RAck) other;
+        return this.cSeqNumber == that.cSeqNumber
+                && this.rSeqNumber == that.rSeqNumber
+                && matchField(this.method, that.method)
+                && super.matchFields(other);
+    }
 }
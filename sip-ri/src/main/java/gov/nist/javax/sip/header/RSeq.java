@@ -85,6 +85,23 @@ public class RSeq extends SIPHeader implements javax.sip.header.RSeqHeader {
 
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        RSeq that = (RSeq) other;
+        return this.sequenceNumber == that.sequenceNumber
+                && super.equalFields(other);
+    }
 
-
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        RSeq that = (RSeq) other;
+        return this.sequenceNumber == that.sequenceNumber
+                && super.matchFields(other);
+    }
 }
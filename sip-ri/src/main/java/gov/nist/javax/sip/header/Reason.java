@@ -151,6 +151,29 @@ public class Reason
         return buffer;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Reason that = (Reason) other;
+        return equalField(this.TEXT, that.TEXT)
+                && equalField(this.CAUSE, that.CAUSE)
+                && equalField(this.protocol, that.protocol)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Reason that = (Reason) other;
+        return matchField(this.TEXT, that.TEXT)
+                && matchField(this.CAUSE, that.CAUSE)
+                && matchField(this.protocol, that.protocol)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -89,4 +89,12 @@ public class RecordRoute
         }
         return buffer;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
 }
@@ -220,6 +220,30 @@ public class RequestLine extends SIPObject implements SipRequestLine {
             retval.uri = (GenericURI) this.uri.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        RequestLine that = (RequestLine) other;
+        return equalField(this.uri, that.uri)
+                && equalField(this.method, that.method)
+                && equalField(this.sipVersion, that.sipVersion)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        RequestLine that = (RequestLine) other;
+        return matchField(this.uri, that.uri)
+                && matchField(this.method, that.method)
+                && matchField(this.sipVersion, that.sipVersion)
+                && super.matchFields(other);
+    }
 }
 
 
@@ -98,6 +98,26 @@ public class Require extends SIPHeader implements RequireHeader {
     public String getOptionTag() {
         return optionTag;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Require that = (Require) other;
+        return equalField(this.optionTag, that.optionTag)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Require that = (Require) other;
+        return matchField(this.optionTag, that.optionTag)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
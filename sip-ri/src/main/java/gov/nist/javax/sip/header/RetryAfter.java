@@ -189,4 +189,26 @@ public class RetryAfter extends ParametersHeader implements RetryAfterHeader {
       if (this.getParameter(DURATION) == null) return -1;
       else return super.getParameterAsInt(DURATION);
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        RetryAfter that = (RetryAfter) other;
+        return equalField(this.retryAfter, that.retryAfter)
+                && equalField(this.comment, that.comment)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        RetryAfter that = (RetryAfter) other;
+        return matchField(this.retryAfter, that.retryAfter)
+                && matchField(this.comment, that.comment)
+                && super.matchFields(other);
+    }
 }
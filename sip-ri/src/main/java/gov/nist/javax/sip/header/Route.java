@@ -107,5 +107,11 @@ public class Route
         return (other instanceof RouteHeader) && super.equals(other);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
 }
-
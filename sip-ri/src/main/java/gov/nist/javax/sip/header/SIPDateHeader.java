@@ -101,6 +101,26 @@ public class SIPDateHeader extends SIPHeader implements DateHeader {
             retval.date = (SIPDate) this.date.clone();
         return retval;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        SIPDateHeader that = (SIPDateHeader) other;
+        return equalField(this.date, that.date)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        SIPDateHeader that = (SIPDateHeader) other;
+        return matchField(this.date, that.date)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
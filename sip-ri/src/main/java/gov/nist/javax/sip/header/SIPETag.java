@@ -98,4 +98,24 @@ public class SIPETag extends SIPHeader implements SIPETagHeader , ExtensionHeade
         this.setETag(value);
 
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        SIPETag that = (SIPETag) other;
+        return equalField(this.entityTag, that.entityTag)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        SIPETag that = (SIPETag) other;
+        return matchField(this.entityTag, that.entityTag)
+                && super.matchFields(other);
+    }
 }
@@ -44,8 +44,22 @@ public abstract class SIPHeader
      */
     protected String headerName;
 
-    /** Value of the header.
+    /** Value of the header as it was received. Kept as long as the header is
+    * not modified so that forwarding a message does not need to encode it again.
     */
+    private String encodedBody;
+
+    /** Set once the header instance is referenced by more than one message.
+    * A shared header is never modified in place, the messages holding it take
+    * a private copy before handing it out.
+    */
+    private transient volatile boolean shared;
+
+    /** Set once the header instance is known to the application, returned by
+    * a message or added to it by the application. Such a header may still be
+    * modified in place and is copied instead of shared.
+    */
+    private transient volatile boolean exposed;
 
     /** Constructor
      * @param hname String to set
@@ -89,7 +103,97 @@ public abstract class SIPHeader
     * the headerName:
     */
     public String getHeaderValue() {
-      return encodeBody(new StringBuilder()).toString();
+      return encodeValue(new StringBuilder()).toString();
+    }
+
+    /**
+     * Keep the value of the header as it was received to encode the header
+     * with. This only has an effect on headers that track their modifications,
+     * see {@link #isEncodingCacheable()}.
+     *
+     * @param body the header value, what follows the headerName:
+     */
+    public void setEncodedBody(String body) {
+        if (isEncodingCacheable()) {
+            encodedBody = body;
+        }
+    }
+
+    /**
+     * @return true if the header was not modified since its value was cached.
+     */
+    public boolean hasEncodedBody() {
+        return encodedBody != null;
+    }
+
+    /**
+     * Drop the cached value of the header. Called by the headers that cache
+     * their value whenever they are modified or hand out a mutable part of
+     * themselves.
+     */
+    protected void markDirty() {
+        encodedBody = null;
+    }
+
+    /**
+     * Headers that call {@link #markDirty()} on every change override this to
+     * allow their received value to be reused when encoding.
+     */
+    protected boolean isEncodingCacheable() {
+        return false;
+    }
+
+    /** Encode the header value, reusing the received one if the header
+    * was not modified.
+    */
+    protected StringBuilder encodeValue(StringBuilder buffer) {
+        String body = encodedBody;
+        if (body != null) {
+            return buffer.append(body);
+        }
+        return this.encodeBody(buffer);
+    }
+
+    /**
+     * Get an instance of this header that can be referenced by another message
+     * instead of a clone. The header is marked as shared and is copied by a
+     * message the first time the message hands it out, see
+     * {@link gov.nist.javax.sip.message.SIPMessage}. A header already exposed
+     * to the application is cloned instead.
+     *
+     * @return this header or a clone of it, a new list holding the shared
+     *         headers for header lists.
+     */
+    public SIPHeader share() {
+        // marked shared before checking for exposure, a message handing the
+        // header out concurrently then sees it shared and copies it
+        shared = true;
+        if (exposed) {
+            return (SIPHeader) this.clone();
+        }
+        return this;
+    }
+
+    /**
+     * Mark this header as known to the application so that it is never shared
+     * with another message afterwards.
+     */
+    public void expose() {
+        exposed = true;
+    }
+
+    /**
+     * @return true if this header instance is referenced by more than one message.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    public Object clone() {
+        SIPHeader retval = (SIPHeader) super.clone();
+        retval.shared = false;
+        retval.exposed = false;
+        return retval;
     }
 
     /** Return false if this is not a header list
@@ -108,7 +212,7 @@ public abstract class SIPHeader
 
     public StringBuilder encode(StringBuilder buffer) {
         buffer.append(this.headerName).append(COLON).append(SP);
-        this.encodeBody(buffer);
+        this.encodeValue(buffer);
         buffer.append(NEWLINE);
         return buffer;
     }
@@ -143,4 +247,24 @@ public abstract class SIPHeader
     public final String toString() {
         return this.encode();
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        SIPHeader that = (SIPHeader) other;
+        return equalField(this.headerName, that.headerName)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        SIPHeader that = (SIPHeader) other;
+        return matchField(this.headerName, that.headerName)
+                && super.matchFields(other);
+    }
 }
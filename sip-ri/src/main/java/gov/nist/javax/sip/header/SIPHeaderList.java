@@ -64,7 +64,7 @@ public abstract class SIPHeaderList<HDR extends SIPHeader> extends SIPHeader imp
 
 
     private SIPHeaderList() {
-        hlist = new LinkedList<HDR>();
+        hlist = new HeaderArrayList<HDR>();
     }
 
     /**
@@ -167,10 +167,8 @@ public abstract class SIPHeaderList<HDR extends SIPHeader> extends SIPHeader imp
                     || (prettyEncode &&
                             (this.headerName.equals(SIPHeaderNames.VIA) || this.headerName.equals(SIPHeaderNames.ROUTE) || this.headerName.equals(SIPHeaderNames.RECORD_ROUTE))) // Less confusing to read
                     || this.getClass().equals( ExtensionHeaderList.class) ) {
-                ListIterator<HDR> li = hlist.listIterator();
-                while (li.hasNext()) {
-                    HDR sipheader = (HDR) li.next();
-                    sipheader.encode(buffer);
+                for (int i = 0; i < hlist.size(); i++) {
+                    hlist.get(i).encode(buffer);
                 }
             } else {
                 // These can be concatenated together in an comma separated
@@ -217,6 +215,26 @@ public abstract class SIPHeaderList<HDR extends SIPHeader> extends SIPHeader imp
             return  hlist.get(0);
     }
 
+    /**
+     * Get the header at the top of the list, the same as {@link #getFirst()}
+     * with the type of the headers of the list.
+     *
+     * @return the first header, null if the list is empty.
+     */
+    public HDR peekFirst() {
+        return hlist.isEmpty() ? null : hlist.get(0);
+    }
+
+    /**
+     * Remove the header at the top of the list, by example the Route a proxy
+     * consumed.
+     *
+     * @return the header removed, null if the list is empty.
+     */
+    public HDR pollFirst() {
+        return hlist.isEmpty() ? null : hlist.remove(0);
+    }
+
     /**
      * Get the last element of this list.
      *
@@ -257,9 +275,9 @@ public abstract class SIPHeaderList<HDR extends SIPHeader> extends SIPHeader imp
     }
 
     /**
-     * Get the imbedded linked list.
+     * Get the imbedded list.
      *
-     * @return the imedded linked list of SIP headers.
+     * @return the imbedded list of SIP headers.
      */
     public List<HDR> getHeaderList() {
         return this.hlist;
@@ -462,9 +480,56 @@ public abstract class SIPHeaderList<HDR extends SIPHeader> extends SIPHeader imp
         }
     }
 
+    /**
+     * Get a new list holding the headers of this one, shared instead of
+     * cloned. The list itself is never shared so that adding or removing
+     * headers only affects one message.
+     *
+     * @return a new list with the same headers.
+     */
+    @SuppressWarnings("unchecked")
+    public SIPHeader share() {
+        SIPHeaderList<HDR> retval = (SIPHeaderList<HDR>) super.clone();
+        HeaderArrayList<HDR> headers = new HeaderArrayList<HDR>();
+        headers.ensureCapacity(this.hlist.size());
+        for (int i = 0; i < this.hlist.size(); i++) {
+            headers.add((HDR) this.hlist.get(i).share());
+        }
+        retval.hlist = headers;
+        return retval;
+    }
+
+    /**
+     * Mark the headers of this list as known to the application.
+     */
+    public void expose() {
+        for (int i = 0; i < hlist.size(); i++) {
+            hlist.get(i).expose();
+        }
+    }
+
+    /**
+     * Replace the headers of this list that are shared with another message by
+     * private copies and mark them exposed, the list is about to be handed out.
+     */
+    @SuppressWarnings("unchecked")
+    public void unshareHeaders() {
+        for (int i = 0; i < hlist.size(); i++) {
+            HDR h = hlist.get(i);
+            if (h.isShared()) {
+                h = (HDR) h.clone();
+                hlist.set(i, h);
+            }
+            h.expose();
+        }
+    }
+
     @SuppressWarnings("unchecked")
 	protected final SIPHeaderList<HDR> clonehlist(List<HDR> hlistToClone) {
         if (hlistToClone != null) {
+            if (this.hlist instanceof HeaderArrayList) {
+                ((HeaderArrayList<HDR>) this.hlist).ensureCapacity(this.hlist.size() + hlistToClone.size());
+            }
             for (Iterator<HDR> it = (Iterator<HDR>) hlistToClone.iterator(); it.hasNext();) {
                 Header h = it.next();
                 this.hlist.add((HDR)h.clone());
@@ -501,21 +566,16 @@ public abstract class SIPHeaderList<HDR extends SIPHeader> extends SIPHeader imp
     }
 
     protected StringBuilder encodeBody(StringBuilder buffer) {
-        ListIterator<HDR> iterator = this.listIterator();
-        while (true) {
-            SIPHeader sipHeader = (SIPHeader) iterator.next();
-            if ( sipHeader == this ) throw new RuntimeException ("Unexpected circularity in SipHeaderList");
-            sipHeader.encodeBody(buffer);
-            // if (body.equals("")) System.out.println("BODY == ");
-            if (iterator.hasNext()) {
+        for (int i = 0; i < hlist.size(); i++) {
+            if (i > 0) {
                 if (!this.headerName.equals(PrivacyHeader.NAME))
                     buffer.append(Separators.COMMA);
                 else
                     buffer.append(Separators.SEMICOLON);
-                continue;
-            } else
-                break;
-
+            }
+            SIPHeader sipHeader = hlist.get(i);
+            if ( sipHeader == this ) throw new RuntimeException ("Unexpected circularity in SipHeaderList");
+            sipHeader.encodeValue(buffer);
         }
         return buffer;
     }
@@ -669,5 +729,23 @@ public abstract class SIPHeaderList<HDR extends SIPHeader> extends SIPHeader imp
         return this.hlist.toArray(array);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        SIPHeaderList<?> that = (SIPHeaderList<?>) other;
+        return equalField(this.hlist, that.hlist)
+                && super.equalFields(other);
+    }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        SIPHeaderList<?> that = (SIPHeaderList<?>) other;
+        return matchField(this.hlist, that.hlist)
+                && super.matchFields(other);
+    }
 }
@@ -96,4 +96,24 @@ public class SIPIfMatch extends SIPHeader implements SIPIfMatchHeader,ExtensionH
 
 
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        SIPIfMatch that = (SIPIfMatch) other;
+        return equalField(this.entityTag, that.entityTag)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        SIPIfMatch that = (SIPIfMatch) other;
+        return matchField(this.entityTag, that.entityTag)
+                && super.matchFields(other);
+    }
 }
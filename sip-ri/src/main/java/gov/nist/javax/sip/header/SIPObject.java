@@ -78,12 +78,16 @@ public abstract class SIPObject extends GenericObject {
     }
 
     /**
-     * An introspection based equality predicate for SIPObjects.
+     * An equality predicate for SIPObjects. The fields are compared by the
+     * equalFields methods of the stack classes, through introspection for
+     * other subclasses.
      *@param other the other object to test against.
      */
     public boolean equals(Object other) {
         if (!this.getClass().equals(other.getClass()))
             return false;
+        if (hasFieldComparison(this.getClass()))
+            return equalFields(other);
         SIPObject that = (SIPObject) other;
         Class<?> myclass = this.getClass();
         Class<?> hisclass = other.getClass();
@@ -177,6 +181,8 @@ public abstract class SIPObject extends GenericObject {
 
         if (!this.getClass().equals(other.getClass()))
             return false;
+        if (hasFieldComparison(this.getClass()))
+            return matchFields(other);
         GenericObject that = (GenericObject) other;
         Class<?> myclass = this.getClass();
         Class<?> hisclass = other.getClass();
@@ -123,6 +123,26 @@ public class Server extends SIPHeader implements ServerHeader {
         
         productTokens = (List<String>)product;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Server that = (Server) other;
+        return equalField(this.productTokens, that.productTokens)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Server that = (Server) other;
+        return matchField(this.productTokens, that.productTokens)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -204,6 +204,32 @@ public final class StatusLine extends SIPObject implements SipStatusLine {
         }
         return minor;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        StatusLine that = (StatusLine) other;
+        return this.matchStatusClass == that.matchStatusClass
+                && equalField(this.sipVersion, that.sipVersion)
+                && this.statusCode == that.statusCode
+                && equalField(this.reasonPhrase, that.reasonPhrase)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        StatusLine that = (StatusLine) other;
+        return this.matchStatusClass == that.matchStatusClass
+                && matchField(this.sipVersion, that.sipVersion)
+                && this.statusCode == that.statusCode
+                && matchField(this.reasonPhrase, that.reasonPhrase)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
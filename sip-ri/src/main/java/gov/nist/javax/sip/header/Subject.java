@@ -98,6 +98,25 @@ public class Subject extends SIPHeader implements SubjectHeader {
         return subject;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Subject that = (Subject) other;
+        return equalField(this.subject, that.subject)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Subject that = (Subject) other;
+        return matchField(this.subject, that.subject)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
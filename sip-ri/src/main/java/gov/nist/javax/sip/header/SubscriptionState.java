@@ -183,5 +183,31 @@ public class SubscriptionState
         }
         return buffer;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        SubscriptionState that = (SubscriptionState) other;
+        return this.expires == that.expires
+                && this.retryAfter == that.retryAfter
+                && equalField(this.reasonCode, that.reasonCode)
+                && equalField(this.state, that.state)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        SubscriptionState that = (SubscriptionState) other;
+        return this.expires == that.expires
+                && this.retryAfter == that.retryAfter
+                && matchField(this.reasonCode, that.reasonCode)
+                && matchField(this.state, that.state)
+                && super.matchFields(other);
+    }
 }
 
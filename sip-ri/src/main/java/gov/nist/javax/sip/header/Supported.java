@@ -113,6 +113,26 @@ public class Supported extends SIPHeader implements SupportedHeader {
     public String getOptionTag() {
         return optionTag;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Supported that = (Supported) other;
+        return equalField(this.optionTag, that.optionTag)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Supported that = (Supported) other;
+        return matchField(this.optionTag, that.optionTag)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
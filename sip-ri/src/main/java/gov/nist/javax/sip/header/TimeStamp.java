@@ -193,4 +193,27 @@ public class TimeStamp extends SIPHeader implements TimeStampHeader {
 
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        TimeStamp that = (TimeStamp) other;
+        return this.timeStamp == that.timeStamp
+                && this.delay == that.delay
+                && this.delayFloat == that.delayFloat
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        TimeStamp that = (TimeStamp) other;
+        return this.timeStamp == that.timeStamp
+                && this.delay == that.delay
+                && this.delayFloat == that.delayFloat
+                && super.matchFields(other);
+    }
 }
@@ -78,7 +78,7 @@ public final class To extends AddressParametersHeader implements
      * @return String
      */
     public String encode() {
-        return headerName + COLON + SP + encodeBody() + NEWLINE;
+        return headerName + COLON + SP + encodeValue(new StringBuilder()) + NEWLINE;
     }
 
     /**
@@ -115,6 +115,7 @@ public final class To extends AddressParametersHeader implements
      * @return hostport field
      */
     public HostPort getHostPort() {
+        markDirty();
         if (address == null)
             return null;
         return address.getHostPort();
@@ -159,6 +160,7 @@ public final class To extends AddressParametersHeader implements
      * remove Tag member
      */
     public void removeTag() {
+        markDirty();
             if (parameters != null)
                 parameters.delete(ParameterNames.TAG);
 
@@ -171,6 +173,7 @@ public final class To extends AddressParametersHeader implements
      * @param t - tag String to set.
      */
     public void setTag(String t) throws ParseException {
+        markDirty();
         // JvB: check that it is a valid token
         Parser.checkToken(t);
         this.setParameter(ParameterNames.TAG, t);
@@ -188,4 +191,12 @@ public final class To extends AddressParametersHeader implements
     public boolean equals(Object other) {
         return (other instanceof ToHeader) && super.equals(other);
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
 }
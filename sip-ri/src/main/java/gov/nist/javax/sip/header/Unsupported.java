@@ -91,6 +91,26 @@ public class Unsupported
                     + " Unsupported, setOptionTag(), The option tag parameter is null");
         optionTag = o;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Unsupported that = (Unsupported) other;
+        return equalField(this.optionTag, that.optionTag)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Unsupported that = (Unsupported) other;
+        return matchField(this.optionTag, that.optionTag)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -126,6 +126,25 @@ public class UserAgent extends SIPHeader implements UserAgentHeader {
         return retval;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        UserAgent that = (UserAgent) other;
+        return equalField(this.productTokens, that.productTokens)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        UserAgent that = (UserAgent) other;
+        return matchField(this.productTokens, that.productTokens)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -135,6 +135,7 @@ public class Via
      * @return Protocol field
      */
     public Protocol getSentProtocol() {
+        markDirty();
 
         return sentProtocol;
     }
@@ -144,6 +145,7 @@ public class Via
      *@return SentBy field
      */
     public HostPort getSentBy() {
+        markDirty();
         return sentBy;
     }
 
@@ -163,6 +165,7 @@ public class Via
      * @return parameters field
      */
     public NameValueList getViaParms() {
+        markDirty();
         return parameters;
     }
 
@@ -195,12 +198,14 @@ public class Via
     /** remove the port.
      */
     public void removePort() {
+        markDirty();
         sentBy.removePort();
     }
 
     /** remove the comment field.
      */
     public void removeComment() {
+        markDirty();
         comment = null;
     }
 
@@ -208,6 +213,7 @@ public class Via
      * @param protocolVersion String to set
      */
     public void setProtocolVersion(String protocolVersion) {
+        markDirty();
         if (sentProtocol == null)
             sentProtocol = new Protocol();
         sentProtocol.setProtocolVersion(protocolVersion);
@@ -217,6 +223,7 @@ public class Via
          * @param host String to set
          */
     public void setHost(Host host) {
+        markDirty();
         if (sentBy == null) {
             sentBy = new HostPort();
         }
@@ -228,6 +235,7 @@ public class Via
      * @param s Protocol to set.
      */
     public void setSentProtocol(Protocol s) {
+        markDirty();
         sentProtocol = s;
     }
 
@@ -236,6 +244,7 @@ public class Via
      * @param s HostPort to set.
      */
     public void setSentBy(HostPort s) {
+        markDirty();
         sentBy = s;
     }
 
@@ -245,6 +254,7 @@ public class Via
      * @deprecated This is an RFC 2543 feature.
      */
     public void setComment(String c) {
+        markDirty();
         comment = c;
     }
 
@@ -277,6 +287,7 @@ public class Via
      * unexpectedly while parsing the host value.
      */
     public void setHost(String host) throws ParseException {
+        markDirty();
         if (sentBy == null)
             sentBy = new HostPort();
         try {
@@ -311,6 +322,7 @@ public class Via
      * @param port - the Integer.valueOf value of the port of this ViaHeader
      */
     public void setPort(int port) throws InvalidArgumentException {
+        markDirty();
 
         if ( port!=-1 && (port<1 || port>65535)) {
             throw new InvalidArgumentException( "Port value out of range -1, [1..65535]" );
@@ -325,6 +337,7 @@ public class Via
      * Set the RPort flag parameter
      */
     public void setRPort(){
+        markDirty();
         // Fix for Issue 309 by jorabin
         try {
             this.setParameter(Via.RPORT,null);
@@ -387,6 +400,10 @@ public class Via
                     + "Via, setTransport(), the transport parameter is null.");
         if (sentProtocol == null)
             sentProtocol = new Protocol();
+        // the stack sets the transport of the topmost via on every send,
+        // keep the received value if it does not change
+        if (!transport.equalsIgnoreCase(sentProtocol.getTransport()))
+            markDirty();
         sentProtocol.setTransport(transport);
     }
 
@@ -410,6 +427,7 @@ public class Via
      * unexpectedly while parsing the protocol value.
      */
     public void setProtocol(String protocol) throws ParseException {
+        markDirty();
         if (protocol == null)
             throw new NullPointerException(
                 "JAIN-SIP Exception, "
@@ -440,6 +458,7 @@ public class Via
      * greater than 255, excluding -1 the default not set value.
      */
     public void setTTL(int ttl) throws InvalidArgumentException {
+        markDirty();
         if (ttl < 0 && ttl != -1)
             throw new InvalidArgumentException(
                 "JAIN-SIP Exception"
@@ -467,6 +486,7 @@ public class Via
      * unexpectedly while parsing the mAddr value.
      */
     public void setMAddr(String mAddr) throws ParseException {
+        markDirty();
         if (mAddr == null)
             throw new NullPointerException(
                 "JAIN-SIP Exception, "
@@ -497,6 +517,7 @@ public class Via
      * unexpectedly while parsing the received value.
      */
     public void setReceived(String received) throws ParseException {
+        markDirty();
         if (received == null)
             throw new NullPointerException(
                 "JAIN-SIP Exception, "
@@ -525,6 +546,7 @@ public class Via
      * unexpectedly while parsing the branch value.
      */
     public void setBranch(String branch) throws ParseException {
+        markDirty();
         if (branch == null || branch.length()==0)
             throw new NullPointerException(
                 "JAIN-SIP Exception, "
@@ -563,4 +585,35 @@ public class Via
         return null;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.header.SIPHeader#isEncodingCacheable()
+     */
+    protected boolean isEncodingCacheable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Via that = (Via) other;
+        return equalField(this.sentProtocol, that.sentProtocol)
+                && equalField(this.sentBy, that.sentBy)
+                && equalField(this.comment, that.comment)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Via that = (Via) other;
+        return matchField(this.sentProtocol, that.sentProtocol)
+                && matchField(this.sentBy, that.sentBy)
+                && matchField(this.comment, that.comment)
+                && super.matchFields(other);
+    }
 }
@@ -148,6 +148,30 @@ public class Warning extends SIPHeader implements WarningHeader {
         } else
             this.text = text;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Warning that = (Warning) other;
+        return this.code == that.code
+                && equalField(this.agent, that.agent)
+                && equalField(this.text, that.text)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Warning that = (Warning) other;
+        return this.code == that.code
+                && matchField(this.agent, that.agent)
+                && matchField(this.text, that.text)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -395,5 +395,27 @@ public final class Diversion
        System.err.println("Error parsing Diversion header: " + e.getMessage());
      }
    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Diversion that = (Diversion) other;
+        return equalField(this.diversion, that.diversion)
+                && this.wildCardFlag == that.wildCardFlag
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Diversion that = (Diversion) other;
+        return matchField(this.diversion, that.diversion)
+                && this.wildCardFlag == that.wildCardFlag
+                && super.matchFields(other);
+    }
 }
    
\ No newline at end of file
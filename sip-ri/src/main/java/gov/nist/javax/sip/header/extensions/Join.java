@@ -184,5 +184,27 @@ public class Join
 //      retval.setCallIdentifier( (CallIdentifier) this.callIdentifier.clone() );
 //      return retval;
 //  }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Join that = (Join) other;
+        return equalField(this.callIdentifier, that.callIdentifier)
+                && equalField(this.callId, that.callId)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Join that = (Join) other;
+        return matchField(this.callIdentifier, that.callIdentifier)
+                && matchField(this.callId, that.callId)
+                && super.matchFields(other);
+    }
 }
 
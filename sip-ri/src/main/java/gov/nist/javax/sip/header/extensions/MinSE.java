@@ -96,4 +96,24 @@ public class MinSE
             throw new InvalidArgumentException("bad argument " + expires);
         this.expires = expires;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        MinSE that = (MinSE) other;
+        return this.expires == that.expires
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        MinSE that = (MinSE) other;
+        return this.expires == that.expires
+                && super.matchFields(other);
+    }
 }
@@ -184,6 +184,28 @@ public class Replaces
 //          retval.setCallIdentifier( (CallIdentifier) this.callIdentifier.clone() );
 //      return retval;
 //  }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        Replaces that = (Replaces) other;
+        return equalField(this.callIdentifier, that.callIdentifier)
+                && equalField(this.callId, that.callId)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        Replaces that = (Replaces) other;
+        return matchField(this.callIdentifier, that.callIdentifier)
+                && matchField(this.callId, that.callId)
+                && super.matchFields(other);
+    }
 }
 /*
  * $Log: not supported by cvs2svn $
@@ -98,6 +98,26 @@ public final class SessionExpires
     public void setRefresher(String refresher) {
         this.parameters.set(REFRESHER,refresher);
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        SessionExpires that = (SessionExpires) other;
+        return this.expires == that.expires
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        SessionExpires that = (SessionExpires) other;
+        return this.expires == that.expires
+                && super.matchFields(other);
+    }
 }
 
 
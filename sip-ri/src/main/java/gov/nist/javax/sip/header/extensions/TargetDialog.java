@@ -196,4 +196,26 @@ public class TargetDialog extends ParametersHeader implements ExtensionHeader, T
             System.err.println("Error parsing Target-Dialog header: " + e.getMessage());
         }
     }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        TargetDialog that = (TargetDialog) other;
+        return equalField(this.callIdentifier, that.callIdentifier)
+                && equalField(this.callId, that.callId)
+                && super.equalFields(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        TargetDialog that = (TargetDialog) other;
+        return matchField(this.callIdentifier, that.callIdentifier)
+                && matchField(this.callId, that.callId)
+                && super.matchFields(other);
+    }
 }
\ No newline at end of file
@@ -83,6 +83,24 @@ public abstract class AddressHeaderIms extends SIPHeader {
         return retval;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#equalFields(java.lang.Object)
+     */
+    protected boolean equalFields(Object other) {
+        AddressHeaderIms that = (AddressHeaderIms) other;
+        return equalField(this.address, that.address)
+                && super.equalFields(other);
+    }
 
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.core.GenericObject#matchFields(java.lang.Object)
+     */
+    protected boolean matchFields(Object other) {
+        AddressHeaderIms that = (AddressHeaderIms) other;
+        return matchField(this.address, that.address)
+                && super.matchFields(other);
+    }
 }
 
@@ -43,6 +43,7 @@ import javax.sip.header.UserAgentHeader;
 import javax.sip.message.Request;
 import javax.sip.message.Response;
 
+import gov.nist.core.StacklessParseException;
 import gov.nist.javax.sip.header.CSeq;
 import gov.nist.javax.sip.header.CallID;
 import gov.nist.javax.sip.header.ContentType;
@@ -749,7 +750,12 @@ public class MessageFactoryImpl implements MessageFactoryExt {
         if (this.testing)
             exHandler = parseExceptionListener;
 
-        SIPMessage sipMessage = smp.parseSIPMessage(requestString.getBytes(), true, this.strict, exHandler);
+        SIPMessage sipMessage;
+        try {
+            sipMessage = smp.parseSIPMessage(requestString.getBytes(), true, this.strict, exHandler);
+        } catch (ParseException ex) {
+            throw StacklessParseException.withStackTrace(ex);
+        }
 
         if (!(sipMessage instanceof SIPRequest))
             throw new ParseException(requestString, 0);
@@ -772,7 +778,12 @@ public class MessageFactoryImpl implements MessageFactoryExt {
 
         StringMsgParser smp = new StringMsgParser();
 
-        SIPMessage sipMessage = smp.parseSIPMessage(responseString.getBytes(), true, false, null);
+        SIPMessage sipMessage;
+        try {
+            sipMessage = smp.parseSIPMessage(responseString.getBytes(), true, false, null);
+        } catch (ParseException ex) {
+            throw StacklessParseException.withStackTrace(ex);
+        }
 
         if (!(sipMessage instanceof SIPResponse))
             throw new ParseException(responseString, 0);
@@ -63,8 +63,10 @@ import javax.sip.header.ToHeader;
 import javax.sip.header.ViaHeader;
 import javax.sip.message.Request;
 
+import gov.nist.core.CommonLogger;
 import gov.nist.core.InternalErrorHandler;
 import gov.nist.core.Separators;
+import gov.nist.core.StackLogger;
 import gov.nist.javax.sip.SIPConstants;
 import gov.nist.javax.sip.Utils;
 import gov.nist.javax.sip.header.AlertInfo;
@@ -79,6 +81,7 @@ import gov.nist.javax.sip.header.ErrorInfo;
 import gov.nist.javax.sip.header.ErrorInfoList;
 import gov.nist.javax.sip.header.From;
 import gov.nist.javax.sip.header.InReplyTo;
+import gov.nist.javax.sip.header.LazyHeader;
 import gov.nist.javax.sip.header.MaxForwards;
 import gov.nist.javax.sip.header.Priority;
 import gov.nist.javax.sip.header.ProxyAuthenticate;
@@ -108,6 +111,7 @@ import gov.nist.javax.sip.parser.HeaderParser;
 import gov.nist.javax.sip.parser.ParserFactory;
 import gov.nist.javax.sip.parser.PipelinedMsgParser;
 import gov.nist.javax.sip.parser.StringMsgParser;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
 
 /*
  * Acknowledgements: Yanick Belanger sent in a patch for the right content length when the content
@@ -135,6 +139,8 @@ import gov.nist.javax.sip.parser.StringMsgParser;
 public abstract class SIPMessage extends MessageObject implements MessageExt {
     private static final long serialVersionUID = 1L;
 
+    private static StackLogger logger = CommonLogger.getLogger(SIPMessage.class);
+
     public static final String DOUBLE_CRLF = "\r\n\r\n";
     public static final String SINGLE_CRLF = "\r\n";
 
@@ -219,6 +225,11 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
 
     private int peerPacketSourcePort;
 
+    /**
+     * The trace of the message when it is sampled by the message tracer of the stack.
+     */
+    private transient MessageTrace messageTrace;
+
     /**
      * Return true if the header belongs only in a Request.
      *
@@ -256,6 +267,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      */
     public LinkedList<String> getMessageAsEncodedStrings() {
         LinkedList<String> retval = new LinkedList<String>();
+        resolveLazyHeaders();
         Iterator<SIPHeader> li = headers.iterator();
         while (li.hasNext()) {
             SIPHeader sipHeader = (SIPHeader) li.next();
@@ -302,16 +314,15 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * server transaction.
      */
     public final String getDialogId(boolean isServer) {
-        To to = (To) this.getTo();
-        return this.getDialogId(isServer, to.getTag());
+        return this.getDialogId(isServer, toHeader.getTag());
     }
 
     /**
      * Get a dialog id given the remote tag.
      */
     public final String getDialogId(boolean isServer, String toTag) {
-        From from = (From) this.getFrom();
-        CallID cid = (CallID) this.getCallId();
+        From from = this.fromHeader;
+        CallID cid = this.callIdHeader;
         StringBuffer retval = new StringBuffer(cid.getCallId());
         if (!isServer) {
             // retval.append(COLON).append(from.getUserAtHostPort());
@@ -417,6 +428,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
             throw new IllegalArgumentException("Bad class " + template.getClass());
         }
         SIPMessage templateMessage = (SIPMessage) template;
+        templateMessage.resolveLazyHeaders();
         Object[] templateHeaders = templateMessage.headers.toArray();
         for (int i = 0; i < templateHeaders.length; i++) {
             SIPHeader hdr = (SIPHeader) templateHeaders[i];
@@ -500,10 +512,12 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
             return DOUBLE_CRLF.getBytes();
         }
         // JvB: added to fix case where application provides the wrong transport
-        // in the topmost Via header
-        ViaHeader topVia = (ViaHeader) this.getHeader(ViaHeader.NAME);
+        // in the topmost Via header, a topmost Via shared with another message
+        // is only copied when the transport differs
         try {
-            topVia.setTransport(transport);
+            if (!transport.equals(peekTopmostVia().getTransport())) {
+                getTopmostVia().setTransport(transport);
+            }
         } catch (ParseException e) {
             InternalErrorHandler.handleException(e);
         }
@@ -558,6 +572,19 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * @return A cloned copy of this object.
      */
     public Object clone() {
+        return copy(false);
+    }
+
+    /**
+     * Copy this message. When headers are shared the copy references the
+     * headers of this message instead of clones of them, each message then
+     * takes a private copy of a header the first time it hands it out. The
+     * Content-Length header is always cloned.
+     *
+     * @param shareHeaders true to share the headers instead of cloning them.
+     * @return the copy of this message.
+     */
+    protected SIPMessage copy(boolean shareHeaders) {
         SIPMessage retval = (SIPMessage) super.clone();
         retval.headerTable = new ConcurrentHashMap<String, SIPHeader>();
         retval.fromHeader = null;
@@ -571,7 +598,11 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
             retval.headers = new ConcurrentLinkedQueue<SIPHeader>();
             for (Iterator<SIPHeader> iter = headers.iterator(); iter.hasNext();) {
                 SIPHeader hdr = (SIPHeader) iter.next();
-                retval.attachHeader((SIPHeader) hdr.clone());
+                if (shareHeaders && !(hdr instanceof ContentLength)) {
+                    retval.attachHeader(hdr.share());
+                } else {
+                    retval.attachHeader((SIPHeader) hdr.clone());
+                }
             }
 
         }
@@ -584,6 +615,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         retval.unrecognizedHeaders = this.unrecognizedHeaders;
         retval.remoteAddress = this.remoteAddress;
         retval.remotePort = this.remotePort;
+        retval.messageTrace = null;
         return retval;
     }
 
@@ -671,11 +703,12 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      *
      * @param sipHeader SIPHeader that replaces a header of the same type.
      */
-    public void setHeader(Header sipHeader) {
+    public synchronized void setHeader(Header sipHeader) {
         SIPHeader header = (SIPHeader) sipHeader;
         if (header == null) {
             throw new IllegalArgumentException("null header!");
         }
+        header.expose();
         try {
             if (header instanceof SIPHeaderList) {
                 SIPHeaderList< ?> hl = (SIPHeaderList< ?>) header;
@@ -736,7 +769,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * the number of headers that are in this message.
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
-	public void attachHeader(SIPHeader header, boolean replaceFlag, boolean top)
+	public synchronized void attachHeader(SIPHeader header, boolean replaceFlag, boolean top)
             throws SIPDuplicateHeaderException {
         if (header == null) {
             throw new NullPointerException("null header");
@@ -744,6 +777,16 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
 
         SIPHeader h;
 
+        if (!replaceFlag && ListMap.hasList(header)) {
+            // a header joining a list the message already has, a Via pushed or
+            // a Route added by a proxy, goes straight into it
+            SIPHeader existing = resolveLazyHeader(SIPHeaderNamesCache.toLowerCase(header.getName()));
+            if (existing instanceof SIPHeaderList && existing.getClass() == ListMap.getListClass(header.getClass())) {
+                ((SIPHeaderList<SIPHeader>) existing).add(header, top);
+                return;
+            }
+        }
+
         if (ListMap.hasList(header) && !SIPHeaderList.class.isAssignableFrom(header.getClass())) {
             SIPHeaderList<SIPHeader> hdrList = ListMap.getList(header);
             hdrList.add(header);
@@ -753,6 +796,11 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         }
 
         String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(h.getName());
+        if (!replaceFlag && !(h instanceof LazyHeader)) {
+            // a header of the same name still kept raw has to be parsed for
+            // the duplicate and list handling below to work on parsed headers
+            resolveLazyHeader(headerNameLowerCase);
+        }
         if (replaceFlag) {
             headerTable.remove(headerNameLowerCase);
         } else if (headerTable.containsKey(headerNameLowerCase) && !(h instanceof SIPHeaderList)) {
@@ -815,6 +863,75 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
 
     }
 
+    /**
+     * Attach a header of another message without copying it. The header is
+     * shared by both messages until one of them hands it out, the message
+     * then takes a private copy of it first. Use this for headers copied
+     * as they are to derived messages.
+     *
+     * @param header header of another message.
+     */
+    public void attachSharedHeader(SIPHeader header) {
+        this.attachHeader(header.share());
+    }
+
+    /**
+     * Replace a header shared with another message by a private copy before
+     * handing it out. For header lists the headers of the list are replaced.
+     * The header handed out is marked exposed so that it is never shared with
+     * a message created afterwards.
+     *
+     * @param sipHeader a header of this message or null.
+     * @return the header to hand out.
+     */
+    private SIPHeader unshare(SIPHeader sipHeader) {
+        if (sipHeader instanceof SIPHeaderList) {
+            ((SIPHeaderList<?>) sipHeader).unshareHeaders();
+            return sipHeader;
+        }
+        if (sipHeader == null) {
+            return null;
+        }
+        if (!sipHeader.isShared()) {
+            sipHeader.expose();
+            // shared concurrently, the sharing message may not have seen the
+            // header exposed, hand out a copy
+            if (!sipHeader.isShared()) {
+                return sipHeader;
+            }
+        }
+        synchronized (this) {
+            String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(sipHeader.getName());
+            SIPHeader current = headerTable.get(headerNameLowerCase);
+            if (current != sipHeader) {
+                // already replaced, or the header was removed from this message
+                SIPHeader retval = current == null || current instanceof SIPHeaderList ? sipHeader : current;
+                retval.expose();
+                return retval;
+            }
+            SIPHeader copy = (SIPHeader) sipHeader.clone();
+            copy.expose();
+            headerTable.put(headerNameLowerCase, copy);
+            ConcurrentLinkedQueue<SIPHeader> replaced = new ConcurrentLinkedQueue<SIPHeader>();
+            for (SIPHeader next : headers) {
+                replaced.add(next == sipHeader ? copy : next);
+            }
+            this.headers = replaced;
+            if (copy instanceof From) {
+                this.fromHeader = (From) copy;
+            } else if (copy instanceof To) {
+                this.toHeader = (To) copy;
+            } else if (copy instanceof CSeq) {
+                this.cSeqHeader = (CSeq) copy;
+            } else if (copy instanceof CallID) {
+                this.callIdHeader = (CallID) copy;
+            } else if (copy instanceof MaxForwards) {
+                this.maxForwardsHeader = (MaxForwards) copy;
+            }
+            return copy;
+        }
+    }
+
     /**
      * Remove a header given its name. If multiple headers of a given name are
      * present then the top flag determines which end to remove headers from.
@@ -822,10 +939,10 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * @param headerName is the name of the header to remove.
      * @param top -- flag that indicates which end of header list to process.
      */
-    public void removeHeader(String headerName, boolean top) {
+    public synchronized void removeHeader(String headerName, boolean top) {
 
         String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(headerName);
-        SIPHeader toRemove = (SIPHeader) headerTable.get(headerNameLowerCase);
+        SIPHeader toRemove = resolveLazyHeader(headerNameLowerCase);
         // nothing to do then we are done.
         if (toRemove == null) {
             return;
@@ -882,7 +999,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      *
      * @param headerName is the name of the header to remove.
      */
-    public void removeHeader(String headerName) {
+    public synchronized void removeHeader(String headerName) {
 
         if (headerName == null) {
             throw new NullPointerException("null arg");
@@ -919,6 +1036,93 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         }
     }
 
+    /**
+     * Attach a header line that is kept in its raw form until the header is
+     * first asked for. Header lines of the same name received later are added
+     * to the same placeholder so they are parsed together.
+     *
+     * @param headerName the canonical (non compact) name of the header.
+     * @param buffer the buffer holding the header line.
+     * @param start offset of the header line in the buffer.
+     * @param end offset after the header line in the buffer, line terminator
+     *            excluded.
+     * @see LazyHeader
+     */
+    public synchronized void attachLazyHeader(String headerName, byte[] buffer, int start, int end) {
+        String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(headerName);
+        SIPHeader existing = headerTable.get(headerNameLowerCase);
+        if (existing == null) {
+            LazyHeader lazyHeader = new LazyHeader(headerName, buffer, start, end);
+            headerTable.put(headerNameLowerCase, lazyHeader);
+            headers.add(lazyHeader);
+        } else if (existing instanceof LazyHeader) {
+            ((LazyHeader) existing).addLine(buffer, start, end);
+        } else {
+            parseLazyHeader(new LazyHeader(headerName, buffer, start, end));
+        }
+    }
+
+    /**
+     * Get the header stored under the given name, parsing it first if it is
+     * still kept in its raw form.
+     */
+    protected SIPHeader resolveLazyHeader(String headerNameLowerCase) {
+        SIPHeader sipHeader = headerTable.get(headerNameLowerCase);
+        if (sipHeader instanceof LazyHeader) {
+            // the header list is replaced, hold the message lock so that a
+            // concurrent replacement of it is not lost
+            synchronized (this) {
+                if (headerTable.get(headerNameLowerCase) == sipHeader) {
+                    headerTable.remove(headerNameLowerCase);
+                    parseLazyHeader((LazyHeader) sipHeader);
+                    // keep the parsed header where the raw one was received
+                    SIPHeader parsed = headerTable.get(headerNameLowerCase);
+                    ConcurrentLinkedQueue<SIPHeader> reordered = new ConcurrentLinkedQueue<SIPHeader>();
+                    for (SIPHeader next : headers) {
+                        if (next == sipHeader) {
+                            if (parsed != null) {
+                                reordered.add(parsed);
+                            }
+                        } else if (next != parsed) {
+                            reordered.add(next);
+                        }
+                    }
+                    this.headers = reordered;
+                }
+            }
+            sipHeader = headerTable.get(headerNameLowerCase);
+        }
+        return sipHeader;
+    }
+
+    /**
+     * Parse all the headers of this message still kept in their raw form.
+     */
+    protected void resolveLazyHeaders() {
+        for (SIPHeader sipHeader : headers) {
+            if (sipHeader instanceof LazyHeader) {
+                resolveLazyHeader(SIPHeaderNamesCache.toLowerCase(sipHeader.getName()));
+            }
+        }
+    }
+
+    private void parseLazyHeader(LazyHeader lazyHeader) {
+        for (int i = 0; i < lazyHeader.getLineCount(); i++) {
+            String line = lazyHeader.getLine(i);
+            try {
+                SIPHeader sipHeader = ParserFactory.createParser(line + "\n").parse();
+                attachHeader(sipHeader, false, false);
+            } catch (ParseException ex) {
+                // same as a header that can not be parsed when it is added,
+                // keep it around unparsed
+                if (logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+                    logger.logDebug("Could not parse lazily kept header " + line + " : " + ex.getMessage());
+                }
+                this.getUnrecognizedHeadersList().add(line);
+            }
+        }
+    }
+
     /**
      * Generate (compute) a transaction ID for this SIP message.
      *
@@ -939,7 +1143,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * transaction identifier).
      */
     public String getTransactionId() {
-        Via topVia = getTopmostVia();
+        Via topVia = peekTopmostVia();
 //        if (!this.getViaHeaders().isEmpty()) {
 //            topVia = (Via) this.getViaHeaders().getFirst();
 //        }
@@ -953,8 +1157,8 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
             // Bis 09 compatible branch assignment algorithm.
             // implies that the branch id can be used as a transaction
             // identifier.
-            if (this.getCSeq().getMethod().equals(Request.CANCEL)) {
-                return (topVia.getBranch() + ":" + this.getCSeq().getMethod()).toLowerCase();
+            if (this.cSeqHeader.getMethod().equals(Request.CANCEL)) {
+                return (topVia.getBranch() + ":" + this.cSeqHeader.getMethod()).toLowerCase();
             } else {
                 return topVia.getBranch().toLowerCase();
             }
@@ -962,7 +1166,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
             // Old style client so construct the transaction identifier
             // from various fields of the request.
             StringBuilder retval = new StringBuilder();
-            From from = (From) this.getFrom();
+            From from = this.fromHeader;
             // String hpFrom = from.getUserAtHostPort();
             // retval.append(hpFrom).append(":");
             if (from != null && from.hasTag()) {
@@ -984,7 +1188,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
                     retval.append("-").append(5060);
                 }
             }
-            if (getCSeq() != null && this.getCSeq().getMethod().equals(Request.CANCEL)) {
+            if (cSeqHeader != null && this.cSeqHeader.getMethod().equals(Request.CANCEL)) {
                 retval.append(Request.CANCEL);
             }
             return retval.toString().toLowerCase().replace(":", "-").replace("@", "-")
@@ -1019,6 +1223,10 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * @return an Iterator for the headers of this message.
      */
     public Iterator<SIPHeader> getHeaders() {
+        resolveLazyHeaders();
+        for (SIPHeader sipHeader : headers) {
+            unshare(sipHeader);
+        }
         return headers.iterator();
     }
 
@@ -1035,7 +1243,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         if (lowerCaseHeaderName == null) {
             throw new NullPointerException("bad name");
         }
-        SIPHeader sipHeader = (SIPHeader) headerTable.get(lowerCaseHeaderName);
+        SIPHeader sipHeader = unshare(resolveLazyHeader(lowerCaseHeaderName));
         if (sipHeader instanceof SIPHeaderList) {
             return (Header) ((SIPHeaderList<?>) sipHeader).getFirst();
         } else {
@@ -1068,7 +1276,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * @return -- the from header.
      */
     public FromHeader getFrom() {
-        return (FromHeader) fromHeader;
+        return (FromHeader) unshare(fromHeader);
     }
 
     /**
@@ -1118,7 +1326,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         return (ViaList) getSIPHeaderListLowerCase(VIA_LOWERCASE);
     }
 
-    private static final String VIA_LOWERCASE = SIPHeaderNamesCache.toLowerCase(ViaHeader.NAME);
+    protected static final String VIA_LOWERCASE = SIPHeaderNamesCache.toLowerCase(ViaHeader.NAME);
 
     /**
      * Set A list of via headers.
@@ -1153,17 +1361,107 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         if (this.getViaHeaders() == null) {
             return null;
         } else {
-            return (Via) (getViaHeaders().getFirst());
+            return getViaHeaders().peekFirst();
         }
     }
 
+    /**
+     * Get the topmost via header for the stack to read it, without taking a
+     * private copy when it is shared with another message. The header must
+     * not be modified, except by the transport on a message it has just
+     * parsed.
+     *
+     * @return the top most via header if one exists or null if none exists.
+     */
+    public Via peekTopmostVia() {
+        ViaList viaList = peekViaHeaders();
+        if (viaList == null) {
+            return null;
+        } else {
+            return viaList.peekFirst();
+        }
+    }
+
+    /**
+     * Get the Via list of headers for the stack to read it, without taking
+     * private copies of the headers shared with another message. The list and
+     * its headers must not be modified, except by the transport on a message
+     * it has just parsed.
+     *
+     * @return List containing Via headers, null if none exists.
+     */
+    public ViaList peekViaHeaders() {
+        return (ViaList) resolveLazyHeader(VIA_LOWERCASE);
+    }
+
+    /**
+     * Get the first header of the given name for the stack to read it,
+     * without taking a private copy when it is shared with another message.
+     * The header must not be modified.
+     *
+     * @param headerName the name of the header.
+     * @return the first header of the given name, null if none exists.
+     */
+    public SIPHeader peekHeader(String headerName) {
+        SIPHeader sipHeader = resolveLazyHeader(SIPHeaderNamesCache.toLowerCase(headerName));
+        if (sipHeader instanceof SIPHeaderList) {
+            return ((SIPHeaderList<?>) sipHeader).peekFirst();
+        } else {
+            return sipHeader;
+        }
+    }
+
+    /**
+     * Get the From header for the stack to read it, without taking a private
+     * copy when it is shared with another message. The header must not be
+     * modified.
+     *
+     * @return the From header, null if none exists.
+     */
+    public From peekFrom() {
+        return fromHeader;
+    }
+
+    /**
+     * Get the To header for the stack to read it, without taking a private
+     * copy when it is shared with another message. The header must not be
+     * modified.
+     *
+     * @return the To header, null if none exists.
+     */
+    public To peekTo() {
+        return toHeader;
+    }
+
+    /**
+     * Get the CSeq header for the stack to read it, without taking a private
+     * copy when it is shared with another message. The header must not be
+     * modified.
+     *
+     * @return the CSeq header, null if none exists.
+     */
+    public CSeq peekCSeq() {
+        return cSeqHeader;
+    }
+
+    /**
+     * Get the Call-ID header for the stack to read it, without taking a
+     * private copy when it is shared with another message. The header must
+     * not be modified.
+     *
+     * @return the Call-ID header, null if none exists.
+     */
+    public CallID peekCallId() {
+        return callIdHeader;
+    }
+
     /**
      * Get the CSeq list of header (null if one does not exist).
      *
      * @return CSeq header
      */
     public CSeqHeader getCSeq() {
-        return (CSeqHeader) cSeqHeader;
+        return (CSeqHeader) unshare(cSeqHeader);
     }
 
     /**
@@ -1184,7 +1482,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * @return Max-Forwards header
      */
     public MaxForwardsHeader getMaxForwards() {
-        return maxForwardsHeader;
+        return (MaxForwardsHeader) unshare(maxForwardsHeader);
     }
 
     /**
@@ -1205,7 +1503,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         return (RouteList) getSIPHeaderListLowerCase(ROUTE_LOWERCASE);
     }
 
-    private static final String ROUTE_LOWERCASE = SIPHeaderNamesCache
+    protected static final String ROUTE_LOWERCASE = SIPHeaderNamesCache
             .toLowerCase(RouteHeader.NAME);
 
     /**
@@ -1214,7 +1512,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * @return Call-ID header .
      */
     public CallIdHeader getCallId() {
-        return callIdHeader;
+        return (CallIdHeader) unshare(callIdHeader);
     }
 
     /**
@@ -1235,7 +1533,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         if (callIdHeader == null) {
             this.setHeader(new CallID());
         }
-        callIdHeader.setCallId(callId);
+        ((CallID) unshare(callIdHeader)).setCallId(callId);
     }
 
     /**
@@ -1256,7 +1554,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      * @return To header
      */
     public ToHeader getTo() {
-        return (ToHeader) toHeader;
+        return (ToHeader) unshare(toHeader);
     }
 
     public void setTo(ToHeader to) {
@@ -1515,8 +1813,8 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         if (headerName == null) {
             throw new NullPointerException("null headerName");
         }
-        SIPHeader sipHeader = (SIPHeader) headerTable.get(SIPHeaderNamesCache
-                .toLowerCase(headerName));
+        SIPHeader sipHeader = unshare(resolveLazyHeader(SIPHeaderNamesCache
+                .toLowerCase(headerName)));
         // empty iterator
         if (sipHeader == null) {
             return new LinkedList<SIPHeader>().listIterator();
@@ -1546,7 +1844,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
     }
 
     public SIPHeader getSIPHeaderListLowerCase(String lowerCaseHeaderName) {
-        return headerTable.get(lowerCaseHeaderName);
+        return unshare(resolveLazyHeader(lowerCaseHeaderName));
     }
 
     /**
@@ -1558,8 +1856,8 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      */
     @SuppressWarnings("unchecked")
     private List<SIPHeader> getHeaderList(String headerName) {
-        SIPHeader sipHeader = (SIPHeader) headerTable.get(SIPHeaderNamesCache
-                .toLowerCase(headerName));
+        SIPHeader sipHeader = unshare(resolveLazyHeader(SIPHeaderNamesCache
+                .toLowerCase(headerName)));
         if (sipHeader == null) {
             return null;
         } else if (sipHeader instanceof SIPHeaderList) {
@@ -1616,7 +1914,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      */
     public void setFromTag(String tag) {
         try {
-            fromHeader.setTag(tag);
+            ((From) unshare(fromHeader)).setTag(tag);
         } catch (ParseException e) {
         }
     }
@@ -1628,7 +1926,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
      */
     public void setToTag(String tag) {
         try {
-            toHeader.setTag(tag);
+            ((To) unshare(toHeader)).setTag(tag);
         } catch (ParseException e) {
         }
     }
@@ -1653,6 +1951,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
     public void addHeader(Header sipHeader) {
         // Content length is never stored. Just computed.
         SIPHeader sh = (SIPHeader) sipHeader;
+        sh.expose();
         try {
             if ((sipHeader instanceof ViaHeader) || (sipHeader instanceof RecordRouteHeader)) {
                 attachHeader(sh, false, true);
@@ -1730,6 +2029,8 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
             return false;
         }
         SIPMessage otherMessage = (SIPMessage) other;
+        this.resolveLazyHeaders();
+        otherMessage.resolveLazyHeaders();
         Collection<SIPHeader> values = this.headerTable.values();
         Iterator<SIPHeader> it = values.iterator();
         if (headerTable.size() != otherMessage.headerTable.size()) {
@@ -1862,6 +2163,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
             throw new NullPointerException("null arg!");
         }
 
+        ((SIPHeader) header).expose();
         try {
             this.attachHeader((SIPHeader) header, false, false);
         } catch (SIPDuplicateHeaderException ex) {
@@ -1881,6 +2183,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
             throw new NullPointerException("null arg!");
         }
 
+        ((SIPHeader) header).expose();
         try {
             this.attachHeader((SIPHeader) header, false, true);
         } catch (SIPDuplicateHeaderException ex) {
@@ -1937,6 +2240,21 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         this.applicationData = applicationData;
     }
 
+    /**
+     * @return the trace of the message, null unless it was sampled by the
+     * message tracer of the stack.
+     */
+    public MessageTrace getMessageTrace() {
+        return messageTrace;
+    }
+
+    /**
+     * @param messageTrace the trace following the message through the stack.
+     */
+    public void setMessageTrace(MessageTrace messageTrace) {
+        this.messageTrace = messageTrace;
+    }
+
     /**
      * Get the application data associated with this message.
      *
@@ -1968,15 +2286,15 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
     }
 
     public CallIdHeader getCallIdHeader() {
-        return this.callIdHeader;
+        return this.getCallId();
     }
 
     public FromHeader getFromHeader() {
-        return this.fromHeader;
+        return this.getFrom();
     }
 
     public ToHeader getToHeader() {
-        return this.toHeader;
+        return this.getTo();
     }
 
     public ViaHeader getTopmostViaHeader() {
@@ -1984,7 +2302,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
     }
 
     public CSeqHeader getCSeqHeader() {
-        return this.cSeqHeader;
+        return this.getCSeq();
     }
 
     /**
@@ -2023,7 +2341,7 @@ public abstract class SIPMessage extends MessageObject implements MessageExt {
         if (this.forkId != null) {
             return forkId;
         } else {
-            String callId = this.getCallId().getCallId();
+            String callId = this.callIdHeader.getCallId();
             String fromTag = this.getFromTag();
             if (fromTag == null) {
                 throw new IllegalStateException("From tag is not yet set. Cannot compute forkId");
@@ -35,7 +35,6 @@ import gov.nist.javax.sip.header.CSeq;
 import gov.nist.javax.sip.header.RecordRouteList;
 import gov.nist.javax.sip.header.RequestLine;
 import gov.nist.javax.sip.header.SIPHeader;
-import gov.nist.javax.sip.header.SIPHeaderList;
 import gov.nist.javax.sip.header.To;
 import gov.nist.javax.sip.header.Via;
 import gov.nist.javax.sip.header.ViaList;
@@ -69,6 +68,7 @@ import javax.sip.header.TimeStampHeader;
 import javax.sip.header.ToHeader;
 import javax.sip.header.ViaHeader;
 import javax.sip.message.Request;
+import javax.sip.message.Response;
 
 /*
  * Acknowledgements: Mark Bednarek made a few fixes to this code. Jeff Keyser added two methods
@@ -251,10 +251,10 @@ public class SIPRequest extends SIPMessage implements RequestExt {
 
         /* Check for required headers */
 
-        if (getCSeq() == null) {
+        if (cSeqHeader == null) {
             throw new ParseException(prefix + CSeqHeader.NAME, 0);
         }
-        if (getTo() == null) {
+        if (toHeader == null) {
             throw new ParseException(prefix + ToHeader.NAME, 0);
         }
 
@@ -262,17 +262,17 @@ public class SIPRequest extends SIPMessage implements RequestExt {
                 || callIdHeader.getCallId().equals("")) {
             throw new ParseException(prefix + CallIdHeader.NAME, 0);
         }
-        if (getFrom() == null) {
+        if (fromHeader == null) {
             throw new ParseException(prefix + FromHeader.NAME, 0);
         }
-        if (getViaHeaders() == null) {
+        if (!hasHeader(ViaHeader.NAME)) {
             throw new ParseException(prefix + ViaHeader.NAME, 0);
         }
-        if (getMaxForwards() == null) {
+        if (maxForwardsHeader == null) {
             throw new ParseException(prefix + MaxForwardsHeader.NAME, 0);
         }
 
-        if (getTopmostVia() == null)
+        if (peekTopmostVia() == null)
             throw new ParseException("No via header in request! ", 0);
 
         if (getMethod().equals(Request.NOTIFY)) {
@@ -281,8 +281,8 @@ public class SIPRequest extends SIPMessage implements RequestExt {
 
             //https://github.com/RestComm/jain-sip/issues/74
             //Event header mandatory just for in-dialog NOTIFY
-            if (getFromHeader().getTag()!=null &&
-                    getToHeader().getTag() != null && getHeader(EventHeader.NAME) == null)
+            if (fromHeader.getTag()!=null &&
+                    toHeader.getTag() != null && getHeader(EventHeader.NAME) == null)
             {
                 throw new ParseException(prefix + EventHeader.NAME, 0);
             }
@@ -364,8 +364,8 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
         }*/
 
         if (requestLine != null && method != null
-                && getCSeq().getMethod() != null
-                && method.compareTo(getCSeq().getMethod()) != 0) {
+                && cSeqHeader.getMethod() != null
+                && method.compareTo(cSeqHeader.getMethod()) != 0) {
             throw new ParseException("CSEQ method mismatch with  Request-Line ", 0);
 
         }
@@ -465,9 +465,9 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
         String meth = getCannonicalName(method);
         this.requestLine.setMethod(meth);
 
-        if (this.cSeqHeader != null) {
+        if (this.cSeqHeader != null && !meth.equals(this.cSeqHeader.getMethod())) {
             try {
-                this.cSeqHeader.setMethod(meth);
+                this.getCSeq().setMethod(meth);
             } catch (ParseException e) {
             }
         }
@@ -536,7 +536,15 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
      */
 
     public Object clone() {
-        SIPRequest retval = (SIPRequest) super.clone();
+        return copy(false);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.message.SIPMessage#copy(boolean)
+     */
+    protected SIPMessage copy(boolean shareHeaders) {
+        SIPRequest retval = (SIPRequest) super.copy(shareHeaders);
         // Do not copy over the tx pointer -- this is only for internal
         // tracking.
         retval.transactionPointer = null;
@@ -632,9 +640,11 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
     /**
      * Creates a default SIPResponse message for this request. Note You must add the necessary
      * tags to outgoing responses if need be. For efficiency, this method does not clone the
-     * incoming request. If you want to modify the outgoing response, be sure to clone the
-     * incoming request as the headers are shared and any modification to the headers of the
-     * outgoing response will result in a modification of the incoming request. Tag fields are
+     * headers of the incoming request. They are shared with the response until they are
+     * obtained from either message, which then takes a private copy, so that modifying the
+     * headers of the outgoing response does not modify the incoming request. Headers
+     * obtained from or added to the request before the response was created are cloned
+     * instead, as they may still be modified through the application. Tag fields are
      * just copied from the incoming request. Contact headers are removed from the incoming
      * request. Added by Jeff Keyser.
      * 
@@ -654,9 +664,11 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
     /**
      * Creates a default SIPResponse message for this request. Note You must add the necessary
      * tags to outgoing responses if need be. For efficiency, this method does not clone the
-     * incoming request. If you want to modify the outgoing response, be sure to clone the
-     * incoming request as the headers are shared and any modification to the headers of the
-     * outgoing response will result in a modification of the incoming request. Tag fields are
+     * headers of the incoming request. They are shared with the response until they are
+     * obtained from either message, which then takes a private copy, so that modifying the
+     * headers of the outgoing response does not modify the incoming request. Headers
+     * obtained from or added to the request before the response was created are cloned
+     * instead, as they may still be modified through the application. Tag fields are
      * just copied from the incoming request. Contact headers are removed from the incoming
      * request. Added by Jeff Keyser. Route headers are not added to the response.
      * 
@@ -711,11 +723,8 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
         	SIPHeader nextHeader = headerTable.get(headerName);
         	if(nextHeader != null) {
         		if(!(nextHeader instanceof RecordRouteList) || (nextHeader instanceof RecordRouteList && mustCopyRR(statusCode))) {
-        			try {
-        				newResponse.attachHeader((SIPHeader) nextHeader.clone(), false);
-        			} catch (SIPDuplicateHeaderException e) {
-                      e.printStackTrace();
-                  }
+        			// copied on write, see SIPMessage#attachSharedHeader
+        			newResponse.attachSharedHeader(nextHeader);
         		}
         	}
         }
@@ -736,6 +745,10 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
         if (server != null) {
             newResponse.setHeader(server);
         }
+        // the 100 Trying sent by the stack doesn't answer a traced request
+        if (statusCode != Response.TRYING) {
+            newResponse.setMessageTrace(getMessageTrace());
+        }
         return newResponse;
     }
 
@@ -781,25 +794,26 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
         SIPRequest cancel = new SIPRequest();
         cancel.setRequestLine((RequestLine) this.requestLine.clone());
         cancel.setMethod(Request.CANCEL);
-        cancel.setHeader((Header) this.callIdHeader.clone());
-        cancel.setHeader((Header) this.toHeader.clone());
+        cancel.attachSharedHeader(this.callIdHeader);
+        cancel.attachSharedHeader(this.toHeader);
         cancel.setHeader((Header) cSeqHeader.clone());
         try {
             cancel.getCSeq().setMethod(Request.CANCEL);
         } catch (ParseException e) {
             e.printStackTrace(); // should not happen
         }
-        cancel.setHeader((Header) this.fromHeader.clone());
+        cancel.attachSharedHeader(this.fromHeader);
 
-        cancel.addFirst((Header) this.getTopmostVia().clone());
-        cancel.setHeader((Header) this.maxForwardsHeader.clone());
+        cancel.attachSharedHeader(this.peekTopmostVia());
+        cancel.attachSharedHeader(this.maxForwardsHeader);
 
         /*
          * If the request being cancelled contains a Route header field, the CANCEL request MUST
          * include that Route header field's values.
          */
-        if (this.getRouteHeaders() != null) {
-            cancel.setHeader((SIPHeaderList< ? >) this.getRouteHeaders().clone());
+        SIPHeader routes = resolveLazyHeader(ROUTE_LOWERCASE);
+        if (routes != null) {
+            cancel.attachSharedHeader(routes);
         }
         if (MessageFactoryImpl.getDefaultUserAgentHeader() != null) {
             cancel.setHeader(MessageFactoryImpl.getDefaultUserAgentHeader());
@@ -825,7 +839,7 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
 
     	// cloning instead of iterating through headers so that lazy parsers don't have to parse the messages fully
     	// to create ACK requests
-        SIPRequest newRequest = (SIPRequest) this.clone();
+        SIPRequest newRequest = (SIPRequest) this.copy(true);
 //        newRequest = new SIPRequest();
 //        newRequest.setRequestLine((RequestLine) this.requestLine.clone());
         newRequest.setMethod(Request.ACK);
@@ -856,7 +870,8 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
         // CONTACT header does not apply for ACK requests.
         newRequest.removeHeader(ContactHeader.NAME);
         newRequest.removeHeader(ExpiresHeader.NAME);
-        ViaList via = newRequest.getViaHeaders();
+        // the list is private to the new request, only drop the extra Vias
+        ViaList via = (ViaList) newRequest.resolveLazyHeader(VIA_LOWERCASE);
         // Bug reported by Gianluca Martinello
         // The ACK MUST contain a single Via header field,
         // and this MUST be equal to the top Via header
@@ -903,13 +918,13 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
         SIPRequest newRequest = new SIPRequest();
         newRequest.setRequestLine((RequestLine) this.requestLine.clone());
         newRequest.setMethod(Request.ACK);
-        newRequest.setHeader((Header) this.callIdHeader.clone());
-        newRequest.setHeader((Header) this.maxForwardsHeader.clone()); // ISSUE
+        newRequest.attachSharedHeader(this.callIdHeader);
+        newRequest.attachSharedHeader(this.maxForwardsHeader); // ISSUE
         // 130
         // fix
-        newRequest.setHeader((Header) this.fromHeader.clone());
-        newRequest.setHeader((Header) responseToHeader.clone());
-        newRequest.addFirst((Header) this.getTopmostVia().clone());
+        newRequest.attachSharedHeader(this.fromHeader);
+        newRequest.attachSharedHeader(responseToHeader);
+        newRequest.attachSharedHeader(this.peekTopmostVia());
         newRequest.setHeader((Header) cSeqHeader.clone());
         newRequest.getCSeq().setMethod(Request.ACK);
 
@@ -918,8 +933,9 @@ Caused by: java.text.ParseException: Scheme for contact should be sips:sip:proxy
          * those header fields MUST appear in the ACK. This is to ensure that the ACK can be
          * routed properly through any downstream stateless proxies.
          */
-        if (this.getRouteHeaders() != null) {
-            newRequest.setHeader((SIPHeaderList<?>) this.getRouteHeaders().clone());
+        SIPHeader routes = resolveLazyHeader(ROUTE_LOWERCASE);
+        if (routes != null) {
+            newRequest.attachSharedHeader(routes);
         }
         if (MessageFactoryImpl.getDefaultUserAgentHeader() != null) {
             newRequest.setHeader(MessageFactoryImpl.getDefaultUserAgentHeader());
@@ -391,19 +391,19 @@ public class SIPResponse
      * headers.
      */
     public void checkHeaders() throws ParseException {
-        if (getCSeq() == null) {
+        if (cSeqHeader == null) {
             throw new ParseException(CSeq.NAME+ " Is missing ", 0);
         }
-        if (getTo() == null) {
+        if (toHeader == null) {
             throw new ParseException(To.NAME+ " Is missing ", 0);
         }
-        if (getFrom() == null) {
+        if (fromHeader == null) {
             throw new ParseException(From.NAME+ " Is missing ", 0);
         }
-        if (getViaHeaders() == null) {
+        if (!hasHeader(Via.NAME)) {
             throw new ParseException(Via.NAME+ " Is missing ", 0);
         }
-        if (getCallId() == null) {
+        if (callIdHeader == null) {
             throw new ParseException(CallID.NAME + " Is missing ", 0);
         }
 
@@ -76,7 +76,7 @@ public class AddressParametersParser extends ParametersParser {
             	if (this.allowParameters == false) {
             	   lexer.SPorHT();            	
             	   if (this.lexer.lookAhead(0) == ';') {            		
-                		throw new ParseException(this.lexer.getBuffer() +  "is not valid. This header doesn't allow parameters" , this.lexer.getPtr());
+                		throw this.lexer.createParseException("is not valid. This header doesn't allow parameters" );
                 	}
             	}
             	super.parse(addressParametersHeader);
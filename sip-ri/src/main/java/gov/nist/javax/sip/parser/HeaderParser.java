@@ -25,6 +25,7 @@
 */
 package gov.nist.javax.sip.parser;
 
+import gov.nist.core.TokenPool;
 import gov.nist.javax.sip.header.*;
 import java.util.*;
 import java.text.ParseException;
@@ -172,7 +173,7 @@ public class HeaderParser extends Parser {
         String body = lexer.getLine().trim();
         // we dont set any fields because the header is
         // ok
-        ExtensionHeaderImpl retval = new ExtensionHeaderImpl(name);
+        ExtensionHeaderImpl retval = new ExtensionHeaderImpl(TokenPool.canonical(name));
         retval.setValue(body);
         return retval;
 
@@ -0,0 +1,243 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sip.header.AllowEventsHeader;
+import javax.sip.header.CSeqHeader;
+import javax.sip.header.CallIdHeader;
+import javax.sip.header.ContactHeader;
+import javax.sip.header.ContentEncodingHeader;
+import javax.sip.header.ContentLengthHeader;
+import javax.sip.header.ContentTypeHeader;
+import javax.sip.header.EventHeader;
+import javax.sip.header.FromHeader;
+import javax.sip.header.MaxForwardsHeader;
+import javax.sip.header.RecordRouteHeader;
+import javax.sip.header.ReferToHeader;
+import javax.sip.header.RouteHeader;
+import javax.sip.header.SubjectHeader;
+import javax.sip.header.SupportedHeader;
+import javax.sip.header.ToHeader;
+import javax.sip.header.ViaHeader;
+
+import gov.nist.core.StacklessParseException;
+import gov.nist.javax.sip.header.LazyHeader;
+import gov.nist.javax.sip.header.SIPHeaderNamesCache;
+import gov.nist.javax.sip.header.extensions.SessionExpiresHeader;
+import gov.nist.javax.sip.message.SIPMessage;
+
+/**
+ * Message parser that only parses the headers needed by the stack for
+ * transaction and dialog matching (Via, Route, Record-Route, Call-ID, CSeq,
+ * From, To, Max-Forwards and Content-Length). All other headers are kept as
+ * raw byte ranges of the received message, parsed the first time they are
+ * asked for and written back verbatim if they are never accessed. This suits
+ * proxies and B2BUAs that forward most headers without looking at them.
+ *
+ * Plug it in with the gov.nist.javax.sip.MESSAGE_PARSER_FACTORY stack property
+ * set to {@link LazyStringMsgParserFactory}.
+ *
+ * @see LazyHeader
+ */
+public class LazyStringMsgParser extends StringMsgParser {
+
+    private static final Set<String> eagerHeaders = ConcurrentHashMap.newKeySet();
+
+    private static final Map<String, String> compactHeaderNames = new ConcurrentHashMap<String, String>();
+
+    static {
+        addEagerHeader(ViaHeader.NAME);
+        addEagerHeader(RouteHeader.NAME);
+        addEagerHeader(RecordRouteHeader.NAME);
+        addEagerHeader(CallIdHeader.NAME);
+        addEagerHeader(CSeqHeader.NAME);
+        addEagerHeader(FromHeader.NAME);
+        addEagerHeader(ToHeader.NAME);
+        addEagerHeader(MaxForwardsHeader.NAME);
+        addEagerHeader(ContentLengthHeader.NAME);
+
+        // compact forms known to the ParserFactory, mapped to the name of
+        // the header the parser creates for them
+        compactHeaderNames.put("t", ToHeader.NAME);
+        compactHeaderNames.put("f", FromHeader.NAME);
+        compactHeaderNames.put("v", ViaHeader.NAME);
+        compactHeaderNames.put("m", ContactHeader.NAME);
+        compactHeaderNames.put("c", ContentTypeHeader.NAME);
+        compactHeaderNames.put("l", ContentLengthHeader.NAME);
+        compactHeaderNames.put("i", CallIdHeader.NAME);
+        compactHeaderNames.put("k", SupportedHeader.NAME);
+        compactHeaderNames.put("s", SubjectHeader.NAME);
+        compactHeaderNames.put("o", EventHeader.NAME);
+        compactHeaderNames.put("e", ContentEncodingHeader.NAME);
+        compactHeaderNames.put("u", AllowEventsHeader.NAME);
+        compactHeaderNames.put("r", ReferToHeader.NAME);
+        compactHeaderNames.put("b", ReferToHeader.NAME);
+        compactHeaderNames.put("x", SessionExpiresHeader.NAME);
+    }
+
+    /**
+     * Add a header to the set of headers that are always parsed when the
+     * message is received.
+     *
+     * @param headerName the name of the header.
+     */
+    public static void addEagerHeader(String headerName) {
+        eagerHeaders.add(SIPHeaderNamesCache.toLowerCase(headerName));
+    }
+
+    /**
+     * @return true if the header with the given canonical name is parsed when
+     *         the message is received.
+     */
+    public static boolean isEagerHeader(String headerName) {
+        return eagerHeaders.contains(SIPHeaderNamesCache.toLowerCase(headerName));
+    }
+
+    /**
+     * Expand a compact header name to the name of the header created for it
+     * by the parser. Other names are returned unchanged.
+     */
+    public static String getCanonicalHeaderName(String headerName) {
+        if (headerName.length() == 1) {
+            String canonicalName = compactHeaderNames.get(SIPHeaderNamesCache.toLowerCase(headerName));
+            if (canonicalName != null) {
+                return canonicalName;
+            }
+        }
+        return headerName;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see gov.nist.javax.sip.parser.StringMsgParser#parseSIPMessage(byte[], boolean, boolean, gov.nist.javax.sip.parser.ParseExceptionListener)
+     */
+    public SIPMessage parseSIPMessage(byte[] msgBuffer, boolean readBody, boolean strict,
+            ParseExceptionListener parseExceptionListener) throws ParseException {
+        if (msgBuffer == null || msgBuffer.length == 0)
+            return null;
+
+        int i = 0;
+        // Squeeze out any leading control character.
+        while (i < msgBuffer.length && msgBuffer[i] < 0x20)
+            i++;
+        if (i == msgBuffer.length) {
+            // keep alives and garbage are handled the same way as the eager parser does
+            return super.parseSIPMessage(msgBuffer, readBody, strict, parseExceptionListener);
+        }
+
+        int lineEnd = findEndOfLine(msgBuffer, i);
+        if (lineEnd == msgBuffer.length)
+            throw new StacklessParseException("Bad message", 0);
+        String firstLine = trimEndOfLine(new String(msgBuffer, i, lineEnd - i, StandardCharsets.UTF_8));
+        SIPMessage message = processFirstLine(firstLine, parseExceptionListener, msgBuffer);
+        i = skipEndOfLine(msgBuffer, lineEnd);
+
+        // Iterate thru the headers, folding continuation lines into the
+        // header they belong to.
+        int headerStart = -1;
+        int headerEnd = -1;
+        while (true) {
+            int lineStart = i;
+            lineEnd = findEndOfLine(msgBuffer, i);
+            if (lineEnd == msgBuffer.length) {
+                // End of the message.
+                break;
+            }
+            int contentEnd = lineEnd;
+            while (contentEnd > lineStart && msgBuffer[contentEnd - 1] <= 0x20)
+                contentEnd--;
+            i = skipEndOfLine(msgBuffer, lineEnd);
+
+            if (contentEnd == lineStart) {
+                // Last header line, process the previous buffered header.
+                if (headerStart >= 0) {
+                    processHeader(message, msgBuffer, headerStart, headerEnd, parseExceptionListener);
+                }
+                break;
+            }
+            byte firstChar = msgBuffer[lineStart];
+            if (firstChar == '\t' || firstChar == ' ') {
+                if (headerStart < 0)
+                    throw new StacklessParseException("Bad header continuation.", 0);
+                headerEnd = contentEnd;
+            } else {
+                if (headerStart >= 0) {
+                    processHeader(message, msgBuffer, headerStart, headerEnd, parseExceptionListener);
+                }
+                headerStart = lineStart;
+                headerEnd = contentEnd;
+            }
+        }
+
+        message.setSize(i);
+
+        if (readBody) {
+            processBody(message, msgBuffer, i, strict);
+        }
+
+        return message;
+    }
+
+    /**
+     * Parse the header held in the given range if the stack needs it right
+     * away, otherwise attach it to the message in its raw form.
+     */
+    protected void processHeader(SIPMessage message, byte[] msgBuffer, int start, int end,
+            ParseExceptionListener parseExceptionListener) throws ParseException {
+        int colon = start;
+        while (colon < end && msgBuffer[colon] != ':')
+            colon++;
+        int nameEnd = colon;
+        while (nameEnd > start && msgBuffer[nameEnd - 1] <= 0x20)
+            nameEnd--;
+        if (colon == end || nameEnd == start) {
+            // let the header parser report the problem
+            processHeader(LazyHeader.decodeHeaderLine(msgBuffer, start, end), message,
+                    parseExceptionListener, msgBuffer);
+            return;
+        }
+
+        String headerName = getCanonicalHeaderName(
+                new String(msgBuffer, start, nameEnd - start, StandardCharsets.UTF_8));
+        if (isEagerHeader(headerName)) {
+            processHeader(LazyHeader.decodeHeaderLine(msgBuffer, start, end), message,
+                    parseExceptionListener, msgBuffer);
+        } else {
+            message.attachLazyHeader(headerName, msgBuffer, start, end);
+        }
+    }
+
+    private static int findEndOfLine(byte[] msgBuffer, int i) {
+        while (i < msgBuffer.length && msgBuffer[i] != '\r' && msgBuffer[i] != '\n')
+            i++;
+        return i;
+    }
+
+    private static int skipEndOfLine(byte[] msgBuffer, int i) {
+        if (msgBuffer[i] == '\r' && msgBuffer.length > i + 1 && msgBuffer[i + 1] == '\n')
+            i++;
+        return i + 1;
+    }
+}
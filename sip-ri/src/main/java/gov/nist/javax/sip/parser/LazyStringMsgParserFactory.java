@@ -0,0 +1,46 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.parser;
+
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+
+/**
+ * Message Parser Factory creating parsers that only parse the headers needed
+ * by the stack and keep the other ones raw until they are accessed. When this
+ * factory is configured the Netty based transports parse lazily as well.
+ *
+ * @see LazyStringMsgParser
+ */
+public class LazyStringMsgParserFactory implements MessageParserFactory {
+
+    /**
+     * the lazy parser is as stateless as the default one, reuse the instance
+     * for the whole stack
+     */
+    private static LazyStringMsgParser msgParser = new LazyStringMsgParser();
+
+	/*
+	 * (non-Javadoc)
+	 * @see gov.nist.javax.sip.parser.MessageParserFactory#createMessageParser(gov.nist.javax.sip.stack.SIPTransactionStack)
+	 */
+	public MessageParser createMessageParser(SIPTransactionStack stack) {
+		return msgParser;
+	}
+
+}
@@ -25,6 +25,7 @@ import java.text.ParseException;
 import gov.nist.core.CommonLogger;
 import gov.nist.core.LogWriter;
 import gov.nist.core.StackLogger;
+import gov.nist.core.StacklessParseException;
 import gov.nist.javax.sip.SIPConstants;
 import gov.nist.javax.sip.header.ContentLength;
 import gov.nist.javax.sip.header.RequestLine;
@@ -68,11 +69,21 @@ public class NettyMessageParser {
 	private int contentLength = -1;	
 	private int maxMessageSize = -1;        
 	private boolean computeContentLengthFromMessage = false;   		
+	private boolean lazyHeaderParsing = false;
 	private SIPMessage sipMessage = null;	
 
     public NettyMessageParser(int maxMessageSize, boolean computeContentLengthFromMessage) {
+		this(maxMessageSize, computeContentLengthFromMessage, false);
+    }
+
+    /**
+     * @param lazyHeaderParsing if true only the headers needed by the stack are parsed,
+     * the other ones are kept raw until accessed, see {@link LazyStringMsgParser}
+     */
+    public NettyMessageParser(int maxMessageSize, boolean computeContentLengthFromMessage, boolean lazyHeaderParsing) {
 		this.maxMessageSize = maxMessageSize;
 		this.computeContentLengthFromMessage = computeContentLengthFromMessage;
+		this.lazyHeaderParsing = lazyHeaderParsing;
 		sipMessage = null;
 		parsingState = ParsingState.INIT;
 		parsingPartialState = ParsingState.INIT;
@@ -218,7 +229,7 @@ public class NettyMessageParser {
 		}	
 		//checking for max message size
 		if(maxMessageSize > 0 && byteBuf.readerIndex() > maxMessageSize) {
-			parseException = new ParseException("Max size exceeded!", byteBuf.readerIndex());
+			parseException = new StacklessParseException("Max size exceeded!", byteBuf.readerIndex());
 		}	
 		return;	
 	}
@@ -308,6 +319,14 @@ public class NettyMessageParser {
 		}
     }	
 
+	/**
+	 * @return true if the bytes of a message were read since the last one
+	 * was consumed
+	 */
+	public boolean isMessageStarted() {
+		return parsingState != ParsingState.INIT;
+	}
+
 	public boolean isMessageComplete() {
 		return parsingState == ParsingState.PARSING_COMPLETE 
 				|| parsingState == ParsingState.DOUBLE_CRLF;
@@ -352,10 +371,23 @@ public class NettyMessageParser {
 	 */
 	protected void processHeader(String header) {
 		header = StringMsgParser.trimEndOfLine(header);
+		if (lazyHeaderParsing && sipMessage != null) {
+			String headerName = Lexer.getHeaderName(header);
+			if (headerName != null && headerName.length() > 0) {
+				headerName = LazyStringMsgParser.getCanonicalHeaderName(headerName);
+				if (!LazyStringMsgParser.isEagerHeader(headerName)) {
+					// the byte buf gets reused, keep a copy of the raw line only
+					byte[] rawHeader = header.getBytes(Charset.forName(ENCODING));
+					sipMessage.attachLazyHeader(headerName, rawHeader, 0, rawHeader.length);
+					return;
+				}
+			}
+		}
         HeaderParser headerParser = null;
         try {
             headerParser = ParserFactory.createParser(header + "\n");
 			SIPHeader sipHeader = headerParser.parse();
+			StringMsgParser.setEncodedBody(sipHeader, header);
             sipMessage.attachHeader(sipHeader, false);
         } catch (ParseException ex) {
 			parseException = ex;
@@ -43,6 +43,8 @@ import gov.nist.javax.sip.header.ContentLength;
 import gov.nist.javax.sip.message.SIPMessage;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
 import gov.nist.javax.sip.stack.transports.processors.ConnectionOrientedMessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.SourceRateLimiter;
 import gov.nist.javax.sip.stack.transports.processors.nio.QueuedMessageDispatchBase;
 
 /**
@@ -298,6 +300,10 @@ public class NioPipelineParser {
 			final String msgLines = message.toString();
 			message = new StringBuilder();
 			final byte[] msgBodyBytes = messageBody;			
+			if(isSourceOverRate()) {
+				this.contentLength = 0;
+				return;
+			}
 			
 			if(sipStack.getMessageProcessorExecutor() != null) {
 				final String callId = this.callId;
@@ -327,6 +333,22 @@ public class NioPipelineParser {
 
 	}
 
+	// framed messages of a source over its rate are dropped before parsing
+	private boolean isSourceOverRate() {
+		SourceRateLimiter sourceRateLimiter = sipStack.getSourceRateLimiter();
+		if(sourceRateLimiter == null || !(sipMessageListener instanceof MessageChannel)) {
+			return false;
+		}
+		MessageChannel messageChannel = (MessageChannel) sipMessageListener;
+		if(sourceRateLimiter.tryAcquire(messageChannel.getPeerInetAddress())) {
+			return false;
+		}
+		if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+			logger.logDebug("Dropping message of " + messageChannel.getPeerAddress() + " over its rate");
+		}
+		return true;
+	}
+
 	public void processSIPMessage(SIPMessage message) {
 		try {
 			sipMessageListener.processMessage(message);
@@ -341,6 +363,16 @@ public class NioPipelineParser {
 		readStream(inputStream);
 	}
 
+	/**
+	 * Add a slice of a buffer, the bytes are consumed before this method returns so the buffer
+	 * can be reused by the caller afterwards.
+	 */
+	public synchronized void addBytes(byte[] bytes, int offset, int length)  throws Exception{
+		currentStreamEnded = false;
+		ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes, offset, length);
+		readStream(inputStream);
+	}
+
 
     
     /**
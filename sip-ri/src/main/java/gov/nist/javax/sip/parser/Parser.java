@@ -27,7 +27,9 @@ package gov.nist.javax.sip.parser;
 import gov.nist.core.Debug;
 import gov.nist.core.LexerCore;
 import gov.nist.core.ParserCore;
+import gov.nist.core.StacklessParseException;
 import gov.nist.core.Token;
+import gov.nist.core.TokenPool;
 import java.text.ParseException;
 
 /**
@@ -42,9 +44,7 @@ import java.text.ParseException;
 public abstract class Parser extends ParserCore implements TokenTypes {
 
     protected ParseException createParseException(String exceptionString) {
-        return new ParseException(
-            lexer.getBuffer() + ":" + exceptionString,
-            lexer.getPtr());
+        return lexer.createParseException(":" + exceptionString);
     }
 
     protected Lexer getLexer() {
@@ -91,7 +91,7 @@ public abstract class Parser extends ParserCore implements TokenTypes {
                 || token.getTokenType() == MESSAGE
                 || token.getTokenType() == ID) {
                 lexer.consume();
-                return token.getTokenValue();
+                return TokenPool.canonical(token.getTokenValue());
             } else {
                 throw createParseException("Invalid Method");
             }
@@ -112,12 +112,12 @@ public abstract class Parser extends ParserCore implements TokenTypes {
     public static final void checkToken( String token ) throws ParseException {
 
         if (token == null || token.length()==0 ) {
-            throw new ParseException("null or empty token", -1 );
+            throw new StacklessParseException("null or empty token", -1 );
         } else {
             // JvB: check that it is a valid token
             for ( int i=0; i<token.length(); ++i ) {
                 if ( !LexerCore.isTokenChar( token.charAt(i) )) {
-                    throw new ParseException( "Invalid character(s) in string (not allowed in 'token')", i );
+                    throw new StacklessParseException( "Invalid character(s) in string (not allowed in 'token')", i );
                 }
             }
         }
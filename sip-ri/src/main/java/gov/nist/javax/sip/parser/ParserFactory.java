@@ -25,6 +25,7 @@
 */
 package gov.nist.javax.sip.parser;
 import gov.nist.core.InternalErrorHandler;
+import gov.nist.core.StacklessParseException;
 import gov.nist.javax.sip.header.SIPHeaderNamesCache;
 import gov.nist.javax.sip.header.extensions.Diversion;
 import gov.nist.javax.sip.header.extensions.Join;
@@ -415,7 +416,7 @@ public class ParserFactory {
         String headerName = Lexer.getHeaderName(line);
         String headerValue = Lexer.getHeaderValue(line);
         if (headerName == null || headerValue == null)
-            throw new ParseException("The header name or value is null", 0);
+            throw new StacklessParseException("The header name or value is null", 0);
 
         Class<?> parserClass = parserTable.get(SIPHeaderNamesCache.toLowerCase(headerName));
         if (parserClass != null) {
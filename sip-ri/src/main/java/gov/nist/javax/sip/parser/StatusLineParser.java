@@ -55,9 +55,7 @@ public class StatusLineParser extends Parser {
             int retval = Integer.parseInt(scode);
             return retval;
         } catch (NumberFormatException ex) {
-            throw new ParseException(
-                lexer.getBuffer() + ":" + ex.getMessage(),
-                lexer.getPtr());
+            throw lexer.createParseException(":" + ex.getMessage());
         } finally {
             if (debug)
                 dbg_leave("statusCode");
@@ -41,6 +41,7 @@ import gov.nist.core.CommonLogger;
 import gov.nist.core.Host;
 import gov.nist.core.HostNameParser;
 import gov.nist.core.StackLogger;
+import gov.nist.core.StacklessParseException;
 import gov.nist.javax.sip.SIPConstants;
 import gov.nist.javax.sip.address.AddressImpl;
 import gov.nist.javax.sip.address.GenericURI;
@@ -50,6 +51,7 @@ import gov.nist.javax.sip.header.ExtensionHeaderImpl;
 import gov.nist.javax.sip.header.NameMap;
 import gov.nist.javax.sip.header.RequestLine;
 import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.header.SIPHeaderList;
 import gov.nist.javax.sip.header.StatusLine;
 import gov.nist.javax.sip.message.SIPMessage;
 import gov.nist.javax.sip.message.SIPRequest;
@@ -165,7 +167,7 @@ public class StringMsgParser implements MessageParser {
             try {
                 currentLine = new String(msgBuffer, lineStart, lineLength, "UTF-8");
             } catch (UnsupportedEncodingException e) {
-                throw new ParseException("Bad message encoding!", 0);
+                throw new StacklessParseException("Bad message encoding!", 0);
             }
 
             currentLine = trimEndOfLine(currentLine);
@@ -183,7 +185,7 @@ public class StringMsgParser implements MessageParser {
                     char firstChar = currentLine.charAt(0);
                     if (firstChar == '\t' || firstChar == ' ') {
                         if (currentHeader == null)
-                            throw new ParseException("Bad header continuation.", 0);
+                            throw new StacklessParseException("Bad header continuation.", 0);
 
                         // This is a continuation, append it to the previous line.
                         currentHeader += currentLine.substring(1);
@@ -205,29 +207,45 @@ public class StringMsgParser implements MessageParser {
         } while (currentLine.length() > 0); // End do - while
 
         if (message == null)
-            throw new ParseException("Bad message", 0);
+            throw new StacklessParseException("Bad message", 0);
         message.setSize(i);
 
+        if (readBody) {
+            processBody(message, msgBuffer, i, strict);
+        }
+
+        return message;
+    }
+
+    /**
+     * Attach the body found after the headers of a message, checked against
+     * its Content-Length header.
+     *
+     * @param message the message the headers were parsed into.
+     * @param msgBuffer the buffer holding the message.
+     * @param bodyStart offset of the first byte after the empty line.
+     * @param strict whether to reject trailing bytes after an empty body.
+     */
+    protected static void processBody(SIPMessage message, byte[] msgBuffer, int bodyStart, boolean strict)
+            throws ParseException {
         // Check for content legth header
-        if (readBody && message.getContentLength() != null) {
+        if (message.getContentLength() != null) {
             if (message.getContentLength().getContentLength() != 0) {
-                int bodyLength = msgBuffer.length - i;
+                int bodyLength = msgBuffer.length - bodyStart;
 
                 byte[] body = new byte[bodyLength];
-                System.arraycopy(msgBuffer, i, body, 0, bodyLength);
+                System.arraycopy(msgBuffer, bodyStart, body, 0, bodyLength);
                 message.setMessageContent(body, !strict, computeContentLengthFromMessage,
                         message.getContentLength().getContentLength());
             } else if (!computeContentLengthFromMessage
                     && message.getContentLength().getContentLength() == 0 & strict) {
                 String last4Chars = new String(msgBuffer, msgBuffer.length - 4, 4);
                 if (!"\r\n\r\n".equals(last4Chars)) {
-                    throw new ParseException("Extraneous characters at the end of the message ", i);
+                    throw new StacklessParseException("Extraneous characters at the end of the message ", bodyStart);
                 }
             }
 
         }
-
-        return message;
     }
 
     protected static String trimEndOfLine(String line) {
@@ -310,6 +328,7 @@ public class StringMsgParser implements MessageParser {
 
         try {
             SIPHeader sipHeader = headerParser.parse();
+            setEncodedBody(sipHeader, header);
             message.attachHeader(sipHeader, false);
         } catch (ParseException ex) {
             if (parseExceptionListener != null) {
@@ -330,6 +349,27 @@ public class StringMsgParser implements MessageParser {
         }
     }
 
+    /**
+     * Keep the received value on the parsed header so that it does not have to
+     * be encoded again if the message is forwarded without changing it. Lines
+     * holding several comma separated headers are left alone.
+     *
+     * @param sipHeader the header parsed from the line.
+     * @param header the unfolded header line.
+     */
+    protected static void setEncodedBody(SIPHeader sipHeader, String header) {
+        int colon = header.indexOf(':');
+        if (colon < 0 || header.indexOf('\n') >= 0 || header.indexOf('\r') >= 0)
+            return;
+        if (sipHeader instanceof SIPHeaderList) {
+            SIPHeaderList<?> headerList = (SIPHeaderList<?>) sipHeader;
+            if (headerList.size() != 1)
+                return;
+            sipHeader = (SIPHeader) headerList.getFirst();
+        }
+        sipHeader.setEncodedBody(header.substring(colon + 1).trim());
+    }
+
     /**
      * Parse an address (nameaddr or address spec) and return and address
      * structure.
@@ -413,7 +453,7 @@ public class StringMsgParser implements MessageParser {
         try {
             return new URLParser(url).sipURL(true);
         } catch (ClassCastException ex) {
-            throw new ParseException(url + " Not a SIP URL ", 0);
+            throw new StacklessParseException(url + " Not a SIP URL ", 0);
         }
     }
 
@@ -453,7 +493,7 @@ public class StringMsgParser implements MessageParser {
                 end--;
         } catch (ArrayIndexOutOfBoundsException e) {
             // Array contains only control char.
-            throw new ParseException("Empty header.", 0);
+            throw new StacklessParseException("Empty header.", 0);
         }
 
         StringBuilder buffer = new StringBuilder(end + 1);
@@ -486,7 +526,7 @@ public class StringMsgParser implements MessageParser {
 
         HeaderParser hp = ParserFactory.createParser(buffer.toString());
         if (hp == null)
-            throw new ParseException("could not create parser", 0);
+            throw new StacklessParseException("could not create parser", 0);
         return hp.parse();
     }
 
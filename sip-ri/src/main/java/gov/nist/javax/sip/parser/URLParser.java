@@ -28,7 +28,9 @@ import gov.nist.core.HostNameParser;
 import gov.nist.core.HostPort;
 import gov.nist.core.NameValue;
 import gov.nist.core.NameValueList;
+import gov.nist.core.StacklessParseException;
 import gov.nist.core.Token;
+import gov.nist.core.TokenPool;
 import gov.nist.javax.sip.address.GenericURI;
 import gov.nist.javax.sip.address.SipUri;
 import gov.nist.javax.sip.address.TelURLImpl;
@@ -148,12 +150,12 @@ public class URLParser extends Parser {
             dbg_enter("uriParam");
         try {
             String pvalue = "";
-            String pname = paramNameOrValue();
+            String pname = TokenPool.canonical(paramNameOrValue());
             char next = lexer.lookAhead(0);
             boolean isFlagParam = true;
             if (next == '=') {
                 lexer.consume(1);
-                pvalue = paramNameOrValue();
+                pvalue = canonicalValue(pname, paramNameOrValue());
                 isFlagParam = false;
             }
             if (pname.length() == 0 &&
@@ -572,7 +574,7 @@ public class URLParser extends Parser {
             Token t = lexer.match( Lexer.ID );// more broad than allowed
             value = t.getTokenValue();
         } else {
-            throw new ParseException( "Invalid phone-context:" + la , -1 );
+            throw new StacklessParseException( "Invalid phone-context:" + la , -1 );
         }
         return new NameValue( "phone-context", value, false );
     }
@@ -77,9 +77,9 @@ public class ViaParser extends HeaderParser {
         this.lexer.SPorHT();
 
         Protocol protocol = new Protocol();
-        protocol.setProtocolName(protocolName.getTokenValue());
-        protocol.setProtocolVersion(protocolVersion.getTokenValue());
-        protocol.setTransport(transport.getTokenValue());
+        protocol.setProtocolName(TokenPool.canonical(protocolName.getTokenValue()));
+        protocol.setProtocolVersion(TokenPool.canonical(protocolVersion.getTokenValue()));
+        protocol.setTransport(TokenPool.canonical(transport.getTokenValue()));
         v.setSentProtocol(protocol);
 
         // sent-By
@@ -99,7 +99,7 @@ public class ViaParser extends HeaderParser {
             if (name.equals(Via.BRANCH)) {
                 String branchId = (String) nameValue.getValueAsObject();
                 if (branchId == null)
-                    throw new ParseException("null branch Id", lexer.getPtr());
+                    throw new StacklessParseException("null branch Id", lexer.getPtr());
 
             }
             v.setParameter(nameValue);
@@ -175,13 +175,13 @@ public class ViaParser extends HeaderParser {
                             str = value.getTokenValue();
                         }
                     }
-                    NameValue nv = new NameValue(name.getTokenValue()
-                            .toLowerCase(), str);
+                    NameValue nv = new NameValue(TokenPool.canonical(name.getTokenValue()
+                            .toLowerCase()), canonicalValue(name.getTokenValue(), str));
                     if (quoted)
                         nv.setQuotedValue();
                     return nv;
                 } else {
-                    return new NameValue(name.getTokenValue().toLowerCase(),
+                    return new NameValue(TokenPool.canonical(name.getTokenValue().toLowerCase()),
                             null);
                 }
             } catch (ParseException ex) {
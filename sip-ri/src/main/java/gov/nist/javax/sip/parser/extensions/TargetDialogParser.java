@@ -1,5 +1,6 @@
 package gov.nist.javax.sip.parser.extensions;
 
+import gov.nist.core.StacklessParseException;
 import gov.nist.javax.sip.header.*;
 import gov.nist.javax.sip.header.extensions.TargetDialog;
 import gov.nist.javax.sip.parser.*;
@@ -42,7 +43,7 @@ public class TargetDialogParser extends ParametersParser {
             this.lexer.match('\n');
 
         } catch (ParseException e) {
-            throw new ParseException("Error parsing target dialog: " + e.getMessage(), e.getErrorOffset());
+            throw new StacklessParseException("Error parsing target dialog: " + e.getMessage(), e.getErrorOffset());
         }
 
         return targetDialog; }
@@ -32,6 +32,7 @@ package gov.nist.javax.sip.parser.ims;
 import java.text.ParseException;
 
 import gov.nist.core.NameValue;
+import gov.nist.core.StacklessParseException;
 import gov.nist.javax.sip.header.SIPHeader;
 import gov.nist.javax.sip.header.ims.PChargingVector;
 import gov.nist.javax.sip.header.ims.ParameterNamesIms;
@@ -89,7 +90,7 @@ extends ParametersParser {
 
             super.parse(chargingVector);
             if ( chargingVector.getParameter(ParameterNamesIms.ICID_VALUE) == null )
-                throw new ParseException("Missing a required Parameter : " + ParameterNamesIms.ICID_VALUE, 0);
+                throw new StacklessParseException("Missing a required Parameter : " + ParameterNamesIms.ICID_VALUE, 0);
             return chargingVector;
         } finally {
             if (debug)
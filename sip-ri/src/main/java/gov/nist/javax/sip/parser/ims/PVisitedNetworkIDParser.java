@@ -31,6 +31,7 @@ package gov.nist.javax.sip.parser.ims;
 
 import java.text.ParseException;
 
+import gov.nist.core.StacklessParseException;
 import gov.nist.core.Token;
 import gov.nist.javax.sip.header.SIPHeader;
 import gov.nist.javax.sip.header.ims.PVisitedNetworkID;
@@ -137,7 +138,7 @@ public class PVisitedNetworkIDParser extends ParametersParser {
                     // Got to the terminating quote.
                     break;
                 } else if (next == '\0') {
-                    throw new ParseException("unexpected EOL", 1);
+                    throw new StacklessParseException("unexpected EOL", 1);
                 } else if (next == '\\') {
                     retval.append(next);
                     next = this.lexer.getNextChar();
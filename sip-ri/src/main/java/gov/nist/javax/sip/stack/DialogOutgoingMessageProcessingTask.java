@@ -129,7 +129,7 @@ public class DialogOutgoingMessageProcessingTask implements SIPTask {
                 MessageChannel messageChannel = sipStack.createRawMessageChannel(
                         sipProvider.getListeningPoint(hop.getTransport())
                                 .getIPAddress(),
-                        sipProvider.getListeningPoint(hop.getTransport()).getPort(), hop);
+                        sipProvider.getListeningPoint(hop.getTransport()).getPort(), hop, id);
 
                 MessageChannel oldChannel = ((SIPClientTransaction) clientTransaction)
                         .getMessageChannel();
@@ -177,7 +177,7 @@ public class DialogOutgoingMessageProcessingTask implements SIPTask {
                             sipProvider.getListeningPoint(
                                     outboundProxy.getTransport())
                                     .getIPAddress(),
-                            sipDialog.firstTransactionPort, outboundProxy);
+                            sipDialog.firstTransactionPort, outboundProxy, id);
                     if (messageChannel != null)
                         ((SIPClientTransaction) clientTransaction)
                                 .setEncapsulatedChannel(messageChannel);
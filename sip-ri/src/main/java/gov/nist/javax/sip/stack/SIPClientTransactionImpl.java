@@ -293,7 +293,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
   public boolean isMessagePartOfTransaction(SIPMessage messageToTest) {
 
     // List of Via headers in the message to test
-    Via topMostViaHeader = messageToTest.getTopmostVia();
+    Via topMostViaHeader = messageToTest.peekTopmostVia();
     // Flags whether the select message is part of this transaction
     boolean transactionMatches;
     String messageBranch = topMostViaHeader.getBranch();
@@ -308,7 +308,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
     if (TransactionState._COMPLETED == this.getInternalState()) {
       if (rfc3261Compliant) {
         transactionMatches = getBranch().equalsIgnoreCase(topMostViaHeader.getBranch())
-            && getMethod().equals(messageToTest.getCSeq().getMethod());
+            && getMethod().equals(messageToTest.peekCSeq().getMethod());
       } else {
         transactionMatches = getBranch().equals(messageToTest.getTransactionId());
       }
@@ -318,7 +318,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
           // If the branch parameter is the
           // same as this transaction and the method is the same,
           if (getBranch().equalsIgnoreCase(topMostViaHeader.getBranch())) {
-            transactionMatches = getMethod().equals(messageToTest.getCSeq().getMethod());
+            transactionMatches = getMethod().equals(messageToTest.peekCSeq().getMethod());
 
           }
         }
@@ -349,7 +349,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
 
     try {
       // Set the branch id for the top via header.
-      Via topVia = (Via) transactionRequest.getTopmostVia();
+      Via topVia = (Via) transactionRequest.peekTopmostVia();
       // Tack on a branch identifier to match responses.
       try {
         topVia.setBranch(getBranch());
@@ -431,7 +431,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
       if (transactionRequest.getHeader(ExpiresHeader.NAME) != null) {
           Expires expires = (Expires) transactionRequest.getHeader(ExpiresHeader.NAME);        
           int expiresSec = expires.getExpires();
-          expiresTime = System.currentTimeMillis() + expiresSec * 1000L;
+          expiresTime = sipStack.getClock().millis() + expiresSec * 1000L;
 
       }      
       this.startTransactionTimer();
@@ -725,8 +725,8 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
     if (TransactionState._TERMINATED == this.getInternalState()) {
       boolean ackAlreadySent = false;
       // if (dialog != null && dialog.isAckSeen() && dialog.getLastAckSent() != null)
-      if (dialog != null && dialog.isAckSent(transactionResponse.getCSeq().getSeqNumber())) {
-        if (dialog.getLastAckSentCSeq().getSeqNumber() == transactionResponse.getCSeq()
+      if (dialog != null && dialog.isAckSent(transactionResponse.peekCSeq().getSeqNumber())) {
+        if (dialog.getLastAckSentCSeq().getSeqNumber() == transactionResponse.peekCSeq()
             .getSeqNumber()
             && transactionResponse.getFromTag().equals(dialog.getLastAckSentFromTag())) {
           // the last ack sent corresponded to this response
@@ -735,7 +735,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
       }
       // retransmit the ACK for this response.
       if (dialog != null && ackAlreadySent
-          && transactionResponse.getCSeq().getMethod().equals(dialog.getMethod())) {
+          && transactionResponse.peekCSeq().getMethod().equals(dialog.getMethod())) {
         try {
           // Found the dialog - resend the ACK and
           // dont pass up the null transaction
@@ -1033,7 +1033,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
         if (lastRequest != null) {
           if (sipStack.generateTimeStampHeader
               && lastRequest.getHeader(TimeStampHeader.NAME) != null) {
-            long milisec = System.currentTimeMillis();
+            long milisec = sipStack.getClock().millis();
             TimeStamp timeStamp = new TimeStamp();
             try {
               timeStamp.setTimeStamp(milisec);
@@ -1417,13 +1417,13 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
   public boolean checkFromTag(SIPResponse sipResponse) {
     String originalFromTag = getOriginalRequestFromTag();
     if (this.defaultDialog != null) {
-      if (originalFromTag == null ^ sipResponse.getFrom().getTag() == null) {
+      if (originalFromTag == null ^ sipResponse.peekFrom().getTag() == null) {
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
           logger.logDebug("From tag mismatch -- dropping response");
         return false;
       }
       if (originalFromTag != null
-          && !originalFromTag.equalsIgnoreCase(sipResponse.getFrom().getTag())) {
+          && !originalFromTag.equalsIgnoreCase(sipResponse.peekFrom().getTag())) {
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
           logger.logDebug("From tag mismatch -- dropping response");
         return false;
@@ -1465,7 +1465,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
     // If a dialog has already been created for this response,
     // pass it up.
     SIPDialog dialog = null;
-    String method = sipResponse.getCSeq().getMethod();
+    String method = sipResponse.peekCSeq().getMethod();
     String dialogId = sipResponse.getDialogId(false);
     if (method.equals(Request.CANCEL) && lastRequest != null) {
       // JvB for CANCEL: use invite CT in CANCEL request to get dialog
@@ -1757,7 +1757,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
         if (!getMethod().equalsIgnoreCase(Request.INVITE)
             && !getMethod().equalsIgnoreCase(Request.CANCEL)) {
           originalRequestFromTag = originalRequest.getFromTag();
-          originalRequestCallId = originalRequest.getCallId().getCallId();
+          originalRequestCallId = originalRequest.peekCallId().getCallId();
           originalRequestEventHeader = (Event) originalRequest.getHeader("Event");
           originalRequestContact = originalRequest.getContactHeader();
           originalRequestScheme = originalRequest.getRequestURI().getScheme();
@@ -1927,7 +1927,7 @@ public class SIPClientTransactionImpl extends SIPTransactionImpl implements SIPC
     if (originalRequest == null) {
       return originalRequestCallId;
     }
-    return originalRequest.getCallId().getCallId();
+    return originalRequest.peekCallId().getCallId();
   }
 
   /**
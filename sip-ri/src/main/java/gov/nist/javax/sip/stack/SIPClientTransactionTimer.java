@@ -44,7 +44,7 @@ public class SIPClientTransactionTimer extends SIPStackTimerTask {
             // This is a User Agent. The user has specified an Expires time. Start a timer
             // which will check if the tx is terminated by that time.
             if (clientTransaction.getDefaultDialog() != null && clientTransaction.isInviteTransaction() && clientTransaction.expiresTime != -1
-                    && clientTransaction.expiresTime < System.currentTimeMillis()) {
+                    && clientTransaction.expiresTime < clientTransaction.getSIPStack().getClock().millis()) {
                 if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
                     logger.logDebug("Expires time has been reached for the transaction " + clientTransaction.getTransactionId());
                 }
@@ -394,7 +394,7 @@ public class SIPDialog implements DialogExt {
 
         @Override
         public String getId() {
-            return ackRequest.getCallId().getCallId();
+            return ackRequest.peekCallId().getCallId();
         }       
     }
 
@@ -457,7 +457,7 @@ public class SIPDialog implements DialogExt {
         public void execute() {
             try {
                 long timeToWait = 0;
-                long startTime = System.currentTimeMillis();
+                long startTime = sipStack.getClock().millis();
                 boolean dialogTimedOut = false;
                 
                 // If we have an INVITE transaction, make sure that it is TERMINATED
@@ -512,7 +512,7 @@ public class SIPDialog implements DialogExt {
                 // }
                 if (getState() != DialogState.TERMINATED) {
 
-                    timeToWait = System.currentTimeMillis() - startTime;
+                    timeToWait = sipStack.getClock().millis() - startTime;
                 }
 
                 /*
@@ -742,7 +742,7 @@ public class SIPDialog implements DialogExt {
         this(transaction.getSipProvider());
 
         SIPRequest sipRequest = (SIPRequest) transaction.getRequest();
-        this.callIdHeader = sipRequest.getCallId();
+        this.callIdHeader = sipRequest.peekCallId();
         this.earlyDialogId = sipRequest.getDialogId(false);
         this.sipStack = transaction.getSIPStack();
 
@@ -789,15 +789,15 @@ public class SIPDialog implements DialogExt {
         this(sipProvider);
         this.sipStack = (SIPTransactionStack) sipProvider.getSipStack();
         this.setLastResponse(null, sipResponse);
-        this.localSequenceNumber = sipResponse.getCSeq().getSeqNumber();
+        this.localSequenceNumber = sipResponse.peekCSeq().getSeqNumber();
         this.originalLocalSequenceNumber = localSequenceNumber;
-        this.localParty = sipResponse.getFrom().getAddress();
-        this.remoteParty = sipResponse.getTo().getAddress();
-        this.method = sipResponse.getCSeq().getMethod();
-        this.callIdHeader = sipResponse.getCallId();
+        this.localParty = sipResponse.peekFrom().getAddress();
+        this.remoteParty = sipResponse.peekTo().getAddress();
+        this.method = sipResponse.peekCSeq().getMethod();
+        this.callIdHeader = sipResponse.peekCallId();
         this.serverTransactionFlag = false;
-        this.setLocalTag(sipResponse.getFrom().getTag());
-        this.setRemoteTag(sipResponse.getTo().getTag());
+        this.setLocalTag(sipResponse.peekFrom().getTag());
+        this.setRemoteTag(sipResponse.peekTo().getTag());
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
             logger.logDebug("Creating a dialog : " + this);
             logger.logStackTrace();
@@ -835,7 +835,7 @@ public class SIPDialog implements DialogExt {
         terminateOnBye = false;
         localSequenceNumber = subscribeTx.getCSeq();
         SIPRequest not = (SIPRequest) notifyST.getRequest();
-        remoteSequenceNumber = not.getCSeq().getSeqNumber();
+        remoteSequenceNumber = not.peekCSeq().getSeqNumber();
         setDialogId(not.getDialogId(true));
         setLocalTag(not.getToTag());
         setRemoteTag(not.getFromTag());
@@ -844,8 +844,8 @@ public class SIPDialog implements DialogExt {
         setLastResponse(subscribeTx, subscribeTx.getLastResponse());
 
         // Dont use setLocal / setRemote here, they make other assumptions
-        localParty = not.getTo().getAddress();
-        remoteParty = not.getFrom().getAddress();
+        localParty = not.peekTo().getAddress();
+        remoteParty = not.peekFrom().getAddress();
 
         // initialize d's route set based on the NOTIFY. Any proxies must have
         // Record-Routed
@@ -946,9 +946,9 @@ public class SIPDialog implements DialogExt {
 
         if (!isServer()) {
 
-            this.remoteParty = sipMessage.getTo().getAddress();
+            this.remoteParty = sipMessage.peekTo().getAddress();
         } else {
-            this.remoteParty = sipMessage.getFrom().getAddress();
+            this.remoteParty = sipMessage.peekFrom().getAddress();
 
         }
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
@@ -1082,7 +1082,7 @@ public class SIPDialog implements DialogExt {
                 if (sipResponse.getStatusCode() / 100 == 2 && !this.isServer()) {
                     ContactList contactList = sipResponse.getContactHeaders();
                     if (contactList != null
-                            && SIPRequest.isTargetRefresh(sipResponse.getCSeq()
+                            && SIPRequest.isTargetRefresh(sipResponse.peekCSeq()
                                     .getMethod())) {
                         this.setRemoteTarget((ContactHeader) contactList
                                 .getFirst());
@@ -1214,14 +1214,14 @@ public class SIPDialog implements DialogExt {
         }
 
         if (!this.getCallId().getCallId().equals(
-                ((SIPRequest) request).getCallId().getCallId())) {
+                ((SIPRequest) request).peekCallId().getCallId())) {
             if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
                 logger
                         .logError("CallID " + this.getCallId());
                 logger
                         .logError(
                                 "RequestCallID = "
-                                        + ackRequest.getCallId().getCallId());
+                                        + ackRequest.peekCallId().getCallId());
                 logger.logError("dialog =  " + this);
             }
             throw new SipException("Bad call ID in request");
@@ -1269,7 +1269,7 @@ public class SIPDialog implements DialogExt {
         this.isAcknowledged = true;
         this.highestSequenceNumberAcknowledged = Math.max(
                 this.highestSequenceNumberAcknowledged,
-                ((SIPRequest) ackRequest).getCSeq().getSeqNumber());
+                ((SIPRequest) ackRequest).peekCSeq().getSeqNumber());
         AckSendingStrategy ackSendingStrategy = new AckSendingStrategyImpl(ackRequest, hop, lp);
         sipStack.getMessageProcessorExecutor().addTaskFirst(ackSendingStrategy);
         // if (releaseAckSem && this.isBackToBackUserAgent) {
@@ -1451,7 +1451,7 @@ public class SIPDialog implements DialogExt {
 
         // JvB: Acceptable iff remoteCSeq < cseq. remoteCSeq==-1
         // when not defined yet, so that works too
-        return remoteSequenceNumber < dialogRequest.getCSeq().getSeqNumber();
+        return remoteSequenceNumber < dialogRequest.peekCSeq().getSeqNumber();
     }
 
     /**
@@ -1914,12 +1914,12 @@ public class SIPDialog implements DialogExt {
             }
 
             if (transaction instanceof SIPServerTransaction) {
-                this.hisTag = sipRequest.getFrom().getTag();
+                this.hisTag = sipRequest.peekFrom().getTag();
                 // My tag is assigned when sending response
             } else {
-                setLocalSequenceNumber(sipRequest.getCSeq().getSeqNumber());
+                setLocalSequenceNumber(sipRequest.peekCSeq().getSeqNumber());
                 this.originalLocalSequenceNumber = getLocalSeqNumber();
-                this.setLocalTag(sipRequest.getFrom().getTag());
+                this.setLocalTag(sipRequest.peekFrom().getTag());
                 if (myTag == null)
                     if (logger.isLoggingEnabled())
                         logger
@@ -1960,7 +1960,7 @@ public class SIPDialog implements DialogExt {
             firstTransaction = transaction;
         }
         if (transaction instanceof SIPServerTransaction) {
-            setRemoteSequenceNumber(sipRequest.getCSeq().getSeqNumber());
+            setRemoteSequenceNumber(sipRequest.peekCSeq().getSeqNumber());
         }
 
         // If this is a server transaction record the remote
@@ -1987,7 +1987,7 @@ public class SIPDialog implements DialogExt {
                  * (the number from the CSeq header field value) of the REFER this NOTIFY is associated with. 
                  * This id parameter MAY be included in NOTIFYs to the first REFER a UA receives in a given dialog 
                  */
-        		long lastReferCSeq = ((SIPRequest) transaction.getRequest()).getCSeq().getSeqNumber();
+        		long lastReferCSeq = ((SIPRequest) transaction.getRequest()).peekCSeq().getSeqNumber();
         		this.eventHeader = new Event();
         		this.eventHeader.setEventType("refer");
         		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
@@ -2250,7 +2250,7 @@ public class SIPDialog implements DialogExt {
      * set the call id header for this dialog.
      */
     private void setCallId(SIPRequest sipRequest) {
-        this.callIdHeader = sipRequest.getCallId();
+        this.callIdHeader = sipRequest.peekCallId();
     }
 
     /*
@@ -2276,9 +2276,9 @@ public class SIPDialog implements DialogExt {
 
     protected void setLocalParty(SIPMessage sipMessage) {
         if (!isServer()) {
-            this.localParty = sipMessage.getFrom().getAddress();
+            this.localParty = sipMessage.peekFrom().getAddress();
         } else {
-            this.localParty = sipMessage.getTo().getAddress();
+            this.localParty = sipMessage.peekTo().getAddress();
         }
     }
 
@@ -2673,20 +2673,20 @@ public class SIPDialog implements DialogExt {
             throw new SipException("Cannot send request; BYE already sent");
         }
 
-        if (dialogRequest.getTopmostVia() == null) {
+        if (dialogRequest.peekTopmostVia() == null) {
             Via via = ((SIPClientTransaction) clientTransaction)
                     .getOutgoingViaHeader();
             dialogRequest.addHeader(via);
         }
         if (!this.getCallId().getCallId().equalsIgnoreCase(
-                dialogRequest.getCallId().getCallId())) {
+                dialogRequest.peekCallId().getCallId())) {
 
             if (logger.isLoggingEnabled()) {
                 logger
                         .logError("CallID " + this.getCallId());
                 logger.logError(
                         "SIPDialog::sendRequest:RequestCallID = "
-                                + dialogRequest.getCallId().getCallId());
+                                + dialogRequest.peekCallId().getCallId());
                 logger.logError("dialog =  " + this);
             }
             throw new SipException("Bad call ID in request");
@@ -2730,7 +2730,7 @@ public class SIPDialog implements DialogExt {
                     && sipStack.generateTimeStampHeader) {
                 TimeStamp ts = new TimeStamp();
                 try {
-                    ts.setTimeStamp(System.currentTimeMillis());
+                    ts.setTimeStamp(sipStack.getClock().millis());
                     lastAckSentParsed.setHeader(ts);
                 } catch (InvalidArgumentException e) {
 
@@ -2852,13 +2852,13 @@ public class SIPDialog implements DialogExt {
         try {
             SIPResponse sipResponse = (SIPResponse) relResponse;
             SIPRequest sipRequest = this.createRequest(Request.PRACK,
-                    sipResponse.getTopmostVia().getTransport());
-            String toHeaderTag = sipResponse.getTo().getTag();
+                    sipResponse.peekTopmostVia().getTransport());
+            String toHeaderTag = sipResponse.peekTo().getTag();
             sipRequest.setToTag(toHeaderTag);
             RAck rack = new RAck();
             RSeq rseq = (RSeq) relResponse.getHeader(RSeqHeader.NAME);
-            rack.setMethod(sipResponse.getCSeq().getMethod());
-            rack.setCSequenceNumber((int) sipResponse.getCSeq().getSeqNumber());
+            rack.setMethod(sipResponse.peekCSeq().getMethod());
+            rack.setCSequenceNumber((int) sipResponse.peekCSeq().getSeqNumber());
             rack.setRSequenceNumber(rseq.getSeqNumber());
             sipRequest.setHeader(rack);
             if (this.proxyAuthorizationHeader != null) {
@@ -3048,9 +3048,9 @@ public class SIPDialog implements DialogExt {
             }
             via.removeParameters();
             if (originalRequest != null
-                    && originalRequest.getTopmostVia() != null) {
+                    && originalRequest.peekTopmostVia() != null) {
                 NameValueList originalRequestParameters = originalRequest
-                        .getTopmostVia().getParameters();
+                        .peekTopmostVia().getParameters();
                 if (originalRequestParameters != null
                         && originalRequestParameters.size() > 0) {
                     via.setParameters((NameValueList) originalRequestParameters
@@ -3160,7 +3160,7 @@ public class SIPDialog implements DialogExt {
      */
     public void setLastResponse(SIPTransaction transaction,
             SIPResponse sipResponse) {
-        this.callIdHeader = sipResponse.getCallId();
+        this.callIdHeader = sipResponse.peekCallId();
         final int statusCode = sipResponse.getStatusCode();
         if (statusCode == 100) {
             if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
@@ -3178,10 +3178,10 @@ public class SIPDialog implements DialogExt {
             this.lastResponseStatusCode = Integer.valueOf(statusCode);
             // Issue 378 : http://java.net/jira/browse/JSIP-378
             // Cloning the via header to avoid race condition and be modified
-            this.lastResponseTopMostVia = (Via) sipResponse.getTopmostVia().clone();            
-            String cseqMethod = sipResponse.getCSeqHeader().getMethod();
+            this.lastResponseTopMostVia = (Via) sipResponse.peekTopmostVia().clone();            
+            String cseqMethod = sipResponse.peekCSeq().getMethod();
             this.lastResponseMethod = cseqMethod;
-            long responseCSeqNumber = sipResponse.getCSeq().getSeqNumber();
+            long responseCSeqNumber = sipResponse.peekCSeq().getSeqNumber();
             
             boolean is100ClassResponse = statusCode / 100 == 1;
             boolean is200ClassResponse = statusCode / 100 == 2;
@@ -3422,10 +3422,10 @@ public class SIPDialog implements DialogExt {
                     boolean doPutDialog = false;
 
                     if (getLocalTag() == null
-                            && sipResponse.getTo().getTag() != null
+                            && sipResponse.peekTo().getTag() != null
                             && SIPTransactionStack.isDialogCreatingMethod(cseqMethod)
                             && cseqMethod.equals(getMethod())) {
-                        setLocalTag(sipResponse.getTo().getTag());
+                        setLocalTag(sipResponse.peekTo().getTag());
                         doPutDialog = true;
                     }
 
@@ -3496,7 +3496,7 @@ public class SIPDialog implements DialogExt {
 
             }
         } finally {
-            if (sipResponse.getCSeq().getMethod().equals(Request.INVITE) &&
+            if (sipResponse.peekCSeq().getMethod().equals(Request.INVITE) &&
                     transaction != null && transaction instanceof ClientTransaction && this.getState() != DialogState.TERMINATED) {
                 // this.acquireTimerTaskSem();
                 // try {
@@ -4117,7 +4117,7 @@ public class SIPDialog implements DialogExt {
     public void setPendingRouteUpdateOn202Response(SIPRequest sipRequest) {
         this.pendingRouteUpdateOn202Response = true;
         // Issue 374 : patch from ivan dubrov : get the from tag instead of to tag
-        String fromTag = sipRequest.getFromHeader().getTag();
+        String fromTag = sipRequest.peekFrom().getTag();
         if (fromTag != null) {
             this.setRemoteTag(fromTag);
         }
@@ -4145,48 +4145,128 @@ public class SIPDialog implements DialogExt {
                 logger.logDebug(
                         "cleanupOnAck : " + getDialogId());
             }
-            if (originalRequest != null) {
-                if (originalRequestRecordRouteHeaders != null) {
-                    originalRequestRecordRouteHeadersString = originalRequestRecordRouteHeaders
-                            .toString();
-                }
-                originalRequestRecordRouteHeaders = null;
-                originalRequest = null;
-            }
-            if (firstTransaction != null) {
-                if (firstTransaction.getOriginalRequest() != null) {
-                    firstTransaction.getOriginalRequest().cleanUp();
-                }
-                firstTransaction = null;
-            }
-            if (lastTransaction != null) {
-                if (lastTransaction.getOriginalRequest() != null) {
-                    lastTransaction.getOriginalRequest().cleanUp();
-                }
-                lastTransaction = null;
-            }
-            if (callIdHeader != null) {
-                callIdHeaderString = callIdHeader.toString();
-                callIdHeader = null;
-            }
-            if (contactHeader != null) {
-                contactHeaderStringified = contactHeader.toString();
-                contactHeader = null;
-            }
-            if (remoteTarget != null) {
-                remoteTargetStringified = remoteTarget.toString();
-                remoteTarget = null;
+            releaseReferences();
+        }
+    }
+
+    private void releaseReferences() {
+        if (originalRequest != null) {
+            if (originalRequestRecordRouteHeaders != null) {
+                originalRequestRecordRouteHeadersString = originalRequestRecordRouteHeaders
+                        .toString();
             }
-            if (remoteParty != null) {
-                remotePartyStringified = remoteParty.toString();
-                remoteParty = null;
+            originalRequestRecordRouteHeaders = null;
+            originalRequest = null;
+        }
+        if (firstTransaction != null) {
+            if (firstTransaction.getOriginalRequest() != null) {
+                firstTransaction.getOriginalRequest().cleanUp();
             }
-            if (localParty != null) {
-                localPartyStringified = localParty.toString();
-                localParty = null;
+            firstTransaction = null;
+        }
+        if (lastTransaction != null) {
+            if (lastTransaction.getOriginalRequest() != null) {
+                lastTransaction.getOriginalRequest().cleanUp();
             }
-            pendingReliableResponseAsBytes = null;
-            pendingReliableResponseMethod = null;
+            lastTransaction = null;
+        }
+        if (callIdHeader != null) {
+            callIdHeaderString = callIdHeader.toString();
+            callIdHeader = null;
+        }
+        if (contactHeader != null) {
+            contactHeaderStringified = contactHeader.toString();
+            contactHeader = null;
+        }
+        if (remoteTarget != null) {
+            remoteTargetStringified = remoteTarget.toString();
+            remoteTarget = null;
+        }
+        if (remoteParty != null) {
+            remotePartyStringified = remoteParty.toString();
+            remoteParty = null;
+        }
+        if (localParty != null) {
+            localPartyStringified = localParty.toString();
+            localParty = null;
+        }
+        pendingReliableResponseAsBytes = null;
+        pendingReliableResponseMethod = null;
+    }
+
+    /**
+     * Check if the dialog can be kept in serialized form by a state store
+     * until its next request, see
+     * {@link gov.nist.javax.sip.stack.state.StateStore}. This is the case
+     * once the dialog is confirmed, acknowledged and has neither a
+     * transaction nor a timer in progress.
+     * 
+     * @return true if the dialog can be passivated.
+     */
+    public boolean isPassivable() {
+        if (dialogState != CONFIRMED_STATE || ongoingTransactionId != null
+                || provisionalResponseTask != null
+                || pendingReliableResponseAsBytes != null
+                || dialogDeleteTask != null
+                || dialogDeleteIfNoAckSentTask != null
+                || earlyStateTimerTask != null || originalDialog != null
+                || (applicationData != null && !(applicationData instanceof Serializable))) {
+            return false;
+        }
+        if (!isTerminated(firstTransaction) || !isTerminated(lastTransaction)) {
+            return false;
+        }
+        if (Request.INVITE.equals(method)) {
+            return isServer() ? lastAckReceivedCSeqNumber != null : isAcknowledged;
+        }
+        return true;
+    }
+
+    private static boolean isTerminated(SIPTransaction transaction) {
+        return transaction == null
+                || transaction.getState() == TransactionState.TERMINATED;
+    }
+
+    /**
+     * Release the transactions and the parsed headers held by the dialog
+     * before it is serialized by a state store, whatever the
+     * {@link ReleaseReferencesStrategy} of the stack.
+     */
+    public void passivate() {
+        if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+            logger.logDebug("passivate : " + getDialogId());
+        }
+        releaseReferences();
+        timerTask = null;
+        lastAckSent = null;
+    }
+
+    /**
+     * Restore the state that is not serialized once a state store brings the
+     * dialog back from its serialized form.
+     * 
+     * @param sipStack
+     *            the stack the dialog belongs to.
+     * @param sipProvider
+     *            the provider the dialog was created with.
+     */
+    public void activate(SIPTransactionStack sipStack, SipProviderImpl sipProvider) {
+        this.sipStack = sipStack;
+        this.sipProvider = sipProvider;
+        this.eventListeners = new CopyOnWriteArraySet<SIPDialogEventListener>();
+        this.dialogTerminatedEventDelivered = new AtomicBoolean(false);
+        this.nextSeqno = new AtomicLong(this.getRemoteSeqNumber() + 1);
+        this.reInviteWaitTime = 100;
+        this.highestSequenceNumberAcknowledged = -1;
+        if (Request.INVITE.equals(method) && !isServer()) {
+            // only passivated after the ACK was sent
+            this.isAcknowledged = true;
+            this.highestSequenceNumberAcknowledged = localSequenceNumber;
+        }
+        addEventListener(sipStack);
+        addEventListener(sipProvider);
+        if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+            logger.logDebug("activate : " + getDialogId());
         }
     }
 
@@ -4280,8 +4360,8 @@ public class SIPDialog implements DialogExt {
 
     public void checkRetransmissionForForking(SIPResponse response) {
         final int statusCode = response.getStatusCode();
-        final String responseMethod = response.getCSeqHeader().getMethod();
-        final long responseCSeqNumber = response.getCSeq().getSeqNumber();
+        final String responseMethod = response.peekCSeq().getMethod();
+        final long responseCSeqNumber = response.peekCSeq().getSeqNumber();
         /*From RFC3262, 1 Introduction: Each provisional response is given a sequence number, carried in the
         RSeq header field in the response.  The PRACK messages contain an
         RAck header field, which indicates the sequence number of the
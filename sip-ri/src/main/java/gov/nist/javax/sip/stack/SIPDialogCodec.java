@@ -0,0 +1,268 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import javax.sip.address.Address;
+import javax.sip.header.CallIdHeader;
+import javax.sip.header.EventHeader;
+import javax.sip.header.ProxyAuthorizationHeader;
+
+import gov.nist.javax.sip.ReleaseReferencesStrategy;
+import gov.nist.javax.sip.address.AddressImpl;
+import gov.nist.javax.sip.header.Contact;
+import gov.nist.javax.sip.header.Route;
+import gov.nist.javax.sip.header.RouteList;
+import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.stack.state.CompactInput;
+import gov.nist.javax.sip.stack.state.CompactOutput;
+import gov.nist.javax.sip.stack.state.SIPHeaderCodec;
+import gov.nist.javax.sip.stack.state.StateCodec;
+
+/**
+ * Versioned binary form of a passivated dialog. The fields are written
+ * explicitly, the headers and addresses through {@link SIPHeaderCodec} so
+ * that reading a dialog back does not run the parser. Headers the dialog
+ * already released to their string form are kept as strings.
+ */
+public class SIPDialogCodec implements StateCodec<SIPDialog> {
+
+    public static final int VERSION = 1;
+
+    private static final int ABSENT = 0;
+    private static final int BINARY = 1;
+    private static final int TEXT = 2;
+
+    public void encode(SIPDialog dialog, DataOutput data) throws IOException {
+        data.writeByte(VERSION);
+        CompactOutput out = new CompactOutput(data);
+        out.writeString(dialog.method);
+        out.writeBoolean(dialog.reInviteFlag);
+        out.writeString(dialog.lastResponseDialogId);
+        writeHeader(out, dialog.lastResponseTopMostVia, null);
+        out.writeVarLong(dialog.lastResponseStatusCode == null ? -1 : dialog.lastResponseStatusCode.intValue());
+        out.writeVarLong(dialog.lastResponseCSeqNumber);
+        out.writeVarLong(dialog.lastInviteResponseCSeqNumber);
+        out.writeVarLong(dialog.lastInviteResponseCode);
+        out.writeString(dialog.lastResponseMethod);
+        out.writeString(dialog.lastResponseFromTag);
+        out.writeString(dialog.lastResponseToTag);
+        out.writeString(dialog.ongoingTransactionId);
+        out.writeString(dialog.dialogId);
+        out.writeVarLong(dialog.localSequenceNumber);
+        out.writeVarLong(dialog.remoteSequenceNumber);
+        out.writeString(dialog.myTag);
+        out.writeString(dialog.hisTag);
+        RouteList routeList = dialog.routeList;
+        out.writeVarInt(routeList == null ? 0 : routeList.size() + 1);
+        if (routeList != null) {
+            for (Route route : routeList) {
+                SIPHeaderCodec.writeHeader(out, route);
+            }
+        }
+        out.writeVarLong(dialog.dialogState);
+        out.writeVarLong(dialog.lastAckReceivedCSeqNumber == null ? -1
+                : dialog.lastAckReceivedCSeqNumber.longValue());
+        out.writeBoolean(dialog.timerTaskStarted.get());
+        out.writeVarLong(dialog.originalLocalSequenceNumber);
+        writeAddress(out, dialog.localParty, dialog.localPartyStringified);
+        writeAddress(out, dialog.remoteParty, dialog.remotePartyStringified);
+        writeHeader(out, (SIPHeader) dialog.callIdHeader, dialog.callIdHeaderString);
+        out.writeBoolean(dialog.serverTransactionFlag);
+        out.writeBoolean(dialog.terminateOnBye);
+        writeAddress(out, dialog.remoteTarget, dialog.remoteTargetStringified);
+        writeHeader(out, (SIPHeader) dialog.eventHeader, null);
+        out.writeBoolean(dialog.isBackToBackUserAgent);
+        out.writeBoolean(dialog.sequenceNumberValidation);
+        out.writeBoolean(dialog.firstTransactionSecure);
+        out.writeBoolean(dialog.firstTransactionSeen);
+        out.writeString(dialog.firstTransactionMethod);
+        out.writeString(dialog.firstTransactionId);
+        out.writeBoolean(dialog.firstTransactionIsServerTransaction);
+        out.writeString(dialog.firstTransactionMergeId);
+        out.writeVarLong(dialog.firstTransactionPort);
+        writeHeader(out, dialog.contactHeader, dialog.contactHeaderStringified);
+        out.writeBoolean(dialog.pendingRouteUpdateOn202Response);
+        writeHeader(out, (SIPHeader) dialog.proxyAuthorizationHeader, null);
+        out.writeVarInt(dialog.releaseReferencesStrategy == null ? 0
+                : dialog.releaseReferencesStrategy.ordinal() + 1);
+        out.writeVarLong(dialog.earlyDialogTimeout);
+        out.writeVarLong(dialog.rseqNumber);
+        out.writeBytes(dialog.pendingReliableResponseAsBytes);
+        out.writeString(dialog.pendingReliableResponseMethod);
+        out.writeVarLong(dialog.pendingReliableCSeqNumber);
+        out.writeVarLong(dialog.pendingReliableRSeqNumber);
+        Object applicationData = dialog.getApplicationData();
+        byte[] applicationBytes = null;
+        if (applicationData instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            ObjectOutputStream objects = new ObjectOutputStream(bytes);
+            objects.writeObject(applicationData);
+            objects.close();
+            applicationBytes = bytes.toByteArray();
+        }
+        out.writeBytes(applicationBytes);
+    }
+
+    public SIPDialog decode(DataInput data) throws IOException {
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported dialog record version " + version);
+        }
+        CompactInput in = new CompactInput(data);
+        SIPDialog dialog = new SIPDialog();
+        dialog.method = in.readString();
+        dialog.reInviteFlag = in.readBoolean();
+        dialog.lastResponseDialogId = in.readString();
+        dialog.lastResponseTopMostVia = (Via) readHeader(in);
+        int lastResponseStatusCode = (int) in.readVarLong();
+        dialog.lastResponseStatusCode = lastResponseStatusCode == -1 ? null
+                : Integer.valueOf(lastResponseStatusCode);
+        dialog.lastResponseCSeqNumber = in.readVarLong();
+        dialog.lastInviteResponseCSeqNumber = in.readVarLong();
+        dialog.lastInviteResponseCode = (int) in.readVarLong();
+        dialog.lastResponseMethod = in.readString();
+        dialog.lastResponseFromTag = in.readString();
+        dialog.lastResponseToTag = in.readString();
+        dialog.ongoingTransactionId = in.readString();
+        dialog.dialogId = in.readString();
+        dialog.localSequenceNumber = in.readVarLong();
+        dialog.remoteSequenceNumber = in.readVarLong();
+        dialog.myTag = in.readString();
+        dialog.hisTag = in.readString();
+        int routes = in.readVarInt();
+        if (routes > 0) {
+            RouteList routeList = new RouteList();
+            for (int i = 1; i < routes; i++) {
+                routeList.add((Route) SIPHeaderCodec.readHeader(in));
+            }
+            dialog.routeList = routeList;
+        }
+        dialog.dialogState = (int) in.readVarLong();
+        long lastAckReceivedCSeqNumber = in.readVarLong();
+        dialog.lastAckReceivedCSeqNumber = lastAckReceivedCSeqNumber == -1 ? null
+                : Long.valueOf(lastAckReceivedCSeqNumber);
+        dialog.timerTaskStarted.set(in.readBoolean());
+        dialog.originalLocalSequenceNumber = in.readVarLong();
+        int type = in.readByte();
+        if (type == BINARY) {
+            dialog.localParty = SIPHeaderCodec.readAddress(in);
+        } else if (type == TEXT) {
+            dialog.localPartyStringified = in.readString();
+        }
+        type = in.readByte();
+        if (type == BINARY) {
+            dialog.remoteParty = SIPHeaderCodec.readAddress(in);
+        } else if (type == TEXT) {
+            dialog.remotePartyStringified = in.readString();
+        }
+        type = in.readByte();
+        if (type == BINARY) {
+            dialog.callIdHeader = (CallIdHeader) SIPHeaderCodec.readHeader(in);
+        } else if (type == TEXT) {
+            dialog.callIdHeaderString = in.readString();
+        }
+        dialog.serverTransactionFlag = in.readBoolean();
+        dialog.terminateOnBye = in.readBoolean();
+        type = in.readByte();
+        if (type == BINARY) {
+            dialog.remoteTarget = SIPHeaderCodec.readAddress(in);
+        } else if (type == TEXT) {
+            dialog.remoteTargetStringified = in.readString();
+        }
+        dialog.eventHeader = (EventHeader) readHeader(in);
+        dialog.isBackToBackUserAgent = in.readBoolean();
+        dialog.sequenceNumberValidation = in.readBoolean();
+        dialog.firstTransactionSecure = in.readBoolean();
+        dialog.firstTransactionSeen = in.readBoolean();
+        dialog.firstTransactionMethod = in.readString();
+        dialog.firstTransactionId = in.readString();
+        dialog.firstTransactionIsServerTransaction = in.readBoolean();
+        dialog.firstTransactionMergeId = in.readString();
+        dialog.firstTransactionPort = (int) in.readVarLong();
+        type = in.readByte();
+        if (type == BINARY) {
+            dialog.contactHeader = (Contact) SIPHeaderCodec.readHeader(in);
+        } else if (type == TEXT) {
+            dialog.contactHeaderStringified = in.readString();
+        }
+        dialog.pendingRouteUpdateOn202Response = in.readBoolean();
+        dialog.proxyAuthorizationHeader = (ProxyAuthorizationHeader) readHeader(in);
+        int strategy = in.readVarInt();
+        dialog.releaseReferencesStrategy = strategy == 0 ? null
+                : ReleaseReferencesStrategy.values()[strategy - 1];
+        dialog.earlyDialogTimeout = (int) in.readVarLong();
+        dialog.rseqNumber = (int) in.readVarLong();
+        dialog.pendingReliableResponseAsBytes = in.readBytes();
+        dialog.pendingReliableResponseMethod = in.readString();
+        dialog.pendingReliableCSeqNumber = in.readVarLong();
+        dialog.pendingReliableRSeqNumber = in.readVarLong();
+        byte[] applicationBytes = in.readBytes();
+        if (applicationBytes != null) {
+            ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(applicationBytes));
+            try {
+                dialog.setApplicationData(objects.readObject());
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Cannot decode the application data", e);
+            } finally {
+                objects.close();
+            }
+        }
+        return dialog;
+    }
+
+    private static void writeAddress(CompactOutput out, Address address, String stringified)
+            throws IOException {
+        if (address != null) {
+            out.writeByte(BINARY);
+            SIPHeaderCodec.writeAddress(out, (AddressImpl) address);
+        } else if (stringified != null) {
+            out.writeByte(TEXT);
+            out.writeString(stringified);
+        } else {
+            out.writeByte(ABSENT);
+        }
+    }
+
+    private static void writeHeader(CompactOutput out, SIPHeader header, String stringified)
+            throws IOException {
+        if (header != null) {
+            out.writeByte(BINARY);
+            SIPHeaderCodec.writeHeader(out, header);
+        } else if (stringified != null) {
+            out.writeByte(TEXT);
+            out.writeString(stringified);
+        } else {
+            out.writeByte(ABSENT);
+        }
+    }
+
+    private static SIPHeader readHeader(CompactInput in) throws IOException {
+        return in.readByte() == BINARY ? SIPHeaderCodec.readHeader(in) : null;
+    }
+}
@@ -57,6 +57,7 @@ import gov.nist.javax.sip.message.SIPRequest;
 import gov.nist.javax.sip.message.SIPResponse;
 import gov.nist.javax.sip.stack.IllegalTransactionStateException.Reason;
 import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
 import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
 
 /*
@@ -262,7 +263,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
         public String getId() {
             Request request = getRequest();
             if (request != null && request instanceof SIPRequest) {
-                return ((SIPRequest) request).getCallIdHeader().getCallId();
+                return ((SIPRequest) request).peekCallId().getCallId();
             } else {
                 return originalRequestCallId;
             }
@@ -301,7 +302,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                 // should open new channel based on via header
                 getMessageChannel().sendMessage(transactionResponse);
             } else {
-                Via via = transactionResponse.getTopmostVia();
+                Via via = transactionResponse.peekTopmostVia();
                 String transport = via.getTransport();
                 if (transport == null)
                     throw new IOException("missing transport!");
@@ -354,7 +355,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
 
                 MessageChannel messageChannel = ((SIPTransactionStack) getSIPStack())
                         .createRawMessageChannel(this.getSipProvider().getListeningPoint(
-                                hop.getTransport()).getIPAddress(), this.getPort(), hop);
+                                hop.getTransport()).getIPAddress(), this.getPort(), hop, getCallId());
                 if (messageChannel != null) {
                     messageChannel.sendMessage(transactionResponse);
                     lastResponseHost = host;
@@ -368,6 +369,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                 }
 
             }
+            MessageTrace.mark(transactionResponse, MessageTrace.Stage.SENT);
             lastResponseAsBytes = transactionResponse.encodeAsBytes(this.getTransport());
             lastResponse = null;
         } finally {
@@ -428,7 +430,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
 
         // Flags whether the select message is part of this transaction
         boolean transactionMatches = false;
-        final String method = messageToTest.getCSeq().getMethod();
+        final String method = messageToTest.peekCSeq().getMethod();
         SIPRequest origRequest = getOriginalRequest();
         // Invite Server transactions linger in the terminated state in the
         // transaction
@@ -437,7 +439,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
         if (isInviteTransaction() || !isTerminated()) {
 
             // Get the topmost Via header and its branch parameter
-            final Via topViaHeader = messageToTest.getTopmostVia();
+            final Via topViaHeader = messageToTest.peekTopmostVia();
             if (topViaHeader != null) {
 
                 // topViaHeader = (Via) viaHeaders.getFirst();
@@ -468,7 +470,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                         transactionMatches = this.getMethod().equals(Request.CANCEL)
                                 && getBranch().equalsIgnoreCase(messageBranch)
                                 && topViaHeader.getSentBy().equals(
-                                        origRequest.getTopmostVia()
+                                        origRequest.peekTopmostVia()
                                                 .getSentBy());
 
                     } else {
@@ -477,7 +479,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                         if (origRequest != null) {
                             transactionMatches = getBranch().equalsIgnoreCase(messageBranch)
                                     && topViaHeader.getSentBy().equals(
-                                            origRequest.getTopmostVia()
+                                            origRequest.peekTopmostVia()
                                                     .getSentBy());
                         } else {
                             transactionMatches = getBranch().equalsIgnoreCase(messageBranch)
@@ -500,34 +502,34 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                     // to be part of an otherwise-matching INVITE transaction.
                     String originalFromTag = origRequest.getFromTag();
 
-                    String thisFromTag = messageToTest.getFrom().getTag();
+                    String thisFromTag = messageToTest.peekFrom().getTag();
 
                     boolean skipFrom = (originalFromTag == null || thisFromTag == null);
 
                     String originalToTag = origRequest.getToTag();
 
-                    String thisToTag = messageToTest.getTo().getTag();
+                    String thisToTag = messageToTest.peekTo().getTag();
 
                     boolean skipTo = (originalToTag == null || thisToTag == null);
                     boolean isResponse = (messageToTest instanceof SIPResponse);
                     // Issue #96: special case handling for a CANCEL request -
                     // the CSeq method of the original request must
                     // be CANCEL for it to have a chance at matching.
-                    if (messageToTest.getCSeq().getMethod().equalsIgnoreCase(Request.CANCEL)
-                            && !origRequest.getCSeq().getMethod().equalsIgnoreCase(
+                    if (messageToTest.peekCSeq().getMethod().equalsIgnoreCase(Request.CANCEL)
+                            && !origRequest.peekCSeq().getMethod().equalsIgnoreCase(
                                     Request.CANCEL)) {
                         transactionMatches = false;
                     } else if ((isResponse || origRequest.getRequestURI().equals(
                             ((SIPRequest) messageToTest).getRequestURI()))
                             && (skipFrom || originalFromTag != null && originalFromTag.equalsIgnoreCase(thisFromTag))
                             && (skipTo || originalToTag != null && originalToTag.equalsIgnoreCase(thisToTag))
-                            && origRequest.getCallId().getCallId().equalsIgnoreCase(
-                                    messageToTest.getCallId().getCallId())
-                            && origRequest.getCSeq().getSeqNumber() == messageToTest
-                                    .getCSeq().getSeqNumber()
-                            && ((!messageToTest.getCSeq().getMethod().equals(Request.CANCEL)) ||
-                                    getMethod().equals(messageToTest.getCSeq().getMethod()))
-                            && topViaHeader.equals(origRequest.getTopmostVia())) {
+                            && origRequest.peekCallId().getCallId().equalsIgnoreCase(
+                                    messageToTest.peekCallId().getCallId())
+                            && origRequest.peekCSeq().getSeqNumber() == messageToTest
+                                    .peekCSeq().getSeqNumber()
+                            && ((!messageToTest.peekCSeq().getMethod().equals(Request.CANCEL)) ||
+                                    getMethod().equals(messageToTest.peekCSeq().getMethod()))
+                            && topViaHeader.equals(origRequest.peekTopmostVia())) {
 
                         transactionMatches = true;
                     }
@@ -706,7 +708,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                     if (thisDialog == null || !thisDialog.ackProcessed) {
                         // Filter out duplicate acks
                         if (thisDialog != null) {
-                            thisDialog.ackReceived(transactionRequest.getCSeq().getSeqNumber());
+                            thisDialog.ackReceived(transactionRequest.peekCSeq().getSeqNumber());
                             thisDialog.ackProcessed = true;
                         }
                         requestOf.processRequest(transactionRequest, encapsulatedChannel);
@@ -761,15 +763,19 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
             try {
                 // Provided we have set the banch id for this we set the BID for
                 // the
-                // outgoing via.
-                if (originalRequestBranch != null)
-                    transactionResponse.getTopmostVia().setBranch(this.getBranch());
-                else
+                // outgoing via. The topmost via is usually shared with the
+                // request, it is only copied when it has to change.
+                final Via topmostVia = transactionResponse.peekTopmostVia();
+                if (originalRequestBranch != null) {
+                    if (!this.getBranch().equals(topmostVia.getBranch()))
+                        transactionResponse.getTopmostVia().setBranch(this.getBranch());
+                } else if (topmostVia.hasParameter(ParameterNames.BRANCH)) {
                     transactionResponse.getTopmostVia().removeParameter(ParameterNames.BRANCH);
+                }
 
                 // Make the topmost via headers match identically for the
                 // transaction rsponse.
-                if (!originalRequestHasPort)
+                if (!originalRequestHasPort && topmostVia.hasPort())
                     transactionResponse.getTopmostVia().removePort();
             } catch (ParseException ex) {
                 logger.logError("UnexpectedException", ex);
@@ -778,7 +784,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
 
             // Method of the response does not match the request used to
             // create the transaction - transaction state does not change.
-            if (!transactionResponse.getCSeq().getMethod().equals(
+            if (!transactionResponse.peekCSeq().getMethod().equals(
                     getMethod())) {
                 sendResponse(transactionResponse);
                 return;
@@ -1082,7 +1088,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                                     .getMessageProcessor().getIpAddress());
 
                     getMessageChannel().logMessage(lastReparsedResponse, this.getPeerInetAddress(),
-                            this.getPeerPort(), System.currentTimeMillis());
+                            this.getPeerPort(), sipStack.getClock().millis());
                 } catch (ParseException e) {
                     if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
                         logger.logDebug("couldn't reparse last response " + new String(lastResponseAsBytes), e);
@@ -1097,7 +1103,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
 
             MessageChannel messageChannel = ((SIPTransactionStack) getSIPStack())
                     .createRawMessageChannel(this.getSipProvider().getListeningPoint(
-                            hop.getTransport()).getIPAddress(), this.getPort(), hop);
+                            hop.getTransport()).getIPAddress(), this.getPort(), hop, getCallId());
             if (messageChannel != null) {
                 if (logger.isLoggingEnabled(ServerLogger.TRACE_MESSAGES)) {
                     // Issue 343 : we have to log the retransmission
@@ -1112,7 +1118,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                         lastReparsedResponse.setLocalAddress(messageChannel.getMessageProcessor().getIpAddress());
 
                         messageChannel.logMessage(lastReparsedResponse, messageChannel.getPeerInetAddress(),
-                                messageChannel.getPeerPort(), System.currentTimeMillis());
+                                messageChannel.getPeerPort(), sipStack.getClock().millis());
                     } catch (ParseException e) {
                         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
                             logger.logDebug("couldn't reparse last response " + new String(lastResponseAsBytes), e);
@@ -1231,7 +1237,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
         }
 
         // check for meaningful response.
-        final String responseMethod = sipResponse.getCSeq().getMethod();
+        final String responseMethod = sipResponse.peekCSeq().getMethod();
         if (!responseMethod.equals(this.getMethod())) {
             throw new IllegalTransactionStateException(
                     "CSeq method does not match Request method of request that created the tx.", Reason.UnmatchingCSeq);
@@ -1853,7 +1859,7 @@ public class SIPServerTransactionImpl extends SIPTransactionImpl implements SIPS
                 originalRequest.setInviteTransaction(null);
                 if (!getMethod().equalsIgnoreCase(Request.INVITE)) {
                     if (originalRequestSentBy == null) {
-                        originalRequestSentBy = originalRequest.getTopmostVia().getSentBy();
+                        originalRequestSentBy = originalRequest.peekTopmostVia().getSentBy();
                     }
                     if (originalRequestFromTag == null) {
                         originalRequestFromTag = originalRequest.getFromTag();
@@ -293,7 +293,7 @@ public abstract class SIPTransactionImpl implements SIPTransaction {
         public String getId() {
             Request request = getRequest();
             if (request != null && request instanceof SIPRequest) {
-                return ((SIPRequest)request).getCallIdHeader().getCallId();
+                return ((SIPRequest)request).peekCallId().getCallId();
             } else {
                 return originalRequestCallId;
             }
@@ -337,7 +337,7 @@ public abstract class SIPTransactionImpl implements SIPTransaction {
         public String getId() {
             Request request = getRequest();
             if (request != null && request instanceof SIPRequest) {
-                return ((SIPRequest)request).getCallIdHeader().getCallId();
+                return ((SIPRequest)request).peekCallId().getCallId();
             } else {
                 return originalRequestCallId;
             }
@@ -413,9 +413,9 @@ public abstract class SIPTransactionImpl implements SIPTransaction {
         // This will be cleared later.
 
         this.originalRequest = newOriginalRequest;
-        this.originalRequestCSeqNumber = newOriginalRequest.getCSeq().getSeqNumber();
-        this.originalRequestCallId = newOriginalRequest.getCallIdHeader().getCallId();
-        final Via topmostVia = newOriginalRequest.getTopmostVia();
+        this.originalRequestCSeqNumber = newOriginalRequest.peekCSeq().getSeqNumber();
+        this.originalRequestCallId = newOriginalRequest.peekCallId().getCallId();
+        final Via topmostVia = newOriginalRequest.peekTopmostVia();
         this.originalRequestBranch = topmostVia.getBranch();
         this.originalRequestHasPort = topmostVia.hasPort();
         int originalRequestViaPort = topmostVia.getPort();
@@ -1037,7 +1037,7 @@ public abstract class SIPTransactionImpl implements SIPTransaction {
                 || this.getMethod().equals(Request.CANCEL))
             return false;
         // Get the topmost Via header and its branch parameter
-        topViaHeader = requestToTest.getTopmostVia();
+        topViaHeader = requestToTest.peekTopmostVia();
         if (topViaHeader != null) {
 
 //            topViaHeader = (Via) viaHeaders.getFirst();
@@ -1064,7 +1064,7 @@ public abstract class SIPTransactionImpl implements SIPTransaction {
                 // this message,
                 if (getBranch().equalsIgnoreCase(messageBranch)
                         && topViaHeader.getSentBy().equals(
-                                origRequest.getTopmostVia().getSentBy())) {
+                                origRequest.peekTopmostVia().getSentBy())) {
                     transactionMatches = true;
                     if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
                         logger.logDebug("returning  true");
@@ -1081,15 +1081,15 @@ public abstract class SIPTransactionImpl implements SIPTransaction {
 
                 if (origRequest.getRequestURI().equals(
                         requestToTest.getRequestURI())
-                        && origRequest.getTo().equals(
-                                requestToTest.getTo())
-                        && origRequest.getFrom().equals(
-                                requestToTest.getFrom())
-                        && origRequest.getCallId().getCallId().equals(
-                                requestToTest.getCallId().getCallId())
-                        && origRequest.getCSeq().getSeqNumber() == requestToTest
-                                .getCSeq().getSeqNumber()
-                        && topViaHeader.equals(origRequest.getTopmostVia())) {
+                        && origRequest.peekTo().equals(
+                                requestToTest.peekTo())
+                        && origRequest.peekFrom().equals(
+                                requestToTest.peekFrom())
+                        && origRequest.peekCallId().getCallId().equals(
+                                requestToTest.peekCallId().getCallId())
+                        && origRequest.peekCSeq().getSeqNumber() == requestToTest
+                                .peekCSeq().getSeqNumber()
+                        && topViaHeader.equals(origRequest.peekTopmostVia())) {
 
                     transactionMatches = true;
                 }
@@ -47,6 +47,7 @@ import javax.sip.header.CallIdHeader;
 import javax.sip.header.EventHeader;
 import javax.sip.message.Request;
 
+import gov.nist.core.Clock;
 import gov.nist.core.CommonLogger;
 import gov.nist.core.Host;
 import gov.nist.core.HostPort;
@@ -54,6 +55,7 @@ import gov.nist.core.LogLevels;
 import gov.nist.core.LogWriter;
 import gov.nist.core.ServerLogger;
 import gov.nist.core.StackLogger;
+import gov.nist.core.SystemClock;
 import gov.nist.core.ThreadAuditor;
 import gov.nist.core.executor.MessageProcessorExecutor;
 import gov.nist.core.executor.StackExecutor;
@@ -70,6 +72,7 @@ import gov.nist.javax.sip.SipListenerExt;
 import gov.nist.javax.sip.SipProviderImpl;
 import gov.nist.javax.sip.SipStackImpl;
 import gov.nist.javax.sip.Utils;
+import gov.nist.javax.sip.header.CallID;
 import gov.nist.javax.sip.header.Event;
 import gov.nist.javax.sip.header.Via;
 import gov.nist.javax.sip.header.extensions.JoinHeader;
@@ -77,11 +80,22 @@ import gov.nist.javax.sip.header.extensions.ReplacesHeader;
 import gov.nist.javax.sip.message.SIPMessage;
 import gov.nist.javax.sip.message.SIPRequest;
 import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.parser.LazyStringMsgParserFactory;
 import gov.nist.javax.sip.parser.MessageParserFactory;
+import gov.nist.javax.sip.stack.proxy.StatelessForwarder;
+import gov.nist.javax.sip.stack.proxy.StatelessRequestRouter;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
+import gov.nist.javax.sip.stack.trace.MessageTraceSink;
+import gov.nist.javax.sip.stack.trace.MessageTracer;
+import gov.nist.javax.sip.stack.state.HeapStateStore;
+import gov.nist.javax.sip.stack.state.StateStore;
+import gov.nist.javax.sip.stack.state.StateStoreFactory;
 import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
 import gov.nist.javax.sip.stack.timers.SipTimer;
 import gov.nist.javax.sip.stack.transports.processors.ClientAuthType;
 import gov.nist.javax.sip.stack.transports.processors.ConnectionOrientedMessageProcessor;
+import gov.nist.javax.sip.stack.transports.processors.IdleConnectionSweeper;
+import gov.nist.javax.sip.stack.transports.processors.SourceRateLimiter;
 import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
 import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.MessageProcessorFactory;
@@ -91,6 +105,7 @@ import gov.nist.javax.sip.stack.transports.processors.netty.NettyStreamMessagePr
 import gov.nist.javax.sip.stack.transports.processors.nio.NIOMode;
 import gov.nist.javax.sip.stack.transports.processors.nio.NioTcpMessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.nio.NioTlsMessageProcessor;
+import gov.nist.javax.sip.stack.transports.processors.nio.TlsHandshakePool;
 import gov.nist.javax.sip.stack.transports.processors.oio.TCPMessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.oio.TLSMessageProcessor;
 
@@ -142,19 +157,28 @@ public abstract class SIPTransactionStack implements
     protected ConcurrentHashMap<String, SIPServerTransaction> retransmissionAlertTransactions;
 
     // Table of early dialogs ( to keep identity mapping )
-    protected ConcurrentHashMap<String, SIPDialog> earlyDialogTable;
+    protected StateStore<SIPDialog> earlyDialogTable;
 
     // Table of dialogs.
-    protected ConcurrentHashMap<String, SIPDialog> dialogTable;
+    protected StateStore<SIPDialog> dialogTable;
 
     // Table of server dialogs ( for loop detection)
     protected ConcurrentHashMap<String, SIPDialog> serverDialogMergeTestTable;
 
+    // Creates the dialog and transaction tables, null for the heap tables.
+    protected StateStoreFactory stateStoreFactory;
+
     // A set of methods that result in dialog creations.
     protected static final Set<String> dialogCreatingMethods = new HashSet<String>();
 
     // Global timer. Use this for all timer tasks.
     protected SipTimer timer;
+    // Source of the time of the stack, read instead of System.currentTimeMillis().
+    protected Clock clock = new SystemClock();
+    // Expires the idle connections, created with the first one to watch.
+    private IdleConnectionSweeper idleConnectionSweeper;
+    // Runs the TLS handshake tasks of the NIO channels, created with the first one.
+    private TlsHandshakePool tlsHandshakePool;
     // Global Message Processor Executor. Use this for all tasks except timers.
     protected StackExecutor messageProcessorExecutor = null;    
 
@@ -162,7 +186,7 @@ public abstract class SIPTransactionStack implements
     private ConcurrentHashMap<String, SIPServerTransaction> pendingTransactions;
 
     // hashtable for fast lookup
-    protected ConcurrentHashMap<String, SIPClientTransaction> clientTransactionTable;
+    protected StateStore<SIPClientTransaction> clientTransactionTable;
 
     // Set to false if you want hiwat and lowat to be consulted.
     protected boolean unlimitedServerTransactionTableSize = true;
@@ -189,7 +213,7 @@ public abstract class SIPTransactionStack implements
     private AtomicInteger activeClientTransactionCount = new AtomicInteger(0);
 
     // Hashtable for server transactions.
-    protected ConcurrentHashMap<String, SIPServerTransaction> serverTransactionTable;
+    protected StateStore<SIPServerTransaction> serverTransactionTable;
 
     // A table of ongoing transactions indexed by mergeId ( for detecting merged
     // requests.
@@ -386,6 +410,12 @@ public abstract class SIPTransactionStack implements
     // Send UDP buffer size
     protected int sendUdpBufferSize;
 
+    // Number of datagrams read or written per system call
+    protected int udpBatchSize = 1;
+
+    // Id of the cluster node carried by the Call-IDs of the stack, null if none
+    protected String nodeId;
+
     // Receive TCP buffer size
     protected int tcpSoRcvbuf;
 
@@ -416,6 +446,8 @@ public abstract class SIPTransactionStack implements
     private boolean deliverTerminatedEventForAck = false;
 
     protected boolean patchWebSocketHeaders = false;
+
+    protected boolean webSocketPerMessageDeflate = false;
     
     protected boolean patchRport = false;
     
@@ -438,11 +470,17 @@ public abstract class SIPTransactionStack implements
     
     public long nioSocketMaxIdleTime;
     
-    public NIOMode nioMode = NIOMode.BLOCKING;
+    public NIOMode nioMode = NIOMode.NONBLOCKING;
 
     private ReleaseReferencesStrategy releaseReferencesStrategy = ReleaseReferencesStrategy.None;
 
     public List<SIPMessageValve> sipMessageValves;
+
+    // Forwards the requests statelessly when a router is set, null otherwise.
+    protected StatelessForwarder statelessForwarder;
+
+    // Samples the messages received when a trace sink is set, null otherwise.
+    protected MessageTracer messageTracer;
     
     public SIPEventInterceptor sipEventInterceptor;
 
@@ -462,8 +500,27 @@ public abstract class SIPTransactionStack implements
      *  a value < 0 means that the RFC 5626 will not be triggered, as a default we don't enable it not to change existing apps behavior.
      */
     protected int reliableConnectionKeepAliveTimeout = -1;
+
+    /**
+     * Number of connections opened to each destination of the TCP and TLS
+     * transports, the messages of a call being kept on one of them.
+     */
+    protected int reliableConnectionPoolSize = 1;
     
     private long sslHandshakeTimeout = -1;
+
+    // Threads running the delegated tasks of the NIO TLS handshakes, 0 to run them on the selector thread.
+    private int tlsHandshakeThreads = Runtime.getRuntime().availableProcessors();
+
+    // Handshakes waiting for a thread of the pool before they run on the selector thread.
+    private int tlsHandshakeQueueSize = 1024;
+
+    // Size and timeout in seconds of the TLS session caches, -1 for the JDK defaults.
+    private int tlsSessionCacheSize = -1;
+    private int tlsSessionTimeout = -1;
+
+    // Rate limit of the messages of each source checked before parsing, null when disabled.
+    private SourceRateLimiter sourceRateLimiter;
     
     private boolean sslRenegotiationEnabled = false;
 
@@ -509,6 +566,13 @@ public abstract class SIPTransactionStack implements
         return messageProcessorExecutor;
     }
 
+    /**
+     * @return the interval in milliseconds at which the executor polls its queues.
+     */
+    public long getTaskInterval() {
+        return taskInterval;
+    }
+
     public void setMessageProcessorExecutor(MessageProcessorExecutor messageProcessorExecutor) {
         this.messageProcessorExecutor = messageProcessorExecutor;
     }
@@ -626,12 +690,12 @@ public abstract class SIPTransactionStack implements
         // Create the transaction collections
 
         // Dialog dable.
-        this.dialogTable = new ConcurrentHashMap<String, SIPDialog>();
-        this.earlyDialogTable = new ConcurrentHashMap<String, SIPDialog>();
+        this.dialogTable = new HeapStateStore<SIPDialog>();
+        this.earlyDialogTable = new HeapStateStore<SIPDialog>();
         this.serverDialogMergeTestTable = new ConcurrentHashMap<String, SIPDialog>();
 
-        clientTransactionTable = new ConcurrentHashMap<String, SIPClientTransaction>();
-        serverTransactionTable = new ConcurrentHashMap<String, SIPServerTransaction>();
+        clientTransactionTable = new HeapStateStore<SIPClientTransaction>();
+        serverTransactionTable = new HeapStateStore<SIPServerTransaction>();
         this.terminatedServerTransactionsPendingAck = new ConcurrentHashMap<String, SIPServerTransaction>();
         mergeTable = new ConcurrentHashMap<String, SIPServerTransaction>();
         retransmissionAlertTransactions = new ConcurrentHashMap<String, SIPServerTransaction>();
@@ -656,16 +720,19 @@ public abstract class SIPTransactionStack implements
         messageProcessors = new ConcurrentHashMap<String, MessageProcessor>();
         // Handle IO for this process.
         pendingTransactions = new ConcurrentHashMap<String, SIPServerTransaction>();
-        clientTransactionTable = new ConcurrentHashMap<String, SIPClientTransaction>();
-        serverTransactionTable = new ConcurrentHashMap<String, SIPServerTransaction>();
+        clientTransactionTable = new HeapStateStore<SIPClientTransaction>();
+        serverTransactionTable = new HeapStateStore<SIPServerTransaction>();
         retransmissionAlertTransactions = new ConcurrentHashMap<String, SIPServerTransaction>();
         mergeTable = new ConcurrentHashMap<String, SIPServerTransaction>();
         // Dialog dable.
-        this.dialogTable = new ConcurrentHashMap<String, SIPDialog>();
-        this.earlyDialogTable = new ConcurrentHashMap<String, SIPDialog>();
+        this.dialogTable = new HeapStateStore<SIPDialog>();
+        this.earlyDialogTable = new HeapStateStore<SIPDialog>();
         this.serverDialogMergeTestTable = new ConcurrentHashMap<String, SIPDialog>();
         this.terminatedServerTransactionsPendingAck = new ConcurrentHashMap<String,SIPServerTransaction>();
         // this.forkedClientTransactionTable = new ConcurrentHashMap<String,SIPClientTransaction>();
+        if (stateStoreFactory != null) {
+            createStateStores(stateStoreFactory);
+        }
 
         this.activeClientTransactionCount = new AtomicInteger(0);
 
@@ -1200,7 +1267,7 @@ public abstract class SIPTransactionStack implements
                         + getClientTransactionTableSize());
             }
 
-            String thisToTag = notifyMessage.getTo().getTag();
+            String thisToTag = notifyMessage.peekTo().getTag();
             if (thisToTag == null) {
                 return retval;
             }
@@ -1241,7 +1308,7 @@ public abstract class SIPTransactionStack implements
                 if (  fromTag.equalsIgnoreCase(thisToTag)
                       && hisEvent != null
                       && eventHdr.match(hisEvent)
-                      && notifyMessage.getCallId().getCallId().equalsIgnoreCase(
+                      && notifyMessage.peekCallId().getCallId().equalsIgnoreCase(
                                 ct.getOriginalRequestCallId())) {
                     // if (!this.isDeliverUnsolicitedNotify() ) {
                     //     ct.acquireSem();
@@ -1281,7 +1348,7 @@ public abstract class SIPTransactionStack implements
      */
     public void addTransactionPendingAck(SIPServerTransaction serverTransaction) {
         String branchId = ((SIPRequest) serverTransaction.getRequest())
-                .getTopmostVia().getBranch();
+                .peekTopmostVia().getBranch();
         if ( branchId != null ) {
             this.terminatedServerTransactionsPendingAck.put(branchId,
                     serverTransaction);
@@ -1298,7 +1365,7 @@ public abstract class SIPTransactionStack implements
      */
     public SIPServerTransaction findTransactionPendingAck(SIPRequest ackMessage) {
         return this.terminatedServerTransactionsPendingAck.get(ackMessage
-                .getTopmostVia().getBranch());
+                .peekTopmostVia().getBranch());
     }
 
     /**
@@ -1330,7 +1397,7 @@ public abstract class SIPTransactionStack implements
     public boolean isTransactionPendingAck(
             SIPServerTransaction serverTransaction) {
         String branchId = ((SIPRequest) serverTransaction.getRequest())
-                .getTopmostVia().getBranch();
+                .peekTopmostVia().getBranch();
         return this.terminatedServerTransactionsPendingAck.contains(branchId);
     }
 
@@ -1351,7 +1418,7 @@ public abstract class SIPTransactionStack implements
         SIPTransaction retval = null;
         try {
             if (isServer) {
-                Via via = sipMessage.getTopmostVia();
+                Via via = sipMessage.peekTopmostVia();
                 if (via.getBranch() != null) {
                     String key = sipMessage.getTransactionId();
 
@@ -1382,7 +1449,7 @@ public abstract class SIPTransactionStack implements
                 }
 
             } else {
-                Via via = sipMessage.getTopmostVia();
+                Via via = sipMessage.peekTopmostVia();
                 if (via.getBranch() != null) {
                     String key = sipMessage.getTransactionId();
                     if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
@@ -1656,6 +1723,15 @@ public abstract class SIPTransactionStack implements
      */
     public ServerRequestInterface newSIPServerRequest(
             SIPRequest requestReceived, MessageChannel requestMessageChannel) {
+        ServerRequestInterface serverRequest = matchServerRequest(requestReceived, requestMessageChannel);
+        if (serverRequest != null && serverRequest != StatelessForwarder.FORWARDED_REQUEST) {
+            MessageTrace.mark(requestReceived, MessageTrace.Stage.MATCHED);
+        }
+        return serverRequest;
+    }
+
+    private ServerRequestInterface matchServerRequest(
+            SIPRequest requestReceived, MessageChannel requestMessageChannel) {
         // Next transaction in the set
         SIPServerTransaction nextTransaction;
 
@@ -1692,6 +1768,11 @@ public abstract class SIPTransactionStack implements
         	}
         }
 
+        if (statelessForwarder != null
+                && statelessForwarder.processRequest(requestReceived, requestMessageChannel)) {
+            return StatelessForwarder.FORWARDED_REQUEST;
+        }
+
         // Transaction to handle this request
         SIPServerTransaction currentTransaction = (SIPServerTransaction) findTransaction(key, true);
 
@@ -1755,7 +1836,7 @@ public abstract class SIPTransactionStack implements
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
             logger.logDebug("newSIPServerRequest( "
                     + requestReceived.getMethod() + ":"
-                    + requestReceived.getTopmostVia().getBranch() + "):"
+                    + requestReceived.peekTopmostVia().getBranch() + "):"
                     + currentTransaction);
         }
 
@@ -1806,6 +1887,15 @@ public abstract class SIPTransactionStack implements
      */
     public ServerResponseInterface newSIPServerResponse(
             SIPResponse responseReceived, MessageChannel responseMessageChannel) {
+        ServerResponseInterface serverResponse = matchServerResponse(responseReceived, responseMessageChannel);
+        if (serverResponse != null && serverResponse != StatelessForwarder.FORWARDED_RESPONSE) {
+            MessageTrace.mark(responseReceived, MessageTrace.Stage.MATCHED);
+        }
+        return serverResponse;
+    }
+
+    private ServerResponseInterface matchServerResponse(
+            SIPResponse responseReceived, MessageChannel responseMessageChannel) {
 
         // Iterator through all client transactions
         Iterator<SIPClientTransaction> transactionIterator;
@@ -1839,6 +1929,11 @@ public abstract class SIPTransactionStack implements
         	}
         }
 
+        if (statelessForwarder != null
+                && statelessForwarder.processResponse(responseReceived, responseMessageChannel)) {
+            return StatelessForwarder.FORWARDED_RESPONSE;
+        }
+
         String key = responseReceived.getTransactionId();
 
         // Note that for RFC 3261 compliant operation, this lookup will
@@ -1945,7 +2040,9 @@ public abstract class SIPTransactionStack implements
         HostPort targetHostPort = new HostPort();
         targetHostPort.setHost(targetHost);
         targetHostPort.setPort(nextHop.getPort());
-        MessageChannel returnChannel = mp.createMessageChannel(targetHostPort);
+        CallID callId = request.peekCallId();
+        MessageChannel returnChannel = mp.createMessageChannel(targetHostPort,
+                callId == null ? null : callId.getCallId());
         return returnChannel;
 
     }
@@ -2377,6 +2474,16 @@ public abstract class SIPTransactionStack implements
         closeAllSockets();
         // Let the processing complete.
 
+        synchronized (this) {
+            if (idleConnectionSweeper != null) {
+                idleConnectionSweeper.stop();
+                idleConnectionSweeper = null;
+            }
+            if (tlsHandshakePool != null) {
+                tlsHandshakePool.stop();
+                tlsHandshakePool = null;
+            }
+        }
         if (this.timer != null) {
             this.timer.stop();
         }
@@ -2384,10 +2491,11 @@ public abstract class SIPTransactionStack implements
             Thread.sleep(1000);
         } catch (InterruptedException ex) {
         }
-        this.clientTransactionTable.clear();
-        this.serverTransactionTable.clear();
+        this.clientTransactionTable.close();
+        this.serverTransactionTable.close();
 
-        this.dialogTable.clear();
+        this.dialogTable.close();
+        this.earlyDialogTable.close();
         this.serverLogger.closeLogFile();
     }
     
@@ -2699,7 +2807,7 @@ public abstract class SIPTransactionStack implements
      *
      * @return an array of running message processors.
      */
-    protected MessageProcessor[] getMessageProcessors() {
+    public MessageProcessor[] getMessageProcessors() {
             return (MessageProcessor[]) messageProcessors.values()
                     .toArray(new MessageProcessor[0]);
 
@@ -2753,6 +2861,22 @@ public abstract class SIPTransactionStack implements
      */
     public MessageChannel createRawMessageChannel(String sourceIpAddress,
             int sourcePort, Hop nextHop) throws UnknownHostException {
+        return createRawMessageChannel(sourceIpAddress, sourcePort, nextHop, null);
+    }
+
+    /**
+     * Creates a raw message channel carrying the messages of the given call.
+     * When several connections are kept to the destination, see
+     * {@link #getReliableConnectionPoolSize()}, the messages of a call are
+     * sent over the same one.
+     *
+     * @param callId
+     *            Call-ID of the message to send, may be null.
+     *
+     * @see #createRawMessageChannel(String, int, Hop)
+     */
+    public MessageChannel createRawMessageChannel(String sourceIpAddress,
+            int sourcePort, Hop nextHop, String callId) throws UnknownHostException {
         Host targetHost;
         HostPort targetHostPort;
         Iterator<MessageProcessor> processorIterator;
@@ -2782,7 +2906,7 @@ public abstract class SIPTransactionStack implements
                     // Create a channel to the target
                     // host/port
                     newChannel = nextProcessor
-                            .createMessageChannel(targetHostPort);
+                            .createMessageChannel(targetHostPort, callId);
                 } catch (UnknownHostException ex) {
                     if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
                         logger.logDebug("host is not known " + targetHostPort + " " + ex.getMessage());
@@ -2911,25 +3035,34 @@ public abstract class SIPTransactionStack implements
     private String auditDialogs(Set<String> activeCallIDs, long leakedDialogTimer) {
         String auditReport = "  Leaked dialogs:\n";
         int leakedDialogs = 0;
-        long currentTime = System.currentTimeMillis();
+        long currentTime = getClock().millis();
 
-        // Make a shallow copy of the dialog list.
+        // Make a shallow copy of the dialog ids.
         // This copy will remain intact as leaked dialogs are removed by the
         // stack.
-        ConcurrentHashMap<String, SIPDialog> dialogs = new ConcurrentHashMap<String, SIPDialog>(dialogTable);;
-        // synchronized (dialogTable) {
-        //      dialogs = new ConcurrentHashMap<String, SIPDialog>(dialogTable);
-        // }
+        LinkedList<String> dialogIds = new LinkedList<String>(dialogTable.keySet());
+        Set<String> activeLowerCaseCallIDs = new HashSet<String>();
+        for (String activeCallID : activeCallIDs) {
+            if (activeCallID != null) {
+                activeLowerCaseCallIDs.add(activeCallID.toLowerCase());
+            }
+        }
 
         // Iterate through the dialogDialog, get the callID of each dialog and
         // check if it's in the
         // list of active calls passed by the application. If it isn't, start
         // the timer on it.
         // If the timer has expired, kill the dialog.
-        Iterator<SIPDialog> it = dialogs.values().iterator();
+        Iterator<String> it = dialogIds.iterator();
         while (it.hasNext()) {
+            // The dialogs of the active calls are told apart by their id, the
+            // store does not bring them back if it keeps them off the heap
+            String dialogId = it.next();
+            if (isDialogIdOfCalls(dialogId, activeLowerCaseCallIDs)) {
+                continue;
+            }
             // Get the next dialog
-            SIPDialog itDialog = it.next();
+            SIPDialog itDialog = dialogTable.get(dialogId);
 
             // Get the call id associated with this dialog
             CallIdHeader callIdHeader = (itDialog != null ? itDialog
@@ -2980,16 +3113,41 @@ public abstract class SIPTransactionStack implements
         return auditReport;
     }
 
+    /**
+     * Dialog ids are the lower cased Call-ID followed by the tags, each after
+     * a colon.
+     *
+     * @return true if the dialog id was built from the Call-ID.
+     */
+    private static boolean isDialogIdOfCall(String dialogId, String callId) {
+        return dialogId.regionMatches(true, 0, callId, 0, callId.length())
+                && (dialogId.length() == callId.length() || dialogId.charAt(callId.length()) == ':');
+    }
+
+    /**
+     * @return true if the dialog id was built from one of the lower cased
+     *         Call-IDs.
+     */
+    private static boolean isDialogIdOfCalls(String dialogId, Set<String> lowerCaseCallIds) {
+        String lowerCaseId = dialogId.toLowerCase();
+        for (int end = lowerCaseId.indexOf(':'); end >= 0; end = lowerCaseId.indexOf(':', end + 1)) {
+            if (lowerCaseCallIds.contains(lowerCaseId.substring(0, end))) {
+                return true;
+            }
+        }
+        return lowerCaseCallIds.contains(lowerCaseId);
+    }
+
     /**
      * Audits SIP transactions for leaks
      *
      * @return Audit report, null if no transaction leaks were found
      */
-    private String auditTransactions(ConcurrentHashMap<String, ? extends SIPTransaction> transactionsMap,
+    private String auditTransactions(StateStore<? extends SIPTransaction> transactionsMap,
             long a_nLeakedTransactionTimer) {
         String auditReport = "  Leaked transactions:\n";
         int leakedTransactions = 0;
-        long currentTime = System.currentTimeMillis();
+        long currentTime = getClock().millis();
 
         // Make a shallow copy of the transaction list.
         // This copy will remain intact as leaked transactions are removed by
@@ -3128,8 +3286,14 @@ public abstract class SIPTransactionStack implements
         String fromTag = replacesHeader.getFromTag();
         String toTag = replacesHeader.getToTag();
         
-        for ( SIPDialog dialog : this.dialogTable.values() ) {
-            if ( dialog.getCallId().getCallId().equals(cid) 
+        // only the dialogs of the call are looked up, the others stay where
+        // the store keeps them
+        for ( String id : this.dialogTable.keySet() ) {
+            if ( !isDialogIdOfCall(id, cid) ) {
+                continue;
+            }
+            SIPDialog dialog = this.dialogTable.get(id);
+            if ( dialog != null && dialog.getCallId().getCallId().equals(cid) 
                     && fromTag.equalsIgnoreCase(dialog.lastResponseFromTag) 
                     && toTag.equalsIgnoreCase(dialog.lastResponseToTag)) {
                 return dialog;
@@ -3196,6 +3360,30 @@ public abstract class SIPTransactionStack implements
         return getDialog(retval.toString().toLowerCase());
     }
 
+    /**
+     * Create the tables of dialogs and transactions with the given factory.
+     * Called while the stack is configured, before it handles any message.
+     *
+     * @param stateStoreFactory
+     *            the factory of the tables
+     */
+    protected void createStateStores(StateStoreFactory stateStoreFactory) {
+        SipStackImpl sipStackImpl = (SipStackImpl) this;
+        this.stateStoreFactory = stateStoreFactory;
+        this.dialogTable = stateStoreFactory.createDialogStore(sipStackImpl);
+        this.earlyDialogTable = stateStoreFactory.createEarlyDialogStore(sipStackImpl);
+        this.serverTransactionTable = stateStoreFactory.createServerTransactionStore(sipStackImpl);
+        this.clientTransactionTable = stateStoreFactory.createClientTransactionStore(sipStackImpl);
+    }
+
+    /**
+     * @return the factory of the dialog and transaction tables, null if they
+     *         are kept on the heap.
+     */
+    public StateStoreFactory getStateStoreFactory() {
+        return stateStoreFactory;
+    }
+
     /**
      * @param timer
      *            the timer to set
@@ -3213,6 +3401,47 @@ public abstract class SIPTransactionStack implements
         return timer;
     }
 
+    /**
+     * @return the clock giving the time of the stack, the wall clock unless
+     *         another one was configured.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Replaces the clock giving the time of the stack, by example with a
+     * {@link gov.nist.core.VirtualClock} driven by a simulation.
+     *
+     * @param clock the clock to use
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return the sweeper expiring the idle connections of the stack, started
+     *         on the stack timer with the first call.
+     */
+    public synchronized IdleConnectionSweeper getIdleConnectionSweeper() {
+        if (idleConnectionSweeper == null) {
+            idleConnectionSweeper = new IdleConnectionSweeper(this);
+            idleConnectionSweeper.start();
+        }
+        return idleConnectionSweeper;
+    }
+
+    /**
+     * @return the pool running the TLS handshake tasks of the NIO channels and
+     *         counting their handshakes, created with the first call.
+     */
+    public synchronized TlsHandshakePool getTlsHandshakePool() {
+        if (tlsHandshakePool == null) {
+            tlsHandshakePool = new TlsHandshakePool(this);
+        }
+        return tlsHandshakePool;
+    }
+
 
     /**
      * Size of the receive UDP buffer. This property affects performance under
@@ -3234,6 +3463,99 @@ public abstract class SIPTransactionStack implements
         this.receiveUdpBufferSize = receiveUdpBufferSize;
     }
 
+    /**
+     * Number of datagrams the UDP transport reads with a single system call
+     * and the number of sends it gathers before flushing them together. A
+     * value of 1 reads and sends the datagrams one at a time.
+     *
+     * @return the number of datagrams per batch
+     */
+    public int getUdpBatchSize() {
+        return udpBatchSize;
+    }
+
+    /**
+     * Number of datagrams the UDP transport reads with a single system call
+     * and the number of sends it gathers before flushing them together.
+     *
+     * @param udpBatchSize
+     *            the number of datagrams per batch, at least 1
+     */
+    public void setUdpBatchSize(int udpBatchSize) {
+        if (udpBatchSize < 1) {
+            throw new IllegalArgumentException("UDP batch size must be at least 1 : " + udpBatchSize);
+        }
+        this.udpBatchSize = udpBatchSize;
+    }
+
+    /**
+     * @return the forwarder of the requests handled statelessly, null when no
+     *         router is set.
+     */
+    public StatelessForwarder getStatelessForwarder() {
+        return statelessForwarder;
+    }
+
+    /**
+     * Makes the stack a stateless proxy for the requests the router forwards,
+     * answers or drops: they are handled as soon as they are framed, without
+     * transactions, dialogs nor SipListener, and the responses to the requests
+     * forwarded are routed by their Via branch the same way. The requests the
+     * router hands back go to the transaction layer as usual.
+     *
+     * @param router
+     *            the router deciding of each request, null to process all of
+     *            them statefully
+     */
+    public void setStatelessRequestRouter(StatelessRequestRouter router) {
+        this.statelessForwarder = router == null ? null : new StatelessForwarder(this, router);
+    }
+
+    /**
+     * @return the tracer sampling the messages received, null when no trace
+     *         sink is set.
+     */
+    public MessageTracer getMessageTracer() {
+        return messageTracer;
+    }
+
+    /**
+     * Traces one message received out of the sample rate: the time it reaches
+     * each stage of the stack, from the decoder to the listener and the
+     * response written, is reported to the sink once it is processed.
+     *
+     * @param sink
+     *            where the traces are reported, null to stop tracing
+     * @param sampleRate
+     *            one message out of this number is traced, 1 to trace them all
+     */
+    public void setMessageTraceSink(MessageTraceSink sink, int sampleRate) {
+        this.messageTracer = sink == null ? null : new MessageTracer(sink, sampleRate);
+    }
+
+    /**
+     * @return the id of the cluster node carried by the Call-IDs generated by
+     *         the stack, null if none.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Id of the cluster node carried by the Call-IDs generated by the stack,
+     * so that a load balancer can route the requests of a call to the node
+     * that created it with {@link gov.nist.javax.sip.IdGenerator#getNodeId(String)}.
+     *
+     * @param nodeId
+     *            a token without dot nor @, null for none
+     */
+    public void setNodeId(String nodeId) {
+        if (nodeId != null && (nodeId.length() == 0 || nodeId.indexOf('.') >= 0 || nodeId.indexOf('@') >= 0)) {
+            throw new IllegalArgumentException("Invalid node id : " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
     /**
      * Size of the send UDP buffer. This property affects performance under
      * load. Bigger buffer is better under load.
@@ -3416,6 +3738,14 @@ public abstract class SIPTransactionStack implements
         return patchWebSocketHeaders;
     }
 
+    public void setWebSocketPerMessageDeflate(boolean webSocketPerMessageDeflate) {
+        this.webSocketPerMessageDeflate = webSocketPerMessageDeflate;
+    }
+
+    public boolean isWebSocketPerMessageDeflate() {
+        return webSocketPerMessageDeflate;
+    }
+
     public void setPatchRport(Boolean patchRport) {
     	this.patchRport = patchRport;
     }
@@ -3586,6 +3916,17 @@ public abstract class SIPTransactionStack implements
         this.reliableConnectionKeepAliveTimeout = reliableConnectionKeepAliveTimeout;
     }
 
+    public int getReliableConnectionPoolSize() {
+        return reliableConnectionPoolSize;
+    }
+
+    public void setReliableConnectionPoolSize(int reliableConnectionPoolSize) {
+        if (reliableConnectionPoolSize < 1) {
+            throw new IllegalArgumentException("The reliable connection pool size must be at least 1 : " + reliableConnectionPoolSize);
+        }
+        this.reliableConnectionPoolSize = reliableConnectionPoolSize;
+    }
+
     public MessageProcessor findMessageProcessor(String address, int port, String transport) {    
         String key = address.concat(":").concat("" + port).concat("/").concat(transport).toLowerCase();
         return messageProcessors.get(key);        
@@ -3677,6 +4018,94 @@ public abstract class SIPTransactionStack implements
 		this.sslHandshakeTimeout = sslHandshakeTimeout;
 	}
 
+	/**
+	 * @return the number of threads running the delegated tasks of the NIO
+	 *         TLS handshakes, 0 if they run on the selector thread
+	 */
+	public int getTlsHandshakeThreads() {
+		return tlsHandshakeThreads;
+	}
+
+	/**
+	 * @param tlsHandshakeThreads the number of threads running the delegated
+	 *            tasks of the NIO TLS handshakes, 0 to run them on the
+	 *            selector thread
+	 */
+	public void setTlsHandshakeThreads(int tlsHandshakeThreads) {
+		if (tlsHandshakeThreads < 0) {
+			throw new IllegalArgumentException("TLS handshake threads must not be negative : " + tlsHandshakeThreads);
+		}
+		this.tlsHandshakeThreads = tlsHandshakeThreads;
+	}
+
+	/**
+	 * @return the number of handshakes which may wait for a thread of the
+	 *         handshake pool
+	 */
+	public int getTlsHandshakeQueueSize() {
+		return tlsHandshakeQueueSize;
+	}
+
+	/**
+	 * @param tlsHandshakeQueueSize the number of handshakes which may wait for
+	 *            a thread of the handshake pool, the next ones run on the
+	 *            selector thread
+	 */
+	public void setTlsHandshakeQueueSize(int tlsHandshakeQueueSize) {
+		if (tlsHandshakeQueueSize < 1) {
+			throw new IllegalArgumentException("TLS handshake queue size must be at least 1 : " + tlsHandshakeQueueSize);
+		}
+		this.tlsHandshakeQueueSize = tlsHandshakeQueueSize;
+	}
+
+	/**
+	 * @return the number of TLS sessions cached for resumption, -1 for the
+	 *         JDK default
+	 */
+	public int getTlsSessionCacheSize() {
+		return tlsSessionCacheSize;
+	}
+
+	/**
+	 * @param tlsSessionCacheSize the number of TLS sessions cached for
+	 *            resumption, 0 for no limit
+	 */
+	public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+		this.tlsSessionCacheSize = tlsSessionCacheSize;
+	}
+
+	/**
+	 * @return the time in seconds a cached TLS session may be resumed, -1 for
+	 *         the JDK default
+	 */
+	public int getTlsSessionTimeout() {
+		return tlsSessionTimeout;
+	}
+
+	/**
+	 * @param tlsSessionTimeout the time in seconds a cached TLS session may be
+	 *            resumed, 0 for no limit
+	 */
+	public void setTlsSessionTimeout(int tlsSessionTimeout) {
+		this.tlsSessionTimeout = tlsSessionTimeout;
+	}
+
+	/**
+	 * @return the limiter the transports check the source of each message
+	 *         with before parsing it, null if the sources are not limited
+	 */
+	public SourceRateLimiter getSourceRateLimiter() {
+		return sourceRateLimiter;
+	}
+
+	/**
+	 * @param sourceRateLimiter the limiter of the message rate of each
+	 *            source, null to not limit them
+	 */
+	public void setSourceRateLimiter(SourceRateLimiter sourceRateLimiter) {
+		this.sourceRateLimiter = sourceRateLimiter;
+	}
+
 	/**
 	 * @param earlyDialogTimeout the earlyDialogTimeout to set
 	 */
@@ -3790,6 +4219,15 @@ public abstract class SIPTransactionStack implements
         return computeContentLengthFromMessage;
     }
 
+    /**
+     * @return true if incoming messages only get the headers needed by the
+     *         stack parsed on reception, the other ones being parsed on access.
+     * @see LazyStringMsgParserFactory
+     */
+    public boolean isLazyHeaderParsing() {
+        return messageParserFactory instanceof LazyStringMsgParserFactory;
+    }
+
     public SecurityManagerProvider getSecurityManagerProvider() {
         return securityManagerProvider;
     }
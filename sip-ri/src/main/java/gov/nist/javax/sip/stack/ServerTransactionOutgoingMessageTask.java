@@ -33,6 +33,7 @@ import gov.nist.javax.sip.SipListenerExt;
 import gov.nist.javax.sip.Utils;
 import gov.nist.javax.sip.message.SIPRequest;
 import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
 
 public class ServerTransactionOutgoingMessageTask implements SIPTask {
     private StackLogger logger = CommonLogger.getLogger(ServerTransactionOutgoingMessageTask.class);
@@ -41,14 +42,20 @@ public class ServerTransactionOutgoingMessageTask implements SIPTask {
     private long startTime;
     private SIPResponse sipResponse;
     private SIPDialog sipDialog;
+    // held until the response is written, null if not traced
+    private MessageTrace messageTrace;
 
     public ServerTransactionOutgoingMessageTask(SIPServerTransactionImpl serverTransaction, SIPResponse sipResponse,
             SIPDialog sipDialog) {
         this.serverTransaction = serverTransaction;
         startTime = System.currentTimeMillis();
-        this.id = sipResponse.getCallId().getCallId();
+        this.id = sipResponse.peekCallId().getCallId();
         this.sipResponse = sipResponse;
         this.sipDialog = sipDialog;
+        MessageTrace trace = sipResponse.getMessageTrace();
+        if (trace != null && trace.hold()) {
+            messageTrace = trace;
+        }
     }
 
     @Override
@@ -57,7 +64,7 @@ public class ServerTransactionOutgoingMessageTask implements SIPTask {
             logger.logDebug("Executing task with id: " + id + " on Dialog " + sipDialog);
         }
         final int statusCode = sipResponse.getStatusCode();
-        final String responseMethod = sipResponse.getCSeq().getMethod();        
+        final String responseMethod = sipResponse.peekCSeq().getMethod();        
         try {
             
             // Sending the final response cancels the
@@ -92,7 +99,7 @@ public class ServerTransactionOutgoingMessageTask implements SIPTask {
                     }
                 }
 
-                if (!sipResponse.getCallId().getCallId().equals(sipDialog.getCallId().getCallId())) {
+                if (!sipResponse.peekCallId().getCallId().equals(sipDialog.getCallId().getCallId())) {
                     throw new SipException("Dialog mismatch!");
                 }
             }
@@ -108,7 +115,10 @@ public class ServerTransactionOutgoingMessageTask implements SIPTask {
                     && !sipResponse.getFromTag().equals(fromTag)) {
                 throw new SipException("From tag of request does not match response from tag");
             } else if (fromTag != null) {
-                sipResponse.getFrom().setTag(fromTag);
+                // a From shared with the request already carries the tag
+                if (sipResponse.getFromTag() == null) {
+                    sipResponse.getFrom().setTag(fromTag);
+                }
             } else {
                 if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
                     logger.logDebug("WARNING -- Null From tag in request!!");
@@ -182,6 +192,10 @@ public class ServerTransactionOutgoingMessageTask implements SIPTask {
             // setState(TransactionState._TERMINATED);
             serverTransaction.raiseErrorEvent(SIPTransactionErrorEvent.TRANSPORT_ERROR);
             // throw new SipException(ex1.getMessage(), ex1);
+        } finally {
+            if (messageTrace != null) {
+                messageTrace.release();
+            }
         }
     }
 
@@ -0,0 +1,119 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.proxy;
+
+import javax.sip.address.Hop;
+
+/**
+ * What a {@link StatelessRequestRouter} decided to do with a request.
+ */
+public final class ForwardingDecision {
+
+    public enum Action {
+        /** Send the request to the next hop, without keeping any state. */
+        FORWARD,
+        /** Answer the request statelessly. */
+        REPLY,
+        /** Drop the request silently. */
+        DROP,
+        /** Hand the request to the transaction layer as usual. */
+        PROCESS
+    }
+
+    private static final ForwardingDecision DROP = new ForwardingDecision(Action.DROP, null, 0, null);
+
+    private static final ForwardingDecision PROCESS = new ForwardingDecision(Action.PROCESS, null, 0, null);
+
+    private final Action action;
+
+    private final Hop hop;
+
+    private final int statusCode;
+
+    private final String reasonPhrase;
+
+    private ForwardingDecision(Action action, Hop hop, int statusCode, String reasonPhrase) {
+        this.action = action;
+        this.hop = hop;
+        this.statusCode = statusCode;
+        this.reasonPhrase = reasonPhrase;
+    }
+
+    /**
+     * @param hop the next hop, its transport selecting the listening point
+     *        the request is sent from
+     */
+    public static ForwardingDecision forward(Hop hop) {
+        if (hop == null) {
+            throw new NullPointerException("null hop");
+        }
+        return new ForwardingDecision(Action.FORWARD, hop, 0, null);
+    }
+
+    public static ForwardingDecision reply(int statusCode) {
+        return reply(statusCode, null);
+    }
+
+    /**
+     * @param reasonPhrase the reason phrase, null for the default one of the
+     *        status code
+     */
+    public static ForwardingDecision reply(int statusCode, String reasonPhrase) {
+        if (statusCode < 200 || statusCode > 699) {
+            throw new IllegalArgumentException("A stateless reply must be final : " + statusCode);
+        }
+        return new ForwardingDecision(Action.REPLY, null, statusCode, reasonPhrase);
+    }
+
+    public static ForwardingDecision drop() {
+        return DROP;
+    }
+
+    public static ForwardingDecision process() {
+        return PROCESS;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public Hop getHop() {
+        return hop;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    @Override
+    public String toString() {
+        switch (action) {
+        case FORWARD:
+            return action + " " + hop;
+        case REPLY:
+            return action + " " + statusCode;
+        default:
+            return action.toString();
+        }
+    }
+}
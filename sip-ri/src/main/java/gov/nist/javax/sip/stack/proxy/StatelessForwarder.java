@@ -0,0 +1,310 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.proxy;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sip.address.Hop;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogWriter;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.SIPConstants;
+import gov.nist.javax.sip.Utils;
+import gov.nist.javax.sip.header.MaxForwards;
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.header.ViaList;
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.stack.HopImpl;
+import gov.nist.javax.sip.stack.SIPDialog;
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.ServerRequestInterface;
+import gov.nist.javax.sip.stack.ServerResponseInterface;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
+
+/**
+ * Forwards requests and responses statelessly (RFC 3261 section 16.11) as
+ * soon as they are framed, without creating transactions or dialogs and
+ * without going through the SipListener.
+ * <p>
+ * The {@link StatelessRequestRouter} decides what to do with each request. A
+ * forwarded request gets a Via whose branch is a hash of the Via it arrived
+ * with, so that retransmissions and CANCELs take the same branch, and the
+ * responses carrying such a branch are sent to the next Via without any
+ * lookup. The other responses go to the transaction layer as usual.
+ */
+public class StatelessForwarder {
+    private static StackLogger logger = CommonLogger.getLogger(StatelessForwarder.class);
+
+    // Max-Forwards added to the requests without one
+    public static final int DEFAULT_MAX_FORWARDS = 70;
+
+    /**
+     * Returned to the message channels for the requests handled here, so they
+     * don't reply 503 as they do when no transaction could be created.
+     */
+    public static final ServerRequestInterface FORWARDED_REQUEST = new ServerRequestInterface() {
+        public void processRequest(SIPRequest sipRequest, MessageChannel incomingChannel) {
+        }
+    };
+
+    public static final ServerResponseInterface FORWARDED_RESPONSE = new ServerResponseInterface() {
+        public void processResponse(SIPResponse sipResponse, MessageChannel incomingChannel, SIPDialog sipDialog) {
+        }
+
+        public void processResponse(SIPResponse sipResponse, MessageChannel incomingChannel) {
+        }
+    };
+
+    private final SIPTransactionStack sipStack;
+
+    private final StatelessRequestRouter router;
+
+    // Branch of the Vias added here, hex digits never start with 's'
+    private final String branchPrefix;
+
+    private final LongAdder forwardedRequests = new LongAdder();
+    private final LongAdder forwardedResponses = new LongAdder();
+    private final LongAdder replies = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public StatelessForwarder(SIPTransactionStack sipStack, StatelessRequestRouter router) {
+        this.sipStack = sipStack;
+        this.router = router;
+        this.branchPrefix = SIPConstants.BRANCH_MAGIC_COOKIE + "-" + Utils.getSignature() + "-sl";
+    }
+
+    public StatelessRequestRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * @return true if the request was forwarded, answered or dropped, false if
+     *         it has to go to the transaction layer.
+     */
+    public boolean processRequest(SIPRequest request, MessageChannel incomingChannel) {
+        ForwardingDecision decision;
+        try {
+            decision = router.route(request, incomingChannel);
+        } catch (Exception e) {
+            logger.logError("Router failed on " + request.getFirstLine() + ", dropping the request", e);
+            dropped.increment();
+            return true;
+        }
+        if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+            logger.logDebug(decision + " for " + request.getFirstLine());
+        }
+        switch (decision.getAction()) {
+        case FORWARD:
+            forward(request, incomingChannel, decision.getHop());
+            return true;
+        case REPLY:
+            reply(request, incomingChannel, decision.getStatusCode(), decision.getReasonPhrase());
+            return true;
+        case DROP:
+            dropped.increment();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the response was sent to the next Via or dropped, false
+     *         if it doesn't belong to a request forwarded here.
+     */
+    public boolean processResponse(SIPResponse response, MessageChannel incomingChannel) {
+        Via topmostVia = response.getTopmostVia();
+        String branch = topmostVia == null ? null : topmostVia.getBranch();
+        if (branch == null || !branch.startsWith(branchPrefix)) {
+            return false;
+        }
+        ViaList vias = response.getViaHeaders();
+        vias.removeFirstItem();
+        Via via = vias.peekFirst();
+        if (via == null) {
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("No Via left, dropping " + response.getFirstLine());
+            }
+            dropped.increment();
+            return true;
+        }
+        String transport = via.getTransport();
+        // received and rport first, for the clients behind a NAT
+        String host = via.getReceived();
+        if (host == null) {
+            host = via.getHost();
+        }
+        int port = via.getRPort();
+        if (port == -1) {
+            port = via.getPort();
+            if (port == -1) {
+                port = transport.equalsIgnoreCase("TLS") || transport.equalsIgnoreCase("SCTP-TLS") ? 5061 : 5060;
+            }
+        }
+        if (host.indexOf(':') > 0 && host.indexOf('[') < 0) {
+            host = "[" + host + "]";
+        }
+        Hop hop = sipStack.getAddressResolver().resolveAddress(new HopImpl(host, port, transport));
+        try {
+            MessageChannel channel = createMessageChannel(hop, incomingChannel, response.getCallId().getCallId());
+            if (channel == null) {
+                failures.increment();
+                return true;
+            }
+            channel.sendMessage(response);
+            forwardedResponses.increment();
+        } catch (IOException e) {
+            failures.increment();
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("Could not forward " + response.getFirstLine() + " to " + hop + " : " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void forward(SIPRequest request, MessageChannel incomingChannel, Hop nextHop) {
+        try {
+            MaxForwards maxForwards = (MaxForwards) request.getMaxForwards();
+            if (maxForwards == null) {
+                request.setMaxForwards(new MaxForwards(DEFAULT_MAX_FORWARDS));
+            } else if (maxForwards.hasReachedZero()) {
+                reply(request, incomingChannel, Response.TOO_MANY_HOPS, null);
+                return;
+            } else {
+                maxForwards.decrementMaxForwards();
+            }
+            Hop hop = sipStack.getAddressResolver().resolveAddress(nextHop);
+            MessageChannel channel = createMessageChannel(hop, incomingChannel, request.getCallId().getCallId());
+            if (channel == null) {
+                failures.increment();
+                reply(request, incomingChannel, Response.SERVICE_UNAVAILABLE, null);
+                return;
+            }
+            Via via = channel.getMessageProcessor().getViaHeader();
+            via.setBranch(branchPrefix + Long.toHexString(hash(request)));
+            request.getViaHeaders().addFirst(via);
+            channel.sendMessage(request, hop);
+            forwardedRequests.increment();
+        } catch (Exception e) {
+            failures.increment();
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("Could not forward " + request.getFirstLine() + " to " + nextHop + " : " + e.getMessage());
+            }
+        }
+    }
+
+    private void reply(SIPRequest request, MessageChannel incomingChannel, int statusCode, String reasonPhrase) {
+        if (Request.ACK.equals(request.getMethod())) {
+            dropped.increment();
+            return;
+        }
+        try {
+            SIPResponse response = reasonPhrase == null ? request.createResponse(statusCode)
+                    : request.createResponse(statusCode, reasonPhrase);
+            if (response.getTo().getTag() == null) {
+                // the same for the retransmissions of the request
+                response.getTo().setTag(Long.toHexString(hash(request)));
+            }
+            incomingChannel.sendMessage(response);
+            replies.increment();
+        } catch (Exception e) {
+            failures.increment();
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("Could not reply " + statusCode + " to " + request.getFirstLine() + " : " + e.getMessage());
+            }
+        }
+    }
+
+    private MessageChannel createMessageChannel(Hop hop, MessageChannel incomingChannel, String callId)
+            throws IOException {
+        MessageProcessor processor = incomingChannel.getMessageProcessor();
+        if (processor == null || !processor.getTransport().equalsIgnoreCase(hop.getTransport())) {
+            processor = null;
+            for (MessageProcessor candidate : sipStack.getMessageProcessors()) {
+                if (candidate.getTransport().equalsIgnoreCase(hop.getTransport())) {
+                    processor = candidate;
+                    break;
+                }
+            }
+        }
+        if (processor == null) {
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("No listening point for " + hop.getTransport());
+            }
+            return null;
+        }
+        return sipStack.createRawMessageChannel(processor.getIpAddress().getHostAddress(), processor.getPort(), hop,
+                callId);
+    }
+
+    /**
+     * FNV-1a of the top Via the request arrived with, the branch being enough
+     * with RFC 3261 clients, and of the fields matching a transaction otherwise.
+     */
+    private static long hash(SIPRequest request) {
+        Via via = request.getTopmostVia();
+        String branch = via.getBranch();
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, via.getSentBy().encode());
+        if (branch != null && branch.startsWith(SIPConstants.BRANCH_MAGIC_COOKIE)) {
+            hash = hash(hash, branch);
+        } else {
+            hash = hash(hash, request.getRequestURI().toString());
+            hash = hash(hash, request.getCallId().getCallId());
+            hash = hash(hash, Long.toString(request.getCSeq().getSeqNumber()));
+            hash = hash(hash, String.valueOf(request.getFromTag()));
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public long getForwardedRequests() {
+        return forwardedRequests.sum();
+    }
+
+    public long getForwardedResponses() {
+        return forwardedResponses.sum();
+    }
+
+    public long getReplies() {
+        return replies.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+}
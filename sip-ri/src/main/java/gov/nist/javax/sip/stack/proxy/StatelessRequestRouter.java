@@ -0,0 +1,44 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.proxy;
+
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+
+/**
+ * Decides what a stateless proxy does with each request received by the
+ * stack. It is called once the request is framed and before any transaction
+ * or dialog is looked up, the top Via, Route, Request-URI and Max-Forwards
+ * being available from the request, which may also be modified, by example to
+ * remove the Route header pointing to this proxy.
+ * <p>
+ * It is called by several threads at the same time and shouldn't block.
+ *
+ * @see gov.nist.javax.sip.stack.SIPTransactionStack#setStatelessRequestRouter(StatelessRequestRouter)
+ */
+public interface StatelessRequestRouter {
+
+    /**
+     * @param request the request received
+     * @param incomingChannel the channel it was received on
+     * @return what to do with the request, {@link ForwardingDecision#process()}
+     *         to hand it to the transaction layer as usual.
+     */
+    ForwardingDecision route(SIPRequest request, MessageChannel incomingChannel);
+}
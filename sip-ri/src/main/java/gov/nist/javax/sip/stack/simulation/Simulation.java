@@ -0,0 +1,190 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sip.PeerUnavailableException;
+
+import gov.nist.core.VirtualClock;
+import gov.nist.core.executor.ManualStackExecutor;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.timers.VirtualSipTimer;
+import gov.nist.javax.sip.stack.transports.processors.memory.MemoryMessageProcessorFactory;
+import gov.nist.javax.sip.stack.transports.processors.memory.MemoryNetwork;
+
+/**
+ * Deterministic simulation of a set of stacks exchanging messages over the
+ * {@link MemoryNetwork}. The stacks share one {@link VirtualClock}, their
+ * tasks and timers only run from the thread calling {@link #runPending()} and
+ * {@link #advance(long)}, so that hours of traffic take the time needed to
+ * process the messages rather than the time the timers wait.
+ */
+public class Simulation {
+
+    private final VirtualClock clock;
+
+    private final List<SipStackImpl> sipStacks = new ArrayList<SipStackImpl>();
+
+    private long timerTasks;
+
+    public Simulation() {
+        this(new VirtualClock());
+    }
+
+    public Simulation(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a stack taking part in the simulation. The timer, executor,
+     * clock and transport of the given properties are replaced by the
+     * simulated ones.
+     */
+    public SipStackImpl createSipStack(Properties properties) throws PeerUnavailableException {
+        Properties simulated = new Properties();
+        simulated.putAll(properties);
+        simulated.setProperty("gov.nist.javax.sip.CLOCK_CLASS_NAME", VirtualClock.class.getName());
+        simulated.setProperty("gov.nist.javax.sip.TIMER_CLASS_NAME", VirtualSipTimer.class.getName());
+        simulated.setProperty("gov.nist.javax.sip.STACK_EXECUTOR", ManualStackExecutor.class.getName());
+        simulated.setProperty("gov.nist.javax.sip.MESSAGE_PROCESSOR_FACTORY",
+                MemoryMessageProcessorFactory.class.getName());
+        simulated.setProperty("gov.nist.javax.sip.REENTRANT_LISTENER", "true");
+        SipStackImpl sipStack = new SipStackImpl(simulated);
+        sipStack.setClock(clock);
+        sipStacks.add(sipStack);
+        return sipStack;
+    }
+
+    /**
+     * Runs the tasks queued by the stacks, and the ones these tasks queue,
+     * until none is left.
+     *
+     * @return the number of tasks run
+     */
+    public int runPending() {
+        int total = 0;
+        int count;
+        do {
+            count = 0;
+            for (SipStackImpl sipStack : sipStacks) {
+                count += executor(sipStack).runPending();
+            }
+            total += count;
+        } while (count > 0);
+        return total;
+    }
+
+    /**
+     * Moves the time forward, running the timers of all stacks in due order
+     * and the tasks each of them queues before the next timer falls due.
+     *
+     * @param millis the time to move forward
+     */
+    public void advance(long millis) {
+        long target = clock.millis() + millis;
+        runPending();
+        while (true) {
+            VirtualSipTimer next = null;
+            long nextDueTime = -1;
+            for (SipStackImpl sipStack : sipStacks) {
+                VirtualSipTimer timer = timer(sipStack);
+                long dueTime = timer.getNextDueTime();
+                if (dueTime >= 0 && (next == null || dueTime < nextDueTime)) {
+                    next = timer;
+                    nextDueTime = dueTime;
+                }
+            }
+            if (next == null || nextDueTime > target) {
+                break;
+            }
+            timerTasks += next.advanceTo(nextDueTime);
+            runPending();
+        }
+        clock.advanceTo(target);
+    }
+
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    public List<SipStackImpl> getSipStacks() {
+        return sipStacks;
+    }
+
+    /**
+     * @return the number of timer tasks run by the stacks.
+     */
+    public long getTimerTasks() {
+        return timerTasks;
+    }
+
+    /**
+     * @return the number of timer tasks waiting to fall due.
+     */
+    public int getPendingTimerTasks() {
+        int pending = 0;
+        for (SipStackImpl sipStack : sipStacks) {
+            pending += timer(sipStack).getPendingCount();
+        }
+        return pending;
+    }
+
+    /**
+     * @return the number of executor tasks run by the stacks.
+     */
+    public long getExecutorTasks() {
+        long executed = 0;
+        for (SipStackImpl sipStack : sipStacks) {
+            executed += executor(sipStack).getExecutedCount();
+        }
+        return executed;
+    }
+
+    /**
+     * @return the longest executor queue seen among the stacks.
+     */
+    public int getMaxExecutorQueueSize() {
+        int max = 0;
+        for (SipStackImpl sipStack : sipStacks) {
+            max = Math.max(max, executor(sipStack).getMaxQueueSize());
+        }
+        return max;
+    }
+
+    /**
+     * Stops the stacks of the simulation.
+     */
+    public void stop() {
+        for (SipStackImpl sipStack : sipStacks) {
+            sipStack.stop();
+        }
+        sipStacks.clear();
+    }
+
+    private static VirtualSipTimer timer(SipStackImpl sipStack) {
+        return (VirtualSipTimer) sipStack.getTimer();
+    }
+
+    private static ManualStackExecutor executor(SipStackImpl sipStack) {
+        return (ManualStackExecutor) sipStack.getMessageProcessorExecutor();
+    }
+}
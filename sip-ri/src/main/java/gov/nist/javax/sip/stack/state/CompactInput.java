@@ -0,0 +1,95 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Reads what {@link CompactOutput} writes.
+ */
+public final class CompactInput {
+
+    private final DataInput in;
+
+    private final ArrayList<String> strings = new ArrayList<String>();
+
+    public CompactInput(DataInput in) {
+        this.in = in;
+    }
+
+    public int readByte() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    public boolean readBoolean() throws IOException {
+        return in.readByte() != 0;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length int");
+    }
+
+    public long readVarLong() throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed variable length long");
+    }
+
+    public String readString() throws IOException {
+        int tag = readVarInt();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag == 1) {
+            String value = in.readUTF();
+            strings.add(value);
+            return value;
+        }
+        if (tag - 2 >= strings.size()) {
+            throw new IOException("Unknown string reference " + tag);
+        }
+        return strings.get(tag - 2);
+    }
+
+    public byte[] readBytes() throws IOException {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        byte[] value = new byte[length - 1];
+        in.readFully(value);
+        return value;
+    }
+}
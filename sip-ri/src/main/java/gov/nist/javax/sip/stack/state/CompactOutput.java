@@ -0,0 +1,99 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Binary output of the codecs. Integers are written as variable length
+ * quantities and each string is written once, the following occurrences
+ * reference it in the string table of the record.
+ */
+public final class CompactOutput {
+
+    private final DataOutput out;
+
+    private final HashMap<String, Integer> strings = new HashMap<String, Integer>();
+
+    public CompactOutput(DataOutput out) {
+        this.out = out;
+    }
+
+    public void writeByte(int value) throws IOException {
+        out.writeByte(value);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        out.writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Write a non negative int in 1 to 5 bytes.
+     */
+    public void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Write a long, small values including -1 in few bytes.
+     */
+    public void writeVarLong(long value) throws IOException {
+        // zigzag so that -1 takes one byte
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    /**
+     * Write a string, null included: 0 for null, 1 followed by the string
+     * the first time it is written, its index in the table plus 2 afterwards.
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(index + 2);
+            return;
+        }
+        strings.put(value, strings.size());
+        writeVarInt(1);
+        out.writeUTF(value);
+    }
+
+    public void writeBytes(byte[] value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(value.length + 1);
+        out.write(value);
+    }
+}
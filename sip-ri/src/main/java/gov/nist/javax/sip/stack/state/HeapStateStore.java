@@ -0,0 +1,72 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store keeping its values on the heap, the default.
+ */
+public class HeapStateStore<V> implements StateStore<V> {
+
+    private final ConcurrentHashMap<String, V> table = new ConcurrentHashMap<String, V>();
+
+    public V get(String key) {
+        return table.get(key);
+    }
+
+    public V put(String key, V value) {
+        return table.put(key, value);
+    }
+
+    public V putIfAbsent(String key, V value) {
+        return table.putIfAbsent(key, value);
+    }
+
+    public V remove(String key) {
+        return table.remove(key);
+    }
+
+    public Collection<V> values() {
+        return table.values();
+    }
+
+    public Set<String> keySet() {
+        return table.keySet();
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    public void clear() {
+        table.clear();
+    }
+
+    public void close() {
+        table.clear();
+    }
+
+    @Override
+    public String toString() {
+        return table.toString();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.SIPClientTransaction;
+import gov.nist.javax.sip.stack.SIPDialog;
+import gov.nist.javax.sip.stack.SIPServerTransaction;
+
+/**
+ * Keeps all the dialogs and transactions on the heap.
+ */
+public class HeapStateStoreFactory implements StateStoreFactory {
+
+    public StateStore<SIPDialog> createDialogStore(SipStackImpl sipStack) {
+        return new HeapStateStore<SIPDialog>();
+    }
+
+    public StateStore<SIPDialog> createEarlyDialogStore(SipStackImpl sipStack) {
+        return new HeapStateStore<SIPDialog>();
+    }
+
+    public StateStore<SIPServerTransaction> createServerTransactionStore(SipStackImpl sipStack) {
+        return new HeapStateStore<SIPServerTransaction>();
+    }
+
+    public StateStore<SIPClientTransaction> createClientTransactionStore(SipStackImpl sipStack) {
+        return new HeapStateStore<SIPClientTransaction>();
+    }
+}
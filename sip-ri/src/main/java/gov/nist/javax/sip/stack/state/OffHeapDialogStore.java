@@ -0,0 +1,511 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sip.ListeningPoint;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogLevels;
+import gov.nist.core.StackLogger;
+import gov.nist.core.executor.SIPTask;
+import gov.nist.javax.sip.SipProviderImpl;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.SIPDialog;
+import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
+
+/**
+ * Dialog store keeping the confirmed dialogs without activity in serialized
+ * form outside of the heap. The dialogs in use stay on the heap, a dialog
+ * idle for longer than the passivation idle time is serialized into a slot of
+ * direct memory or of a memory mapped file, and is brought back on the heap
+ * the next time the stack looks it up. A passivated dialog still referenced,
+ * by the application or by a transaction, is handed out again as is, it is
+ * only decoded once nothing references it anymore.
+ * <p>
+ * Passivation runs as a task of the dialog Call-ID on the stack executor, so
+ * it does not race with the processing of the messages of the dialog. With a
+ * directory the slots are memory mapped files, the dialogs found in them are
+ * served again after a restart of the stack.
+ */
+public class OffHeapDialogStore implements StateStore<SIPDialog> {
+    private static StackLogger logger = CommonLogger.getLogger(OffHeapDialogStore.class);
+
+    // slot sizes, a dialog goes to the smallest slot it fits in
+    static final int[] SLOT_SIZES = { 512, 1024, 2048, 4096, 8192 };
+
+    private static final int LOCKS = 64;
+
+    private final SipStackImpl sipStack;
+
+    private final StateCodec<SIPDialog> codec;
+
+    private final long idleTime;
+
+    private final SlotArea[] areas;
+
+    // dialogs on the heap
+    private final ConcurrentHashMap<String, Entry> live = new ConcurrentHashMap<String, Entry>();
+
+    // slots of the passivated dialogs
+    private final ConcurrentHashMap<String, Slot> stored = new ConcurrentHashMap<String, Slot>();
+
+    private final Object[] locks = new Object[LOCKS];
+
+    private final PassivationTimerTask passivationTimerTask;
+
+    static final class Entry {
+        final SIPDialog dialog;
+        volatile long lastAccess;
+
+        Entry(SIPDialog dialog, long lastAccess) {
+            this.dialog = dialog;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    static final class Slot {
+        final long address;
+        // the instance passivated or last decoded, handed out while referenced
+        volatile WeakReference<SIPDialog> dialog;
+
+        Slot(long address, SIPDialog dialog) {
+            this.address = address;
+            this.dialog = dialog == null ? null : new WeakReference<SIPDialog>(dialog);
+        }
+
+        SIPDialog getDialog() {
+            WeakReference<SIPDialog> reference = dialog;
+            return reference == null ? null : reference.get();
+        }
+    }
+
+    /**
+     * @param directory
+     *            directory of the files holding the dialogs, null to keep them
+     *            in direct memory.
+     * @param idleTime
+     *            milliseconds without activity after which a confirmed dialog
+     *            is passivated.
+     */
+    public OffHeapDialogStore(SipStackImpl sipStack, StateCodec<SIPDialog> codec, File directory,
+            long idleTime) throws IOException {
+        this.sipStack = sipStack;
+        this.codec = codec;
+        this.idleTime = idleTime;
+        for (int i = 0; i < LOCKS; i++) {
+            locks[i] = new Object();
+        }
+        areas = new SlotArea[SLOT_SIZES.length];
+        for (int i = 0; i < SLOT_SIZES.length; i++) {
+            File file = null;
+            if (directory != null) {
+                directory.mkdirs();
+                file = new File(directory, "dialogs-" + SLOT_SIZES[i] + ".dat");
+            }
+            areas[i] = new SlotArea(SLOT_SIZES[i], file);
+            recover(i);
+        }
+        if (logger.isLoggingEnabled(LogLevels.TRACE_INFO) && !stored.isEmpty()) {
+            logger.logInfo("Recovered " + stored.size() + " dialogs from " + directory);
+        }
+        passivationTimerTask = new PassivationTimerTask();
+        if (sipStack.getTimer() != null && sipStack.getTimer().isStarted()) {
+            long period = Math.max(idleTime / 2, 1000);
+            sipStack.getTimer().scheduleWithFixedDelay(passivationTimerTask, period, period);
+        }
+    }
+
+    public SIPDialog get(String key) {
+        Entry entry = live.get(key);
+        if (entry != null) {
+            entry.lastAccess = sipStack.getClock().millis();
+            return entry.dialog;
+        }
+        if (!stored.containsKey(key)) {
+            return null;
+        }
+        synchronized (lockFor(key)) {
+            entry = live.get(key);
+            if (entry != null) {
+                return entry.dialog;
+            }
+            Slot slot = stored.remove(key);
+            if (slot == null) {
+                return null;
+            }
+            SIPDialog dialog = activate(slot);
+            release(slot);
+            if (dialog != null) {
+                live.put(key, new Entry(dialog, sipStack.getClock().millis()));
+            }
+            return dialog;
+        }
+    }
+
+    public SIPDialog put(String key, SIPDialog dialog) {
+        synchronized (lockFor(key)) {
+            Entry previous = live.put(key, new Entry(dialog, sipStack.getClock().millis()));
+            Slot slot = stored.remove(key);
+            if (slot != null) {
+                SIPDialog passivated = previous == null ? activate(slot) : null;
+                release(slot);
+                return passivated;
+            }
+            return previous == null ? null : previous.dialog;
+        }
+    }
+
+    public SIPDialog putIfAbsent(String key, SIPDialog dialog) {
+        synchronized (lockFor(key)) {
+            SIPDialog existing = get(key);
+            if (existing == null) {
+                live.put(key, new Entry(dialog, sipStack.getClock().millis()));
+            }
+            return existing;
+        }
+    }
+
+    public SIPDialog remove(String key) {
+        synchronized (lockFor(key)) {
+            Entry entry = live.remove(key);
+            Slot slot = stored.remove(key);
+            if (slot != null) {
+                SIPDialog passivated = entry == null ? activate(slot) : null;
+                release(slot);
+                return passivated;
+            }
+            return entry == null ? null : entry.dialog;
+        }
+    }
+
+    /**
+     * The dialogs on the heap followed by the passivated ones, decoded one at a
+     * time while iterating when nothing references them anymore. Iterating
+     * does not bring them back on the heap, prefer {@link #keySet()} and
+     * {@link #get(String)} to look at a few of them.
+     */
+    public Collection<SIPDialog> values() {
+        return new AbstractCollection<SIPDialog>() {
+            @Override
+            public Iterator<SIPDialog> iterator() {
+                return new ValuesIterator();
+            }
+
+            @Override
+            public int size() {
+                return OffHeapDialogStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * A snapshot of the keys of the dialogs on the heap and of the passivated
+     * ones, no dialog is decoded.
+     */
+    public Set<String> keySet() {
+        Set<String> keys = new HashSet<String>(live.keySet());
+        keys.addAll(stored.keySet());
+        return keys;
+    }
+
+    public int size() {
+        return live.size() + stored.size();
+    }
+
+    /**
+     * @return the number of dialogs in serialized form.
+     */
+    public int getPassivatedCount() {
+        return stored.size();
+    }
+
+    public void clear() {
+        live.clear();
+        for (String key : stored.keySet()) {
+            synchronized (lockFor(key)) {
+                Slot slot = stored.remove(key);
+                if (slot != null) {
+                    release(slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Passivate all the dialogs that can be and release the slots, the
+     * dialogs of a mapped file are found again when a store is created on the
+     * same directory.
+     */
+    public void close() {
+        if (sipStack.getTimer() != null) {
+            sipStack.getTimer().cancel(passivationTimerTask);
+        }
+        for (Map.Entry<String, Entry> entry : live.entrySet()) {
+            passivate(entry.getKey(), entry.getValue());
+        }
+        live.clear();
+        for (SlotArea area : areas) {
+            try {
+                area.close();
+            } catch (IOException e) {
+                logger.logError("Cannot close the dialog store", e);
+            }
+        }
+    }
+
+    /**
+     * Passivate the dialogs on the heap idle for longer than the idle time.
+     * Each dialog is passivated by a task of its Call-ID.
+     */
+    public void passivateIdleDialogs() {
+        long idleSince = sipStack.getClock().millis() - idleTime;
+        for (Map.Entry<String, Entry> entry : live.entrySet()) {
+            Entry value = entry.getValue();
+            if (value.lastAccess <= idleSince && value.dialog.isPassivable()) {
+                sipStack.getMessageProcessorExecutor().addTaskLast(
+                        new PassivationTask(entry.getKey(), value));
+            }
+        }
+    }
+
+    /**
+     * Serialize the dialog out of the heap if it is still stored under the
+     * key and can be passivated.
+     *
+     * @return true if the dialog was passivated.
+     */
+    boolean passivate(String key, Entry entry) {
+        synchronized (lockFor(key)) {
+            SIPDialog dialog = entry.dialog;
+            if (live.get(key) != entry || !dialog.isPassivable()) {
+                return false;
+            }
+            try {
+                dialog.passivate();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(SLOT_SIZES[0]);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeUTF(key);
+                out.writeUTF(getProviderKey(dialog.getSipProvider()));
+                codec.encode(dialog, out);
+                out.flush();
+                byte[] record = bytes.toByteArray();
+                for (int i = 0; i < areas.length; i++) {
+                    if (record.length <= areas[i].getCapacity()) {
+                        int slot = areas[i].allocate();
+                        areas[i].write(slot, record, record.length);
+                        stored.put(key, new Slot(((long) i << 32) | slot, dialog));
+                        live.remove(key);
+                        return true;
+                    }
+                }
+                if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
+                    logger.logDebug("Dialog " + key + " too large to passivate : " + record.length);
+                }
+            } catch (IOException e) {
+                logger.logError("Cannot passivate dialog " + key, e);
+            }
+            return false;
+        }
+    }
+
+    private Object lockFor(String key) {
+        return locks[(key.hashCode() & 0x7fffffff) % LOCKS];
+    }
+
+    private void release(Slot slot) {
+        areas[(int) (slot.address >>> 32)].free((int) slot.address);
+    }
+
+    /**
+     * @return the instance of the slot if it is still referenced, the dialog
+     *         decoded from the slot otherwise.
+     */
+    private SIPDialog activate(Slot slot) {
+        SIPDialog dialog = slot.getDialog();
+        if (dialog == null) {
+            dialog = load(slot.address);
+        } else if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
+            logger.logDebug("Reactivated dialog " + dialog.getDialogId());
+        }
+        return dialog;
+    }
+
+    /**
+     * @return the dialog of the slot attached to the stack, null if it cannot
+     *         be decoded.
+     */
+    private SIPDialog load(long address) {
+        byte[] record = areas[(int) (address >>> 32)].read((int) address);
+        if (record == null) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            String key = in.readUTF();
+            String providerKey = in.readUTF();
+            SIPDialog dialog = codec.decode(in);
+            dialog.activate(sipStack, getProvider(providerKey));
+            if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
+                logger.logDebug("Activated dialog " + key);
+            }
+            return dialog;
+        } catch (IOException e) {
+            logger.logError("Cannot activate dialog", e);
+            return null;
+        }
+    }
+
+    private void recover(final int area) {
+        areas[area].recover(new SlotArea.RecordVisitor() {
+            public void visit(int slot, byte[] record) {
+                try {
+                    String key = new DataInputStream(new ByteArrayInputStream(record)).readUTF();
+                    stored.put(key, new Slot(((long) area << 32) | slot, null));
+                } catch (IOException e) {
+                    logger.logError("Cannot recover the dialog of slot " + slot, e);
+                }
+            }
+        });
+    }
+
+    private static String getProviderKey(SipProviderImpl sipProvider) {
+        ListeningPoint listeningPoint = sipProvider == null ? null : sipProvider.getListeningPoint();
+        if (listeningPoint == null) {
+            return "";
+        }
+        return listeningPoint.getIPAddress() + ":" + listeningPoint.getPort() + "/"
+                + listeningPoint.getTransport();
+    }
+
+    private SipProviderImpl getProvider(String providerKey) {
+        SipProviderImpl first = null;
+        Iterator<SipProviderImpl> it = sipStack.getSipProviders();
+        while (it.hasNext()) {
+            SipProviderImpl sipProvider = it.next();
+            if (first == null) {
+                first = sipProvider;
+            }
+            if (providerKey.equals(getProviderKey(sipProvider))) {
+                return sipProvider;
+            }
+        }
+        return first;
+    }
+
+    private class ValuesIterator implements Iterator<SIPDialog> {
+        private final Iterator<Entry> liveIterator = live.values().iterator();
+        private final Iterator<String> storedIterator = stored.keySet().iterator();
+        private SIPDialog next;
+
+        public boolean hasNext() {
+            while (next == null) {
+                if (liveIterator.hasNext()) {
+                    next = liveIterator.next().dialog;
+                } else if (storedIterator.hasNext()) {
+                    String key = storedIterator.next();
+                    synchronized (lockFor(key)) {
+                        Slot slot = stored.get(key);
+                        if (slot != null) {
+                            next = slot.getDialog();
+                            if (next == null) {
+                                next = load(slot.address);
+                                // the next lookup hands out the same instance
+                                slot.dialog = next == null ? null : new WeakReference<SIPDialog>(next);
+                            }
+                        }
+                    }
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public SIPDialog next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SIPDialog dialog = next;
+            next = null;
+            return dialog;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    class PassivationTimerTask extends SIPStackTimerTask {
+
+        PassivationTimerTask() {
+            super(PassivationTimerTask.class.getSimpleName());
+        }
+
+        @Override
+        public String getId() {
+            return PassivationTimerTask.class.getSimpleName();
+        }
+
+        @Override
+        public void runTask() {
+            passivateIdleDialogs();
+        }
+    }
+
+    class PassivationTask implements SIPTask {
+        private final String key;
+        private final Entry entry;
+        private final long startTime = System.currentTimeMillis();
+
+        PassivationTask(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        public void execute() {
+            if (sipStack.getClock().millis() - entry.lastAccess >= idleTime) {
+                passivate(key, entry);
+            }
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public String getId() {
+            return entry.dialog.getCallId().getCallId();
+        }
+    }
+}
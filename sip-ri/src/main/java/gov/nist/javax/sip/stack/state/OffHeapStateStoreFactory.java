@@ -0,0 +1,70 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.File;
+import java.io.IOException;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.SIPClientTransaction;
+import gov.nist.javax.sip.stack.SIPDialog;
+import gov.nist.javax.sip.stack.SIPDialogCodec;
+import gov.nist.javax.sip.stack.SIPServerTransaction;
+
+/**
+ * Keeps the confirmed dialogs without activity outside of the heap with an
+ * {@link OffHeapDialogStore}, the early dialogs and the transactions on the
+ * heap.
+ */
+public class OffHeapStateStoreFactory implements StateStoreFactory {
+
+    public StateStore<SIPDialog> createDialogStore(SipStackImpl sipStack) {
+        String directory = sipStack.getConfigurationProperties()
+                .getProperty("gov.nist.javax.sip.OFF_HEAP_STATE_DIRECTORY");
+        long idleTime = Long.parseLong(sipStack.getConfigurationProperties()
+                .getProperty("gov.nist.javax.sip.OFF_HEAP_PASSIVATION_IDLE_TIME", "32")) * 1000;
+        try {
+            return new OffHeapDialogStore(sipStack, createDialogCodec(),
+                    directory == null ? null : new File(directory), idleTime);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open the dialog store in " + directory, e);
+        }
+    }
+
+    public StateStore<SIPDialog> createEarlyDialogStore(SipStackImpl sipStack) {
+        return new HeapStateStore<SIPDialog>();
+    }
+
+    public StateStore<SIPServerTransaction> createServerTransactionStore(SipStackImpl sipStack) {
+        return new HeapStateStore<SIPServerTransaction>();
+    }
+
+    public StateStore<SIPClientTransaction> createClientTransactionStore(SipStackImpl sipStack) {
+        return new HeapStateStore<SIPClientTransaction>();
+    }
+
+    /**
+     * @return the serialized form of the dialogs kept outside of the heap,
+     *         {@link SerializableDialogCodec} can be returned instead for
+     *         dialogs subclassed by the application.
+     */
+    protected StateCodec<SIPDialog> createDialogCodec() {
+        return new SIPDialogCodec();
+    }
+}
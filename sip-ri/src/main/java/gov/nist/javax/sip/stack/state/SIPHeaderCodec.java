@@ -0,0 +1,379 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Iterator;
+
+import javax.sip.InvalidArgumentException;
+import javax.sip.address.URI;
+
+import gov.nist.core.GenericObject;
+import gov.nist.core.Host;
+import gov.nist.core.HostPort;
+import gov.nist.core.NameValue;
+import gov.nist.core.NameValueList;
+import gov.nist.javax.sip.address.AddressImpl;
+import gov.nist.javax.sip.address.SipUri;
+import gov.nist.javax.sip.header.AddressParametersHeader;
+import gov.nist.javax.sip.header.CSeq;
+import gov.nist.javax.sip.header.CallID;
+import gov.nist.javax.sip.header.Contact;
+import gov.nist.javax.sip.header.ContentLength;
+import gov.nist.javax.sip.header.ContentType;
+import gov.nist.javax.sip.header.From;
+import gov.nist.javax.sip.header.MaxForwards;
+import gov.nist.javax.sip.header.ParametersHeader;
+import gov.nist.javax.sip.header.Protocol;
+import gov.nist.javax.sip.header.RecordRoute;
+import gov.nist.javax.sip.header.Route;
+import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.header.To;
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+/**
+ * Binary form of the headers. The headers the stack reads on every message
+ * are written field by field, the others as their encoded text which is
+ * parsed again when they are read.
+ */
+public final class SIPHeaderCodec {
+
+    private static final int TEXT = 0;
+    private static final int VIA = 1;
+    private static final int FROM = 2;
+    private static final int TO = 3;
+    private static final int CALL_ID = 4;
+    private static final int CSEQ = 5;
+    private static final int MAX_FORWARDS = 6;
+    private static final int CONTENT_LENGTH = 7;
+    private static final int CONTACT = 8;
+    private static final int ROUTE = 9;
+    private static final int RECORD_ROUTE = 10;
+    private static final int CONTENT_TYPE = 11;
+
+    private static final int SIP_URI = 0;
+    private static final int OTHER_URI = 1;
+
+    private static final int FLAG_PARAMETER = 1;
+    private static final int QUOTED_PARAMETER = 2;
+    private static final int NULL_PARAMETER = 4;
+
+    private SIPHeaderCodec() {
+    }
+
+    /**
+     * Write a header, not a header list.
+     */
+    @SuppressWarnings("deprecation") // the RFC 2543 Via comment is kept as received
+    public static void writeHeader(CompactOutput out, SIPHeader header) throws IOException {
+        if (header instanceof Via) {
+            Via via = (Via) header;
+            out.writeByte(VIA);
+            Protocol protocol = via.getSentProtocol();
+            out.writeString(protocol.getProtocolName());
+            out.writeString(protocol.getProtocolVersion());
+            out.writeString(protocol.getTransport());
+            writeHostPort(out, via.getSentBy());
+            writeParameters(out, via.getParameters());
+            out.writeString(via.getComment());
+        } else if (header instanceof From) {
+            out.writeByte(FROM);
+            writeAddressHeader(out, (AddressParametersHeader) header);
+        } else if (header instanceof To) {
+            out.writeByte(TO);
+            writeAddressHeader(out, (AddressParametersHeader) header);
+        } else if (header instanceof CallID) {
+            out.writeByte(CALL_ID);
+            out.writeString(((CallID) header).getCallId());
+        } else if (header instanceof CSeq) {
+            out.writeByte(CSEQ);
+            out.writeVarLong(((CSeq) header).getSeqNumber());
+            out.writeString(((CSeq) header).getMethod());
+        } else if (header instanceof MaxForwards) {
+            out.writeByte(MAX_FORWARDS);
+            out.writeVarInt(((MaxForwards) header).getMaxForwards());
+        } else if (header instanceof ContentLength) {
+            out.writeByte(CONTENT_LENGTH);
+            out.writeVarInt(((ContentLength) header).getContentLength());
+        } else if (header instanceof Contact) {
+            Contact contact = (Contact) header;
+            out.writeByte(CONTACT);
+            out.writeBoolean(contact.isWildCard());
+            if (!contact.isWildCard()) {
+                writeAddressHeader(out, contact);
+            }
+        } else if (header instanceof Route) {
+            out.writeByte(ROUTE);
+            writeAddressHeader(out, (AddressParametersHeader) header);
+        } else if (header instanceof RecordRoute) {
+            out.writeByte(RECORD_ROUTE);
+            writeAddressHeader(out, (AddressParametersHeader) header);
+        } else if (header instanceof ContentType) {
+            ContentType contentType = (ContentType) header;
+            out.writeByte(CONTENT_TYPE);
+            out.writeString(contentType.getContentType());
+            out.writeString(contentType.getContentSubType());
+            writeParameters(out, contentType.getParameters());
+        } else {
+            out.writeByte(TEXT);
+            out.writeString(header.encode());
+        }
+    }
+
+    @SuppressWarnings("deprecation") // the RFC 2543 Via comment is restored as received
+    public static SIPHeader readHeader(CompactInput in) throws IOException {
+        int type = in.readByte();
+        try {
+            switch (type) {
+            case VIA:
+                Via via = new Via();
+                Protocol protocol = new Protocol();
+                protocol.setProtocolName(in.readString());
+                protocol.setProtocolVersion(in.readString());
+                protocol.setTransport(in.readString());
+                via.setSentProtocol(protocol);
+                via.setSentBy(readHostPort(in));
+                via.setParameters(readParameters(in));
+                String comment = in.readString();
+                if (comment != null) {
+                    via.setComment(comment);
+                }
+                return via;
+            case FROM:
+                return readAddressHeader(in, new From());
+            case TO:
+                return readAddressHeader(in, new To());
+            case CALL_ID:
+                return new CallID(in.readString());
+            case CSEQ:
+                long seqNumber = in.readVarLong();
+                return new CSeq(seqNumber, in.readString());
+            case MAX_FORWARDS:
+                return new MaxForwards(in.readVarInt());
+            case CONTENT_LENGTH:
+                return new ContentLength(in.readVarInt());
+            case CONTACT:
+                Contact contact = new Contact();
+                if (in.readBoolean()) {
+                    contact.setWildCardFlag(true);
+                    return contact;
+                }
+                return readAddressHeader(in, contact);
+            case ROUTE:
+                return readAddressHeader(in, new Route());
+            case RECORD_ROUTE:
+                return readAddressHeader(in, new RecordRoute());
+            case CONTENT_TYPE:
+                String contentType = in.readString();
+                ContentType header = new ContentType(contentType, in.readString());
+                header.setParameters(readParameters(in));
+                return header;
+            case TEXT:
+                return StringMsgParser.parseSIPHeader(in.readString());
+            default:
+                throw new IOException("Unknown header type " + type);
+            }
+        } catch (ParseException e) {
+            throw new IOException("Cannot decode header", e);
+        } catch (InvalidArgumentException e) {
+            throw new IOException("Cannot decode header", e);
+        }
+    }
+
+    /**
+     * Write an address, null included.
+     */
+    public static void writeAddress(CompactOutput out, AddressImpl address) throws IOException {
+        if (address == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(address.getAddressType());
+        if (address.getAddressType() != AddressImpl.WILD_CARD) {
+            out.writeString(address.getDisplayName());
+            writeURI(out, address.getURI());
+        }
+    }
+
+    public static AddressImpl readAddress(CompactInput in) throws IOException {
+        int addressType = in.readByte();
+        if (addressType == 0) {
+            return null;
+        }
+        AddressImpl address = new AddressImpl();
+        if (addressType == AddressImpl.WILD_CARD) {
+            address.setWildCardFlag();
+            return address;
+        }
+        address.setAddressType(addressType);
+        String displayName = in.readString();
+        if (displayName != null) {
+            address.setDisplayName(displayName);
+        }
+        address.setURI(readURI(in));
+        return address;
+    }
+
+    public static void writeURI(CompactOutput out, URI uri) throws IOException {
+        if (uri instanceof SipUri) {
+            SipUri sipUri = (SipUri) uri;
+            out.writeByte(SIP_URI);
+            out.writeString(sipUri.getScheme());
+            boolean hasAuthority = sipUri.getAuthority() != null;
+            out.writeBoolean(hasAuthority);
+            if (hasAuthority) {
+                out.writeString(sipUri.getUser());
+                out.writeString(sipUri.getUserPassword());
+                writeHostPort(out, sipUri.getHostPort());
+            }
+            writeParameters(out, sipUri.getParameters());
+            writeParameters(out, sipUri.getQheaders());
+        } else {
+            out.writeByte(OTHER_URI);
+            out.writeString(uri.toString());
+        }
+    }
+
+    public static URI readURI(CompactInput in) throws IOException {
+        int type = in.readByte();
+        try {
+            if (type == OTHER_URI) {
+                return StringMsgParser.parseUrl(in.readString());
+            }
+            SipUri uri = new SipUri();
+            uri.setScheme(in.readString());
+            if (in.readBoolean()) {
+                String user = in.readString();
+                if (user != null) {
+                    uri.setUser(user);
+                }
+                String password = in.readString();
+                if (password != null) {
+                    uri.setUserPassword(password);
+                }
+                HostPort hostPort = readHostPort(in);
+                if (hostPort != null) {
+                    uri.setHostPort(hostPort);
+                }
+            }
+            uri.setUriParms(readParameters(in));
+            NameValueList qheaders = readParameters(in);
+            qheaders.setSeparator("&");
+            uri.setQheaders(qheaders);
+            return uri;
+        } catch (ParseException e) {
+            throw new IOException("Cannot decode URI", e);
+        }
+    }
+
+    private static void writeAddressHeader(CompactOutput out, AddressParametersHeader header) throws IOException {
+        writeAddress(out, (AddressImpl) header.getAddress());
+        writeParameters(out, header.getParameters());
+    }
+
+    private static SIPHeader readAddressHeader(CompactInput in, AddressParametersHeader header) throws IOException {
+        AddressImpl address = readAddress(in);
+        if (address != null) {
+            header.setAddress(address);
+        }
+        header.setParameters(readParameters(in));
+        return header;
+    }
+
+    private static void writeHostPort(CompactOutput out, HostPort hostPort) throws IOException {
+        if (hostPort == null || hostPort.getHost() == null) {
+            out.writeByte(0);
+            return;
+        }
+        Host host = hostPort.getHost();
+        out.writeByte(host.isHostname() ? 1 : 2);
+        out.writeString(host.getHostname());
+        out.writeVarLong(hostPort.getPort());
+    }
+
+    private static HostPort readHostPort(CompactInput in) throws IOException {
+        int type = in.readByte();
+        if (type == 0) {
+            return null;
+        }
+        String name = in.readString();
+        HostPort hostPort = new HostPort();
+        Host host;
+        if (type == 1) {
+            host = new Host();
+            host.setHostname(name);
+        } else {
+            // detects IPv6 addresses
+            host = new Host(name);
+        }
+        hostPort.setHost(host);
+        hostPort.setPort((int) in.readVarLong());
+        return hostPort;
+    }
+
+    private static void writeParameters(CompactOutput out, NameValueList parameters) throws IOException {
+        if (parameters == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(parameters.size());
+        Iterator<NameValue> it = parameters.iterator();
+        while (it.hasNext()) {
+            NameValue parameter = it.next();
+            Object value = parameter.getValueAsObject();
+            int flags = parameter.isValueQuoted() ? QUOTED_PARAMETER : 0;
+            if (value == null) {
+                flags |= NULL_PARAMETER;
+            } else if (value instanceof String && ((String) value).length() == 0
+                    && parameter.encode().equals(parameter.getName())) {
+                flags |= FLAG_PARAMETER;
+            }
+            out.writeString(parameter.getName());
+            out.writeByte(flags);
+            if ((flags & (NULL_PARAMETER | FLAG_PARAMETER)) == 0) {
+                out.writeString(value instanceof GenericObject ? ((GenericObject) value).encode()
+                        : value.toString());
+            }
+        }
+    }
+
+    private static NameValueList readParameters(CompactInput in) throws IOException {
+        NameValueList parameters = new NameValueList();
+        int count = in.readVarInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readString();
+            int flags = in.readByte();
+            NameValue parameter;
+            if ((flags & FLAG_PARAMETER) != 0) {
+                parameter = new NameValue(name, "", true);
+            } else if ((flags & NULL_PARAMETER) != 0) {
+                parameter = new NameValue(name, null);
+            } else {
+                parameter = new NameValue(name, in.readString());
+            }
+            if ((flags & QUOTED_PARAMETER) != 0) {
+                parameter.setQuotedValue();
+            }
+            parameters.set(parameter);
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Iterator;
+
+import javax.sip.ListeningPoint;
+
+import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.header.SIPHeaderList;
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.message.SIPMessage;
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.parser.StringMsgParser;
+
+/**
+ * Versioned binary form of a SIP message. Structured records write the start
+ * line, the headers and the body explicitly; raw records keep the encoded
+ * bytes of the message, which are smaller to write and parsed again when read.
+ */
+public class SIPMessageCodec implements StateCodec<SIPMessage> {
+
+    public static final int VERSION = 1;
+
+    private static final int STRUCTURED_REQUEST = 0;
+    private static final int STRUCTURED_RESPONSE = 1;
+    private static final int RAW = 2;
+
+    private final boolean keepRawBytes;
+
+    public SIPMessageCodec() {
+        this(false);
+    }
+
+    /**
+     * @param keepRawBytes write the encoded message rather than its fields.
+     */
+    public SIPMessageCodec(boolean keepRawBytes) {
+        this.keepRawBytes = keepRawBytes;
+    }
+
+    public void encode(SIPMessage message, DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        write(new CompactOutput(out), message);
+    }
+
+    public SIPMessage decode(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported message record version " + version);
+        }
+        return read(new CompactInput(in));
+    }
+
+    /**
+     * Write a message as part of an enclosing record, null included.
+     */
+    public void write(CompactOutput out, SIPMessage message) throws IOException {
+        if (message == null) {
+            out.writeByte(0xff);
+            return;
+        }
+        if (keepRawBytes) {
+            out.writeByte(RAW);
+            Via topVia = message.getTopmostVia();
+            String transport = topVia == null ? ListeningPoint.UDP : topVia.getTransport();
+            out.writeBytes(message.encodeAsBytes(transport));
+            return;
+        }
+        if (message instanceof SIPRequest) {
+            SIPRequest request = (SIPRequest) message;
+            out.writeByte(STRUCTURED_REQUEST);
+            out.writeString(request.getMethod());
+            SIPHeaderCodec.writeURI(out, request.getRequestURI());
+            out.writeString(request.getSIPVersion());
+        } else {
+            SIPResponse response = (SIPResponse) message;
+            out.writeByte(STRUCTURED_RESPONSE);
+            out.writeVarInt(response.getStatusCode());
+            out.writeString(response.getReasonPhrase());
+        }
+        int count = 0;
+        for (Iterator<SIPHeader> it = message.getHeaders(); it.hasNext();) {
+            SIPHeader header = it.next();
+            count += header instanceof SIPHeaderList ? ((SIPHeaderList<?>) header).size() : 1;
+        }
+        out.writeVarInt(count);
+        for (Iterator<SIPHeader> it = message.getHeaders(); it.hasNext();) {
+            SIPHeader header = it.next();
+            if (header instanceof SIPHeaderList) {
+                for (Object element : (SIPHeaderList<?>) header) {
+                    SIPHeaderCodec.writeHeader(out, (SIPHeader) element);
+                }
+            } else {
+                SIPHeaderCodec.writeHeader(out, header);
+            }
+        }
+        out.writeBytes(message.getRawContent());
+    }
+
+    public SIPMessage read(CompactInput in) throws IOException {
+        int mode = in.readByte();
+        if (mode == 0xff) {
+            return null;
+        }
+        try {
+            if (mode == RAW) {
+                return new StringMsgParser().parseSIPMessage(in.readBytes(), true, false, null);
+            }
+            SIPMessage message;
+            if (mode == STRUCTURED_REQUEST) {
+                SIPRequest request = new SIPRequest();
+                request.setMethod(in.readString());
+                request.setRequestURI(SIPHeaderCodec.readURI(in));
+                request.setSIPVersion(in.readString());
+                message = request;
+            } else if (mode == STRUCTURED_RESPONSE) {
+                SIPResponse response = new SIPResponse();
+                response.setStatusCode(in.readVarInt());
+                response.setReasonPhrase(in.readString());
+                message = response;
+            } else {
+                throw new IOException("Unknown message record mode " + mode);
+            }
+            int count = in.readVarInt();
+            for (int i = 0; i < count; i++) {
+                message.attachHeader(SIPHeaderCodec.readHeader(in), false, false);
+            }
+            byte[] content = in.readBytes();
+            if (content != null) {
+                message.setMessageContent(content);
+            }
+            return message;
+        } catch (ParseException e) {
+            throw new IOException("Cannot decode message", e);
+        }
+    }
+}
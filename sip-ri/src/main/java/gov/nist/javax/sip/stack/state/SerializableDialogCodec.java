@@ -0,0 +1,63 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import gov.nist.javax.sip.stack.SIPDialog;
+
+/**
+ * Java serialization of a passivated dialog, followed by its application data
+ * when the application data is serializable.
+ */
+public class SerializableDialogCodec implements StateCodec<SIPDialog> {
+
+    public void encode(SIPDialog dialog, DataOutput out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        ObjectOutputStream objects = new ObjectOutputStream(bytes);
+        objects.writeObject(dialog);
+        Object applicationData = dialog.getApplicationData();
+        objects.writeObject(applicationData instanceof Serializable ? applicationData : null);
+        objects.close();
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    public SIPDialog decode(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            SIPDialog dialog = (SIPDialog) objects.readObject();
+            dialog.setApplicationData(objects.readObject());
+            return dialog;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot decode the dialog", e);
+        } finally {
+            objects.close();
+        }
+    }
+}
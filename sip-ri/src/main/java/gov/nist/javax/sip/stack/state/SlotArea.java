@@ -0,0 +1,171 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Fixed size slots holding records outside of the heap, in segments of
+ * direct memory or of a memory mapped file. Each slot starts with the length
+ * of its record, 0 for a free slot, so that the records of a file are found
+ * again after a restart.
+ */
+final class SlotArea {
+
+    static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private final int slotSize;
+
+    private final int slotsPerSegment;
+
+    private final FileChannel channel;
+
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+
+    private int[] freeSlots = new int[64];
+
+    private int freeCount;
+
+    // slots handed out at least once, the others follow them
+    private int usedSlots;
+
+    interface RecordVisitor {
+        void visit(int slot, byte[] record);
+    }
+
+    /**
+     * @param file the file holding the slots, null to use direct memory.
+     */
+    SlotArea(int slotSize, File file) throws IOException {
+        this.slotSize = slotSize;
+        this.slotsPerSegment = SEGMENT_SIZE / slotSize;
+        if (file != null) {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            long existingSegments = channel.size() / SEGMENT_SIZE;
+            for (long i = 0; i < existingSegments; i++) {
+                addSegment();
+            }
+        } else {
+            channel = null;
+        }
+    }
+
+    /**
+     * @return the largest record a slot holds.
+     */
+    int getCapacity() {
+        return slotSize - 4;
+    }
+
+    synchronized int allocate() throws IOException {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (usedSlots == segments.length * slotsPerSegment) {
+            addSegment();
+        }
+        return usedSlots++;
+    }
+
+    synchronized void free(int slot) {
+        segments[slot / slotsPerSegment].putInt(offset(slot), 0);
+        pushFree(slot);
+    }
+
+    void write(int slot, byte[] record, int length) {
+        ByteBuffer segment = segments[slot / slotsPerSegment].duplicate();
+        int offset = offset(slot);
+        segment.position(offset + 4);
+        segment.put(record, 0, length);
+        // the length last, a slot is not in use until its record is complete
+        segment.putInt(offset, length);
+    }
+
+    /**
+     * @return the record of the slot, null for a free slot.
+     */
+    byte[] read(int slot) {
+        ByteBuffer segment = segments[slot / slotsPerSegment].duplicate();
+        int offset = offset(slot);
+        int length = segment.getInt(offset);
+        if (length <= 0 || length > getCapacity()) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        segment.position(offset + 4);
+        segment.get(record);
+        return record;
+    }
+
+    /**
+     * Visit the records found in the file when the area is opened, the other
+     * slots are made free.
+     */
+    synchronized void recover(RecordVisitor visitor) {
+        int slots = segments.length * slotsPerSegment;
+        for (int slot = slots - 1; slot >= 0; slot--) {
+            byte[] record = read(slot);
+            if (record == null) {
+                pushFree(slot);
+            } else {
+                visitor.visit(slot, record);
+            }
+        }
+        usedSlots = slots;
+    }
+
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            for (ByteBuffer segment : segments) {
+                ((MappedByteBuffer) segment).force();
+            }
+            channel.close();
+        }
+    }
+
+    private int offset(int slot) {
+        return (slot % slotsPerSegment) * slotSize;
+    }
+
+    private void pushFree(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void addSegment() throws IOException {
+        ByteBuffer segment;
+        if (channel != null) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) segments.length * SEGMENT_SIZE, SEGMENT_SIZE);
+        } else {
+            segment = ByteBuffer.allocateDirect(SEGMENT_SIZE);
+        }
+        ByteBuffer[] grown = Arrays.copyOf(segments, segments.length + 1);
+        grown[segments.length] = segment;
+        segments = grown;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A table of dialogs or transactions kept by the stack, indexed by their id.
+ * The stack uses one store per table, created by the
+ * {@link StateStoreFactory} configured with
+ * gov.nist.javax.sip.STATE_STORE_FACTORY.
+ * <p>
+ * A store may keep part of its values outside of the heap. A value it hands
+ * out after keeping it outside is the instance the stack or the application
+ * still references, a new instance only once nothing references it anymore.
+ * Looking values up by key rather than iterating them avoids bringing back
+ * the values kept outside.
+ *
+ * @param <V> the type of the values
+ */
+public interface StateStore<V> {
+
+    /**
+     * @param key the id of the dialog or transaction
+     * @return the value stored under the key, null if there is none
+     */
+    V get(String key);
+
+    /**
+     * Store a value, replacing the value stored under the key if any.
+     *
+     * @return the previous value, null if there was none
+     */
+    V put(String key, V value);
+
+    /**
+     * Store a value unless a value is already stored under the key.
+     *
+     * @return the value already stored, null if the value was stored
+     */
+    V putIfAbsent(String key, V value);
+
+    /**
+     * @return the value removed, null if there was none
+     */
+    V remove(String key);
+
+    /**
+     * @return the values of the store, a snapshot for the values kept outside
+     *         of the heap.
+     */
+    Collection<V> values();
+
+    /**
+     * @return the keys of the store, listing them does not bring back the
+     *         values kept outside of the heap.
+     */
+    Set<String> keySet();
+
+    int size();
+
+    void clear();
+
+    /**
+     * Called when the stack stops. A persistent store keeps what it holds so
+     * that a stack restarted on the same storage finds it again, other stores
+     * drop their content.
+     */
+    void close();
+}
@@ -22,15 +22,22 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.mobius.software.common.dal.timers.PeriodicQueuedTasks;
 import com.mobius.software.common.dal.timers.Timer;
+import com.mobius.software.common.dal.timers.WorkerPool;
 
 import gov.nist.core.CommonLogger;
 import gov.nist.core.StackLogger;
 import gov.nist.core.executor.MessageProcessorExecutor;
+import gov.nist.core.executor.StackExecutor;
 import gov.nist.javax.sip.SipStackImpl;
 
 /**
  * Implementation of the SIP Timer based on Mobius Software LTD Timers Library
  * 
+ * With the default MessageProcessorExecutor the timers are kept in the periodic
+ * queue of its worker pool. Other executors have no such queue, the timer then
+ * runs a worker pool of its own only to expire the timers and hands them to the
+ * executor of the stack.
+ * 
  * @author Jean Deruelle
  *
  */
@@ -39,6 +46,8 @@ public class MobiusSipTimer implements SipTimer {
 
 	protected SipStackImpl sipStackImpl;
 	private PeriodicQueuedTasks<Timer> periodicQueue;	
+	private WorkerPool workerPool;
+	private StackExecutor stackExecutor;
 	private AtomicBoolean started = new AtomicBoolean(false);
 	
 	/*
@@ -47,7 +56,16 @@ public class MobiusSipTimer implements SipTimer {
 	 */
 	public void start(SipStackImpl sipStack) {
 		sipStackImpl= sipStack;		
-		periodicQueue = ((MessageProcessorExecutor)sipStack.getMessageProcessorExecutor()).getPeriodicQueue();
+		StackExecutor executor = sipStack.getMessageProcessorExecutor();
+		if(executor instanceof MessageProcessorExecutor) {
+			periodicQueue = ((MessageProcessorExecutor)executor).getPeriodicQueue();
+		} else {
+			// no worker thread, the expired timers are handed to the executor of the stack
+			stackExecutor = executor;
+			workerPool = new WorkerPool(sipStack.getTaskInterval());
+			workerPool.start(0);
+			periodicQueue = workerPool.getPeriodicQueue();
+		}
 		started.set(true);
 		if(logger.isLoggingEnabled(StackLogger.TRACE_INFO)) {
 			logger.logInfo("the sip stack timer " + this.getClass().getName() + " has been started");
@@ -59,6 +77,10 @@ public class MobiusSipTimer implements SipTimer {
 	 */
 	public void stop() {	
 		started.set(false);	
+		if(workerPool != null) {
+			workerPool.stop();
+			workerPool = null;
+		}
 		if(logger.isLoggingEnabled(StackLogger.TRACE_INFO)) {
 			logger.logInfo("the Mobius sip stack timer " + this.getClass().getName() + " has been stopped");
 		}
@@ -113,6 +135,14 @@ public class MobiusSipTimer implements SipTimer {
 	public PeriodicQueuedTasks<Timer> getPeriodicQueue() {
 		return periodicQueue;
 	}
+
+	/**
+	 * @return the executor the expired timers are handed to, null when they are
+	 *         queued directly to the workers of the MessageProcessorExecutor.
+	 */
+	StackExecutor getStackExecutor() {
+		return stackExecutor;
+	}
 	
 	/*
 	 * (non-Javadoc)
@@ -23,7 +23,9 @@ import java.util.concurrent.atomic.AtomicLong;
 import gov.nist.core.CommonLogger;
 import gov.nist.core.StackLogger;
 import gov.nist.core.executor.MessageProcessorExecutor;
+import gov.nist.core.executor.SIPTask;
 import gov.nist.core.executor.SIPTimer;
+import gov.nist.core.executor.StackExecutor;
 
 public class MobiusSipTimerTask implements SIPTimer {
     private static StackLogger logger = CommonLogger.getLogger(MobiusSipTimerTask.class);
@@ -34,6 +36,7 @@ public class MobiusSipTimerTask implements SIPTimer {
     private AtomicLong period;
     private String id;
     private MessageProcessorExecutor messageProcessorExecutor;
+    private StackExecutor stackExecutor;
 
     public MobiusSipTimerTask(MobiusSipTimer timer, SIPTimerTask task, long timeout) {
         this.timer = timer;
@@ -42,7 +45,10 @@ public class MobiusSipTimerTask implements SIPTimer {
         this.timestamp = new AtomicLong(System.currentTimeMillis() + timeout);
         this.period = new AtomicLong(-1);
         this.id = task.getId();
-        this.messageProcessorExecutor = (MessageProcessorExecutor) timer.sipStackImpl.getMessageProcessorExecutor();
+        this.stackExecutor = timer.getStackExecutor();
+        if (stackExecutor == null) {
+            this.messageProcessorExecutor = (MessageProcessorExecutor) timer.sipStackImpl.getMessageProcessorExecutor();
+        }
     }
 
     public MobiusSipTimerTask(MobiusSipTimer timer, SIPTimerTask task, long timeout, long period) {
@@ -52,6 +58,27 @@ public class MobiusSipTimerTask implements SIPTimer {
 
     @Override
     public void execute() {
+        if (stackExecutor != null) {
+            // expired on the thread of the timer, run it with the other tasks of its id
+            stackExecutor.addTaskLast(new SIPTask() {
+                public String getId() {
+                    return id;
+                }
+
+                public long getStartTime() {
+                    return startTime;
+                }
+
+                public void execute() {
+                    runTimer();
+                }
+            });
+        } else {
+            runTimer();
+        }
+    }
+
+    private void runTimer() {
         if (timestamp.get() < Long.MAX_VALUE) {
             try {
                 // task can be null if it has been cancelled
@@ -100,6 +127,7 @@ public class MobiusSipTimerTask implements SIPTimer {
 
     @Override
     public Integer getQueueIndex() {
-        return messageProcessorExecutor.findQueueIndex(id);
+        // no queue index makes the worker pool of the timer execute it on its own thread
+        return messageProcessorExecutor == null ? null : messageProcessorExecutor.findQueueIndex(id);
     }
 }
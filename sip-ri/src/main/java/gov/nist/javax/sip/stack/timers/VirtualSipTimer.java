@@ -0,0 +1,240 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.timers;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.StackLogger;
+import gov.nist.core.VirtualClock;
+import gov.nist.javax.sip.SipStackImpl;
+
+/**
+ * SIP Timer running on a {@link VirtualClock}. Nothing runs on its own, the
+ * tasks are run in due order by the thread calling {@link #advance(long)},
+ * which moves the clock of the stack to the time of each task. Together with
+ * a {@link gov.nist.core.executor.ManualStackExecutor} it makes the stack
+ * deterministic, so that Timer B/F or session timers of hours can be exercised
+ * in a fraction of the time.
+ * <p>
+ * The time is read from the clock of the stack, which has to be a
+ * {@link VirtualClock}. One starting at the current time is installed when the
+ * timer is started with another clock, several stacks can then be given the
+ * same clock to be simulated together.
+ */
+public class VirtualSipTimer implements SipTimer {
+	private static StackLogger logger = CommonLogger.getLogger(VirtualSipTimer.class);
+
+	private final AtomicBoolean started = new AtomicBoolean(false);
+	private final PriorityQueue<ScheduledTask> queue = new PriorityQueue<ScheduledTask>();
+	private SipStackImpl sipStack;
+	private long sequence;
+	private long executed;
+
+	private static class ScheduledTask implements Comparable<ScheduledTask> {
+		private final SIPStackTimerTask task;
+		private final long period;
+		private long due;
+		private long sequence;
+		private volatile boolean cancelled;
+
+		ScheduledTask(SIPStackTimerTask task, long due, long period) {
+			this.task = task;
+			this.due = due;
+			this.period = period;
+		}
+
+		@Override
+		public int compareTo(ScheduledTask other) {
+			if (due != other.due) {
+				return due < other.due ? -1 : 1;
+			}
+			return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+		}
+	}
+
+	@Override
+	public boolean schedule(SIPStackTimerTask task, long delay) {
+		return scheduleWithFixedDelay(task, delay, -1);
+	}
+
+	@Override
+	public boolean scheduleWithFixedDelay(SIPStackTimerTask task, long delay, long period) {
+		if(!started.get()) {
+			throw new IllegalStateException("The SIP Stack Timer has been stopped, no new tasks can be scheduled !");
+		}
+		ScheduledTask scheduledTask = new ScheduledTask(task, getClock().millis() + Math.max(delay, 0), period);
+		task.setSipTimerTask(scheduledTask);
+		synchronized (queue) {
+			enqueue(scheduledTask);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean cancel(SIPStackTimerTask task) {
+		if (task == null || !(task.getSipTimerTask() instanceof ScheduledTask)) {
+			return false;
+		}
+		ScheduledTask scheduledTask = (ScheduledTask) task.getSipTimerTask();
+		boolean removed;
+		synchronized (queue) {
+			if (scheduledTask.cancelled) {
+				return false;
+			}
+			// a periodic task being run is not queued but must not come back
+			scheduledTask.cancelled = true;
+			removed = queue.remove(scheduledTask);
+		}
+		task.cleanUpBeforeCancel();
+		return removed;
+	}
+
+	/**
+	 * Moves the clock forward, running in order the tasks falling due on the
+	 * way, including the ones they schedule themselves.
+	 *
+	 * @param millis the time to move forward
+	 * @return the number of tasks run
+	 */
+	public int advance(long millis) {
+		return advanceTo(getClock().millis() + millis);
+	}
+
+	/**
+	 * Moves the clock forward to the given time, running in order the tasks
+	 * falling due until then.
+	 *
+	 * @param target the time to reach in milliseconds
+	 * @return the number of tasks run
+	 * @see #advance(long)
+	 */
+	public int advanceTo(long target) {
+		VirtualClock clock = getClock();
+		int count = 0;
+		while (true) {
+			ScheduledTask next;
+			synchronized (queue) {
+				next = queue.peek();
+				if (next == null || next.due > target) {
+					break;
+				}
+				queue.poll();
+			}
+			clock.advanceTo(next.due);
+			run(next);
+			count++;
+		}
+		clock.advanceTo(target);
+		return count;
+	}
+
+	/**
+	 * @return the time the next task falls due, -1 if none is scheduled.
+	 */
+	public long getNextDueTime() {
+		synchronized (queue) {
+			ScheduledTask next = queue.peek();
+			return next == null ? -1 : next.due;
+		}
+	}
+
+	/**
+	 * @return the number of tasks waiting to fall due.
+	 */
+	public int getPendingCount() {
+		synchronized (queue) {
+			return queue.size();
+		}
+	}
+
+	/**
+	 * @return the number of tasks run since the timer started.
+	 */
+	public long getExecutedCount() {
+		synchronized (queue) {
+			return executed;
+		}
+	}
+
+	public VirtualClock getClock() {
+		return (VirtualClock) sipStack.getClock();
+	}
+
+	private void run(ScheduledTask scheduledTask) {
+		if (scheduledTask.cancelled) {
+			return;
+		}
+		try {
+			scheduledTask.task.runTask();
+		} catch (Exception e) {
+			logger.logError("SIP stack timer task failed due to exception:", e);
+		}
+		synchronized (queue) {
+			executed++;
+			if (scheduledTask.period > 0 && !scheduledTask.cancelled && started.get()) {
+				scheduledTask.due = getClock().millis() + scheduledTask.period;
+				enqueue(scheduledTask);
+			}
+		}
+	}
+
+	private void enqueue(ScheduledTask scheduledTask) {
+		scheduledTask.sequence = sequence++;
+		queue.add(scheduledTask);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see gov.nist.javax.sip.stack.timers.SipTimer#start(gov.nist.javax.sip.SipStackImpl)
+	 */
+	public void start(SipStackImpl sipStack) {
+		this.sipStack = sipStack;
+		if (!(sipStack.getClock() instanceof VirtualClock)) {
+			sipStack.setClock(new VirtualClock());
+		}
+		started.set(true);
+		if(logger.isLoggingEnabled(StackLogger.TRACE_INFO)) {
+			logger.logInfo("the sip stack timer " + this.getClass().getName() + " has been started");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see gov.nist.javax.sip.stack.timers.SipTimer#stop()
+	 */
+	public void stop() {
+		started.set(false);
+		synchronized (queue) {
+			queue.clear();
+		}
+		if(logger.isLoggingEnabled(StackLogger.TRACE_INFO)) {
+			logger.logInfo("the sip stack timer " + this.getClass().getName() + " has been stopped");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see gov.nist.javax.sip.stack.timers.SipTimer#isStarted()
+	 */
+	public boolean isStarted() {
+		return started.get();
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.trace;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogWriter;
+import gov.nist.core.StackLogger;
+
+/**
+ * Logs each trace as one line at the info level, the microseconds from the
+ * reception to each stage following the first line and Call-ID of the
+ * message.
+ */
+public class LoggingMessageTraceSink implements MessageTraceSink {
+    private static StackLogger logger = CommonLogger.getLogger(LoggingMessageTraceSink.class);
+
+    public void traceCompleted(MessageTrace trace) {
+        if (logger.isLoggingEnabled(LogWriter.TRACE_INFO)) {
+            logger.logInfo("Message trace: " + trace);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.nist.javax.sip.message.SIPMessage;
+
+/**
+ * The timestamps of one sampled message on its way through the stack, in
+ * System.nanoTime() units, 0 for the stages it did not go through.
+ * <p>
+ * A trace is started by the transport when the bytes are handed to the
+ * decoder, attached to the message once it is parsed, and reported to the
+ * {@link MessageTraceSink} when the processing of the message is over, that
+ * is when the processing task, the listener if it is called from another
+ * thread, and the sending of the responses queued meanwhile have all returned.
+ * The responses created from a traced request share its trace and mark
+ * {@link Stage#SENT} when the first of them is written. 100 Trying, sent by
+ * the stack itself, is left out.
+ */
+public final class MessageTrace {
+
+    /**
+     * The stages in the order a message goes through them.
+     */
+    public enum Stage {
+        /** The bytes of the message were handed to the decoder. */
+        RECEIVED,
+        /**
+         * The end of the message was found in the bytes received. The decoders
+         * parsing the headers as they frame the message have parsed them by then.
+         */
+        FRAMED,
+        /** The message object is complete. */
+        PARSED,
+        /** The processing task was queued to the executor. */
+        ENQUEUED,
+        /** The processing task was taken by an executor thread. */
+        DEQUEUED,
+        /** The transaction layer found or created the transaction of the message. */
+        MATCHED,
+        /** The message was handed to the SipListener. */
+        DELIVERED,
+        /** A response to the request, or the message itself when forwarded, was written. */
+        SENT
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final MessageTracer tracer;
+    private final long[] timestamps = new long[STAGES.length];
+    // the processing task plus the listener callbacks running on other threads
+    private final AtomicInteger holds = new AtomicInteger(1);
+    private SIPMessage message;
+
+    MessageTrace(MessageTracer tracer, long receivedNanos) {
+        this.tracer = tracer;
+        timestamps[Stage.RECEIVED.ordinal()] = receivedNanos;
+    }
+
+    /**
+     * Records the time a stage is reached, the first time only. Stages reached
+     * after the trace was reported are ignored.
+     */
+    public void mark(Stage stage) {
+        int index = stage.ordinal();
+        if (timestamps[index] == 0 && holds.get() > 0) {
+            timestamps[index] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the stage on the trace of a message, if it has one.
+     */
+    public static void mark(SIPMessage message, Stage stage) {
+        MessageTrace trace = message.getMessageTrace();
+        if (trace != null) {
+            trace.mark(stage);
+        }
+    }
+
+    /**
+     * Attaches the trace to the message it follows.
+     */
+    public void attach(SIPMessage message) {
+        this.message = message;
+        message.setMessageTrace(this);
+    }
+
+    /**
+     * Delays the report of the trace until a matching {@link #release()}, for
+     * the processing continued on another thread.
+     *
+     * @return false if the trace was already reported, and is not to be released.
+     */
+    public boolean hold() {
+        int current;
+        do {
+            current = holds.get();
+            if (current == 0) {
+                return false;
+            }
+        } while (!holds.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Ends one processing of the message, the last one reporting the trace.
+     */
+    public void release() {
+        if (holds.decrementAndGet() == 0) {
+            tracer.complete(this);
+        }
+    }
+
+    /**
+     * @return the System.nanoTime() the stage was reached at, 0 if it was not.
+     */
+    public long getTimestamp(Stage stage) {
+        return timestamps[stage.ordinal()];
+    }
+
+    /**
+     * @return the nanoseconds between two stages, -1 if one of them was not reached.
+     */
+    public long getElapsedNanos(Stage from, Stage to) {
+        long start = timestamps[from.ordinal()];
+        long end = timestamps[to.ordinal()];
+        return start == 0 || end == 0 ? -1 : end - start;
+    }
+
+    /**
+     * @return the message traced.
+     */
+    public SIPMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the first line of the message, its Call-ID and the microseconds
+     *         from the reception to each stage reached.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(160);
+        if (message != null) {
+            String firstLine = message.getFirstLine();
+            builder.append(firstLine == null ? "" : firstLine.trim());
+            if (message.getCallId() != null) {
+                builder.append(" Call-ID=").append(message.getCallId().getCallId());
+            }
+        }
+        long received = timestamps[Stage.RECEIVED.ordinal()];
+        for (Stage stage : STAGES) {
+            long timestamp = timestamps[stage.ordinal()];
+            if (timestamp != 0 && stage != Stage.RECEIVED) {
+                builder.append(' ').append(stage.name().toLowerCase()).append('=')
+                        .append((timestamp - received) / 1000).append("us");
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.trace;
+
+/**
+ * Receives the traces of the messages sampled by a {@link MessageTracer}.
+ * <p>
+ * It is called on the stack thread ending the processing of the message, by
+ * several threads at the same time, and shouldn't block: a sink doing I/O
+ * should hand the trace to its own thread.
+ *
+ * @see gov.nist.javax.sip.stack.SIPTransactionStack#setMessageTraceSink(MessageTraceSink, int)
+ */
+public interface MessageTraceSink {
+
+    /**
+     * @param trace the trace of a message whose processing is over. It is not
+     *        modified any more.
+     */
+    void traceCompleted(MessageTrace trace);
+}
@@ -0,0 +1,92 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.StackLogger;
+
+/**
+ * Samples the messages received by a stack and reports their traces to a
+ * sink. One message out of the sample rate is traced, picked at random so
+ * that the sampling neither needs a shared counter nor follows the pattern of
+ * the traffic. The messages not sampled cost a random draw at the transport
+ * and a null check at each stage.
+ */
+public class MessageTracer {
+    private static StackLogger logger = CommonLogger.getLogger(MessageTracer.class);
+
+    private final MessageTraceSink sink;
+    private final int sampleRate;
+    private final LongAdder reported = new LongAdder();
+
+    /**
+     * @param sink where the traces are reported
+     * @param sampleRate one message out of this number is traced, 1 to trace them all
+     */
+    public MessageTracer(MessageTraceSink sink, int sampleRate) {
+        if (sink == null) {
+            throw new IllegalArgumentException("Null sink");
+        }
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Bad sample rate " + sampleRate);
+        }
+        this.sink = sink;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Decides whether the message being received is traced.
+     *
+     * @param receivedNanos the System.nanoTime() its bytes were received at
+     * @return the trace of the message, null if it is not sampled.
+     */
+    public MessageTrace startTrace(long receivedNanos) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return null;
+        }
+        return new MessageTrace(this, receivedNanos);
+    }
+
+    void complete(MessageTrace trace) {
+        reported.increment();
+        try {
+            sink.traceCompleted(trace);
+        } catch (RuntimeException e) {
+            logger.logError("Message trace sink failed on " + trace, e);
+        }
+    }
+
+    public MessageTraceSink getSink() {
+        return sink;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return the number of traces reported to the sink.
+     */
+    public long getReportedCount() {
+        return reported.sum();
+    }
+}
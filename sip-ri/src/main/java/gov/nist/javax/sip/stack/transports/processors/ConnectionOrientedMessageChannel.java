@@ -31,7 +31,6 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.text.ParseException;
 import java.util.Iterator;
-import java.util.concurrent.Semaphore;
 
 import javax.sip.ListeningPoint;
 import javax.sip.SipListener;
@@ -62,7 +61,6 @@ import gov.nist.javax.sip.stack.SIPTransactionStack;
 import gov.nist.javax.sip.stack.ServerLog;
 import gov.nist.javax.sip.stack.ServerRequestInterface;
 import gov.nist.javax.sip.stack.ServerResponseInterface;
-import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
 import gov.nist.javax.sip.stack.transports.processors.nio.NioTcpMessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.oio.TCPMessageProcessor;
 
@@ -104,17 +102,15 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
     protected int peerPort;    
     protected String peerProtocol;
 	
-	private SIPStackTimerTask pingKeepAliveTimeoutTask;
-    private Semaphore keepAliveSemaphore;
+	// time after which the peer is considered gone, -1 when no pong is awaited
+	private volatile long keepAliveDeadline = -1;
+    private final KeepAliveTimeoutFlow keepAliveFlow = new KeepAliveTimeoutFlow();
     
     private long keepAliveTimeout;    
     
     public ConnectionOrientedMessageChannel(SIPTransactionStack sipStack) {
     	this.sipStack = sipStack;
     	this.keepAliveTimeout = sipStack.getReliableConnectionKeepAliveTimeout();
-    	if(keepAliveTimeout > 0) {
-    		keepAliveSemaphore = new Semaphore(1);
-    	}
 	}
     
     /**
@@ -175,7 +171,7 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
     public void sendMessage(final SIPMessage sipMessage) throws IOException {
 
         if ( logger.isLoggingEnabled(LogWriter.TRACE_DEBUG) && !sipMessage.isNullRequest() ) {
-            logger.logDebug("sendMessage:: " + sipMessage.getFirstLine() + " cseq method = " + sipMessage.getCSeq().getMethod());
+            logger.logDebug("sendMessage:: " + sipMessage.getFirstLine() + " cseq method = " + sipMessage.peekCSeq().getMethod());
         }
         //check for self routing
         MessageProcessor messageProcessor = sipStack.findMessageProcessor(this.getPeerAddress(), this.getPeerPort(), this.getPeerProtocol());
@@ -186,14 +182,14 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
 
         byte[] msg = sipMessage.encodeAsBytes(this.getTransport());
 
-        long time = System.currentTimeMillis();
+        long time = sipStack.getClock().millis();
         
         // need to store the peerPortAdvertisedInHeaders in case the response has an rport (ephemeral) that failed to retry on the regular via port
         // for responses, no need to store anything for subsequent requests.
         if(peerPortAdvertisedInHeaders <= 0) {
         	if(sipMessage instanceof SIPResponse) {
         		SIPResponse sipResponse = (SIPResponse) sipMessage; 
-        		Via via = sipResponse.getTopmostVia();
+        		Via via = sipResponse.peekTopmostVia();
         		if(via.getRPort() > 0) {
 	            	if(via.getPort() <=0) {    
 	            		// if port is 0 we assume the default port for TCP
@@ -252,10 +248,10 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
      */
     public void processMessage(SIPMessage sipMessage) throws Exception {
         try {
-        	if (sipMessage.getFrom() == null || sipMessage.getTo() == null
-                    || sipMessage.getCallId() == null
-                    || sipMessage.getCSeq() == null
-                    || sipMessage.getViaHeaders() == null) {
+        	if (sipMessage.peekFrom() == null || sipMessage.peekTo() == null
+                    || sipMessage.peekCallId() == null
+                    || sipMessage.peekCSeq() == null
+                    || sipMessage.peekViaHeaders() == null) {
                 
                 if (logger.isLoggingEnabled()) {
                     String badmsg = sipMessage.encode();
@@ -273,13 +269,13 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
             sipMessage.setPeerPacketSourceAddress(this.peerAddress);
             sipMessage.setPeerPacketSourcePort(this.peerPort);
             
-            ViaList viaList = sipMessage.getViaHeaders();
+            ViaList viaList = sipMessage.peekViaHeaders();
             // For a request
             // first via header tells where the message is coming from.
             // For response, this has already been recorded in the outgoing
             // message.
             if (sipMessage instanceof SIPRequest) {
-                Via v = (Via) viaList.getFirst();
+                Via v = (Via) viaList.peekFirst();
                 // the peer address and tag it appropriately.
                 Hop hop = sipStack.getAddressResolver().resolveAddress(v.getHop());
                 this.peerProtocol = v.getTransport();
@@ -377,7 +373,7 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
 
             // Foreach part of the request header, fetch it and process it
 
-            long receptionTime = System.currentTimeMillis();
+            long receptionTime = sipStack.getClock().millis();
             //
 
             if (sipMessage instanceof SIPRequest) {
@@ -429,7 +425,7 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
                 }
 
                 String method = ((SIPRequest) sipMessage).getMethod();
-                String cseqMethod = ((SIPRequest) sipMessage).getCSeqHeader()
+                String cseqMethod = ((SIPRequest) sipMessage).peekCSeq()
                         .getMethod();
 
                 if (!method.equalsIgnoreCase(cseqMethod)) {
@@ -723,23 +719,13 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
     }
 
     public void cancelPingKeepAliveTimeoutTaskIfStarted() {
-    	if (pingKeepAliveTimeoutTask != null) {			 
-			// && pingKeepAliveTimeoutTask.getSipTimerTask() != null
-    		try {
-				keepAliveSemaphore.acquire();
-			} catch (InterruptedException e) {
-				logger.logError("Couldn't acquire keepAliveSemaphore");
-				return;
-			}
-	    	try {
-	    		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-	                logger.logDebug("~~~ cancelPingKeepAliveTimeoutTaskIfStarted for MessageChannel(key=" + key + "), clientAddress=" + peerAddress
-	                        +  ", clientPort=" + peerPort+ ", timeout="+ keepAliveTimeout + ")");
-	            }
-	    		sipStack.getTimer().cancel(pingKeepAliveTimeoutTask);
-	    	} finally {
-	    		keepAliveSemaphore.release();
-	    	}
+    	if (keepAliveDeadline >= 0) {
+    		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("~~~ cancelPingKeepAliveTimeoutTaskIfStarted for MessageChannel(key=" + key + "), clientAddress=" + peerAddress
+                        +  ", clientPort=" + peerPort+ ", timeout="+ keepAliveTimeout + ")");
+            }
+    		// the sweeper drops the flow when its bucket falls due
+    		keepAliveDeadline = -1;
     	}
     }
 
@@ -757,11 +743,8 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
         }
 
         this.keepAliveTimeout = keepAliveTimeout;
-        if(keepAliveSemaphore == null) {
-        	keepAliveSemaphore = new Semaphore(1);
-        }
 
-        boolean isKeepAliveTimeoutTaskScheduled = pingKeepAliveTimeoutTask != null;
+        boolean isKeepAliveTimeoutTaskScheduled = keepAliveDeadline >= 0;
         if (isKeepAliveTimeoutTaskScheduled && keepAliveTimeout > 0){
             rescheduleKeepAliveTimeout(keepAliveTimeout);
         }
@@ -772,14 +755,8 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
     }
 
     public void rescheduleKeepAliveTimeout(long newKeepAliveTimeout) {
-//        long now = System.currentTimeMillis();
-//        long lastKeepAliveReceivedTimeOrNow = lastKeepAliveReceivedTime == 0 ? now : lastKeepAliveReceivedTime;
-//
-//        long newScheduledTime =  lastKeepAliveReceivedTimeOrNow + newKeepAliveTimeout;
-
-        StringBuilder methodLog = new StringBuilder();
-
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+            StringBuilder methodLog = new StringBuilder();
             methodLog.append("~~~ rescheduleKeepAliveTimeout for MessageChannel(key=" + key + "), clientAddress=" + peerAddress
                     +  ", clientPort=" + peerPort+ ", timeout="+ keepAliveTimeout + "): newKeepAliveTimeout=");
             if (newKeepAliveTimeout == Long.MAX_VALUE) {
@@ -787,58 +764,29 @@ public abstract class ConnectionOrientedMessageChannel extends MessageChannel im
             } else {
                 methodLog.append(newKeepAliveTimeout);
             }
-//            methodLog.append(", lastKeepAliveReceivedTimeOrNow=");
-//            methodLog.append(lastKeepAliveReceivedTimeOrNow);
-//            methodLog.append(", newScheduledTime=");
-//            methodLog.append(newScheduledTime);
+            methodLog.append(", expiring after ");
+            methodLog.append(keepAliveTimeout / 1000);
+            methodLog.append(" seconds");
+            logger.logDebug(methodLog.toString());
         }
+        // moving the deadline is enough, the sweeper looks at it once the
+        // previous one falls due
+        keepAliveDeadline = sipStack.getClock().millis() + keepAliveTimeout;
+        sipStack.getIdleConnectionSweeper().track(keepAliveFlow);
+    }
 
-//        long delay = newScheduledTime > now ? newScheduledTime - now : 1;
-        try {
-			keepAliveSemaphore.acquire();
-		} catch (InterruptedException e) {
-			logger.logWarning("Couldn't acquire keepAliveSemaphore");
-			return;
-		}
-		try{
-	        if(pingKeepAliveTimeoutTask == null) {
-	        	pingKeepAliveTimeoutTask = new KeepAliveTimeoutTimerTask();	  	        	
-	        	if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-	                methodLog.append(", scheduling pingKeepAliveTimeoutTask to execute after ");
-	                methodLog.append(keepAliveTimeout / 1000);
-	                methodLog.append(" seconds");
-	                logger.logDebug(methodLog.toString());
-	            }
-	    	    sipStack.getTimer().schedule(pingKeepAliveTimeoutTask, keepAliveTimeout);
-	        } else {
-	        	if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-	                logger.logDebug("~~~ cancelPingKeepAliveTimeout for MessageChannel(key=" + key + "), clientAddress=" + peerAddress
-	                        +  ", clientPort=" + peerPort+ ", timeout="+ keepAliveTimeout + ")");
-	        	}
-        		sipStack.getTimer().cancel(pingKeepAliveTimeoutTask);        	
-        		pingKeepAliveTimeoutTask = new KeepAliveTimeoutTimerTask();
-        		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-	                methodLog.append(", scheduling pingKeepAliveTimeoutTask to execute after ");
-	                methodLog.append(keepAliveTimeout / 1000);
-	                methodLog.append(" seconds");
-	                logger.logDebug(methodLog.toString());
-	            }
-        		sipStack.getTimer().schedule(pingKeepAliveTimeoutTask, keepAliveTimeout);
-	        }
-		} finally {
-        	keepAliveSemaphore.release();
+    class KeepAliveTimeoutFlow implements IdleConnectionSweeper.Flow {
+        public long getIdleDeadline() {
+            return keepAliveDeadline;
         }
-    }
-    class KeepAliveTimeoutTimerTask extends SIPStackTimerTask {
-    	KeepAliveTimeoutTimerTask () { 
-    		super(KeepAliveTimeoutTimerTask.class.getSimpleName());
-    	}
+
         @Override
-        public String getId() {
+        public String toString() {
             return ConnectionOrientedMessageChannel.this.toString();
-        } 
-        
-        public void runTask() {
+        }
+
+        public void idle() {
+            keepAliveDeadline = -1;
             if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
                 logger.logDebug(
                         "~~~ Starting processing of KeepAliveTimeoutEvent( " + peerAddress.getHostAddress() + "," + peerPort + ")...");
@@ -0,0 +1,100 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traffic of one of the connections a message processor keeps to a
+ * destination.
+ */
+public class ConnectionStatistics {
+
+    private final String key;
+    private final int index;
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicInteger activeCalls = new AtomicInteger();
+    private final AtomicInteger connects = new AtomicInteger();
+
+    public ConnectionStatistics(String key, int index) {
+        this.key = key;
+        this.index = index;
+    }
+
+    public void messageSent(int length) {
+        messagesSent.incrementAndGet();
+        bytesSent.addAndGet(length);
+    }
+
+    public void connected() {
+        connects.incrementAndGet();
+    }
+
+    public void callAdded() {
+        activeCalls.incrementAndGet();
+    }
+
+    public void callRemoved() {
+        activeCalls.decrementAndGet();
+    }
+
+    /**
+     * @return the key of the destination, see {@link MessageChannel#getKey()}.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the position of the connection in the pool of the destination.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * @return the number of calls sending over this connection.
+     */
+    public int getActiveCalls() {
+        return activeCalls.get();
+    }
+
+    /**
+     * @return the number of times the connection was opened.
+     */
+    public int getConnects() {
+        return connects.get();
+    }
+
+    @Override
+    public String toString() {
+        return key + "#" + index + " calls=" + activeCalls + " messages=" + messagesSent + " bytes=" + bytesSent
+                + " connects=" + connects;
+    }
+}
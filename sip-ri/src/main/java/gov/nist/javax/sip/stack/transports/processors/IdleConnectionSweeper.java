@@ -0,0 +1,203 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogWriter;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
+
+/**
+ * Closes or notifies the connections that stayed idle past their deadline,
+ * replacing a timer task per connection. The flows are kept in buckets keyed
+ * by the second of their deadline and one timer task sweeps the buckets
+ * falling due every second.
+ * <p>
+ * Traffic on a flow only moves its deadline, the flow stays in its bucket.
+ * When the bucket falls due the flow is expired if its deadline passed and
+ * moved to the bucket of its new deadline otherwise, so that a sweep costs
+ * the flows expiring plus the ones that were active, each of these at most
+ * once per timeout, and never the whole set of connections.
+ */
+public class IdleConnectionSweeper {
+    private static StackLogger logger = CommonLogger.getLogger(IdleConnectionSweeper.class);
+
+    static final long SWEEP_INTERVAL = 1000;
+
+    /**
+     * A connection, or a state of a connection, which expires when idle.
+     */
+    public interface Flow {
+        /**
+         * @return the time in milliseconds after which the flow is idle, a
+         *         negative value when the flow no longer has to be watched.
+         */
+        long getIdleDeadline();
+
+        /**
+         * Called by the sweeper once the deadline passed, to close the
+         * connection or notify the application.
+         */
+        void idle();
+    }
+
+    private final SIPTransactionStack sipStack;
+
+    // flows by the second of their deadline
+    private final Map<Long, List<Flow>> buckets = new HashMap<Long, List<Flow>>();
+
+    // second of the bucket each flow sits in
+    private final ConcurrentHashMap<Flow, Long> tracked = new ConcurrentHashMap<Flow, Long>();
+
+    private long lastSweptSecond;
+
+    private final SweepTimerTask sweepTimerTask = new SweepTimerTask();
+
+    public IdleConnectionSweeper(SIPTransactionStack sipStack) {
+        this.sipStack = sipStack;
+        this.lastSweptSecond = sipStack.getClock().millis() / 1000 - 1;
+    }
+
+    public void start() {
+        if (sipStack.getTimer() != null) {
+            sipStack.getTimer().scheduleWithFixedDelay(sweepTimerTask, SWEEP_INTERVAL, SWEEP_INTERVAL);
+        }
+    }
+
+    public void stop() {
+        if (sipStack.getTimer() != null) {
+            sipStack.getTimer().cancel(sweepTimerTask);
+        }
+        synchronized (buckets) {
+            buckets.clear();
+        }
+        tracked.clear();
+    }
+
+    /**
+     * Watches the flow until its deadline is negative or passed. Calling it
+     * for a flow already watched does nothing, moving its deadline is enough.
+     */
+    public void track(Flow flow) {
+        long deadline = flow.getIdleDeadline();
+        if (deadline < 0 || tracked.putIfAbsent(flow, deadline) != null) {
+            return;
+        }
+        synchronized (buckets) {
+            add(flow, deadline / 1000);
+        }
+    }
+
+    /**
+     * @return the number of flows watched.
+     */
+    public int size() {
+        return tracked.size();
+    }
+
+    /**
+     * Sweeps the buckets fallen due.
+     *
+     * @return the number of flows expired
+     */
+    int sweep() {
+        long now = sipStack.getClock().millis();
+        long second = now / 1000;
+        List<Flow> due = new ArrayList<Flow>();
+        synchronized (buckets) {
+            for (long s = lastSweptSecond + 1; s <= second; s++) {
+                List<Flow> bucket = buckets.remove(s);
+                if (bucket != null) {
+                    due.addAll(bucket);
+                }
+            }
+            lastSweptSecond = Math.max(lastSweptSecond, second);
+        }
+        List<Flow> expired = new ArrayList<Flow>();
+        List<Flow> moved = new ArrayList<Flow>();
+        for (Flow flow : due) {
+            long deadline = flow.getIdleDeadline();
+            if (deadline < 0) {
+                tracked.remove(flow);
+                // armed again while being dropped
+                if (flow.getIdleDeadline() >= 0) {
+                    track(flow);
+                }
+            } else if (deadline <= now) {
+                tracked.remove(flow);
+                expired.add(flow);
+            } else {
+                moved.add(flow);
+            }
+        }
+        if (!moved.isEmpty()) {
+            synchronized (buckets) {
+                for (Flow flow : moved) {
+                    add(flow, flow.getIdleDeadline() / 1000);
+                }
+            }
+        }
+        if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG) && !due.isEmpty()) {
+            logger.logDebug("swept " + due.size() + " flows, " + expired.size() + " expired, " + moved.size()
+                    + " still active, " + tracked.size() + " watched");
+        }
+        for (Flow flow : expired) {
+            try {
+                flow.idle();
+            } catch (Exception e) {
+                logger.logError("Exception while expiring idle flow " + flow, e);
+            }
+        }
+        return expired.size();
+    }
+
+    private void add(Flow flow, long second) {
+        // a bucket already swept would never be looked at again
+        long bucketSecond = Math.max(second, lastSweptSecond + 1);
+        List<Flow> bucket = buckets.get(bucketSecond);
+        if (bucket == null) {
+            bucket = new ArrayList<Flow>();
+            buckets.put(bucketSecond, bucket);
+        }
+        bucket.add(flow);
+        tracked.put(flow, bucketSecond);
+    }
+
+    class SweepTimerTask extends SIPStackTimerTask {
+        SweepTimerTask() {
+            super(SweepTimerTask.class.getSimpleName());
+        }
+
+        @Override
+        public String getId() {
+            return IdleConnectionSweeper.this.toString();
+        }
+
+        public void runTask() {
+            sweep();
+        }
+    }
+}
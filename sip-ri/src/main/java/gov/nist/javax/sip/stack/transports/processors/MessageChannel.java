@@ -60,6 +60,7 @@ import gov.nist.javax.sip.message.SIPRequest;
 import gov.nist.javax.sip.message.SIPResponse;
 import gov.nist.javax.sip.stack.SIPClientTransaction;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
 import gov.nist.javax.sip.stack.transports.processors.oio.UDPMessageChannel;
 
 /**
@@ -232,7 +233,7 @@ public abstract class MessageChannel {
      * @throws IOException If there is an error sending the message
      */
     public void sendMessage(final SIPMessage sipMessage, Hop hop) throws IOException {
-        long time = System.currentTimeMillis();
+        long time = getSIPStack().getClock().millis();
         InetAddress hopAddr = InetAddress.getByName(hop.getHost());
 
         try {
@@ -249,6 +250,7 @@ public abstract class MessageChannel {
             byte[] msg = sipMessage.encodeAsBytes(this.getTransport());
 
             this.sendMessage(msg, hopAddr, hop.getPort(), sipMessage instanceof SIPRequest);
+            MessageTrace.mark(sipMessage, MessageTrace.Stage.SENT);
 
             // we successfully sent the message without an exception so let's
             // now set port and address
@@ -279,7 +281,7 @@ public abstract class MessageChannel {
      */
     public void sendMessage(SIPMessage sipMessage, InetAddress receiverAddress, int receiverPort)
             throws IOException {
-        long time = System.currentTimeMillis();
+        long time = getSIPStack().getClock().millis();
         byte[] bytes = sipMessage.encodeAsBytes(this.getTransport());
         messageTxId.set(sipMessage.getTransactionId());
         try {
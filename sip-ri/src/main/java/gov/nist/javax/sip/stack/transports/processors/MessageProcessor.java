@@ -296,6 +296,20 @@ public abstract class MessageProcessor  {
     public abstract MessageChannel createMessageChannel(HostPort targetHostPort)
             throws IOException;
 
+    /**
+     * Create a message channel for the specified host/port to carry the
+     * messages of a call. Processors keeping several connections to a
+     * destination use the Call-ID to send the messages of a call over the
+     * same connection, the others ignore it.
+     *
+     * @param callId the Call-ID of the messages to send, may be null.
+     * @return New MessageChannel for this processor.
+     */
+    public MessageChannel createMessageChannel(HostPort targetHostPort, String callId)
+            throws IOException {
+        return createMessageChannel(targetHostPort);
+    }
+
     /**
      * Create a message channel for the specified host/port.
      *
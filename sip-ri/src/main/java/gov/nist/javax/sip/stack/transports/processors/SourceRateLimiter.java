@@ -0,0 +1,297 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+
+/**
+ * Limits the rate of the messages each source address may send, checked by
+ * the transports once a message is framed and before it is parsed so that a
+ * flooding source costs the stack as little as possible.
+ * <p>
+ * Each source has a token bucket of <code>burst</code> messages refilled at
+ * <code>rate</code> messages per second, kept as the theoretical arrival time
+ * of its next message and updated with a compare and set. The sources are
+ * tracked in a table of fixed size where each address may take one of two
+ * slots: a new source replaces the most idle of the two, so that the sources
+ * being limited stay in the table while the idle ones are forgotten. A
+ * forgotten source comes back with a full bucket and its dropped count lost.
+ * <p>
+ * The addresses of the allow-list, single addresses or networks written as
+ * <code>address/prefix</code>, are never limited.
+ */
+public class SourceRateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final SIPTransactionStack sipStack;
+    private final int rate;
+    private final int burst;
+    // time between two messages at the sustained rate, and advance a source
+    // may take on it before its messages are dropped
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final AtomicReferenceArray<Source> sources;
+    private final int mask;
+    private final List<Network> allowList = new ArrayList<Network>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param sipStack the stack giving the time
+     * @param rate the number of messages per second a source may sustain
+     * @param burst the number of messages a source may send at once
+     * @param tableSize the number of sources tracked, rounded up to a power
+     *            of two
+     * @param allowList comma separated addresses and networks never limited,
+     *            may be null
+     * @throws IllegalArgumentException if an argument or an entry of the
+     *             allow-list is invalid
+     */
+    public SourceRateLimiter(SIPTransactionStack sipStack, int rate, int burst, int tableSize, String allowList) {
+        if (rate <= 0 || burst <= 0 || tableSize <= 0) {
+            throw new IllegalArgumentException("rate " + rate + ", burst " + burst + " and table size " + tableSize
+                    + " must be positive");
+        }
+        this.sipStack = sipStack;
+        this.rate = rate;
+        this.burst = burst;
+        this.emissionInterval = NANOS_PER_SECOND / rate;
+        this.burstTolerance = emissionInterval * (burst - 1);
+        int size = Integer.highestOneBit(tableSize);
+        if (size < tableSize) {
+            size <<= 1;
+        }
+        this.sources = new AtomicReferenceArray<Source>(size);
+        this.mask = size - 1;
+        if (allowList != null) {
+            for (String entry : allowList.split(",")) {
+                entry = entry.trim();
+                if (entry.length() > 0) {
+                    this.allowList.add(Network.parse(entry));
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a token of the bucket of a source for a message it sent.
+     *
+     * @param address the source of the message
+     * @return false if the source went over its rate and the message must be
+     *         dropped
+     */
+    public boolean tryAcquire(InetAddress address) {
+        if (address == null || isAllowed(address)) {
+            return true;
+        }
+        long now = sipStack.getClock().millis() * 1000000L;
+        Source source = getSource(address, now);
+        for (;;) {
+            long theoreticalArrival = source.theoreticalArrival.get();
+            long start = Math.max(theoreticalArrival, now);
+            if (start - now > burstTolerance) {
+                source.dropped.incrementAndGet();
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (source.theoreticalArrival.compareAndSet(theoreticalArrival, start + emissionInterval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return true if the address is on the allow-list
+     */
+    public boolean isAllowed(InetAddress address) {
+        for (Network network : allowList) {
+            if (network.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Source getSource(InetAddress address, long now) {
+        int hash = address.hashCode() * 0x9E3779B9;
+        int first = (hash ^ (hash >>> 16)) & mask;
+        // an odd offset keeps the two slots apart
+        int second = (first ^ (hash >>> 8 | 1)) & mask;
+        Source firstSource = sources.get(first);
+        if (firstSource != null && firstSource.address.equals(address)) {
+            return firstSource;
+        }
+        Source secondSource = sources.get(second);
+        if (secondSource != null && secondSource.address.equals(address)) {
+            return secondSource;
+        }
+        Source source = new Source(address, now);
+        int slot;
+        Source replaced;
+        if (firstSource == null) {
+            slot = first;
+            replaced = null;
+        } else if (secondSource == null) {
+            slot = second;
+            replaced = null;
+        } else if (firstSource.theoreticalArrival.get() <= secondSource.theoreticalArrival.get()) {
+            slot = first;
+            replaced = firstSource;
+        } else {
+            slot = second;
+            replaced = secondSource;
+        }
+        // when another thread changed the slot meanwhile the new source is
+        // only used for this message
+        if (sources.compareAndSet(slot, replaced, source) && replaced != null) {
+            evictions.incrementAndGet();
+        }
+        return source;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * @return the number of messages dropped since the start of the stack.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of messages of a source dropped since it is tracked,
+     *         0 if it is not tracked.
+     */
+    public long getDropped(InetAddress address) {
+        Source source = find(address);
+        return source == null ? 0 : source.dropped.get();
+    }
+
+    /**
+     * @return the dropped counts of the tracked sources which had messages
+     *         dropped.
+     */
+    public Map<InetAddress, Long> getDroppedBySource() {
+        Map<InetAddress, Long> droppedBySource = new HashMap<InetAddress, Long>();
+        for (int i = 0; i < sources.length(); i++) {
+            Source source = sources.get(i);
+            if (source != null && source.dropped.get() > 0) {
+                droppedBySource.put(source.address, source.dropped.get());
+            }
+        }
+        return droppedBySource;
+    }
+
+    /**
+     * @return the number of sources forgotten to track new ones.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private Source find(InetAddress address) {
+        for (int i = 0; i < sources.length(); i++) {
+            Source source = sources.get(i);
+            if (source != null && source.address.equals(address)) {
+                return source;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + rate + "/s burst=" + burst + " dropped=" + dropped + " evictions=" + evictions;
+    }
+
+    private static final class Source {
+        final InetAddress address;
+        final AtomicLong theoreticalArrival;
+        final AtomicLong dropped = new AtomicLong();
+
+        Source(InetAddress address, long now) {
+            this.address = address;
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+    }
+
+    private static final class Network {
+        final byte[] address;
+        final int prefix;
+
+        Network(byte[] address, int prefix) {
+            this.address = address;
+            this.prefix = prefix;
+        }
+
+        static Network parse(String entry) {
+            int slash = entry.indexOf('/');
+            String host = slash < 0 ? entry : entry.substring(0, slash);
+            byte[] address;
+            try {
+                address = InetAddress.getByName(host).getAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("bad address " + entry, e);
+            }
+            int prefix = address.length * 8;
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(entry.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("bad prefix " + entry, e);
+                }
+                if (prefix < 0 || prefix > address.length * 8) {
+                    throw new IllegalArgumentException("bad prefix " + entry);
+                }
+            }
+            return new Network(address, prefix);
+        }
+
+        boolean contains(InetAddress inetAddress) {
+            byte[] other = inetAddress.getAddress();
+            if (other.length != address.length) {
+                return false;
+            }
+            int bits = prefix;
+            for (int i = 0; bits > 0; i++, bits -= 8) {
+                int mask = bits >= 8 ? 0xFF : (0xFF << (8 - bits)) & 0xFF;
+                if ((other[i] & mask) != (address[i] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.memory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.text.ParseException;
+
+import javax.sip.ListeningPoint;
+import javax.sip.address.Hop;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogWriter;
+import gov.nist.core.ServerLogger;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.message.SIPMessage;
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.stack.SIPClientTransaction;
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.ServerRequestInterface;
+import gov.nist.javax.sip.stack.ServerResponseInterface;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.RawMessageChannel;
+
+/**
+ * Message Channel of a {@link MemoryMessageProcessor} towards one peer.
+ */
+public class MemoryMessageChannel extends MessageChannel implements RawMessageChannel {
+    private static StackLogger logger = CommonLogger.getLogger(MemoryMessageChannel.class);
+
+    private final SIPTransactionStack sipStack;
+
+    private final MemoryMessageProcessor memoryMessageProcessor;
+
+    private final InetAddress peerAddress;
+
+    private final int peerPort;
+
+    public MemoryMessageChannel(MemoryMessageProcessor memoryMessageProcessor, InetAddress peerAddress, int peerPort) {
+        super.messageProcessor = memoryMessageProcessor;
+        this.memoryMessageProcessor = memoryMessageProcessor;
+        this.sipStack = memoryMessageProcessor.getSIPStack();
+        this.peerAddress = peerAddress;
+        this.peerPort = peerPort;
+    }
+
+    @Override
+    public void sendMessage(SIPMessage sipMessage) throws IOException {
+        long time = sipStack.getClock().millis();
+        byte[] message = sipMessage.encodeAsBytes(getTransport());
+        memoryMessageProcessor.getNetwork().send(memoryMessageProcessor, peerAddress, peerPort, message);
+        sipMessage.setRemoteAddress(peerAddress);
+        sipMessage.setRemotePort(peerPort);
+        sipMessage.setLocalPort(getPort());
+        sipMessage.setLocalAddress(memoryMessageProcessor.getIpAddress());
+        if (logger.isLoggingEnabled(ServerLogger.TRACE_MESSAGES) && !sipMessage.isNullRequest()) {
+            logMessage(sipMessage, peerAddress, peerPort, time);
+        }
+    }
+
+    @Override
+    public void sendMessage(byte[] message, InetAddress receiverAddress, int receiverPort, boolean reconnectFlag)
+            throws IOException {
+        memoryMessageProcessor.getNetwork().send(memoryMessageProcessor, receiverAddress, receiverPort, message);
+    }
+
+    @Override
+    public void processMessage(SIPMessage sipMessage) throws Exception {
+        Via topMostVia = sipMessage.peekTopmostVia();
+        if (sipMessage.peekFrom() == null || sipMessage.peekTo() == null || sipMessage.peekCallId() == null
+                || sipMessage.peekCSeq() == null || topMostVia == null) {
+            if (logger.isLoggingEnabled()) {
+                logger.logError(">>> Dropped Bad Msg " + sipMessage.getFirstLine());
+            }
+            return;
+        }
+        sipMessage.setLocalPort(getPort());
+        sipMessage.setLocalAddress(memoryMessageProcessor.getIpAddress());
+
+        if (sipMessage instanceof SIPRequest) {
+            SIPRequest sipRequest = (SIPRequest) sipMessage;
+            // tag the topmost via the way a datagram transport does
+            Hop hop = sipStack.getAddressResolver().resolveAddress(topMostVia.getHop());
+            boolean hasRPort = topMostVia.hasParameter(Via.RPORT);
+            try {
+                if (hasRPort || !hop.getHost().equals(peerAddress.getHostAddress())) {
+                    topMostVia.setParameter(Via.RECEIVED, peerAddress.getHostAddress());
+                }
+                if (hasRPort) {
+                    topMostVia.setParameter(Via.RPORT, Integer.toString(peerPort));
+                }
+            } catch (ParseException ex) {
+                logger.logError("Could not tag the topmost via of " + sipRequest.getFirstLine(), ex);
+            }
+            if (logger.isLoggingEnabled(ServerLogger.TRACE_MESSAGES)) {
+                sipStack.getServerLogger().logMessage(sipMessage, getPeerHostPort().toString(),
+                        getHost() + ":" + getPort(), false, sipStack.getClock().millis());
+            }
+            ServerRequestInterface sipServerRequest = sipStack.newSIPServerRequest(sipRequest, this);
+            if (sipServerRequest == null) {
+                if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                    logger.logDebug("Null request interface returned -- dropping request");
+                }
+                return;
+            }
+            sipServerRequest.processRequest(sipRequest, this);
+        } else {
+            SIPResponse sipResponse = (SIPResponse) sipMessage;
+            try {
+                sipResponse.checkHeaders();
+            } catch (ParseException ex) {
+                if (logger.isLoggingEnabled()) {
+                    logger.logError("Dropping Badly formatted response message >>> " + sipResponse);
+                }
+                return;
+            }
+            if (logger.isLoggingEnabled(ServerLogger.TRACE_MESSAGES)) {
+                sipStack.getServerLogger().logMessage(sipResponse, getPeerHostPort().toString(),
+                        getHost() + ":" + getPort(), false, sipStack.getClock().millis());
+            }
+            ServerResponseInterface sipServerResponse = sipStack.newSIPServerResponse(sipResponse, this);
+            if (sipServerResponse == null) {
+                return;
+            }
+            if (sipServerResponse instanceof SIPClientTransaction
+                    && !((SIPClientTransaction) sipServerResponse).checkFromTag(sipResponse)) {
+                if (logger.isLoggingEnabled()) {
+                    logger.logError("Dropping response message with invalid tag >>> " + sipResponse);
+                }
+                return;
+            }
+            sipServerResponse.processResponse(sipResponse, this);
+        }
+    }
+
+    @Override
+    public void close() {
+        // nothing is held per peer
+    }
+
+    @Override
+    public SIPTransactionStack getSIPStack() {
+        return sipStack;
+    }
+
+    @Override
+    public String getTransport() {
+        return memoryMessageProcessor.getTransport();
+    }
+
+    @Override
+    public boolean isReliable() {
+        return !ListeningPoint.UDP.equalsIgnoreCase(getTransport());
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public String getPeerAddress() {
+        return peerAddress.getHostAddress();
+    }
+
+    @Override
+    public InetAddress getPeerInetAddress() {
+        return peerAddress;
+    }
+
+    @Override
+    public String getPeerProtocol() {
+        return getTransport();
+    }
+
+    @Override
+    public int getPeerPort() {
+        return peerPort;
+    }
+
+    @Override
+    public int getPeerPacketSourcePort() {
+        return peerPort;
+    }
+
+    @Override
+    public InetAddress getPeerPacketSourceAddress() {
+        return peerAddress;
+    }
+
+    @Override
+    public String getKey() {
+        return getKey(peerAddress, peerPort, getTransport());
+    }
+
+    @Override
+    public String getViaHost() {
+        return memoryMessageProcessor.getIpAddress().getHostAddress();
+    }
+
+    @Override
+    public int getViaPort() {
+        return memoryMessageProcessor.getPort();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.memory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.HostPort;
+import gov.nist.core.LogWriter;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.message.SIPMessage;
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
+import gov.nist.javax.sip.stack.trace.MessageTracer;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
+import gov.nist.javax.sip.stack.transports.processors.netty.IncomingMessageProcessingTask;
+
+/**
+ * Message Processor exchanging the messages over a {@link MemoryNetwork}. The
+ * messages are encoded and parsed as on the wire, the incoming ones being
+ * processed by the executor of the stack. Every transport behaves as an
+ * unsecured datagram one, only the reliability reported to the transactions
+ * follows the transport name.
+ */
+public class MemoryMessageProcessor extends MessageProcessor {
+    private static StackLogger logger = CommonLogger.getLogger(MemoryMessageProcessor.class);
+
+    private final MemoryNetwork network;
+
+    private volatile boolean started;
+
+    public MemoryMessageProcessor(InetAddress ipAddress, SIPTransactionStack sipStack, int port, String transport,
+            MemoryNetwork network) {
+        super(ipAddress, port, transport, sipStack);
+        this.network = network;
+    }
+
+    @Override
+    public SIPTransactionStack getSIPStack() {
+        return sipStack;
+    }
+
+    @Override
+    public MessageChannel createMessageChannel(HostPort targetHostPort) throws IOException {
+        return createMessageChannel(targetHostPort.getInetAddress(), targetHostPort.getPort());
+    }
+
+    @Override
+    public MessageChannel createMessageChannel(InetAddress targetHost, int port) throws IOException {
+        return new MemoryMessageChannel(this, targetHost, port);
+    }
+
+    @Override
+    public void start() throws IOException {
+        started = true;
+        network.attach(this);
+    }
+
+    @Override
+    public void stop() {
+        started = false;
+        network.detach(this);
+    }
+
+    MemoryNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Parses a message coming from the network and queues its processing.
+     *
+     * @return false if the message was dropped.
+     */
+    boolean receive(InetAddress sourceAddress, int sourcePort, byte[] message) {
+        if (!started) {
+            return false;
+        }
+        MessageTracer messageTracer = sipStack.getMessageTracer();
+        MessageTrace messageTrace = messageTracer == null ? null : messageTracer.startTrace(System.nanoTime());
+        SIPMessage sipMessage;
+        try {
+            sipMessage = sipStack.getMessageParserFactory().createMessageParser(sipStack)
+                    .parseSIPMessage(message, true, false, null);
+        } catch (Exception e) {
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("Dropping message that could not be parsed " + e.getMessage());
+            }
+            return false;
+        }
+        if (sipMessage == null || sipMessage.peekCallId() == null) {
+            return false;
+        }
+        if (messageTrace != null) {
+            // the datagram is the frame, parsed in one go
+            messageTrace.mark(MessageTrace.Stage.PARSED);
+            messageTrace.attach(sipMessage);
+        }
+        sipMessage.setRemoteAddress(sourceAddress);
+        sipMessage.setRemotePort(sourcePort);
+        sipMessage.setPeerPacketSourceAddress(sourceAddress);
+        sipMessage.setPeerPacketSourcePort(sourcePort);
+        MemoryMessageChannel messageChannel = new MemoryMessageChannel(this, sourceAddress, sourcePort);
+        sipStack.getMessageProcessorExecutor().addTaskLast(new IncomingMessageProcessingTask(messageChannel, sipMessage));
+        return true;
+    }
+
+    @Override
+    public int getDefaultTargetPort() {
+        return 5060;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public int getMaximumMessageSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean inUse() {
+        return started;
+    }
+}
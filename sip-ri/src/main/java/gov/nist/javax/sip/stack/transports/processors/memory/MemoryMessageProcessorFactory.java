@@ -0,0 +1,40 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.memory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
+import gov.nist.javax.sip.stack.transports.processors.MessageProcessorFactory;
+
+/**
+ * Message Processor Factory attaching the listening points of the stack to the
+ * default {@link MemoryNetwork} instead of sockets, so that several stacks of
+ * one process can exchange messages for simulations and tests.
+ */
+public class MemoryMessageProcessorFactory implements MessageProcessorFactory {
+
+    @Override
+    public MessageProcessor createMessageProcessor(SIPTransactionStack sipStack, InetAddress ipAddress, int port,
+            String transport) throws IOException {
+        return new MemoryMessageProcessor(ipAddress, sipStack, port, transport, MemoryNetwork.getDefault());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.memory;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogWriter;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+
+/**
+ * Network joining the {@link MemoryMessageProcessor}s of the stacks of a
+ * process. A message sent to an address without a processor is lost, the way
+ * a datagram to a host that is down would be.
+ */
+public class MemoryNetwork {
+    private static StackLogger logger = CommonLogger.getLogger(MemoryNetwork.class);
+
+    private static final MemoryNetwork DEFAULT = new MemoryNetwork();
+
+    private final Map<String, MemoryMessageProcessor> processors = new ConcurrentHashMap<String, MemoryMessageProcessor>();
+    private final AtomicLong messagesDelivered = new AtomicLong();
+    private final AtomicLong messagesLost = new AtomicLong();
+    private final AtomicLong bytesDelivered = new AtomicLong();
+
+    /**
+     * @return the network the processors created by
+     *         {@link MemoryMessageProcessorFactory} attach to.
+     */
+    public static MemoryNetwork getDefault() {
+        return DEFAULT;
+    }
+
+    void attach(MemoryMessageProcessor messageProcessor) {
+        processors.put(key(messageProcessor.getIpAddress(), messageProcessor.getPort(), messageProcessor.getTransport()),
+                messageProcessor);
+    }
+
+    void detach(MemoryMessageProcessor messageProcessor) {
+        processors.remove(key(messageProcessor.getIpAddress(), messageProcessor.getPort(), messageProcessor.getTransport()),
+                messageProcessor);
+    }
+
+    /**
+     * Hands the message to the processor listening on the destination.
+     *
+     * @return false if the message was lost.
+     */
+    boolean send(MemoryMessageProcessor sender, InetAddress address, int port, byte[] message) {
+        MemoryMessageProcessor receiver = processors.get(key(address, port, sender.getTransport()));
+        if (receiver == null) {
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("no processor listening on " + address.getHostAddress() + ":" + port + ", message lost");
+            }
+            messagesLost.incrementAndGet();
+            return false;
+        }
+        if (!receiver.receive(sender.getIpAddress(), sender.getPort(), message)) {
+            messagesLost.incrementAndGet();
+            return false;
+        }
+        messagesDelivered.incrementAndGet();
+        bytesDelivered.addAndGet(message.length);
+        return true;
+    }
+
+    public long getMessagesDelivered() {
+        return messagesDelivered.get();
+    }
+
+    /**
+     * @return the number of messages sent to nobody or that could not be parsed.
+     */
+    public long getMessagesLost() {
+        return messagesLost.get();
+    }
+
+    public long getBytesDelivered() {
+        return bytesDelivered.get();
+    }
+
+    /**
+     * Detaches all the processors and clears the counters.
+     */
+    public void reset() {
+        processors.clear();
+        messagesDelivered.set(0);
+        messagesLost.set(0);
+        bytesDelivered.set(0);
+    }
+
+    private static String key(InetAddress address, int port, String transport) {
+        return MessageChannel.getKey(address, port, transport);
+    }
+}
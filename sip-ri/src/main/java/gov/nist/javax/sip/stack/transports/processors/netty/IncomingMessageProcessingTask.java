@@ -23,6 +23,7 @@ import gov.nist.core.StackLogger;
 import gov.nist.core.executor.SIPTask;
 import gov.nist.javax.sip.message.SIPMessage;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
 import gov.nist.javax.sip.stack.transports.processors.RawMessageChannel;
 
 public class IncomingMessageProcessingTask implements SIPTask {
@@ -36,10 +37,11 @@ public class IncomingMessageProcessingTask implements SIPTask {
 
     public IncomingMessageProcessingTask(RawMessageChannel rawMessageChannel, SIPMessage sipMessage) {
         startTime = System.currentTimeMillis();
-        this.id = sipMessage.getCallId().getCallId();    
+        this.id = sipMessage.peekCallId().getCallId();    
         this.rawMessageChannel = rawMessageChannel;
         this.sipMessage = sipMessage;  
         this.sipStack = rawMessageChannel.getSIPStack();
+        MessageTrace.mark(sipMessage, MessageTrace.Stage.ENQUEUED);
     }
 
     @Override
@@ -47,6 +49,10 @@ public class IncomingMessageProcessingTask implements SIPTask {
         if (logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
             logger.logDebug("Executing task " + this + " with id: " + id);
         }
+        MessageTrace messageTrace = sipMessage.getMessageTrace();
+        if (messageTrace != null) {
+            messageTrace.mark(MessageTrace.Stage.DEQUEUED);
+        }
         if (sipStack.sipEventInterceptor != null) {
             if (logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
                 logger.logDebug("calling beforeMessage eventinterceptor for message " + sipMessage);
@@ -64,6 +70,9 @@ public class IncomingMessageProcessingTask implements SIPTask {
                 }
                 sipStack.sipEventInterceptor.afterMessage(sipMessage);
             }
+            if (messageTrace != null) {
+                messageTrace.release();
+            }
         }
     }
 
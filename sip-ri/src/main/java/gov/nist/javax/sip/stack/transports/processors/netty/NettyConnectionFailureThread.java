@@ -18,7 +18,7 @@
  */
 package gov.nist.javax.sip.stack.transports.processors.netty;
 
-import gov.nist.core.executor.SIPTask;
+import gov.nist.core.executor.UnorderedSIPTask;
 import io.netty.channel.ChannelFuture;
 
 /**
@@ -26,7 +26,7 @@ import io.netty.channel.ChannelFuture;
  * 
  * @author Jean Deruelle
  */
-public class NettyConnectionFailureThread implements SIPTask {
+public class NettyConnectionFailureThread implements UnorderedSIPTask {
 	NettyStreamMessageChannel messageChannel;
 	ChannelFuture channelFuture;
 	long startTime;
@@ -72,6 +72,13 @@ public class NettyConnectionListener implements ChannelFutureListener {
             messageChannel.channel = channel;
             messageChannel.peerAddress = ((InetSocketAddress) channel.remoteAddress()).getAddress();
             messageChannel.peerPort = ((InetSocketAddress) channel.remoteAddress()).getPort();						
+            if (messageChannel.pooled) {
+                // the incoming messages of the connection go to its own message channel
+                channel.attr(NettyStreamMessageProcessor.POOLED_CHANNEL).set(messageChannel);
+            }
+            if (messageChannel.statistics != null) {
+                messageChannel.statistics.connected();
+            }
             
             if(messageChannel.getTransport().equalsIgnoreCase(ListeningPoint.TLS)) {
                 SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
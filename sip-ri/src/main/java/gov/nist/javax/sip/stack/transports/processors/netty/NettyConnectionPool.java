@@ -0,0 +1,193 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.netty;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogWriter;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.stack.transports.processors.ConnectionStatistics;
+
+/**
+ * Connections kept by a {@link NettyStreamMessageProcessor} to one
+ * destination. The first one is the connection the processor caches for the
+ * destination, the others are only used to send. A call sends over the
+ * connection it was given until it has been idle for the affinity timeout, new
+ * calls are given the connection with the fewest calls.
+ */
+class NettyConnectionPool {
+
+    private static StackLogger logger = CommonLogger.getLogger(NettyConnectionPool.class);
+
+    private final NettyStreamMessageProcessor messageProcessor;
+    private final InetAddress address;
+    private final int port;
+    private final AtomicReferenceArray<NettyStreamMessageChannel> connections;
+    private final ConnectionStatistics[] statistics;
+    private final Map<String, Affinity> affinities = new ConcurrentHashMap<String, Affinity>();
+    // guarded by the pool, set once the processor has forgotten it
+    private boolean retired;
+
+    NettyConnectionPool(NettyStreamMessageProcessor messageProcessor, String key, InetAddress address, int port,
+            int size) {
+        this.messageProcessor = messageProcessor;
+        this.address = address;
+        this.port = port;
+        this.connections = new AtomicReferenceArray<NettyStreamMessageChannel>(size);
+        this.statistics = new ConnectionStatistics[size];
+        for (int i = 0; i < size; i++) {
+            statistics[i] = new ConnectionStatistics(key, i);
+        }
+    }
+
+    /**
+     * @return the connection carrying the messages of the call, null if the
+     *         pool was retired and a new one must be created.
+     */
+    NettyStreamMessageChannel select(String callId) throws IOException {
+        long now = messageProcessor.getSIPStack().getClock().millis();
+        Affinity affinity;
+        synchronized (this) {
+            if (retired) {
+                return null;
+            }
+            affinity = affinities.get(callId);
+            if (affinity == null) {
+                Affinity created = new Affinity(leastLoaded(), now);
+                affinity = affinities.putIfAbsent(callId, created);
+                if (affinity == null) {
+                    affinity = created;
+                    statistics[affinity.index].callAdded();
+                    if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                        logger.logDebug("call " + callId + " sent over " + statistics[affinity.index]);
+                    }
+                }
+            }
+            affinity.lastUse = now;
+        }
+        return getConnection(affinity.index);
+    }
+
+    private int leastLoaded() {
+        int index = 0;
+        for (int i = 1; i < statistics.length; i++) {
+            if (statistics[i].getActiveCalls() < statistics[index].getActiveCalls()) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private NettyStreamMessageChannel getConnection(int index) throws IOException {
+        NettyStreamMessageChannel connection;
+        if (index == 0) {
+            connection = (NettyStreamMessageChannel) messageProcessor.createMessageChannel(address, port);
+        } else {
+            connection = connections.get(index);
+            if (connection == null) {
+                NettyStreamMessageChannel created = messageProcessor.constructMessageChannel(address, port);
+                created.pooled = true;
+                if (connections.compareAndSet(index, null, created)) {
+                    connection = created;
+                } else {
+                    connection = connections.get(index);
+                }
+            }
+        }
+        connection.statistics = statistics[index];
+        return connection;
+    }
+
+    /**
+     * Forget the calls without messages since the given time.
+     */
+    void expireAffinities(long idleSince) {
+        for (Iterator<Map.Entry<String, Affinity>> it = affinities.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Affinity> entry = it.next();
+            Affinity affinity = entry.getValue();
+            if (affinity.lastUse < idleSince && affinities.remove(entry.getKey(), affinity)) {
+                statistics[affinity.index].callRemoved();
+            }
+        }
+    }
+
+    /**
+     * Release the slot of a closed connection, it is opened again by the next
+     * message of one of its calls.
+     */
+    void remove(NettyStreamMessageChannel connection) {
+        for (int i = 1; i < connections.length(); i++) {
+            connections.compareAndSet(i, connection, null);
+        }
+    }
+
+    /**
+     * Retire the pool once it has neither calls nor connections left.
+     *
+     * @param cachedConnection whether the connection the processor caches for
+     *        the destination is still open
+     * @return true if the pool was retired
+     */
+    synchronized boolean retireIfUnused(boolean cachedConnection) {
+        if (retired) {
+            return true;
+        }
+        if (cachedConnection || !affinities.isEmpty()) {
+            return false;
+        }
+        for (int i = 1; i < connections.length(); i++) {
+            if (connections.get(i) != null) {
+                return false;
+            }
+        }
+        retired = true;
+        return true;
+    }
+
+    void close() {
+        for (int i = 1; i < connections.length(); i++) {
+            NettyStreamMessageChannel connection = connections.getAndSet(i, null);
+            if (connection != null) {
+                connection.close(false, true);
+            }
+        }
+    }
+
+    List<ConnectionStatistics> getStatistics() {
+        return Arrays.asList(statistics);
+    }
+
+    private static class Affinity {
+        final int index;
+        volatile long lastUse;
+
+        Affinity(int index, long lastUse) {
+            this.index = index;
+            this.lastUse = lastUse;
+        }
+    }
+}
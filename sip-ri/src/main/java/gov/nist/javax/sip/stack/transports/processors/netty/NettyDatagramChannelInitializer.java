@@ -22,6 +22,7 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.handler.codec.bytes.ByteArrayEncoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
 
 /**
  *  Netty Datagram Initializer for SIP Message
@@ -31,16 +32,40 @@ import io.netty.handler.codec.bytes.ByteArrayEncoder;
 public class NettyDatagramChannelInitializer extends ChannelInitializer<DatagramChannel> {
 
     private NettyMessageProcessor nettyMessageProcessor;    
+    private NettyDatagramStatistics statistics;
+    private int batchSize;
 
     public NettyDatagramChannelInitializer(
             NettyMessageProcessor nettyMessageProcessor) {
+        this(nettyMessageProcessor, null, 1);
+    }
+
+    /**
+     * @param statistics counts the datagrams and system calls, may be null.
+     * @param batchSize number of sends gathered before they are flushed
+     *            together, 1 to flush each send.
+     */
+    public NettyDatagramChannelInitializer(
+            NettyMessageProcessor nettyMessageProcessor,
+            NettyDatagramStatistics statistics, int batchSize) {
         this.nettyMessageProcessor = nettyMessageProcessor;                
+        this.statistics = statistics;
+        this.batchSize = batchSize;
     }
 
     @Override
     public void initChannel(DatagramChannel ch) throws Exception {        
         ChannelPipeline pipeline = ch.pipeline();        
                 
+        if (statistics != null) {
+            pipeline.addLast("statistics", statistics);
+        }
+        if (batchSize > 1) {
+            // sends made from outside the event loop are flushed together,
+            // letting the epoll channel write them with one sendmmsg
+            pipeline.addLast("flushConsolidation", new FlushConsolidationHandler(batchSize, true));
+        }
+
         // Decoders
         pipeline.addLast("decoder",
                         new NettyDatagramMessageDecoder(nettyMessageProcessor));
@@ -112,7 +112,7 @@ public class NettyDatagramMessageChannel extends MessageChannel implements RawMe
         // Test and see where we are going to send the messsage. If the message
         // is sent back to oursleves, just
         // shortcircuit processing.
-        long time = System.currentTimeMillis();
+        long time = sipStack.getClock().millis();
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
             logger.logDebug("sending new UDP message to: " + peerAddress.getHostAddress() + ":" + peerPort + "/" + peerProtocol);
         }
@@ -162,7 +162,7 @@ public class NettyDatagramMessageChannel extends MessageChannel implements RawMe
 
     @Override
     public void processMessage(SIPMessage sipMessage) throws Exception {
-        this.receptionTime = System.currentTimeMillis();
+        this.receptionTime = sipStack.getClock().millis();
         
         // FIXME : check if needed
         // if (sipMessage == null) {
@@ -204,22 +204,22 @@ public class NettyDatagramMessageChannel extends MessageChannel implements RawMe
         //     // } else {
         //     return;
         // }
-        Via topMostVia = sipMessage.getTopmostVia();
+        Via topMostVia = sipMessage.peekTopmostVia();
         // Check for the required headers.
-        if (sipMessage.getFrom() == null || sipMessage.getTo() == null
-                || sipMessage.getCallId() == null
-                || sipMessage.getCSeq() == null || topMostVia == null) {
+        if (sipMessage.peekFrom() == null || sipMessage.peekTo() == null
+                || sipMessage.peekCallId() == null
+                || sipMessage.peekCSeq() == null || topMostVia == null) {
             String badmsg = new String(sipMessage.encodeAsBytes(ListeningPoint.UDP));
             if (logger.isLoggingEnabled()) {
                 logger
                         .logError("bad message " + badmsg);
                 logger.logError(
                         ">>> Dropped Bad Msg " + "From = "
-                                + sipMessage.getFrom() + "To = "
-                                + sipMessage.getTo() + "CallId = "
-                                + sipMessage.getCallId() + "CSeq = "
-                                + sipMessage.getCSeq() + "Via = "
-                                + sipMessage.getViaHeaders());
+                                + sipMessage.peekFrom() + "To = "
+                                + sipMessage.peekTo() + "CallId = "
+                                + sipMessage.peekCallId() + "CSeq = "
+                                + sipMessage.peekCSeq() + "Via = "
+                                + sipMessage.peekViaHeaders());
             }
             return;
         }
@@ -232,7 +232,7 @@ public class NettyDatagramMessageChannel extends MessageChannel implements RawMe
                     return;
             }
             String method = ((SIPRequest) sipMessage).getMethod();
-            String cseqMethod = ((SIPRequest) sipMessage).getCSeqHeader()
+            String cseqMethod = ((SIPRequest) sipMessage).peekCSeq()
                     .getMethod();
 
             if (!method.equalsIgnoreCase(cseqMethod)) {
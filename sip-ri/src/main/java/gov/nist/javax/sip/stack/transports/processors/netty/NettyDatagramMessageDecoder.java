@@ -26,6 +26,9 @@ import gov.nist.core.LogWriter;
 import gov.nist.core.StackLogger;
 import gov.nist.javax.sip.message.SIPMessage;
 import gov.nist.javax.sip.parser.NettyMessageParser;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
+import gov.nist.javax.sip.stack.trace.MessageTracer;
+import gov.nist.javax.sip.stack.transports.processors.SourceRateLimiter;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
@@ -47,9 +50,19 @@ public class NettyDatagramMessageDecoder extends MessageToMessageDecoder<Datagra
 
     @Override
     protected void decode(ChannelHandlerContext ctx, DatagramPacket msg, List<Object> out) {            
+        SourceRateLimiter sourceRateLimiter = nettyMessageProcessor.getSIPStack().getSourceRateLimiter();
+        if (sourceRateLimiter != null && !sourceRateLimiter.tryAcquire(msg.sender().getAddress())) {
+            if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {   
+                logger.logDebug("Dropping datagram of " + msg.sender() + " over its rate");
+            }
+            return;
+        }
+        MessageTracer messageTracer = nettyMessageProcessor.getSIPStack().getMessageTracer();
+        long receivedNanos = messageTracer == null ? 0 : System.nanoTime();
         NettyMessageParser nettyMessageParser = new NettyMessageParser(                
                 nettyMessageProcessor.getSIPStack().getMaxMessageSize(),
-                nettyMessageProcessor.getSIPStack().isComputeContentLengthFromMessage());
+                nettyMessageProcessor.getSIPStack().isComputeContentLengthFromMessage(),
+                nettyMessageProcessor.getSIPStack().isLazyHeaderParsing());
         SIPMessage sipMessage = null;  
         ByteBuf content =  msg.content();
         if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {   
@@ -57,10 +70,18 @@ public class NettyDatagramMessageDecoder extends MessageToMessageDecoder<Datagra
         }
                                     
         do {
+            MessageTrace messageTrace = messageTracer == null ? null : messageTracer.startTrace(receivedNanos);
             if(nettyMessageParser.parseBytes(content).isParsingComplete()) {
                 try {      
+                    if (messageTrace != null) {
+                        messageTrace.mark(MessageTrace.Stage.FRAMED);
+                    }
                     sipMessage = nettyMessageParser.consumeSIPMessage();
                     if (sipMessage != null) {
+                        if (messageTrace != null) {
+                            messageTrace.mark(MessageTrace.Stage.PARSED);
+                            messageTrace.attach(sipMessage);
+                        }
                         if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {   
                             logger.logDebug("following message parsed, passing it up the stack \n" + sipMessage.toString());
                         }         
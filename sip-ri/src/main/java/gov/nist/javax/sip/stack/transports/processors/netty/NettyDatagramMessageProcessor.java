@@ -38,6 +38,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollDatagramChannel;
@@ -58,6 +59,12 @@ public class NettyDatagramMessageProcessor extends MessageProcessor implements N
     
     // multithreaded event loop that handles incoming connection and I/O operations
     EventLoopGroup eventLoopGroup;    
+
+    // largest payload of a UDP datagram
+    private static final int MAX_UDP_PAYLOAD_SIZE = 65535;
+
+    // datagrams and system calls of the server channels
+    private final NettyDatagramStatistics datagramStatistics = new NettyDatagramStatistics();
     
     /**
     * Constructor.
@@ -108,7 +115,16 @@ public class NettyDatagramMessageProcessor extends MessageProcessor implements N
         connectionlessBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
         connectionlessBootstrap.option(EpollChannelOption.IP_RECVORIGDSTADDR, true);
         connectionlessBootstrap.option(EpollChannelOption.IP_FREEBIND, true);
-        connectionlessBootstrap.handler(new NettyDatagramChannelInitializer(this));
+        int batchSize = sipStack.getUdpBatchSize();
+        if (batchSize > 1 && Epoll.isAvailable()) {
+            // Reading with a payload size lets the epoll channel fill the buffer
+            // with up to batchSize datagrams in a single recvmmsg call.
+            int datagramSize = getBatchDatagramSize();
+            connectionlessBootstrap.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, datagramSize);
+            connectionlessBootstrap.option(ChannelOption.RCVBUF_ALLOCATOR,
+                    new FixedRecvByteBufAllocator(batchSize * datagramSize));
+        }
+        connectionlessBootstrap.handler(new NettyDatagramChannelInitializer(this, datagramStatistics, batchSize));
         connectionlessBootstrap.channel(nioOrEpollServerDatagramChannel());
         connectionlessBootstrap.group(eventLoopGroup);
         
@@ -164,6 +180,16 @@ public class NettyDatagramMessageProcessor extends MessageProcessor implements N
         return false;
     }
     
+    /**
+    * Size of the slot of each datagram in the buffer of a batched read, the
+    * largest SIP message accepted, as the receive buffer size is the one of the
+    * socket and would make every read allocate batch size times that size.
+    */
+    int getBatchDatagramSize() {
+        int maxMessageSize = sipStack.getMaxMessageSize();
+        return maxMessageSize > 0 && maxMessageSize < MAX_UDP_PAYLOAD_SIZE ? maxMessageSize : MAX_UDP_PAYLOAD_SIZE;
+    }
+
     /**
     * UDP can handle a message as large as the MAX_DATAGRAM_SIZE.
     */
@@ -171,6 +197,14 @@ public class NettyDatagramMessageProcessor extends MessageProcessor implements N
         return sipStack.getReceiveUdpBufferSize();
     }
     
+    /**
+    * Datagrams received and sent by this processor together with the reads
+    * and flushes that carried them.
+    */
+    public NettyDatagramStatistics getDatagramStatistics() {
+        return datagramStatistics;
+    }
+
     /**
     * Return true if there are any messages in use.
     */
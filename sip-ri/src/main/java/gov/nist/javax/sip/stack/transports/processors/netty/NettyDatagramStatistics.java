@@ -0,0 +1,110 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.netty;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Counts the datagrams going through the UDP channels of a
+ * {@link NettyDatagramMessageProcessor} and the reads and flushes that carried
+ * them. Sitting next to the socket, one read batch or one flush reaching this
+ * handler is one system call (recvmmsg / sendmmsg on epoll), so the ratios
+ * tell how well the datagrams are batched.
+ */
+@Sharable
+public class NettyDatagramStatistics extends ChannelDuplexHandler {
+
+    private final LongAdder datagramsReceived = new LongAdder();
+    private final LongAdder readBatches = new LongAdder();
+    private final LongAdder datagramsSent = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        datagramsReceived.increment();
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        readBatches.increment();
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        datagramsSent.increment();
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        flushes.increment();
+        ctx.flush();
+    }
+
+    public long getDatagramsReceived() {
+        return datagramsReceived.sum();
+    }
+
+    /**
+     * @return the number of times the channels were read until empty.
+     */
+    public long getReadBatches() {
+        return readBatches.sum();
+    }
+
+    public long getDatagramsSent() {
+        return datagramsSent.sum();
+    }
+
+    /**
+     * @return the number of flushes that reached the sockets.
+     */
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    /**
+     * @return the mean number of datagrams received per read batch.
+     */
+    public double getDatagramsPerRead() {
+        long reads = readBatches.sum();
+        return reads == 0 ? 0 : (double) datagramsReceived.sum() / reads;
+    }
+
+    /**
+     * @return the mean number of datagrams sent per flush.
+     */
+    public double getDatagramsPerFlush() {
+        long flushed = flushes.sum();
+        return flushed == 0 ? 0 : (double) datagramsSent.sum() / flushed;
+    }
+
+    @Override
+    public String toString() {
+        return "received=" + datagramsReceived + " reads=" + readBatches + " sent=" + datagramsSent + " flushes="
+                + flushes;
+    }
+}
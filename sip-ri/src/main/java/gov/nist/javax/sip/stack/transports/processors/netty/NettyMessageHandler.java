@@ -72,7 +72,7 @@ public class NettyMessageHandler extends ChannelInboundHandlerAdapter {
             return;
         }         
 
-        final String callId = sipMessage.getCallId().getCallId();
+        final String callId = sipMessage.peekCallId().getCallId();
         if (callId == null || callId.trim().length() < 1) {
             // http://code.google.com/p/jain-sip/issues/detail?id=18
             // NIO Message with no Call-ID throws NPE
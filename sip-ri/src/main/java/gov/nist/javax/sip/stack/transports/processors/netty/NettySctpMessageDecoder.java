@@ -44,7 +44,8 @@ public class NettySctpMessageDecoder extends SctpMessageToMessageDecoder {
     public NettySctpMessageDecoder(SIPTransactionStack sipStack) {    
         this.nettyMessageParser = new NettyMessageParser(            
             sipStack.getMaxMessageSize(),
-            sipStack.isComputeContentLengthFromMessage());
+            sipStack.isComputeContentLengthFromMessage(),
+            sipStack.isLazyHeaderParsing());
     }
 
     @Override
@@ -60,8 +60,9 @@ import gov.nist.javax.sip.stack.SIPTransaction;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
 import gov.nist.javax.sip.stack.ServerRequestInterface;
 import gov.nist.javax.sip.stack.ServerResponseInterface;
-import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
+import gov.nist.javax.sip.stack.transports.processors.ConnectionStatistics;
 import gov.nist.javax.sip.stack.transports.processors.HandshakeCompletedListenerImpl;
+import gov.nist.javax.sip.stack.transports.processors.IdleConnectionSweeper;
 import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
 import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.RawMessageChannel;
@@ -125,7 +126,9 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 
 	private boolean isCached;
 
-	private SIPStackTimerTask pingKeepAliveTimeoutTask;
+	// time after which the peer is considered gone, -1 when no pong is awaited
+	private volatile long keepAliveDeadline = -1;
+	private final KeepAliveTimeoutFlow keepAliveFlow = new KeepAliveTimeoutFlow();
 	private long keepAliveTimeout;
 
 	// Added for https://java.net/jira/browse/JSIP-483
@@ -134,6 +137,10 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 	private boolean isWebsocket;
 	private boolean isSctp;
 
+	// set for the connections a pool adds to the cached one
+	boolean pooled;
+	volatile ConnectionStatistics statistics;
+
 	protected NettyStreamMessageChannel(NettyStreamMessageProcessor nettyStreamMessageProcessor,
 			Channel channel) {
 		this(
@@ -315,7 +322,7 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 			logger.logDebug("sendMessage isClient  = " + isClient + " this = " + this);
 		}
-		lastActivityTimeStamp = System.currentTimeMillis();
+		lastActivityTimeStamp = sipStack.getClock().millis();
 
 		// NIOHandler nioHandler = ((NioTcpMessageProcessor)
 		// messageProcessor).nioHandler;
@@ -363,7 +370,7 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 			logger.logError("receiverAddress = " + receiverAddress);
 			throw new IllegalArgumentException("Null argument");
 		}
-		lastActivityTimeStamp = System.currentTimeMillis();
+		lastActivityTimeStamp = sipStack.getClock().millis();
 
 		if (peerPortAdvertisedInHeaders <= 0) {
 			if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
@@ -383,6 +390,11 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 			}
 		}
 
+		ConnectionStatistics statistics = this.statistics;
+		if (statistics != null) {
+			statistics.messageSent(message.length);
+		}
+
 		ByteBuf byteBuf = Unpooled.wrappedBuffer(message);
 		if (channel == null || !channel.isActive()) {
 			// Take a cached socket to the destination,
@@ -570,10 +582,10 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 	 * @throws Exception
 	 */
 	public void processMessage(SIPMessage sipMessage) throws Exception {
-		if (sipMessage.getFrom() == null || sipMessage.getTo() == null
-				|| sipMessage.getCallId() == null
-				|| sipMessage.getCSeq() == null
-				|| sipMessage.getViaHeaders() == null) {
+		if (sipMessage.peekFrom() == null || sipMessage.peekTo() == null
+				|| sipMessage.peekCallId() == null
+				|| sipMessage.peekCSeq() == null
+				|| sipMessage.peekViaHeaders() == null) {
 
 			if (logger.isLoggingEnabled()) {
 				String badmsg = sipMessage.encode();
@@ -610,13 +622,13 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 		sipMessage.setLocalPort(this.getPort());
 		sipMessage.setLocalAddress(this.getMessageProcessor().getIpAddress());
 
-		ViaList viaList = sipMessage.getViaHeaders();
+		ViaList viaList = sipMessage.peekViaHeaders();
 		// For a request
 		// first via header tells where the message is coming from.
 		// For response, this has already been recorded in the outgoing
 		// message.
 		if (sipMessage instanceof SIPRequest) {
-			Via v = (Via) viaList.getFirst();
+			Via v = (Via) viaList.peekFirst();
 			// the peer address and tag it appropriately.
 			Hop hop = sipStack.getAddressResolver().resolveAddress(v.getHop());
 			this.peerProtocol = v.getTransport();
@@ -705,7 +717,7 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 			}
 		}
 
-		long receptionTime = System.currentTimeMillis();
+		long receptionTime = sipStack.getClock().millis();
 
 		if (sipMessage instanceof SIPRequest) {
 			// This is a request - process the request.
@@ -756,7 +768,7 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 			}
 
 			String method = ((SIPRequest) sipMessage).getMethod();
-			String cseqMethod = ((SIPRequest) sipMessage).getCSeqHeader()
+			String cseqMethod = ((SIPRequest) sipMessage).peekCSeq()
 					.getMethod();
 
 			if (!method.equalsIgnoreCase(cseqMethod)) {
@@ -873,7 +885,7 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 	public void sendMessage(SIPMessage sipMessage) throws IOException {
 		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG) && !sipMessage.isNullRequest()) {
 			logger.logDebug("sendMessage:: " + sipMessage.getFirstLine() + " cseq method = "
-					+ sipMessage.getCSeq().getMethod());
+					+ sipMessage.peekCSeq().getMethod());
 		}
 
 		// check for self routing
@@ -886,7 +898,7 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 
 		byte[] msg = sipMessage.encodeAsBytes(this.getTransport());
 
-		long time = System.currentTimeMillis();
+		long time = sipStack.getClock().millis();
 
 		// need to store the peerPortAdvertisedInHeaders in case the response has an
 		// rport (ephemeral) that failed to retry on the regular via port
@@ -894,7 +906,7 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 		if (peerPortAdvertisedInHeaders <= 0) {
 			if (sipMessage instanceof SIPResponse) {
 				SIPResponse sipResponse = (SIPResponse) sipMessage;
-				Via via = sipResponse.getTopmostVia();
+				Via via = sipResponse.peekTopmostVia();
 				if (via.getRPort() > 0) {
 					if (via.getPort() <= 0) {
 						// if port is 0 we assume the default port for TCP
@@ -993,16 +1005,14 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 	}
 
 	public void cancelPingKeepAliveTimeoutTaskIfStarted() {
-		if (pingKeepAliveTimeoutTask != null) {
-			// && pingKeepAliveTimeoutTask.getSipTimerTask() != null
-
+		if (keepAliveDeadline >= 0) {
 			if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 				logger.logDebug("~~~ cancelPingKeepAliveTimeoutTaskIfStarted for MessageChannel(key=" + getKey()
 						+ "), clientAddress=" + peerAddress
 						+ ", clientPort=" + peerPort + ", timeout=" + keepAliveTimeout + ")");
 			}
-			sipStack.getTimer().cancel(pingKeepAliveTimeoutTask);
-
+			// the sweeper drops the flow when its bucket falls due
+			keepAliveDeadline = -1;
 		}
 	}
 
@@ -1021,7 +1031,7 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 		}
 
 		this.keepAliveTimeout = keepAliveTimeout;
-		boolean isKeepAliveTimeoutTaskScheduled = pingKeepAliveTimeoutTask != null;
+		boolean isKeepAliveTimeoutTaskScheduled = keepAliveDeadline >= 0;
 		if (isKeepAliveTimeoutTaskScheduled && keepAliveTimeout > 0) {
 			rescheduleKeepAliveTimeout(keepAliveTimeout);
 		}
@@ -1032,15 +1042,8 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 	}
 
 	public void rescheduleKeepAliveTimeout(long newKeepAliveTimeout) {
-		// long now = System.currentTimeMillis();
-		// long lastKeepAliveReceivedTimeOrNow = lastKeepAliveReceivedTime == 0 ? now :
-		// lastKeepAliveReceivedTime;
-		//
-		// long newScheduledTime = lastKeepAliveReceivedTimeOrNow + newKeepAliveTimeout;
-
-		StringBuilder methodLog = new StringBuilder();
-
 		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+			StringBuilder methodLog = new StringBuilder();
 			methodLog.append("~~~ rescheduleKeepAliveTimeout for MessageChannel(key=" + getKey() + "), clientAddress="
 					+ peerAddress
 					+ ", clientPort=" + peerPort + ", timeout=" + keepAliveTimeout + "): newKeepAliveTimeout=");
@@ -1049,51 +1052,29 @@ public class NettyStreamMessageChannel extends MessageChannel implements
 			} else {
 				methodLog.append(newKeepAliveTimeout);
 			}
-			// methodLog.append(", lastKeepAliveReceivedTimeOrNow=");
-			// methodLog.append(lastKeepAliveReceivedTimeOrNow);
-			// methodLog.append(", newScheduledTime=");
-			// methodLog.append(newScheduledTime);
-		}
-
-		// long delay = newScheduledTime > now ? newScheduledTime - now : 1;
-		if (pingKeepAliveTimeoutTask == null) {
-			pingKeepAliveTimeoutTask = new KeepAliveTimeoutTimerTask();
-			if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-				methodLog.append(", scheduling pingKeepAliveTimeoutTask to execute after ");
-				methodLog.append(keepAliveTimeout / 1000);
-				methodLog.append(" seconds");
-				logger.logDebug(methodLog.toString());
-			}
-			sipStack.getTimer().schedule(pingKeepAliveTimeoutTask, keepAliveTimeout);
-		} else {
-			if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-				logger.logDebug("~~~ cancelPingKeepAliveTimeout for MessageChannel(key=" + getKey()
-						+ "), clientAddress=" + peerAddress
-						+ ", clientPort=" + peerPort + ", timeout=" + keepAliveTimeout + ")");
-			}
-			sipStack.getTimer().cancel(pingKeepAliveTimeoutTask);
-			pingKeepAliveTimeoutTask = new KeepAliveTimeoutTimerTask();
-			if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-				methodLog.append(", scheduling pingKeepAliveTimeoutTask to execute after ");
-				methodLog.append(keepAliveTimeout / 1000);
-				methodLog.append(" seconds");
-				logger.logDebug(methodLog.toString());
-			}
-			sipStack.getTimer().schedule(pingKeepAliveTimeoutTask, keepAliveTimeout);
+			methodLog.append(", expiring after ");
+			methodLog.append(keepAliveTimeout / 1000);
+			methodLog.append(" seconds");
+			logger.logDebug(methodLog.toString());
 		}
+		// moving the deadline is enough, the sweeper looks at it once the
+		// previous one falls due
+		keepAliveDeadline = sipStack.getClock().millis() + keepAliveTimeout;
+		sipStack.getIdleConnectionSweeper().track(keepAliveFlow);
 	}
 
-	class KeepAliveTimeoutTimerTask extends SIPStackTimerTask {
-		KeepAliveTimeoutTimerTask() {
-			super(KeepAliveTimeoutTimerTask.class.getSimpleName());
+	class KeepAliveTimeoutFlow implements IdleConnectionSweeper.Flow {
+		public long getIdleDeadline() {
+			return keepAliveDeadline;
 		}
 
 		@Override
-		public String getId() {
-			return channel.toString();
+		public String toString() {
+			return String.valueOf(channel);
 		}
 
-		public void runTask() {
+		public void idle() {
+			keepAliveDeadline = -1;
 			if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 				logger.logDebug(
 						"~~~ Starting processing of KeepAliveTimeoutEvent( " + peerAddress.getHostAddress() + ","
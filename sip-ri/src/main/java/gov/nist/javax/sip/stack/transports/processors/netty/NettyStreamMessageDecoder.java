@@ -18,6 +18,7 @@
  */
 package gov.nist.javax.sip.stack.transports.processors.netty;
 
+import java.net.InetSocketAddress;
 import java.util.List;
 
 import gov.nist.core.CommonLogger;
@@ -26,6 +27,9 @@ import gov.nist.core.StackLogger;
 import gov.nist.javax.sip.message.SIPMessage;
 import gov.nist.javax.sip.parser.NettyMessageParser;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.trace.MessageTrace;
+import gov.nist.javax.sip.stack.trace.MessageTracer;
+import gov.nist.javax.sip.stack.transports.processors.SourceRateLimiter;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
@@ -39,11 +43,16 @@ public class NettyStreamMessageDecoder extends ByteToMessageDecoder {
     private static StackLogger logger = CommonLogger.getLogger(NettyStreamMessageDecoder.class);
 
     NettyMessageParser nettyMessageParser = null;
+    private SIPTransactionStack sipStack;
+    // when the first bytes of the message being framed were read, for the traces
+    private long messageReceivedNanos;
 
     public NettyStreamMessageDecoder(SIPTransactionStack sipStack) {    
+        this.sipStack = sipStack;
         this.nettyMessageParser = new NettyMessageParser(            
             sipStack.getMaxMessageSize(),
-            sipStack.isComputeContentLengthFromMessage());
+            sipStack.isComputeContentLengthFromMessage(),
+            sipStack.isLazyHeaderParsing());
     }
 
     @Override
@@ -53,12 +62,43 @@ public class NettyStreamMessageDecoder extends ByteToMessageDecoder {
             logger.logDebug("Decoding message: \n" + in.toString(io.netty.util.CharsetUtil.UTF_8));
         }
                   
+        MessageTracer messageTracer = sipStack.getMessageTracer();
+        long readNanos = 0;
+        if (messageTracer != null) {
+            readNanos = System.nanoTime();
+            if (messageReceivedNanos == 0) {
+                messageReceivedNanos = readNanos;
+            }
+        }
+                  
+        SourceRateLimiter sourceRateLimiter = sipStack.getSourceRateLimiter();
         do {
         	sipMessage = null;
+            // the framing parses the message as it goes, a source over its rate
+            // cannot have its message skipped and loses its connection
+            if (sourceRateLimiter != null && !nettyMessageParser.isMessageStarted()
+                    && !sourceRateLimiter.tryAcquire(((InetSocketAddress) ctx.channel().remoteAddress()).getAddress())) {
+                if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {   
+                    logger.logDebug("Closing connection of " + ctx.channel().remoteAddress() + " over its rate");
+                }
+                in.skipBytes(in.readableBytes());
+                ctx.close();
+                return;
+            }
+            MessageTrace messageTrace = messageTracer == null ? null : messageTracer.startTrace(messageReceivedNanos);
             if(nettyMessageParser.parseBytes(in).isParsingComplete()) {
                 try {  
+                    if (messageTrace != null) {
+                        messageTrace.mark(MessageTrace.Stage.FRAMED);
+                    }
                     sipMessage = nettyMessageParser.consumeSIPMessage();
                     if (sipMessage != null) {
+                        if (messageTrace != null) {
+                            messageTrace.mark(MessageTrace.Stage.PARSED);
+                            messageTrace.attach(sipMessage);
+                        }
+                        // the next message starts in this read or in the next one
+                        messageReceivedNanos = messageTracer != null && in.readableBytes() > 0 ? readNanos : 0;
                         if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {   
                             logger.logDebug("following message parsed, passing it up the stack \n" + sipMessage.toString());
                         }         
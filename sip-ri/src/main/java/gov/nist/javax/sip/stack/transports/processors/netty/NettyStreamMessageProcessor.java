@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -37,7 +39,9 @@ import gov.nist.core.StackLogger;
 import gov.nist.core.net.SecurityManagerProvider;
 import gov.nist.javax.sip.ListeningPointExt;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
 import gov.nist.javax.sip.stack.transports.processors.ClientAuthType;
+import gov.nist.javax.sip.stack.transports.processors.ConnectionStatistics;
 import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
 import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
 import io.netty.bootstrap.ServerBootstrap;
@@ -58,6 +62,7 @@ import io.netty.handler.ssl.OpenSsl;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslProvider;
+import io.netty.util.AttributeKey;
 
 /**
  * Netty Based Datagram Message Processor to handle creation of
@@ -71,6 +76,20 @@ public class NettyStreamMessageProcessor extends MessageProcessor implements Net
 
     protected final Map<String, NettyStreamMessageChannel> messageChannels;
 
+    /**
+     * Message channel of the connections opened by a connection pool, their
+     * remote address being the key of the cached message channel.
+     */
+    static final AttributeKey<NettyStreamMessageChannel> POOLED_CHANNEL = AttributeKey
+            .valueOf("sip.pooledMessageChannel");
+
+    // the calls keep their connection while they send within the duration of Timer B
+    private static final long CONNECTION_AFFINITY_TIMEOUT = 32000;
+
+    protected final int connectionPoolSize;
+    protected final Map<String, NettyConnectionPool> connectionPools;
+    private ConnectionAffinityTimerTask connectionAffinityTimerTask;
+
     // multithreaded event loop that handles incoming connection and I/O operations
     EventLoopGroup bossGroup;
     // multithreaded event loop that handles I/O operation and handles the traffic
@@ -94,6 +113,9 @@ public class NettyStreamMessageProcessor extends MessageProcessor implements Net
 
         super(ipAddress, port, transport, sipStack);
         this.messageChannels = new ConcurrentHashMap<String, NettyStreamMessageChannel>();
+        this.connectionPools = new ConcurrentHashMap<String, NettyConnectionPool>();
+        this.connectionPoolSize = transport.equals(ListeningPoint.TCP) || transport.equals(ListeningPoint.TLS)
+                ? sipStack.getReliableConnectionPoolSize() : 1;
         this.bossGroup = newNioOrEpollEventLoopGroup(1);
         this.workerGroup = newNioOrEpollEventLoopGroup(sipStack.getThreadPoolSize());
         if (transport.equals(ListeningPoint.TLS)) {
@@ -192,7 +214,77 @@ public class NettyStreamMessageProcessor extends MessageProcessor implements Net
         return retval;
     }
 
+    /**
+     * When several connections are kept to each destination, the messages of a
+     * call are sent over the connection the call was given when sending its
+     * first message.
+     */
+    @Override
+    public MessageChannel createMessageChannel(HostPort targetHostPort, String callId) throws IOException {
+        if (connectionPoolSize <= 1 || callId == null) {
+            return createMessageChannel(targetHostPort);
+        }
+        final InetAddress targetAddress = targetHostPort.getInetAddress();
+        final int targetPort = targetHostPort.getPort();
+        final String key = MessageChannel.getKey(targetHostPort, transport);
+        while (true) {
+            NettyConnectionPool connectionPool = connectionPools.get(key);
+            if (connectionPool == null) {
+                connectionPool = new NettyConnectionPool(this, key, targetAddress, targetPort, connectionPoolSize);
+                NettyConnectionPool existing = connectionPools.putIfAbsent(key, connectionPool);
+                if (existing != null) {
+                    connectionPool = existing;
+                }
+            }
+            MessageChannel messageChannel = connectionPool.select(callId);
+            if (messageChannel != null) {
+                return messageChannel;
+            }
+            // retired meanwhile, already gone from the map
+        }
+    }
+
+    /**
+     * Forget the pool of a destination once its last call and connection are
+     * gone, so that pools do not pile up for every destination ever reached.
+     */
+    private void removeIfUnused(String key, NettyConnectionPool connectionPool) {
+        if (connectionPool.retireIfUnused(messageChannels.containsKey(key))) {
+            connectionPools.remove(key, connectionPool);
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("removed the connection pool of " + key);
+            }
+        }
+    }
+
+    /**
+     * Forget the calls without messages since the given time, and the pools
+     * left without calls nor connections.
+     */
+    void expireConnectionAffinities(long idleSince) {
+        for (Map.Entry<String, NettyConnectionPool> entry : connectionPools.entrySet()) {
+            entry.getValue().expireAffinities(idleSince);
+            removeIfUnused(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @return the traffic of the connections of the pools, empty when a single
+     *         connection is kept to each destination.
+     */
+    public List<ConnectionStatistics> getConnectionStatistics() {
+        List<ConnectionStatistics> statistics = new ArrayList<ConnectionStatistics>();
+        for (NettyConnectionPool connectionPool : connectionPools.values()) {
+            statistics.addAll(connectionPool.getStatistics());
+        }
+        return statistics;
+    }
+
     public MessageChannel createMessageChannel(Channel channel) {
+        NettyStreamMessageChannel pooled = channel.attr(POOLED_CHANNEL).get();
+        if (pooled != null) {
+            return pooled;
+        }
 
         InetSocketAddress socketAddress = ((InetSocketAddress) channel.remoteAddress());
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
@@ -275,6 +367,12 @@ public class NettyStreamMessageProcessor extends MessageProcessor implements Net
                 server.childOption(SctpChannelOption.SO_LINGER, sipStack.getSctpSoLinger());
             }
 
+            if (connectionPoolSize > 1) {
+                connectionAffinityTimerTask = new ConnectionAffinityTimerTask();
+                sipStack.getTimer().scheduleWithFixedDelay(connectionAffinityTimerTask,
+                        CONNECTION_AFFINITY_TIMEOUT, CONNECTION_AFFINITY_TIMEOUT);
+            }
+
             // Bind and start to accept incoming connections.
             channel = server.bind(port).await().channel();
 
@@ -299,6 +397,9 @@ public class NettyStreamMessageProcessor extends MessageProcessor implements Net
 
     @Override
     public void stop() {
+        if (connectionAffinityTimerTask != null) {
+            sipStack.getTimer().cancel(connectionAffinityTimerTask);
+        }
         workerGroup.shutdownGracefully();
         bossGroup.shutdownGracefully();
     }
@@ -348,6 +449,9 @@ public class NettyStreamMessageProcessor extends MessageProcessor implements Net
         for (Object messageChannel : messageChannels.values()) {
             ((MessageChannel) messageChannel).close();
         }
+        for (NettyConnectionPool connectionPool : connectionPools.values()) {
+            connectionPool.close();
+        }
         // channel.close();
     }
 
@@ -362,6 +466,13 @@ public class NettyStreamMessageProcessor extends MessageProcessor implements Net
         /** May have been removed already */
         if (messageChannels.get(key) == messageChannel)
             this.messageChannels.remove(key);
+        NettyConnectionPool connectionPool = connectionPools.get(key);
+        if (connectionPool != null) {
+            if (messageChannel.pooled) {
+                connectionPool.remove(messageChannel);
+            }
+            removeIfUnused(key, connectionPool);
+        }
 
         // if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
         // logger.logDebug(Thread.currentThread() + " Removing incoming channel " + key
@@ -502,4 +613,21 @@ public class NettyStreamMessageProcessor extends MessageProcessor implements Net
             return new NioEventLoopGroup(threads);
         }
     }
+
+    class ConnectionAffinityTimerTask extends SIPStackTimerTask {
+
+        ConnectionAffinityTimerTask() {
+            super(ConnectionAffinityTimerTask.class.getSimpleName());
+        }
+
+        @Override
+        public String getId() {
+            return getTransport() + ":" + getPort();
+        }
+
+        @Override
+        public void runTask() {
+            expireConnectionAffinities(sipStack.getClock().millis() - CONNECTION_AFFINITY_TIMEOUT);
+        }
+    }
 }
@@ -42,7 +42,8 @@ public class NettyWebSocketFrameDecoder extends WebSocket13FrameDecoder {
         super(expectMaskedFrames, allowExtensions, maxFramePayloadLength);
         nettyMessageParser = new NettyMessageParser(
                 nettyMessageProcessor.getSIPStack().getMaxMessageSize(),
-                nettyMessageProcessor.getSIPStack().isComputeContentLengthFromMessage());
+                nettyMessageProcessor.getSIPStack().isComputeContentLengthFromMessage(),
+                nettyMessageProcessor.getSIPStack().isLazyHeaderParsing());
     }
 
     public NettyWebSocketFrameDecoder(NettyStreamMessageProcessor nettyMessageProcessor, boolean expectMaskedFrames,
@@ -51,7 +52,8 @@ public class NettyWebSocketFrameDecoder extends WebSocket13FrameDecoder {
         super(expectMaskedFrames, allowExtensions, maxFramePayloadLength, allowMaskMismatch);
         nettyMessageParser = new NettyMessageParser(
                 nettyMessageProcessor.getSIPStack().getMaxMessageSize(),
-                nettyMessageProcessor.getSIPStack().isComputeContentLengthFromMessage());
+                nettyMessageProcessor.getSIPStack().isComputeContentLengthFromMessage(),
+                nettyMessageProcessor.getSIPStack().isLazyHeaderParsing());
     }
 
     public NettyWebSocketFrameDecoder(NettyStreamMessageProcessor nettyMessageProcessor,
@@ -59,7 +61,8 @@ public class NettyWebSocketFrameDecoder extends WebSocket13FrameDecoder {
         super(decoderConfig);
         nettyMessageParser = new NettyMessageParser(
                 nettyMessageProcessor.getSIPStack().getMaxMessageSize(),
-                nettyMessageProcessor.getSIPStack().isComputeContentLengthFromMessage());
+                nettyMessageProcessor.getSIPStack().isComputeContentLengthFromMessage(),
+                nettyMessageProcessor.getSIPStack().isLazyHeaderParsing());
     }
 
     @Override
@@ -34,11 +34,12 @@ import gov.nist.core.LogWriter;
 import gov.nist.core.StackLogger;
 import gov.nist.javax.sip.SipStackImpl;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
-import gov.nist.javax.sip.stack.transports.processors.ConnectionOrientedMessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.HandshakeCompletedListenerImpl;
+import gov.nist.javax.sip.stack.transports.processors.IdleConnectionSweeper;
 import gov.nist.javax.sip.stack.transports.processors.KeyedSemaphore;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
@@ -50,6 +51,7 @@ import java.util.LinkedList;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * Low level Input output to a socket. Caches TCP connections and takes care of
@@ -69,8 +71,6 @@ public class NIOHandler {
 
     private NioTcpMessageProcessor messageProcessor;
 
-    protected SocketTimeoutAuditor socketTimeoutAuditor = null;
-
     private AtomicBoolean stopped = new AtomicBoolean(false);
 
     // A cache of client sockets that can be re-used for
@@ -86,6 +86,9 @@ public class NIOHandler {
     public void putMessageChannel(SocketChannel socketChannel,
             NioTcpMessageChannel nioTcpMessageChannel) {
         channelMap.put(socketChannel, nioTcpMessageChannel);
+        if (sipStack.nioSocketMaxIdleTime > 0) {
+            sipStack.getIdleConnectionSweeper().track(new IdleChannelFlow(socketChannel, nioTcpMessageChannel));
+        }
     }
 
     public void removeMessageChannel(SocketChannel socketChannel) {
@@ -110,10 +113,61 @@ public class NIOHandler {
     protected NIOHandler(SIPTransactionStack sipStack, NioTcpMessageProcessor messageProcessor) {
         this.sipStack = (SipStackImpl) sipStack;
         this.messageProcessor = messageProcessor;
-        if (sipStack.nioSocketMaxIdleTime > 0 && messageProcessor instanceof ConnectionOrientedMessageProcessor) {
-            // https://java.net/jira/browse/JSIP-471 use property from the stack instead of hard coded 20s
-        	socketTimeoutAuditor = new SocketTimeoutAuditor(sipStack.nioSocketMaxIdleTime, this);
-			sipStack.getTimer().scheduleWithFixedDelay(socketTimeoutAuditor, sipStack.nioSocketMaxIdleTime, sipStack.nioSocketMaxIdleTime);
+    }
+
+    /**
+     * Closes a channel without traffic for nioSocketMaxIdleTime, watched by the
+     * idle connection sweeper of the stack instead of scanning every channel.
+     * https://java.net/jira/browse/JSIP-471 use property from the stack
+     * instead of hard coded 20s
+     */
+    class IdleChannelFlow implements IdleConnectionSweeper.Flow {
+        private final SocketChannel socketChannel;
+        private final NioTcpMessageChannel messageChannel;
+
+        IdleChannelFlow(SocketChannel socketChannel, NioTcpMessageChannel messageChannel) {
+            this.socketChannel = socketChannel;
+            this.messageChannel = messageChannel;
+        }
+
+        public long getIdleDeadline() {
+            // no longer watched once replaced or removed from the map
+            if (channelMap.get(socketChannel) != messageChannel) {
+                return -1;
+            }
+            return messageChannel.getLastActivityTimestamp() + sipStack.nioSocketMaxIdleTime;
+        }
+
+        public void idle() {
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("Will remove socket " + messageChannel.getKey() + " lastActivity="
+                        + messageChannel.getLastActivityTimestamp() + " current= "
+                        + sipStack.getClock().millis() + " socketChannel = " + socketChannel);
+            }
+            try {
+                messageChannel.close();
+            } catch (Exception anything) {
+                logger.logError("Exception while closing idle socket " + messageChannel.getKey(), anything);
+            }
+            // removing anyway, the socket is unusable
+            removeMessageChannel(socketChannel);
+        }
+
+        // a channel put again in the map is tracked once
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdleChannelFlow && ((IdleChannelFlow) other).socketChannel == socketChannel
+                    && ((IdleChannelFlow) other).messageChannel == messageChannel;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(socketChannel) * 31 + System.identityHashCode(messageChannel);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(socketChannel);
         }
     }
 
@@ -250,11 +304,16 @@ public class NIOHandler {
      * @param contactPort
      * @param retry
      * @param key
+     * @param messageChannel
      * @return
      * @throws IOException
      */
     private SocketChannel openOutgoingConnection(InetAddress senderAddress,
-            InetAddress receiverAddress, int contactPort, boolean retry, String key) throws IOException {
+            InetAddress receiverAddress, int contactPort, boolean retry, String key,
+            NioTcpMessageChannel messageChannel) throws IOException {
+        if (messageProcessor.isNonBlockingConnect()) {
+            return openNonBlockingConnection(senderAddress, receiverAddress, contactPort, key, messageChannel);
+        }
         int retry_count = 0;
         int max_retry = retry ? 2 : 1;
         SocketChannel clientSock = null;
@@ -388,6 +447,51 @@ public class NIOHandler {
         return clientSock;
     }
 
+    /**
+     * With non blocking connects the socket cached for a destination acts as the
+     * future of its connection: the first sender starts the connect, the bytes
+     * sent while it is pending are queued on the socket and the selector thread
+     * writes them or fails them all together once the connect completes or times
+     * out. No lock is held and no thread waits for the connect. The socket is
+     * mapped to the message channel of the sender that opened it, before the
+     * selector thread can see it connect or fail; the senders reusing the pending
+     * socket leave that mapping alone.
+     */
+    private SocketChannel openNonBlockingConnection(final InetAddress senderAddress,
+            final InetAddress receiverAddress, final int contactPort, String key,
+            final NioTcpMessageChannel messageChannel) throws IOException {
+        SocketChannel clientSock = getSocket(key);
+        if (clientSock != null && (!clientSock.isConnected() || !clientSock.isOpen())
+                && !clientSock.isConnectionPending()) {
+            socketTable.remove(key, clientSock);
+        }
+        try {
+            return socketTable.computeIfAbsent(key, new Function<String, SocketChannel>() {
+                public SocketChannel apply(String destination) {
+                    if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                        logger.logDebug("inaddr = " + receiverAddress + " port = " + contactPort);
+                    }
+                    try {
+                        SocketChannel socketChannel = messageProcessor.connect(
+                                new InetSocketAddress(receiverAddress, contactPort),
+                                senderAddress, sipStack.getConnectionTimeout());
+                        if (messageChannel != null) {
+                            putMessageChannel(socketChannel, messageChannel);
+                        }
+                        return socketChannel;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            if (logger.isLoggingEnabled(LogWriter.TRACE_INFO)) {
+                logger.logInfo("Problem connecting " + receiverAddress + " " + contactPort + " " + senderAddress);
+            }
+            throw e.getCause();
+        }
+    }
+
     /**
      * Send an array of bytes.
      *
@@ -430,7 +534,8 @@ public class NIOHandler {
         }
         if (clientSock == null) {
             newSocket = true;
-            clientSock = openOutgoingConnection(senderAddress, receiverAddress, contactPort, retry, key);
+            clientSock = openOutgoingConnection(senderAddress, receiverAddress, contactPort, retry, key,
+                    messageChannel);
             messageChannel.setPeerPort(contactPort);
         }
 
@@ -534,7 +639,7 @@ public class NIOHandler {
         }
         if (channel == null) { // this is where the threads will race
             channel = openOutgoingConnection(this.messageProcessor
-                    .getIpAddress(), inetAddress, port, false, key);
+                    .getIpAddress(), inetAddress, port, false, key, null);
         }
         if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
             logger.logDebug("Returning socket " + key + " channel = " + channel);
@@ -99,7 +99,7 @@ public class NioTcpMessageChannel extends ConnectionOrientedMessageChannel {
 
 			// Otherwise just add the bytes to queue
 			addBytes(msg);
-			lastActivityTimeStamp = System.currentTimeMillis();
+			lastActivityTimeStamp = sipStack.getClock().millis();
 
 		} catch (Exception ex) { // https://java.net/jira/browse/JSIP-464 make sure to close connections on all exceptions to avoid the stack to hang
 			// Terminate the message.
@@ -149,7 +149,7 @@ public class NioTcpMessageChannel extends ConnectionOrientedMessageChannel {
 			nioParser = new NioPipelineParser(sipStack, this,
 					this.sipStack.getMaxMessageSize());
 			this.peerProtocol = nioTcpMessageProcessor.getTransport();
-			lastActivityTimeStamp = System.currentTimeMillis();
+			lastActivityTimeStamp = sipStack.getClock().millis();
 			super.key = MessageChannel.getKey(peerAddress, peerPort, nioTcpMessageProcessor.getTransport());
 
             myAddress = nioTcpMessageProcessor.getIpAddress().getHostAddress();
@@ -184,7 +184,7 @@ public class NioTcpMessageChannel extends ConnectionOrientedMessageChannel {
 					this.sipStack.getMaxMessageSize());
 			NIOHandler nioHandler = nioTcpMessageProcessor.nioHandler;
 			nioHandler.putMessageChannel(socketChannel, this);
-			lastActivityTimeStamp = System.currentTimeMillis();
+			lastActivityTimeStamp = sipStack.getClock().millis();
 			super.key = MessageChannel.getKey(peerAddress, peerPort, getTransport());
 
             myAddress = nioTcpMessageProcessor.getIpAddress().getHostAddress();
@@ -258,7 +258,7 @@ public class NioTcpMessageChannel extends ConnectionOrientedMessageChannel {
 		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 			logger.logDebug("sendMessage isClient  = " + isClient + " this = " + this);
 		}
-		lastActivityTimeStamp = System.currentTimeMillis();
+		lastActivityTimeStamp = sipStack.getClock().millis();
 		
 		NIOHandler nioHandler = ((NioTcpMessageProcessor) messageProcessor).nioHandler;
 		if(this.socketChannel != null && this.socketChannel.isConnected() && this.socketChannel.isOpen()) {
@@ -301,7 +301,7 @@ public class NioTcpMessageChannel extends ConnectionOrientedMessageChannel {
 			logger.logError("receiverAddress = " + receiverAddress);
 			throw new IllegalArgumentException("Null argument");
 		}
-		lastActivityTimeStamp = System.currentTimeMillis();
+		lastActivityTimeStamp = sipStack.getClock().millis();
 
 		if (peerPortAdvertisedInHeaders <= 0) {
 			if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
@@ -40,15 +40,18 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import gov.nist.core.CommonLogger;
 import gov.nist.core.HostPort;
 import gov.nist.core.LogWriter;
 import gov.nist.core.StackLogger;
-import gov.nist.core.executor.SIPTask;
+import gov.nist.core.executor.UnorderedSIPTask;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
+import gov.nist.javax.sip.stack.timers.SIPStackTimerTask;
 import gov.nist.javax.sip.stack.transports.processors.ConnectionOrientedMessageChannel;
 import gov.nist.javax.sip.stack.transports.processors.ConnectionOrientedMessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
@@ -74,6 +77,13 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
 
     // Data send over a socket is cached here before hand, the selector thread will take it later for physical send
     private final Map<SocketChannel, Queue<PendingData>> pendingData = Collections.synchronizedMap(new WeakHashMap<SocketChannel, Queue<PendingData>>());
+
+    // Timeouts of the non blocking connects still pending, cancelled when the connect completes
+    private final Map<SocketChannel, ConnectTimeoutTask> connectTimeouts = new ConcurrentHashMap<SocketChannel, ConnectTimeoutTask>();
+
+    // Non blocking connects not registered with the selector yet, the first send registers them
+    // once the socket is mapped to its message channel
+    private final Set<SocketChannel> unregisteredConnects = ConcurrentHashMap.<SocketChannel> newKeySet();
     
     
     public static class PendingData {
@@ -89,6 +99,7 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
     public static class ChangeRequest {
     	public static final int REGISTER = 1;
     	public static final int CHANGEOPS = 2;
+    	public static final int CONNECT_TIMEOUT = 3;
 
     	public SocketChannel socket;
     	public int type;
@@ -145,13 +156,72 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
         if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
         	logger.logDebug("Init connect " + address);     
         }
-        socketChannel.connect(address);
-    	changeRequests.add(new ChangeRequest(socketChannel, ChangeRequest.REGISTER, SelectionKey.OP_CONNECT));
-        //we don't wake the selector, wait for corresponding "send" operation to initiate the handshake
+        if (socketChannel.connect(address)) {
+            // established right away, as happens with local destinations
+            changeRequests.add(new ChangeRequest(socketChannel, ChangeRequest.REGISTER, SelectionKey.OP_READ));
+            return socketChannel;
+        }
+        if (timeout > 0) {
+            // known before the selector thread can complete the connect
+            ConnectTimeoutTask connectTimeout = new ConnectTimeoutTask(socketChannel);
+            connectTimeouts.put(socketChannel, connectTimeout);
+            sipStack.getTimer().schedule(connectTimeout, timeout);
+        }
+        //we don't register nor wake the selector, wait for corresponding "send" operation to initiate the handshake
+        unregisteredConnects.add(socketChannel);
         return socketChannel;
     }
+
+    /**
+     * Fails a non blocking connect still pending after the connection timeout, the selector
+     * thread then fails the data queued on the socket the same way as a refused connect.
+     */
+    class ConnectTimeoutTask extends SIPStackTimerTask {
+        private final SocketChannel socketChannel;
+
+        ConnectTimeoutTask(SocketChannel socketChannel) {
+            super(ConnectTimeoutTask.class.getSimpleName());
+            this.socketChannel = socketChannel;
+        }
+
+        @Override
+        public String getId() {
+            return socketChannel.toString();
+        }
+
+        @Override
+        public void runTask() {
+            connectTimeouts.remove(socketChannel);
+            if (socketChannel.isConnectionPending()) {
+                changeRequests.add(new ChangeRequest(socketChannel, ChangeRequest.CONNECT_TIMEOUT, 0));
+                selector.wakeup();
+            }
+        }
+    }
     
 
+    private void cancelConnectTimeout(SocketChannel socketChannel) {
+        unregisteredConnects.remove(socketChannel);
+        ConnectTimeoutTask connectTimeout = connectTimeouts.remove(socketChannel);
+        if (connectTimeout != null) {
+            sipStack.getTimer().cancel(connectTimeout);
+        }
+    }
+
+    /**
+     * @return the number of non blocking connects waiting for their timeout.
+     */
+    int getPendingConnectTimeouts() {
+        return connectTimeouts.size();
+    }
+
+    /**
+     * @return true if connect returns before the connection is established.
+     */
+    public boolean isNonBlockingConnect() {
+        return this.sipStack.nioMode.equals(NIOMode.NONBLOCKING);
+    }
+
     public SocketChannel connect(InetSocketAddress address, InetAddress localAddress, int timeout) throws IOException {
         if (this.sipStack.nioMode.equals(NIOMode.BLOCKING)) {
             return blockingConnect(address, localAddress, timeout);
@@ -184,12 +254,18 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
 
         PendingData pData = new PendingData(MessageChannel.getMessageTxId().get() ,ByteBuffer.wrap(data));
         queue.add(pData);
+        if (!socket.isOpen() && queue.remove(pData)) {
+            // closed by a failed connect whose queued data was already failed
+            throw new IOException("Socket closed " + socket);
+        }
         
         if (socket.isConnected()) {
             if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
                 logger.logDebug("Connected. lets set WRITE ops.");        
             }  	        	
             this.changeRequests.add(new ChangeRequest(socket, ChangeRequest.CHANGEOPS, SelectionKey.OP_WRITE));
+        } else if (unregisteredConnects.remove(socket)) {
+            this.changeRequests.add(new ChangeRequest(socket, ChangeRequest.REGISTER, SelectionKey.OP_CONNECT));
         }//if not the selector will change to WRITe mode after connect
         
     	if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG))
@@ -312,11 +388,12 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
             }        	
         	try {
         		socketChannel.finishConnect();
+        		cancelConnectTimeout(socketChannel);
                 if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
                     logger.logDebug("Connected Succesfully");        
                 }        		
     			if(sipStack.getMessageProcessorExecutor() != null) {
-    				sipStack.getMessageProcessorExecutor().addTaskLast(new SIPTask() {
+    				sipStack.getMessageProcessorExecutor().addTaskLast(new UnorderedSIPTask() {
                         long startTime = System.currentTimeMillis();
 
                         @Override
@@ -348,14 +425,51 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
                 if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
                         logger.logDebug("Cant connect ", e);        
                 }
+                connectFailed(selectionKey, socketChannel, nioTcpMessageChannel);
+                return;
+        	}
+
+        }
+        
+        /**
+         * Fail the data queued while the connect was pending and close the channel.
+         */
+        public void connectFailed(SelectionKey selectionKey, final SocketChannel socketChannel,
+        		final NioTcpMessageChannel nioTcpMessageChannel) {
+            cancelConnectTimeout(socketChannel);
+            if (selectionKey != null) {
                 selectionKey.cancel();
+            }
+            if (nioTcpMessageChannel == null) {
+                // https://java.net/jira/browse/JSIP-475 remove the socket from the hashmap
+                pendingData.remove(socketChannel);
+                nioHandler.removeSocket(socketChannel);
+                try {
+                    socketChannel.close();
+                } catch (IOException e) {
+                    if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                        logger.logDebug("Problem closing socket " + socketChannel, e);
+                    }
+                }
+                return;
+            }
+            try {
+                // sends racing the failure see the socket closed and fail by themselves
+                socketChannel.close();
+            } catch (IOException e) {
+                if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                    logger.logDebug("Problem closing socket " + socketChannel, e);
+                }
+            }
+            // taken now, closing the message channel drops the queue of its socket
+            final Queue<PendingData> failedMsgs = pendingData.remove(socketChannel);
     			if(sipStack.getMessageProcessorExecutor() != null) {
-    				sipStack.getMessageProcessorExecutor().addTaskLast(new SIPTask() {
+    				sipStack.getMessageProcessorExecutor().addTaskLast(new UnorderedSIPTask() {
                         long startTime = System.currentTimeMillis();
 
                         @Override
     					public void execute() {
-    						nioTcpMessageChannel.triggerConnectFailure(pendingData.get(socketChannel));
+    						nioTcpMessageChannel.triggerConnectFailure(failedMsgs);
     					}
 
                         @Override
@@ -369,13 +483,20 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
                         }                        
     				});
     			} else {
-    				nioTcpMessageChannel.triggerConnectFailure(pendingData.get(socketChannel));                                           
+    				nioTcpMessageChannel.triggerConnectFailure(failedMsgs);                                           
     			}
-                return;
-        	}
+        }
 
+        public void connectTimeout(SocketChannel socketChannel) {
+            if (!socketChannel.isConnectionPending()) {
+                return;
+            }
+            if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("Connect timed out " + socketChannel);
+            }
+            connectFailed(socketChannel.keyFor(selector), socketChannel, nioHandler.getMessageChannel(socketChannel));
         }
-        
+
         public void accept(SelectionKey selectionKey) throws IOException{
         	 ServerSocketChannel serverSocketChannel = (ServerSocketChannel) selectionKey.channel();
         	 SocketChannel client;
@@ -430,6 +551,9 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
                                                     logger.logWarning("Socket closed before register ops " + change.socket);
                                             }
                                             break;
+                                    case ChangeRequest.CONNECT_TIMEOUT:
+                                            connectTimeout(change.socket);
+                                            break;
                                     }
                             } catch (Exception e) {
                                     logger.logError("Problem setting changes", e);
@@ -656,6 +780,9 @@ public class NioTcpMessageProcessor extends ConnectionOrientedMessageProcessor {
     			selector.close();
     		
     		nioHandler.stop();    		
+    		for (SocketChannel socketChannel : connectTimeouts.keySet()) {
+    			cancelConnectTimeout(socketChannel);
+    		}
     	} catch (Exception ex) {
     		logger.logError("Problem closing channel " , ex);
     	}
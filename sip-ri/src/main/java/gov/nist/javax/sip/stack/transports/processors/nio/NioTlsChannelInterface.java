@@ -73,4 +73,8 @@ public interface NioTlsChannelInterface {
 	 * @return
 	 */
 	ClientTransactionExt getEncapsulatedClientTransaction();
+	/**
+	 * Closes the connection, when its handshake fails on a thread of the handshake pool
+	 */
+	void close();
 }
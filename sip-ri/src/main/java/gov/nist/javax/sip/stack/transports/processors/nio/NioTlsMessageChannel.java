@@ -36,6 +36,7 @@ import gov.nist.javax.sip.stack.transports.processors.HandshakeCompletedListener
 import gov.nist.javax.sip.stack.transports.processors.nio.SSLStateMachine.MessageSendCallback;
 
 import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLContext;
 import java.io.FileNotFoundException;
@@ -76,7 +77,10 @@ public class NioTlsMessageChannel extends NioTcpMessageChannel implements NioTls
         SSLContext ctx = clientMode ?
                 ((NioTlsMessageProcessor)messageProcessor).sslClientCtx :
                 ((NioTlsMessageProcessor)messageProcessor).sslServerCtx;
-		sslStateMachine = new SSLStateMachine(ctx.createSSLEngine(), this);
+		// engines of outbound connections are keyed by peer so that a reconnection resumes the cached session
+		SSLEngine sslEngine = peerAddress != null ?
+				ctx.createSSLEngine(peerAddress.getHostAddress(), peerPort) : ctx.createSSLEngine();
+		sslStateMachine = new SSLStateMachine(sslEngine, this, sipStack.getTlsHandshakePool());
 
         sslStateMachine.sslEngine.setUseClientMode(clientMode);
         String auth = ((SipStackImpl)super.sipStack).
@@ -146,7 +150,7 @@ public class NioTlsMessageChannel extends NioTcpMessageChannel implements NioTls
 		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 			logger.logDebug("sendEncryptedData " + " this = " + this + " peerPort = " + peerPort + " addr = " + peerAddress);
 		}
-		lastActivityTimeStamp = System.currentTimeMillis();
+		lastActivityTimeStamp = sipStack.getClock().millis();
 		
 		NIOHandler nioHandler = ((NioTcpMessageProcessor) messageProcessor).nioHandler;
 		if(this.socketChannel != null && this.socketChannel.isConnected() && this.socketChannel.isOpen()) {
@@ -234,7 +238,10 @@ public class NioTlsMessageChannel extends NioTcpMessageChannel implements NioTls
 	}
 
 	private void checkSocketState() throws IOException {
-		if (socketChannel != null && (!socketChannel.isConnected() || !socketChannel.isOpen())) {
+		// a non blocking connect still pending keeps the engine of its first handshake,
+		// checked first as the selector thread may complete the connect meanwhile
+		if (socketChannel != null && !socketChannel.isConnectionPending()
+				&& (!socketChannel.isConnected() || !socketChannel.isOpen())) {
 			if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG))
 				logger.logDebug("Need to reset SSL engine for socket " + socketChannel);
 			try {
@@ -134,6 +134,7 @@ public class NioTlsMessageProcessor extends NioTcpMessageProcessor{
                      null);
 
         }
+        sipStack.getTlsHandshakePool().configureSessions(sslServerCtx, sslClientCtx);
     }
 
 }
@@ -37,6 +37,7 @@ import gov.nist.javax.sip.stack.ByteBufferFactory;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
 import gov.nist.javax.sip.stack.transports.processors.nio.SSLStateMachine.MessageSendCallback;
 
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLContext;
 
@@ -76,7 +77,10 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
         SSLContext ctx = clientMode ?
         		((NioTlsWebSocketMessageProcessor)messageProcessor).sslClientCtx:
                 ((NioTlsWebSocketMessageProcessor)messageProcessor).sslServerCtx;
-		sslStateMachine = new SSLStateMachine(ctx.createSSLEngine(), this);
+		// engines of outbound connections are keyed by peer so that a reconnection resumes the cached session
+		SSLEngine sslEngine = peerAddress != null ?
+				ctx.createSSLEngine(peerAddress.getHostAddress(), peerPort) : ctx.createSSLEngine();
+		sslStateMachine = new SSLStateMachine(sslEngine, this, sipStack.getTlsHandshakePool());
 
         sslStateMachine.sslEngine.setUseClientMode(clientMode);
         String auth = ((SipStackImpl)super.sipStack).
@@ -143,7 +147,7 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
 					"Sec-WebSocket-Protocol: sip\r\n" +
 					"Sec-WebSocket-Version: 13\r\n\r\n";
 
-			final ByteBuffer b1 = ByteBuffer.wrap(NioWebSocketMessageChannel.wrapBufferIntoWebSocketFrame(msg, client));
+			final ByteBuffer b1 = ByteBuffer.wrap(wrapBufferIntoWebSocketFrame(msg));
 			ByteBuffer b = ByteBuffer.wrap(http.getBytes());
 			try {
 				sslStateMachine.wrap(b, ByteBufferFactory.getInstance().allocateDirect(netBufferMax), new MessageSendCallback() {
@@ -170,7 +174,7 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
 				throw e;
 			}
 		} else {
-			ByteBuffer b = ByteBuffer.wrap(NioWebSocketMessageChannel.wrapBufferIntoWebSocketFrame(msg, client));
+			ByteBuffer b = ByteBuffer.wrap(wrapBufferIntoWebSocketFrame(msg));
 			try {
 				sslStateMachine.wrap(b, ByteBufferFactory.getInstance().allocateDirect(netBufferMax), new MessageSendCallback() {
 
@@ -185,12 +189,27 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
 		}
 	}
 
+	@Override
+	protected void sendCloseFrame(byte[] frame) throws IOException {
+		try {
+			sslStateMachine.wrap(ByteBuffer.wrap(frame), ByteBufferFactory.getInstance().allocateDirect(netBufferMax), new MessageSendCallback() {
+
+				@Override
+				public void doSend(byte[] bytes) throws IOException {
+					socketChannel.write(ByteBuffer.wrap(bytes));
+				}
+			});
+		} catch (Exception e) {
+			throw new IOException("Can't send close frame", e);
+		}
+	}
+
 	public void sendEncryptedData(byte[] msg) throws IOException {
 		// bypass the encryption for already encrypted data or TLS metadata
 		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 			logger.logDebug("sendEncryptedData " + " this = " + this + " peerPort = " + peerPort + " addr = " + peerAddress);
 		}
-		lastActivityTimeStamp = System.currentTimeMillis();
+		lastActivityTimeStamp = sipStack.getClock().millis();
 
 		NIOHandler nioHandler = ((NioTcpMessageProcessor) messageProcessor).nioHandler;
 		if(this.socketChannel != null && this.socketChannel.isConnected() && this.socketChannel.isOpen()) {
@@ -215,7 +234,7 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
 					"Sec-WebSocket-Version: 13\r\n\r\n";
 
 
-			final ByteBuffer b1 = ByteBuffer.wrap(NioWebSocketMessageChannel.wrapBufferIntoWebSocketFrame(message, client));
+			final ByteBuffer b1 = ByteBuffer.wrap(wrapBufferIntoWebSocketFrame(message));
 			ByteBuffer b = ByteBuffer.wrap(http.getBytes());
 			try {
 				sslStateMachine.wrap(b, ByteBufferFactory.getInstance().allocateDirect(netBufferMax), new MessageSendCallback() {
@@ -244,7 +263,7 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
 				throw e;
 			}
 		} else {
-			ByteBuffer b = ByteBuffer.wrap(NioWebSocketMessageChannel.wrapBufferIntoWebSocketFrame(message, client));
+			ByteBuffer b = ByteBuffer.wrap(wrapBufferIntoWebSocketFrame(message));
 			try {
 				sslStateMachine.wrap(b, ByteBufferFactory.getInstance().allocateDirect(netBufferMax), new MessageSendCallback() {
 
@@ -270,7 +289,7 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
 		sendMessage(msg, receiverAddress, receiverPort, this.client);
 
 		if (logger.isLoggingEnabled(ServerLogger.TRACE_MESSAGES))
-			logMessage(sipMessage, receiverAddress, receiverPort, System.currentTimeMillis());
+			logMessage(sipMessage, receiverAddress, receiverPort, sipStack.getClock().millis());
     }
 
 	public void sendHttpMessage(final byte message[], final InetAddress receiverAddress,
@@ -331,7 +350,7 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
 		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 			logger.logDebug("sendMessage isClient  = " + isClient + " this = " + this);
 		}
-		lastActivityTimeStamp = System.currentTimeMillis();
+		lastActivityTimeStamp = sipStack.getClock().millis();
 
 		NIOHandler nioHandler = ((NioTcpMessageProcessor) messageProcessor).nioHandler;
 		if(this.socketChannel != null && this.socketChannel.isConnected() && this.socketChannel.isOpen()) {
@@ -380,7 +399,10 @@ public class NioTlsWebSocketMessageChannel extends NioWebSocketMessageChannel im
 	}
 
 	private void checkSocketState() throws IOException {
-		if (socketChannel != null && (!socketChannel.isConnected() || !socketChannel.isOpen())) {
+		// a non blocking connect still pending keeps the engine of its first handshake,
+		// checked first as the selector thread may complete the connect meanwhile
+		if (socketChannel != null && !socketChannel.isConnectionPending()
+				&& (!socketChannel.isConnected() || !socketChannel.isOpen())) {
 			if (logger.isLoggingEnabled(LogLevels.TRACE_DEBUG))
 				logger.logDebug("Need to reset SSL engine for socket " + socketChannel);
 			try {
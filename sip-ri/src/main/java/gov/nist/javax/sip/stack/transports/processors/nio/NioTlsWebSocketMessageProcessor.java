@@ -27,12 +27,11 @@ package gov.nist.javax.sip.stack.transports.processors.nio;
 
 
 import gov.nist.core.CommonLogger;
-import gov.nist.core.HostPort;
 import gov.nist.core.LogWriter;
 import gov.nist.core.StackLogger;
 import gov.nist.core.net.SecurityManagerProvider;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
-import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.ConnectionOrientedMessageChannel;
 
 import javax.net.ssl.SSLContext;
 import java.io.FileNotFoundException;
@@ -74,61 +73,12 @@ public class NioTlsWebSocketMessageProcessor extends NioWebSocketMessageProcesso
 	}
 	
     @Override
-    public MessageChannel createMessageChannel(HostPort targetHostPort) throws IOException {
-    	if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-    		logger.logDebug("NioTlsWebSocketMessageProcessor::createMessageChannel: " + targetHostPort);
-    	}
-    	NioTlsWebSocketMessageChannel retval = null;
-    	try {
-    		String key = MessageChannel.getKey(targetHostPort, transport);
-			
-    		if (messageChannels.get(key) != null) {
-    			retval = (NioTlsWebSocketMessageChannel) this.messageChannels.get(key);
-    			return retval;
-    		} else {
-    			retval = new NioTlsWebSocketMessageChannel(targetHostPort.getInetAddress(),
-    					targetHostPort.getPort(), sipStack, this);
-    			
-    		//	retval.getSocketChannel().register(selector, SelectionKey.OP_READ);
-    			synchronized(messageChannels) {
-    				this.messageChannels.put(key, retval);
-    			}
-    			retval.cache();
-    			if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-    				logger.logDebug("key " + key);
-    				logger.logDebug("Creating " + retval);
-    			}
-    			selector.wakeup();
-    			return retval;
-
-    		}
-    	} finally {
-    		if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-    			logger.logDebug("MessageChannel::createMessageChannel - exit " + retval);
-    		}
-    	}
+    ConnectionOrientedMessageChannel constructMessageChannel(InetAddress targetHost, int port) throws IOException {
+        // created under the lock of the processor, as two channels would both handshake on the socket
+        return new NioTlsWebSocketMessageChannel(targetHost,
+                            port, sipStack, this);
     }
 
-    @Override
-    public MessageChannel createMessageChannel(InetAddress targetHost, int port) throws IOException {
-        String key = MessageChannel.getKey(targetHost, port, transport);
-        if (messageChannels.get(key) != null) {
-            return this.messageChannels.get(key);
-        } else {
-        	NioTlsWebSocketMessageChannel retval = new NioTlsWebSocketMessageChannel(targetHost, port, sipStack, this);
-            
-            selector.wakeup();
- //           retval.getSocketChannel().register(selector, SelectionKey.OP_READ);
-            this.messageChannels.put(key, retval);
-            retval.cache();
-            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
-                logger.logDebug("key " + key);
-                logger.logDebug("Creating " + retval);
-            }
-            return retval;
-        }
-
-    }
 	public void init() throws Exception, CertificateException, FileNotFoundException, IOException {
 		SecurityManagerProvider securityManagerProvider = sipStack.getSecurityManagerProvider();
 		if(securityManagerProvider.getKeyManagers(false) == null ||
@@ -149,6 +99,7 @@ public class NioTlsWebSocketMessageProcessor extends NioWebSocketMessageProcesso
         sslClientCtx.init(securityManagerProvider.getKeyManagers(true),
                 securityManagerProvider.getTrustManagers(true),
                 null);
+        sipStack.getTlsHandshakePool().configureSessions(sslServerCtx, sslClientCtx);
 
     }
 
@@ -25,7 +25,6 @@
  */
 package gov.nist.javax.sip.stack.transports.processors.nio;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
@@ -69,6 +68,7 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 		super(nioTcpMessageProcessor,socketChannel);
 		
 		this.stack=stack;
+		codec.setMaxMessageSize(stack.getMaxMessageSize());
 		messageProcessor = nioTcpMessageProcessor;
 		myClientInputStream = socketChannel.socket().getInputStream();
 	}
@@ -78,7 +78,7 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 		if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 			logger.logDebug("sendMessage isClient  = " + isClient + " this = " + this);
 		}
-		lastActivityTimeStamp = System.currentTimeMillis();
+		lastActivityTimeStamp = sipStack.getClock().millis();
 		
 		NIOHandler nioHandler = ((NioTcpMessageProcessor) messageProcessor).nioHandler;
 		if(this.socketChannel != null && this.socketChannel.isConnected() && this.socketChannel.isOpen()) {
@@ -94,7 +94,7 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 			logger.logDebug("sendMessage isClient  = " + isClient + " this = " + this);
 		}
 		
-		lastActivityTimeStamp = System.currentTimeMillis();		
+		lastActivityTimeStamp = sipStack.getClock().millis();		
 		NIOHandler nioHandler = ((NioTcpMessageProcessor) messageProcessor).nioHandler;
 		if(this.socketChannel != null && this.socketChannel.isConnected() && this.socketChannel.isOpen()) {
 			nioHandler.putSocket(NIOHandler.makeKey(this.peerAddress, this.peerPort), this.socketChannel);
@@ -114,6 +114,18 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 		return null;
 	}
 
+	/**
+	 * Frame a message for this connection, compressing it when permessage-deflate was negotiated.
+	 */
+	protected byte[] wrapBufferIntoWebSocketFrame(byte[] buffer) {
+		try {
+			return codec.encodeMessage(buffer, client);
+		} catch (Exception e) {
+			logger.logError("Can't encode websocket frame", e);
+		}
+		return null;
+	}
+
 	public void sendWrapped(byte message[], InetAddress receiverAddress,
 			int receiverPort, boolean retry) throws IOException {
 		
@@ -135,7 +147,7 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 			}
 		}
 		
-		message = wrapBufferIntoWebSocketFrame(message, client);
+		message = wrapBufferIntoWebSocketFrame(message);
 		super.sendTCPMessage(message, receiverAddress, receiverPort, retry);
 	}
 	
@@ -185,6 +197,7 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 		client = true;
 		this.stack=sipStack;
 		this.codec = new WebSocketCodec(false, true);
+		codec.setMaxMessageSize(sipStack.getMaxMessageSize());
 	}
 	
 	@Override
@@ -206,7 +219,10 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 			if(s.endsWith("\r\n") || s.endsWith("\n")) {
 				readingHttp = false;
 				if(!httpInput.startsWith("HTTP")) {
-					byte[] response = new WebSocketHttpHandshake().createHttpResponse(s);
+					WebSocketHttpHandshake handshake = new WebSocketHttpHandshake(
+							stack != null && stack.isWebSocketPerMessageDeflate());
+					byte[] response = handshake.createHttpResponse(s);
+					codec.setPerMessageDeflate(handshake.isPerMessageDeflate());
 					sendNonWebSocketMessage(response, false);
 				} else {
 					logger.logDebug("HTTP Response. We are websocket client.\n" + httpInput);
@@ -215,10 +231,19 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 			if(remaining != null) addBytes(remaining);
 			return;
 		} else if(!readingHttp) {
-			ByteArrayInputStream bios = new ByteArrayInputStream(bytes);
-			byte[] decodedMsg = null;
+			codec.append(ByteBuffer.wrap(bytes));
+			ByteBuffer decodedMsg = null;
 			do {
-				decodedMsg = codec.decode(bios);
+				try {
+					decodedMsg = codec.decode();
+				} catch (WebSocketCodec.MessageTooBigException ex) {
+					if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+						logger.logDebug("Websocket message too big, closing " + ex.getMessage());
+					}
+					sendCloseFrame(WebSocketCodec.encodeClose(WebSocketCodec.CLOSE_MESSAGE_TOO_BIG, client));
+					// the caller closes the connection
+					throw ex;
+				}
 				
 				// Chrome waits for us to close the socket when it sends a close opcode https://code.google.com/p/chromium/issues/detail?id=388243#c15
 				if(codec.isCloseOpcodeReceived()) {
@@ -232,14 +257,24 @@ public class NioWebSocketMessageChannel extends NioTcpMessageChannel{
 				if(decodedMsg == null) {
 					return; // the codec can't parse a full websocket frame, we will try again when have more data
 				}
-				nioParser.addBytes(decodedMsg);
-				logger.logDebug("Nio websocket bytes were added " + decodedMsg.length);
+				// the payload is handed over in place, the parser consumes it before the next decode
+				nioParser.addBytes(decodedMsg.array(), decodedMsg.arrayOffset() + decodedMsg.position(),
+						decodedMsg.remaining());
+				logger.logDebug("Nio websocket bytes were added " + decodedMsg.remaining());
 
 			} while (decodedMsg != null);
 			
 		}
 	}
 	
+	/**
+	 * Write a close frame right away, ahead of the queued messages, the connection is closed
+	 * next.
+	 */
+	protected void sendCloseFrame(byte[] frame) throws IOException {
+		socketChannel.write(ByteBuffer.wrap(frame));
+	}
+
 	@Override
 	public String getTransport() {
 		return this.messageProcessor.getTransport();
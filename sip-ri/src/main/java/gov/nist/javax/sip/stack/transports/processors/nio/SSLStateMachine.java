@@ -42,6 +42,7 @@ import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 import javax.net.ssl.SSLEngineResult.Status;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
 
 /**
  * This is a helper state machine that negotiates the SSL connection automatically
@@ -67,10 +68,23 @@ public class SSLStateMachine {
 	protected ByteBuffer tlsRecordBuffer;
 	private Object unwrapLock = new Object();
 	private Object wrapLock = new Object();
+	// Runs the delegated tasks of the handshake and counts it, null to run them inline
+	private final TlsHandshakePool handshakePool;
+	// A session created before the engine was resumed instead of negotiated
+	private final long engineCreationTime = System.currentTimeMillis();
+	// Set while the pool runs the delegated tasks, the handshake is resumed once they are done
+	private volatile boolean tasksPending;
+	// The engine reports FINISHED again for the post-handshake messages such as TLS 1.3 session tickets
+	private boolean handshakeCounted;
 
 	public SSLStateMachine(SSLEngine sslEngine, NioTlsChannelInterface channel) {
+		this(sslEngine, channel, null);
+	}
+
+	public SSLStateMachine(SSLEngine sslEngine, NioTlsChannelInterface channel, TlsHandshakePool handshakePool) {
 		this.sslEngine = sslEngine;
 		this.channel = channel;
+		this.handshakePool = handshakePool;
 	}
 
 	public void wrapRemaining() throws IOException {
@@ -140,9 +154,13 @@ public class SSLStateMachine {
 					case NEED_UNWRAP:
 						break loop;
 					case NEED_TASK:
-						runDelegatedTasks(result);
+						if(!runDelegatedTasks(result)) {
+							// the queued buffers are wrapped once the pool resumes the handshake
+							break loop;
+						}
 						break;
 					case FINISHED:
+						handshakeFinished();
 						// Added for https://java.net/jira/browse/JSIP-483 
 						if(channel instanceof NioTlsMessageChannel) {
 							((NioTlsMessageChannel)channel).setHandshakeCompleted(true);
@@ -201,6 +219,7 @@ public class SSLStateMachine {
 					if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 						logger.logDebug("Handshake complete!");
 					}
+					handshakeFinished();
 					// Added for https://java.net/jira/browse/JSIP-483 
 					if(channel instanceof NioTlsMessageChannel) {
 						((NioTlsMessageChannel)channel).setHandshakeCompleted(true);
@@ -222,7 +241,9 @@ public class SSLStateMachine {
 					}
 					break;
 				case NEED_TASK:
-					runDelegatedTasks(result);
+					if(!runDelegatedTasks(result)) {
+						return;
+					}
 					break;
 				case NEED_UNWRAP:
 					break;
@@ -327,6 +348,10 @@ public class SSLStateMachine {
 						logger.logDebug("Buffer underflow, wait for the next inbound chunk of data to feed the SSL engine");
 					}
 					startBuffer(src);
+					if(result.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+						// the delegated tasks left handshake messages to send before the next records come
+						wrapNonAppData();
+					}
 					break;
 				} else {
 					clearBuffer();
@@ -369,9 +394,16 @@ public class SSLStateMachine {
 					wrapNonAppData();
 					break;
 				case NEED_TASK:
-					runDelegatedTasks(result);
+					if(!runDelegatedTasks(result)) {
+						// keep the records not consumed yet for when the pool resumes the handshake
+						if(src.hasRemaining()) {
+							startBuffer(src);
+						}
+						break loop;
+					}
 					break;
 				case FINISHED:
+					handshakeFinished();
 					if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 						logger.logDebug("Handshaking just finnished, but has remaining. Will try to wrap the queues app items.");
 					}
@@ -437,7 +469,13 @@ public class SSLStateMachine {
 		}
 	}
 
-	private void runDelegatedTasks(SSLEngineResult result) throws IOException {
+	/**
+	 * Runs the delegated tasks of the engine, on the handshake pool if there is one.
+	 *
+	 * @return false if the tasks were handed to the pool, or are still running on it, the
+	 * caller has then to stop feeding the engine until the pool resumes the handshake.
+	 */
+	private boolean runDelegatedTasks(SSLEngineResult result) throws IOException {
 		if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
 			logger.logDebug("Running delegated task for " + result);
 		}
@@ -447,9 +485,19 @@ public class SSLStateMachine {
 		 *  Call them every time they have NEED_TASK otherwise the sslEngine won't make progress
 		 */
 		if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
-			Runnable runnable;
-			while ((runnable = sslEngine.getDelegatedTask()) != null) {
-				runnable.run();
+			if (tasksPending) {
+				return false;
+			}
+			if (handshakePool != null) {
+				tasksPending = true;
+				if (handshakePool.execute(new DelegatedTasks())) {
+					return false;
+				}
+				tasksPending = false;
+			}
+			int count = runTasks();
+			if (handshakePool != null) {
+				handshakePool.tasksRun(count, false);
 			}
 			HandshakeStatus hsStatus = sslEngine.getHandshakeStatus();
 			if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
@@ -460,6 +508,51 @@ public class SSLStateMachine {
 						"handshake shouldn't need additional tasks");
 			}
 		}
+		return true;
+	}
+
+	private int runTasks() {
+		int count = 0;
+		Runnable runnable;
+		while ((runnable = sslEngine.getDelegatedTask()) != null) {
+			runnable.run();
+			count++;
+		}
+		return count;
+	}
+
+	private synchronized void handshakeFinished() {
+		if (handshakePool != null && !handshakeCounted) {
+			handshakeCounted = true;
+			SSLSession session = sslEngine.getSession();
+			handshakePool.handshakeCompleted(session != null && session.getCreationTime() < engineCreationTime);
+		}
+	}
+
+	/**
+	 * Runs the delegated tasks of the handshake on the pool then drives the handshake
+	 * forward with the records received meanwhile and the messages queued for sending.
+	 */
+	private class DelegatedTasks implements Runnable {
+		@Override
+		public void run() {
+			int count;
+			try {
+				count = runTasks();
+			} finally {
+				tasksPending = false;
+			}
+			handshakePool.tasksRun(count, true);
+			try {
+				unwrap(EMPTY_BUFFER);
+				wrapRemaining();
+			} catch (Exception e) {
+				if(logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+					logger.logDebug("TLS handshake failed after its delegated tasks " + e.getMessage());
+				}
+				channel.close();
+			}
+		}
 	}
 
 	public void sendSSLMetadata(byte[] msg) throws IOException {
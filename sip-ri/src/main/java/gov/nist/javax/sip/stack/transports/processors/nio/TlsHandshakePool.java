@@ -0,0 +1,207 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.nio;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.LogWriter;
+import gov.nist.core.NamingThreadFactory;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.stack.SIPTransactionStack;
+
+/**
+ * Runs the delegated tasks of the TLS handshakes of the NIO channels, the
+ * certificate and key exchange computations, on a bounded pool of threads
+ * instead of the selector thread shared by all the sockets of a processor.
+ * When the pool is disabled or its queue is full the tasks run on the calling
+ * thread as before.
+ * <p>
+ * The pool also counts the handshakes completed by the channels of the stack,
+ * telling the full ones from the resumed ones, and gives their rate over the
+ * last seconds.
+ */
+public class TlsHandshakePool {
+    private static StackLogger logger = CommonLogger.getLogger(TlsHandshakePool.class);
+
+    // seconds over which the handshake rate is averaged
+    static final int RATE_WINDOW = 10;
+
+    private final SIPTransactionStack sipStack;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicLong offloadedTasks = new AtomicLong();
+    private final AtomicLong inlineTasks = new AtomicLong();
+
+    // handshakes completed in each of the last seconds, by second modulo the window
+    private final long[] rateCounts = new long[RATE_WINDOW];
+    private final long[] rateSeconds = new long[RATE_WINDOW];
+
+    public TlsHandshakePool(SIPTransactionStack sipStack) {
+        this.sipStack = sipStack;
+        int threads = sipStack.getTlsHandshakeThreads();
+        if (threads > 0) {
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(sipStack.getTlsHandshakeQueueSize()),
+                    new NamingThreadFactory("TlsHandshake"));
+            executor.allowCoreThreadTimeOut(true);
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Queues a task running the delegated tasks of a handshake.
+     *
+     * @param task the task to run
+     * @return false if the pool is disabled, stopped or full, the caller has
+     *         then to run the delegated tasks itself.
+     */
+    boolean execute(Runnable task) {
+        if (executor == null) {
+            return false;
+        }
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                logger.logDebug("TLS handshake pool full, running the delegated tasks inline");
+            }
+            return false;
+        }
+    }
+
+    void tasksRun(int count, boolean offloaded) {
+        if (offloaded) {
+            offloadedTasks.addAndGet(count);
+        } else {
+            inlineTasks.addAndGet(count);
+        }
+    }
+
+    void handshakeCompleted(boolean resumed) {
+        handshakes.incrementAndGet();
+        if (resumed) {
+            resumedHandshakes.incrementAndGet();
+        }
+        long second = sipStack.getClock().millis() / 1000;
+        synchronized (rateCounts) {
+            int index = (int) (second % RATE_WINDOW);
+            if (rateSeconds[index] != second) {
+                rateSeconds[index] = second;
+                rateCounts[index] = 0;
+            }
+            rateCounts[index]++;
+        }
+    }
+
+    /**
+     * Applies the session cache size and timeout configured on the stack to
+     * the session caches of the contexts of a processor. The client sessions
+     * are cached by peer address and port, see
+     * {@link SSLContext#createSSLEngine(String, int)}, so that a channel
+     * reconnecting to a peer resumes its last session.
+     */
+    public void configureSessions(SSLContext serverContext, SSLContext clientContext) {
+        configureSessions(serverContext.getServerSessionContext());
+        configureSessions(clientContext.getClientSessionContext());
+    }
+
+    private void configureSessions(SSLSessionContext sessionContext) {
+        if (sessionContext == null) {
+            return;
+        }
+        if (sipStack.getTlsSessionCacheSize() >= 0) {
+            sessionContext.setSessionCacheSize(sipStack.getTlsSessionCacheSize());
+        }
+        if (sipStack.getTlsSessionTimeout() >= 0) {
+            sessionContext.setSessionTimeout(sipStack.getTlsSessionTimeout());
+        }
+    }
+
+    /**
+     * @return the number of handshakes completed, full or resumed.
+     */
+    public long getHandshakes() {
+        return handshakes.get();
+    }
+
+    /**
+     * @return the number of handshakes which resumed a cached session or a
+     *         session ticket instead of negotiating a new one.
+     */
+    public long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * @return the number of delegated tasks run on the pool.
+     */
+    public long getOffloadedTasks() {
+        return offloadedTasks.get();
+    }
+
+    /**
+     * @return the number of delegated tasks run on the I/O threads, because
+     *         the pool was disabled or full.
+     */
+    public long getInlineTasks() {
+        return inlineTasks.get();
+    }
+
+    /**
+     * @return the handshakes completed per second, averaged over the last
+     *         {@value #RATE_WINDOW} seconds including the current one.
+     */
+    public double getHandshakeRate() {
+        long second = sipStack.getClock().millis() / 1000;
+        long count = 0;
+        synchronized (rateCounts) {
+            for (int i = 0; i < RATE_WINDOW; i++) {
+                if (second - rateSeconds[i] < RATE_WINDOW) {
+                    count += rateCounts[i];
+                }
+            }
+        }
+        return (double) count / RATE_WINDOW;
+    }
+
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "handshakes=" + handshakes + " resumed=" + resumedHandshakes + " rate=" + getHandshakeRate()
+                + "/s offloadedTasks=" + offloadedTasks + " inlineTasks=" + inlineTasks;
+    }
+}
@@ -25,8 +25,11 @@
  */
 package gov.nist.javax.sip.stack.transports.processors.nio;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import gov.nist.core.CommonLogger;
 import gov.nist.core.LogLevels;
@@ -37,6 +40,12 @@ import gov.nist.core.StackLogger;
  * Decodes a web socket frame from wire protocol version 8 format. This code was originally based on <a
  * href="https://github.com/joewalnes/webbit">webbit</a>.
  *
+ * Frames are decoded from a buffer the received bytes are appended to, payloads are unmasked in
+ * place and handed out as views of that buffer. When the permessage-deflate extension (RFC 7692)
+ * was negotiated, compressed messages are inflated and outgoing messages are compressed. No
+ * compression context is kept between messages so the deflaters and inflaters are shared by all
+ * the connections served by a thread.
+ *
  * @author vladimirralev
  *
  */
@@ -52,30 +61,61 @@ public class WebSocketCodec {
 	private static final byte OPCODE_PING = 0x9;
 	private static final byte OPCODE_PONG = 0xA;
 
+	// RSV1 marks the first frame of a compressed message
+	public static final int RSV_DEFLATE = 0x4;
+
+	// Close status for a message too big to process, RFC 6455 7.4.1
+	public static final int CLOSE_MESSAGE_TOO_BIG = 1009;
+
+	/**
+	 * Largest size a compressed message is inflated to when the stack does not limit the size of
+	 * messages.
+	 */
+	public static final int DEFAULT_MAX_INFLATED_SIZE = 1024 * 1024;
+
 	private static final byte[] trivialMask = new byte[] {1,1,1,1};
 
+	// Trailer removed from compressed messages by the sender, RFC 7692 7.2.1
+	private static final byte[] DEFLATE_TAIL = new byte[] {0x00, 0x00, (byte) 0xff, (byte) 0xff};
+
+	private static final int INITIAL_BUFFER_SIZE = 2048;
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private static final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+		protected Deflater initialValue() {
+			return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		}
+	};
+
+	private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+		protected Inflater initialValue() {
+			return new Inflater(true);
+		}
+	};
+
 	// Websocket metadata
 	private int fragmentedFramesCount;
 	private boolean frameFinalFlag;
 	private int frameRsv;
 	private int frameOpcode;
 	private long framePayloadLength;
-	private byte[] maskingKey = new byte[4];
+	private int maskingKey;
 	private final boolean allowExtensions;
 	private final boolean maskedPayload;
 	private boolean closeOpcodeReceived;
 
-	
-	// THe payload inside the websocket frame starts at this index
-	private int payloadStartIndex = -1;
+	// permessage-deflate negotiated for this connection
+	private volatile boolean perMessageDeflate;
+	// the fragmented message being received is compressed
+	private boolean compressedMessage;
+	// compressed fragments received so far, inflated when the last one arrives
+	private ByteBuffer compressedFragments;
+	// a compressed message inflating to more than this is refused
+	private int maxInflatedSize = DEFAULT_MAX_INFLATED_SIZE;
 
-	// Buffering incomplete and overflowing frames
-	private byte[] decodeBuffer = new byte[2048];
-	private int writeIndex = 0;
-	private int readIndex;
-	
-	// Total webscoket frame (metadata + payload)
-	private long totalPacketLength = -1;
+	// Received bytes not decoded yet, kept in read mode
+	private ByteBuffer decodeBuffer = emptyBuffer(INITIAL_BUFFER_SIZE);
 
 
 	public WebSocketCodec(boolean maskedPayload, boolean allowExtensions) {
@@ -83,49 +123,92 @@ public class WebSocketCodec {
 		this.maskedPayload = maskedPayload;
 		this.allowExtensions = allowExtensions;
 	}
-	private byte readNextByte() {
-		if(readIndex >= writeIndex) {
-			throw new IllegalStateException();
-		}
-		return this.decodeBuffer[readIndex++];
+
+	private static ByteBuffer emptyBuffer(int size) {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.flip();
+		return buffer;
 	}
 
-	public byte[] decode(InputStream is)
-			throws Exception {
-		do {
-			// Attempt to resize the decode buffer when it's approaching capacity
-			int bytesLeft = decodeBuffer.length - writeIndex;
-			int availToRead = is.available();
-			if(availToRead > bytesLeft - 1) {
-				int newSize = Math.max(2*decodeBuffer.length, 4*availToRead);
-				if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
-					logger.logDebug("Increasing buffer size from " + decodeBuffer.length + 
-							" avail " + availToRead + " newSize " + newSize);
-				}
-				byte[] resizeBuffer = new byte[newSize];
-				System.arraycopy(this.decodeBuffer, 0, resizeBuffer, 0, writeIndex);
-				this.decodeBuffer = resizeBuffer;
-			}
+	/**
+	 * Enable the permessage-deflate extension once it was negotiated for the connection.
+	 */
+	public void setPerMessageDeflate(boolean perMessageDeflate) {
+		this.perMessageDeflate = perMessageDeflate;
+	}
 
-			int bytesRead = is.read(decodeBuffer, writeIndex, bytesLeft);
-			if(bytesRead < 0) bytesRead = 0;
+	public boolean isPerMessageDeflate() {
+		return perMessageDeflate;
+	}
 
-			// Update the count in the buffer
-			writeIndex += bytesRead;
-		} while(is.available()>0);
+	/**
+	 * Limit the size compressed messages are inflated to, a message inflating to more is refused
+	 * with a {@link MessageTooBigException}.
+	 *
+	 * @param maxMessageSize the maximum message size of the stack, 0 or less for the default
+	 *            limit.
+	 */
+	public void setMaxMessageSize(int maxMessageSize) {
+		this.maxInflatedSize = maxMessageSize > 0 ? maxMessageSize : DEFAULT_MAX_INFLATED_SIZE;
+	}
+
+	/**
+	 * Append received bytes to the bytes still to be decoded.
+	 *
+	 * @param src the received bytes, consumed by this call.
+	 */
+	public void append(ByteBuffer src) {
+		int needed = src.remaining();
+		if (decodeBuffer.capacity() - decodeBuffer.limit() >= needed) {
+			int readIndex = decodeBuffer.position();
+			decodeBuffer.position(decodeBuffer.limit());
+			decodeBuffer.limit(decodeBuffer.capacity());
+			decodeBuffer.put(src);
+			decodeBuffer.limit(decodeBuffer.position());
+			decodeBuffer.position(readIndex);
+			return;
+		}
+		if (decodeBuffer.capacity() - decodeBuffer.remaining() >= needed) {
+			decodeBuffer.compact();
+		} else {
+			int newSize = Math.max(2 * decodeBuffer.capacity(), decodeBuffer.remaining() + needed);
+			if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
+				logger.logDebug("Increasing buffer size from " + decodeBuffer.capacity() + 
+						" avail " + needed + " newSize " + newSize);
+			}
+			ByteBuffer resizeBuffer = ByteBuffer.allocate(newSize);
+			resizeBuffer.put(decodeBuffer);
+			decodeBuffer = resizeBuffer;
+		}
+		decodeBuffer.put(src);
+		decodeBuffer.flip();
+	}
+
+	/**
+	 * Decode the next frame out of the bytes appended so far. The payload of a data frame is
+	 * unmasked in place and returned as a view of the decode buffer, only valid until the next
+	 * call to {@link #append(ByteBuffer)} or {@link #decode()}. Control frames and fragments of a
+	 * compressed message give an empty payload.
+	 *
+	 * @return the payload of the frame, null if no complete frame was received yet.
+	 * @throws MessageTooBigException if a compressed message is larger than the limit, the
+	 *             connection should be closed with {@link #CLOSE_MESSAGE_TOO_BIG}.
+	 */
+	public ByteBuffer decode() throws DataFormatException {
+		ByteBuffer in = decodeBuffer;
+		int start = in.position();
+		int available = in.remaining();
 
-		// Start over from scratch. If the frame is big this may be repeated a few times O(logN) and doesn't affect performance
-		readIndex = 0;
-		
 		// All TCP slow-start algorithms will be cut off right here without further analysis
-		if(writeIndex<4) {
+		if(available < 2) {
 			if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
-				logger.logDebug("Abort decode. Write index is at " + writeIndex);
+				logger.logDebug("Abort decode. " + available + " bytes available");
 			}
+			releaseEmptyBuffer();
 			return null;
 		}
 
-		byte b = readNextByte();
+		byte b = in.get(start);
 		frameFinalFlag = (b & 0x80) != 0;
 		frameRsv = (b & 0x70) >> 4;
 		frameOpcode = b & 0x0F;
@@ -135,118 +218,243 @@ public class WebSocketCodec {
 		}
 		
 		
-		if(frameOpcode == 8) {
+		if(frameOpcode == OPCODE_CLOSE) {
 			//https://code.google.com/p/chromium/issues/detail?id=388243#c15
 			this.closeOpcodeReceived = true;
 		}
 
 
 		// MASK, PAYLOAD LEN 1
-		b = readNextByte();
+		b = in.get(start + 1);
 		boolean frameMasked = (b & 0x80) != 0;
 		int framePayloadLen1 = b & 0x7F;
 
 		if (frameRsv != 0 && !allowExtensions) {
 			protocolViolation("RSV != 0 and no extension negotiated, RSV:" + frameRsv);
-			return null;
 		}
 
 		if (maskedPayload && !frameMasked) {
 			protocolViolation("unmasked client to server frame");
-			return null;
 		}
 
 		protocolChecks();
 
-		try {
-			// Read frame payload length
-			if (framePayloadLen1 == 126) {
-				int byte1 = 0xff & readNextByte();
-				int byte2 = 0xff & readNextByte();
-				int value = (byte1<<8) | byte2;
-				framePayloadLength = value;
-			} else if (framePayloadLen1 == 127) {
-				long value = 0;
-				for(int q=0;q<8;q++) {
-					byte nextByte = readNextByte();
-					long valuePart = ((long)(0xff&nextByte));
-					valuePart <<= (7-q)*8;
-					value |= valuePart;
-				}
-				framePayloadLength = value;
-
-				if (framePayloadLength < 65536) {
-					protocolViolation("invalid data frame length (not using minimal length encoding): " + framePayloadLength);
-					return null;
-				}
-				
-			} else {
-				framePayloadLength = framePayloadLen1;
+		// Read frame payload length
+		int headerLength = 2;
+		if (framePayloadLen1 == 126) {
+			if (available < 4) {
+				return null;
 			}
-			
-			if(framePayloadLength < 0) {
-				protocolViolation("Negative payload size: " + framePayloadLength);
+			framePayloadLength = in.getShort(start + 2) & 0xFFFF;
+			headerLength = 4;
+		} else if (framePayloadLen1 == 127) {
+			if (available < 10) {
+				return null;
 			}
+			framePayloadLength = in.getLong(start + 2);
+			headerLength = 10;
 
-			if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
-				logger.logDebug("Decoding WebSocket Frame length=" + framePayloadLength);
+			if (framePayloadLength < 65536) {
+				protocolViolation("invalid data frame length (not using minimal length encoding): " + framePayloadLength);
 			}
+		} else {
+			framePayloadLength = framePayloadLen1;
+		}
 
-			// Analyze the mask
-			if (frameMasked) {
-				for(int q=0; q<4 ;q++)
-					maskingKey[q] = readNextByte();
-			}
+		if(framePayloadLength < 0 || framePayloadLength > Integer.MAX_VALUE - headerLength - 4) {
+			protocolViolation("Unsupported payload size: " + framePayloadLength);
 		}
-		catch (IllegalStateException e) {
-			// the stream has ended we don't have enough data to continue
-			return null;
+
+		if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
+			logger.logDebug("Decoding WebSocket Frame length=" + framePayloadLength);
 		}
 
-		// Remember the payload position
-		payloadStartIndex = readIndex;
-		totalPacketLength = readIndex + framePayloadLength;
+		// Analyze the mask
+		if (frameMasked) {
+			if (available < headerLength + 4) {
+				return null;
+			}
+			maskingKey = in.getInt(start + headerLength);
+			headerLength += 4;
+		}
 
 		// Check if we have enough data at all
-		if(writeIndex < totalPacketLength) {
+		if(available < headerLength + framePayloadLength) {
 			if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
-				logger.logDebug("Abort decode. Write index is at " + writeIndex + " and totalPacketLength is " + totalPacketLength);
+				logger.logDebug("Abort decode. " + available + " bytes available and frame length is "
+						+ (headerLength + framePayloadLength));
 			}
 			return null; // wait for more data
 		}
 
+		int payloadStart = start + headerLength;
+		int payloadEnd = payloadStart + (int) framePayloadLength;
+
 		// Unmask data if needed and only if the condition above is true
 		if (frameMasked) {
-			unmask(decodeBuffer, payloadStartIndex, (int) (payloadStartIndex + framePayloadLength));
+			applyMask(in, payloadStart, payloadEnd, maskingKey);
 		}
+		in.position(payloadEnd);
 
-		// Finally isolate the unmasked payload, the bytes are plaintext here
-		byte[] plainTextBytes = new byte[(int) framePayloadLength];
-		System.arraycopy(decodeBuffer, payloadStartIndex, plainTextBytes, 0, (int) framePayloadLength);
-		
-		// Now move the pending data to the begining of the buffer so we can continue having good stream
-		for(int q=1; q<writeIndex - totalPacketLength; q++) {
-			decodeBuffer[q] = decodeBuffer[(int)totalPacketLength + q];
+		if (frameOpcode > 7) {
+			// control frames are not part of the SIP stream
+			return EMPTY.duplicate();
 		}
-		writeIndex -= totalPacketLength;
-		
-		if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
-			logger.logDebug("writeIndex = " + writeIndex + " " + totalPacketLength);
+
+		// Isolate the unmasked payload, the bytes are plaintext here
+		ByteBuffer payload = in.duplicate();
+		payload.position(payloadStart);
+		payload.limit(payloadEnd);
+
+		if (frameOpcode != OPCODE_CONT) {
+			compressedMessage = (frameRsv & RSV_DEFLATE) != 0;
+			if (compressedMessage && !perMessageDeflate) {
+				protocolViolation("compressed frame and permessage-deflate not negotiated");
+			}
 		}
-		
+		fragmentedFramesCount = frameFinalFlag ? 0 : fragmentedFramesCount + 1;
+
+		if (compressedMessage) {
+			if (!frameFinalFlag || compressedFragments != null) {
+				if (compressedFragments != null
+						&& compressedFragments.position() + payload.remaining() > maxInflatedSize) {
+					compressedFragments = null;
+					throw new MessageTooBigException("compressed message larger than " + maxInflatedSize);
+				}
+				compressedFragments = appendTo(compressedFragments, payload);
+				if (!frameFinalFlag) {
+					return EMPTY.duplicate();
+				}
+				payload = compressedFragments;
+				payload.flip();
+				compressedFragments = null;
+			}
+			payload = inflate(payload, maxInflatedSize);
+		}
+
 		// All done, we are ready to be called again
-		return plainTextBytes;
+		return payload;
 	}
-	
+
+	/**
+	 * Go back to a small decode buffer once a large frame has been consumed, idle connections
+	 * should not keep the memory used by the largest message they ever received.
+	 */
+	private void releaseEmptyBuffer() {
+		if (!decodeBuffer.hasRemaining() && decodeBuffer.capacity() > INITIAL_BUFFER_SIZE) {
+			decodeBuffer = emptyBuffer(INITIAL_BUFFER_SIZE);
+		}
+	}
+
+	private static ByteBuffer appendTo(ByteBuffer buffer, ByteBuffer src) {
+		if (buffer == null) {
+			buffer = ByteBuffer.allocate(Math.max(INITIAL_BUFFER_SIZE, src.remaining()));
+		} else if (buffer.remaining() < src.remaining()) {
+			ByteBuffer resized = ByteBuffer.allocate(Math.max(2 * buffer.capacity(),
+					buffer.position() + src.remaining()));
+			buffer.flip();
+			resized.put(buffer);
+			buffer = resized;
+		}
+		buffer.put(src);
+		return buffer;
+	}
+
+	/**
+	 * Inflate a whole message. The output buffer grows up to one byte over the limit, reaching
+	 * that byte means the message is too big and inflating stops there.
+	 */
+	private static ByteBuffer inflate(ByteBuffer compressed, int maxSize) throws DataFormatException {
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+		inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.position(),
+				compressed.remaining());
+		int limit = maxSize + 1;
+		byte[] output = new byte[(int) Math.min(limit,
+				Math.max(INITIAL_BUFFER_SIZE, 4L * compressed.remaining()))];
+		int length = 0;
+		boolean tailAdded = false;
+		while (!inflater.finished()) {
+			if (length == output.length) {
+				if (length >= limit) {
+					throw new MessageTooBigException("inflated message larger than " + maxSize);
+				}
+				output = Arrays.copyOf(output, (int) Math.min(limit, 2L * output.length));
+			}
+			int inflated = inflater.inflate(output, length, output.length - length);
+			length += inflated;
+			if (inflated == 0 && inflater.needsDictionary()) {
+				throw new DataFormatException("preset dictionary not supported");
+			}
+			if (inflated == 0 && inflater.needsInput()) {
+				if (tailAdded) {
+					break;
+				}
+				inflater.setInput(DEFLATE_TAIL);
+				tailAdded = true;
+			}
+		}
+		if (length > maxSize) {
+			throw new MessageTooBigException("inflated message larger than " + maxSize);
+		}
+		return ByteBuffer.wrap(output, 0, length);
+	}
+
+	/**
+	 * Frame a close control frame.
+	 *
+	 * @param statusCode the close status, {@link #CLOSE_MESSAGE_TOO_BIG} for instance.
+	 */
+	public static byte[] encodeClose(int statusCode, boolean maskPayload) throws Exception {
+		byte[] status = new byte[] { (byte) (statusCode >> 8), (byte) statusCode };
+		return encode(status, 0, true, maskPayload, OPCODE_CLOSE);
+	}
+
+	/**
+	 * Frame a whole message, compressing it when permessage-deflate was negotiated and the
+	 * compressed message is smaller.
+	 */
+	public byte[] encodeMessage(byte[] msg, boolean maskPayload) throws Exception {
+		if (perMessageDeflate && msg.length > 0) {
+			byte[] compressed = deflate(msg);
+			if (compressed != null) {
+				return encode(compressed, RSV_DEFLATE, true, maskPayload, OPCODE_TEXT);
+			}
+		}
+		return encode(msg, 0, true, maskPayload, OPCODE_TEXT);
+	}
+
+	/**
+	 * @return the compressed message without its trailing empty block, null if it is not smaller
+	 * than the message.
+	 */
+	private static byte[] deflate(byte[] msg) {
+		Deflater deflater = deflaters.get();
+		deflater.reset();
+		deflater.setInput(msg);
+		byte[] output = new byte[msg.length + DEFLATE_TAIL.length];
+		int length = 0;
+		while (length < output.length) {
+			int deflated = deflater.deflate(output, length, output.length - length, Deflater.SYNC_FLUSH);
+			length += deflated;
+			if (deflated == 0 && deflater.needsInput()) {
+				break;
+			}
+		}
+		if (length == output.length || length < DEFLATE_TAIL.length) {
+			// not enough room means no gain
+			return null;
+		}
+		return Arrays.copyOf(output, length - DEFLATE_TAIL.length);
+	}
+
 	protected static byte[] encode(byte[] msg, int rsv, boolean fin, boolean maskPayload) throws Exception {
 		return encode(msg, rsv, fin, maskPayload, OPCODE_TEXT);
 	}
 
 
 	protected static byte[] encode(byte[] msg, int rsv, boolean fin, boolean maskPayload, byte opcode) throws Exception {
-		ByteArrayOutputStream frame = new ByteArrayOutputStream();
-
-		long length = msg.length;
+		int length = msg.length;
 
 		if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
 			logger.logDebug("Encoding WebSocket Frame opCode=" + opcode + " length=" + length);
@@ -259,43 +467,54 @@ public class WebSocketCodec {
 		b0 |= rsv % 8 << 4;
 		b0 |= opcode % 128;
 
+		int headerLength = length <= 125 ? 2 : (length <= 0xFFFF ? 4 : 10);
+		if (maskPayload) {
+			headerLength += 4;
+		}
 
+		// header and payload are written once into the frame
+		byte[] frame = new byte[headerLength + length];
+		ByteBuffer buffer = ByteBuffer.wrap(frame);
+		buffer.put((byte) b0);
 		if (length <= 125) {
-			frame.write(b0);
-			byte b = (byte) (maskPayload ? 0x80 | (byte) length : (byte) length);
-			frame.write(b);
+			buffer.put((byte) (maskPayload ? 0x80 | length : length));
 		} else if (length <= 0xFFFF) {
-			frame.write(b0);
-			frame.write(maskPayload ? 0xFE : 126);
-			frame.write((byte)(length >>> 8));
-			frame.write((byte)length);
+			buffer.put((byte) (maskPayload ? 0xFE : 126));
+			buffer.putShort((short) length);
 		} else {
-			frame.write(b0);
-			frame.write(maskPayload ? 0xFF : 127);
-			for(int q=0;q<8;q++) {
-				byte b = (byte)(length>>>(7-q)*8);
-				frame.write(b);
-			}
+			buffer.put((byte) (maskPayload ? 0xFF : 127));
+			buffer.putLong(length);
 		}
 		if(maskPayload) {
-			frame.write(trivialMask);
-			applyMask(msg, 0, msg.length, trivialMask);
+			buffer.put(trivialMask);
 		}
-		frame.write(msg);
-		return frame.toByteArray();
+		buffer.put(msg);
+		if(maskPayload) {
+			applyMask(frame, headerLength, frame.length, trivialMask);
+		}
+		return frame;
 
 	}
 
-	private void unmask(byte[] frame, int startIndex, int endIndex) {
-		applyMask(frame, startIndex, endIndex, maskingKey);
-	}
-	
 	public static void applyMask(byte[] frame, int startIndex, int endIndex, byte[] mask) {
 		for (int i = 0; i < endIndex-startIndex; i++) {
 			frame[startIndex+i] = (byte) (frame[startIndex+i] ^ mask[i % 4]);
 		}
 	}
 
+	/**
+	 * Unmask in place, four bytes at a time.
+	 */
+	private static void applyMask(ByteBuffer frame, int startIndex, int endIndex, int mask) {
+		int i = startIndex;
+		for (; i + 4 <= endIndex; i += 4) {
+			frame.putInt(i, frame.getInt(i) ^ mask);
+		}
+		for (int shift = 24; i < endIndex; i++, shift -= 8) {
+			frame.put(i, (byte) (frame.get(i) ^ (mask >>> shift)));
+		}
+	}
+
 	private void protocolViolation(String reason)  {
 		throw new RuntimeException(reason);
 	}
@@ -333,4 +552,15 @@ public class WebSocketCodec {
 	public boolean isCloseOpcodeReceived() {
 		return this.closeOpcodeReceived;
 	}
+
+	/**
+	 * A compressed message is larger than the size it may be inflated to.
+	 */
+	public static class MessageTooBigException extends DataFormatException {
+		private static final long serialVersionUID = 1L;
+
+		public MessageTooBigException(String reason) {
+			super(reason);
+		}
+	}
 }
@@ -48,6 +48,27 @@ public class WebSocketHttpHandshake {
 	
 	private HashMap<String, String> headers = new HashMap<String, String>();
 
+	// an offer of the permessage-deflate extension (RFC 7692) is accepted
+	private final boolean perMessageDeflateEnabled;
+	// permessage-deflate was negotiated by the last handshake answered
+	private boolean perMessageDeflate;
+
+	public WebSocketHttpHandshake() {
+		this(false);
+	}
+
+	public WebSocketHttpHandshake(boolean perMessageDeflateEnabled) {
+		this.perMessageDeflateEnabled = perMessageDeflateEnabled;
+	}
+
+	/**
+	 * @return true if the permessage-deflate extension was negotiated, frames exchanged on the
+	 * connection may then be compressed.
+	 */
+	public boolean isPerMessageDeflate() {
+		return perMessageDeflate;
+	}
+
 	public byte[] createHttpResponse(String request) throws Exception {
 		
 		if(logger.isLoggingEnabled(LogLevels.TRACE_DEBUG)) {
@@ -56,6 +77,7 @@ public class WebSocketHttpHandshake {
 		InputStream is = new ByteArrayInputStream(request.getBytes());
 
 		boolean isSecure = false;
+		StringBuilder extensions = new StringBuilder();
 
 		String line = readLine(is);
 
@@ -84,6 +106,12 @@ public class WebSocketHttpHandshake {
 			}
 			if (parts[0].toLowerCase().startsWith("sec-websocket-key")) {
 				isSecure = true;
+			} else if (parts[0].trim().equalsIgnoreCase("sec-websocket-extensions")) {
+				// the header may be repeated, offers accumulate
+				if (extensions.length() > 0) {
+					extensions.append(',');
+				}
+				extensions.append(parts[1].trim());
 			}
 			headers.put(parts[0].trim(), parts[1].trim());
 		}
@@ -133,6 +161,12 @@ public class WebSocketHttpHandshake {
 		if (headers.get("Sec-WebSocket-Protocol") != null) {
 			sb.append("Sec-WebSocket-Protocol: ").append(headers.get("Sec-WebSocket-Protocol")).append(lineSeparator);
 		}
+		perMessageDeflate = perMessageDeflateEnabled && acceptPerMessageDeflate(extensions.toString());
+		if (perMessageDeflate) {
+			// no context takeover, nothing is kept per connection between messages
+			sb.append("Sec-WebSocket-Extensions: permessage-deflate; server_no_context_takeover; client_no_context_takeover")
+					.append(lineSeparator);
+		}
 		sb.append(lineSeparator);
 
 		String response = sb.toString();
@@ -145,6 +179,36 @@ public class WebSocketHttpHandshake {
 		return output;
 	}
 
+	/**
+	 * Look for a permessage-deflate offer that can be served without context takeover and with
+	 * the default window size, the only configuration supported by {@link WebSocketCodec}.
+	 */
+	static boolean acceptPerMessageDeflate(String extensions) {
+		for (String offer : extensions.split(",")) {
+			String[] params = offer.split(";");
+			if (!params[0].trim().equalsIgnoreCase("permessage-deflate")) {
+				continue;
+			}
+			boolean acceptable = true;
+			for (int i = 1; i < params.length && acceptable; i++) {
+				String[] param = params[i].split("=", 2);
+				String name = param[0].trim().toLowerCase();
+				String value = param.length == 2 ? param[1].trim().replace("\"", "") : null;
+				if (name.equals("server_max_window_bits")) {
+					acceptable = "15".equals(value);
+				} else {
+					acceptable = name.equals("server_no_context_takeover")
+							|| name.equals("client_no_context_takeover")
+							|| name.equals("client_max_window_bits");
+				}
+			}
+			if (acceptable) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public static String computeRev13Response(String key) throws IOException {
 		key = key + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
 		MessageDigest md = null;
@@ -374,7 +374,7 @@ public class UDPMessageChannel extends MessageChannel implements
 
         SIPMessage sipMessage = null;
         try {
-            this.receptionTime = System.currentTimeMillis();
+            this.receptionTime = sipStack.getClock().millis();
             sipMessage = myParser.parseSIPMessage(msgBytes, true, false, this);
             /*@see Issue 292 */
             if (sipMessage instanceof SIPRequest) {
@@ -385,7 +385,7 @@ public class UDPMessageChannel extends MessageChannel implements
                      return;
                 }
                 String method = ((SIPRequest) sipMessage).getMethod();
-                String cseqMethod = ((SIPRequest) sipMessage).getCSeqHeader()
+                String cseqMethod = ((SIPRequest) sipMessage).peekCSeq()
                         .getMethod();
 
                 if (!method.equalsIgnoreCase(cseqMethod)) {
@@ -463,22 +463,22 @@ public class UDPMessageChannel extends MessageChannel implements
             }
             return;
         }
-        Via topMostVia = sipMessage.getTopmostVia();
+        Via topMostVia = sipMessage.peekTopmostVia();
         // Check for the required headers.
-        if (sipMessage.getFrom() == null || sipMessage.getTo() == null
-                || sipMessage.getCallId() == null
-                || sipMessage.getCSeq() == null || topMostVia == null) {
+        if (sipMessage.peekFrom() == null || sipMessage.peekTo() == null
+                || sipMessage.peekCallId() == null
+                || sipMessage.peekCSeq() == null || topMostVia == null) {
             String badmsg = new String(msgBytes);
             if (logger.isLoggingEnabled()) {
                 logger
                         .logError("bad message " + badmsg);
                 logger.logError(
                         ">>> Dropped Bad Msg " + "From = "
-                                + sipMessage.getFrom() + "To = "
-                                + sipMessage.getTo() + "CallId = "
-                                + sipMessage.getCallId() + "CSeq = "
-                                + sipMessage.getCSeq() + "Via = "
-                                + sipMessage.getViaHeaders());
+                                + sipMessage.peekFrom() + "To = "
+                                + sipMessage.peekTo() + "CallId = "
+                                + sipMessage.peekCallId() + "CSeq = "
+                                + sipMessage.peekCSeq() + "Via = "
+                                + sipMessage.peekViaHeaders());
             }
             return;
         }
@@ -737,7 +737,7 @@ public class UDPMessageChannel extends MessageChannel implements
         // Test and see where we are going to send the messsage. If the message
         // is sent back to oursleves, just
         // shortcircuit processing.
-        long time = System.currentTimeMillis();
+        long time = sipStack.getClock().millis();
         //check for self routing
 		MessageProcessor messageProcessor = getSIPStack().findMessageProcessor(getPeerAddress(), getPeerPort(), getPeerProtocol());
 		if(messageProcessor != null) {
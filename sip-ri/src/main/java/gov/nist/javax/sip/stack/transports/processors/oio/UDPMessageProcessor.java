@@ -36,6 +36,7 @@ import gov.nist.core.ThreadAuditor;
 import gov.nist.javax.sip.SipStackImpl;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
 import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.SourceRateLimiter;
 import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
 import gov.nist.javax.sip.stack.transports.processors.nio.BlockingQueueDispatchAuditor;
 import gov.nist.javax.sip.stack.transports.processors.nio.DatagramQueuedMessageDispatch;
@@ -235,6 +236,14 @@ public class UDPMessageProcessor extends MessageProcessor implements Runnable {
                 byte message[] = new byte[bufsize];
                 DatagramPacket packet = new DatagramPacket(message, bufsize);
                 sock.receive(packet);
+
+                SourceRateLimiter sourceRateLimiter = sipStack.getSourceRateLimiter();
+                if (sourceRateLimiter != null && !sourceRateLimiter.tryAcquire(packet.getAddress())) {
+                    if (logger.isLoggingEnabled(LogWriter.TRACE_DEBUG)) {
+                        logger.logDebug("Dropping datagram of " + packet.getSocketAddress() + " over its rate");
+                    }
+                    continue;
+                }
                 
                 // Count of # of packets in process.
                 // this.useCount++;
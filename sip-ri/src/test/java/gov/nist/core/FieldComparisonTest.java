@@ -0,0 +1,296 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.nist.javax.sip.address.AddressImpl;
+import gov.nist.javax.sip.address.GenericURI;
+import gov.nist.javax.sip.address.SipUri;
+import gov.nist.javax.sip.header.Contact;
+import gov.nist.javax.sip.header.ContactList;
+import gov.nist.javax.sip.header.Expires;
+import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.header.ViaList;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import junit.framework.Assert;
+
+public class FieldComparisonTest extends junit.framework.TestCase {
+
+    private static final String[][] HEADERS = {
+            { "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds",
+              "Via: SIP/2.0/udp PC33.atlanta.com;branch=z9hG4bK776asdhds",
+              "Via: SIP/2.0/TCP pc33.atlanta.com:5070;branch=z9hG4bK776asdhds;received=10.0.0.1",
+              "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bKother" },
+            { "To: Bob <sip:bob@biloxi.com>",
+              "To: <sip:bob@biloxi.com>;tag=a6c85cf",
+              "To: \"Bob\" <sip:BOB@biloxi.com>;tag=a6c85cf",
+              "To: sip:bob@biloxi.com" },
+            { "From: Alice <sip:alice@atlanta.com>;tag=1928301774",
+              "From: Alice <sips:alice@atlanta.com;transport=tcp>;tag=1928301774",
+              "From: <sip:alice@atlanta.com>" },
+            { "Contact: <sip:alice@pc33.atlanta.com>;expires=3600;q=0.7",
+              "Contact: <sip:alice@pc33.atlanta.com>",
+              "Contact: *",
+              "Contact: \"Alice\" <sip:alice@pc33.atlanta.com;gr>;+sip.instance=\"<urn:uuid:1>\"" },
+            { "CSeq: 314159 INVITE", "CSeq: 314159 ACK", "CSeq: 1 INVITE" },
+            { "Call-ID: a84b4c76e66710@pc33.atlanta.com", "Call-ID: a84b4c76e66710", "Call-ID: other@host" },
+            { "Max-Forwards: 70", "Max-Forwards: 69" },
+            { "Content-Type: application/sdp", "Content-Type: text/plain;charset=utf-8",
+              "Content-Type: application/SDP" },
+            { "Route: <sip:p1.example.com;lr>", "Route: <sip:p2.example.com;lr>", "Route: <sip:p1.example.com>" },
+            { "Expires: 3600", "Expires: 0" },
+            { "Event: presence;id=1", "Event: presence", "Event: dialog;id=1" },
+            { "Authorization: Digest username=\"bob\", realm=\"biloxi.com\", nonce=\"abc\", uri=\"sip:bob@biloxi.com\", response=\"0123\"",
+              "Authorization: Digest username=\"alice\", realm=\"biloxi.com\", nonce=\"abc\", uri=\"sip:bob@biloxi.com\", response=\"0123\"" },
+            { "Retry-After: 18000;duration=3600", "Retry-After: 120 (I'm in a meeting)", "Retry-After: 18000" },
+            { "Subscription-State: active;expires=60", "Subscription-State: terminated;reason=timeout" },
+            { "P-Asserted-Identity: <sip:alice@atlanta.com>", "P-Asserted-Identity: <tel:+14085551212>" },
+            { "Session-Expires: 1800;refresher=uac", "Session-Expires: 1800" },
+    };
+
+    private static final String[] URIS = { "sip:alice@atlanta.com", "sip:ALICE@atlanta.com",
+            "sip:alice@atlanta.com:5060", "sips:alice@atlanta.com;transport=tcp",
+            "sip:alice@atlanta.com?subject=project", "sip:atlanta.com", "tel:+14085551212",
+            "tel:+14085551212;phone-context=example.com", "http://www.example.com/" };
+
+    private static final String[] ADDRESSES = { "<sip:alice@atlanta.com>", "Alice <sip:alice@atlanta.com>",
+            "\"alice\" <sip:alice@atlanta.com>", "sip:alice@atlanta.com", "<tel:+14085551212>" };
+
+    public void testHeadersAgreeWithIntrospection() throws Exception {
+        for (String[] group : HEADERS) {
+            List<GenericObject> headers = new ArrayList<GenericObject>();
+            for (String header : group) {
+                headers.add(StringMsgParser.parseSIPHeader(header + "\r\n"));
+                // an identical header parsed again
+                headers.add(StringMsgParser.parseSIPHeader(header + "\r\n"));
+            }
+            assertAgree(headers);
+        }
+    }
+
+    public void testUrisAgreeWithIntrospection() throws Exception {
+        List<GenericObject> uris = new ArrayList<GenericObject>();
+        for (String uri : URIS) {
+            uris.add(StringMsgParser.parseUrl(uri));
+            uris.add(StringMsgParser.parseUrl(uri));
+        }
+        assertAgree(uris);
+    }
+
+    public void testAddressesAgreeWithIntrospection() throws Exception {
+        List<GenericObject> addresses = new ArrayList<GenericObject>();
+        for (String address : ADDRESSES) {
+            addresses.add(StringMsgParser.parseAddress(address));
+            addresses.add(StringMsgParser.parseAddress(address));
+        }
+        assertAgree(addresses);
+    }
+
+    public void testTemplatesAgreeWithIntrospection() throws Exception {
+        Via via = (Via) ((ViaList) StringMsgParser.parseSIPHeader(
+                "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds\r\n")).getFirst();
+        Via template = new Via();
+        template.setTransport("udp");
+        List<GenericObject> vias = new ArrayList<GenericObject>();
+        vias.add(via);
+        vias.add(template);
+        vias.add(new Via());
+        assertMatchAgree(vias);
+
+        Contact contact = (Contact) ((ContactList) StringMsgParser.parseSIPHeader(
+                "Contact: <sip:alice@pc33.atlanta.com>;q=0.5\r\n")).getFirst();
+        Contact contactTemplate = new Contact();
+        AddressImpl address = new AddressImpl();
+        address.setURI(new SipUri());
+        contactTemplate.setAddress(address);
+        List<GenericObject> contacts = new ArrayList<GenericObject>();
+        contacts.add(contact);
+        contacts.add(contactTemplate);
+        contacts.add(new Contact());
+        assertMatchAgree(contacts);
+
+        GenericURI uri = StringMsgParser.parseUrl("sip:alice@atlanta.com");
+        SipUri uriTemplate = new SipUri();
+        uriTemplate.setUser("ALICE");
+        List<GenericObject> uris = new ArrayList<GenericObject>();
+        uris.add(uri);
+        uris.add(uriTemplate);
+        assertMatchAgree(uris);
+    }
+
+    public void testStackClassesUseFieldComparison() {
+        Assert.assertTrue(GenericObject.hasFieldComparison(Via.class));
+        Assert.assertTrue(GenericObject.hasFieldComparison(Contact.class));
+        Assert.assertTrue(GenericObject.hasFieldComparison(SipUri.class));
+        Assert.assertTrue(GenericObject.hasFieldComparison(AddressImpl.class));
+        Assert.assertTrue(GenericObject.hasFieldComparison(HostPort.class));
+        Assert.assertTrue(GenericObject.hasFieldComparison(Host.class));
+        Assert.assertTrue(GenericObject.hasFieldComparison(NameValue.class));
+    }
+
+    /**
+     * Every object reached when matching a Via or a SipUri must be compared
+     * through its fields, none of them through introspection.
+     */
+    public void testViaAndUriMatchWithoutIntrospection() throws Exception {
+        Via via = (Via) ((ViaList) StringMsgParser.parseSIPHeader(
+                "Via: SIP/2.0/TCP [::1]:5070;branch=z9hG4bK776asdhds;received=10.0.0.1;rport\r\n")).getFirst();
+        Via viaTemplate = new Via();
+        viaTemplate.setTransport("tcp");
+        viaTemplate.setHost("[::1]");
+        viaTemplate.setPort(5070);
+        SipUri uri = (SipUri) StringMsgParser.parseUrl("sips:alice:secret@atlanta.com:5061;transport=tcp;lr?subject=project");
+        SipUri uriTemplate = new SipUri();
+        uriTemplate.setScheme("sips");
+        uriTemplate.setHost("ATLANTA.com");
+        uriTemplate.setPort(5061);
+
+        for (Object object : new Object[] { via, viaTemplate, uri, uriTemplate }) {
+            assertComparedByFields(object, new IdentityHashMap<Object, Object>());
+        }
+        Assert.assertTrue(via.match(viaTemplate));
+        Assert.assertTrue(uri.match(uriTemplate));
+        viaTemplate.setPort(5060);
+        uriTemplate.setHost("biloxi.com");
+        Assert.assertFalse(via.match(viaTemplate));
+        Assert.assertFalse(uri.match(uriTemplate));
+    }
+
+    private static void assertComparedByFields(Object object, Map<Object, Object> seen) throws Exception {
+        if (object == null || seen.put(object, object) != null)
+            return;
+        if (object instanceof Map) {
+            for (Object value : ((Map<?, ?>) object).values())
+                assertComparedByFields(value, seen);
+            return;
+        }
+        if (object instanceof Collection) {
+            for (Object value : (Collection<?>) object)
+                assertComparedByFields(value, seen);
+            return;
+        }
+        if (!object.getClass().getName().startsWith("gov.nist."))
+            return;
+        if (object instanceof GenericObject) {
+            Assert.assertTrue(object.getClass().getName(),
+                    GenericObject.hasFieldComparison(object.getClass()));
+        }
+        for (Class<?> c = object.getClass(); c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive())
+                    continue;
+                field.setAccessible(true);
+                assertComparedByFields(field.get(object), seen);
+            }
+        }
+    }
+
+    public void testSubclassFallsBackToIntrospection() throws Exception {
+        Assert.assertFalse(GenericObject.hasFieldComparison(LabelledExpires.class));
+        LabelledExpires first = new LabelledExpires();
+        first.setExpires(60);
+        first.label = "a";
+        LabelledExpires second = new LabelledExpires();
+        second.setExpires(60);
+        second.label = "a";
+        Assert.assertEquals(first, second);
+        Assert.assertTrue(first.match(second));
+        second.label = "b";
+        Assert.assertFalse(first.equals(second));
+        Assert.assertFalse(first.match(second));
+    }
+
+    /**
+     * A subclass declaring a field without comparing it explicitly.
+     */
+    public static class LabelledExpires extends Expires {
+        private static final long serialVersionUID = 1L;
+        public String label;
+    }
+
+    private static void assertAgree(List<GenericObject> objects) {
+        int size = objects.size();
+        boolean[][] equals = new boolean[size][size];
+        boolean[][] matches = new boolean[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                equals[i][j] = objects.get(i).equals(objects.get(j));
+                matches[i][j] = objects.get(i).match(objects.get(j));
+            }
+        }
+        GenericObject.fieldComparisonEnabled = false;
+        try {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    GenericObject first = objects.get(i);
+                    GenericObject second = objects.get(j);
+                    String pair = encode(first) + " / " + encode(second);
+                    Assert.assertEquals("equals " + pair, first.equals(second), equals[i][j]);
+                    Assert.assertEquals("match " + pair, first.match(second), matches[i][j]);
+                    if (equals[i][j]) {
+                        Assert.assertEquals("hashCode " + pair, first.hashCode(), second.hashCode());
+                    }
+                }
+            }
+        } finally {
+            GenericObject.fieldComparisonEnabled = true;
+        }
+    }
+
+    /**
+     * Templates are only meant to be matched, the equals methods of the
+     * headers do not cope with their missing parts.
+     */
+    private static void assertMatchAgree(List<GenericObject> objects) {
+        int size = objects.size();
+        boolean[][] matches = new boolean[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                matches[i][j] = objects.get(i).match(objects.get(j));
+            }
+        }
+        GenericObject.fieldComparisonEnabled = false;
+        try {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    Assert.assertEquals("match " + i + " / " + j, objects.get(i).match(objects.get(j)),
+                            matches[i][j]);
+                }
+            }
+        } finally {
+            GenericObject.fieldComparisonEnabled = true;
+        }
+    }
+
+    private static String encode(GenericObject object) {
+        try {
+            return object instanceof SIPHeader ? ((SIPHeader) object).encode().trim() : object.encode();
+        } catch (RuntimeException ex) {
+            return object.getClass().getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core;
+
+import java.text.ParseException;
+
+import gov.nist.javax.sip.header.HeaderFactoryImpl;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import junit.framework.TestCase;
+
+public class StacklessParseExceptionTest extends TestCase {
+
+    protected void tearDown() throws Exception {
+        StacklessParseException.setStackTraces(false);
+    }
+
+    public void testParserFailureHasNoStackTrace() {
+        try {
+            StringMsgParser.parseSIPHeader("CSeq: eight INVITE");
+            fail("bad CSeq accepted");
+        } catch (ParseException e) {
+            assertTrue(e instanceof StacklessParseException);
+            assertEquals(0, e.getStackTrace().length);
+            assertTrue(e.getMessage(), e.getMessage().contains("eight"));
+        }
+    }
+
+    public void testStackTracesCanBeEnabled() {
+        StacklessParseException.setStackTraces(true);
+        try {
+            StringMsgParser.parseSIPHeader("CSeq: eight INVITE");
+            fail("bad CSeq accepted");
+        } catch (ParseException e) {
+            assertTrue(e.getStackTrace().length > 0);
+        }
+    }
+
+    public void testFactoryGivesStackTraceToApplication() {
+        try {
+            new HeaderFactoryImpl().createHeader("CSeq", "eight INVITE");
+            fail("bad CSeq accepted");
+        } catch (ParseException e) {
+            assertFalse(e instanceof StacklessParseException);
+            assertTrue(e.getStackTrace().length > 0);
+            assertTrue(isThrownTo(StacklessParseExceptionTest.class, e.getStackTrace()));
+            assertTrue(e.getMessage(), e.getMessage().contains("eight"));
+        }
+    }
+
+    private static boolean isThrownTo(Class<?> caller, StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            if (element.getClassName().equals(caller.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
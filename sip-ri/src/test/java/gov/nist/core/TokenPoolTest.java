@@ -0,0 +1,102 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core;
+
+import java.util.Properties;
+
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.header.ViaList;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import gov.nist.javax.sip.stack.simulation.Simulation;
+import junit.framework.TestCase;
+
+public class TokenPoolTest extends TestCase {
+
+    protected void setUp() throws Exception {
+        TokenPool.setSize(TokenPool.DEFAULT_SIZE);
+    }
+
+    protected void tearDown() throws Exception {
+        TokenPool.setSize(TokenPool.DEFAULT_SIZE);
+    }
+
+    public void testEqualStringsShareInstance() {
+        String first = TokenPool.canonical(new String("transport"));
+        String second = TokenPool.canonical(new String("transport"));
+        assertSame(first, second);
+
+        char[] buffer = "x;transport=udp".toCharArray();
+        assertSame(first, TokenPool.canonical(buffer, 2, 9));
+    }
+
+    public void testLongStringsAreNotPooled() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i <= TokenPool.MAX_LENGTH; i++) {
+            value.append('a');
+        }
+        String first = TokenPool.canonical(value.toString());
+        assertNotSame(first, TokenPool.canonical(value.toString()));
+    }
+
+    public void testPoolIsBounded() {
+        TokenPool.setSize(100);
+        assertEquals(128, TokenPool.getSize());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("host" + i, TokenPool.canonical("host" + i));
+        }
+        // a string pushed out is pooled again
+        String host = TokenPool.canonical(new String("host0"));
+        assertSame(host, TokenPool.canonical(new String("host0")));
+    }
+
+    public void testDisabledPool() {
+        TokenPool.setSize(0);
+        assertEquals(0, TokenPool.getSize());
+        String value = new String("lr");
+        assertSame(value, TokenPool.canonical(value));
+        assertNotSame(TokenPool.canonical(new String("lr")), TokenPool.canonical(new String("lr")));
+    }
+
+    public void testStackLeavesPoolSize() throws Exception {
+        TokenPool.setSize(100);
+        Simulation simulation = new Simulation();
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("javax.sip.STACK_NAME", "tokens");
+            properties.setProperty("gov.nist.javax.sip.TOKEN_POOL_SIZE", "16");
+            simulation.createSipStack(properties);
+            // the pool is shared by the stacks, only the system property sizes it
+            assertEquals(128, TokenPool.getSize());
+        } finally {
+            simulation.stop();
+        }
+    }
+
+    public void testParsedHeadersShareTokens() throws Exception {
+        Via first = (Via) ((ViaList) StringMsgParser.parseSIPHeader(
+                "Via: SIP/2.0/UDP proxy.example.com:5060;branch=z9hG4bK1;received=192.0.2.1\r\n")).getFirst();
+        Via second = (Via) ((ViaList) StringMsgParser.parseSIPHeader(
+                "Via: SIP/2.0/UDP proxy.example.com:5060;branch=z9hG4bK2;received=192.0.2.1\r\n")).getFirst();
+        assertSame(first.getTransport(), second.getTransport());
+        assertSame(first.getSentProtocol().getProtocolVersion(), second.getSentProtocol().getProtocolVersion());
+        assertSame(first.getHost(), second.getHost());
+        assertSame(first.getReceived(), second.getReceived());
+        assertNotSame(first.getBranch(), second.getBranch());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.core.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class SkewAwareStackExecutorTest extends TestCase {
+
+    private SkewAwareStackExecutor executor;
+
+    protected void setUp() throws Exception {
+        executor = new SkewAwareStackExecutor();
+        executor.start(4, 10);
+    }
+
+    protected void tearDown() throws Exception {
+        executor.stop();
+    }
+
+    public void testTasksOfAnIdKeepTheirOrder() throws Exception {
+        final int ids = 20;
+        final int tasksPerId = 500;
+        final List<List<Integer>> executed = new ArrayList<List<Integer>>();
+        for (int i = 0; i < ids; i++) {
+            executed.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        final CountDownLatch done = new CountDownLatch(ids * tasksPerId);
+        for (int n = 0; n < tasksPerId; n++) {
+            for (int i = 0; i < ids; i++) {
+                final List<Integer> sequence = executed.get(i);
+                final int value = n;
+                executor.addTaskLast(new Task("call-" + i) {
+                    public void execute() {
+                        sequence.add(value);
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> sequence : executed) {
+            Assert.assertEquals(tasksPerId, sequence.size());
+            for (int n = 0; n < tasksPerId; n++) {
+                Assert.assertEquals(n, sequence.get(n).intValue());
+            }
+        }
+        waitForIdleLanes();
+    }
+
+    public void testTaskFirstRunsBeforeQueuedTasksOfItsId() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(3);
+        executor.addTaskLast(new Task("call") {
+            public void execute() {
+                blocked.countDown();
+                await(release);
+                done.countDown();
+            }
+        });
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        executor.addTaskLast(recording("call", "last", executed, done));
+        executor.addTaskFirst(recording("call", "first", executed, done));
+        release.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("[first, last]", executed.toString());
+    }
+
+    public void testHotIdDoesNotHoldOtherIds() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        // every worker busy with a task of its own id
+        final CountDownLatch busy = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            executor.addTaskLast(new Task("busy-" + i) {
+                public void execute() {
+                    busy.countDown();
+                    await(release);
+                }
+            });
+        }
+        Assert.assertTrue(busy.await(5, TimeUnit.SECONDS));
+        // whatever their home worker, the tasks of the other ids end up on the free worker
+        final CountDownLatch done = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            executor.addTaskLast(recording("call-" + i, null, null, done));
+        }
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        waitForIdleLanes();
+    }
+
+    public void testUnorderedTasksRunOnAnyWorker() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch running = new CountDownLatch(1);
+        executor.addTaskLast(new Task("connection") {
+            public void execute() {
+                running.countDown();
+                await(release);
+            }
+        });
+        Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+        // same id as the blocked task, but no ordering required
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.addTaskLast(new UnorderedTask("connection") {
+            public void execute() {
+                done.countDown();
+            }
+        });
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    private void waitForIdleLanes() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getLaneCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, executor.getLaneCount());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(0, executor.getWorkerLoad(i));
+        }
+    }
+
+    private static Task recording(String id, final String name, final List<String> executed,
+            final CountDownLatch done) {
+        return new Task(id) {
+            public void execute() {
+                if (executed != null) {
+                    executed.add(name);
+                }
+                done.countDown();
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private abstract static class Task implements SIPTask {
+        private final String id;
+        private final long startTime = System.currentTimeMillis();
+
+        Task(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+    }
+
+    private abstract static class UnorderedTask extends Task implements UnorderedSIPTask {
+        UnorderedTask(String id) {
+            super(id);
+        }
+    }
+}
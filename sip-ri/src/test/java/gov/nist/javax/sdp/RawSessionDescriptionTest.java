@@ -0,0 +1,136 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sdp;
+
+import java.util.Arrays;
+
+import javax.sdp.MediaDescription;
+import javax.sdp.SdpParseException;
+
+import junit.framework.Assert;
+
+public class RawSessionDescriptionTest extends junit.framework.TestCase {
+
+    private static final String SDP = "v=0\r\n"
+            + "o=alice 2890844526 2890844526 IN IP4 atlanta.example.com\r\n"
+            + "s=-\r\n"
+            + "c=IN IP4 192.0.2.101\r\n"
+            + "t=0 0\r\n"
+            + "m=audio 49172 RTP/AVP 0 8 97\r\n"
+            + "a=rtpmap:0 PCMU/8000\r\n"
+            + "a=rtpmap:8 PCMA/8000\r\n"
+            + "a=rtpmap:97 iLBC/8000\r\n"
+            + "a=fmtp:97 mode=30\r\n"
+            + "a=sendrecv\r\n"
+            + "m=video 51372/2 RTP/AVP 31\r\n"
+            + "c=IN IP4 192.0.2.102\r\n"
+            + "a=rtpmap:31 H261/90000\r\n";
+
+    private RawSessionDescription parse() throws Exception {
+        return RawSessionDescription.parse(SDP.getBytes());
+    }
+
+    public void testUnmodifiedEncodedAsReceived() throws Exception {
+        Assert.assertEquals(SDP, parse().toString());
+        String lfOnly = SDP.replace("\r\n", "\n");
+        Assert.assertEquals(SDP, RawSessionDescription.parse(lfOnly.getBytes()).toString());
+    }
+
+    public void testFields() throws Exception {
+        RawSessionDescription sdp = parse();
+        Assert.assertEquals(2, sdp.getMediaCount());
+        Assert.assertEquals("audio", sdp.getMediaType(0));
+        Assert.assertEquals(49172, sdp.getMediaPort(0));
+        Assert.assertEquals(51372, sdp.getMediaPort(1));
+        Assert.assertEquals(Arrays.asList("0", "8", "97"), sdp.getMediaFormats(0));
+        Assert.assertEquals("192.0.2.101", sdp.getConnectionAddress(RawSessionDescription.SESSION_LEVEL));
+        Assert.assertNull(sdp.getConnectionAddress(0));
+        Assert.assertEquals("192.0.2.102", sdp.getConnectionAddress(1));
+        Assert.assertEquals("", sdp.getAttribute(0, "sendrecv"));
+        Assert.assertEquals(3, sdp.getAttributes(0, "rtpmap").size());
+        Assert.assertNull(sdp.getAttribute(1, "sendrecv"));
+        Assert.assertEquals("97 mode=30", sdp.getAttributeField(0, "fmtp").getValue());
+    }
+
+    public void testMalformedMediaPort() throws Exception {
+        RawSessionDescription sdp = RawSessionDescription.parse(("v=0\r\n"
+                + "m=audio\r\n"
+                + "m=video x RTP/AVP 31\r\n").getBytes());
+        Assert.assertEquals(2, sdp.getMediaCount());
+        for (int media = 0; media < 2; media++) {
+            try {
+                sdp.getMediaPort(media);
+                fail("malformed m= line accepted");
+            } catch (SdpParseException e) {
+                // expected
+            }
+        }
+        try {
+            sdp.setMediaPort(0, 20000);
+            fail("m= line without port accepted");
+        } catch (SdpParseException e) {
+            // expected
+        }
+        sdp.setMediaPort(1, 20002);
+        Assert.assertEquals(20002, sdp.getMediaPort(1));
+    }
+
+    public void testEdits() throws Exception {
+        RawSessionDescription sdp = parse();
+        sdp.setConnectionAddress(RawSessionDescription.SESSION_LEVEL, "IP4", "198.51.100.1");
+        sdp.setConnectionAddress(0, "IP4", "198.51.100.2");
+        sdp.setMediaPort(0, 20000);
+        sdp.setMediaPort(1, 20002);
+        sdp.retainMediaFormats(0, Arrays.asList("8", "101"));
+        sdp.setAttribute(0, "sendrecv", null);
+        sdp.addAttribute(0, "ptime", "20");
+        sdp.addAttribute(1, "sendonly", null);
+        Assert.assertEquals("v=0\r\n"
+                + "o=alice 2890844526 2890844526 IN IP4 atlanta.example.com\r\n"
+                + "s=-\r\n"
+                + "c=IN IP4 198.51.100.1\r\n"
+                + "t=0 0\r\n"
+                + "m=audio 20000 RTP/AVP 8\r\n"
+                + "c=IN IP4 198.51.100.2\r\n"
+                + "a=rtpmap:8 PCMA/8000\r\n"
+                + "a=sendrecv\r\n"
+                + "a=ptime:20\r\n"
+                + "m=video 20002/2 RTP/AVP 31\r\n"
+                + "c=IN IP4 192.0.2.102\r\n"
+                + "a=rtpmap:31 H261/90000\r\n"
+                + "a=sendonly\r\n", sdp.toString());
+        Assert.assertEquals("198.51.100.2", sdp.getConnectionAddress(0));
+        Assert.assertEquals("video", sdp.getMediaType(1));
+    }
+
+    public void testToSessionDescription() throws Exception {
+        SessionDescriptionImpl sessionDescription = parse().toSessionDescription();
+        Assert.assertEquals(2, sessionDescription.getMediaDescriptions(false).size());
+        MediaDescription audio = (MediaDescription) sessionDescription.getMediaDescriptions(false).get(0);
+        Assert.assertEquals(49172, audio.getMedia().getMediaPort());
+    }
+
+    public void testBadLine() throws Exception {
+        try {
+            RawSessionDescription.parse("v=0\r\nbad\r\n".getBytes());
+            fail("expected a parse exception");
+        } catch (java.text.ParseException e) {
+        }
+    }
+}
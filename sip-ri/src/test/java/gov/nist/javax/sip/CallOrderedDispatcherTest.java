@@ -0,0 +1,176 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class CallOrderedDispatcherTest extends TestCase {
+
+    private CallOrderedDispatcher dispatcher;
+
+    protected void setUp() throws Exception {
+        // the same dispatching as with virtual threads, on platform threads
+        dispatcher = new CallOrderedDispatcher(Executors.newCachedThreadPool());
+    }
+
+    protected void tearDown() throws Exception {
+        dispatcher.shutdown();
+    }
+
+    public void testCallbacksOfACallKeepTheirOrder() throws Exception {
+        final int calls = 50;
+        final int callbacks = 200;
+        final List<List<Integer>> delivered = new ArrayList<List<Integer>>();
+        for (int i = 0; i < calls; i++) {
+            delivered.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        final CountDownLatch done = new CountDownLatch(calls * callbacks);
+        for (int n = 0; n < callbacks; n++) {
+            for (int i = 0; i < calls; i++) {
+                final List<Integer> sequence = delivered.get(i);
+                final int value = n;
+                dispatcher.dispatch("call-" + i, new Runnable() {
+                    public void run() {
+                        sequence.add(value);
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> sequence : delivered) {
+            for (int n = 0; n < callbacks; n++) {
+                Assert.assertEquals(n, sequence.get(n).intValue());
+            }
+        }
+        waitForIdle();
+    }
+
+    public void testBlockedCallDoesNotHoldOtherCalls() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        dispatcher.dispatch("slow", new Runnable() {
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.add("slow-1");
+            }
+        });
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        final CountDownLatch others = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch("call-" + i, new Runnable() {
+                public void run() {
+                    others.countDown();
+                }
+            });
+        }
+        final CountDownLatch slowDone = new CountDownLatch(1);
+        dispatcher.dispatch("slow", new Runnable() {
+            public void run() {
+                delivered.add("slow-2");
+                slowDone.countDown();
+            }
+        });
+        Assert.assertTrue(others.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(delivered.isEmpty());
+        release.countDown();
+        Assert.assertTrue(slowDone.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("[slow-1, slow-2]", delivered.toString());
+        waitForIdle();
+    }
+
+    public void testFailingCallbackDoesNotStopTheCall() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        dispatcher.dispatch("call", new Runnable() {
+            public void run() {
+                throw new IllegalStateException("listener failure");
+            }
+        });
+        dispatcher.dispatch("call", new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    public void testRejectedCallIsScheduledAgain() throws Exception {
+        dispatcher.shutdown();
+        final AtomicBoolean rejecting = new AtomicBoolean(true);
+        dispatcher = new CallOrderedDispatcher(new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>()) {
+            public void execute(Runnable command) {
+                if (rejecting.get()) {
+                    throw new RejectedExecutionException("saturated");
+                }
+                super.execute(command);
+            }
+        });
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        try {
+            dispatcher.dispatch("call", new Runnable() {
+                public void run() {
+                    delivered.add("rejected");
+                }
+            });
+            Assert.fail("the executor rejects the call");
+        } catch (RejectedExecutionException e) {
+        }
+        // the mailbox is not left marked as running
+        Assert.assertEquals(0, dispatcher.getActiveCalls());
+        rejecting.set(false);
+
+        final CountDownLatch done = new CountDownLatch(1);
+        dispatcher.dispatch("call", new Runnable() {
+            public void run() {
+                delivered.add("accepted");
+                done.countDown();
+            }
+        });
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("[accepted]", delivered.toString());
+        waitForIdle();
+    }
+
+    private void waitForIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getActiveCalls() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, dispatcher.getActiveCalls());
+    }
+}
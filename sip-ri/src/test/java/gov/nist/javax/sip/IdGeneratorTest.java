@@ -0,0 +1,130 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class IdGeneratorTest extends TestCase {
+
+    public void testFormats() {
+        String tag = IdGenerator.generateTag();
+        assertTrue(tag, tag.matches("[0-9a-f]{16}"));
+
+        String branch = Utils.getInstance().generateBranchId();
+        assertTrue(branch, branch.matches("z9hG4bK-" + Utils.getSignature() + "-[0-9a-f]{32}"));
+
+        String callId = IdGenerator.generateCallIdentifier(0x2a, "node1", "10.0.0.1");
+        assertTrue(callId, callId.matches("002a\\.[0-9a-f]{32}\\.node1@10\\.0\\.0\\.1"));
+        assertEquals(0x2a, IdGenerator.getLane(callId));
+        assertEquals("node1", IdGenerator.getNodeId(callId));
+
+        callId = Utils.getInstance().generateCallIdentifier("10.0.0.1");
+        assertTrue(IdGenerator.getLane(callId) >= 0);
+        assertNull(IdGenerator.getNodeId(callId));
+    }
+
+    public void testForeignCallIds() {
+        assertEquals(-1, IdGenerator.getLane("16505551212@192.168.1.100"));
+        assertEquals(-1, IdGenerator.getLane("3c8e4b2a-7f11-4c2e-9d1b-0a2f6c5e8d41@10.0.0.1"));
+        assertNull(IdGenerator.getNodeId("a84b4c76e66710@pc33.atlanta.com"));
+        String callId = "a84b4c76e66710@pc33.atlanta.com";
+        assertEquals((callId.hashCode() & Integer.MAX_VALUE) % 8, IdGenerator.getLane(callId, 8));
+    }
+
+    public void testLanesAreTakenInTurn() {
+        int workers = 8;
+        int[] calls = new int[workers];
+        for (int i = 0; i < workers * 100; i++) {
+            calls[IdGenerator.getLane(IdGenerator.generateCallIdentifier(null, "127.0.0.1"), workers)]++;
+        }
+        for (int i = 0; i < workers; i++) {
+            assertEquals(100, calls[i]);
+        }
+    }
+
+    public void testUniqueAcrossThreads() throws Exception {
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    Set<String> local = new HashSet<String>();
+                    for (int i = 0; i < 20000; i++) {
+                        local.add(IdGenerator.generateTag());
+                        local.add(Utils.getInstance().generateBranchId());
+                        local.add(IdGenerator.generateCallIdentifier("n", "h"));
+                    }
+                    ids.addAll(local);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(8 * 3 * 20000, ids.size());
+    }
+
+    /**
+     * A generator such as SplittableRandom outputs a bijective mix of a state
+     * advanced by a constant, so two consecutive tags give the next one away.
+     */
+    public void testTagsAreNotDerivable() {
+        for (int i = 0; i < 1000; i++) {
+            long first = unmix(Long.parseUnsignedLong(IdGenerator.generateTag(), 16));
+            long second = unmix(Long.parseUnsignedLong(IdGenerator.generateTag(), 16));
+            long third = Long.parseUnsignedLong(IdGenerator.generateTag(), 16);
+            assertTrue(mix(second + (second - first)) != third);
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long unmix(long z) {
+        z = unshift(z, 31) * inverse(0x94d049bb133111ebL);
+        z = unshift(z, 27) * inverse(0xbf58476d1ce4e5b9L);
+        return unshift(z, 30);
+    }
+
+    private static long unshift(long z, int shift) {
+        long x = z;
+        for (int i = shift; i < 64; i += shift) {
+            x = z ^ (x >>> shift);
+        }
+        return x;
+    }
+
+    // odd multipliers are invertible modulo 2^64
+    private static long inverse(long a) {
+        long x = a;
+        for (int i = 0; i < 5; i++) {
+            x *= 2 - a * x;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.clientauthutils;
+
+import gov.nist.javax.sip.header.Authorization;
+import junit.framework.Assert;
+
+public class CredentialsCacheTest extends junit.framework.TestCase {
+
+    private static Authorization authorization(String realm) throws Exception {
+        Authorization authorization = new Authorization();
+        authorization.setScheme("Digest");
+        authorization.setRealm(realm);
+        authorization.setUsername("alice");
+        return authorization;
+    }
+
+    public void testOneHeaderPerRealm() throws Exception {
+        CredentialsCache cache = new CredentialsCache();
+        cache.cacheAuthorizationHeader("call-1", authorization("a.example.com"), -1);
+        cache.cacheAuthorizationHeader("call-1", authorization("b.example.com"), -1);
+        cache.cacheAuthorizationHeader("call-1", authorization("a.example.com"), -1);
+        Assert.assertEquals(2, cache.getCachedAuthorizationHeaders("call-1").size());
+        cache.removeAuthenticationHeader("call-1");
+        Assert.assertNull(cache.getCachedAuthorizationHeaders("call-1"));
+    }
+
+    public void testExpiry() throws Exception {
+        CredentialsCache cache = new CredentialsCache();
+        cache.cacheAuthorizationHeader("call-1", authorization("a.example.com"), 0);
+        Assert.assertNull(cache.getCachedAuthorizationHeaders("call-1"));
+        Assert.assertEquals(0, cache.size());
+        cache.cacheAuthorizationHeader("call-2", authorization("a.example.com"), 60);
+        Assert.assertNotNull(cache.getCachedAuthorizationHeaders("call-2"));
+    }
+
+    public void testBounded() throws Exception {
+        CredentialsCache cache = new CredentialsCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.cacheAuthorizationHeader("call-" + i, authorization("a.example.com"), 60 + i);
+        }
+        Assert.assertTrue(cache.size() <= 100);
+        Assert.assertNotNull(cache.getCachedAuthorizationHeaders("call-999"));
+        Assert.assertNull(cache.getCachedAuthorizationHeaders("call-0"));
+    }
+}
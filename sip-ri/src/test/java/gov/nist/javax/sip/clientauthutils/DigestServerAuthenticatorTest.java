@@ -0,0 +1,168 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.clientauthutils;
+
+import javax.sip.header.WWWAuthenticateHeader;
+import javax.sip.message.Response;
+
+import gov.nist.core.CommonLogger;
+import gov.nist.core.StackLogger;
+import gov.nist.javax.sip.header.HeaderFactoryImpl;
+import gov.nist.javax.sip.header.Authorization;
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import junit.framework.Assert;
+
+public class DigestServerAuthenticatorTest extends junit.framework.TestCase {
+
+    private static final StackLogger logger = CommonLogger.getLogger(DigestServerAuthenticatorTest.class);
+
+    private static final String REALM = "atlanta.example.com";
+
+    private static final String REGISTER = "REGISTER sip:atlanta.example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bKnashds7\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "To: Alice <sip:alice@atlanta.example.com>\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=456248\r\n"
+            + "Call-ID: 843817637684230@998sdasdh09\r\n"
+            + "CSeq: 1826 REGISTER\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    private DigestServerAuthenticator authenticator = new DigestServerAuthenticator(REALM,
+            "secret".getBytes(), DigestServerAuthenticator.DEFAULT_NONCE_LIFETIME);
+
+    private SIPRequest register(String algorithm, String password, String nonce) throws Exception {
+        return register(algorithm, password, nonce, "auth", null);
+    }
+
+    private SIPRequest register(String algorithm, String password, String nonce, String qop, String body)
+            throws Exception {
+        SIPRequest request = (SIPRequest) new StringMsgParser().parseSIPMessage(REGISTER.getBytes(), true, false, null);
+        if (body != null) {
+            request.setContent(body, new HeaderFactoryImpl().createContentTypeHeader("text", "plain"));
+        }
+        String response = MessageDigestAlgorithm.calculateResponse(algorithm, "alice", REALM, password, nonce,
+                "00000001", "0a4f113b", "REGISTER", "sip:atlanta.example.com", body, qop, logger);
+        Authorization authorization = new Authorization();
+        authorization.setScheme(DigestServerAuthenticator.DEFAULT_SCHEME);
+        authorization.setUsername("alice");
+        authorization.setRealm(REALM);
+        authorization.setNonce(nonce);
+        authorization.setURI(request.getRequestURI());
+        authorization.setAlgorithm(algorithm);
+        authorization.setQop(qop);
+        authorization.setNonceCount(1);
+        authorization.setCNonce("0a4f113b");
+        authorization.setResponse(response);
+        request.addHeader(authorization);
+        return request;
+    }
+
+    public void testAuthenticateWithHA1() throws Exception {
+        String ha1 = DigestServerAuthenticator.computeHA1(DigestServerAuthenticator.MD5, "alice", REALM, "secret");
+        SIPRequest request = register(DigestServerAuthenticator.MD5, "secret", authenticator.generateNonce());
+        Assert.assertEquals(DigestServerAuthenticator.Result.AUTHENTICATED, authenticator.authenticate(request, false, ha1));
+
+        request = register(DigestServerAuthenticator.MD5, "wrong", authenticator.generateNonce());
+        Assert.assertEquals(DigestServerAuthenticator.Result.FAILED, authenticator.authenticate(request, false, ha1));
+    }
+
+    public void testAuthenticateSha256() throws Exception {
+        final String ha1 = DigestServerAuthenticator.computeHA1(DigestServerAuthenticator.SHA_256, "alice", REALM, "secret");
+        Assert.assertEquals(64, ha1.length());
+        SIPRequest request = register(DigestServerAuthenticator.SHA_256, "secret", authenticator.generateNonce());
+        Assert.assertEquals(DigestServerAuthenticator.Result.AUTHENTICATED,
+                authenticator.authenticate(request, false, (username, realm, algorithm) -> ha1));
+    }
+
+    public void testAuthenticateAuthInt() throws Exception {
+        String ha1 = DigestServerAuthenticator.computeHA1(DigestServerAuthenticator.MD5, "alice", REALM, "secret");
+        SIPRequest request = register(DigestServerAuthenticator.MD5, "secret", authenticator.generateNonce(),
+                "auth-int", "some body");
+        Assert.assertEquals(DigestServerAuthenticator.Result.AUTHENTICATED, authenticator.authenticate(request, false, ha1));
+
+        // the digest covers the body
+        request.setContent("other body", new HeaderFactoryImpl().createContentTypeHeader("text", "plain"));
+        Assert.assertEquals(DigestServerAuthenticator.Result.FAILED, authenticator.authenticate(request, false, ha1));
+
+        request = register(DigestServerAuthenticator.MD5, "secret", authenticator.generateNonce(), "auth-int", null);
+        Assert.assertEquals(DigestServerAuthenticator.Result.AUTHENTICATED, authenticator.authenticate(request, false, ha1));
+    }
+
+    public void testUnknownAlgorithmRejected() throws Exception {
+        Assert.assertFalse(MessageDigestAlgorithm.isSupported("SHA-1"));
+        Assert.assertTrue(MessageDigestAlgorithm.isSupported("sha-256-sess"));
+        try {
+            DigestServerAuthenticator.computeHA1("SHA-1", "alice", REALM, "secret");
+            fail("unknown algorithm accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        // a response computed with MD5 but claiming an unknown algorithm
+        final String ha1 = DigestServerAuthenticator.computeHA1(DigestServerAuthenticator.MD5, "alice", REALM, "secret");
+        SIPRequest request = register(DigestServerAuthenticator.MD5, "secret", authenticator.generateNonce());
+        ((Authorization) request.getHeader(Authorization.NAME)).setAlgorithm("SHA-1");
+        Assert.assertEquals(DigestServerAuthenticator.Result.FAILED, authenticator.authenticate(request, false, ha1));
+        Assert.assertEquals(DigestServerAuthenticator.Result.FAILED,
+                authenticator.authenticate(request, false, (username, realm, algorithm) -> ha1));
+    }
+
+    public void testNonces() throws Exception {
+        long now = System.currentTimeMillis();
+        String nonce = authenticator.generateNonce(now);
+        Assert.assertEquals(DigestServerAuthenticator.Result.AUTHENTICATED, authenticator.validateNonce(nonce, now + 1000));
+        Assert.assertEquals(DigestServerAuthenticator.Result.STALE_NONCE,
+                authenticator.validateNonce(nonce, now + DigestServerAuthenticator.DEFAULT_NONCE_LIFETIME + 1));
+        DigestServerAuthenticator other = new DigestServerAuthenticator(REALM);
+        Assert.assertEquals(DigestServerAuthenticator.Result.FAILED, other.validateNonce(nonce, now));
+        Assert.assertEquals(DigestServerAuthenticator.Result.FAILED, authenticator.validateNonce("garbage", now));
+        Assert.assertEquals(DigestServerAuthenticator.Result.FAILED, authenticator.validateNonce(null, now));
+    }
+
+    public void testStaleNonceReportedForValidCredentials() throws Exception {
+        String ha1 = DigestServerAuthenticator.computeHA1(DigestServerAuthenticator.MD5, "alice", REALM, "secret");
+        String nonce = authenticator.generateNonce(System.currentTimeMillis() - 2 * DigestServerAuthenticator.DEFAULT_NONCE_LIFETIME);
+        Assert.assertEquals(DigestServerAuthenticator.Result.STALE_NONCE,
+                authenticator.authenticate(register(DigestServerAuthenticator.MD5, "secret", nonce), false, ha1));
+        Assert.assertEquals(DigestServerAuthenticator.Result.FAILED,
+                authenticator.authenticate(register(DigestServerAuthenticator.MD5, "wrong", nonce), false, ha1));
+    }
+
+    public void testNoCredentials() throws Exception {
+        SIPRequest request = (SIPRequest) new StringMsgParser().parseSIPMessage(REGISTER.getBytes(), true, false, null);
+        Assert.assertEquals(DigestServerAuthenticator.Result.NO_CREDENTIALS, authenticator.authenticate(request, false, "ha1"));
+        Assert.assertEquals(DigestServerAuthenticator.Result.NO_CREDENTIALS,
+                authenticator.authenticate(register(DigestServerAuthenticator.MD5, "secret", "n"), true, "ha1"));
+    }
+
+    public void testChallenges() throws Exception {
+        SIPRequest request = (SIPRequest) new StringMsgParser().parseSIPMessage(REGISTER.getBytes(), true, false, null);
+        SIPResponse response = request.createResponse(Response.UNAUTHORIZED);
+        authenticator.setAlgorithms(DigestServerAuthenticator.SHA_256, DigestServerAuthenticator.MD5);
+        authenticator.generateChallenge(new HeaderFactoryImpl(), response, true);
+        java.util.ListIterator<?> challenges = response.getHeaders(WWWAuthenticateHeader.NAME);
+        WWWAuthenticateHeader first = (WWWAuthenticateHeader) challenges.next();
+        WWWAuthenticateHeader second = (WWWAuthenticateHeader) challenges.next();
+        Assert.assertFalse(challenges.hasNext());
+        Assert.assertEquals("SHA-256", first.getAlgorithm());
+        Assert.assertEquals("MD5", second.getAlgorithm());
+        Assert.assertTrue(first.isStale());
+        Assert.assertEquals(DigestServerAuthenticator.Result.AUTHENTICATED, authenticator.validateNonce(first.getNonce()));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.header;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import javax.sip.header.RouteHeader;
+
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import junit.framework.TestCase;
+
+public class HeaderArrayListTest extends TestCase {
+
+    public void testMatchesLinkedList() {
+        Random random = new Random(42);
+        HeaderArrayList<Integer> list = new HeaderArrayList<Integer>();
+        List<Integer> expected = new LinkedList<Integer>();
+        for (int i = 0; i < 20000; i++) {
+            int operation = random.nextInt(6);
+            if (operation <= 1 || expected.isEmpty()) {
+                int index = operation == 0 ? 0 : random.nextInt(expected.size() + 1);
+                list.add(index, i);
+                expected.add(index, i);
+            } else if (operation == 2) {
+                list.add(i);
+                expected.add(i);
+            } else if (operation == 3) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            } else if (operation == 4) {
+                assertEquals(expected.remove(0), list.remove(0));
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, -i), list.set(index, -i));
+            }
+            assertEquals(expected, list);
+            if (random.nextInt(1000) == 0) {
+                list.clear();
+                expected.clear();
+            }
+        }
+    }
+
+    public void testListIterator() {
+        HeaderArrayList<String> list = new HeaderArrayList<String>();
+        list.add("b");
+        list.add(0, "a");
+        list.add("d");
+        for (ListIterator<String> it = list.listIterator(); it.hasNext();) {
+            if (it.next().equals("b")) {
+                it.add("c");
+            } else if (it.previous().equals("d")) {
+                it.next();
+                it.remove();
+            } else {
+                it.next();
+            }
+        }
+        assertEquals("[a, b, c]", list.toString());
+        try {
+            list.get(3);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    public void testProxyPushesViaAndPopsRoute() throws Exception {
+        String invite = "INVITE sip:bob@biloxi.example.com SIP/2.0\r\n"
+                + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bKnashds8\r\n"
+                + "Max-Forwards: 70\r\n"
+                + "Route: <sip:p1.example.com;lr>,<sip:p2.example.com;lr>\r\n"
+                + "To: Bob <sip:bob@biloxi.example.com>\r\n"
+                + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+                + "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+                + "CSeq: 314159 INVITE\r\n"
+                + "Content-Length: 0\r\n\r\n";
+        SIPRequest request = (SIPRequest) new StringMsgParser().parseSIPMessage(invite.getBytes("UTF-8"), true,
+                false, null);
+        Via via = new Via();
+        via.setHost("p1.example.com");
+        via.setTransport("UDP");
+        via.setBranch("z9hG4bK1d4790.1");
+        request.addFirst(via);
+        request.removeFirst(RouteHeader.NAME);
+
+        assertEquals("p1.example.com", request.getTopmostVia().getHost());
+        assertEquals(2, request.getViaHeaders().size());
+        assertEquals(1, request.getRouteHeaders().size());
+        String encoded = request.encode();
+        assertTrue(encoded, encoded.indexOf("Via: SIP/2.0/UDP p1.example.com;branch=z9hG4bK1d4790.1,"
+                + "SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bKnashds8\r\n") >= 0);
+        assertTrue(encoded, encoded.indexOf("Route: <sip:p2.example.com;lr>\r\n") >= 0);
+
+        ViaList vias = (ViaList) request.getViaHeaders().clone();
+        assertEquals(via, vias.pollFirst());
+        assertEquals("pc33.atlanta.example.com", vias.peekFirst().getHost());
+        assertNull(new ViaList().peekFirst());
+    }
+}
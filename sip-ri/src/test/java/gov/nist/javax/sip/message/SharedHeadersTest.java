@@ -0,0 +1,187 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.message;
+
+import java.util.ListIterator;
+
+import javax.sip.header.ServerHeader;
+import javax.sip.header.ToHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.Request;
+
+import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.header.Server;
+import gov.nist.javax.sip.header.To;
+import gov.nist.javax.sip.header.Via;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import junit.framework.Assert;
+
+public class SharedHeadersTest extends junit.framework.TestCase {
+
+    private static final String INVITE = "INVITE sip:bob@biloxi.example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bK776asdhds\r\n"
+            + "Via: SIP/2.0/UDP proxy.atlanta.example.com;branch=z9hG4bK1\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "Route: <sip:p1.example.com;lr>\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: <sip:alice@pc33.atlanta.example.com>\r\n"
+            + "Content-Type: application/sdp\r\n"
+            + "Content-Length: 4\r\n\r\n"
+            + "v=0\n";
+
+    private SIPRequest request;
+
+    private String encodedRequest;
+
+    public void setUp() throws Exception {
+        request = (SIPRequest) new StringMsgParser().parseSIPMessage(INVITE.getBytes(), true, false, null);
+        encodedRequest = request.encode();
+    }
+
+    public void testResponseSharesHeaders() throws Exception {
+        SIPResponse response = request.createResponse(180);
+        Assert.assertSame(request.toHeader, response.toHeader);
+        Assert.assertSame(request.cSeqHeader, response.cSeqHeader);
+        Assert.assertTrue(response.encode().contains("CSeq: 314159 INVITE\r\n"));
+        Assert.assertEquals(request.getTransactionId(), response.getTransactionId());
+        Assert.assertEquals("a84b4c76e66710@pc33.atlanta.example.com:1928301774", response.getDialogId(true, null));
+        Assert.assertSame(request.toHeader, response.toHeader);
+    }
+
+    public void testResponseCopiesOnAccess() throws Exception {
+        SIPResponse response = request.createResponse(200);
+        ToHeader to = response.getTo();
+        Assert.assertNotSame(request.toHeader, to);
+        to.setTag("a6c85cf");
+        Assert.assertEquals("a6c85cf", response.getToTag());
+        Assert.assertNull(request.getToTag());
+
+        ((ViaHeader) response.getHeader(ViaHeader.NAME)).setBranch("z9hG4bKchanged");
+        Assert.assertEquals("z9hG4bK776asdhds", request.getTopmostVia().getBranch());
+        Assert.assertEquals("z9hG4bKchanged", response.getTopmostVia().getBranch());
+        Assert.assertEquals(encodedRequest, request.encode());
+    }
+
+    public void testRequestCopiesOnAccess() throws Exception {
+        SIPResponse response = request.createResponse(100);
+        String encodedResponse = response.encode();
+        request.getTo().setTag("other");
+        request.getCSeq().setSeqNumber(1);
+        ListIterator<SIPHeader> vias = request.getHeaders(ViaHeader.NAME);
+        ((Via) vias.next()).setBranch("z9hG4bKchanged");
+        Assert.assertEquals(encodedResponse, response.encode());
+        Assert.assertNull(response.getToTag());
+    }
+
+    public void testSharedHeaderOfResponseIsPrivateOnceCopied() throws Exception {
+        SIPResponse response = request.createResponse(180);
+        ToHeader to = response.getTo();
+        Assert.assertSame(to, response.getTo());
+        Assert.assertSame(to, response.getHeader(ToHeader.NAME));
+        response.setToTag("a6c85cf");
+        Assert.assertEquals("a6c85cf", to.getTag());
+        Assert.assertTrue(response.encode().contains(";tag=a6c85cf"));
+    }
+
+    public void testCancel() throws Exception {
+        SIPRequest cancel = request.createCancelRequest();
+        Assert.assertEquals(Request.CANCEL, cancel.getCSeq().getMethod());
+        Assert.assertEquals(Request.INVITE, request.getCSeq().getMethod());
+        Assert.assertEquals(1, cancel.getViaHeaders().size());
+        cancel.getTopmostVia().setBranch("z9hG4bKcancel");
+        cancel.getRouteHeaders().clear();
+        Assert.assertEquals(encodedRequest, request.encode());
+    }
+
+    public void testAck() throws Exception {
+        SIPRequest ack = request.createAckRequest((To) request.getTo());
+        Assert.assertEquals(Request.ACK, ack.getCSeq().getMethod());
+        Assert.assertEquals(0, ack.getContentLength().getContentLength());
+        Assert.assertNull(ack.getHeader("Contact"));
+        Assert.assertEquals(Request.INVITE, request.getCSeq().getMethod());
+        Assert.assertEquals(4, request.getContentLength().getContentLength());
+        Assert.assertNotNull(request.getHeader("Contact"));
+        ack.getFrom().setTag("changed");
+        Assert.assertEquals("1928301774", request.getFromTag());
+    }
+
+    public void testErrorAck() throws Exception {
+        SIPResponse response = request.createResponse(486);
+        response.getTo().setTag("a6c85cf");
+        SIPRequest ack = request.createErrorAck((To) response.getTo());
+        Assert.assertEquals(Request.ACK, ack.getCSeq().getMethod());
+        Assert.assertEquals("a6c85cf", ack.getToTag());
+        ack.getTopmostVia().setBranch("z9hG4bKack");
+        ack.getTo().setTag("other");
+        Assert.assertEquals("a6c85cf", response.getToTag());
+        Assert.assertEquals(encodedRequest, request.encode());
+    }
+
+    public void testHeaderObtainedBeforeResponseIsNotShared() throws Exception {
+        ToHeader to = request.getTo();
+        ViaHeader via = (ViaHeader) request.getHeader(ViaHeader.NAME);
+        SIPResponse response = request.createResponse(200);
+        Assert.assertNotSame(to, response.toHeader);
+        String encodedResponse = response.encode();
+        to.setTag("late");
+        via.setBranch("z9hG4bKlate");
+        Assert.assertEquals(encodedResponse, response.encode());
+        Assert.assertNull(response.getToTag());
+    }
+
+    public void testHeaderAddedByApplicationIsNotShared() throws Exception {
+        SIPRequest outgoing = (SIPRequest) request.clone();
+        To to = new To();
+        to.setAddress(request.getTo().getAddress());
+        outgoing.setHeader(to);
+        SIPResponse response = outgoing.createResponse(180);
+        Assert.assertNotSame(to, response.toHeader);
+        to.setTag("late");
+        Assert.assertNull(response.getToTag());
+    }
+
+    public void testConcurrentChangesAreNotLost() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            final SIPResponse response = request.createResponse(180);
+            Thread adder = new Thread() {
+                public void run() {
+                    response.addHeader(new Server());
+                }
+            };
+            adder.start();
+            response.getTo();
+            response.getFrom();
+            response.getCSeq();
+            response.getCallId();
+            adder.join();
+            Assert.assertNotNull(response.getHeader(ServerHeader.NAME));
+            Assert.assertTrue(response.encode().contains(ServerHeader.NAME + ":"));
+        }
+    }
+
+    public void testCloneDoesNotShare() throws Exception {
+        SIPRequest clone = (SIPRequest) request.clone();
+        Assert.assertNotSame(request.toHeader, clone.toHeader);
+        Assert.assertFalse(request.toHeader.isShared());
+        Assert.assertFalse(clone.toHeader.isShared());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.parser;
+
+import javax.sip.header.ContactHeader;
+import javax.sip.header.MaxForwardsHeader;
+import javax.sip.header.ToHeader;
+
+import gov.nist.javax.sip.address.SipUri;
+import gov.nist.javax.sip.header.Contact;
+import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.message.SIPRequest;
+import junit.framework.Assert;
+
+public class EncodedBodyCacheTest extends junit.framework.TestCase {
+
+    private static final String MESSAGE = "INVITE sip:bob@biloxi.example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bK776asdhds\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "To: Bob   <sip:bob@biloxi.example.com>\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: <sip:alice@pc33.atlanta.example.com>;expires=60, <sip:alice@192.0.2.4>\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    private SIPRequest parse() throws Exception {
+        return (SIPRequest) new StringMsgParser().parseSIPMessage(MESSAGE.getBytes(), true, false, null);
+    }
+
+    public void testUnmodifiedHeadersEncodedAsReceived() throws Exception {
+        SIPRequest request = parse();
+        Assert.assertTrue(((SIPHeader) request.getHeader(ToHeader.NAME)).hasEncodedBody());
+        String encoded = new String(request.encodeAsBytes("UDP"));
+        Assert.assertTrue(encoded.contains("To: Bob   <sip:bob@biloxi.example.com>\r\n"));
+        Assert.assertTrue(encoded.contains("Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bK776asdhds\r\n"));
+        Assert.assertTrue(request.getTopmostVia().hasEncodedBody());
+    }
+
+    public void testModifiedHeadersEncodedAgain() throws Exception {
+        SIPRequest request = parse();
+        request.getTo().setTag("a6c85cf");
+        ((MaxForwardsHeader) request.getHeader(MaxForwardsHeader.NAME)).decrementMaxForwards();
+        request.getTopmostVia().setReceived("192.0.2.1");
+        String encoded = new String(request.encodeAsBytes("TCP"));
+        Assert.assertTrue(encoded.contains("To: \"Bob\" <sip:bob@biloxi.example.com>;tag=a6c85cf\r\n"));
+        Assert.assertTrue(encoded.contains("Max-Forwards: 69\r\n"));
+        Assert.assertTrue(encoded.contains(
+                "Via: SIP/2.0/TCP pc33.atlanta.example.com;branch=z9hG4bK776asdhds;received=192.0.2.1\r\n"));
+    }
+
+    public void testMutablePartHandedOut() throws Exception {
+        SIPRequest request = parse();
+        Contact contact = (Contact) request.getHeader(ContactHeader.NAME);
+        // the contact line holds two headers, it is not cached
+        Assert.assertFalse(contact.hasEncodedBody());
+        SIPHeader from = (SIPHeader) request.getFrom();
+        Assert.assertTrue(from.hasEncodedBody());
+        ((SipUri) request.getFrom().getAddress().getURI()).setUser("carol");
+        Assert.assertFalse(from.hasEncodedBody());
+        Assert.assertTrue(request.encode().contains("From: \"Alice\" <sip:carol@atlanta.example.com>;tag=1928301774\r\n"));
+    }
+
+    public void testClonedHeadersKeepCache() throws Exception {
+        SIPRequest request = parse();
+        SIPRequest clone = (SIPRequest) request.clone();
+        Assert.assertTrue(((SIPHeader) clone.getHeader(ToHeader.NAME)).hasEncodedBody());
+        clone.getTo().setTag("a6c85cf");
+        Assert.assertTrue(((SIPHeader) request.getHeader(ToHeader.NAME)).hasEncodedBody());
+        Assert.assertEquals(request.getTo().getAddress(), clone.getTo().getAddress());
+    }
+}
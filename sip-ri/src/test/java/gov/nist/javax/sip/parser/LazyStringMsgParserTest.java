@@ -0,0 +1,102 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.parser;
+
+import java.util.ListIterator;
+
+import javax.sip.header.AllowHeader;
+import javax.sip.header.ContactHeader;
+import javax.sip.header.SubjectHeader;
+
+import gov.nist.javax.sip.header.SIPHeader;
+import gov.nist.javax.sip.message.SIPMessage;
+import gov.nist.javax.sip.message.SIPRequest;
+import junit.framework.Assert;
+
+public class LazyStringMsgParserTest extends junit.framework.TestCase {
+
+    private static final String HEADERS = "INVITE sip:bob@biloxi.example.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bK776asdhds\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>\r\n"
+            + "f: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "m:   <sip:alice@pc33.atlanta.example.com>\r\n"
+            + "Allow: INVITE, ACK\r\n"
+            + "X-Custom:  some   value\r\n"
+            + "Allow: BYE,\r\n"
+            + " CANCEL\r\n"
+            + "Subject: lunch\r\n"
+            + "Content-Type: application/sdp\r\n"
+            + "Content-Length: 4\r\n\r\n";
+
+    private static final String MESSAGE = HEADERS + "v=0\n";
+
+    public void testOnlyStackHeadersParsed() throws Exception {
+        SIPMessage msg = new LazyStringMsgParser().parseSIPMessage(MESSAGE.getBytes(), true, false, null);
+        Assert.assertEquals("a84b4c76e66710@pc33.atlanta.example.com", msg.getCallId().getCallId());
+        Assert.assertEquals("1928301774", msg.getFromTag());
+        Assert.assertEquals("z9hG4bK776asdhds", msg.getTopmostVia().getBranch());
+        Assert.assertEquals(4, msg.getContentLength().getContentLength());
+        Assert.assertEquals("v=0\n", new String(msg.getRawContent()));
+        Assert.assertTrue(msg.encode().contains("m:   <sip:alice@pc33.atlanta.example.com>\r\n"));
+    }
+
+    public void testUntouchedHeadersEncodedVerbatim() throws Exception {
+        SIPMessage msg = new LazyStringMsgParser().parseSIPMessage(MESSAGE.getBytes(), true, false, null);
+        String encoded = new String(msg.encodeAsBytes("UDP"));
+        Assert.assertTrue(encoded.contains("m:   <sip:alice@pc33.atlanta.example.com>\r\n"));
+        Assert.assertTrue(encoded.contains("X-Custom:  some   value\r\n"));
+        Assert.assertTrue(encoded.contains("Allow: INVITE, ACK\r\nAllow: BYE,\r\n CANCEL\r\n"));
+        Assert.assertTrue(encoded.endsWith("\r\n\r\nv=0\n"));
+    }
+
+    public void testHeadersParsedOnAccess() throws Exception {
+        SIPMessage msg = new LazyStringMsgParser().parseSIPMessage(MESSAGE.getBytes(), true, false, null);
+        ContactHeader contact = (ContactHeader) msg.getHeader(ContactHeader.NAME);
+        Assert.assertEquals("sip:alice@pc33.atlanta.example.com", contact.getAddress().getURI().toString());
+        Assert.assertTrue(msg.encode().contains("Contact: <sip:alice@pc33.atlanta.example.com>\r\n"));
+
+        ListIterator<SIPHeader> allows = msg.getHeaders(AllowHeader.NAME);
+        int count = 0;
+        while (allows.hasNext()) {
+            allows.next();
+            count++;
+        }
+        Assert.assertEquals(4, count);
+        Assert.assertEquals("lunch", ((SubjectHeader) msg.getHeader(SubjectHeader.NAME)).getSubject());
+        Assert.assertEquals("some   value", msg.getHeader("x-custom").toString().split(":", 2)[1].trim());
+    }
+
+    public void testSameResultAsEagerParser() throws Exception {
+        SIPMessage lazy = new LazyStringMsgParser().parseSIPMessage(MESSAGE.getBytes(), true, false, null);
+        SIPMessage eager = new StringMsgParser().parseSIPMessage(MESSAGE.getBytes(), true, false, null);
+        Assert.assertEquals(eager, lazy);
+        Assert.assertEquals(eager.encode(), lazy.encode());
+    }
+
+    public void testCloneKeepsRawHeaders() throws Exception {
+        SIPRequest msg = (SIPRequest) new LazyStringMsgParser().parseSIPMessage(MESSAGE.getBytes(), true, false, null);
+        SIPRequest clone = (SIPRequest) msg.clone();
+        Assert.assertTrue(clone.encode().contains("m:   <sip:alice@pc33.atlanta.example.com>\r\n"));
+        Assert.assertNotNull(clone.getHeader(ContactHeader.NAME));
+        Assert.assertTrue(msg.encode().contains("m:   <sip:alice@pc33.atlanta.example.com>\r\n"));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Properties;
+
+import javax.sip.ListeningPoint;
+import javax.sip.SipFactory;
+
+import gov.nist.javax.sip.SipProviderImpl;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import gov.nist.javax.sip.stack.state.SerializableDialogCodec;
+import gov.nist.javax.sip.stack.state.StateCodec;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class SIPDialogCodecTest extends TestCase {
+
+    private static final String OK = "SIP/2.0 200 OK\r\n"
+            + "Via: SIP/2.0/UDP 127.0.0.1:15099;branch=z9hG4bK776asdhds\r\n"
+            + "Record-Route: <sip:p1.example.com;lr>,<sip:p2.example.com:5080;lr>\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>;tag=a6c85cf\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: codec@127.0.0.1\r\n"
+            + "CSeq: 314159 SUBSCRIBE\r\n"
+            + "Contact: <sip:bob@192.0.2.4;transport=tcp>\r\n"
+            + "Expires: 3600\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    private SipStackImpl sipStack;
+
+    private SipProviderImpl sipProvider;
+
+    protected void setUp() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "SIPDialogCodecTest");
+        SipFactory sipFactory = SipFactory.getInstance();
+        sipFactory.setPathName("gov.nist");
+        sipFactory.resetFactory();
+        sipStack = (SipStackImpl) sipFactory.createSipStack(properties);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint("127.0.0.1", 15099, ListeningPoint.UDP);
+        sipProvider = (SipProviderImpl) sipStack.createSipProvider(listeningPoint);
+    }
+
+    protected void tearDown() throws Exception {
+        sipStack.stop();
+    }
+
+    public void testDialogRoundTrip() throws Exception {
+        SIPDialog dialog = createDialog();
+        dialog.setApplicationData("call data");
+        SIPDialog decoded = roundTrip(new SIPDialogCodec(), dialog);
+        assertSameDialog(dialog, decoded);
+        Assert.assertEquals("call data", decoded.getApplicationData());
+    }
+
+    public void testPassivatedDialogRoundTrip() throws Exception {
+        SIPDialog dialog = createDialog();
+        dialog.passivate();
+        SIPDialog decoded = roundTrip(new SIPDialogCodec(), dialog);
+        assertSameDialog(dialog, decoded);
+        Assert.assertNull(decoded.getApplicationData());
+    }
+
+    public void testSmallerThanJavaSerialization() throws Exception {
+        SIPDialog dialog = createDialog();
+        dialog.passivate();
+        Assert.assertTrue(encode(new SIPDialogCodec(), dialog).length
+                < encode(new SerializableDialogCodec(), dialog).length);
+    }
+
+    private SIPDialog createDialog() throws Exception {
+        SIPResponse response = (SIPResponse) new StringMsgParser().parseSIPMessage(OK.getBytes(), true, false, null);
+        SIPDialog dialog = new SIPDialog(sipProvider, response);
+        dialog.setDialogId(response.getDialogId(false));
+        dialog.setState(SIPDialog.CONFIRMED_STATE);
+        return dialog;
+    }
+
+    private static byte[] encode(StateCodec<SIPDialog> codec, SIPDialog dialog) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.encode(dialog, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private SIPDialog roundTrip(StateCodec<SIPDialog> codec, SIPDialog dialog) throws Exception {
+        SIPDialog decoded = codec.decode(new DataInputStream(new ByteArrayInputStream(encode(codec, dialog))));
+        decoded.activate(sipStack, sipProvider);
+        return decoded;
+    }
+
+    private static void assertSameDialog(SIPDialog expected, SIPDialog actual) {
+        Assert.assertEquals(expected.getDialogId(), actual.getDialogId());
+        Assert.assertEquals(expected.getCallId().getCallId(), actual.getCallId().getCallId());
+        Assert.assertEquals(expected.getLocalTag(), actual.getLocalTag());
+        Assert.assertEquals(expected.getRemoteTag(), actual.getRemoteTag());
+        Assert.assertEquals(expected.getLocalParty(), actual.getLocalParty());
+        Assert.assertEquals(expected.getRemoteParty(), actual.getRemoteParty());
+        Assert.assertEquals(expected.getRemoteTarget(), actual.getRemoteTarget());
+        Assert.assertEquals(expected.routeList.encode(), actual.routeList.encode());
+        Assert.assertEquals(expected.getLocalSeqNumber(), actual.getLocalSeqNumber());
+        Assert.assertEquals(expected.getRemoteSeqNumber(), actual.getRemoteSeqNumber());
+        Assert.assertEquals(expected.getState(), actual.getState());
+        Assert.assertEquals(expected.isServer(), actual.isServer());
+        Assert.assertEquals(expected.getMethod(), actual.getMethod());
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.proxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Properties;
+
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.ListeningPoint;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.ServerTransaction;
+import javax.sip.SipFactory;
+import javax.sip.SipListener;
+import javax.sip.SipProvider;
+import javax.sip.TimeoutEvent;
+import javax.sip.TransactionTerminatedEvent;
+import javax.sip.address.Address;
+import javax.sip.address.AddressFactory;
+import javax.sip.address.SipURI;
+import javax.sip.header.HeaderFactory;
+import javax.sip.header.MaxForwardsHeader;
+import javax.sip.header.ToHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.MessageFactory;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.stack.HopImpl;
+import gov.nist.javax.sip.stack.simulation.Simulation;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.memory.MemoryNetwork;
+import junit.framework.TestCase;
+
+public class StatelessForwarderTest extends TestCase {
+
+    private Simulation simulation;
+
+    private AddressFactory addressFactory;
+
+    private HeaderFactory headerFactory;
+
+    private MessageFactory messageFactory;
+
+    private SipProvider caller;
+
+    private SipProvider callee;
+
+    private SipStackImpl proxy;
+
+    private final List<Integer> callerResponses = new ArrayList<Integer>();
+
+    private final List<Request> calleeRequests = new ArrayList<Request>();
+
+    private int proxyEvents;
+
+    protected void setUp() throws Exception {
+        SipFactory sipFactory = SipFactory.getInstance();
+        addressFactory = sipFactory.createAddressFactory();
+        headerFactory = sipFactory.createHeaderFactory();
+        messageFactory = sipFactory.createMessageFactory();
+        MemoryNetwork.getDefault().reset();
+        simulation = new Simulation();
+        caller = createProvider("caller", 15070, new Listener() {
+            public void processResponse(ResponseEvent responseEvent) {
+                callerResponses.add(responseEvent.getResponse().getStatusCode());
+            }
+        });
+        callee = createProvider("callee", 15080, new Listener() {
+            public void processRequest(RequestEvent requestEvent) {
+                Request request = requestEvent.getRequest();
+                calleeRequests.add(request);
+                if (Request.ACK.equals(request.getMethod())) {
+                    return;
+                }
+                try {
+                    ServerTransaction serverTransaction = callee.getNewServerTransaction(request);
+                    Response response = messageFactory.createResponse(Response.OK, request);
+                    ((ToHeader) response.getHeader(ToHeader.NAME)).setTag("callee");
+                    response.addHeader(headerFactory.createContactHeader(
+                            addressFactory.createAddress("sip:callee@127.0.0.1:15080")));
+                    serverTransaction.sendResponse(response);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        SipProvider proxyProvider = createProvider("proxy", 15060, new Listener() {
+            public void processRequest(RequestEvent requestEvent) {
+                proxyEvents++;
+            }
+
+            public void processResponse(ResponseEvent responseEvent) {
+                proxyEvents++;
+            }
+        });
+        proxy = (SipStackImpl) proxyProvider.getSipStack();
+        proxy.setStatelessRequestRouter(new StatelessRequestRouter() {
+            public ForwardingDecision route(SIPRequest request, MessageChannel incomingChannel) {
+                String user = ((SipURI) request.getRequestURI()).getUser();
+                if ("unknown".equals(user)) {
+                    return ForwardingDecision.reply(Response.NOT_FOUND);
+                }
+                if ("proxy".equals(user)) {
+                    return ForwardingDecision.process();
+                }
+                return ForwardingDecision.forward(new HopImpl("127.0.0.1", 15080, ListeningPoint.UDP));
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception {
+        simulation.stop();
+    }
+
+    public void testRequestsAndResponsesGoThroughWithoutState() throws Exception {
+        Request invite = createInvite("callee", 70);
+        caller.getNewClientTransaction(invite).sendRequest();
+        simulation.advance(100);
+
+        assertEquals(Integer.valueOf(Response.OK), callerResponses.get(0));
+        Request received = calleeRequests.get(0);
+        assertEquals(Request.INVITE, received.getMethod());
+        assertEquals(69, ((MaxForwardsHeader) received.getHeader(MaxForwardsHeader.NAME)).getMaxForwards());
+        int vias = 0;
+        for (ListIterator<?> it = received.getHeaders(ViaHeader.NAME); it.hasNext(); it.next()) {
+            vias++;
+        }
+        assertEquals(2, vias);
+
+        StatelessForwarder forwarder = proxy.getStatelessForwarder();
+        assertEquals(1, forwarder.getForwardedRequests());
+        assertEquals(1, forwarder.getForwardedResponses());
+        assertEquals(0, proxy.getServerTransactionTableSize());
+        assertEquals(0, proxy.getClientTransactionTableSize());
+        assertEquals(0, proxyEvents);
+    }
+
+    public void testReplyAndTooManyHops() throws Exception {
+        caller.getNewClientTransaction(createInvite("unknown", 70)).sendRequest();
+        simulation.advance(100);
+        assertEquals(Integer.valueOf(Response.NOT_FOUND), callerResponses.get(0));
+
+        caller.getNewClientTransaction(createInvite("callee", 0)).sendRequest();
+        simulation.advance(100);
+        assertEquals(Integer.valueOf(Response.TOO_MANY_HOPS), callerResponses.get(1));
+
+        assertTrue(calleeRequests.isEmpty());
+        assertEquals(2, proxy.getStatelessForwarder().getReplies());
+        assertEquals(0, proxy.getServerTransactionTableSize());
+        assertEquals(0, proxyEvents);
+    }
+
+    public void testProcessedRequestReachesTheListener() throws Exception {
+        caller.getNewClientTransaction(createInvite("proxy", 70)).sendRequest();
+        simulation.advance(100);
+        assertEquals(1, proxyEvents);
+        assertEquals(0, proxy.getStatelessForwarder().getForwardedRequests());
+    }
+
+    private SipProvider createProvider(String name, int port, SipListener listener) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", name);
+        SipStackImpl sipStack = simulation.createSipStack(properties);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint("127.0.0.1", port, ListeningPoint.UDP);
+        SipProvider sipProvider = sipStack.createSipProvider(listeningPoint);
+        sipProvider.addSipListener(listener);
+        return sipProvider;
+    }
+
+    private Request createInvite(String user, int maxForwards) throws Exception {
+        Address from = addressFactory.createAddress("sip:caller@127.0.0.1:15070");
+        Address to = addressFactory.createAddress("sip:" + user + "@127.0.0.1:15060");
+        List<ViaHeader> vias = new ArrayList<ViaHeader>();
+        vias.add(headerFactory.createViaHeader("127.0.0.1", 15070, ListeningPoint.UDP, null));
+        Request invite = messageFactory.createRequest(to.getURI(), Request.INVITE, caller.getNewCallId(),
+                headerFactory.createCSeqHeader(1L, Request.INVITE), headerFactory.createFromHeader(from, "caller"),
+                headerFactory.createToHeader(to, null), vias, headerFactory.createMaxForwardsHeader(maxForwards));
+        invite.addHeader(headerFactory.createContactHeader(from));
+        return invite;
+    }
+
+    private static class Listener implements SipListener {
+        public void processRequest(RequestEvent requestEvent) {
+        }
+
+        public void processResponse(ResponseEvent responseEvent) {
+        }
+
+        public void processTimeout(TimeoutEvent timeoutEvent) {
+        }
+
+        public void processIOException(IOExceptionEvent exceptionEvent) {
+        }
+
+        public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+        }
+
+        public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+        }
+    }
+}
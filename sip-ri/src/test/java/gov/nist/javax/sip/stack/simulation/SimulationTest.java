@@ -0,0 +1,232 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sip.ClientTransaction;
+import javax.sip.Dialog;
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.ListeningPoint;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.ServerTransaction;
+import javax.sip.SipFactory;
+import javax.sip.SipListener;
+import javax.sip.SipProvider;
+import javax.sip.TimeoutEvent;
+import javax.sip.TransactionTerminatedEvent;
+import javax.sip.address.Address;
+import javax.sip.address.AddressFactory;
+import javax.sip.header.CSeqHeader;
+import javax.sip.header.HeaderFactory;
+import javax.sip.header.ToHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.MessageFactory;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.stack.transports.processors.memory.MemoryNetwork;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class SimulationTest extends TestCase {
+
+    private Simulation simulation;
+
+    private AddressFactory addressFactory;
+
+    private HeaderFactory headerFactory;
+
+    private MessageFactory messageFactory;
+
+    private SipProvider caller;
+
+    private SipProvider callee;
+
+    private final List<Integer> callerResponses = new ArrayList<Integer>();
+
+    private final List<String> calleeRequests = new ArrayList<String>();
+
+    private SIPRequest calleeInvite;
+
+    private SIPResponse calleeResponse;
+
+    private int timeouts;
+
+    private Dialog callerDialog;
+
+    protected void setUp() throws Exception {
+        SipFactory sipFactory = SipFactory.getInstance();
+        addressFactory = sipFactory.createAddressFactory();
+        headerFactory = sipFactory.createHeaderFactory();
+        messageFactory = sipFactory.createMessageFactory();
+        MemoryNetwork.getDefault().reset();
+        simulation = new Simulation();
+        caller = createProvider("caller", 15070, new Listener() {
+            public void processResponse(ResponseEvent responseEvent) {
+                Response response = responseEvent.getResponse();
+                callerResponses.add(response.getStatusCode());
+                CSeqHeader cseq = (CSeqHeader) response.getHeader(CSeqHeader.NAME);
+                if (response.getStatusCode() == Response.OK && Request.INVITE.equals(cseq.getMethod())) {
+                    try {
+                        callerDialog = responseEvent.getDialog();
+                        callerDialog.sendAck(callerDialog.createAck(cseq.getSeqNumber()));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+
+            public void processTimeout(TimeoutEvent timeoutEvent) {
+                timeouts++;
+            }
+        });
+        callee = createProvider("callee", 15080, new Listener() {
+            public void processRequest(RequestEvent requestEvent) {
+                Request request = requestEvent.getRequest();
+                calleeRequests.add(request.getMethod());
+                if (Request.ACK.equals(request.getMethod())) {
+                    return;
+                }
+                try {
+                    ServerTransaction serverTransaction = requestEvent.getServerTransaction();
+                    if (serverTransaction == null) {
+                        serverTransaction = callee.getNewServerTransaction(request);
+                    }
+                    Response response = messageFactory.createResponse(Response.OK, request);
+                    ((ToHeader) response.getHeader(ToHeader.NAME)).setTag("callee");
+                    response.addHeader(headerFactory.createContactHeader(
+                            addressFactory.createAddress("sip:callee@127.0.0.1:15080")));
+                    serverTransaction.sendResponse(response);
+                    if (Request.INVITE.equals(request.getMethod())) {
+                        calleeInvite = (SIPRequest) request;
+                        calleeResponse = (SIPResponse) response;
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception {
+        simulation.stop();
+    }
+
+    public void testCallOfAnHourRunsInVirtualTime() throws Exception {
+        long start = simulation.getClock().millis();
+        long wallStart = System.currentTimeMillis();
+        caller.getNewClientTransaction(createInvite(15080)).sendRequest();
+        simulation.advance(100);
+        Assert.assertEquals(Integer.valueOf(Response.OK), callerResponses.get(0));
+        Assert.assertEquals("ACK", calleeRequests.get(1));
+        Assert.assertNotNull(callerDialog);
+
+        simulation.advance(3600 * 1000L);
+        ClientTransaction bye = caller.getNewClientTransaction(callerDialog.createRequest(Request.BYE));
+        callerDialog.sendRequest(bye);
+        // Timer K keeps the transaction for a while after the response
+        simulation.advance(60 * 1000L);
+
+        Assert.assertEquals("BYE", calleeRequests.get(2));
+        Assert.assertEquals(2, callerResponses.size());
+        Assert.assertTrue(simulation.getClock().millis() - start >= 3660 * 1000L);
+        Assert.assertTrue(System.currentTimeMillis() - wallStart < 30000);
+        Assert.assertEquals(0, timeouts);
+        Assert.assertTrue(simulation.getExecutorTasks() > 0);
+        Assert.assertTrue(simulation.getTimerTasks() > 0);
+    }
+
+    public void testSentResponseKeepsSharedHeaders() throws Exception {
+        caller.getNewClientTransaction(createInvite(15080)).sendRequest();
+        simulation.advance(100);
+        Assert.assertEquals("ACK", calleeRequests.get(1));
+
+        // the listener only took the To header out to tag it, the stack read
+        // the other headers of the request and the response without copying them
+        Assert.assertNotSame(calleeInvite.peekTo(), calleeResponse.peekTo());
+        Assert.assertSame(calleeInvite.peekFrom(), calleeResponse.peekFrom());
+        Assert.assertSame(calleeInvite.peekCallId(), calleeResponse.peekCallId());
+        Assert.assertSame(calleeInvite.peekCSeq(), calleeResponse.peekCSeq());
+        Assert.assertSame(calleeInvite.peekTopmostVia(), calleeResponse.peekTopmostVia());
+        Assert.assertTrue(calleeResponse.peekFrom().isShared());
+        Assert.assertTrue(calleeResponse.peekTopmostVia().isShared());
+    }
+
+    public void testTimerBFiresAfterThirtyTwoSeconds() throws Exception {
+        // nobody listens on 15090, every INVITE retransmission is lost
+        caller.getNewClientTransaction(createInvite(15090)).sendRequest();
+        simulation.advance(31 * 1000L);
+        Assert.assertEquals(0, timeouts);
+        simulation.advance(2 * 1000L);
+        Assert.assertEquals(1, timeouts);
+        // the INVITE and its 6 retransmissions (Timer A doubling from 500 ms)
+        Assert.assertEquals(7, MemoryNetwork.getDefault().getMessagesLost());
+        Assert.assertTrue(callerResponses.isEmpty());
+    }
+
+    private SipProvider createProvider(String name, int port, SipListener listener) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", name);
+        SipStackImpl sipStack = simulation.createSipStack(properties);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint("127.0.0.1", port, ListeningPoint.UDP);
+        SipProvider sipProvider = sipStack.createSipProvider(listeningPoint);
+        sipProvider.addSipListener(listener);
+        return sipProvider;
+    }
+
+    private Request createInvite(int port) throws Exception {
+        Address from = addressFactory.createAddress("sip:caller@127.0.0.1:15070");
+        Address to = addressFactory.createAddress("sip:callee@127.0.0.1:" + port);
+        List<ViaHeader> vias = new ArrayList<ViaHeader>();
+        vias.add(headerFactory.createViaHeader("127.0.0.1", 15070, ListeningPoint.UDP, null));
+        Request invite = messageFactory.createRequest(to.getURI(), Request.INVITE, caller.getNewCallId(),
+                headerFactory.createCSeqHeader(1L, Request.INVITE), headerFactory.createFromHeader(from, "caller"),
+                headerFactory.createToHeader(to, null), vias, headerFactory.createMaxForwardsHeader(70));
+        invite.addHeader(headerFactory.createContactHeader(from));
+        return invite;
+    }
+
+    private static class Listener implements SipListener {
+        public void processRequest(RequestEvent requestEvent) {
+        }
+
+        public void processResponse(ResponseEvent responseEvent) {
+        }
+
+        public void processTimeout(TimeoutEvent timeoutEvent) {
+        }
+
+        public void processIOException(IOExceptionEvent exceptionEvent) {
+        }
+
+        public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+        }
+
+        public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sip.DialogState;
+import javax.sip.ListeningPoint;
+import javax.sip.SipFactory;
+
+import gov.nist.javax.sip.SipProviderImpl;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import gov.nist.javax.sip.stack.SIPDialog;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class OffHeapDialogStoreTest extends TestCase {
+
+    private static final String OK = "SIP/2.0 200 OK\r\n"
+            + "Via: SIP/2.0/UDP 127.0.0.1:15099;branch=z9hG4bK776asdhds\r\n"
+            + "Record-Route: <sip:p1.example.com;lr>\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>;tag=a6c85cf\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: %s\r\n"
+            + "CSeq: 314159 SUBSCRIBE\r\n"
+            + "Contact: <sip:bob@192.0.2.4>\r\n"
+            + "Expires: 3600\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    private SipStackImpl sipStack;
+
+    private SipProviderImpl sipProvider;
+
+    private File directory;
+
+    protected void setUp() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "OffHeapDialogStoreTest");
+        SipFactory sipFactory = SipFactory.getInstance();
+        sipFactory.setPathName("gov.nist");
+        sipFactory.resetFactory();
+        sipStack = (SipStackImpl) sipFactory.createSipStack(properties);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint("127.0.0.1", 15099, ListeningPoint.UDP);
+        sipProvider = (SipProviderImpl) sipStack.createSipProvider(listeningPoint);
+        directory = new File("target/offheap-dialogs-" + System.nanoTime());
+    }
+
+    protected void tearDown() throws Exception {
+        sipStack.stop();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testPassivatedDialogIsActivatedOnLookup() throws Exception {
+        OffHeapDialogStore store = new OffHeapDialogStore(sipStack, new SerializableDialogCodec(), null, 0);
+        SIPDialog dialog = createDialog("passivated@127.0.0.1");
+        dialog.setApplicationData("call data");
+        store.put(dialog.getDialogId(), dialog);
+        passivate(store, 1);
+        Assert.assertEquals(1, store.size());
+
+        // the test still references the dialog, the store hands it out again
+        SIPDialog activated = store.get(dialog.getDialogId());
+        Assert.assertSame(dialog, activated);
+        Assert.assertEquals(0, store.getPassivatedCount());
+        Assert.assertSame(activated, store.get(dialog.getDialogId()));
+        Assert.assertEquals("call data", activated.getApplicationData());
+        store.close();
+    }
+
+    public void testUnreferencedDialogIsDecodedOnLookup() throws Exception {
+        OffHeapDialogStore store = new OffHeapDialogStore(sipStack, new SerializableDialogCodec(), null, 0);
+        SIPDialog expected = createDialog("decoded@127.0.0.1");
+        SIPDialog dialog = createDialog("decoded@127.0.0.1");
+        dialog.setApplicationData("call data");
+        String dialogId = dialog.getDialogId();
+        store.put(dialogId, dialog);
+        passivate(store, 1);
+        WeakReference<SIPDialog> reference = new WeakReference<SIPDialog>(dialog);
+        dialog = null;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reference.get() != null && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(reference.get());
+
+        SIPDialog activated = store.get(dialogId);
+        Assert.assertEquals(0, store.getPassivatedCount());
+        Assert.assertSame(activated, store.get(dialogId));
+        assertSameDialog(expected, activated);
+        Assert.assertEquals("call data", activated.getApplicationData());
+        Assert.assertSame(sipProvider, activated.getSipProvider());
+        store.close();
+    }
+
+    public void testDialogInProgressStaysOnHeap() throws Exception {
+        OffHeapDialogStore store = new OffHeapDialogStore(sipStack, new SerializableDialogCodec(), null, 0);
+        SIPDialog early = createDialog("early@127.0.0.1");
+        early.setState(SIPDialog.EARLY_STATE);
+        SIPDialog withData = createDialog("data@127.0.0.1");
+        withData.setApplicationData(new Object());
+        store.put(early.getDialogId(), early);
+        store.put(withData.getDialogId(), withData);
+        store.passivateIdleDialogs();
+        Thread.sleep(200);
+        Assert.assertEquals(0, store.getPassivatedCount());
+        Assert.assertSame(early, store.get(early.getDialogId()));
+        Assert.assertSame(withData, store.get(withData.getDialogId()));
+        store.close();
+    }
+
+    public void testValuesAndRemoveCoverPassivatedDialogs() throws Exception {
+        OffHeapDialogStore store = new OffHeapDialogStore(sipStack, new SerializableDialogCodec(), null, 0);
+        for (int i = 0; i < 100; i++) {
+            SIPDialog dialog = createDialog("call-" + i + "@127.0.0.1");
+            store.put(dialog.getDialogId(), dialog);
+        }
+        passivate(store, 100);
+        SIPDialog onHeap = createDialog("heap@127.0.0.1");
+        onHeap.setState(SIPDialog.EARLY_STATE);
+        store.put(onHeap.getDialogId(), onHeap);
+
+        Assert.assertEquals(101, store.keySet().size());
+        Assert.assertTrue(store.keySet().contains("call-42@127.0.0.1:1928301774:a6c85cf"));
+
+        List<String> callIds = new ArrayList<String>();
+        SIPDialog iterated = null;
+        for (SIPDialog dialog : store.values()) {
+            callIds.add(dialog.getCallId().getCallId());
+            if (dialog.getCallId().getCallId().equals("call-7@127.0.0.1")) {
+                iterated = dialog;
+            }
+        }
+        Assert.assertEquals(101, callIds.size());
+        Assert.assertTrue(callIds.contains("call-42@127.0.0.1"));
+        Assert.assertTrue(callIds.contains("heap@127.0.0.1"));
+        // iterating does not bring the dialogs back on the heap
+        Assert.assertEquals(100, store.getPassivatedCount());
+        // a lookup hands out the instance the iteration did
+        Assert.assertSame(iterated, store.get("call-7@127.0.0.1:1928301774:a6c85cf"));
+
+        SIPDialog removed = store.remove("call-42@127.0.0.1:1928301774:a6c85cf");
+        Assert.assertEquals("call-42@127.0.0.1", removed.getCallId().getCallId());
+        Assert.assertNull(store.get("call-42@127.0.0.1:1928301774:a6c85cf"));
+        Assert.assertEquals(100, store.size());
+        store.clear();
+        Assert.assertEquals(0, store.size());
+        store.close();
+    }
+
+    public void testDialogsSurviveRestart() throws Exception {
+        OffHeapDialogStore store = new OffHeapDialogStore(sipStack, new SerializableDialogCodec(), directory, 60000);
+        SIPDialog dialog = createDialog("restart@127.0.0.1");
+        store.put(dialog.getDialogId(), dialog);
+        // closing passivates the dialogs that can be
+        store.close();
+
+        OffHeapDialogStore restarted = new OffHeapDialogStore(sipStack, new SerializableDialogCodec(), directory, 60000);
+        Assert.assertEquals(1, restarted.getPassivatedCount());
+        SIPDialog recovered = restarted.get(dialog.getDialogId());
+        assertSameDialog(dialog, recovered);
+        restarted.close();
+    }
+
+    private SIPDialog createDialog(String callId) throws Exception {
+        SIPResponse response = (SIPResponse) new StringMsgParser().parseSIPMessage(
+                String.format(OK, callId).getBytes(), true, false, null);
+        SIPDialog dialog = new SIPDialog(sipProvider, response);
+        dialog.setDialogId(response.getDialogId(false));
+        dialog.setState(SIPDialog.CONFIRMED_STATE);
+        return dialog;
+    }
+
+    private static void passivate(OffHeapDialogStore store, int count) throws InterruptedException {
+        store.passivateIdleDialogs();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.getPassivatedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, store.getPassivatedCount());
+    }
+
+    private static void assertSameDialog(SIPDialog expected, SIPDialog actual) {
+        Assert.assertEquals(expected.getDialogId(), actual.getDialogId());
+        Assert.assertEquals(expected.getCallId().getCallId(), actual.getCallId().getCallId());
+        Assert.assertEquals(expected.getLocalTag(), actual.getLocalTag());
+        Assert.assertEquals(expected.getRemoteTag(), actual.getRemoteTag());
+        Assert.assertEquals(expected.getLocalParty().getURI(), actual.getLocalParty().getURI());
+        Assert.assertEquals(expected.getRemoteParty().getURI(), actual.getRemoteParty().getURI());
+        Assert.assertEquals(expected.getLocalSeqNumber(), actual.getLocalSeqNumber());
+        Assert.assertEquals(expected.getRemoteSeqNumber(), actual.getRemoteSeqNumber());
+        Assert.assertEquals(DialogState.CONFIRMED, actual.getState());
+        Assert.assertEquals(expected.isServer(), actual.isServer());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectOutputStream;
+
+import gov.nist.javax.sip.message.SIPMessage;
+import gov.nist.javax.sip.parser.StringMsgParser;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class SIPMessageCodecTest extends TestCase {
+
+    private static final String INVITE = "INVITE sips:bob:secret@biloxi.example.com;transport=tcp;lr?Subject=hi&Priority=urgent SIP/2.0\r\n"
+            + "Via: SIP/2.0/TLS [2001:db8::9]:5061;branch=z9hG4bK74bf9;received=192.0.2.101;rport\r\n"
+            + "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bKnashds8\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "Route: <sip:p1.example.com;lr>,<sip:p2.example.com:5080;lr;ftag=x>\r\n"
+            + "Record-Route: <sip:rr.example.com;lr>\r\n"
+            + "From: \"Alice A.\" <sip:alice@atlanta.example.com>;tag=9fxced76sl\r\n"
+            + "To: <tel:+1-212-555-0100;phone-context=example.com>\r\n"
+            + "Call-ID: 3848276298220188511@atlanta.example.com\r\n"
+            + "CSeq: 31862 INVITE\r\n"
+            + "Contact: <sip:alice@192.0.2.101:5061;transport=tls>;expires=60;+sip.instance=\"<urn:uuid:00000000-0000-1000-8000-AABBCCDDEEFF>\";audio\r\n"
+            + "Subject: lunch\r\n"
+            + "Allow: INVITE, ACK, BYE\r\n"
+            + "X-Custom: some value\r\n"
+            + "Content-Type: application/sdp;charset=UTF-8\r\n"
+            + "Content-Length: 8\r\n\r\n"
+            + "v=0\r\no=\r\n";
+
+    private static final String RESPONSE = "SIP/2.0 180 Ringing\r\n"
+            + "Via: SIP/2.0/UDP 127.0.0.1:5070;branch=z9hG4bK776asdhds\r\n"
+            + "To: Bob <sip:bob@biloxi.example.com>;tag=a6c85cf\r\n"
+            + "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: *\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    public void testStructuredRequestRoundTrip() throws Exception {
+        SIPMessage message = parse(INVITE);
+        SIPMessage decoded = roundTrip(new SIPMessageCodec(), message);
+        Assert.assertEquals(message.encode(), decoded.encode());
+        Assert.assertEquals(message, decoded);
+    }
+
+    public void testStructuredResponseRoundTrip() throws Exception {
+        SIPMessage message = parse(RESPONSE);
+        SIPMessage decoded = roundTrip(new SIPMessageCodec(), message);
+        Assert.assertEquals(message.encode(), decoded.encode());
+        Assert.assertEquals(message, decoded);
+    }
+
+    public void testRawRoundTrip() throws Exception {
+        SIPMessage message = parse(INVITE);
+        SIPMessage decoded = roundTrip(new SIPMessageCodec(true), message);
+        Assert.assertEquals(message.encode(), decoded.encode());
+    }
+
+    public void testSmallerThanJavaSerialization() throws Exception {
+        SIPMessage message = parse(INVITE);
+        ByteArrayOutputStream compact = new ByteArrayOutputStream();
+        new SIPMessageCodec().encode(message, new DataOutputStream(compact));
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream objects = new ObjectOutputStream(serialized);
+        objects.writeObject(message);
+        objects.close();
+        Assert.assertTrue(compact.size() * 4 < serialized.size());
+    }
+
+    public void testUnknownVersionIsRejected() throws Exception {
+        try {
+            new SIPMessageCodec().decode(new DataInputStream(new ByteArrayInputStream(new byte[] { 9, 0 })));
+            fail("version check expected");
+        } catch (java.io.IOException e) {
+            // expected
+        }
+    }
+
+    private static SIPMessage parse(String message) throws Exception {
+        return new StringMsgParser().parseSIPMessage(message.getBytes("UTF-8"), true, false, null);
+    }
+
+    private static SIPMessage roundTrip(SIPMessageCodec codec, SIPMessage message) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.encode(message, new DataOutputStream(bytes));
+        return codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.timers;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.nist.core.executor.SIPTask;
+import gov.nist.core.executor.SkewAwareStackExecutor;
+import gov.nist.javax.sip.SipStackImpl;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class MobiusSipTimerTest extends TestCase {
+
+    private SipStackImpl sipStack;
+
+    protected void setUp() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "timers");
+        properties.setProperty("gov.nist.javax.sip.STACK_EXECUTOR", SkewAwareStackExecutor.class.getName());
+        sipStack = new SipStackImpl(properties);
+    }
+
+    protected void tearDown() throws Exception {
+        sipStack.stop();
+    }
+
+    public void testTimersRunWithSkewAwareExecutor() throws Exception {
+        Assert.assertTrue(sipStack.getTimer() instanceof MobiusSipTimer);
+        Assert.assertTrue(sipStack.getTimer().isStarted());
+
+        final CountDownLatch fired = new CountDownLatch(1);
+        sipStack.getTimer().schedule(new Task("call") {
+            public void runTask() {
+                fired.countDown();
+            }
+        }, 20);
+        Assert.assertTrue(fired.await(5, TimeUnit.SECONDS));
+
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch repeated = new CountDownLatch(3);
+        Task periodic = new Task("call") {
+            public void runTask() {
+                runs.incrementAndGet();
+                repeated.countDown();
+            }
+        };
+        sipStack.getTimer().scheduleWithFixedDelay(periodic, 10, 10);
+        Assert.assertTrue(repeated.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(sipStack.getTimer().cancel(periodic));
+        Thread.sleep(100);
+        int cancelled = runs.get();
+        Thread.sleep(100);
+        Assert.assertEquals(cancelled, runs.get());
+    }
+
+    public void testExpiredTimersWaitForTheTasksOfTheirId() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger order = new AtomicInteger();
+        sipStack.getMessageProcessorExecutor().addTaskLast(new SIPTask() {
+            public String getId() {
+                return "call";
+            }
+
+            public long getStartTime() {
+                return System.currentTimeMillis();
+            }
+
+            public void execute() {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                order.compareAndSet(0, 1);
+            }
+        });
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch fired = new CountDownLatch(1);
+        sipStack.getTimer().schedule(new Task("call") {
+            public void runTask() {
+                order.compareAndSet(1, 2);
+                fired.countDown();
+            }
+        }, 0);
+        Assert.assertFalse(fired.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        Assert.assertTrue(fired.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, order.get());
+    }
+
+    private abstract static class Task extends SIPStackTimerTask {
+        private final String id;
+
+        Task(String id) {
+            super(Task.class.getSimpleName());
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.ListeningPoint;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.ServerTransaction;
+import javax.sip.SipFactory;
+import javax.sip.SipListener;
+import javax.sip.SipProvider;
+import javax.sip.TimeoutEvent;
+import javax.sip.TransactionTerminatedEvent;
+import javax.sip.address.Address;
+import javax.sip.address.AddressFactory;
+import javax.sip.header.HeaderFactory;
+import javax.sip.header.ToHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.MessageFactory;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.stack.simulation.Simulation;
+import gov.nist.javax.sip.stack.trace.MessageTrace.Stage;
+import gov.nist.javax.sip.stack.transports.processors.memory.MemoryNetwork;
+import junit.framework.TestCase;
+
+public class MessageTraceTest extends TestCase {
+
+    private Simulation simulation;
+
+    private AddressFactory addressFactory;
+
+    private HeaderFactory headerFactory;
+
+    private MessageFactory messageFactory;
+
+    private SipProvider caller;
+
+    private SipProvider callee;
+
+    private final List<MessageTrace> callerTraces = new ArrayList<MessageTrace>();
+
+    private final List<MessageTrace> calleeTraces = new ArrayList<MessageTrace>();
+
+    protected void setUp() throws Exception {
+        SipFactory sipFactory = SipFactory.getInstance();
+        addressFactory = sipFactory.createAddressFactory();
+        headerFactory = sipFactory.createHeaderFactory();
+        messageFactory = sipFactory.createMessageFactory();
+        MemoryNetwork.getDefault().reset();
+        simulation = new Simulation();
+        caller = createProvider("caller", 15070, new Listener(), callerTraces);
+        callee = createProvider("callee", 15080, new Listener() {
+            public void processRequest(RequestEvent requestEvent) {
+                Request request = requestEvent.getRequest();
+                try {
+                    ServerTransaction serverTransaction = callee.getNewServerTransaction(request);
+                    Response response = messageFactory.createResponse(Response.OK, request);
+                    ((ToHeader) response.getHeader(ToHeader.NAME)).setTag("callee");
+                    serverTransaction.sendResponse(response);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }, calleeTraces);
+    }
+
+    protected void tearDown() throws Exception {
+        simulation.stop();
+    }
+
+    public void testStagesOfAnsweredRequest() throws Exception {
+        caller.getNewClientTransaction(createOptions()).sendRequest();
+        simulation.advance(100);
+
+        assertEquals(1, calleeTraces.size());
+        MessageTrace trace = calleeTraces.get(0);
+        assertEquals(Request.OPTIONS, ((SIPRequest) trace.getMessage()).getMethod());
+        // the memory transport receives whole messages, there is no framing
+        assertEquals(0, trace.getTimestamp(Stage.FRAMED));
+        Stage[] stages = { Stage.RECEIVED, Stage.PARSED, Stage.ENQUEUED, Stage.DEQUEUED, Stage.MATCHED,
+                Stage.DELIVERED, Stage.SENT };
+        for (int i = 0; i < stages.length; i++) {
+            assertTrue(stages[i] + " not reached", trace.getTimestamp(stages[i]) != 0);
+            if (i > 0) {
+                assertTrue(stages[i] + " before " + stages[i - 1],
+                        trace.getElapsedNanos(stages[i - 1], stages[i]) >= 0);
+            }
+        }
+        assertTrue(trace.toString(), trace.toString().contains("sent="));
+
+        // the response is delivered to the caller and not answered
+        assertEquals(1, callerTraces.size());
+        MessageTrace responseTrace = callerTraces.get(0);
+        assertTrue(responseTrace.getTimestamp(Stage.DELIVERED) != 0);
+        assertEquals(0, responseTrace.getTimestamp(Stage.SENT));
+        assertEquals(-1, responseTrace.getElapsedNanos(Stage.RECEIVED, Stage.SENT));
+    }
+
+    public void testReportedOnceAfterLastRelease() {
+        final List<MessageTrace> reported = new ArrayList<MessageTrace>();
+        MessageTracer tracer = new MessageTracer(new MessageTraceSink() {
+            public void traceCompleted(MessageTrace trace) {
+                reported.add(trace);
+            }
+        }, 1);
+        MessageTrace trace = tracer.startTrace(System.nanoTime());
+        trace.hold();
+        trace.release();
+        assertTrue(reported.isEmpty());
+        trace.mark(Stage.DELIVERED);
+        trace.release();
+        assertEquals(1, reported.size());
+        assertEquals(1, tracer.getReportedCount());
+        trace.mark(Stage.SENT);
+        assertEquals(0, trace.getTimestamp(Stage.SENT));
+        assertTrue(trace.getTimestamp(Stage.DELIVERED) != 0);
+    }
+
+    public void testSampling() {
+        MessageTraceSink sink = new LoggingMessageTraceSink();
+        assertNotNull(new MessageTracer(sink, 1).startTrace(1));
+        int traced = 0;
+        MessageTracer sampled = new MessageTracer(sink, 100);
+        for (int i = 0; i < 100000; i++) {
+            if (sampled.startTrace(1) != null) {
+                traced++;
+            }
+        }
+        assertTrue("traced " + traced, traced > 700 && traced < 1300);
+        try {
+            new MessageTracer(sink, 0);
+            fail("no sample rate under 1");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private SipProvider createProvider(String name, int port, SipListener listener, final List<MessageTrace> traces)
+            throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", name);
+        SipStackImpl sipStack = simulation.createSipStack(properties);
+        sipStack.setMessageTraceSink(new MessageTraceSink() {
+            public void traceCompleted(MessageTrace trace) {
+                synchronized (traces) {
+                    traces.add(trace);
+                }
+            }
+        }, 1);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint("127.0.0.1", port, ListeningPoint.UDP);
+        SipProvider sipProvider = sipStack.createSipProvider(listeningPoint);
+        sipProvider.addSipListener(listener);
+        return sipProvider;
+    }
+
+    private Request createOptions() throws Exception {
+        Address from = addressFactory.createAddress("sip:caller@127.0.0.1:15070");
+        Address to = addressFactory.createAddress("sip:callee@127.0.0.1:15080");
+        List<ViaHeader> vias = new ArrayList<ViaHeader>();
+        vias.add(headerFactory.createViaHeader("127.0.0.1", 15070, ListeningPoint.UDP, null));
+        return messageFactory.createRequest(to.getURI(), Request.OPTIONS, caller.getNewCallId(),
+                headerFactory.createCSeqHeader(1L, Request.OPTIONS), headerFactory.createFromHeader(from, "caller"),
+                headerFactory.createToHeader(to, null), vias, headerFactory.createMaxForwardsHeader(70));
+    }
+
+    private static class Listener implements SipListener {
+        public void processRequest(RequestEvent requestEvent) {
+        }
+
+        public void processResponse(ResponseEvent responseEvent) {
+        }
+
+        public void processTimeout(TimeoutEvent timeoutEvent) {
+        }
+
+        public void processIOException(IOExceptionEvent exceptionEvent) {
+        }
+
+        public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+        }
+
+        public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+        }
+    }
+}
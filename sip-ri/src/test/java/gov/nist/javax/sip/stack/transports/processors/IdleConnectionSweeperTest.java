@@ -0,0 +1,131 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors;
+
+import java.util.Properties;
+
+import gov.nist.core.VirtualClock;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.simulation.Simulation;
+import junit.framework.TestCase;
+
+public class IdleConnectionSweeperTest extends TestCase {
+
+    private Simulation simulation;
+
+    private VirtualClock clock;
+
+    private IdleConnectionSweeper sweeper;
+
+    protected void setUp() throws Exception {
+        simulation = new Simulation();
+        clock = simulation.getClock();
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "sweeper");
+        SipStackImpl sipStack = simulation.createSipStack(properties);
+        sweeper = sipStack.getIdleConnectionSweeper();
+    }
+
+    protected void tearDown() throws Exception {
+        simulation.stop();
+    }
+
+    public void testFlowExpiresAtItsDeadline() {
+        TestFlow flow = new TestFlow(clock.millis() + 30000);
+        sweeper.track(flow);
+        sweeper.track(flow);
+        assertEquals(1, sweeper.size());
+
+        simulation.advance(29000);
+        assertEquals(0, flow.idleCount);
+        simulation.advance(2000);
+        assertEquals(1, flow.idleCount);
+        assertEquals(0, sweeper.size());
+    }
+
+    public void testActiveFlowIsMovedInsteadOfExpired() {
+        TestFlow flow = new TestFlow(clock.millis() + 10000);
+        sweeper.track(flow);
+        flow.lookups = 0;
+        for (int i = 0; i < 60; i++) {
+            simulation.advance(1000);
+            // traffic only moves the deadline
+            flow.deadline = clock.millis() + 10000;
+        }
+        assertEquals(0, flow.idleCount);
+        // looked at about once per timeout rather than at every sweep
+        assertTrue("looked at " + flow.lookups + " times", flow.lookups <= 14);
+
+        simulation.advance(11000);
+        assertEquals(1, flow.idleCount);
+    }
+
+    public void testCancelledFlowIsDropped() {
+        TestFlow flow = new TestFlow(clock.millis() + 10000);
+        sweeper.track(flow);
+        flow.deadline = -1;
+        simulation.advance(11000);
+        assertEquals(0, flow.idleCount);
+        assertEquals(0, sweeper.size());
+
+        flow.deadline = clock.millis() + 5000;
+        sweeper.track(flow);
+        simulation.advance(6000);
+        assertEquals(1, flow.idleCount);
+    }
+
+    public void testSweepOnlyLooksAtDueBuckets() {
+        TestFlow[] flows = new TestFlow[1000];
+        for (int i = 0; i < flows.length; i++) {
+            flows[i] = new TestFlow(clock.millis() + 60000 + i * 1000L);
+            sweeper.track(flows[i]);
+            flows[i].lookups = 0;
+        }
+        simulation.advance(61000);
+        int lookups = 0;
+        int expired = 0;
+        for (TestFlow flow : flows) {
+            lookups += flow.lookups;
+            expired += flow.idleCount;
+        }
+        assertEquals(1, flows[0].idleCount);
+        assertTrue(expired <= 2);
+        assertEquals(expired, lookups);
+        assertEquals(flows.length - expired, sweeper.size());
+    }
+
+    static class TestFlow implements IdleConnectionSweeper.Flow {
+        volatile long deadline;
+        int lookups;
+        int idleCount;
+
+        TestFlow(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public long getIdleDeadline() {
+            lookups++;
+            return deadline;
+        }
+
+        public void idle() {
+            idleCount++;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors;
+
+import java.net.InetAddress;
+import java.util.Properties;
+
+import javax.sip.PeerUnavailableException;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.simulation.Simulation;
+import junit.framework.TestCase;
+
+public class SourceRateLimiterTest extends TestCase {
+
+    private Simulation simulation;
+
+    private SourceRateLimiter limiter;
+
+    protected void setUp() throws Exception {
+        simulation = new Simulation();
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "limiter");
+        properties.setProperty("gov.nist.javax.sip.SOURCE_RATE_LIMIT", "10");
+        properties.setProperty("gov.nist.javax.sip.SOURCE_RATE_BURST", "5");
+        properties.setProperty("gov.nist.javax.sip.SOURCE_RATE_TABLE_SIZE", "4");
+        properties.setProperty("gov.nist.javax.sip.SOURCE_RATE_ALLOW_LIST", "10.1.0.0/16, 192.0.2.99");
+        SipStackImpl sipStack = simulation.createSipStack(properties);
+        limiter = sipStack.getSourceRateLimiter();
+    }
+
+    protected void tearDown() throws Exception {
+        simulation.stop();
+    }
+
+    public void testBurstThenSustainedRate() throws Exception {
+        InetAddress source = InetAddress.getByName("192.0.2.1");
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(source));
+        }
+        assertFalse(limiter.tryAcquire(source));
+        assertFalse(limiter.tryAcquire(source));
+        assertEquals(2, limiter.getDropped(source));
+
+        // one message every 100 ms
+        simulation.advance(100);
+        assertTrue(limiter.tryAcquire(source));
+        assertFalse(limiter.tryAcquire(source));
+        simulation.advance(1000);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(source));
+        }
+        assertFalse(limiter.tryAcquire(source));
+        assertEquals(4, limiter.getDropped());
+        assertEquals(Long.valueOf(4), limiter.getDroppedBySource().get(source));
+    }
+
+    public void testSourcesAreLimitedSeparately() throws Exception {
+        InetAddress flooder = InetAddress.getByName("192.0.2.1");
+        InetAddress other = InetAddress.getByName("2001:db8::1");
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(flooder);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(other));
+        }
+        assertEquals(5, limiter.getDropped(flooder));
+        assertEquals(0, limiter.getDropped(other));
+    }
+
+    public void testAllowListIsNeverLimited() throws Exception {
+        InetAddress[] allowed = { InetAddress.getByName("10.1.200.3"), InetAddress.getByName("192.0.2.99") };
+        for (InetAddress source : allowed) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(limiter.tryAcquire(source));
+            }
+        }
+        assertFalse(limiter.isAllowed(InetAddress.getByName("10.2.0.1")));
+        assertEquals(0, limiter.getDropped());
+    }
+
+    public void testFloodingSourceStaysTrackedWhenTableIsFull() throws Exception {
+        InetAddress flooder = InetAddress.getByName("192.0.2.1");
+        for (int i = 0; i < 6; i++) {
+            limiter.tryAcquire(flooder);
+        }
+        // many more sources than slots, each sending a single message
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(InetAddress.getByName("198.51." + (i / 256) + "." + (i % 256))));
+        }
+        assertTrue(limiter.getEvictions() > 0);
+        assertFalse(limiter.tryAcquire(flooder));
+        assertEquals(2, limiter.getDropped(flooder));
+        assertEquals(1, limiter.getDroppedBySource().size());
+    }
+
+    public void testBadAllowListIsRejected() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "badlimiter");
+        properties.setProperty("gov.nist.javax.sip.SOURCE_RATE_LIMIT", "10");
+        properties.setProperty("gov.nist.javax.sip.SOURCE_RATE_ALLOW_LIST", "10.0.0.0/40");
+        try {
+            simulation.createSipStack(properties);
+            fail("bad prefix accepted");
+        } catch (PeerUnavailableException e) {
+            // expected
+        }
+    }
+}
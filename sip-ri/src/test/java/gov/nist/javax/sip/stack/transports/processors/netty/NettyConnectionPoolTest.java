@@ -0,0 +1,201 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.netty;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sip.ListeningPoint;
+import javax.sip.SipFactory;
+
+import gov.nist.core.Host;
+import gov.nist.core.HostPort;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.transports.processors.ConnectionStatistics;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class NettyConnectionPoolTest extends TestCase {
+
+    private SipStackImpl sipStack;
+
+    private NettyStreamMessageProcessor messageProcessor;
+
+    private ServerSocket peer;
+
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<Socket>());
+
+    protected void setUp() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "NettyConnectionPoolTest");
+        properties.setProperty("gov.nist.javax.sip.RELIABLE_CONNECTION_POOL_SIZE", "3");
+        SipFactory sipFactory = SipFactory.getInstance();
+        sipFactory.setPathName("gov.nist");
+        sipFactory.resetFactory();
+        sipStack = (SipStackImpl) sipFactory.createSipStack(properties);
+        sipStack.createListeningPoint("127.0.0.1", 15099, ListeningPoint.TCP);
+        messageProcessor = (NettyStreamMessageProcessor) sipStack.findMessageProcessor("127.0.0.1", 15099,
+                ListeningPoint.TCP);
+
+        peer = new ServerSocket(15100, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread() {
+            public void run() {
+                try {
+                    while (true) {
+                        final Socket socket = peer.accept();
+                        sockets.add(socket);
+                        accepted.incrementAndGet();
+                        new Thread() {
+                            public void run() {
+                                try {
+                                    InputStream in = socket.getInputStream();
+                                    byte[] buffer = new byte[4096];
+                                    while (in.read(buffer) >= 0) {
+                                    }
+                                } catch (Exception e) {
+                                }
+                            }
+                        }.start();
+                    }
+                } catch (Exception e) {
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    protected void tearDown() throws Exception {
+        sipStack.stop();
+        peer.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    public void testCallsStayOnTheirConnection() throws Exception {
+        MessageChannel first = messageProcessor.createMessageChannel(peerHostPort(), "call-1");
+        MessageChannel second = messageProcessor.createMessageChannel(peerHostPort(), "call-2");
+        MessageChannel third = messageProcessor.createMessageChannel(peerHostPort(), "call-3");
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(first, third);
+        Assert.assertNotSame(second, third);
+        Assert.assertSame(first, messageProcessor.createMessageChannel(peerHostPort(), "call-1"));
+        Assert.assertSame(second, messageProcessor.createMessageChannel(peerHostPort(), "call-2"));
+        // without a call the cached connection is used
+        Assert.assertSame(first, messageProcessor.createMessageChannel(peerHostPort()));
+
+        send(first, "call-1");
+        send(second, "call-2");
+        send(third, "call-3");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (accepted.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        send(messageProcessor.createMessageChannel(peerHostPort(), "call-1"), "call-1");
+        Thread.sleep(100);
+        Assert.assertEquals(3, accepted.get());
+
+        List<ConnectionStatistics> statistics = messageProcessor.getConnectionStatistics();
+        Assert.assertEquals(3, statistics.size());
+        Assert.assertEquals(2, statistics.get(0).getMessagesSent());
+        for (ConnectionStatistics connection : statistics) {
+            Assert.assertEquals(1, connection.getActiveCalls());
+        }
+    }
+
+    public void testNewCallsGoToTheLeastLoadedConnection() throws Exception {
+        for (int i = 0; i < 9; i++) {
+            messageProcessor.createMessageChannel(peerHostPort(), "call-" + i);
+        }
+        for (ConnectionStatistics connection : messageProcessor.getConnectionStatistics()) {
+            Assert.assertEquals(3, connection.getActiveCalls());
+        }
+        NettyConnectionPool connectionPool = messageProcessor.connectionPools.values().iterator().next();
+        connectionPool.expireAffinities(System.currentTimeMillis() + 1);
+        for (ConnectionStatistics connection : messageProcessor.getConnectionStatistics()) {
+            Assert.assertEquals(0, connection.getActiveCalls());
+        }
+    }
+
+    public void testIdlePoolIsRemovedWithItsLastConnection() throws Exception {
+        List<MessageChannel> connections = new ArrayList<MessageChannel>();
+        for (int i = 0; i < 3; i++) {
+            connections.add(messageProcessor.createMessageChannel(peerHostPort(), "call-" + i));
+        }
+        messageProcessor.expireConnectionAffinities(System.currentTimeMillis() + 1);
+        // kept while it still has connections
+        Assert.assertEquals(1, messageProcessor.connectionPools.size());
+        for (MessageChannel connection : connections) {
+            connection.close();
+        }
+        Assert.assertTrue(messageProcessor.connectionPools.isEmpty());
+        Assert.assertTrue(messageProcessor.getConnectionStatistics().isEmpty());
+    }
+
+    public void testPoolIsRemovedOnceItsCallsExpire() throws Exception {
+        List<MessageChannel> connections = new ArrayList<MessageChannel>();
+        for (int i = 0; i < 3; i++) {
+            connections.add(messageProcessor.createMessageChannel(peerHostPort(), "call-" + i));
+        }
+        for (MessageChannel connection : connections) {
+            connection.close();
+        }
+        // kept while its calls may still send
+        Assert.assertEquals(1, messageProcessor.connectionPools.size());
+        messageProcessor.expireConnectionAffinities(System.currentTimeMillis() + 1);
+        Assert.assertTrue(messageProcessor.connectionPools.isEmpty());
+
+        // a new call starts a new pool
+        MessageChannel connection = messageProcessor.createMessageChannel(peerHostPort(), "call-4");
+        Assert.assertNotNull(connection);
+        Assert.assertEquals(1, messageProcessor.connectionPools.size());
+        Assert.assertEquals(1, messageProcessor.getConnectionStatistics().get(0).getActiveCalls());
+    }
+
+    private static HostPort peerHostPort() {
+        HostPort hostPort = new HostPort();
+        hostPort.setHost(new Host("127.0.0.1"));
+        hostPort.setPort(15100);
+        return hostPort;
+    }
+
+    private static void send(MessageChannel messageChannel, String callId) throws Exception {
+        String options = "OPTIONS sip:peer@127.0.0.1:15100 SIP/2.0\r\n"
+                + "Via: SIP/2.0/TCP 127.0.0.1:15099;branch=z9hG4bK" + callId + System.nanoTime() + "\r\n"
+                + "From: <sip:test@127.0.0.1>;tag=1\r\n"
+                + "To: <sip:peer@127.0.0.1>\r\n"
+                + "Call-ID: " + callId + "\r\n"
+                + "CSeq: 1 OPTIONS\r\n"
+                + "Max-Forwards: 70\r\n"
+                + "Content-Length: 0\r\n\r\n";
+        messageChannel.sendMessage(options.getBytes("UTF-8"), InetAddress.getByName("127.0.0.1"), 15100, false);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.netty;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Properties;
+
+import javax.sip.ListeningPoint;
+import javax.sip.SipFactory;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class NettyDatagramBatchingTest extends TestCase {
+
+    private static final int COUNT = 20;
+
+    private SipStackImpl sipStack;
+
+    private NettyDatagramMessageProcessor messageProcessor;
+
+    private DatagramSocket peer;
+
+    protected void setUp() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "NettyDatagramBatchingTest");
+        properties.setProperty("gov.nist.javax.sip.UDP_BATCH_SIZE", "8");
+        properties.setProperty("gov.nist.javax.sip.RECEIVE_UDP_BUFFER_SIZE", "1048576");
+        properties.setProperty("gov.nist.javax.sip.MAX_MESSAGE_SIZE", "8192");
+        SipFactory sipFactory = SipFactory.getInstance();
+        sipFactory.setPathName("gov.nist");
+        sipFactory.resetFactory();
+        sipStack = (SipStackImpl) sipFactory.createSipStack(properties);
+        sipStack.createListeningPoint("127.0.0.1", 15099, ListeningPoint.UDP);
+        messageProcessor = (NettyDatagramMessageProcessor) sipStack.findMessageProcessor("127.0.0.1", 15099,
+                ListeningPoint.UDP);
+        peer = new DatagramSocket(15100, InetAddress.getByName("127.0.0.1"));
+        peer.setSoTimeout(5000);
+    }
+
+    protected void tearDown() throws Exception {
+        sipStack.stop();
+        peer.close();
+    }
+
+    public void testBatchSizeIsValidated() {
+        try {
+            sipStack.setUdpBatchSize(0);
+            fail("batch size check expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(8, sipStack.getUdpBatchSize());
+    }
+
+    public void testBatchSlotsAreSizedByMessageSize() {
+        // not by the receive buffer of the socket
+        Assert.assertEquals(8192, messageProcessor.getBatchDatagramSize());
+    }
+
+    public void testBatchedReadsReceiveEveryDatagram() throws Exception {
+        NettyDatagramStatistics statistics = messageProcessor.getDatagramStatistics();
+        InetAddress address = InetAddress.getByName("127.0.0.1");
+        for (int i = 0; i < COUNT; i++) {
+            byte[] message = options("read-" + i).getBytes("UTF-8");
+            peer.send(new DatagramPacket(message, message.length, address, 15099));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (statistics.getDatagramsReceived() < COUNT && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(COUNT, statistics.getDatagramsReceived());
+        Assert.assertTrue(statistics.getReadBatches() > 0);
+        Assert.assertTrue(statistics.getReadBatches() <= COUNT);
+    }
+
+    public void testBatchedSendsDeliverEveryDatagram() throws Exception {
+        NettyDatagramStatistics statistics = messageProcessor.getDatagramStatistics();
+        InetAddress address = InetAddress.getByName("127.0.0.1");
+        MessageChannel messageChannel = messageProcessor.createMessageChannel(address, 15100);
+        for (int i = 0; i < COUNT; i++) {
+            messageChannel.sendMessage(options("send-" + i).getBytes("UTF-8"), address, 15100, false);
+        }
+        byte[] buffer = new byte[4096];
+        for (int i = 0; i < COUNT; i++) {
+            peer.receive(new DatagramPacket(buffer, buffer.length));
+        }
+        Assert.assertEquals(COUNT, statistics.getDatagramsSent());
+        Assert.assertTrue(statistics.getFlushes() > 0);
+        Assert.assertTrue(statistics.getFlushes() <= COUNT);
+        Assert.assertTrue(statistics.getDatagramsPerFlush() >= 1);
+    }
+
+    private static String options(String callId) {
+        return "OPTIONS sip:test@127.0.0.1:15099 SIP/2.0\r\n"
+                + "Via: SIP/2.0/UDP 127.0.0.1:15100;branch=z9hG4bK" + callId + "\r\n"
+                + "From: <sip:peer@127.0.0.1>;tag=1\r\n"
+                + "To: <sip:test@127.0.0.1>\r\n"
+                + "Call-ID: " + callId + "\r\n"
+                + "CSeq: 1 OPTIONS\r\n"
+                + "Max-Forwards: 70\r\n"
+                + "Content-Length: 0\r\n\r\n";
+    }
+}
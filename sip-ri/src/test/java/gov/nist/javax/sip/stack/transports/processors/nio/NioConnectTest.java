@@ -0,0 +1,249 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.nio;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.ListeningPoint;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.SipListener;
+import javax.sip.SipProvider;
+import javax.sip.TimeoutEvent;
+import javax.sip.TransactionTerminatedEvent;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.message.MessageFactoryImpl;
+import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
+import junit.framework.TestCase;
+
+/**
+ * Sends over connections established without blocking the sender, the
+ * default NIO_BLOCKING_MODE. A listen backlog kept full holds connects
+ * pending.
+ */
+public class NioConnectTest extends TestCase {
+
+    private static final int PORT = 5090;
+
+    private SipStackImpl sipStack;
+
+    private SipProvider sipProvider;
+
+    private NioTcpMessageProcessor processor;
+
+    private final List<Integer> statusCodes = new ArrayList<Integer>();
+
+    private int ioExceptions;
+
+    private ServerSocket server;
+
+    private final List<SocketChannel> backlog = new ArrayList<SocketChannel>();
+
+    private final List<Integer> backlogPorts = new ArrayList<Integer>();
+
+    private void createSipStack(int connectionTimeout) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "connects");
+        properties.setProperty("gov.nist.javax.sip.MESSAGE_PROCESSOR_FACTORY",
+                NioMessageProcessorFactory.class.getName());
+        properties.setProperty("gov.nist.javax.sip.CONNECTION_TIMEOUT", Integer.toString(connectionTimeout));
+        sipStack = new SipStackImpl(properties);
+        ListeningPoint listeningPoint = sipStack.createListeningPoint("127.0.0.1", PORT, ListeningPoint.TCP);
+        sipProvider = sipStack.createSipProvider(listeningPoint);
+        sipProvider.addSipListener(new Listener());
+        for (MessageProcessor messageProcessor : sipStack.getMessageProcessors()) {
+            if (messageProcessor instanceof NioTcpMessageProcessor) {
+                processor = (NioTcpMessageProcessor) messageProcessor;
+            }
+        }
+        assertTrue(processor.isNonBlockingConnect());
+    }
+
+    protected void tearDown() throws Exception {
+        for (SocketChannel socketChannel : backlog) {
+            socketChannel.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        if (sipStack != null) {
+            sipStack.stop();
+        }
+    }
+
+    public void testQueuedSendsFlushedOnConnect() throws Exception {
+        createSipStack(30000);
+        int port = fillBacklog();
+        for (int i = 1; i <= 3; i++) {
+            sipProvider.sendRequest(request(port, i));
+        }
+        Thread.sleep(200);
+        // the connect is pending and the requests queued on its socket
+        assertEquals(1, processor.getPendingConnectTimeouts());
+
+        // make room for the connect, established when its SYN is sent again
+        server.setSoTimeout(10000);
+        Socket socket = server.accept();
+        while (isBacklog(socket)) {
+            socket.close();
+            socket = server.accept();
+        }
+        try {
+            socket.setSoTimeout(10000);
+            // the provider hands stateless sends to the executor, so their order is not fixed
+            read(socket.getInputStream(), "CSeq: 1 OPTIONS", "CSeq: 2 OPTIONS", "CSeq: 3 OPTIONS");
+        } finally {
+            socket.close();
+        }
+        // cancelled once connected
+        assertEquals(0, processor.getPendingConnectTimeouts());
+    }
+
+    public void testQueuedSendsFailOnConnectTimeout() throws Exception {
+        createSipStack(500);
+        int port = fillBacklog();
+        sipProvider.getNewClientTransaction(request(port, 1)).sendRequest();
+        sipProvider.getNewClientTransaction(request(port, 2)).sendRequest();
+        assertEquals(1, processor.getPendingConnectTimeouts());
+        awaitFailures(2);
+        assertEquals(0, processor.getPendingConnectTimeouts());
+    }
+
+    public void testQueuedSendsFailOnRefusedConnect() throws Exception {
+        createSipStack(30000);
+        ServerSocket closed = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        int port = closed.getLocalPort();
+        closed.close();
+        sipProvider.getNewClientTransaction(request(port, 1)).sendRequest();
+        sipProvider.getNewClientTransaction(request(port, 2)).sendRequest();
+        awaitFailures(2);
+        // cancelled on failure, not left to fire
+        assertEquals(0, processor.getPendingConnectTimeouts());
+    }
+
+    /**
+     * @return the port of a server whose connects stay pending.
+     */
+    private int fillBacklog() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getLocalPort());
+        // connects beyond the backlog (plus one on linux) are not answered
+        for (int i = 0; i < 3; i++) {
+            SocketChannel socketChannel = SocketChannel.open();
+            socketChannel.configureBlocking(false);
+            socketChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+            backlogPorts.add(((InetSocketAddress) socketChannel.getLocalAddress()).getPort());
+            socketChannel.connect(address);
+            backlog.add(socketChannel);
+        }
+        Thread.sleep(200);
+        int pending = 0;
+        for (SocketChannel socketChannel : backlog) {
+            if (!socketChannel.finishConnect()) {
+                pending++;
+            }
+        }
+        assertTrue("the backlog must hold connects pending", pending > 0);
+        return server.getLocalPort();
+    }
+
+    private boolean isBacklog(Socket socket) {
+        return backlogPorts.contains(socket.getPort());
+    }
+
+    private Request request(int port, int cseq) throws Exception {
+        return new MessageFactoryImpl().createRequest("OPTIONS sip:bob@127.0.0.1:" + port + ";transport=tcp SIP/2.0\r\n"
+                + "Via: SIP/2.0/TCP 127.0.0.1:" + PORT + ";branch=z9hG4bKconnect" + System.nanoTime() + "\r\n"
+                + "Max-Forwards: 70\r\n"
+                + "To: <sip:bob@127.0.0.1>\r\n"
+                + "From: <sip:alice@127.0.0.1>;tag=" + cseq + "\r\n"
+                + "Call-ID: connect" + cseq + "@127.0.0.1\r\n"
+                + "CSeq: " + cseq + " OPTIONS\r\n"
+                + "Content-Length: 0\r\n\r\n");
+    }
+
+    private static void read(InputStream in, String... expected) throws Exception {
+        StringBuilder received = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        for (String text : expected) {
+            while (received.indexOf(text) < 0) {
+                int read = in.read(buffer);
+                assertTrue(received.toString(), read > 0);
+                received.append(new String(buffer, 0, read, "UTF-8"));
+            }
+        }
+    }
+
+    /**
+     * Sends queued on the connect fail with a 503, sends racing its failure with an IOException.
+     */
+    private void awaitFailures(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        synchronized (statusCodes) {
+            while (statusCodes.size() + ioExceptions < count && System.currentTimeMillis() < deadline) {
+                statusCodes.wait(100);
+            }
+            assertEquals(statusCodes + " " + ioExceptions, count, statusCodes.size() + ioExceptions);
+            for (Integer statusCode : statusCodes) {
+                assertEquals(Response.SERVICE_UNAVAILABLE, statusCode.intValue());
+            }
+        }
+    }
+
+    private class Listener implements SipListener {
+        public void processResponse(ResponseEvent responseEvent) {
+            synchronized (statusCodes) {
+                statusCodes.add(responseEvent.getResponse().getStatusCode());
+                statusCodes.notifyAll();
+            }
+        }
+
+        public void processRequest(RequestEvent requestEvent) {
+        }
+
+        public void processTimeout(TimeoutEvent timeoutEvent) {
+        }
+
+        public void processIOException(IOExceptionEvent exceptionEvent) {
+            synchronized (statusCodes) {
+                ioExceptions++;
+                statusCodes.notifyAll();
+            }
+        }
+
+        public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+        }
+
+        public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+        }
+    }
+}
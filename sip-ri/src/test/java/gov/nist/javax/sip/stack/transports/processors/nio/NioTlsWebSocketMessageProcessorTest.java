@@ -0,0 +1,136 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.nio;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import gov.nist.core.Host;
+import gov.nist.core.HostPort;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.transports.processors.MessageChannel;
+import gov.nist.javax.sip.stack.transports.processors.MessageProcessor;
+import junit.framework.TestCase;
+
+/**
+ * Concurrent sends to a peer without a connection, each asking the WSS
+ * processor for the channel of the peer.
+ */
+public class NioTlsWebSocketMessageProcessorTest extends TestCase {
+
+    private static final String PASSPHRASE = "passphrase";
+
+    private static final int SENDERS = 16;
+
+    private SipStackImpl sipStack;
+
+    private NioTlsWebSocketMessageProcessor processor;
+
+    private ServerSocket server;
+
+    private final List<Socket> accepted = new ArrayList<Socket>();
+
+    protected void setUp() throws Exception {
+        String keyStore = new File(getClass().getResource("handshakes.jks").toURI()).getPath();
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "websockets");
+        properties.setProperty("gov.nist.javax.sip.MESSAGE_PROCESSOR_FACTORY",
+                NioMessageProcessorFactory.class.getName());
+        properties.setProperty("javax.net.ssl.keyStore", keyStore);
+        properties.setProperty("javax.net.ssl.keyStorePassword", PASSPHRASE);
+        properties.setProperty("javax.net.ssl.trustStore", keyStore);
+        properties.setProperty("javax.net.ssl.trustStorePassword", PASSPHRASE);
+        properties.setProperty("gov.nist.javax.sip.TLS_CLIENT_AUTH_TYPE", "Disabled");
+        sipStack = new SipStackImpl(properties);
+        sipStack.createListeningPoint("127.0.0.1", 5092, "WSS");
+        for (MessageProcessor messageProcessor : sipStack.getMessageProcessors()) {
+            if (messageProcessor instanceof NioTlsWebSocketMessageProcessor) {
+                processor = (NioTlsWebSocketMessageProcessor) messageProcessor;
+            }
+        }
+        server = new ServerSocket(0, SENDERS, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread() {
+            public void run() {
+                try {
+                    while (true) {
+                        Socket socket = server.accept();
+                        synchronized (accepted) {
+                            accepted.add(socket);
+                        }
+                    }
+                } catch (Exception e) {
+                    // closed by the test
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    protected void tearDown() throws Exception {
+        server.close();
+        synchronized (accepted) {
+            for (Socket socket : accepted) {
+                socket.close();
+            }
+        }
+        sipStack.stop();
+    }
+
+    public void testConcurrentSendsShareOneChannel() throws Exception {
+        final HostPort peer = new HostPort();
+        peer.setHost(new Host("127.0.0.1"));
+        peer.setPort(server.getLocalPort());
+        final CyclicBarrier start = new CyclicBarrier(SENDERS);
+        ExecutorService senders = Executors.newFixedThreadPool(SENDERS);
+        List<Future<MessageChannel>> channels = new ArrayList<Future<MessageChannel>>();
+        try {
+            for (int i = 0; i < SENDERS; i++) {
+                channels.add(senders.submit(new Callable<MessageChannel>() {
+                    public MessageChannel call() throws Exception {
+                        start.await(10, TimeUnit.SECONDS);
+                        return processor.createMessageChannel(peer);
+                    }
+                }));
+            }
+            MessageChannel channel = channels.get(0).get(10, TimeUnit.SECONDS);
+            assertTrue(channel instanceof NioTlsWebSocketMessageChannel);
+            for (Future<MessageChannel> other : channels) {
+                assertSame(channel, other.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            senders.shutdownNow();
+        }
+        Thread.sleep(200);
+        synchronized (accepted) {
+            assertEquals(1, accepted.size());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManagerFactory;
+
+import gov.nist.javax.sip.ClientTransactionExt;
+import gov.nist.javax.sip.SipStackImpl;
+import gov.nist.javax.sip.stack.ByteBufferFactory;
+import gov.nist.javax.sip.stack.simulation.Simulation;
+import junit.framework.TestCase;
+
+public class TlsHandshakePoolTest extends TestCase {
+
+    private static final String PASSPHRASE = "passphrase";
+
+    private Simulation simulation;
+
+    private SipStackImpl sipStack;
+
+    private TlsHandshakePool pool;
+
+    private SSLContext serverContext;
+
+    private SSLContext clientContext;
+
+    protected void setUp() throws Exception {
+        simulation = new Simulation();
+        Properties properties = new Properties();
+        properties.setProperty("javax.sip.STACK_NAME", "handshakes");
+        properties.setProperty("gov.nist.javax.sip.TLS_HANDSHAKE_THREADS", "2");
+        sipStack = simulation.createSipStack(properties);
+        pool = sipStack.getTlsHandshakePool();
+
+        // a self-signed key pair for 127.0.0.1, shipped with the test
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = getClass().getResourceAsStream("handshakes.jks");
+        try {
+            keyStore.load(in, PASSPHRASE.toCharArray());
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSPHRASE.toCharArray());
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagers.getKeyManagers(), null, null);
+        clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustManagers.getTrustManagers(), null);
+        pool.configureSessions(serverContext, clientContext);
+    }
+
+    protected void tearDown() throws Exception {
+        simulation.stop();
+    }
+
+    public void testHandshakeTasksRunOnPool() throws Exception {
+        // both ends count their handshake
+        exchange("127.0.0.1", 5061, 2);
+        assertEquals(0, pool.getResumedHandshakes());
+        assertTrue(pool.toString(), pool.getOffloadedTasks() > 0);
+        assertEquals(0, pool.getInlineTasks());
+    }
+
+    public void testReconnectionResumesSession() throws Exception {
+        exchange("127.0.0.1", 5061, 2);
+        exchange("127.0.0.1", 5061, 4);
+        assertEquals(2, pool.getResumedHandshakes());
+
+        // the session is cached by peer, another port negotiates a new one
+        exchange("127.0.0.1", 5062, 6);
+        assertEquals(2, pool.getResumedHandshakes());
+    }
+
+    public void testHandshakeRate() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            exchange("127.0.0.1", 5061, 2 * i);
+        }
+        assertEquals(6.0 / TlsHandshakePool.RATE_WINDOW, pool.getHandshakeRate(), 0.001);
+        simulation.advance(TlsHandshakePool.RATE_WINDOW * 1000);
+        assertEquals(0.0, pool.getHandshakeRate(), 0.001);
+    }
+
+    public void testTasksRunInlineWithoutThreads() throws Exception {
+        sipStack.setTlsHandshakeThreads(0);
+        pool = new TlsHandshakePool(sipStack);
+        exchange("127.0.0.1", 5061, 2);
+        pool.stop();
+        assertEquals(0, pool.getOffloadedTasks());
+        assertTrue(pool.toString(), pool.getInlineTasks() > 0);
+    }
+
+    /**
+     * Connects to a peer, sends a message and waits for the handshakes of the
+     * pool to reach a count. The server may complete its handshake after
+     * passing the message, when it sends its session ticket.
+     */
+    private void exchange(String peerHost, int peerPort, int handshakes) throws Exception {
+        Connection connection = connect(peerHost, peerPort);
+        try {
+            connection.send("OPTIONS");
+            long deadline = System.currentTimeMillis() + 10000;
+            while (pool.getHandshakes() < handshakes && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(handshakes, pool.getHandshakes());
+        } finally {
+            connection.close();
+        }
+    }
+
+    private Connection connect(String peerHost, int peerPort) {
+        SSLEngine clientEngine = clientContext.createSSLEngine(peerHost, peerPort);
+        clientEngine.setUseClientMode(true);
+        SSLEngine serverEngine = serverContext.createSSLEngine();
+        serverEngine.setUseClientMode(false);
+        return new Connection(clientEngine, serverEngine);
+    }
+
+    /**
+     * Two ends of a TLS connection, each reading on its own thread like the
+     * selector thread of a processor.
+     */
+    private class Connection {
+        private final Endpoint client;
+        private final Endpoint server;
+
+        Connection(SSLEngine clientEngine, SSLEngine serverEngine) {
+            client = new Endpoint(clientEngine);
+            server = new Endpoint(serverEngine);
+            client.peer = server;
+            server.peer = client;
+        }
+
+        void send(String message) throws Exception {
+            final byte[] bytes = message.getBytes("UTF-8");
+            client.stateMachine.wrap(ByteBuffer.wrap(bytes), client.prepareEncryptedDataBuffer(),
+                    new SSLStateMachine.MessageSendCallback() {
+                        public void doSend(byte[] encrypted) throws IOException {
+                            client.sendEncryptedData(encrypted);
+                        }
+                    });
+            long deadline = System.currentTimeMillis() + 10000;
+            while (server.received() < bytes.length && server.failure == null && client.failure == null
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNull(server.failure);
+            assertNull(client.failure);
+            assertEquals(message, server.plaintext.toString("UTF-8"));
+        }
+
+        void close() throws Exception {
+            client.selector.shutdown();
+            server.selector.shutdown();
+        }
+    }
+
+    private class Endpoint implements NioTlsChannelInterface {
+        private final SSLStateMachine stateMachine;
+        private final ExecutorService selector = Executors.newSingleThreadExecutor();
+        private final ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+        private Endpoint peer;
+        private volatile Exception failure;
+
+        Endpoint(SSLEngine engine) {
+            stateMachine = new SSLStateMachine(engine, this, pool);
+        }
+
+        synchronized int received() {
+            return plaintext.size();
+        }
+
+        public void sendEncryptedData(byte[] msg) {
+            final ByteBuffer buffer = ByteBuffer.wrap(msg.clone());
+            peer.selector.execute(new Runnable() {
+                public void run() {
+                    try {
+                        peer.stateMachine.unwrap(buffer);
+                    } catch (Exception e) {
+                        peer.failure = e;
+                    }
+                }
+            });
+        }
+
+        public ByteBuffer prepareAppDataBuffer() {
+            return prepareAppDataBuffer(stateMachine.sslEngine.getSession().getApplicationBufferSize());
+        }
+
+        public ByteBuffer prepareAppDataBuffer(int capacity) {
+            return ByteBufferFactory.getInstance().allocateDirect(capacity);
+        }
+
+        public ByteBuffer prepareEncryptedDataBuffer() {
+            return ByteBufferFactory.getInstance().allocateDirect(
+                    stateMachine.sslEngine.getSession().getPacketBufferSize());
+        }
+
+        public synchronized void addPlaintextBytes(byte[] bytes) {
+            plaintext.write(bytes, 0, bytes.length);
+        }
+
+        public SipStackImpl getSIPStack() {
+            return sipStack;
+        }
+
+        public ClientTransactionExt getEncapsulatedClientTransaction() {
+            return null;
+        }
+
+        public void close() {
+            failure = new IOException("closed");
+        }
+    }
+}
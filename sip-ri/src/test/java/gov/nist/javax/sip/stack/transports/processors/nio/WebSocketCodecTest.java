@@ -0,0 +1,269 @@
+/*
+ * Mobius Software LTD
+ * Copyright 2023, Mobius Software LTD and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package gov.nist.javax.sip.stack.transports.processors.nio;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class WebSocketCodecTest extends TestCase {
+
+    private static final String INVITE = "INVITE sip:bob@biloxi.com SIP/2.0\r\n"
+            + "Via: SIP/2.0/WS df7jal23ls0d.invalid;branch=z9hG4bK776asdhds\r\n"
+            + "Max-Forwards: 70\r\n"
+            + "To: Bob <sip:bob@biloxi.com>\r\n"
+            + "From: Alice <sip:alice@atlanta.com>;tag=1928301774\r\n"
+            + "Call-ID: a84b4c76e66710@pc33.atlanta.com\r\n"
+            + "CSeq: 314159 INVITE\r\n"
+            + "Contact: <sip:alice@df7jal23ls0d.invalid;transport=ws>\r\n"
+            + "Content-Length: 0\r\n\r\n";
+
+    public void testMaskedRoundTrip() throws Exception {
+        byte[] payload = INVITE.getBytes();
+        byte[] copy = payload.clone();
+        byte[] frame = WebSocketCodec.encode(payload, 0, true, true);
+        Assert.assertTrue("payload must not be masked in place", Arrays.equals(copy, payload));
+
+        WebSocketCodec codec = new WebSocketCodec(true, true);
+        codec.append(ByteBuffer.wrap(frame));
+        Assert.assertEquals(INVITE, toString(codec.decode()));
+        Assert.assertNull(codec.decode());
+    }
+
+    public void testRealMask() throws Exception {
+        byte[] payload = "abcdefghij".getBytes();
+        byte[] mask = { 0x12, 0x34, 0x56, 0x78 };
+        ByteBuffer frame = ByteBuffer.allocate(2 + 4 + payload.length);
+        frame.put((byte) 0x81).put((byte) (0x80 | payload.length)).put(mask);
+        byte[] masked = payload.clone();
+        WebSocketCodec.applyMask(masked, 0, masked.length, mask);
+        frame.put(masked);
+
+        WebSocketCodec codec = new WebSocketCodec(true, true);
+        codec.append(ByteBuffer.wrap(frame.array()));
+        Assert.assertEquals("abcdefghij", toString(codec.decode()));
+    }
+
+    public void testPartialFrames() throws Exception {
+        byte[] frame = WebSocketCodec.encode(INVITE.getBytes(), 0, true, true);
+        WebSocketCodec codec = new WebSocketCodec(true, true);
+        StringBuilder decoded = new StringBuilder();
+        // feed the frame a few bytes at a time, header included
+        for (int i = 0; i < frame.length; i += 3) {
+            codec.append(ByteBuffer.wrap(frame, i, Math.min(3, frame.length - i)));
+            ByteBuffer payload = codec.decode();
+            if (payload != null) {
+                decoded.append(toString(payload));
+            }
+        }
+        Assert.assertEquals(INVITE, decoded.toString());
+    }
+
+    public void testSeveralFramesInOneRead() throws Exception {
+        byte[] first = WebSocketCodec.encode("first".getBytes(), 0, true, false);
+        byte[] second = WebSocketCodec.encode(INVITE.getBytes(), 0, true, false);
+        byte[] ping = WebSocketCodec.encode(new byte[0], 0, true, false, (byte) 0x9);
+        ByteBuffer read = ByteBuffer.allocate(first.length + ping.length + second.length);
+        read.put(first).put(ping).put(second).flip();
+
+        WebSocketCodec codec = new WebSocketCodec(false, true);
+        codec.append(read);
+        Assert.assertEquals("first", toString(codec.decode()));
+        Assert.assertEquals("", toString(codec.decode()));
+        Assert.assertEquals(INVITE, toString(codec.decode()));
+        Assert.assertNull(codec.decode());
+    }
+
+    public void testExtendedLengths() throws Exception {
+        for (int length : new int[] { 125, 126, 0xFFFF, 0x10000, 200000 }) {
+            byte[] payload = new byte[length];
+            for (int i = 0; i < length; i++) {
+                payload[i] = (byte) ('a' + i % 26);
+            }
+            WebSocketCodec codec = new WebSocketCodec(true, true);
+            codec.append(ByteBuffer.wrap(WebSocketCodec.encode(payload, 0, true, true)));
+            ByteBuffer decoded = codec.decode();
+            Assert.assertEquals(length, decoded.remaining());
+            Assert.assertEquals(ByteBuffer.wrap(payload), decoded);
+        }
+    }
+
+    public void testFragmentedMessage() throws Exception {
+        byte[] first = WebSocketCodec.encode("INVITE ".getBytes(), 0, false, true);
+        byte[] last = WebSocketCodec.encode("sip:bob".getBytes(), 0, true, true, (byte) 0x0);
+        WebSocketCodec codec = new WebSocketCodec(true, true);
+        codec.append(ByteBuffer.wrap(first));
+        codec.append(ByteBuffer.wrap(last));
+        Assert.assertEquals("INVITE ", toString(codec.decode()));
+        Assert.assertEquals("sip:bob", toString(codec.decode()));
+
+        // a continuation is only valid inside a fragmented message
+        codec.append(ByteBuffer.wrap(WebSocketCodec.encode("x".getBytes(), 0, true, true, (byte) 0x0)));
+        try {
+            codec.decode();
+            fail("continuation outside of a fragmented message");
+        } catch (RuntimeException expected) {
+        }
+    }
+
+    public void testPerMessageDeflateRoundTrip() throws Exception {
+        WebSocketCodec sender = new WebSocketCodec(false, true);
+        sender.setPerMessageDeflate(true);
+        byte[] frame = sender.encodeMessage(INVITE.getBytes(), true);
+        Assert.assertTrue("RSV1 must be set", (frame[0] & 0x40) != 0);
+        Assert.assertTrue("message must be compressed", frame.length < INVITE.length());
+
+        WebSocketCodec receiver = new WebSocketCodec(true, true);
+        receiver.setPerMessageDeflate(true);
+        receiver.append(ByteBuffer.wrap(frame));
+        Assert.assertEquals(INVITE, toString(receiver.decode()));
+
+        // nothing is kept between messages
+        receiver.append(ByteBuffer.wrap(sender.encodeMessage(INVITE.getBytes(), true)));
+        Assert.assertEquals(INVITE, toString(receiver.decode()));
+
+        // short messages are sent uncompressed
+        frame = sender.encodeMessage("a".getBytes(), true);
+        Assert.assertEquals(0, frame[0] & 0x40);
+        receiver.append(ByteBuffer.wrap(frame));
+        Assert.assertEquals("a", toString(receiver.decode()));
+    }
+
+    public void testFragmentedCompressedMessage() throws Exception {
+        WebSocketCodec sender = new WebSocketCodec(false, true);
+        sender.setPerMessageDeflate(true);
+        byte[] frame = sender.encodeMessage(INVITE.getBytes(), false);
+        int headerLength = (frame[1] & 0x7F) == 126 ? 4 : 2;
+        byte[] compressed = Arrays.copyOfRange(frame, headerLength, frame.length);
+        int half = compressed.length / 2;
+
+        WebSocketCodec receiver = new WebSocketCodec(false, true);
+        receiver.setPerMessageDeflate(true);
+        receiver.append(ByteBuffer.wrap(WebSocketCodec.encode(Arrays.copyOfRange(compressed, 0, half),
+                WebSocketCodec.RSV_DEFLATE, false, false)));
+        receiver.append(ByteBuffer.wrap(WebSocketCodec.encode(Arrays.copyOfRange(compressed, half, compressed.length),
+                0, true, false, (byte) 0x0)));
+        Assert.assertEquals("", toString(receiver.decode()));
+        Assert.assertEquals(INVITE, toString(receiver.decode()));
+    }
+
+    public void testDeflateBomb() throws Exception {
+        // 64 MB of zeros compress to about 64 KB
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(new byte[64 * 1024 * 1024]);
+        deflater.finish();
+        ByteBuffer compressed = ByteBuffer.allocate(1024 * 1024);
+        while (!deflater.finished()) {
+            compressed.position(compressed.position() + deflater.deflate(compressed.array(),
+                    compressed.position(), compressed.remaining()));
+        }
+        deflater.end();
+        byte[] payload = Arrays.copyOf(compressed.array(), compressed.position());
+        Assert.assertTrue(payload.length < WebSocketCodec.DEFAULT_MAX_INFLATED_SIZE);
+
+        WebSocketCodec receiver = new WebSocketCodec(false, true);
+        receiver.setPerMessageDeflate(true);
+        receiver.append(ByteBuffer.wrap(WebSocketCodec.encode(payload, WebSocketCodec.RSV_DEFLATE, true, false)));
+        try {
+            receiver.decode();
+            fail("deflate bomb inflated");
+        } catch (WebSocketCodec.MessageTooBigException expected) {
+        }
+    }
+
+    public void testMaxInflatedSize() throws Exception {
+        WebSocketCodec sender = new WebSocketCodec(false, true);
+        sender.setPerMessageDeflate(true);
+        WebSocketCodec receiver = new WebSocketCodec(false, true);
+        receiver.setPerMessageDeflate(true);
+        receiver.setMaxMessageSize(4096);
+
+        byte[] message = new byte[4096];
+        Arrays.fill(message, (byte) 'a');
+        receiver.append(ByteBuffer.wrap(sender.encodeMessage(message, false)));
+        Assert.assertEquals(4096, receiver.decode().remaining());
+
+        receiver.append(ByteBuffer.wrap(sender.encodeMessage(new byte[4097], false)));
+        try {
+            receiver.decode();
+            fail("message larger than the limit inflated");
+        } catch (WebSocketCodec.MessageTooBigException expected) {
+        }
+    }
+
+    public void testEncodeClose() throws Exception {
+        byte[] frame = WebSocketCodec.encodeClose(WebSocketCodec.CLOSE_MESSAGE_TOO_BIG, false);
+        Assert.assertTrue(Arrays.equals(new byte[] { (byte) 0x88, 0x02, 0x03, (byte) 0xF1 }, frame));
+    }
+
+    public void testCompressedFrameWithoutNegotiation() throws Exception {
+        WebSocketCodec sender = new WebSocketCodec(false, true);
+        sender.setPerMessageDeflate(true);
+        WebSocketCodec receiver = new WebSocketCodec(false, true);
+        receiver.append(ByteBuffer.wrap(sender.encodeMessage(INVITE.getBytes(), false)));
+        try {
+            receiver.decode();
+            fail("permessage-deflate was not negotiated");
+        } catch (RuntimeException expected) {
+        }
+    }
+
+    public void testHandshakeNegotiation() throws Exception {
+        String request = "GET / HTTP/1.1\r\n"
+                + "Host: example.com\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                + "Sec-WebSocket-Protocol: sip\r\n"
+                + "sec-websocket-extensions: permessage-deflate; client_max_window_bits\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n";
+
+        WebSocketHttpHandshake handshake = new WebSocketHttpHandshake(true);
+        String response = new String(handshake.createHttpResponse(request));
+        Assert.assertTrue(handshake.isPerMessageDeflate());
+        Assert.assertTrue(response.contains("Sec-WebSocket-Extensions: permessage-deflate; "
+                + "server_no_context_takeover; client_no_context_takeover\r\n"));
+
+        handshake = new WebSocketHttpHandshake();
+        response = new String(handshake.createHttpResponse(request));
+        Assert.assertFalse(handshake.isPerMessageDeflate());
+        Assert.assertFalse(response.contains("Sec-WebSocket-Extensions"));
+    }
+
+    public void testPerMessageDeflateOffers() {
+        Assert.assertTrue(WebSocketHttpHandshake.acceptPerMessageDeflate("permessage-deflate"));
+        Assert.assertTrue(WebSocketHttpHandshake.acceptPerMessageDeflate(
+                "x-webkit-deflate-frame, permessage-deflate; server_max_window_bits=\"15\""));
+        Assert.assertTrue(WebSocketHttpHandshake.acceptPerMessageDeflate(
+                "permessage-deflate; server_max_window_bits=10, permessage-deflate"));
+        Assert.assertFalse(WebSocketHttpHandshake.acceptPerMessageDeflate(
+                "permessage-deflate; server_max_window_bits=10"));
+        Assert.assertFalse(WebSocketHttpHandshake.acceptPerMessageDeflate("x-webkit-deflate-frame"));
+        Assert.assertFalse(WebSocketHttpHandshake.acceptPerMessageDeflate(""));
+    }
+
+    private static String toString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes);
+    }
+}